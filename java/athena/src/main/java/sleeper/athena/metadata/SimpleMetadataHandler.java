@@ -28,23 +28,32 @@ import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
 import org.apache.arrow.vector.complex.reader.FieldReader;
 
 import sleeper.core.partition.Partition;
 
 import java.io.IOException;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+
+import static sleeper.configuration.properties.instance.AthenaProperty.ATHENA_RECORDS_PER_SPLIT;
 
 /**
  * The {@link SimpleMetadataHandler} implementation of the {@link SleeperMetadataHandler} just passes on the default
  * information without enhancing it. Instead of grouping the data by leaf partition, this handler will unique all the
  * files from all the partitions and pass each one to a separate Record handler - thereby achieving a higher degree of
- * parallelism of one handler per file.
+ * parallelism of one handler per file. Large files are divided further, with each handler reading a range of row groups
+ * in the file.
  */
 public class SimpleMetadataHandler extends SleeperMetadataHandler {
+    public static final String FILE_SPLIT_INDEX_FIELD = "_SleeperFileSplitIndex";
+    public static final String FILE_SPLIT_COUNT_FIELD = "_SleeperFileSplitCount";
+    private static final java.lang.reflect.Type RECORD_COUNTS_TYPE = new TypeToken<Map<String, Long>>() {
+    }.getType();
 
     public SimpleMetadataHandler() throws IOException {
         super();
@@ -71,22 +80,47 @@ public class SimpleMetadataHandler extends SleeperMetadataHandler {
         // no op
     }
 
+    /**
+     * Creates a split for each relevant file. Files with more records than the configured number of records per split
+     * are read by several splits, each reading a range of the row groups in the file.
+     *
+     * @param  allocator Tool for creating and managing Apache Arrow Blocks.
+     * @param  request   Provides details of the catalog, database, table, and partition(s) being queried
+     * @return           the splits
+     */
     @Override
     public GetSplitsResponse doGetSplits(BlockAllocator allocator, GetSplitsRequest request) {
         Block partitions = request.getPartitions();
-        Set<String> files = new HashSet<>();
+        Map<String, Long> fileToRecordCount = new HashMap<>();
         FieldReader filesReader = partitions.getFieldReader(RELEVANT_FILES_FIELD);
+        FieldReader recordCountsReader = partitions.getFieldVector(RELEVANT_FILE_RECORD_COUNTS_FIELD) == null
+                ? null : partitions.getFieldReader(RELEVANT_FILE_RECORD_COUNTS_FIELD);
         Gson gson = new Gson();
         for (int i = 0; i < partitions.getRowCount(); i++) {
             filesReader.setPosition(i);
             List<String> list = gson.fromJson(filesReader.readText().toString(), List.class);
-            files.addAll(list);
+            list.forEach(file -> fileToRecordCount.putIfAbsent(file, 0L));
+            if (recordCountsReader != null) {
+                recordCountsReader.setPosition(i);
+                Map<String, Long> recordCounts = gson.fromJson(recordCountsReader.readText().toString(), RECORD_COUNTS_TYPE);
+                fileToRecordCount.putAll(recordCounts);
+            }
         }
 
-        Set<Split> splits = files.stream()
-                .map(file -> Split.newBuilder(makeSpillLocation(request), makeEncryptionKey())
-                        .add(RELEVANT_FILES_FIELD, file).build())
-                .collect(Collectors.toSet());
+        long recordsPerSplit = getInstanceProperties().getLong(ATHENA_RECORDS_PER_SPLIT);
+        Set<Split> splits = new HashSet<>();
+        fileToRecordCount.forEach((file, records) -> {
+            long splitsForFile = Math.max(1, (records + recordsPerSplit - 1) / recordsPerSplit);
+            for (long index = 0; index < splitsForFile; index++) {
+                Split.Builder builder = Split.newBuilder(makeSpillLocation(request), makeEncryptionKey())
+                        .add(RELEVANT_FILES_FIELD, file);
+                if (splitsForFile > 1) {
+                    builder.add(FILE_SPLIT_INDEX_FIELD, String.valueOf(index))
+                            .add(FILE_SPLIT_COUNT_FIELD, String.valueOf(splitsForFile));
+                }
+                splits.add(builder.build());
+            }
+        });
 
         return new GetSplitsResponse(request.getCatalogName(), splits);
     }
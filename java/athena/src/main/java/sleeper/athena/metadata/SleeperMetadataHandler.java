@@ -66,11 +66,16 @@ import sleeper.core.schema.type.LongType;
 import sleeper.core.schema.type.PrimitiveType;
 import sleeper.core.schema.type.StringType;
 import sleeper.core.schema.type.Type;
+import sleeper.statestore.FileInfo;
 import sleeper.statestore.StateStore;
+import sleeper.statestore.StateStoreException;
 import sleeper.statestore.StateStoreProvider;
 import sleeper.table.job.TableLister;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -91,6 +96,7 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
 
     public static final String SOURCE_TYPE = "Sleeper";
     public static final String RELEVANT_FILES_FIELD = "_SleeperRelevantFiles";
+    public static final String RELEVANT_FILE_RECORD_COUNTS_FIELD = "_SleeperRelevantFileRecordCounts";
     private AmazonS3 s3Client;
     private InstanceProperties instanceProperties;
     private TablePropertiesProvider tablePropertiesProvider;
@@ -219,8 +225,8 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
     }
 
     /**
-     * Add an extra column which will be available to the GetSplits method but not to Athena. This column is used
-     * for saying which Sleeper partitions are relevant to the query
+     * Add extra columns which will be available to the GetSplits method but not to Athena. These columns are used
+     * for saying which Sleeper files are relevant to the query, and how many records are in each file
      *
      * @param partitionSchemaBuilder the builder
      * @param request                the request
@@ -229,6 +235,7 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
     public void enhancePartitionSchema(SchemaBuilder partitionSchemaBuilder, GetTableLayoutRequest request) {
         LOGGER.debug("Enhancing schema with fields for schema description");
         partitionSchemaBuilder.addStringField(RELEVANT_FILES_FIELD);
+        partitionSchemaBuilder.addStringField(RELEVANT_FILE_RECORD_COUNTS_FIELD);
         addExtraSchemaEnhancements(partitionSchemaBuilder, request);
     }
 
@@ -265,7 +272,6 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
         StateStore stateStore = getStateStore(tableProperties);
 
         List<Partition> allPartitions = stateStore.getAllPartitions();
-        Map<String, List<String>> partitionToActiveFiles = stateStore.getPartitionToActiveFilesMap();
         PartitionTree partitionTree = new PartitionTree(schema, allPartitions);
         // Filtering existing list to avoid expensive call to statestore
         List<Partition> leafPartitions = allPartitions.stream()
@@ -273,20 +279,23 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
                 .collect(Collectors.toList());
         Map<String, ValueSet> predicates = getTableLayoutRequest.getConstraints().getSummary();
         List<Field> rowKeyFields = schema.getRowKeyFields();
+        Map<String, List<FileInfo>> partitionToActiveFiles = getPartitionToActiveFilesMeetingConstraints(
+                stateStore, rowKeyFields.get(0), predicates);
 
         leafPartitions.forEach(partition -> {
             LOGGER.debug("Checking partition {} if it contains relevant files", partition.getId());
             // First Check the partition meets the constraints
             if (isValid(partition, rowKeyFields, predicates)) {
                 LOGGER.debug("Partition {} contained relevant files", partition.getId());
-                List<String> relevantFilesForLeafPartition = getRelevantFilesForLeafPartition(partition, partitionTree, partitionToActiveFiles);
+                Map<String, Long> relevantFilesForLeafPartition = getRelevantFilesForLeafPartition(partition, partitionTree, partitionToActiveFiles);
                 if (relevantFilesForLeafPartition.isEmpty()) {
                     return;
                 }
 
                 Gson gson = new Gson();
                 blockWriter.writeRows((block, rowNum) -> {
-                    block.setValue(RELEVANT_FILES_FIELD, rowNum, gson.toJson(relevantFilesForLeafPartition));
+                    block.setValue(RELEVANT_FILES_FIELD, rowNum, gson.toJson(relevantFilesForLeafPartition.keySet()));
+                    block.setValue(RELEVANT_FILE_RECORD_COUNTS_FIELD, rowNum, gson.toJson(relevantFilesForLeafPartition));
                     writeExtraPartitionDataToBlock(partition, block, rowNum);
                     return 1;
                 });
@@ -333,7 +342,7 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
             if (keyPredicate instanceof EquatableValueSet) {
                 LOGGER.debug("Predicate was EquatableValueSet");
                 EquatableValueSet valueSet = (EquatableValueSet) keyPredicate;
-                boolean match = partitionMatchesExactValues(type, min, max, valueSet);
+                boolean match = matchesExactValues(type, min, max, false, valueSet);
                 if (!match) {
                     return false;
                 }
@@ -347,7 +356,7 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
                 return false;
             } else if (keyPredicate instanceof SortedRangeSet) {
                 LOGGER.debug("Key predicate should be a range");
-                boolean matchedRange = partitionMatchesRange(type, keyPredicate, min, max);
+                boolean matchedRange = matchesRange(type, keyPredicate, min, max, false);
                 if (!matchedRange) {
                     return false;
                 }
@@ -365,20 +374,69 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
      * @param leafPartition          The leaf partition which the files may relate to
      * @param partitionTree          A tree of all the partitions
      * @param partitionToActiveFiles A dictionary of partitions to their active files
-     * @return All the files that relate (or could relate to) a leaf partition
+     * @return The name of each file that relates (or could relate to) a leaf partition, and the number of records in it
      */
-    private List<String> getRelevantFilesForLeafPartition(Partition leafPartition, PartitionTree partitionTree,
-                                                          Map<String, List<String>> partitionToActiveFiles) {
+    private Map<String, Long> getRelevantFilesForLeafPartition(Partition leafPartition, PartitionTree partitionTree,
+                                                               Map<String, List<FileInfo>> partitionToActiveFiles) {
         List<Partition> relevantPartitions = partitionTree.getAllAncestors(leafPartition.getId());
         relevantPartitions.add(leafPartition);
 
-        return relevantPartitions.stream()
+        Map<String, Long> fileToRecordCount = new LinkedHashMap<>();
+        relevantPartitions.stream()
                 .map(Partition::getId)
                 .map(partitionToActiveFiles::get)
                 .filter(Objects::nonNull)
                 .flatMap(List::stream)
-                .distinct()
-                .collect(Collectors.toList());
+                .forEach(file -> fileToRecordCount.putIfAbsent(file.getFilename(), file.getNumberOfRecords()));
+        return fileToRecordCount;
+    }
+
+    /**
+     * Gets the active files in each partition, leaving out files which cannot contain any records meeting the
+     * constraints on the first row key. Each file holds the minimum and maximum row key of the records in it. The
+     * values of the first row key in the file must lie between the first values of those keys.
+     *
+     * @param stateStore      the state store
+     * @param firstRowKey     the first row key field
+     * @param valueSets       the constraints of the query
+     * @return A dictionary of partitions to their active files which may contain relevant records
+     * @throws StateStoreException if the active files could not be read
+     */
+    private Map<String, List<FileInfo>> getPartitionToActiveFilesMeetingConstraints(
+            StateStore stateStore, Field firstRowKey, Map<String, ValueSet> valueSets) throws StateStoreException {
+        List<FileInfo> activeFiles = stateStore.getActiveFiles();
+        ValueSet keyPredicate = valueSets.get(firstRowKey.getName());
+        PrimitiveType type = (PrimitiveType) firstRowKey.getType();
+        Map<String, List<FileInfo>> partitionToActiveFiles = new HashMap<>();
+        int prunedFiles = 0;
+        for (FileInfo file : activeFiles) {
+            if (keyPredicate == null || fileMayMeetPredicate(file, type, keyPredicate)) {
+                partitionToActiveFiles.computeIfAbsent(file.getPartitionId(), id -> new ArrayList<>()).add(file);
+            } else {
+                prunedFiles++;
+            }
+        }
+        LOGGER.info("Left out {} of {} active files as their row keys did not meet the constraints", prunedFiles, activeFiles.size());
+        return partitionToActiveFiles;
+    }
+
+    private boolean fileMayMeetPredicate(FileInfo file, PrimitiveType type, ValueSet keyPredicate) {
+        if (file.getMinRowKey() == null || file.getMaxRowKey() == null) {
+            return true;
+        }
+        Object min = file.getMinRowKey().get(0);
+        Object max = file.getMaxRowKey().get(0);
+        if (keyPredicate instanceof EquatableValueSet) {
+            return matchesExactValues(type, min, max, true, (EquatableValueSet) keyPredicate);
+        } else if (keyPredicate.isAll()) {
+            return true;
+        } else if (keyPredicate.isNone()) {
+            return false;
+        } else if (keyPredicate instanceof SortedRangeSet) {
+            return matchesRange(type, keyPredicate, min, max, true);
+        } else {
+            return true;
+        }
     }
 
     /**
@@ -401,6 +459,10 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
         return stateStoreProvider.getStateStore(tableProperties);
     }
 
+    protected InstanceProperties getInstanceProperties() {
+        return instanceProperties;
+    }
+
     /**
      * Converts a primitive type in Sleeper to an Arrow type.
      *
@@ -421,7 +483,7 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
         }
     }
 
-    private boolean partitionMatchesRange(PrimitiveType type, ValueSet keyPredicate, Object min, Object max) {
+    private boolean matchesRange(PrimitiveType type, ValueSet keyPredicate, Object min, Object max, boolean maxInclusive) {
         Ranges ranges = keyPredicate.getRanges();
         Range partitionRange;
 
@@ -429,7 +491,7 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
             partitionRange = Range.greaterThanOrEqual(new BlockAllocatorImpl(), toArrowType(type), min);
         } else {
             partitionRange = Range.range(new BlockAllocatorImpl(), toArrowType(type), min, true, max,
-                    false);
+                    maxInclusive);
         }
         boolean matchedRange = false;
         for (Range orderedRange : ranges.getOrderedRanges()) {
@@ -441,7 +503,7 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
         return matchedRange;
     }
 
-    private boolean partitionMatchesExactValues(PrimitiveType type, Object min, Object max, EquatableValueSet valueSet) {
+    private boolean matchesExactValues(PrimitiveType type, Object min, Object max, boolean maxInclusive, EquatableValueSet valueSet) {
         boolean isAllowList = valueSet.isWhiteList();
         /*
          * Filtering partitions based on a denylist is dubious because the result is different depending on whether
@@ -458,10 +520,11 @@ public abstract class SleeperMetadataHandler extends MetadataHandler {
         boolean match = false;
         for (int j = 0; j < rowCount; j++) {
             Object value = valueSet.getValue(j);
-            // If the minimum in the partition is less than or equal to the value and the maximum is more than
-            // the value, the partition matches.
+            // If the minimum is less than or equal to the value and the maximum is more than the value (or equal to
+            // it if the maximum is inclusive), the partition or file matches.
+            int comparedToMax = keyComparator.compare(Key.create(value), Key.create(max));
             if (keyComparator.compare(Key.create(min), Key.create(value)) <= 0 &&
-                    keyComparator.compare(Key.create(value), Key.create(max)) < 0) {
+                    (comparedToMax < 0 || (maxInclusive && comparedToMax == 0))) {
                 // This partition matches the value. If the value is being asked for, the match is positive
                 match = true;
                 break;
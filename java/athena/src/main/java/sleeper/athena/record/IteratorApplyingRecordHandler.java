@@ -41,6 +41,7 @@ import sleeper.configuration.jars.ObjectFactoryException;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.iterator.SortedRecordIterator;
+import sleeper.core.iterator.SortedRecordIteratorChain;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
@@ -260,8 +261,8 @@ public class IteratorApplyingRecordHandler extends SleeperRecordHandler {
             return mergingIterator;
         }
         String iteratorConfig = tableProperties.get(ITERATOR_CONFIG);
-        SortedRecordIterator sortedRecordIterator = objectFactory.getObject(iteratorClass, SortedRecordIterator.class);
-        sortedRecordIterator.init(iteratorConfig, schema);
+        SortedRecordIterator sortedRecordIterator = SortedRecordIteratorChain.create(iteratorClass, iteratorConfig, schema,
+                className -> objectFactory.getObject(className, SortedRecordIterator.class));
         LOGGER.debug("Initialised iterator with config " + iteratorConfig);
         return sortedRecordIterator.apply(mergingIterator);
 
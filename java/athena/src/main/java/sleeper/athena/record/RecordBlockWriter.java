@@ -0,0 +1,209 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.athena.record;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockUtils;
+import com.amazonaws.athena.connector.lambda.data.FieldResolver;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
+import org.apache.arrow.vector.BigIntVector;
+import org.apache.arrow.vector.FieldVector;
+import org.apache.arrow.vector.IntVector;
+import org.apache.arrow.vector.VarBinaryVector;
+import org.apache.arrow.vector.VarCharVector;
+
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.schema.type.Type;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Writes batches of Sleeper records to an Athena {@link Block}. Constraints are evaluated for the whole batch first,
+ * one constrained field at a time, and then the records that passed are written one column at a time, straight into
+ * the Arrow vectors of the block.
+ */
+class RecordBlockWriter {
+    private final List<ColumnWriter> columns = new ArrayList<>();
+    private final List<String> constrainedFields = new ArrayList<>();
+    private final ConstraintEvaluator constraintEvaluator;
+
+    RecordBlockWriter(Schema schema, ConstraintEvaluator constraintEvaluator, Set<String> constrainedFieldNames) {
+        this.constraintEvaluator = constraintEvaluator;
+        for (Field field : schema.getAllFields()) {
+            ColumnWriter column = columnWriter(field);
+            if (column == null) {
+                continue;
+            }
+            columns.add(column);
+            // Constraints are only applied to primitive fields, lists are filtered by Athena
+            if (constrainedFieldNames.contains(field.getName()) && !(field.getType() instanceof ListType)) {
+                constrainedFields.add(field.getName());
+            }
+        }
+    }
+
+    /**
+     * Writes the records in a batch which meet the constraints to the block.
+     *
+     * @param  block    the block to write to
+     * @param  startRow the first row in the block to write to
+     * @param  records  the batch of records
+     * @return          the number of rows written
+     */
+    int writeBatch(Block block, int startRow, List<Record> records) {
+        int[] selected = selectRecordsMeetingConstraints(records);
+        for (ColumnWriter column : columns) {
+            FieldVector vector = block.getFieldVector(column.fieldName);
+            // Fields are only in the block if they were requested
+            if (vector == null) {
+                continue;
+            }
+            for (int i = 0; i < selected.length; i++) {
+                Object value = records.get(selected[i]).get(column.fieldName);
+                column.write(vector, startRow + i, value);
+            }
+        }
+        return selected.length;
+    }
+
+    private int[] selectRecordsMeetingConstraints(List<Record> records) {
+        int numRecords = records.size();
+        if (constrainedFields.isEmpty()) {
+            int[] all = new int[numRecords];
+            for (int i = 0; i < numRecords; i++) {
+                all[i] = i;
+            }
+            return all;
+        }
+        boolean[] rejected = new boolean[numRecords];
+        for (String fieldName : constrainedFields) {
+            for (int i = 0; i < numRecords; i++) {
+                if (!rejected[i] && !constraintEvaluator.apply(fieldName, records.get(i).get(fieldName))) {
+                    rejected[i] = true;
+                }
+            }
+        }
+        int[] selected = new int[numRecords];
+        int numSelected = 0;
+        for (int i = 0; i < numRecords; i++) {
+            if (!rejected[i]) {
+                selected[numSelected++] = i;
+            }
+        }
+        int[] result = new int[numSelected];
+        System.arraycopy(selected, 0, result, 0, numSelected);
+        return result;
+    }
+
+    private static ColumnWriter columnWriter(Field field) {
+        Type type = field.getType();
+        String name = field.getName();
+        if (type instanceof IntType) {
+            return new ColumnWriter(name, RecordBlockWriter::writeInt);
+        } else if (type instanceof LongType) {
+            return new ColumnWriter(name, RecordBlockWriter::writeLong);
+        } else if (type instanceof StringType) {
+            return new ColumnWriter(name, RecordBlockWriter::writeString);
+        } else if (type instanceof ByteArrayType) {
+            return new ColumnWriter(name, RecordBlockWriter::writeByteArray);
+        } else if (type instanceof ListType) {
+            return new ColumnWriter(name, RecordBlockWriter::writeList);
+        } else if (type instanceof MapType) {
+            // Maps aren't supported
+            return null;
+        } else {
+            throw new RuntimeException("Unrecognised type: " + type);
+        }
+    }
+
+    private static void writeInt(FieldVector vector, int row, Object value) {
+        IntVector intVector = (IntVector) vector;
+        if (value == null) {
+            intVector.setNull(row);
+        } else {
+            intVector.setSafe(row, (Integer) value);
+        }
+    }
+
+    private static void writeLong(FieldVector vector, int row, Object value) {
+        BigIntVector longVector = (BigIntVector) vector;
+        if (value == null) {
+            longVector.setNull(row);
+        } else {
+            longVector.setSafe(row, (Long) value);
+        }
+    }
+
+    private static void writeString(FieldVector vector, int row, Object value) {
+        VarCharVector stringVector = (VarCharVector) vector;
+        if (value == null) {
+            stringVector.setNull(row);
+        } else {
+            stringVector.setSafe(row, ((String) value).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void writeByteArray(FieldVector vector, int row, Object value) {
+        VarBinaryVector bytesVector = (VarBinaryVector) vector;
+        if (value == null) {
+            bytesVector.setNull(row);
+        } else {
+            bytesVector.setSafe(row, (byte[]) value);
+        }
+    }
+
+    private static void writeList(FieldVector vector, int row, Object value) {
+        if (value != null) {
+            BlockUtils.setComplexValue(vector, row, FieldResolver.DEFAULT, value);
+        }
+    }
+
+    /**
+     * Writes the values of one field to the vector for that field.
+     */
+    private static class ColumnWriter {
+        private final String fieldName;
+        private final ValueWriter writer;
+
+        ColumnWriter(String fieldName, ValueWriter writer) {
+            this.fieldName = fieldName;
+            this.writer = writer;
+        }
+
+        void write(FieldVector vector, int row, Object value) {
+            writer.write(vector, row, value);
+        }
+    }
+
+    /**
+     * Writes a value to an Arrow vector of the type for a Sleeper field.
+     */
+    @FunctionalInterface
+    private interface ValueWriter {
+        void write(FieldVector vector, int row, Object value);
+    }
+}
@@ -20,6 +20,7 @@ import com.amazonaws.services.athena.AmazonAthena;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.secretsmanager.AWSSecretsManager;
 import org.apache.arrow.vector.types.pojo.Field;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.filter2.compat.FilterCompat;
 import org.apache.parquet.filter2.predicate.FilterPredicate;
@@ -38,6 +39,8 @@ import java.util.List;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static sleeper.athena.metadata.SimpleMetadataHandler.FILE_SPLIT_COUNT_FIELD;
+import static sleeper.athena.metadata.SimpleMetadataHandler.FILE_SPLIT_INDEX_FIELD;
 import static sleeper.athena.metadata.SleeperMetadataHandler.RELEVANT_FILES_FIELD;
 
 /**
@@ -85,6 +88,7 @@ public class SimpleRecordHandler extends SleeperRecordHandler {
 
     /**
      * Creates a single parquet iterator from the schema and split, using the constraints to add parquet filters for efficiency.
+     * If the file is divided between several splits, only the row groups in this split's range of the file are read.
      *
      * @param recordsRequest  the request
      * @param schema          the schema for reading the data
@@ -99,8 +103,19 @@ public class SimpleRecordHandler extends SleeperRecordHandler {
         FilterTranslator filterTranslator = new FilterTranslator(schema);
         FilterPredicate filterPredicate = filterTranslator.toPredicate(recordsRequest.getConstraints().getSummary());
 
-        ParquetReader.Builder<Record> recordReaderBuilder = new ParquetRecordReader.Builder(new Path(fileName), schema)
-                .withConf(getConfigurationForTable(tableProperties));
+        Path path = new Path(fileName);
+        Configuration conf = getConfigurationForTable(tableProperties);
+        ParquetReader.Builder<Record> recordReaderBuilder = new ParquetRecordReader.Builder(path, schema)
+                .withConf(conf);
+
+        String splitIndex = recordsRequest.getSplit().getProperty(FILE_SPLIT_INDEX_FIELD);
+        if (splitIndex != null) {
+            // Read the row groups whose midpoints lie in this split's share of the file
+            long splitCount = Long.parseLong(recordsRequest.getSplit().getProperty(FILE_SPLIT_COUNT_FIELD));
+            long index = Long.parseLong(splitIndex);
+            long fileLength = path.getFileSystem(conf).getFileStatus(path).getLen();
+            recordReaderBuilder.withFileRange(fileLength * index / splitCount, fileLength * (index + 1) / splitCount);
+        }
 
         if (filterPredicate != null) {
             recordReaderBuilder.withFilter(FilterCompat.get(filterPredicate));
@@ -17,13 +17,6 @@ package sleeper.athena.record;
 
 import com.amazonaws.athena.connector.lambda.QueryStatusChecker;
 import com.amazonaws.athena.connector.lambda.data.BlockSpiller;
-import com.amazonaws.athena.connector.lambda.data.BlockUtils;
-import com.amazonaws.athena.connector.lambda.data.FieldResolver;
-import com.amazonaws.athena.connector.lambda.data.writers.GeneratedRowWriter;
-import com.amazonaws.athena.connector.lambda.data.writers.extractors.BigIntExtractor;
-import com.amazonaws.athena.connector.lambda.data.writers.extractors.IntExtractor;
-import com.amazonaws.athena.connector.lambda.data.writers.extractors.VarBinaryExtractor;
-import com.amazonaws.athena.connector.lambda.data.writers.extractors.VarCharExtractor;
 import com.amazonaws.athena.connector.lambda.handlers.RecordHandler;
 import com.amazonaws.athena.connector.lambda.records.ReadRecordsRequest;
 import com.amazonaws.services.athena.AmazonAthena;
@@ -40,16 +33,11 @@ import sleeper.configuration.properties.table.TablePropertiesProvider;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Schema;
-import sleeper.core.schema.type.ByteArrayType;
-import sleeper.core.schema.type.IntType;
-import sleeper.core.schema.type.ListType;
-import sleeper.core.schema.type.LongType;
-import sleeper.core.schema.type.MapType;
-import sleeper.core.schema.type.StringType;
-import sleeper.core.schema.type.Type;
 import sleeper.utils.HadoopConfigurationProvider;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static sleeper.athena.metadata.IteratorApplyingMetadataHandler.SOURCE_TYPE;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.CONFIG_BUCKET;
@@ -61,6 +49,11 @@ import static sleeper.configuration.properties.instance.SystemDefinedInstancePro
  */
 public abstract class SleeperRecordHandler extends RecordHandler {
     private static final Logger LOGGER = LoggerFactory.getLogger(SleeperRecordHandler.class);
+    /**
+     * The number of records written to Athena at once. This is the most rows the Athena block spiller accepts in one
+     * call by default. The spiller checks the size of the block after each batch, and spills it when it is full.
+     */
+    private static final int RECORDS_PER_BATCH = 100;
 
     private final TablePropertiesProvider tablePropertiesProvider;
     private final InstanceProperties instanceProperties;
@@ -106,14 +99,15 @@ public abstract class SleeperRecordHandler extends RecordHandler {
             return;
         }
 
-        GeneratedRowWriter.RowWriterBuilder rowWriterBuilder = GeneratedRowWriter.newBuilder(recordsRequest.getConstraints());
-        configureBuilder(rowWriterBuilder, schema);
-
-        GeneratedRowWriter writer = rowWriterBuilder.build();
-
+        RecordBlockWriter writer = new RecordBlockWriter(schema, spiller.getConstraintEvaluator(),
+                recordsRequest.getConstraints().getSummary().keySet());
+        List<Record> batch = new ArrayList<>(RECORDS_PER_BATCH);
         while (recordIterator.hasNext()) {
-            Record next = recordIterator.next();
-            spiller.writeRows((block, rowNum) -> writer.writeRow(block, rowNum, next) ? 1 : 0);
+            batch.add(recordIterator.next());
+            if (batch.size() == RECORDS_PER_BATCH || !recordIterator.hasNext()) {
+                spiller.writeRows((block, rowNum) -> writer.writeBatch(block, rowNum, batch));
+                batch.clear();
+            }
         }
 
         recordIterator.close();
@@ -142,110 +136,6 @@ public abstract class SleeperRecordHandler extends RecordHandler {
      */
     protected abstract CloseableIterator<Record> createRecordIterator(ReadRecordsRequest recordsRequest, Schema schema, TableProperties tableProperties) throws Exception;
 
-    /**
-     * Configures the writer so that it can write records from Sleeper to Athena.
-     *
-     * @param rowWriterBuilder The WriterBuilder
-     * @param schema           The Sleeper Schema for this table
-     */
-    private void configureBuilder(GeneratedRowWriter.RowWriterBuilder rowWriterBuilder, Schema schema) {
-        // Add Extractors according to the schema
-        schema.getAllFields().forEach(field -> {
-            Type type = field.getType();
-            String name = field.getName();
-            if (type instanceof IntType) {
-                addIntExtractor(rowWriterBuilder, name);
-            } else if (type instanceof LongType) {
-                addLongExtractor(rowWriterBuilder, name);
-            } else if (type instanceof StringType) {
-                addStringExtractor(rowWriterBuilder, name);
-            } else if (type instanceof ByteArrayType) {
-                addByteArrayExtractor(rowWriterBuilder, name);
-            } else if (type instanceof ListType) {
-                addListExtractorFactory(rowWriterBuilder, name, (ListType) type);
-            } else if (type instanceof MapType) {
-                // do nothing as Maps aren't supported
-            } else {
-                throw new RuntimeException("Unrecognised type: " + type);
-            }
-        });
-
-    }
-
-    /**
-     * Adds an extractor for byte arrays
-     *
-     * @param rowWriterBuilder the WriterBuilder
-     * @param name             the name of the field
-     */
-    private void addByteArrayExtractor(GeneratedRowWriter.RowWriterBuilder rowWriterBuilder, String name) {
-        rowWriterBuilder.withExtractor(name, (VarBinaryExtractor) (context, dst) -> {
-            Record record = (Record) context;
-            dst.isSet = 1;
-            dst.value = (byte[]) record.get(name);
-        });
-    }
-
-    /**
-     * Adds an extractor factory for Lists.
-     *
-     * @param rowWriterBuilder the WriterBuilder
-     * @param name             the name of the field
-     */
-    private void addListExtractorFactory(GeneratedRowWriter.RowWriterBuilder rowWriterBuilder, String name, ListType type) {
-        rowWriterBuilder.withFieldWriterFactory(name, (vector, extractor, constraint) ->
-                (context, rowNum) -> {
-                    Record record = (Record) context;
-                    Object object = record.get(name);
-                    if (object != null) {
-                        BlockUtils.setComplexValue(vector, rowNum, FieldResolver.DEFAULT, object);
-                    }
-                    return true;
-                });
-    }
-
-    /**
-     * Adds an extractor for Strings
-     *
-     * @param rowWriterBuilder the WriterBuilder
-     * @param name             the name of the field
-     */
-    private void addStringExtractor(GeneratedRowWriter.RowWriterBuilder rowWriterBuilder, String name) {
-        rowWriterBuilder.withExtractor(name, (VarCharExtractor) (context, dst) -> {
-            Record record = (Record) context;
-            dst.isSet = 1;
-            dst.value = (String) record.get(name);
-        });
-    }
-
-    /**
-     * Adds an extractor for Longs
-     *
-     * @param rowWriterBuilder the WriterBuilder
-     * @param name             the name of the field
-     */
-    private void addLongExtractor(GeneratedRowWriter.RowWriterBuilder rowWriterBuilder, String name) {
-        rowWriterBuilder.withExtractor(name, (BigIntExtractor) (context, dst) -> {
-            Record record = (Record) context;
-            dst.isSet = 1;
-            dst.value = (Long) record.get(name);
-        });
-    }
-
-    /**
-     * Adds an extractor for Integers
-     *
-     * @param rowWriterBuilder the WriterBuilder
-     * @param name             the name of the field
-     */
-    private void addIntExtractor(GeneratedRowWriter.RowWriterBuilder rowWriterBuilder, String name) {
-        rowWriterBuilder.withExtractor(name, (IntExtractor) (context, dst) -> {
-            Record record = (Record) context;
-            dst.isSet = 1;
-            dst.value = (Integer) record.get(name);
-        });
-    }
-
     /**
      * Gets the Hadoop configuration set in the table and instance
      *
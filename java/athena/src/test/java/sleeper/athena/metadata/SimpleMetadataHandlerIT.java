@@ -34,8 +34,13 @@ import java.util.ArrayList;
 import java.util.HashMap;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
+import static sleeper.athena.metadata.SimpleMetadataHandler.FILE_SPLIT_COUNT_FIELD;
+import static sleeper.athena.metadata.SimpleMetadataHandler.FILE_SPLIT_INDEX_FIELD;
 import static sleeper.athena.metadata.SleeperMetadataHandler.RELEVANT_FILES_FIELD;
+import static sleeper.athena.metadata.SleeperMetadataHandler.RELEVANT_FILE_RECORD_COUNTS_FIELD;
+import static sleeper.configuration.properties.instance.AthenaProperty.ATHENA_RECORDS_PER_SPLIT;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.CONFIG_BUCKET;
 
 public class SimpleMetadataHandlerIT extends AbstractMetadataHandlerIT {
@@ -81,6 +86,42 @@ public class SimpleMetadataHandlerIT extends AbstractMetadataHandlerIT {
                 .containsExactlyInAnyOrder("a/b/c.parquet", "d/e/f.parquet", "g/h/i.parquet");
     }
 
+    @Test
+    public void shouldSplitFilesWithMoreRecordsThanRecordsPerSplit() throws Exception {
+        // Given
+        InstanceProperties instance = TestUtils.createInstance(createS3Client());
+        instance.setNumber(ATHENA_RECORDS_PER_SPLIT, 100);
+        instance.saveToS3(createS3Client());
+        SimpleMetadataHandler simpleMetadataHandler = new SimpleMetadataHandler(createS3Client(), createDynamoClient(),
+                instance.get(CONFIG_BUCKET), mock(EncryptionKeyFactory.class), mock(AWSSecretsManager.class),
+                mock(AmazonAthena.class), "abc", "def");
+
+        // When
+        BlockAllocatorImpl blockAllocator = new BlockAllocatorImpl();
+        Block partitionsBlock = blockAllocator.createBlock(new SchemaBuilder()
+                .addStringField(RELEVANT_FILES_FIELD)
+                .addStringField(RELEVANT_FILE_RECORD_COUNTS_FIELD)
+                .build());
+        partitionsBlock.setRowCount(1);
+        partitionsBlock.setValue(RELEVANT_FILES_FIELD, 0, "[\"large.parquet\", \"small.parquet\"]");
+        partitionsBlock.setValue(RELEVANT_FILE_RECORD_COUNTS_FIELD, 0, "{\"large.parquet\": 250, \"small.parquet\": 50}");
+        GetSplitsResponse getSplitsResponse = simpleMetadataHandler.doGetSplits(blockAllocator, new GetSplitsRequest(TestUtils.createIdentity(),
+                "abc", "def", new TableName("mydb", "myTable"), partitionsBlock, new ArrayList<>(),
+                new Constraints(new HashMap<>()), "continue"));
+
+        // Then
+        assertThat(getSplitsResponse.getSplits())
+                .extracting(
+                        split -> split.getProperties().get(RELEVANT_FILES_FIELD),
+                        split -> split.getProperties().get(FILE_SPLIT_INDEX_FIELD),
+                        split -> split.getProperties().get(FILE_SPLIT_COUNT_FIELD))
+                .containsExactlyInAnyOrder(
+                        tuple("large.parquet", "0", "3"),
+                        tuple("large.parquet", "1", "3"),
+                        tuple("large.parquet", "2", "3"),
+                        tuple("small.parquet", null, null));
+    }
+
     private Block createPartitionsBlock(String... jsonSerialisedLists) {
         BlockAllocatorImpl blockAllocator = new BlockAllocatorImpl();
         Block block = blockAllocator.createBlock(new SchemaBuilder().addStringField(RELEVANT_FILES_FIELD).build());
@@ -50,8 +50,11 @@ import org.junit.jupiter.api.Test;
 import sleeper.athena.TestUtils;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.key.Key;
 import sleeper.core.partition.Partition;
+import sleeper.core.schema.type.IntType;
 import sleeper.splitter.SplitPartition;
+import sleeper.statestore.FileInfo;
 import sleeper.statestore.dynamodb.DynamoDBStateStore;
 
 import java.io.IOException;
@@ -64,6 +67,7 @@ import java.util.stream.Collectors;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static sleeper.athena.metadata.SleeperMetadataHandler.RELEVANT_FILES_FIELD;
+import static sleeper.athena.metadata.SleeperMetadataHandler.RELEVANT_FILE_RECORD_COUNTS_FIELD;
 import static sleeper.configuration.properties.instance.CommonProperty.ID;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.CONFIG_BUCKET;
 import static sleeper.configuration.properties.table.TableProperty.TABLE_NAME;
@@ -550,6 +554,46 @@ public class SleeperMetadataHandlerIT extends AbstractMetadataHandlerIT {
         assertThat(partitions.getRowCount()).isEqualTo(2);
     }
 
+    @Test
+    public void shouldLeaveOutFilesWhoseRowKeysDoNotMeetConstraints() throws Exception {
+        // Given
+        InstanceProperties instance = TestUtils.createInstance(createS3Client());
+        TableProperties table = createEmptyTable(instance);
+        AmazonS3 s3Client = createS3Client();
+        AmazonDynamoDB dynamoClient = createDynamoClient();
+        DynamoDBStateStore stateStore = new DynamoDBStateStore(table, dynamoClient);
+        String rootPartitionId = stateStore.getAllPartitions().stream()
+                .filter(partition -> partition.getParentPartitionId() == null)
+                .map(Partition::getId)
+                .findFirst().orElseThrow();
+        stateStore.addFiles(List.of(
+                fileInfo(rootPartitionId, "before.parquet", List.of(2017, 1, 1), List.of(2018, 12, 31)),
+                fileInfo(rootPartitionId, "after.parquet", List.of(2019, 6, 1), List.of(2021, 1, 1))));
+        SleeperMetadataHandlerImpl sleeperMetadataHandler = new SleeperMetadataHandlerImpl(s3Client, dynamoClient, instance.get(CONFIG_BUCKET));
+        TableName tableName = new TableName(table.get(TABLE_NAME), table.get(TABLE_NAME));
+        GetTableResponse getTableResponse = sleeperMetadataHandler.doGetTable(new BlockAllocatorImpl(),
+                new GetTableRequest(TestUtils.createIdentity(), "abc", "def", tableName));
+
+        // When
+        Map<String, ValueSet> predicate = new HashMap<>();
+        predicate.put("year", SortedRangeSet.of(Range.greaterThanOrEqual(new BlockAllocatorImpl(),
+                Types.MinorType.INT.getType(), 2020)));
+        GetTableLayoutResponse getTableLayoutResponse = sleeperMetadataHandler.doGetTableLayout(new BlockAllocatorImpl(),
+                new GetTableLayoutRequest(TestUtils.createIdentity(), "abc", "def", tableName,
+                        new Constraints(predicate), getTableResponse.getSchema(), getTableResponse.getPartitionColumns()));
+
+        // Then
+        Block partitions = getTableLayoutResponse.getPartitions();
+        assertThat(partitions.getRowCount()).isOne();
+        FieldReader filesReader = partitions.getFieldReader(RELEVANT_FILES_FIELD);
+        filesReader.setPosition(0);
+        assertThat(new Gson().fromJson(filesReader.readObject().toString(), List.class))
+                .containsExactly("after.parquet");
+        FieldReader recordCountsReader = partitions.getFieldReader(RELEVANT_FILE_RECORD_COUNTS_FIELD);
+        recordCountsReader.setPosition(0);
+        assertThat(recordCountsReader.readObject().toString()).isEqualTo("{\"after.parquet\":100}");
+    }
+
     @Test
     public void shouldCallExtraSchemaEnhancementMethodWhenEnhanceingSchema() throws IOException {
         // Given
@@ -566,6 +610,19 @@ public class SleeperMetadataHandlerIT extends AbstractMetadataHandlerIT {
 
     }
 
+    private static FileInfo fileInfo(String partitionId, String filename, List<Object> minRowKey, List<Object> maxRowKey) {
+        return FileInfo.builder()
+                .rowKeyTypes(new IntType(), new IntType(), new IntType())
+                .minRowKey(Key.create(minRowKey))
+                .maxRowKey(Key.create(maxRowKey))
+                .filename(filename)
+                .partitionId(partitionId)
+                .numberOfRecords(100L)
+                .fileStatus(FileInfo.FileStatus.ACTIVE)
+                .lastStateStoreUpdateTime(1_000_000L)
+                .build();
+    }
+
     private static class SleeperMetadataHandlerImpl extends SleeperMetadataHandler {
         private int schemaEnhancementsCalled = 0;
         private int writeExtraPartitionDataCalled = 0;
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.athena.record;
+
+import com.amazonaws.athena.connector.lambda.data.Block;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocator;
+import com.amazonaws.athena.connector.lambda.data.BlockAllocatorImpl;
+import com.amazonaws.athena.connector.lambda.data.SchemaBuilder;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ConstraintEvaluator;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Constraints;
+import com.amazonaws.athena.connector.lambda.domain.predicate.Range;
+import com.amazonaws.athena.connector.lambda.domain.predicate.SortedRangeSet;
+import com.amazonaws.athena.connector.lambda.domain.predicate.ValueSet;
+import org.apache.arrow.vector.complex.reader.FieldReader;
+import org.apache.arrow.vector.types.Types;
+import org.apache.arrow.vector.util.Text;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.StringType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordBlockWriterTest {
+    private static final Schema SCHEMA = Schema.builder()
+            .rowKeyFields(new Field("year", new IntType()))
+            .sortKeyFields(new Field("timestamp", new LongType()))
+            .valueFields(
+                    new Field("map", new MapType(new StringType(), new StringType())),
+                    new Field("str", new StringType()),
+                    new Field("list", new ListType(new StringType())))
+            .build();
+    private static final org.apache.arrow.vector.types.pojo.Schema ARROW_SCHEMA = new SchemaBuilder()
+            .addIntField("year")
+            .addBigIntField("timestamp")
+            .addStringField("str")
+            .addListField("list", Types.MinorType.VARCHAR.getType())
+            .build();
+
+    private final BlockAllocator allocator = new BlockAllocatorImpl();
+
+    @AfterEach
+    void tearDown() {
+        allocator.close();
+    }
+
+    @Test
+    void shouldWriteEachFieldOfBatch() {
+        // Given
+        RecordBlockWriter writer = new RecordBlockWriter(SCHEMA, ConstraintEvaluator.emptyEvaluator(), Set.of());
+        Block block = allocator.createBlock(ARROW_SCHEMA);
+
+        // When
+        int written = writer.writeBatch(block, 0, List.of(
+                record(2018, 1L, "a", List.of("x", "y")),
+                record(2019, 2L, null, null)));
+        block.setRowCount(written);
+
+        // Then
+        assertThat(written).isEqualTo(2);
+        assertThat(readColumn(block, "year")).containsExactly(2018, 2019);
+        assertThat(readColumn(block, "timestamp")).containsExactly(1L, 2L);
+        assertThat(readColumn(block, "str")).containsExactly(new Text("a"), null);
+        assertThat(readColumn(block, "list")).containsExactly(List.of(new Text("x"), new Text("y")), null);
+    }
+
+    @Test
+    void shouldOnlyWriteRecordsMeetingConstraints() throws Exception {
+        // Given
+        ValueSet yearsFrom2019 = SortedRangeSet.of(Range.greaterThanOrEqual(allocator, Types.MinorType.INT.getType(), 2019));
+        Constraints constraints = new Constraints(Map.of("year", yearsFrom2019));
+        try (ConstraintEvaluator evaluator = new ConstraintEvaluator(allocator, ARROW_SCHEMA, constraints)) {
+            RecordBlockWriter writer = new RecordBlockWriter(SCHEMA, evaluator, constraints.getSummary().keySet());
+            Block block = allocator.createBlock(ARROW_SCHEMA);
+
+            // When
+            int written = writer.writeBatch(block, 0, List.of(
+                    record(2018, 1L, "a", null),
+                    record(2019, 2L, "b", null),
+                    record(2017, 3L, "c", null),
+                    record(2020, 4L, "d", null)));
+            block.setRowCount(written);
+
+            // Then
+            assertThat(written).isEqualTo(2);
+            assertThat(readColumn(block, "year")).containsExactly(2019, 2020);
+            assertThat(readColumn(block, "str")).containsExactly(new Text("b"), new Text("d"));
+        }
+    }
+
+    @Test
+    void shouldWriteBatchAfterRowsAlreadyInBlock() {
+        // Given
+        RecordBlockWriter writer = new RecordBlockWriter(SCHEMA, ConstraintEvaluator.emptyEvaluator(), Set.of());
+        Block block = allocator.createBlock(ARROW_SCHEMA);
+        block.setRowCount(writer.writeBatch(block, 0, List.of(record(2018, 1L, "a", null))));
+
+        // When
+        int written = writer.writeBatch(block, 1, List.of(record(2019, 2L, "b", null), record(2020, 3L, "c", null)));
+        block.setRowCount(1 + written);
+
+        // Then
+        assertThat(readColumn(block, "year")).containsExactly(2018, 2019, 2020);
+        assertThat(readColumn(block, "str")).containsExactly(new Text("a"), new Text("b"), new Text("c"));
+    }
+
+    @Test
+    void shouldSkipFieldsNotRequested() {
+        // Given
+        org.apache.arrow.vector.types.pojo.Schema requested = new SchemaBuilder()
+                .addIntField("year")
+                .build();
+        RecordBlockWriter writer = new RecordBlockWriter(SCHEMA, ConstraintEvaluator.emptyEvaluator(), Set.of());
+        Block block = allocator.createBlock(requested);
+
+        // When
+        int written = writer.writeBatch(block, 0, List.of(record(2018, 1L, "a", null)));
+        block.setRowCount(written);
+
+        // Then
+        assertThat(readColumn(block, "year")).containsExactly(2018);
+        assertThat(block.getFieldVector("str")).isNull();
+    }
+
+    private static Record record(int year, long timestamp, String str, List<String> list) {
+        Record record = new Record();
+        record.put("year", year);
+        record.put("timestamp", timestamp);
+        record.put("map", Map.of("key", "value"));
+        record.put("str", str);
+        record.put("list", list);
+        return record;
+    }
+
+    private static List<Object> readColumn(Block block, String fieldName) {
+        FieldReader reader = block.getFieldReader(fieldName);
+        List<Object> values = new ArrayList<>();
+        for (int row = 0; row < block.getRowCount(); row++) {
+            reader.setPosition(row);
+            values.add(reader.readObject());
+        }
+        return values;
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.record.Record;
+import sleeper.ingest.impl.recordbatch.RecordBatch;
+import sleeper.ingest.impl.recordbatch.arrow.ArrowRecordBatchFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static sleeper.benchmarks.BenchmarkFiles.deleteRecursively;
+
+/**
+ * Measures appending records to an Arrow record batch and reading them back in sorted order, as done during ingest.
+ * With a smaller batch buffer the batch is spilled to local Arrow files, which are merged when the records are read.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+// Arrow needs access to JDK internals when running on Java 17 or later
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.nio=ALL-UNNAMED")
+public class ArrowRecordBatchBenchmark {
+    private static final long WORKING_BUFFER_BYTES = 32L * 1024 * 1024;
+
+    @Param({"100000"})
+    public int numRecords;
+
+    @Param({"4194304", "67108864"})
+    public long batchBufferBytes;
+
+    private List<Record> records;
+    private Path tempDir;
+    private ArrowRecordBatchFactory<Record> batchFactory;
+
+    @Setup
+    public void setup() throws IOException {
+        records = BenchmarkData.randomRecords("long", numRecords, new Random(BenchmarkData.SEED));
+        tempDir = Files.createTempDirectory("sleeper-benchmark");
+        batchFactory = ArrowRecordBatchFactory.builder()
+                .schema(BenchmarkData.schema())
+                .localWorkingDirectory(tempDir.toString())
+                .workingBufferAllocatorBytes(WORKING_BUFFER_BYTES)
+                .batchBufferAllocatorBytes(batchBufferBytes)
+                .maxNoOfBytesToWriteLocally(Long.MAX_VALUE)
+                .maxNoOfRecordsToWriteToArrowFileAtOnce(128)
+                .buildAcceptingRecords();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        batchFactory.close();
+        deleteRecursively(tempDir);
+    }
+
+    @Benchmark
+    public void appendAndSort(Blackhole blackhole) throws Exception {
+        try (RecordBatch<Record> batch = batchFactory.createRecordBatch()) {
+            for (Record record : records) {
+                batch.append(record);
+            }
+            try (CloseableIterator<Record> sorted = batch.createOrderedRecordIterator()) {
+                while (sorted.hasNext()) {
+                    blackhole.consume(sorted.next());
+                }
+            }
+        }
+    }
+}
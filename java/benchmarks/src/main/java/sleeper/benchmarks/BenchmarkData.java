@@ -0,0 +1,134 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.PrimitiveType;
+import sleeper.core.schema.type.StringType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates schemas and records for benchmarks. Data is generated from a fixed seed so that separate runs of a
+ * benchmark measure the same work.
+ */
+public class BenchmarkData {
+    public static final long SEED = 42L;
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Creates a schema with one row key, one sort key and two value fields.
+     *
+     * @param  keyType the type of the row key, one of "long", "string" or "bytearray"
+     * @return         the schema
+     */
+    public static Schema schema(String keyType) {
+        return Schema.builder()
+                .rowKeyFields(new Field("key", rowKeyType(keyType)))
+                .sortKeyFields(new Field("timestamp", new LongType()))
+                .valueFields(new Field("count", new LongType()), new Field("value", new StringType()))
+                .build();
+    }
+
+    public static Schema schema() {
+        return schema("long");
+    }
+
+    /**
+     * Generates records with random row keys.
+     *
+     * @param  keyType    the type of the row key, as in {@link #schema(String)}
+     * @param  numRecords the number of records
+     * @param  random     the source of randomness
+     * @return            the records
+     */
+    public static List<Record> randomRecords(String keyType, int numRecords, Random random) {
+        List<Record> records = new ArrayList<>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            records.add(record(rowKey(keyType, random.nextLong()), random));
+        }
+        return records;
+    }
+
+    /**
+     * Generates records with long row keys in ascending order, as they would be read from one Sleeper file.
+     *
+     * @param  numRecords the number of records
+     * @param  firstKey   the first row key
+     * @param  keyStep    the difference between successive row keys
+     * @param  random     the source of randomness
+     * @return            the records
+     */
+    public static List<Record> sortedRecords(int numRecords, long firstKey, long keyStep, Random random) {
+        List<Record> records = new ArrayList<>(numRecords);
+        for (int i = 0; i < numRecords; i++) {
+            records.add(record(firstKey + i * keyStep, random));
+        }
+        return records;
+    }
+
+    /**
+     * Generates a row key of the given type from a long value, preserving its order for longs.
+     *
+     * @param  keyType the type of the row key, as in {@link #schema(String)}
+     * @param  value   the value to generate the key from
+     * @return         the row key
+     */
+    public static Object rowKey(String keyType, long value) {
+        switch (keyType.toLowerCase(Locale.ROOT)) {
+            case "long":
+                return value;
+            case "string":
+                return String.format("%020d", value);
+            case "bytearray":
+                return String.format("%020d", value).getBytes(StandardCharsets.UTF_8);
+            default:
+                throw new IllegalArgumentException("Unrecognised key type: " + keyType);
+        }
+    }
+
+    private static PrimitiveType rowKeyType(String keyType) {
+        switch (keyType.toLowerCase(Locale.ROOT)) {
+            case "long":
+                return new LongType();
+            case "string":
+                return new StringType();
+            case "bytearray":
+                return new ByteArrayType();
+            default:
+                throw new IllegalArgumentException("Unrecognised key type: " + keyType);
+        }
+    }
+
+    private static Record record(Object key, Random random) {
+        Record record = new Record();
+        record.put("key", key);
+        record.put("timestamp", random.nextLong());
+        record.put("count", (long) random.nextInt(1000));
+        record.put("value", "value-" + random.nextInt(100));
+        return record;
+    }
+}
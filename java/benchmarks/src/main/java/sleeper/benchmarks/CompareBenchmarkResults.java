@@ -0,0 +1,130 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two sets of results written by {@link RunBenchmarks}, and reports the benchmarks whose score changed by
+ * more than a threshold. Exits with a non-zero status if any benchmark got slower by more than the threshold, so that
+ * this can be used to catch regressions in a build.
+ * <p>
+ * Usage: {@code CompareBenchmarkResults <baseline.json> <current.json> [threshold-percent]}. The threshold defaults
+ * to 10%.
+ */
+public class CompareBenchmarkResults {
+    private static final double DEFAULT_THRESHOLD_PERCENT = 10.0;
+
+    private CompareBenchmarkResults() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.out.println("Usage: <baseline results JSON> <current results JSON> <optional threshold percent>");
+            System.exit(1);
+            return;
+        }
+        double thresholdPercent = args.length == 3 ? Double.parseDouble(args[2]) : DEFAULT_THRESHOLD_PERCENT;
+        Map<String, Score> baseline = readScores(Path.of(args[0]));
+        Map<String, Score> current = readScores(Path.of(args[1]));
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : new TreeMap<>(current).entrySet()) {
+            Score before = baseline.get(entry.getKey());
+            Score after = entry.getValue();
+            if (before == null) {
+                System.out.printf("NEW        %s: %s%n", entry.getKey(), after);
+                continue;
+            }
+            double changePercent = (after.value - before.value) / before.value * 100.0;
+            boolean slower = after.lowerIsBetter() ? changePercent > 0 : changePercent < 0;
+            String status;
+            if (Math.abs(changePercent) <= thresholdPercent) {
+                status = "SAME";
+            } else if (slower) {
+                status = "REGRESSION";
+                regressions++;
+            } else {
+                status = "IMPROVED";
+            }
+            System.out.printf("%-10s %s: %s -> %s (%+.1f%%)%n", status, entry.getKey(), before, after, changePercent);
+        }
+        System.out.printf("%d regression(s) beyond %.1f%%%n", regressions, thresholdPercent);
+        if (regressions > 0) {
+            System.exit(2);
+        }
+    }
+
+    private static Map<String, Score> readScores(Path path) throws IOException {
+        JsonArray results;
+        try (Reader reader = Files.newBufferedReader(path)) {
+            results = new Gson().fromJson(reader, JsonArray.class);
+        }
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonElement element : results) {
+            JsonObject result = element.getAsJsonObject();
+            JsonObject metric = result.getAsJsonObject("primaryMetric");
+            scores.put(benchmarkName(result), new Score(
+                    metric.get("score").getAsDouble(),
+                    metric.get("scoreUnit").getAsString()));
+        }
+        return scores;
+    }
+
+    private static String benchmarkName(JsonObject result) {
+        StringBuilder name = new StringBuilder(result.get("benchmark").getAsString());
+        JsonObject params = result.getAsJsonObject("params");
+        if (params != null) {
+            Map<String, String> sortedParams = new TreeMap<>();
+            params.entrySet().forEach(param -> sortedParams.put(param.getKey(), param.getValue().getAsString()));
+            sortedParams.forEach((param, value) -> name.append(' ').append(param).append('=').append(value));
+        }
+        return name.toString();
+    }
+
+    /**
+     * The primary score of a benchmark.
+     */
+    private static class Score {
+        private final double value;
+        private final String unit;
+
+        Score(double value, String unit) {
+            this.value = value;
+            this.unit = unit;
+        }
+
+        boolean lowerIsBetter() {
+            // Throughput is reported in operations per time unit, everything else in time per operation
+            return !unit.startsWith("ops/");
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%.3f %s", value, unit);
+        }
+    }
+}
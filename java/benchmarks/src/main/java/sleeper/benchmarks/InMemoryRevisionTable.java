@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
+import com.amazonaws.services.dynamodbv2.model.PutItemResult;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static sleeper.statestore.s3.S3StateStore.REVISION_ID_KEY;
+
+/**
+ * Holds the revision table of an S3 state store in memory, so that the state store can be benchmarked without
+ * DynamoDB. Condition expressions are not checked, as each benchmark uses its state store from a single thread.
+ */
+public class InMemoryRevisionTable extends AbstractAmazonDynamoDB {
+    private final Map<String, Map<String, AttributeValue>> itemByRevisionIdKey = new HashMap<>();
+
+    @Override
+    public GetItemResult getItem(GetItemRequest request) {
+        return new GetItemResult().withItem(itemByRevisionIdKey.get(request.getKey().get(REVISION_ID_KEY).getS()));
+    }
+
+    @Override
+    public PutItemResult putItem(PutItemRequest request) {
+        itemByRevisionIdKey.put(request.getItem().get(REVISION_ID_KEY).getS(), new HashMap<>(request.getItem()));
+        return new PutItemResult();
+    }
+
+    /**
+     * Takes a copy of the current revisions, which can be restored later to return the state store to that point.
+     *
+     * @return the current revisions
+     */
+    public Map<String, Map<String, AttributeValue>> snapshot() {
+        return new HashMap<>(itemByRevisionIdKey);
+    }
+
+    /**
+     * Restores revisions taken by {@link #snapshot()}. The state store reads its data from the files written for those
+     * revisions, so this resets it without rewriting any data.
+     *
+     * @param snapshot the revisions to restore
+     */
+    public void restore(Map<String, Map<String, AttributeValue>> snapshot) {
+        itemByRevisionIdKey.clear();
+        itemByRevisionIdKey.putAll(snapshot);
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sleeper.core.key.Key;
+import sleeper.core.key.KeySerDe;
+import sleeper.core.range.Range;
+import sleeper.core.range.Region;
+import sleeper.core.range.RegionSerDe;
+import sleeper.core.schema.Schema;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures serialising row keys and regions, as done when writing file information to the state store and when
+ * sending queries and sub-queries between components.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KeySerDeBenchmark {
+
+    @Param({"long", "string", "bytearray"})
+    public String keyType;
+
+    private KeySerDe keySerDe;
+    private RegionSerDe regionSerDe;
+    private Key key;
+    private byte[] serialisedKey;
+    private Region region;
+    private String serialisedRegion;
+
+    @Setup
+    public void setup() throws IOException {
+        Schema schema = BenchmarkData.schema(keyType);
+        keySerDe = new KeySerDe(schema);
+        regionSerDe = new RegionSerDe(schema);
+        key = Key.create(BenchmarkData.rowKey(keyType, 123456789L));
+        serialisedKey = keySerDe.serialise(key);
+        region = new Region(new Range(schema.getRowKeyFields().get(0),
+                BenchmarkData.rowKey(keyType, 1000L), BenchmarkData.rowKey(keyType, 2000L)));
+        serialisedRegion = regionSerDe.toJson(region);
+    }
+
+    @Benchmark
+    public byte[] serialiseKey() throws IOException {
+        return keySerDe.serialise(key);
+    }
+
+    @Benchmark
+    public Key deserialiseKey() throws IOException {
+        return keySerDe.deserialise(serialisedKey);
+    }
+
+    @Benchmark
+    public String serialiseRegion() {
+        return regionSerDe.toJson(region);
+    }
+
+    @Benchmark
+    public Region deserialiseRegion() {
+        return regionSerDe.fromJson(serialisedRegion);
+    }
+}
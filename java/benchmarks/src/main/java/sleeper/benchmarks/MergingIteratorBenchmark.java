@@ -0,0 +1,86 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.iterator.MergingIterator;
+import sleeper.core.iterator.WrappedIterator;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures merging sorted iterators of records, as done when compacting files or querying a partition with many files.
+ * The total number of records is fixed, and they are spread evenly across the inputs.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MergingIteratorBenchmark {
+
+    @Param({"2", "10", "100"})
+    public int fanIn;
+
+    @Param({"100000"})
+    public int totalRecords;
+
+    private Schema schema;
+    private List<List<Record>> inputs;
+
+    @Setup
+    public void setup() {
+        schema = BenchmarkData.schema();
+        Random random = new Random(BenchmarkData.SEED);
+        int recordsPerInput = totalRecords / fanIn;
+        inputs = new ArrayList<>(fanIn);
+        for (int i = 0; i < fanIn; i++) {
+            // Interleave the keys of the inputs so that the merge switches between inputs
+            inputs.add(BenchmarkData.sortedRecords(recordsPerInput, i, fanIn, random));
+        }
+    }
+
+    @Benchmark
+    public void merge(Blackhole blackhole) {
+        List<CloseableIterator<Record>> iterators = new ArrayList<>(fanIn);
+        for (List<Record> input : inputs) {
+            iterators.add(new WrappedIterator<>(input.iterator()));
+        }
+        MergingIterator merged = new MergingIterator(schema, iterators);
+        while (merged.hasNext()) {
+            blackhole.consume(merged.next());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import sleeper.core.record.Record;
+import sleeper.core.schema.Schema;
+import sleeper.io.parquet.record.ParquetRecordReader;
+import sleeper.io.parquet.record.ParquetRecordWriterFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static sleeper.benchmarks.BenchmarkFiles.deleteRecursively;
+
+/**
+ * Measures writing and reading Sleeper records to and from a local Parquet file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ParquetRoundTripBenchmark {
+
+    @Param({"100000"})
+    public int numRecords;
+
+    private Schema schema;
+    private List<Record> records;
+    private java.nio.file.Path tempDir;
+    private Path writePath;
+    private Path readPath;
+
+    @Setup
+    public void setup() throws IOException {
+        schema = BenchmarkData.schema();
+        records = BenchmarkData.sortedRecords(numRecords, 0, 1, new Random(BenchmarkData.SEED));
+        tempDir = Files.createTempDirectory("sleeper-benchmark");
+        writePath = new Path(tempDir.resolve("write.parquet").toString());
+        readPath = new Path(tempDir.resolve("read.parquet").toString());
+        write(readPath);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        deleteRecursively(tempDir);
+    }
+
+    @TearDown(Level.Invocation)
+    public void deleteWrittenFile() throws IOException {
+        Files.deleteIfExists(java.nio.file.Path.of(writePath.toString()));
+        Files.deleteIfExists(java.nio.file.Path.of(tempDir.toString(), ".write.parquet.crc"));
+    }
+
+    @Benchmark
+    public void writeRecords() throws IOException {
+        write(writePath);
+    }
+
+    @Benchmark
+    public void readRecords(Blackhole blackhole) throws IOException {
+        try (ParquetRecordReader reader = new ParquetRecordReader(readPath, schema)) {
+            for (Record record = reader.read(); record != null; record = reader.read()) {
+                blackhole.consume(record);
+            }
+        }
+    }
+
+    private void write(Path path) throws IOException {
+        try (ParquetWriter<Record> writer = ParquetRecordWriterFactory.createParquetRecordWriter(path, schema)) {
+            for (Record record : records) {
+                writer.write(record);
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sleeper.core.key.Key;
+import sleeper.core.partition.Partition;
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.partition.PartitionsFromSplitPoints;
+import sleeper.core.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures finding the leaf partition for a row key, as done for every record during ingest.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PartitionTreeBenchmark {
+    private static final int NUM_KEYS = 1024;
+
+    @Param({"1", "128", "16384"})
+    public int leafPartitions;
+
+    private PartitionTree tree;
+    private Key[] keys;
+    private int index;
+
+    @Setup
+    public void setup() {
+        Schema schema = BenchmarkData.schema();
+        List<Object> splitPoints = new ArrayList<>();
+        long step = Long.MAX_VALUE / leafPartitions * 2;
+        for (int i = 1; i < leafPartitions; i++) {
+            splitPoints.add(Long.MIN_VALUE + i * step);
+        }
+        tree = new PartitionTree(schema, new PartitionsFromSplitPoints(schema, splitPoints).construct());
+        Random random = new Random(BenchmarkData.SEED);
+        keys = new Key[NUM_KEYS];
+        for (int i = 0; i < NUM_KEYS; i++) {
+            keys[i] = Key.create(random.nextLong());
+        }
+    }
+
+    @Benchmark
+    public Partition getLeafPartition() {
+        Key key = keys[index];
+        index = (index + 1) % NUM_KEYS;
+        return tree.getLeafPartition(key);
+    }
+}
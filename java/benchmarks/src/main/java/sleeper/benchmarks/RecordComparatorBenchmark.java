@@ -0,0 +1,69 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sleeper.core.record.Record;
+import sleeper.core.record.RecordComparator;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures comparing records by their row and sort keys, as done when sorting and merging records.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RecordComparatorBenchmark {
+    private static final int NUM_RECORDS = 1024;
+
+    @Param({"long", "string", "bytearray"})
+    public String keyType;
+
+    private RecordComparator comparator;
+    private Record[] records;
+    private int index;
+
+    @Setup
+    public void setup() {
+        comparator = new RecordComparator(BenchmarkData.schema(keyType));
+        List<Record> recordList = BenchmarkData.randomRecords(keyType, NUM_RECORDS, new Random(BenchmarkData.SEED));
+        records = recordList.toArray(new Record[0]);
+    }
+
+    @Benchmark
+    public int compare() {
+        int i = index;
+        index = (index + 1) % NUM_RECORDS;
+        return comparator.compare(records[i], records[(i + 1) % NUM_RECORDS]);
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import org.apache.hadoop.conf.Configuration;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sleeper.core.key.Key;
+import sleeper.core.schema.type.LongType;
+import sleeper.statestore.FileInfo;
+import sleeper.statestore.StateStoreException;
+import sleeper.statestore.s3.S3FileInfoStore;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static sleeper.benchmarks.BenchmarkFiles.deleteRecursively;
+
+/**
+ * Measures updating and reading file information in an S3 state store. Each revision of the file information is
+ * written to a local Parquet file, and the revision table is held in memory, so this measures the cost of rewriting
+ * and reading the file information without any network calls.
+ * <p>
+ * The store is returned to its initial revision before each invocation, so that every file is added to a store of the
+ * same size, however many invocations run in an iteration.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class S3FileInfoStoreBenchmark {
+
+    @Param({"100", "10000"})
+    public int existingFiles;
+
+    private Path tempDir;
+    private InMemoryRevisionTable revisionTable;
+    private Map<String, Map<String, AttributeValue>> initialRevisions;
+    private S3FileInfoStore store;
+
+    @Setup(Level.Iteration)
+    public void setup() throws IOException, StateStoreException {
+        tempDir = Files.createTempDirectory("sleeper-benchmark");
+        revisionTable = new InMemoryRevisionTable();
+        store = S3FileInfoStore.builder()
+                .dynamoDB(revisionTable)
+                .dynamoRevisionIdTable("revisions")
+                .rowKeyTypes(List.of(new LongType()))
+                .fs("file://")
+                .s3Bucket(tempDir.toString())
+                .garbageCollectorDelayBeforeDeletionInMinutes(0)
+                .conf(new Configuration())
+                .build();
+        store.initialise();
+        List<FileInfo> files = new ArrayList<>(existingFiles);
+        for (int i = 0; i < existingFiles; i++) {
+            files.add(fileInfo(i));
+        }
+        store.addFiles(files);
+        initialRevisions = revisionTable.snapshot();
+    }
+
+    @Setup(Level.Invocation)
+    public void resetStore() {
+        revisionTable.restore(initialRevisions);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        deleteRecursively(tempDir);
+    }
+
+    @Benchmark
+    public void addFile() throws StateStoreException {
+        store.addFile(fileInfo(existingFiles));
+    }
+
+    @Benchmark
+    public List<FileInfo> getActiveFiles() throws StateStoreException {
+        return store.getActiveFiles();
+    }
+
+    private static FileInfo fileInfo(int index) {
+        return FileInfo.builder()
+                .rowKeyTypes(new LongType())
+                .minRowKey(Key.create((long) index * 100))
+                .maxRowKey(Key.create((long) index * 100 + 99))
+                .filename("file-" + index + ".parquet")
+                .partitionId("partition-" + (index % 100))
+                .numberOfRecords(100L)
+                .fileStatus(FileInfo.FileStatus.ACTIVE)
+                .lastStateStoreUpdateTime(1_000_000L)
+                .build();
+    }
+}
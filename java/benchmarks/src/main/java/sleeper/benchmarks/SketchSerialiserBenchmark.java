@@ -0,0 +1,101 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import sleeper.core.record.Record;
+import sleeper.core.schema.Schema;
+import sleeper.sketches.SketchSerialiser;
+import sleeper.sketches.Sketches;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures updating, serialising and deserialising the quantiles sketches written alongside every Sleeper file.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SketchSerialiserBenchmark {
+
+    @Param({"long", "string"})
+    public String keyType;
+
+    @Param({"100000"})
+    public int numRecords;
+
+    private Schema schema;
+    private List<Record> records;
+    private SketchSerialiser serialiser;
+    private Sketches sketches;
+    private byte[] serialisedSketches;
+
+    @Setup
+    public void setup() throws IOException {
+        schema = BenchmarkData.schema(keyType);
+        records = BenchmarkData.randomRecords(keyType, numRecords, new Random(BenchmarkData.SEED));
+        serialiser = new SketchSerialiser(schema);
+        sketches = update();
+        serialisedSketches = serialise();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Sketches update() {
+        Sketches updated = Sketches.from(schema);
+        for (Record record : records) {
+            updated.update(schema, record);
+        }
+        return updated;
+    }
+
+    @Benchmark
+    public byte[] serialise() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            serialiser.serialise(sketches, out);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Sketches deserialise() throws IOException {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(serialisedSketches))) {
+            return serialiser.deserialise(in);
+        }
+    }
+}
@@ -27,6 +27,7 @@ import sleeper.statestore.StateStoreException;
 import sleeper.statestore.StateStoreProvider;
 
 import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_MIN_LEAF_PARTITION_COUNT;
+import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_PRE_SPLIT_ENABLED;
 
 public class CheckLeafPartitionCount {
     private static final Logger LOGGER = LoggerFactory.getLogger(CheckLeafPartitionCount.class);
@@ -37,6 +38,11 @@ public class CheckLeafPartitionCount {
     public static boolean hasMinimumPartitions(
             StateStoreProvider stateStoreProvider, TablePropertiesProvider tablePropertiesProvider, BulkImportJob job) {
         TableProperties tableProperties = tablePropertiesProvider.getTableProperties(job.getTableName());
+        if (tableProperties.getBoolean(BULK_IMPORT_PRE_SPLIT_ENABLED)) {
+            // The job will split partitions that would receive too much data before writing it
+            LOGGER.info("Pre-splitting of partitions is enabled, so not checking minimum partition count. Running job {}", job.getId());
+            return true;
+        }
 
         StateStore stateStore = stateStoreProvider.getStateStore(tableProperties);
         int leafPartitionCount;
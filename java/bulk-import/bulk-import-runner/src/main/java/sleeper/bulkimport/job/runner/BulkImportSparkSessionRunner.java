@@ -50,6 +50,7 @@ import java.util.List;
 import java.util.stream.Collectors;
 
 import static sleeper.configuration.properties.instance.CommonProperty.FILE_SYSTEM;
+import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_PRE_SPLIT_ENABLED;
 
 public class BulkImportSparkSessionRunner implements BulkImportJobDriver.SessionRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(BulkImportSparkSessionRunner.class);
@@ -96,10 +97,6 @@ public class BulkImportSparkSessionRunner implements BulkImportJobDriver.Session
             throw new RuntimeException("Failed to load statestore. Are permissions correct for this service account?");
         }
 
-        Configuration conf = sparkContext.hadoopConfiguration();
-        Broadcast<List<Partition>> broadcastedPartitions = javaSparkContext.broadcast(allPartitions);
-        LOGGER.info("Starting data processing");
-
         // Create paths to be read
         List<String> pathsWithFs = new ArrayList<>();
         String fs = instanceProperties.get(FILE_SYSTEM);
@@ -107,13 +104,28 @@ public class BulkImportSparkSessionRunner implements BulkImportJobDriver.Session
         job.getFiles().forEach(file -> pathsWithFs.add(fs + file));
         LOGGER.info("Paths to be read are {}", pathsWithFs);
 
-        // Run bulk import
         Dataset<Row> dataWithPartition = session.read()
                 .schema(convertedSchema)
                 .option("pathGlobFilter", "*.parquet")
                 .option("recursiveFileLookup", "true")
                 .parquet(pathsWithFs.toArray(new String[0]));
 
+        // Split partitions that would receive too much data, so the data can be written straight into the new ones
+        if (tableProperties.getBoolean(BULK_IMPORT_PRE_SPLIT_ENABLED)) {
+            LOGGER.info("Sampling input to find partitions to split before writing data");
+            try {
+                allPartitions = PreSplitHotPartitions.preSplit(
+                        javaSparkContext, dataWithPartition, tableProperties, stateStore, allPartitions);
+            } catch (StateStoreException e) {
+                throw new RuntimeException("Failed to load partitions after splitting", e);
+            }
+        }
+
+        Configuration conf = sparkContext.hadoopConfiguration();
+        Broadcast<List<Partition>> broadcastedPartitions = javaSparkContext.broadcast(allPartitions);
+        LOGGER.info("Starting data processing");
+
+        // Run bulk import
         LOGGER.info("Running bulk import job with id {}", job.getId());
         List<FileInfo> fileInfos = jobRunner.createFileInfos(
                         BulkImportJobInput.builder().rows(dataWithPartition)
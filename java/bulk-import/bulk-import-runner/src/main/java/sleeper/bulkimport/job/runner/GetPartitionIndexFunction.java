@@ -0,0 +1,73 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.sql.Row;
+
+import sleeper.core.partition.Partition;
+import sleeper.core.schema.SchemaSerDe;
+
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Given an {@link Iterator} of {@link Row}s starting with the row key fields, this class returns an
+ * {@link Iterator} of the integer id of the leaf partition each {@link Row} belongs to. This is used to estimate
+ * how many rows each leaf partition will receive.
+ */
+public class GetPartitionIndexFunction implements MapPartitionsFunction<Row, Integer> {
+    private static final long serialVersionUID = 2617823367190812497L;
+
+    private final String schemaAsString;
+    private final Broadcast<List<Partition>> broadcastPartitions;
+
+    public GetPartitionIndexFunction(String schemaAsString, Broadcast<List<Partition>> broadcastPartitions) {
+        this.schemaAsString = schemaAsString;
+        this.broadcastPartitions = broadcastPartitions;
+    }
+
+    @Override
+    public Iterator<Integer> call(Iterator<Row> input) {
+        LeafPartitionIndex leafPartitionIndex = LeafPartitionIndex.from(
+                new SchemaSerDe().fromJson(schemaAsString), broadcastPartitions.getValue());
+        return new PartitionIndexIterator(input, leafPartitionIndex);
+    }
+
+    /**
+     * Finds the leaf partition of each row from an iterator.
+     */
+    private static class PartitionIndexIterator implements Iterator<Integer> {
+        private final Iterator<Row> input;
+        private final LeafPartitionIndex leafPartitionIndex;
+
+        PartitionIndexIterator(Iterator<Row> input, LeafPartitionIndex leafPartitionIndex) {
+            this.input = input;
+            this.leafPartitionIndex = leafPartitionIndex;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return input.hasNext();
+        }
+
+        @Override
+        public Integer next() {
+            return leafPartitionIndex.getIndex(input.next());
+        }
+    }
+}
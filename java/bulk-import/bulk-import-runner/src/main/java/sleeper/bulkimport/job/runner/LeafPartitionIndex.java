@@ -0,0 +1,358 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import org.apache.spark.sql.Row;
+
+import sleeper.core.key.Key;
+import sleeper.core.partition.Partition;
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.range.Range;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.PrimitiveType;
+import sleeper.core.schema.type.StringType;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/**
+ * Maps row keys to an integer index of the leaf partition they belong to. The index is determined by sorting the
+ * leaf partitions by their id, and then assigning integers 0,1,...,numLeafPartitions - 1 to them. This guarantees
+ * that two rows from the same leaf partition processed in different tasks/executors will get the same index.
+ * <p>
+ * This is called once for every row in a bulk import job, so where the leaf partitions have only been split on the
+ * first row key field, the split points are held in a sorted array of that field's type. The index is then found
+ * with a binary search on the key read directly from the row, without creating a {@link Key} or descending the
+ * {@link PartitionTree}. Otherwise the partition tree is used to find the leaf partition.
+ */
+public class LeafPartitionIndex {
+    private final List<String> sortedLeafPartitionIds;
+    private final Lookup lookup;
+
+    private LeafPartitionIndex(List<String> sortedLeafPartitionIds, Lookup lookup) {
+        this.sortedLeafPartitionIds = sortedLeafPartitionIds;
+        this.lookup = lookup;
+    }
+
+    public static LeafPartitionIndex from(Schema schema, List<Partition> partitions) {
+        PartitionTree partitionTree = new PartitionTree(schema, partitions);
+        List<String> sortedLeafPartitionIds = partitions.stream()
+                .filter(Partition::isLeafPartition)
+                .map(Partition::getId)
+                .sorted()
+                .collect(Collectors.toList());
+        Map<String, Integer> partitionIdToIndex = new HashMap<>();
+        for (int i = 0; i < sortedLeafPartitionIds.size(); i++) {
+            partitionIdToIndex.put(sortedLeafPartitionIds.get(i), i);
+        }
+        Lookup lookup = createSplitPointsLookup(schema, partitionTree, partitionIdToIndex);
+        if (null == lookup) {
+            lookup = new PartitionTreeLookup(schema, partitionTree, partitionIdToIndex);
+        }
+        return new LeafPartitionIndex(sortedLeafPartitionIds, lookup);
+    }
+
+    public int numLeafPartitions() {
+        return sortedLeafPartitionIds.size();
+    }
+
+    /**
+     * Finds the index of the leaf partition containing a row. The row key fields must be the first fields in the row.
+     *
+     * @param  row the row
+     * @return     the index of the leaf partition
+     */
+    public int getIndex(Row row) {
+        return lookup.getIndex(row);
+    }
+
+    /**
+     * Finds the index of the leaf partition containing a key. The key may also hold sort key values after the row
+     * keys, which are ignored.
+     *
+     * @param  key the key
+     * @return     the index of the leaf partition
+     */
+    public int getIndex(Key key) {
+        return lookup.getIndex(key);
+    }
+
+    public String getPartitionId(int index) {
+        return sortedLeafPartitionIds.get(index);
+    }
+
+    boolean isUsingSplitPoints() {
+        return !(lookup instanceof PartitionTreeLookup);
+    }
+
+    private static Lookup createSplitPointsLookup(
+            Schema schema, PartitionTree partitionTree, Map<String, Integer> partitionIdToIndex) {
+        List<Field> rowKeyFields = schema.getRowKeyFields();
+        Partition root = partitionTree.getRootPartition();
+        List<Partition> leaves = new ArrayList<>();
+        for (Partition partition : partitionTree.getAllPartitions()) {
+            if (!partition.isLeafPartition()) {
+                continue;
+            }
+            Range range = partition.getRegion().getRange(rowKeyFields.get(0).getName());
+            if (!range.isMinInclusive() || range.isMaxInclusive()) {
+                return null;
+            }
+            for (int i = 1; i < rowKeyFields.size(); i++) {
+                String fieldName = rowKeyFields.get(i).getName();
+                if (!Objects.equals(partition.getRegion().getRange(fieldName), root.getRegion().getRange(fieldName))) {
+                    return null;
+                }
+            }
+            leaves.add(partition);
+        }
+        PrimitiveType type = (PrimitiveType) rowKeyFields.get(0).getType();
+        String fieldName = rowKeyFields.get(0).getName();
+        Comparator<Object> comparator = comparatorFor(type);
+        if (null == comparator) {
+            return null;
+        }
+        leaves.sort(Comparator.comparing(partition -> partition.getRegion().getRange(fieldName).getMin(), comparator));
+        int[] positionToIndex = leaves.stream()
+                .mapToInt(partition -> partitionIdToIndex.get(partition.getId()))
+                .toArray();
+        List<Object> splitPoints = leaves.stream().skip(1)
+                .map(partition -> partition.getRegion().getRange(fieldName).getMin())
+                .collect(Collectors.toList());
+        if (type instanceof IntType) {
+            return new IntSplitPoints(splitPoints.stream().mapToInt(value -> (int) value).toArray(), positionToIndex);
+        } else if (type instanceof LongType) {
+            return new LongSplitPoints(splitPoints.stream().mapToLong(value -> (long) value).toArray(), positionToIndex);
+        } else if (type instanceof StringType) {
+            return new StringSplitPoints(splitPoints.toArray(new String[0]), positionToIndex);
+        } else {
+            return new ByteArraySplitPoints(splitPoints.toArray(new byte[0][]), positionToIndex);
+        }
+    }
+
+    static Comparator<Object> comparatorFor(PrimitiveType type) {
+        if (type instanceof IntType) {
+            return Comparator.comparingInt(value -> (int) value);
+        } else if (type instanceof LongType) {
+            return Comparator.comparingLong(value -> (long) value);
+        } else if (type instanceof StringType) {
+            return Comparator.comparing(value -> (String) value);
+        } else if (type instanceof ByteArrayType) {
+            return (a, b) -> Arrays.compare((byte[]) a, (byte[]) b);
+        } else {
+            return null;
+        }
+    }
+
+    /**
+     * Finds the index of a leaf partition for a key.
+     */
+    private interface Lookup {
+        int getIndex(Row row);
+
+        int getIndex(Key key);
+    }
+
+    /**
+     * Finds the leaf partition by descending the partition tree. This works for any partition tree.
+     */
+    private static class PartitionTreeLookup implements Lookup {
+        private final PartitionTree partitionTree;
+        private final Map<String, Integer> partitionIdToIndex;
+        private final int numRowKeyFields;
+
+        PartitionTreeLookup(Schema schema, PartitionTree partitionTree, Map<String, Integer> partitionIdToIndex) {
+            this.partitionTree = partitionTree;
+            this.partitionIdToIndex = partitionIdToIndex;
+            this.numRowKeyFields = schema.getRowKeyFields().size();
+        }
+
+        @Override
+        public int getIndex(Row row) {
+            List<Object> key = new ArrayList<>(numRowKeyFields);
+            for (int i = 0; i < numRowKeyFields; i++) {
+                key.add(row.get(i));
+            }
+            return getIndex(Key.create(key));
+        }
+
+        @Override
+        public int getIndex(Key key) {
+            if (key.size() > numRowKeyFields) {
+                key = Key.create(key.getKeys().subList(0, numRowKeyFields));
+            }
+            return partitionIdToIndex.get(partitionTree.getLeafPartition(key).getId());
+        }
+    }
+
+    /**
+     * Finds the index of the leaf partition from the number of split points less than or equal to the key.
+     */
+    private abstract static class SplitPoints implements Lookup {
+        private final int[] positionToIndex;
+
+        SplitPoints(int[] positionToIndex) {
+            this.positionToIndex = positionToIndex;
+        }
+
+        int indexAtPosition(int position) {
+            return positionToIndex[position];
+        }
+    }
+
+    private static class IntSplitPoints extends SplitPoints {
+        private final int[] splitPoints;
+
+        IntSplitPoints(int[] splitPoints, int[] positionToIndex) {
+            super(positionToIndex);
+            this.splitPoints = splitPoints;
+        }
+
+        @Override
+        public int getIndex(Row row) {
+            return getIndex(row.getInt(0));
+        }
+
+        @Override
+        public int getIndex(Key key) {
+            return getIndex((int) key.get(0));
+        }
+
+        private int getIndex(int value) {
+            int low = 0;
+            int high = splitPoints.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (splitPoints[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return indexAtPosition(low);
+        }
+    }
+
+    private static class LongSplitPoints extends SplitPoints {
+        private final long[] splitPoints;
+
+        LongSplitPoints(long[] splitPoints, int[] positionToIndex) {
+            super(positionToIndex);
+            this.splitPoints = splitPoints;
+        }
+
+        @Override
+        public int getIndex(Row row) {
+            return getIndex(row.getLong(0));
+        }
+
+        @Override
+        public int getIndex(Key key) {
+            return getIndex((long) key.get(0));
+        }
+
+        private int getIndex(long value) {
+            int low = 0;
+            int high = splitPoints.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (splitPoints[mid] <= value) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return indexAtPosition(low);
+        }
+    }
+
+    private static class StringSplitPoints extends SplitPoints {
+        private final String[] splitPoints;
+
+        StringSplitPoints(String[] splitPoints, int[] positionToIndex) {
+            super(positionToIndex);
+            this.splitPoints = splitPoints;
+        }
+
+        @Override
+        public int getIndex(Row row) {
+            return getIndex(row.getString(0));
+        }
+
+        @Override
+        public int getIndex(Key key) {
+            return getIndex((String) key.get(0));
+        }
+
+        private int getIndex(String value) {
+            int low = 0;
+            int high = splitPoints.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (splitPoints[mid].compareTo(value) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return indexAtPosition(low);
+        }
+    }
+
+    private static class ByteArraySplitPoints extends SplitPoints {
+        private final byte[][] splitPoints;
+
+        ByteArraySplitPoints(byte[][] splitPoints, int[] positionToIndex) {
+            super(positionToIndex);
+            this.splitPoints = splitPoints;
+        }
+
+        @Override
+        public int getIndex(Row row) {
+            return getIndex((byte[]) row.getAs(0));
+        }
+
+        @Override
+        public int getIndex(Key key) {
+            return getIndex((byte[]) key.get(0));
+        }
+
+        private int getIndex(byte[] value) {
+            int low = 0;
+            int high = splitPoints.length;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                // This matches the signed lexicographic order used to compare byte arrays in a Range
+                if (Arrays.compare(splitPoints[mid], value) <= 0) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return indexAtPosition(low);
+        }
+    }
+}
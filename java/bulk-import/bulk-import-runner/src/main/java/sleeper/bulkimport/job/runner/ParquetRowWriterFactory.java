@@ -0,0 +1,64 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.spark.sql.Row;
+
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.schema.Schema;
+import sleeper.io.parquet.record.SchemaConverter;
+
+import java.io.IOException;
+
+import static sleeper.io.parquet.record.ParquetRecordWriterFactory.withTableProperties;
+
+/**
+ * Creates Parquet writers for Spark {@link Row}s, with the settings from a Sleeper table. The files are the same as
+ * those written from Sleeper records.
+ */
+public class ParquetRowWriterFactory {
+
+    private ParquetRowWriterFactory() {
+    }
+
+    public static ParquetWriter<Row> createParquetRowWriter(Path path, TableProperties tableProperties, Configuration conf) throws IOException {
+        return withTableProperties(new Builder(path, tableProperties.getSchema()), tableProperties)
+                .withConf(conf).build();
+    }
+
+    public static class Builder extends ParquetWriter.Builder<Row, Builder> {
+        private final Schema schema;
+
+        private Builder(Path path, Schema schema) {
+            super(path);
+            this.schema = schema;
+        }
+
+        @Override
+        protected WriteSupport<Row> getWriteSupport(Configuration conf) {
+            return new RowWriteSupport(SchemaConverter.getSchema(schema), schema);
+        }
+
+        @Override
+        protected Builder self() {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import com.facebook.collections.ByteArray;
+import org.apache.datasketches.quantiles.ItemsSketch;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import scala.collection.JavaConverters;
+
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.configuration.properties.table.TableProperty;
+import sleeper.core.iterator.impl.AggregatingIterator;
+import sleeper.core.iterator.impl.RecordAggregator;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.MapType;
+import sleeper.sketches.Sketches;
+import sleeper.sketches.s3.SketchesSerDeToS3;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes sorted Spark {@link Row}s from a single Sleeper partition to a Parquet file, and the quantiles sketches of
+ * its row keys to a sketches file alongside it. The rows are written directly to Parquet, and the sketches are
+ * updated from the row key columns, so they are not converted into Sleeper records. The only exception is if the
+ * table is configured to aggregate records, as the aggregation is done on records.
+ */
+public class PartitionFileWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionFileWriter.class);
+
+    private final Schema schema;
+    private final List<Field> allSchemaFields;
+    private final Configuration conf;
+    private final String path;
+    private final ParquetWriter<Row> parquetWriter;
+    private final RecordAggregator aggregator;
+    private final Map<String, ItemsSketch> sketches = new HashMap<>();
+    private final ItemsSketch[] rowKeySketches;
+    private final boolean[] rowKeyIsByteArray;
+    private final Instant startTime = Instant.now();
+    private long numRecords;
+
+    public PartitionFileWriter(TableProperties tableProperties, Configuration conf, String path) throws IOException {
+        this.schema = tableProperties.getSchema();
+        this.allSchemaFields = schema.getAllFields();
+        this.conf = conf;
+        this.path = path;
+        this.parquetWriter = ParquetRowWriterFactory.createParquetRowWriter(new Path(path), tableProperties, conf);
+        this.aggregator = AggregatingIterator.createIfFirstInChain(
+                tableProperties.get(TableProperty.ITERATOR_CLASS_NAME), tableProperties.get(TableProperty.ITERATOR_CONFIG), schema)
+                .map(AggregatingIterator::createAggregator)
+                .orElse(null);
+        List<Field> rowKeyFields = schema.getRowKeyFields();
+        this.rowKeySketches = new ItemsSketch[rowKeyFields.size()];
+        this.rowKeyIsByteArray = new boolean[rowKeyFields.size()];
+        for (int i = 0; i < rowKeyFields.size(); i++) {
+            ItemsSketch<?> sketch = ItemsSketch.getInstance(1024, Comparator.naturalOrder());
+            sketches.put(rowKeyFields.get(i).getName(), sketch);
+            rowKeySketches[i] = sketch;
+            rowKeyIsByteArray[i] = rowKeyFields.get(i).getType() instanceof ByteArrayType;
+        }
+    }
+
+    /**
+     * Writes a row. The fields of the Sleeper schema must be at the start of the row, in the order they are in the
+     * schema.
+     *
+     * @param  row         the row
+     * @throws IOException if the row could not be written
+     */
+    public void write(Row row) throws IOException {
+        if (null == aggregator) {
+            writeRow(row);
+        } else {
+            Record aggregated = aggregator.push(getRecord(row));
+            if (null != aggregated) {
+                writeRow(getRow(aggregated));
+            }
+        }
+    }
+
+    /**
+     * Closes the Parquet file and writes the sketches file.
+     *
+     * @return             the number of records written
+     * @throws IOException if the files could not be written
+     */
+    public long close() throws IOException {
+        if (null != aggregator && aggregator.hasGroup()) {
+            writeRow(getRow(aggregator.finish()));
+        }
+        parquetWriter.close();
+        new SketchesSerDeToS3(schema).saveToHadoopFS(new Path(path.replace(".parquet", ".sketches")), new Sketches(sketches), conf);
+        long durationInSeconds = Duration.between(startTime, Instant.now()).getSeconds();
+        double rate = numRecords / (double) durationInSeconds;
+        LOGGER.info("Finished writing {} records to file {} in {} seconds (rate was {} per second)",
+                numRecords, path, durationInSeconds, rate);
+        return numRecords;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    private void writeRow(Row row) throws IOException {
+        parquetWriter.write(row);
+        numRecords++;
+        if (numRecords % 1_000_000L == 0) {
+            LOGGER.info("Wrote {} records", numRecords);
+        }
+        updateQuantilesSketches(row);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void updateQuantilesSketches(Row row) {
+        for (int i = 0; i < rowKeySketches.length; i++) {
+            if (rowKeyIsByteArray[i]) {
+                rowKeySketches[i].update(ByteArray.wrap((byte[]) row.get(i)));
+            } else {
+                rowKeySketches[i].update(row.get(i));
+            }
+        }
+    }
+
+    private Record getRecord(Row row) {
+        Record record = new Record();
+        int i = 0;
+        for (Field field : allSchemaFields) {
+            if (field.getType() instanceof ListType) {
+                record.put(field.getName(), row.getList(i));
+            } else if (field.getType() instanceof MapType) {
+                record.put(field.getName(), row.getJavaMap(i));
+            } else {
+                record.put(field.getName(), row.get(i));
+            }
+            i++;
+        }
+        return record;
+    }
+
+    private Row getRow(Record record) {
+        Object[] values = new Object[allSchemaFields.size()];
+        int i = 0;
+        for (Field field : allSchemaFields) {
+            Object value = record.get(field.getName());
+            if (field.getType() instanceof ListType) {
+                values[i] = JavaConverters.asScalaBuffer((List<?>) value);
+            } else if (field.getType() instanceof MapType) {
+                values[i] = JavaConverters.mapAsScalaMap((Map<?, ?>) value);
+            } else {
+                values[i] = value;
+            }
+            i++;
+        }
+        return RowFactory.create(values);
+    }
+}
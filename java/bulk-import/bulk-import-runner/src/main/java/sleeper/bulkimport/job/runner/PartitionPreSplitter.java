@@ -0,0 +1,159 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.partition.Partition;
+import sleeper.core.partition.PartitionSubtreeFactory;
+import sleeper.core.range.Range;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static sleeper.configuration.properties.table.TableProperty.PARTITION_SPLIT_MAX_DEPTH;
+import static sleeper.configuration.properties.table.TableProperty.PARTITION_SPLIT_THRESHOLD;
+
+/**
+ * Plans splits of leaf partitions that a bulk import job would fill past the partition splitting threshold, based on
+ * a sample of the keys in the input. Each such partition is split on the first row key field into a balanced tree of
+ * new partitions by {@link PartitionSubtreeFactory}, with split points taken from the sampled keys. This is the same
+ * as when the partition splitter splits a partition holding many times the split threshold.
+ * <p>
+ * This lets the data be written straight into the new partitions, rather than being split and compacted over many
+ * cycles after the import.
+ */
+public class PartitionPreSplitter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionPreSplitter.class);
+
+    private final Field splitField;
+    private final Comparator<Object> keyComparator;
+    private final PartitionSubtreeFactory subtreeFactory;
+    private final long splitThreshold;
+    private final int maxDepth;
+
+    public PartitionPreSplitter(Schema schema, long splitThreshold, int maxDepth, Supplier<String> idSupplier) {
+        this.splitField = schema.getRowKeyFields().get(0);
+        this.keyComparator = LeafPartitionIndex.comparatorFor(schema.getRowKeyTypes().get(0));
+        this.subtreeFactory = new PartitionSubtreeFactory(schema, idSupplier);
+        this.splitThreshold = splitThreshold;
+        this.maxDepth = maxDepth;
+    }
+
+    public static PartitionPreSplitter from(TableProperties tableProperties) {
+        return new PartitionPreSplitter(tableProperties.getSchema(),
+                tableProperties.getLong(PARTITION_SPLIT_THRESHOLD),
+                tableProperties.getInt(PARTITION_SPLIT_MAX_DEPTH),
+                () -> UUID.randomUUID().toString());
+    }
+
+    /**
+     * Chooses the depth of the tree of new partitions for a partition, so that each leaf would be under the split
+     * threshold if the data were evenly divided between them.
+     *
+     * @param  estimatedRecords the number of records the partition is expected to receive
+     * @return                  the depth, or 0 if the partition does not need splitting
+     */
+    public int depthNeeded(long estimatedRecords) {
+        return PartitionSubtreeFactory.chooseDepth(estimatedRecords, splitThreshold, maxDepth);
+    }
+
+    /**
+     * Splits a leaf partition into a tree of new partitions of the given depth, at quantiles of the sampled keys.
+     *
+     * @param  partition   the leaf partition to split
+     * @param  sampledKeys values of the first row key field sampled from the records that will go in the partition
+     * @param  depth       the depth of the tree of new partitions
+     * @return             the split, or an empty optional if no valid split point was found
+     */
+    public Optional<Split> splitLeaf(Partition partition, List<Object> sampledKeys, int depth) {
+        if (depth < 1 || sampledKeys.isEmpty()) {
+            return Optional.empty();
+        }
+        List<Object> sortedKeys = sampledKeys.stream().sorted(keyComparator).collect(Collectors.toList());
+        Range range = partition.getRegion().getRange(splitField.getName());
+        List<Partition> newPartitions = new ArrayList<>();
+        Partition splitPartition = subtreeFactory.splitToDepth(partition, 0, depth,
+                new SampledKeysDistribution(sortedKeys, keyComparator), range.getMin(), range.getMax(), newPartitions);
+        if (newPartitions.isEmpty()) {
+            LOGGER.info("No valid split point found for partition {} in {} sampled keys",
+                    partition.getId(), sampledKeys.size());
+            return Optional.empty();
+        }
+        LOGGER.info("Splitting partition {} into {} new partitions from {} sampled keys",
+                partition.getId(), newPartitions.size(), sampledKeys.size());
+        return Optional.of(new Split(splitPartition, newPartitions));
+    }
+
+    /**
+     * The distribution of a sorted sample of keys.
+     */
+    private static class SampledKeysDistribution implements PartitionSubtreeFactory.Distribution<Object> {
+        private final List<Object> sortedKeys;
+        private final Comparator<Object> keyComparator;
+
+        SampledKeysDistribution(List<Object> sortedKeys, Comparator<Object> keyComparator) {
+            this.sortedKeys = sortedKeys;
+            this.keyComparator = keyComparator;
+        }
+
+        @Override
+        public Object getValueAtRank(double rank) {
+            int index = (int) (rank * sortedKeys.size());
+            return sortedKeys.get(Math.min(index, sortedKeys.size() - 1));
+        }
+
+        @Override
+        public int compare(Object value1, Object value2) {
+            return keyComparator.compare(value1, value2);
+        }
+
+        @Override
+        public Object toRangeValue(Object value) {
+            return value;
+        }
+    }
+
+    /**
+     * A split of a leaf partition into a tree of new partitions, to be applied to the state store in one update.
+     */
+    public static class Split {
+        private final Partition splitPartition;
+        private final List<Partition> newPartitions;
+
+        Split(Partition splitPartition, List<Partition> newPartitions) {
+            this.splitPartition = splitPartition;
+            this.newPartitions = newPartitions;
+        }
+
+        public Partition getSplitPartition() {
+            return splitPartition;
+        }
+
+        public List<Partition> getNewPartitions() {
+            return newPartitions;
+        }
+    }
+}
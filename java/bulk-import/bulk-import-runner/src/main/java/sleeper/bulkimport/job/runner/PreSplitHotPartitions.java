@@ -0,0 +1,164 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import org.apache.spark.api.java.JavaSparkContext;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.sql.Column;
+import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.catalyst.encoders.RowEncoder;
+import org.apache.spark.sql.types.DataTypes;
+import org.apache.spark.sql.types.StructField;
+import org.apache.spark.sql.types.StructType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.partition.Partition;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.SchemaSerDe;
+import sleeper.statestore.StateStore;
+import sleeper.statestore.StateStoreException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_PRE_SPLIT_SAMPLE_FRACTION;
+
+/**
+ * Splits leaf partitions that a bulk import job would fill past the partition splitting threshold, before the data
+ * is written. The input is sampled to estimate how many records each leaf partition will receive. Keys are then
+ * collected from the sample for just the partitions that need splitting, and {@link PartitionPreSplitter} chooses the
+ * new partitions from them. Each split is applied to the state store in one update, which fails if the partition has
+ * already been split by something else. In that case the partition is left as it is.
+ */
+public class PreSplitHotPartitions {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PreSplitHotPartitions.class);
+    private static final String PARTITION_FIELD_NAME = "__partition";
+    private static final int SAMPLED_KEYS_PER_NEW_PARTITION = 1000;
+
+    private PreSplitHotPartitions() {
+    }
+
+    /**
+     * Splits leaf partitions that would receive too many records from the input.
+     *
+     * @param  sparkContext    the Spark context
+     * @param  rows            the input rows
+     * @param  tableProperties the table properties
+     * @param  stateStore      the state store for the table
+     * @param  allPartitions   all partitions in the table before splitting
+     * @return                 all partitions in the table, after any splits have been applied
+     * @throws StateStoreException if the partitions could not be loaded after splitting
+     */
+    public static List<Partition> preSplit(
+            JavaSparkContext sparkContext, Dataset<Row> rows, TableProperties tableProperties,
+            StateStore stateStore, List<Partition> allPartitions) throws StateStoreException {
+        Schema schema = tableProperties.getSchema();
+        String schemaAsString = new SchemaSerDe().toJson(schema);
+        double fraction = tableProperties.getDouble(BULK_IMPORT_PRE_SPLIT_SAMPLE_FRACTION);
+        LeafPartitionIndex leafPartitionIndex = LeafPartitionIndex.from(schema, allPartitions);
+        PartitionPreSplitter splitter = PartitionPreSplitter.from(tableProperties);
+        Broadcast<List<Partition>> broadcastPartitions = sparkContext.broadcast(allPartitions);
+
+        Column[] rowKeyColumns = schema.getRowKeyFieldNames().stream()
+                .map(Column::new)
+                .toArray(Column[]::new);
+        Dataset<Row> sample = rows.select(rowKeyColumns).sample(fraction).cache();
+        List<PartitionPreSplitter.Split> splits = new ArrayList<>();
+        try {
+            long[] sampledRows = countSampledRowsByPartitionIndex(
+                    sample, schemaAsString, broadcastPartitions, leafPartitionIndex.numLeafPartitions());
+            int[] depthNeeded = new int[sampledRows.length];
+            double[] keepFractions = new double[sampledRows.length];
+            for (int i = 0; i < sampledRows.length; i++) {
+                depthNeeded[i] = splitter.depthNeeded((long) (sampledRows[i] / fraction));
+                if (depthNeeded[i] > 0) {
+                    keepFractions[i] = Math.min(1.0, (double) (1L << depthNeeded[i]) * SAMPLED_KEYS_PER_NEW_PARTITION / sampledRows[i]);
+                }
+            }
+            Map<Integer, List<Object>> keysByPartitionIndex = sampleSplitKeys(
+                    sample, schema, schemaAsString, broadcastPartitions, keepFractions);
+            Map<String, Partition> partitionsById = allPartitions.stream()
+                    .collect(Collectors.toMap(Partition::getId, Function.identity()));
+            keysByPartitionIndex.forEach((partitionIndex, keys) -> {
+                Partition partition = partitionsById.get(leafPartitionIndex.getPartitionId(partitionIndex));
+                splitter.splitLeaf(partition, keys, depthNeeded[partitionIndex]).ifPresent(splits::add);
+            });
+        } finally {
+            sample.unpersist();
+            broadcastPartitions.unpersist();
+        }
+        LOGGER.info("Found {} leaf partitions to split before writing data", splits.size());
+        if (splits.isEmpty()) {
+            return allPartitions;
+        }
+        for (PartitionPreSplitter.Split split : splits) {
+            try {
+                stateStore.atomicallyUpdatePartitionAndCreateNewOnes(split.getSplitPartition(), split.getNewPartitions());
+            } catch (StateStoreException e) {
+                LOGGER.warn("Failed to split partition {}, it may have been split already. Writing data without splitting it.",
+                        split.getSplitPartition().getId(), e);
+            }
+        }
+        return stateStore.getAllPartitions();
+    }
+
+    private static long[] countSampledRowsByPartitionIndex(
+            Dataset<Row> sample, String schemaAsString, Broadcast<List<Partition>> broadcastPartitions, int numLeafPartitions) {
+        List<Row> counts = sample
+                .mapPartitions(new GetPartitionIndexFunction(schemaAsString, broadcastPartitions), Encoders.INT())
+                .groupBy("value").count()
+                .collectAsList();
+        long[] sampledRows = new long[numLeafPartitions];
+        for (Row row : counts) {
+            sampledRows[row.getInt(0)] = row.getLong(1);
+        }
+        return sampledRows;
+    }
+
+    private static Map<Integer, List<Object>> sampleSplitKeys(
+            Dataset<Row> sample, Schema schema, String schemaAsString, Broadcast<List<Partition>> broadcastPartitions,
+            double[] keepFractions) {
+        Map<Integer, List<Object>> keysByPartitionIndex = new HashMap<>();
+        boolean anyToSplit = false;
+        for (double keepFraction : keepFractions) {
+            anyToSplit |= keepFraction > 0;
+        }
+        if (!anyToSplit) {
+            return keysByPartitionIndex;
+        }
+        StructField keyField = new StructTypeFactory().getStructType(schema)
+                .apply(schema.getRowKeyFieldNames().get(0));
+        StructType keySchema = new StructType()
+                .add(new StructField(PARTITION_FIELD_NAME, DataTypes.IntegerType, false, null))
+                .add(keyField);
+        List<Row> keys = sample
+                .mapPartitions(new SampleSplitKeysFunction(schemaAsString, broadcastPartitions, keepFractions),
+                        RowEncoder.apply(keySchema))
+                .collectAsList();
+        for (Row row : keys) {
+            keysByPartitionIndex.computeIfAbsent(row.getInt(0), index -> new ArrayList<>()).add(row.get(1));
+        }
+        return keysByPartitionIndex;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.api.WriteSupport;
+import org.apache.parquet.io.api.RecordConsumer;
+import org.apache.parquet.schema.MessageType;
+import org.apache.spark.sql.Row;
+
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.Type;
+import sleeper.io.parquet.record.RecordWriter;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A {@link WriteSupport} for Spark {@link Row}s. This writes the fields of the Sleeper schema from the start of each
+ * row, in the same format as Sleeper records, without converting the row into a record first. Any extra fields at
+ * the end of the row are ignored.
+ */
+public class RowWriteSupport extends WriteSupport<Row> {
+    private final MessageType messageType;
+    private final String[] fieldNames;
+    private final Type[] fieldTypes;
+    private RecordConsumer recordConsumer;
+
+    public RowWriteSupport(MessageType messageType, Schema schema) {
+        this.messageType = messageType;
+        List<Field> fields = schema.getAllFields();
+        this.fieldNames = fields.stream().map(Field::getName).toArray(String[]::new);
+        this.fieldTypes = fields.stream().map(Field::getType).toArray(Type[]::new);
+    }
+
+    @Override
+    public WriteContext init(Configuration configuration) {
+        return new WriteContext(messageType, new HashMap<>());
+    }
+
+    @Override
+    public void prepareForWrite(RecordConsumer recordConsumer) {
+        this.recordConsumer = recordConsumer;
+    }
+
+    @Override
+    @SuppressFBWarnings("UWF_FIELD_NOT_INITIALIZED_IN_CONSTRUCTOR")
+    public void write(Row row) {
+        recordConsumer.startMessage();
+        for (int i = 0; i < fieldNames.length; i++) {
+            recordConsumer.startField(fieldNames[i], i);
+            RecordWriter.writeValue(recordConsumer, fieldTypes[i], getValue(row, i));
+            recordConsumer.endField(fieldNames[i], i);
+        }
+        recordConsumer.endMessage();
+    }
+
+    private Object getValue(Row row, int i) {
+        if (fieldTypes[i] instanceof ListType) {
+            return row.getList(i);
+        } else if (fieldTypes[i] instanceof MapType) {
+            return row.getJavaMap(i);
+        } else {
+            return row.get(i);
+        }
+    }
+}
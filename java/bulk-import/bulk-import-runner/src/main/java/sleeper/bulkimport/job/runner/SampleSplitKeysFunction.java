@@ -0,0 +1,67 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+
+import sleeper.core.partition.Partition;
+import sleeper.core.schema.SchemaSerDe;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Given an {@link Iterator} of {@link Row}s starting with the row key fields, this class returns {@link Row}s of the
+ * integer id of the leaf partition and the value of the first row key field. Each row is kept with the probability
+ * set for its leaf partition, so that only enough keys are returned to choose split points for partitions that will
+ * be split.
+ */
+public class SampleSplitKeysFunction implements MapPartitionsFunction<Row, Row> {
+    private static final long serialVersionUID = -4286313410578283604L;
+
+    private final String schemaAsString;
+    private final Broadcast<List<Partition>> broadcastPartitions;
+    private final double[] keepFractionByPartitionIndex;
+
+    public SampleSplitKeysFunction(String schemaAsString, Broadcast<List<Partition>> broadcastPartitions,
+                                   double[] keepFractionByPartitionIndex) {
+        this.schemaAsString = schemaAsString;
+        this.broadcastPartitions = broadcastPartitions;
+        this.keepFractionByPartitionIndex = keepFractionByPartitionIndex;
+    }
+
+    @Override
+    public Iterator<Row> call(Iterator<Row> input) {
+        LeafPartitionIndex leafPartitionIndex = LeafPartitionIndex.from(
+                new SchemaSerDe().fromJson(schemaAsString), broadcastPartitions.getValue());
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Row> keys = new ArrayList<>();
+        while (input.hasNext()) {
+            Row row = input.next();
+            int partitionIndex = leafPartitionIndex.getIndex(row);
+            double keepFraction = keepFractionByPartitionIndex[partitionIndex];
+            if (keepFraction > 0 && random.nextDouble() < keepFraction) {
+                keys.add(RowFactory.create(partitionIndex, row.get(0)));
+            }
+        }
+        return keys.iterator();
+    }
+}
@@ -18,13 +18,11 @@ package sleeper.bulkimport.job.runner.dataframe;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 
-import sleeper.core.key.Key;
+import sleeper.bulkimport.job.runner.LeafPartitionIndex;
 import sleeper.core.partition.PartitionTree;
 import sleeper.core.schema.Schema;
 
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
 
 /**
  * An {@link Iterator} of {@link Row}s that takes an existing {@link Iterator}
@@ -32,14 +30,12 @@ import java.util.List;
  */
 public class AddPartitionIterator implements Iterator<Row> {
     private final Iterator<Row> input;
-    private final PartitionTree partitionTree;
-    private final int numRowKeyFields;
+    private final LeafPartitionIndex leafPartitionIndex;
     private final int numFields;
 
     public AddPartitionIterator(Iterator<Row> input, Schema schema, PartitionTree partitionTree) {
         this.input = input;
-        this.partitionTree = partitionTree;
-        this.numRowKeyFields = schema.getRowKeyFieldNames().size();
+        this.leafPartitionIndex = LeafPartitionIndex.from(schema, partitionTree.getAllPartitions());
         this.numFields = schema.getAllFieldNames().size();
     }
 
@@ -53,16 +49,10 @@ public class AddPartitionIterator implements Iterator<Row> {
         Row row = input.next();
 
         Object[] rowWithPartition = new Object[numFields + 1];
-        List<Object> key = new ArrayList<>(numRowKeyFields);
         for (int i = 0; i < numFields; i++) {
             rowWithPartition[i] = row.get(i);
-            if (i < numRowKeyFields) {
-                key.add(rowWithPartition[i]);
-            }
         }
-
-        String partitionId = partitionTree.getLeafPartition(Key.create(key)).getId();
-        rowWithPartition[numFields] = partitionId;
+        rowWithPartition[numFields] = leafPartitionIndex.getPartitionId(leafPartitionIndex.getIndex(row));
 
         return RowFactory.create(rowWithPartition);
     }
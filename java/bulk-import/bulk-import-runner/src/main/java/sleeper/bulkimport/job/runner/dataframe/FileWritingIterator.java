@@ -15,38 +15,22 @@
  */
 package sleeper.bulkimport.job.runner.dataframe;
 
-import com.facebook.collections.ByteArray;
-import org.apache.datasketches.quantiles.ItemsSketch;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.Path;
-import org.apache.parquet.hadoop.ParquetWriter;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import sleeper.bulkimport.job.runner.PartitionFileWriter;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.table.TableProperty;
-import sleeper.core.record.Record;
-import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
-import sleeper.core.schema.type.ByteArrayType;
-import sleeper.core.schema.type.ListType;
-import sleeper.core.schema.type.MapType;
-import sleeper.io.parquet.record.ParquetRecordWriterFactory;
-import sleeper.sketches.Sketches;
-import sleeper.sketches.s3.SketchesSerDeToS3;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
 import java.util.UUID;
+import java.util.function.Function;
 
 import static sleeper.configuration.properties.instance.CommonProperty.FILE_SYSTEM;
 
@@ -55,24 +39,36 @@ public class FileWritingIterator implements Iterator<Row> {
 
     private final Iterator<Row> input;
     private final Schema schema;
-    private final List<Field> allSchemaFields;
     private final Configuration conf;
     private final InstanceProperties instanceProperties;
     private final TableProperties tableProperties;
+    private final Function<Row, String> getPartitionId;
     private String currentPartitionId;
-    private ParquetWriter<Record> parquetWriter;
-    private Map<String, ItemsSketch> sketches;
-    private String path;
+    private PartitionFileWriter fileWriter;
     private long numRecords;
     private boolean hasMore = false;
-    private Instant startTime = null;
 
     public FileWritingIterator(Iterator<Row> input, InstanceProperties instanceProperties, TableProperties tableProperties, Configuration conf) {
+        this(input, instanceProperties, tableProperties, conf, row -> row.getString(row.length() - 1));
+    }
+
+    /**
+     * Creates an iterator which reads the id of the partition each row belongs to with the given function. The rows
+     * must be sorted by partition first.
+     *
+     * @param input              the sorted rows
+     * @param instanceProperties the instance properties
+     * @param tableProperties    the table properties
+     * @param conf               the Hadoop configuration
+     * @param getPartitionId     a function to get the id of the partition a row belongs to
+     */
+    public FileWritingIterator(Iterator<Row> input, InstanceProperties instanceProperties, TableProperties tableProperties, Configuration conf,
+                               Function<Row, String> getPartitionId) {
         this.input = input;
+        this.getPartitionId = getPartitionId;
         this.instanceProperties = instanceProperties;
         this.tableProperties = tableProperties;
         this.schema = tableProperties.getSchema();
-        this.allSchemaFields = schema.getAllFields();
         this.conf = conf;
         LOGGER.info("Initialised FileWritingIterator");
         LOGGER.info("Schema is {}", schema);
@@ -93,15 +89,15 @@ public class FileWritingIterator implements Iterator<Row> {
             while (input.hasNext()) {
                 Row row = input.next();
                 // Get Partition Id for this row
-                String partitionId = getPartitionId(row);
+                String partitionId = getPartitionId.apply(row);
 
                 if (!partitionId.equals(currentPartitionId)) {
                     if (currentPartitionId != null) {
                         // Write file and sketches
                         writeFiles();
-                        Row fileInfo = RowFactory.create(currentPartitionId, path, numRecords);
+                        Row fileInfo = RowFactory.create(currentPartitionId, fileWriter.getPath(), numRecords);
                         initialiseState(partitionId);
-                        write(row);
+                        fileWriter.write(row);
                         // Set flag in case this is the last record in the iterator
                         hasMore = true;
                         return fileInfo;
@@ -109,105 +105,33 @@ public class FileWritingIterator implements Iterator<Row> {
                         initialiseState(partitionId);
                     }
                 }
-                write(row);
+                fileWriter.write(row);
             }
 
             // Flush final file
             writeFiles();
             hasMore = false;
-            return RowFactory.create(currentPartitionId, path, numRecords);
+            return RowFactory.create(currentPartitionId, fileWriter.getPath(), numRecords);
         } catch (IOException e) {
             throw new RuntimeException("Encountered error while writing files", e);
         }
     }
 
-    private void write(Row row) throws IOException {
-        if (null == startTime) {
-            startTime = Instant.now();
-        }
-        // Append to current writer
-        Record record = getRecord(row);
-        parquetWriter.write(record);
-        numRecords++;
-        if (numRecords % 1_000_000L == 0) {
-            LOGGER.info("Wrote {} records", numRecords);
-        }
-        updateQuantilesSketch(record, sketches, schema.getRowKeyFields());
-    }
-
     private void initialiseState(String partitionId) throws IOException {
         currentPartitionId = partitionId;
-        // Create writer;
-        parquetWriter = createWriter(partitionId);
-        // Initialise sketches
-        sketches = getSketches(schema.getRowKeyFields());
-    }
-
-    private void writeFiles() throws IOException {
-        LOGGER.info("Flushing files to S3 containing {} records", numRecords);
-        if (parquetWriter == null) {
-            return;
-        }
-        parquetWriter.close();
-        new SketchesSerDeToS3(schema).saveToHadoopFS(new Path(path.replace(".parquet", ".sketches")), new Sketches(sketches), conf);
-        long durationInSeconds = Duration.between(startTime, Instant.now()).getSeconds();
-        double rate = numRecords / (double) durationInSeconds;
-        LOGGER.info("Overall written {} records in {} seconds (rate was {} per second)",
-                numRecords, durationInSeconds, rate);
-    }
-
-    private Record getRecord(Row row) {
-        Record record = new Record();
-        int i = 0;
-        for (Field field : allSchemaFields) {
-            if (field.getType() instanceof ListType) {
-                record.put(field.getName(), row.getList(i));
-            } else if (field.getType() instanceof MapType) {
-                record.put(field.getName(), row.getJavaMap(i));
-            } else {
-                record.put(field.getName(), row.get(i));
-            }
-            i++;
-        }
-        return record;
-    }
-
-    // TODO These methods are copies of the same ones in IngestRecordsFromIterator -
-    // move to sketches module
-    private Map<String, ItemsSketch> getSketches(List<Field> rowKeyFields) {
-        Map<String, ItemsSketch> keyFieldToSketch = new HashMap<>();
-        for (Field rowKeyField : rowKeyFields) {
-            ItemsSketch<?> sketch = ItemsSketch.getInstance(1024, Comparator.naturalOrder());
-            keyFieldToSketch.put(rowKeyField.getName(), sketch);
-        }
-        return keyFieldToSketch;
-    }
-
-    private void updateQuantilesSketch(
-            Record record, Map<String, ItemsSketch> keyFieldToSketch, List<Field> rowKeyFields) {
-        for (Field rowKeyField : rowKeyFields) {
-            if (rowKeyField.getType() instanceof ByteArrayType) {
-                byte[] value = (byte[]) record.get(rowKeyField.getName());
-                keyFieldToSketch.get(rowKeyField.getName()).update(ByteArray.wrap(value));
-            } else {
-                Object value = record.get(rowKeyField.getName());
-                keyFieldToSketch.get(rowKeyField.getName()).update(value);
-            }
-        }
-    }
-
-    private ParquetWriter<Record> createWriter(String partitionId) throws IOException {
-        numRecords = 0L;
-        path = instanceProperties.get(FILE_SYSTEM)
+        String path = instanceProperties.get(FILE_SYSTEM)
                 + tableProperties.get(TableProperty.DATA_BUCKET) + "/partition_" + partitionId
                 + "/" + UUID.randomUUID().toString() + ".parquet";
 
         LOGGER.info("Creating writer for partition {} to path {}", partitionId, path);
-
-        return ParquetRecordWriterFactory.createParquetRecordWriter(new Path(path), tableProperties, conf);
+        fileWriter = new PartitionFileWriter(tableProperties, conf, path);
     }
 
-    private String getPartitionId(Row row) {
-        return row.getString(row.length() - 1);
+    private void writeFiles() throws IOException {
+        if (fileWriter == null) {
+            return;
+        }
+        LOGGER.info("Flushing files to S3");
+        numRecords = fileWriter.close();
     }
 }
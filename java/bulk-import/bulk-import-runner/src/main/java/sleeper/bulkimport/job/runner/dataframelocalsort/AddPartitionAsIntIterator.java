@@ -18,18 +18,11 @@ package sleeper.bulkimport.job.runner.dataframelocalsort;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 
-import sleeper.core.key.Key;
-import sleeper.core.partition.Partition;
+import sleeper.bulkimport.job.runner.LeafPartitionIndex;
 import sleeper.core.partition.PartitionTree;
 import sleeper.core.schema.Schema;
 
-import java.util.ArrayList;
 import java.util.Iterator;
-import java.util.List;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeMap;
-import java.util.TreeSet;
 
 /**
  * An {@link Iterator} of {@link Row}s that takes an existing {@link Iterator}
@@ -37,34 +30,16 @@ import java.util.TreeSet;
  * The integer id is determined by taking the leaf partitions, sorting them by their id,
  * and then assigning integers 0,1,...,numLeafPartitions -1 to them. This guarantees
  * that two {@link Row}s from the same leaf partition processed in different tasks/executors
- * will be get the same integer id.
+ * will be get the same integer id. See {@link LeafPartitionIndex}.
  */
 public class AddPartitionAsIntIterator implements Iterator<Row> {
     private final Iterator<Row> input;
-    private final PartitionTree partitionTree;
-    private final Map<String, Integer> partitionIdToInt;
-    private final int numRowKeyFields;
+    private final LeafPartitionIndex leafPartitionIndex;
     private final int numFields;
 
     public AddPartitionAsIntIterator(Iterator<Row> input, Schema schema, PartitionTree partitionTree) {
         this.input = input;
-        this.partitionTree = partitionTree;
-
-        // Sort the leaf partitions by id so that we can create a mapping from partition id to
-        // int in a way that is consistent across multiple calls to this function across different
-        // executors in the same Spark job.
-        SortedSet<String> sortedLeafPartitionIds = new TreeSet<>();
-        this.partitionTree.getAllPartitions().stream()
-                .filter(Partition::isLeafPartition)
-                .map(Partition::getId)
-                .forEach(sortedLeafPartitionIds::add);
-        this.partitionIdToInt = new TreeMap<>();
-        int i = 0;
-        for (String leafPartitionId : sortedLeafPartitionIds) {
-            partitionIdToInt.put(leafPartitionId, i);
-            i++;
-        }
-        this.numRowKeyFields = schema.getRowKeyFieldNames().size();
+        this.leafPartitionIndex = LeafPartitionIndex.from(schema, partitionTree.getAllPartitions());
         this.numFields = schema.getAllFieldNames().size();
     }
 
@@ -78,16 +53,10 @@ public class AddPartitionAsIntIterator implements Iterator<Row> {
         Row row = input.next();
 
         Object[] rowWithPartition = new Object[numFields + 1];
-        List<Object> key = new ArrayList<>(numRowKeyFields);
         for (int i = 0; i < numFields; i++) {
             rowWithPartition[i] = row.get(i);
-            if (i < numRowKeyFields) {
-                key.add(rowWithPartition[i]);
-            }
         }
-
-        String partitionId = partitionTree.getLeafPartition(Key.create(key)).getId();
-        rowWithPartition[numFields] = partitionIdToInt.get(partitionId);
+        rowWithPartition[numFields] = leafPartitionIndex.getIndex(row);
 
         return RowFactory.create(rowWithPartition);
     }
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner.dataframelocalsort;
+
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Objects;
+
+/**
+ * Given an {@link Iterator} of {@link Row}s with the integer id of their leaf partition as the last field, this
+ * class returns an {@link Iterator} of {@link Row}s where each {@link Row} has a further field added containing the
+ * Spark task it should be sent to, from a {@link SkewAwareTaskPlan}. Where a leaf partition is spread over several
+ * tasks, the task is chosen from a hash of the fields of the Sleeper schema, so a row goes to the same task if it is
+ * processed again. All the fields are included so that rows with the same key can still be spread over the tasks.
+ */
+public class AddTaskFunction implements MapPartitionsFunction<Row, Row> {
+    private static final long serialVersionUID = -6003513218938946374L;
+
+    private final SkewAwareTaskPlan plan;
+    private final int numSchemaFields;
+
+    public AddTaskFunction(SkewAwareTaskPlan plan, int numSchemaFields) {
+        this.plan = plan;
+        this.numSchemaFields = numSchemaFields;
+    }
+
+    @Override
+    public Iterator<Row> call(Iterator<Row> input) {
+        return new AddTaskIterator(input, this);
+    }
+
+    Row addTask(Row row) {
+        int numFields = row.length();
+        int partitionIndex = row.getInt(numFields - 1);
+        Object[] rowWithTask = new Object[numFields + 1];
+        for (int i = 0; i < numFields; i++) {
+            rowWithTask[i] = row.get(i);
+        }
+        rowWithTask[numFields] = plan.getTask(partitionIndex, hashSchemaFields(row));
+        return RowFactory.create(rowWithTask);
+    }
+
+    private int hashSchemaFields(Row row) {
+        int hash = 1;
+        for (int i = 0; i < numSchemaFields; i++) {
+            Object value = row.get(i);
+            int valueHash = value instanceof byte[] ? Arrays.hashCode((byte[]) value) : Objects.hashCode(value);
+            hash = 31 * hash + valueHash;
+        }
+        return hash;
+    }
+
+    /**
+     * Adds the task to each row from an iterator.
+     */
+    private static class AddTaskIterator implements Iterator<Row> {
+        private final Iterator<Row> input;
+        private final AddTaskFunction function;
+
+        AddTaskIterator(Iterator<Row> input, AddTaskFunction function) {
+            this.input = input;
+            this.function = function;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return input.hasNext();
+        }
+
+        @Override
+        public Row next() {
+            return function.addTask(input.next());
+        }
+    }
+}
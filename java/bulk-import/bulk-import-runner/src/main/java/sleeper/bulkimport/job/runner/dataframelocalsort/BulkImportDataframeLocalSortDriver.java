@@ -18,6 +18,7 @@ package sleeper.bulkimport.job.runner.dataframelocalsort;
 import com.google.common.collect.Lists;
 import org.apache.spark.sql.Column;
 import org.apache.spark.sql.Dataset;
+import org.apache.spark.sql.Encoders;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.catalyst.encoders.RowEncoder;
 import org.apache.spark.sql.types.DataTypes;
@@ -29,6 +30,7 @@ import org.slf4j.LoggerFactory;
 import sleeper.bulkimport.job.runner.BulkImportJobDriver;
 import sleeper.bulkimport.job.runner.BulkImportJobInput;
 import sleeper.bulkimport.job.runner.BulkImportJobRunner;
+import sleeper.bulkimport.job.runner.GetPartitionIndexFunction;
 import sleeper.bulkimport.job.runner.SparkFileInfoRow;
 import sleeper.bulkimport.job.runner.StructTypeFactory;
 import sleeper.bulkimport.job.runner.rdd.WriteParquetFile;
@@ -39,7 +41,12 @@ import sleeper.core.schema.SchemaSerDe;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_SKEW_HANDLING_ENABLED;
+import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_SKEW_SAMPLE_FRACTION;
 
 /**
  * This class runs {@link BulkImportJobDriver} with a {@link BulkImportJobRunner} which
@@ -49,6 +56,7 @@ import java.util.stream.Collectors;
 public class BulkImportDataframeLocalSortDriver {
     private static final Logger LOGGER = LoggerFactory.getLogger(BulkImportDataframeLocalSortDriver.class);
     private static final String PARTITION_FIELD_NAME = "__partition";
+    private static final String TASK_FIELD_NAME = "__task";
 
     private BulkImportDataframeLocalSortDriver() {
     }
@@ -72,6 +80,10 @@ public class BulkImportDataframeLocalSortDriver {
                 RowEncoder.apply(schemaWithPartitionField));
         LOGGER.info("After adding partition id as int, there are {} partitions", dataWithPartition.rdd().getNumPartitions());
 
+        if (input.tableProperties().getBoolean(BULK_IMPORT_SKEW_HANDLING_ENABLED)) {
+            return createFileInfosWithSkewHandling(input, dataWithPartition, schemaWithPartitionField, numLeafPartitions);
+        }
+
         Dataset<Row> repartitionedData = new com.joom.spark.package$implicits$ExplicitRepartitionWrapper(dataWithPartition)
                 .explicitRepartition(numLeafPartitions, new Column(PARTITION_FIELD_NAME));
         LOGGER.info("After repartitioning data, there are {} partitions", repartitionedData.rdd().getNumPartitions());
@@ -96,6 +108,57 @@ public class BulkImportDataframeLocalSortDriver {
                 RowEncoder.apply(SparkFileInfoRow.createFileInfoSchema()));
     }
 
+    private static Dataset<Row> createFileInfosWithSkewHandling(
+            BulkImportJobInput input, Dataset<Row> dataWithPartition, StructType schemaWithPartitionField, int numLeafPartitions) throws IOException {
+        Schema schema = input.schema();
+        SkewAwareTaskPlan plan = SkewAwareTaskPlan.fromEstimatedRows(
+                estimateRowsByPartitionIndex(input, numLeafPartitions), numLeafPartitions);
+        LOGGER.info("Planned {} tasks for {} leaf partitions", plan.getNumTasks(), numLeafPartitions);
+
+        Dataset<Row> dataWithTask = dataWithPartition.mapPartitions(
+                new AddTaskFunction(plan, schema.getAllFields().size()),
+                RowEncoder.apply(schemaWithPartitionField
+                        .add(new StructField(TASK_FIELD_NAME, DataTypes.IntegerType, false, null))));
+
+        Dataset<Row> repartitionedData = new com.joom.spark.package$implicits$ExplicitRepartitionWrapper(dataWithTask)
+                .explicitRepartition(plan.getNumTasks(), new Column(TASK_FIELD_NAME));
+        LOGGER.info("After repartitioning data, there are {} partitions", repartitionedData.rdd().getNumPartitions());
+
+        // Each task may hold several leaf partitions, so sort by the leaf partition first
+        Column[] sortColumns = Stream.of(List.of(PARTITION_FIELD_NAME), schema.getRowKeyFieldNames(), schema.getSortKeyFieldNames())
+                .flatMap(Collection::stream)
+                .map(Column::new)
+                .toArray(Column[]::new);
+        Dataset<Row> sortedRows = repartitionedData.sortWithinPartitions(sortColumns);
+
+        return sortedRows.mapPartitions(
+                new WriteParquetFilesForPartitionIndexes(
+                        input.instanceProperties().saveAsString(),
+                        input.tableProperties().saveAsString(),
+                        input.conf(), input.broadcastedPartitions()),
+                RowEncoder.apply(SparkFileInfoRow.createFileInfoSchema()));
+    }
+
+    private static long[] estimateRowsByPartitionIndex(BulkImportJobInput input, int numLeafPartitions) {
+        Schema schema = input.schema();
+        double fraction = input.tableProperties().getDouble(BULK_IMPORT_SKEW_SAMPLE_FRACTION);
+        Column[] rowKeyColumns = schema.getRowKeyFieldNames().stream()
+                .map(Column::new)
+                .toArray(Column[]::new);
+        List<Row> counts = input.rows().select(rowKeyColumns)
+                .sample(fraction)
+                .mapPartitions(new GetPartitionIndexFunction(new SchemaSerDe().toJson(schema), input.broadcastedPartitions()), Encoders.INT())
+                .groupBy("value").count()
+                .collectAsList();
+        long[] estimatedRows = new long[numLeafPartitions];
+        for (Row row : counts) {
+            estimatedRows[row.getInt(0)] = row.getLong(1);
+        }
+        LOGGER.info("Sampled {} rows to estimate the number of rows in each leaf partition",
+                Arrays.stream(estimatedRows).sum());
+        return estimatedRows;
+    }
+
     private static StructType createEnhancedSchema(StructType convertedSchema) {
         StructType structTypeWithPartition = new StructType(convertedSchema.fields());
         return structTypeWithPartition
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner.dataframelocalsort;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Assigns the rows of each leaf partition to Spark tasks, based on an estimate of how many rows each leaf partition
+ * will receive. The aim is for each task to receive a similar number of rows. A leaf partition with more rows than
+ * that is spread over several tasks, and its rows are assigned to those tasks by a hash of the row. Each of those
+ * tasks sorts and writes its own file for the partition. Leaf partitions with fewer rows are packed together into a
+ * single task, which writes one file for each of them.
+ * <p>
+ * Rows are assigned by hash rather than by splitting the partition into key ranges because Sleeper allows the files
+ * within a partition to overlap. The files written for a hot partition do not need to cover separate key ranges, so
+ * no split points need to be sampled from the input.
+ */
+public class SkewAwareTaskPlan implements Serializable {
+    private static final long serialVersionUID = -2431178283473956513L;
+
+    private final int[] firstTaskForPartition;
+    private final int[] numTasksForPartition;
+    private final int numTasks;
+
+    private SkewAwareTaskPlan(int[] firstTaskForPartition, int[] numTasksForPartition, int numTasks) {
+        this.firstTaskForPartition = firstTaskForPartition;
+        this.numTasksForPartition = numTasksForPartition;
+        this.numTasks = numTasks;
+    }
+
+    /**
+     * Creates a plan from the estimated number of rows in each leaf partition. The estimates only need to be
+     * proportional to the actual numbers, e.g. counts from a sample of the input.
+     *
+     * @param  estimatedRowsByPartitionIndex the estimated number of rows for each leaf partition, by its index
+     * @param  targetNumTasks                the number of tasks to aim for
+     * @return                               the plan
+     */
+    public static SkewAwareTaskPlan fromEstimatedRows(long[] estimatedRowsByPartitionIndex, int targetNumTasks) {
+        int numPartitions = estimatedRowsByPartitionIndex.length;
+        int[] firstTask = new int[numPartitions];
+        int[] numTasksForPartition = new int[numPartitions];
+        long totalRows = Arrays.stream(estimatedRowsByPartitionIndex).sum();
+        if (totalRows == 0) {
+            // Without an estimate, fall back to one task per leaf partition
+            for (int i = 0; i < numPartitions; i++) {
+                firstTask[i] = i;
+                numTasksForPartition[i] = 1;
+            }
+            return new SkewAwareTaskPlan(firstTask, numTasksForPartition, numPartitions);
+        }
+        long targetRowsPerTask = Math.max(1, (totalRows + targetNumTasks - 1) / targetNumTasks);
+        int nextTask = 0;
+        int packingTask = -1;
+        long rowsInPackingTask = 0;
+        for (int i = 0; i < numPartitions; i++) {
+            long rows = estimatedRowsByPartitionIndex[i];
+            if (rows > targetRowsPerTask) {
+                int tasks = (int) Math.min(targetNumTasks, (rows + targetRowsPerTask - 1) / targetRowsPerTask);
+                firstTask[i] = nextTask;
+                numTasksForPartition[i] = tasks;
+                nextTask += tasks;
+            } else {
+                if (packingTask < 0 || rowsInPackingTask + rows > targetRowsPerTask) {
+                    packingTask = nextTask;
+                    rowsInPackingTask = 0;
+                    nextTask++;
+                }
+                firstTask[i] = packingTask;
+                numTasksForPartition[i] = 1;
+                rowsInPackingTask += rows;
+            }
+        }
+        return new SkewAwareTaskPlan(firstTask, numTasksForPartition, nextTask);
+    }
+
+    /**
+     * Finds the task to send a row to.
+     *
+     * @param  partitionIndex the index of the leaf partition the row belongs to
+     * @param  rowHash        a hash of the row, which must be the same whenever the row is processed
+     * @return                the task
+     */
+    public int getTask(int partitionIndex, int rowHash) {
+        int tasks = numTasksForPartition[partitionIndex];
+        if (tasks == 1) {
+            return firstTaskForPartition[partitionIndex];
+        }
+        return firstTaskForPartition[partitionIndex] + Math.floorMod(rowHash, tasks);
+    }
+
+    public int getNumTasksForPartition(int partitionIndex) {
+        return numTasksForPartition[partitionIndex];
+    }
+
+    public int getNumTasks() {
+        return numTasks;
+    }
+}
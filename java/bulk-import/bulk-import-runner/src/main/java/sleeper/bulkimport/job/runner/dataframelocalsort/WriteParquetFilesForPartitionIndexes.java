@@ -0,0 +1,66 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner.dataframelocalsort;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.spark.api.java.function.MapPartitionsFunction;
+import org.apache.spark.broadcast.Broadcast;
+import org.apache.spark.sql.Row;
+import org.apache.spark.util.SerializableConfiguration;
+
+import sleeper.bulkimport.job.runner.LeafPartitionIndex;
+import sleeper.bulkimport.job.runner.dataframe.FileWritingIterator;
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.partition.Partition;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Writes Rows sorted by the integer id of their leaf partition to Parquet files, with one file for each leaf
+ * partition in the Spark partition. The integer id is read from the field after the fields of the Sleeper schema.
+ */
+public class WriteParquetFilesForPartitionIndexes implements MapPartitionsFunction<Row, Row> {
+    private static final long serialVersionUID = 7346018223487709621L;
+
+    private final String instancePropertiesStr;
+    private final String tablePropertiesStr;
+    private final SerializableConfiguration serializableConf;
+    private final Broadcast<List<Partition>> broadcastPartitions;
+
+    public WriteParquetFilesForPartitionIndexes(String instancePropertiesStr, String tablePropertiesStr, Configuration conf, Broadcast<List<Partition>> broadcastPartitions) {
+        this.instancePropertiesStr = instancePropertiesStr;
+        this.tablePropertiesStr = tablePropertiesStr;
+        this.serializableConf = new SerializableConfiguration(conf);
+        this.broadcastPartitions = broadcastPartitions;
+    }
+
+    @Override
+    public Iterator<Row> call(Iterator<Row> rowIter) throws IOException {
+        InstanceProperties instanceProperties = new InstanceProperties();
+        instanceProperties.loadFromString(instancePropertiesStr);
+
+        TableProperties tableProperties = new TableProperties(instanceProperties);
+        tableProperties.loadFromString(tablePropertiesStr);
+
+        LeafPartitionIndex leafPartitionIndex = LeafPartitionIndex.from(tableProperties.getSchema(), broadcastPartitions.getValue());
+        int partitionIndexField = tableProperties.getSchema().getAllFields().size();
+        return new FileWritingIterator(rowIter, instanceProperties, tableProperties, serializableConf.value(),
+                row -> leafPartitionIndex.getPartitionId(row.getInt(partitionIndexField)));
+    }
+}
@@ -15,40 +15,25 @@
  */
 package sleeper.bulkimport.job.runner.rdd;
 
-import com.facebook.collections.ByteArray;
-import org.apache.datasketches.quantiles.ItemsSketch;
 import org.apache.hadoop.conf.Configuration;
-import org.apache.hadoop.fs.Path;
-import org.apache.parquet.hadoop.ParquetWriter;
 import org.apache.spark.sql.Row;
 import org.apache.spark.sql.RowFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import sleeper.bulkimport.job.runner.PartitionFileWriter;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.table.TableProperty;
 import sleeper.core.key.Key;
 import sleeper.core.partition.Partition;
 import sleeper.core.partition.PartitionTree;
-import sleeper.core.record.Record;
-import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
-import sleeper.core.schema.type.ByteArrayType;
-import sleeper.core.schema.type.ListType;
-import sleeper.core.schema.type.MapType;
-import sleeper.io.parquet.record.ParquetRecordWriterFactory;
-import sleeper.sketches.Sketches;
-import sleeper.sketches.s3.SketchesSerDeToS3;
 
 import java.io.IOException;
-import java.time.Duration;
-import java.time.Instant;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.UUID;
 
 import static sleeper.configuration.properties.instance.CommonProperty.FILE_SYSTEM;
@@ -60,15 +45,11 @@ public class SingleFileWritingIterator implements Iterator<Row> {
     private final InstanceProperties instanceProperties;
     private final TableProperties tableProperties;
     private final Schema schema;
-    private final List<Field> allSchemaFields;
+    private final int numRowKeyFields;
     private final Configuration conf;
     private final PartitionTree partitionTree;
-    private ParquetWriter<Record> parquetWriter;
-    private Map<String, ItemsSketch> sketches;
-    private String path;
-    private long numRecords;
-    private String outputFilename;
-    private Instant startTime;
+    private final String outputFilename;
+    private PartitionFileWriter fileWriter;
 
     public SingleFileWritingIterator(Iterator<Row> input,
                                      InstanceProperties instanceProperties,
@@ -88,7 +69,7 @@ public class SingleFileWritingIterator implements Iterator<Row> {
         this.instanceProperties = instanceProperties;
         this.tableProperties = tableProperties;
         this.schema = tableProperties.getSchema();
-        this.allSchemaFields = schema.getAllFields();
+        this.numRowKeyFields = schema.getRowKeyFields().size();
         this.conf = conf;
         this.partitionTree = partitionTree;
         this.outputFilename = outputFilename;
@@ -111,105 +92,35 @@ public class SingleFileWritingIterator implements Iterator<Row> {
             String partitionId = null;
             while (input.hasNext()) {
                 Row row = input.next();
-                if (null == parquetWriter) {
-                    startTime = Instant.now();
+                if (null == fileWriter) {
                     partitionId = getPartitionId(row);
                     initialiseState(partitionId);
                 }
-                write(row);
+                fileWriter.write(row);
             }
-            closeFile();
-            return RowFactory.create(partitionId, path, numRecords);
+            LOGGER.info("Flushing file to S3");
+            long numRecords = fileWriter.close();
+            return RowFactory.create(partitionId, fileWriter.getPath(), numRecords);
         } catch (IOException e) {
             throw new RuntimeException("Encountered error while writing files", e);
         }
     }
 
-    private void write(Row row) throws IOException {
-        Record record = getRecord(row);
-        parquetWriter.write(record);
-        numRecords++;
-        if (numRecords % 1_000_000L == 0) {
-            LOGGER.info("Wrote {} records", numRecords);
-        }
-        updateQuantilesSketch(record, sketches, schema.getRowKeyFields());
-    }
-
     private void initialiseState(String partitionId) throws IOException {
-        // Create writer
-        parquetWriter = createWriter(partitionId);
-        // Initialise sketches
-        sketches = getSketches(schema.getRowKeyFields());
-    }
-
-    private void closeFile() throws IOException {
-        LOGGER.info("Flushing file to S3 containing {} records", numRecords);
-        if (parquetWriter == null) {
-            return;
-        }
-        parquetWriter.close();
-        new SketchesSerDeToS3(schema).saveToHadoopFS(new Path(path.replace(".parquet", ".sketches")), new Sketches(sketches), conf);
-        long durationInSeconds = Duration.between(startTime, Instant.now()).getSeconds();
-        double rate = numRecords / (double) durationInSeconds;
-        LOGGER.info("Finished writing {} records to file {} in {} seconds (rate was {} per second)",
-                numRecords, path, durationInSeconds, rate);
-    }
-
-    private Record getRecord(Row row) {
-        Record record = new Record();
-        int i = 0;
-        for (Field field : allSchemaFields) {
-            if (field.getType() instanceof ListType) {
-                record.put(field.getName(), row.getList(i));
-            } else if (field.getType() instanceof MapType) {
-                record.put(field.getName(), row.getJavaMap(i));
-            } else {
-                record.put(field.getName(), row.get(i));
-            }
-            i++;
-        }
-        return record;
-    }
-
-    // TODO These methods are copies of the same ones in IngestRecordsFromIterator -
-    // move to sketches module
-    private Map<String, ItemsSketch> getSketches(List<Field> rowKeyFields) {
-        Map<String, ItemsSketch> keyFieldToSketch = new HashMap<>();
-        for (Field rowKeyField : rowKeyFields) {
-            ItemsSketch<?> sketch = ItemsSketch.getInstance(1024, Comparator.naturalOrder());
-            keyFieldToSketch.put(rowKeyField.getName(), sketch);
-        }
-        return keyFieldToSketch;
-    }
-
-    private void updateQuantilesSketch(
-            Record record, Map<String, ItemsSketch> keyFieldToSketch, List<Field> rowKeyFields) {
-        for (Field rowKeyField : rowKeyFields) {
-            if (rowKeyField.getType() instanceof ByteArrayType) {
-                byte[] value = (byte[]) record.get(rowKeyField.getName());
-                keyFieldToSketch.get(rowKeyField.getName()).update(ByteArray.wrap(value));
-            } else {
-                Object value = record.get(rowKeyField.getName());
-                keyFieldToSketch.get(rowKeyField.getName()).update(value);
-            }
-        }
-    }
-
-    private ParquetWriter<Record> createWriter(String partitionId) throws IOException {
-        numRecords = 0L;
-        path = instanceProperties.get(FILE_SYSTEM)
+        String path = instanceProperties.get(FILE_SYSTEM)
                 + tableProperties.get(TableProperty.DATA_BUCKET) + "/partition_" + partitionId
                 + "/" + outputFilename + ".parquet";
 
         LOGGER.info("Creating writer for partition {} to path {}", partitionId, path);
-        return ParquetRecordWriterFactory.createParquetRecordWriter(new Path(path), tableProperties, conf);
+        fileWriter = new PartitionFileWriter(tableProperties, conf, path);
     }
 
     private String getPartitionId(Row row) {
-        Record record = getRecord(row);
-        List<String> rowKeyFieldNames = schema.getRowKeyFieldNames();
-        Key key = Key.create(record.getValues(rowKeyFieldNames));
-        Partition partition = partitionTree.getLeafPartition(key);
+        List<Object> rowKeys = new ArrayList<>(numRowKeyFields);
+        for (int i = 0; i < numRowKeyFields; i++) {
+            rowKeys.add(row.get(i));
+        }
+        Partition partition = partitionTree.getLeafPartition(Key.create(rowKeys));
         return partition.getId();
     }
 }
@@ -18,19 +18,12 @@ package sleeper.bulkimport.job.runner.rdd;
 import org.apache.spark.Partitioner;
 import org.apache.spark.broadcast.Broadcast;
 
+import sleeper.bulkimport.job.runner.LeafPartitionIndex;
 import sleeper.core.key.Key;
 import sleeper.core.partition.Partition;
-import sleeper.core.partition.PartitionTree;
-import sleeper.core.schema.Schema;
 import sleeper.core.schema.SchemaSerDe;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedSet;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
 
 /**
  * A {@link SleeperPartitioner} is a custom {@link Partitioner} which uses the
@@ -41,10 +34,7 @@ public class SleeperPartitioner extends Partitioner {
 
     private final Broadcast<List<Partition>> broadcastPartitions;
     private final String schemaAsString;
-    private transient int numRowKeyFields;
-    private transient PartitionTree partitionTree;
-    private transient int numLeafPartitions;
-    private transient Map<String, Integer> partitionIdToInt;
+    private transient LeafPartitionIndex leafPartitionIndex;
 
     public SleeperPartitioner(String schemaAsString, Broadcast<List<Partition>> broadcastPartitions) {
         this.schemaAsString = schemaAsString;
@@ -52,45 +42,22 @@ public class SleeperPartitioner extends Partitioner {
     }
 
     private void init() {
-        Schema schema = new SchemaSerDe().fromJson(schemaAsString);
-        numRowKeyFields = schema.getRowKeyFields().size();
-        List<Partition> partitions = broadcastPartitions.getValue();
-        partitionTree = new PartitionTree(schema, partitions);
-        numLeafPartitions = (int) partitions.stream().filter(Partition::isLeafPartition).count();
-        partitionIdToInt = new HashMap<>();
-        List<String> leafPartitions = partitions.stream()
-                .filter(Partition::isLeafPartition)
-                .map(p -> p.getId())
-                .collect(Collectors.toList());
-        SortedSet<String> sortedPartitionIds = new TreeSet<>(leafPartitions);
-        int i = 0;
-        for (String partitionId : sortedPartitionIds) {
-            partitionIdToInt.put(partitionId, i);
-            i++;
-        }
+        leafPartitionIndex = LeafPartitionIndex.from(new SchemaSerDe().fromJson(schemaAsString), broadcastPartitions.getValue());
     }
 
     @Override
     public int numPartitions() {
-        if (null == partitionTree) {
+        if (null == leafPartitionIndex) {
             init();
         }
-        return numLeafPartitions;
+        return leafPartitionIndex.numLeafPartitions();
     }
 
     @Override
     public int getPartition(Object obj) {
-        if (null == partitionTree) {
+        if (null == leafPartitionIndex) {
             init();
         }
-        Key key = (Key) obj;
-        List<Object> rowKeys = new ArrayList<>(numRowKeyFields);
-        for (int i = 0; i < numRowKeyFields; i++) {
-            rowKeys.add(key.get(i));
-        }
-        Key rowKey = Key.create(rowKeys);
-        String partitionId = partitionTree.getLeafPartition(rowKey).getId();
-        int partitionAsInt = partitionIdToInt.get(partitionId);
-        return partitionAsInt;
+        return leafPartitionIndex.getIndex((Key) obj);
     }
 }
@@ -41,6 +41,7 @@ import sleeper.bulkimport.job.runner.rdd.BulkImportJobRDDDriver;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.core.CommonTestConstants;
+import sleeper.core.key.Key;
 import sleeper.core.partition.Partition;
 import sleeper.core.partition.PartitionsFromSplitPoints;
 import sleeper.core.record.Record;
@@ -90,8 +91,14 @@ import static sleeper.configuration.properties.instance.CommonProperty.VPC_ID;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.CONFIG_BUCKET;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.VERSION;
 import static sleeper.configuration.properties.table.TableProperty.ACTIVE_FILEINFO_TABLENAME;
+import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_PRE_SPLIT_ENABLED;
+import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_PRE_SPLIT_SAMPLE_FRACTION;
+import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_SKEW_HANDLING_ENABLED;
+import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_SKEW_SAMPLE_FRACTION;
 import static sleeper.configuration.properties.table.TableProperty.DATA_BUCKET;
 import static sleeper.configuration.properties.table.TableProperty.GARBAGE_COLLECTOR_DELAY_BEFORE_DELETION;
+import static sleeper.configuration.properties.table.TableProperty.PARTITION_SPLIT_MAX_DEPTH;
+import static sleeper.configuration.properties.table.TableProperty.PARTITION_SPLIT_THRESHOLD;
 import static sleeper.configuration.properties.table.TableProperty.PARTITION_TABLENAME;
 import static sleeper.configuration.properties.table.TableProperty.READY_FOR_GC_FILEINFO_TABLENAME;
 import static sleeper.configuration.properties.table.TableProperty.TABLE_NAME;
@@ -110,7 +117,13 @@ class BulkImportJobDriverIT {
                 Arguments.of(Named.of("BulkImportJobRDDDriver",
                         (BulkImportJobRunner) BulkImportJobRDDDriver::createFileInfos)),
                 Arguments.of(Named.of("BulkImportDataframeLocalSortDriver",
-                        (BulkImportJobRunner) BulkImportDataframeLocalSortDriver::createFileInfos))
+                        (BulkImportJobRunner) BulkImportDataframeLocalSortDriver::createFileInfos)),
+                Arguments.of(Named.of("BulkImportDataframeLocalSortDriver with skew handling",
+                        (BulkImportJobRunner) input -> {
+                            input.tableProperties().set(BULK_IMPORT_SKEW_HANDLING_ENABLED, "true");
+                            input.tableProperties().set(BULK_IMPORT_SKEW_SAMPLE_FRACTION, "1");
+                            return BulkImportDataframeLocalSortDriver.createFileInfos(input);
+                        }))
         );
     }
 
@@ -520,6 +533,67 @@ class BulkImportJobDriverIT {
                         summary(startTime, endTime, records.size(), records.size())));
     }
 
+    @ParameterizedTest
+    @MethodSource("getParameters")
+    void shouldPreSplitPartitionAndWriteDataIntoNewPartitions(BulkImportJobRunner runner) throws IOException, StateStoreException {
+        // Given
+        //  - Instance and table properties, with pre-splitting of partitions over 100 records
+        String dataDir = createTempDirectory(folder, null).toString();
+        InstanceProperties instanceProperties = createInstanceProperties(s3Client, dataDir);
+        TableProperties tableProperties = createTable(instanceProperties);
+        tableProperties.set(BULK_IMPORT_PRE_SPLIT_ENABLED, "true");
+        tableProperties.set(BULK_IMPORT_PRE_SPLIT_SAMPLE_FRACTION, "1");
+        tableProperties.set(PARTITION_SPLIT_THRESHOLD, "100");
+        tableProperties.set(PARTITION_SPLIT_MAX_DEPTH, "1");
+        tableProperties.saveToS3(s3Client);
+        //  - Write some data to be imported
+        List<Record> records = getRecords();
+        writeRecordsToFile(records, dataDir + "/import/a.parquet");
+        List<String> inputFiles = new ArrayList<>();
+        inputFiles.add("/import/a.parquet");
+        //  - State store
+        StateStore stateStore = initialiseStateStore(dynamoDBClient, instanceProperties, tableProperties);
+        Partition rootBefore = stateStore.getAllPartitions().get(0);
+
+        // When
+        BulkImportJob job = BulkImportJob.builder().id("my-job").files(inputFiles)
+                .tableName(tableProperties.get(TABLE_NAME)).build();
+        runJob(runner, instanceProperties, job);
+
+        // Then
+        //  - The root partition was split into two new leaf partitions
+        List<Partition> leafPartitions = stateStore.getLeafPartitions();
+        assertThat(leafPartitions).hasSize(2)
+                .allSatisfy(leaf -> assertThat(leaf.getParentPartitionId()).isEqualTo(rootBefore.getId()));
+        assertThat(leafPartitions).extracting(Partition::getId)
+                .doesNotContain(rootBefore.getId());
+        //  - Each file was written to one of the new leaf partitions, and holds only records in that partition
+        Map<String, Partition> leavesById = leafPartitions.stream()
+                .collect(Collectors.toMap(Partition::getId, leaf -> leaf));
+        List<FileInfo> activeFiles = stateStore.getActiveFiles();
+        assertThat(activeFiles).extracting(FileInfo::getPartitionId)
+                .allSatisfy(partitionId -> assertThat(leavesById).containsKey(partitionId))
+                .containsAll(leavesById.keySet());
+        List<Record> readRecords = new ArrayList<>();
+        for (FileInfo fileInfo : activeFiles) {
+            Partition leaf = leavesById.get(fileInfo.getPartitionId());
+            List<Record> recordsInThisFile = readRecords(fileInfo.getFilename(), schema);
+            assertThat(recordsInThisFile)
+                    .hasSize((int) (long) fileInfo.getNumberOfRecords())
+                    .isSortedAccordingTo(new RecordComparator(getSchema()))
+                    .allSatisfy(record -> assertThat(leaf.isRowKeyInPartition(schema,
+                            Key.create(record.get("key")))).isTrue());
+            readRecords.addAll(recordsInThisFile);
+        }
+        List<Record> expectedRecords = new ArrayList<>(records);
+        sortRecords(expectedRecords);
+        sortRecords(readRecords);
+        assertThat(readRecords).isEqualTo(expectedRecords);
+        assertThat(statusStore.getAllJobs(tableProperties.get(TABLE_NAME))).containsExactly(
+                finishedIngestJobWithValidation(job.toIngestJob(), taskId, validationTime,
+                        summary(startTime, endTime, records.size(), records.size())));
+    }
+
     @ParameterizedTest
     @MethodSource("getParameters")
     void shouldNotThrowExceptionIfProvidedWithDirectoryWhichContainsParquetAndNonParquetFiles(BulkImportJobRunner runner) throws IOException, StateStoreException {
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import org.apache.spark.sql.Row;
+import org.apache.spark.sql.RowFactory;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.key.Key;
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.partition.PartitionsBuilder;
+import sleeper.core.partition.PartitionsFromSplitPoints;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.PrimitiveType;
+import sleeper.core.schema.type.StringType;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class LeafPartitionIndexTest {
+
+    @Test
+    public void shouldFindIntKeysBySplitPoints() {
+        // Given
+        Schema schema = schemaWithRowKeyTypes(new IntType());
+        PartitionTree tree = PartitionsFromSplitPoints.treeFrom(schema, List.of(-10, 0, 100));
+
+        // When
+        LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree.getAllPartitions());
+
+        // Then
+        assertThat(index.isUsingSplitPoints()).isTrue();
+        assertThat(index.numLeafPartitions()).isEqualTo(4);
+        assertSameLeafPartitionsAsTree(index, tree,
+                Integer.MIN_VALUE, -11, -10, -9, -1, 0, 1, 99, 100, 101, Integer.MAX_VALUE);
+    }
+
+    @Test
+    public void shouldFindLongKeysBySplitPoints() {
+        // Given
+        Schema schema = schemaWithRowKeyTypes(new LongType());
+        PartitionTree tree = PartitionsFromSplitPoints.treeFrom(schema, List.of(-10L, 0L, 100L));
+
+        // When
+        LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree.getAllPartitions());
+
+        // Then
+        assertThat(index.isUsingSplitPoints()).isTrue();
+        assertSameLeafPartitionsAsTree(index, tree,
+                Long.MIN_VALUE, -11L, -10L, -9L, -1L, 0L, 1L, 99L, 100L, 101L, Long.MAX_VALUE);
+    }
+
+    @Test
+    public void shouldFindStringKeysBySplitPoints() {
+        // Given
+        Schema schema = schemaWithRowKeyTypes(new StringType());
+        PartitionTree tree = PartitionsFromSplitPoints.treeFrom(schema, List.of("b", "d", "dd"));
+
+        // When
+        LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree.getAllPartitions());
+
+        // Then
+        assertThat(index.isUsingSplitPoints()).isTrue();
+        assertSameLeafPartitionsAsTree(index, tree,
+                "", "a", "b", "bb", "c", "d", "da", "dd", "de", "z");
+    }
+
+    @Test
+    public void shouldFindByteArrayKeysBySplitPoints() {
+        // Given
+        Schema schema = schemaWithRowKeyTypes(new ByteArrayType());
+        PartitionTree tree = PartitionsFromSplitPoints.treeFrom(schema, List.of(
+                new byte[]{-5}, new byte[]{0}, new byte[]{10, 1}));
+
+        // When
+        LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree.getAllPartitions());
+
+        // Then
+        assertThat(index.isUsingSplitPoints()).isTrue();
+        assertSameLeafPartitionsAsTree(index, tree,
+                new byte[]{}, new byte[]{-100}, new byte[]{-5}, new byte[]{-5, 0}, new byte[]{0},
+                new byte[]{10}, new byte[]{10, 1}, new byte[]{10, 1, 0}, new byte[]{100});
+    }
+
+    @Test
+    public void shouldFindKeysBySplitPointsWhenOnlySplitOnFirstOfMultipleRowKeys() {
+        // Given
+        Schema schema = schemaWithRowKeyTypes(new IntType(), new StringType());
+        PartitionTree tree = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildrenOnDimension("root", "left", "right", 0, 50)
+                .buildTree();
+
+        // When
+        LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree.getAllPartitions());
+
+        // Then
+        assertThat(index.isUsingSplitPoints()).isTrue();
+        assertThat(index.getIndex(RowFactory.create(49, "z", "value"))).isZero();
+        assertThat(index.getIndex(RowFactory.create(50, "a", "value"))).isOne();
+        assertThat(index.getIndex(Key.create(List.of(50, "a")))).isOne();
+        assertThat(index.getPartitionId(0)).isEqualTo("left");
+        assertThat(index.getPartitionId(1)).isEqualTo("right");
+    }
+
+    @Test
+    public void shouldFindKeysByPartitionTreeWhenSplitOnSecondRowKey() {
+        // Given
+        Schema schema = schemaWithRowKeyTypes(new IntType(), new StringType());
+        PartitionTree tree = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildrenOnDimension("root", "left", "right", 0, 50)
+                .splitToNewChildrenOnDimension("left", "leftLower", "leftUpper", 1, "m")
+                .buildTree();
+
+        // When
+        LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree.getAllPartitions());
+
+        // Then
+        assertThat(index.isUsingSplitPoints()).isFalse();
+        assertThat(index.numLeafPartitions()).isEqualTo(3);
+        assertThat(index.getPartitionId(index.getIndex(RowFactory.create(10, "a", "value")))).isEqualTo("leftLower");
+        assertThat(index.getPartitionId(index.getIndex(RowFactory.create(10, "n", "value")))).isEqualTo("leftUpper");
+        assertThat(index.getPartitionId(index.getIndex(RowFactory.create(60, "a", "value")))).isEqualTo("right");
+    }
+
+    @Test
+    public void shouldNumberLeafPartitionsInOrderOfTheirIds() {
+        // Given
+        Schema schema = schemaWithRowKeyTypes(new IntType());
+        PartitionTree tree = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "B", "A", 50)
+                .buildTree();
+
+        // When
+        LeafPartitionIndex index = LeafPartitionIndex.from(schema, tree.getAllPartitions());
+
+        // Then
+        assertThat(index.getIndex(RowFactory.create(10, "value"))).isOne();
+        assertThat(index.getIndex(RowFactory.create(60, "value"))).isZero();
+    }
+
+    private static Schema schemaWithRowKeyTypes(PrimitiveType... types) {
+        Field[] rowKeyFields = new Field[types.length];
+        for (int i = 0; i < types.length; i++) {
+            rowKeyFields[i] = new Field("key" + i, types[i]);
+        }
+        return Schema.builder()
+                .rowKeyFields(rowKeyFields)
+                .valueFields(new Field("value", new StringType()))
+                .build();
+    }
+
+    private static void assertSameLeafPartitionsAsTree(LeafPartitionIndex index, PartitionTree tree, Object... keys) {
+        for (Object key : keys) {
+            String expectedPartitionId = tree.getLeafPartition(Key.create(key)).getId();
+            Row row = RowFactory.create(key, "value");
+            assertThat(index.getPartitionId(index.getIndex(row)))
+                    .describedAs("partition for key %s", key)
+                    .isEqualTo(expectedPartitionId);
+            assertThat(index.getIndex(Key.create(key)))
+                    .isEqualTo(index.getIndex(row));
+        }
+    }
+}
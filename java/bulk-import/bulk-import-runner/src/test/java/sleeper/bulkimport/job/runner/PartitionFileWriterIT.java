@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.spark.sql.RowFactory;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import scala.collection.JavaConverters;
+
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.StringType;
+import sleeper.io.parquet.record.ParquetRecordReader;
+import sleeper.sketches.Sketches;
+import sleeper.sketches.s3.SketchesSerDeToS3;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PartitionFileWriterIT {
+
+    @TempDir
+    public java.nio.file.Path tempDir;
+
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new LongType()))
+            .sortKeyFields(new Field("sort", new StringType()))
+            .valueFields(
+                    new Field("list", new ListType(new IntType())),
+                    new Field("map", new MapType(new StringType(), new LongType())))
+            .build();
+
+    @Test
+    void shouldWriteRowsInSameFormatAsRecords() throws Exception {
+        // Given
+        String path = tempDir.resolve("file.parquet").toString();
+        PartitionFileWriter writer = new PartitionFileWriter(createTableProperties(), new Configuration(), path);
+
+        // When
+        writer.write(RowFactory.create(1L, "a", scalaList(List.of(1, 2)), scalaMap(Map.of("x", 10L))));
+        writer.write(RowFactory.create(2L, "b", scalaList(List.of()), scalaMap(Map.of())));
+        long numRecords = writer.close();
+
+        // Then
+        assertThat(numRecords).isEqualTo(2);
+        assertThat(readRecords(path)).containsExactly(
+                createRecord(1L, "a", List.of(1, 2), Map.of("x", 10L)),
+                createRecord(2L, "b", List.of(), Map.of()));
+    }
+
+    @Test
+    void shouldIgnoreExtraFieldsAtEndOfRow() throws Exception {
+        // Given
+        String path = tempDir.resolve("file.parquet").toString();
+        PartitionFileWriter writer = new PartitionFileWriter(createTableProperties(), new Configuration(), path);
+
+        // When
+        writer.write(RowFactory.create(1L, "a", scalaList(List.of(1)), scalaMap(Map.of()), "partition-id"));
+        writer.close();
+
+        // Then
+        assertThat(readRecords(path)).containsExactly(
+                createRecord(1L, "a", List.of(1), Map.of()));
+    }
+
+    @Test
+    void shouldWriteSketchesOfRowKeys() throws Exception {
+        // Given
+        String path = tempDir.resolve("file.parquet").toString();
+        PartitionFileWriter writer = new PartitionFileWriter(createTableProperties(), new Configuration(), path);
+
+        // When
+        for (long key = 0; key < 100; key++) {
+            writer.write(RowFactory.create(key, "a", scalaList(List.of()), scalaMap(Map.of())));
+        }
+        writer.close();
+
+        // Then
+        Sketches sketches = new SketchesSerDeToS3(schema)
+                .loadFromHadoopFS(new Path(tempDir.resolve("file.sketches").toString()), new Configuration());
+        assertThat(sketches.getQuantilesSketch("key").getMinValue()).isEqualTo(0L);
+        assertThat(sketches.getQuantilesSketch("key").getMaxValue()).isEqualTo(99L);
+        assertThat(sketches.getQuantilesSketch("key").getN()).isEqualTo(100);
+    }
+
+    private TableProperties createTableProperties() {
+        TableProperties tableProperties = new TableProperties(new InstanceProperties());
+        tableProperties.setSchema(schema);
+        return tableProperties;
+    }
+
+    private static Object scalaList(List<?> list) {
+        return JavaConverters.asScalaBuffer(list);
+    }
+
+    private static Object scalaMap(Map<?, ?> map) {
+        return JavaConverters.mapAsScalaMap(map);
+    }
+
+    private Record createRecord(long key, String sort, List<Integer> list, Map<String, Long> map) {
+        Record record = new Record();
+        record.put("key", key);
+        record.put("sort", sort);
+        record.put("list", list);
+        record.put("map", map);
+        return record;
+    }
+
+    private List<Record> readRecords(String path) throws IOException {
+        try (ParquetRecordReader reader = new ParquetRecordReader(new Path(path), schema)) {
+            List<Record> records = new ArrayList<>();
+            Record record = reader.read();
+            while (null != record) {
+                records.add(new Record(record));
+                record = reader.read();
+            }
+            return records;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.partition.Partition;
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.partition.PartitionsBuilder;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.core.schema.SchemaTestHelper.schemaWithKey;
+
+public class PartitionPreSplitterTest {
+
+    private final Schema schema = schemaWithKey("key", new LongType());
+
+    @Test
+    public void shouldChooseDepthFromSplitThreshold() {
+        // Given
+        PartitionPreSplitter splitter = splitterWithThresholdAndMaxDepth(100, 3);
+
+        // When / Then
+        assertThat(splitter.depthNeeded(50)).isZero();
+        assertThat(splitter.depthNeeded(100)).isZero();
+        assertThat(splitter.depthNeeded(101)).isEqualTo(1);
+        assertThat(splitter.depthNeeded(250)).isEqualTo(2);
+        assertThat(splitter.depthNeeded(10000)).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldSplitRootPartitionAtMedianOfSampledKeys() {
+        // Given
+        PartitionTree tree = new PartitionsBuilder(schema).rootFirst("root").buildTree();
+        PartitionPreSplitter splitter = splitterWithThresholdAndMaxDepth(100, 3);
+
+        // When
+        PartitionPreSplitter.Split split = splitter.splitLeaf(tree.getRootPartition(), keysInRange(0, 100), 1).orElseThrow();
+
+        // Then
+        PartitionTree expected = new PartitionsBuilder(schema).rootFirst("root")
+                .splitToNewChildren("root", "A", "B", 50L)
+                .buildTree();
+        assertThat(split.getSplitPartition()).isEqualTo(expected.getRootPartition());
+        assertThat(split.getNewPartitions()).containsExactlyInAnyOrder(
+                expected.getPartition("A"), expected.getPartition("B"));
+    }
+
+    @Test
+    public void shouldSplitToDepth() {
+        // Given
+        PartitionTree tree = new PartitionsBuilder(schema).rootFirst("root").buildTree();
+        PartitionPreSplitter splitter = splitterWithThresholdAndMaxDepth(100, 3);
+
+        // When
+        PartitionPreSplitter.Split split = splitter.splitLeaf(tree.getRootPartition(), keysInRange(0, 100), 2).orElseThrow();
+
+        // Then
+        PartitionTree expected = new PartitionsBuilder(schema).rootFirst("root")
+                .splitToNewChildren("root", "A", "B", 50L)
+                .splitToNewChildren("A", "C", "D", 25L)
+                .splitToNewChildren("B", "E", "F", 75L)
+                .buildTree();
+        assertThat(split.getSplitPartition()).isEqualTo(expected.getRootPartition());
+        assertThat(split.getNewPartitions()).containsExactlyInAnyOrder(
+                expected.getPartition("A"), expected.getPartition("B"), expected.getPartition("C"),
+                expected.getPartition("D"), expected.getPartition("E"), expected.getPartition("F"));
+    }
+
+    @Test
+    public void shouldSplitLeafWithinItsRange() {
+        // Given
+        Schema schema = schemaWithKey("key", new StringType());
+        PartitionTree tree = new PartitionsBuilder(schema).rootFirst("root")
+                .splitToNewChildren("root", "L", "R", "m")
+                .buildTree();
+        PartitionPreSplitter splitter = new PartitionPreSplitter(schema, 100, 3, List.of("A", "B").iterator()::next);
+
+        // When
+        PartitionPreSplitter.Split split = splitter.splitLeaf(tree.getPartition("R"),
+                List.of("x", "m", "q", "n", "z", "t"), 1).orElseThrow();
+
+        // Then
+        PartitionTree expected = new PartitionsBuilder(schema).rootFirst("root")
+                .splitToNewChildren("root", "L", "R", "m")
+                .splitToNewChildren("R", "A", "B", "t")
+                .buildTree();
+        assertThat(split.getSplitPartition()).isEqualTo(expected.getPartition("R"));
+        assertThat(split.getNewPartitions()).containsExactlyInAnyOrder(
+                expected.getPartition("A"), expected.getPartition("B"));
+    }
+
+    @Test
+    public void shouldNotSplitWhenAllSampledKeysAreTheMinimumOfThePartition() {
+        // Given
+        PartitionTree tree = new PartitionsBuilder(schema).rootFirst("root")
+                .splitToNewChildren("root", "L", "R", 50L)
+                .buildTree();
+        PartitionPreSplitter splitter = splitterWithThresholdAndMaxDepth(100, 3);
+        Partition partition = tree.getPartition("R");
+
+        // When / Then
+        assertThat(splitter.splitLeaf(partition, List.of(50L, 50L, 50L, 50L), 2)).isEmpty();
+    }
+
+    @Test
+    public void shouldStopSplittingWhereSplitPointIsNotValid() {
+        // Given
+        PartitionTree tree = new PartitionsBuilder(schema).rootFirst("root").buildTree();
+        PartitionPreSplitter splitter = splitterWithThresholdAndMaxDepth(100, 3);
+
+        // When
+        PartitionPreSplitter.Split split = splitter.splitLeaf(tree.getRootPartition(),
+                List.of(1L, 1L, 1L, 1L, 1L, 1L, 2L, 3L), 2).orElseThrow();
+
+        // Then
+        PartitionTree expected = new PartitionsBuilder(schema).rootFirst("root")
+                .splitToNewChildren("root", "A", "B", 1L)
+                .splitToNewChildren("B", "C", "D", 2L)
+                .buildTree();
+        assertThat(split.getSplitPartition()).isEqualTo(expected.getRootPartition());
+        assertThat(split.getNewPartitions()).containsExactlyInAnyOrder(
+                expected.getPartition("A"), expected.getPartition("B"),
+                expected.getPartition("C"), expected.getPartition("D"));
+    }
+
+    private PartitionPreSplitter splitterWithThresholdAndMaxDepth(long splitThreshold, int maxDepth) {
+        return new PartitionPreSplitter(schema, splitThreshold, maxDepth,
+                List.of("A", "B", "C", "D", "E", "F", "G", "H").iterator()::next);
+    }
+
+    private static List<Object> keysInRange(long min, long max) {
+        return LongStream.range(min, max).boxed().collect(Collectors.toList());
+    }
+}
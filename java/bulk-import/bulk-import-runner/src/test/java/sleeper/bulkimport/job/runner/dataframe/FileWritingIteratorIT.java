@@ -26,6 +26,7 @@ import org.junit.jupiter.api.io.TempDir;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.table.TableProperty;
+import sleeper.core.iterator.impl.AggregatingIterator;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
@@ -190,6 +191,36 @@ class FileWritingIteratorIT {
                                 createRecord("e", 1, 2, "c")));
     }
 
+    @Test
+    void shouldCombineRecordsWithSameKeyWhenAggregatingIteratorIsConfigured() {
+        // Given
+        Iterator<Row> input = Lists.newArrayList(
+                RowFactory.create("a", 1, 2, "a"),
+                RowFactory.create("a", 1, 3, "a"),
+                RowFactory.create("a", 2, 4, "a"),
+                RowFactory.create("b", 1, 5, "b"),
+                RowFactory.create("b", 1, 6, "b")
+        ).iterator();
+        TableProperties tableProperties = createTableProperties();
+        tableProperties.set(TableProperty.ITERATOR_CLASS_NAME, AggregatingIterator.class.getName());
+        tableProperties.set(TableProperty.ITERATOR_CONFIG, "value=sum");
+
+        // When
+        FileWritingIterator fileWritingIterator = new FileWritingIterator(input,
+                createInstanceProperties(), tableProperties,
+                new Configuration());
+
+        // Then
+        assertThat(fileWritingIterator).toIterable()
+                .extracting(row -> row.getLong(2), row -> readRecords(row.getString(1)))
+                .containsExactly(
+                        tuple(2L, List.of(
+                                createRecord("a", 1, 5, "a"),
+                                createRecord("a", 2, 4, "a"))),
+                        tuple(1L, List.of(
+                                createRecord("b", 1, 11, "b"))));
+    }
+
     private Record createRecord(Object... values) {
         return createRecord(RowFactory.create(values), createSchema());
     }
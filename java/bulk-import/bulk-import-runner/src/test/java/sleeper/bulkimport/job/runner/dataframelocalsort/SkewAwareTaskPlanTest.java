@@ -0,0 +1,100 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.bulkimport.job.runner.dataframelocalsort;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SkewAwareTaskPlanTest {
+
+    @Test
+    public void shouldUseOneTaskPerPartitionWhenRowsAreEven() {
+        // When
+        SkewAwareTaskPlan plan = SkewAwareTaskPlan.fromEstimatedRows(new long[]{100, 100, 100, 100}, 4);
+
+        // Then
+        assertThat(plan.getNumTasks()).isEqualTo(4);
+        assertThat(IntStream.range(0, 4).map(partition -> plan.getTask(partition, 0)))
+                .containsExactly(0, 1, 2, 3);
+    }
+
+    @Test
+    public void shouldSpreadHotPartitionOverSeveralTasks() {
+        // When
+        SkewAwareTaskPlan plan = SkewAwareTaskPlan.fromEstimatedRows(new long[]{10, 370, 10, 10}, 4);
+
+        // Then
+        assertThat(plan.getNumTasksForPartition(1)).isEqualTo(4);
+        assertThat(tasksForHashes(plan, 1)).containsExactlyInAnyOrder(1, 2, 3, 4);
+        assertThat(plan.getNumTasks()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldPackColdPartitionsIntoOneTask() {
+        // When
+        SkewAwareTaskPlan plan = SkewAwareTaskPlan.fromEstimatedRows(new long[]{10, 10, 380, 0}, 4);
+
+        // Then
+        assertThat(plan.getTask(0, 0)).isZero();
+        assertThat(plan.getTask(1, 0)).isZero();
+        assertThat(tasksForHashes(plan, 2)).containsExactlyInAnyOrder(1, 2, 3, 4);
+        assertThat(plan.getTask(3, 0)).isZero();
+        assertThat(plan.getNumTasks()).isEqualTo(5);
+    }
+
+    @Test
+    public void shouldStartNewPackedTaskWhenTargetRowsReached() {
+        // When
+        SkewAwareTaskPlan plan = SkewAwareTaskPlan.fromEstimatedRows(new long[]{60, 40, 60, 40}, 2);
+
+        // Then
+        assertThat(IntStream.range(0, 4).map(partition -> plan.getTask(partition, 0)))
+                .containsExactly(0, 0, 1, 1);
+        assertThat(plan.getNumTasks()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldUseOneTaskPerPartitionWhenNoRowsWereSampled() {
+        // When
+        SkewAwareTaskPlan plan = SkewAwareTaskPlan.fromEstimatedRows(new long[]{0, 0, 0}, 3);
+
+        // Then
+        assertThat(plan.getNumTasks()).isEqualTo(3);
+        assertThat(IntStream.range(0, 3).map(partition -> plan.getTask(partition, 123)))
+                .containsExactly(0, 1, 2);
+    }
+
+    @Test
+    public void shouldAssignSameTaskForSameHash() {
+        // Given
+        SkewAwareTaskPlan plan = SkewAwareTaskPlan.fromEstimatedRows(new long[]{1000, 1}, 2);
+
+        // When / Then
+        assertThat(plan.getTask(0, -17)).isEqualTo(plan.getTask(0, -17))
+                .isBetween(0, 1);
+    }
+
+    private static Set<Integer> tasksForHashes(SkewAwareTaskPlan plan, int partitionIndex) {
+        return IntStream.range(-50, 50)
+                .mapToObj(hash -> plan.getTask(partitionIndex, hash))
+                .collect(Collectors.toSet());
+    }
+}
@@ -183,6 +183,29 @@ public class SleeperPartitionerTest {
         assertThat(allPartitionNumbers).containsExactlyInAnyOrder(0, 1, 2);
     }
 
+    @Test
+    public void shouldIgnoreSortKeysInKeyWhenSplitHasHappenedOnSecondDimension() {
+        // Given
+        Schema schema = getSchema();
+        String schemaAsString = new SchemaSerDe().toJson(schema);
+        PartitionTree tree = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildrenOnDimension("root", "leftPartition", "rightPartition", 0, 50)
+                .splitToNewChildrenOnDimension("leftPartition", "leftLower", "leftUpper", 1, new byte[]{20})
+                .buildTree();
+        Broadcast<List<Partition>> mockedBroadcast = mock(Broadcast.class);
+        when(mockedBroadcast.getValue()).thenReturn(tree.getAllPartitions());
+        SleeperPartitioner partitioner = new SleeperPartitioner(schemaAsString, mockedBroadcast);
+
+        // When
+        int leftLower = partitioner.getPartition(Key.create(List.of(10, new byte[]{1}, "a", new byte[]{2}, "b")));
+        int leftUpper = partitioner.getPartition(Key.create(List.of(10, new byte[]{30}, "a", new byte[]{2}, "b")));
+        int right = partitioner.getPartition(Key.create(List.of(60, new byte[]{1}, "a", new byte[]{2}, "b")));
+
+        // Then
+        assertThat(List.of(leftLower, leftUpper, right)).containsExactly(0, 1, 2);
+    }
+
     private Set<Integer> getPartitionNumbers(List<Key> keys, SleeperPartitioner partitioner) {
         Set<Integer> partitionIds = new HashSet<>();
         for (Key key : keys) {
@@ -69,6 +69,7 @@ import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_E
 import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_EMR_MASTER_X86_INSTANCE_TYPES;
 import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_EMR_MAX_EXECUTOR_CAPACITY;
 import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_MIN_LEAF_PARTITION_COUNT;
+import static sleeper.configuration.properties.table.TableProperty.BULK_IMPORT_PRE_SPLIT_ENABLED;
 import static sleeper.configuration.properties.table.TableProperty.TABLE_NAME;
 import static sleeper.core.schema.SchemaTestHelper.schemaWithKey;
 import static sleeper.ingest.job.status.IngestJobStatusTestData.acceptedRun;
@@ -427,6 +428,22 @@ class EmrPlatformExecutorTest {
                                 "The minimum partition count was not reached")));
     }
 
+    @Test
+    void shouldCreateClusterIfMinimumPartitionCountNotReachedWhenPreSplittingIsEnabled() {
+        // Given
+        tableProperties.set(BULK_IMPORT_MIN_LEAF_PARTITION_COUNT, "5");
+        tableProperties.set(BULK_IMPORT_PRE_SPLIT_ENABLED, "true");
+        BulkImportJob myJob = singleFileJob();
+        BulkImportExecutor executor = executorWithValidationTime(Instant.parse("2023-06-02T15:41:00Z"));
+
+        // When
+        executor.runJob(myJob);
+
+        // Then
+        assertThat(requested.get())
+                .isNotNull();
+    }
+
     @Test
     void shouldReportJobRunIdToStatusStore() {
         // Given
@@ -747,6 +747,9 @@ public class CompactionStack extends NestedStack {
         compactionMergeJobsQueue.grantSendMessages(handler);
         compactionMergeJobsQueue.grant(handler, "sqs:GetQueueAttributes");
 
+        // Grant this function permission to read the history of compaction tasks, for predictive scaling
+        eventStore.grantReadTaskEvents(handler);
+
         // Grant this function permission to query ECS for the number of tasks, etc
         PolicyStatement policyStatement = PolicyStatement.Builder
                 .create()
@@ -801,6 +804,9 @@ public class CompactionStack extends NestedStack {
         compactionSplittingMergeJobsQueue.grantSendMessages(handler);
         compactionSplittingMergeJobsQueue.grant(handler, "sqs:GetQueueAttributes");
 
+        // Grant this function permission to read the history of compaction tasks, for predictive scaling
+        eventStore.grantReadTaskEvents(handler);
+
         // Grant this function permission to query ECS for the number of tasks, etc
         PolicyStatement policyStatement = PolicyStatement.Builder
                 .create()
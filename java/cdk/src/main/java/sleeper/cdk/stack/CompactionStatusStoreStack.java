@@ -30,6 +30,9 @@ public interface CompactionStatusStoreStack {
     default void grantWriteTaskEvent(IGrantable grantee) {
     }
 
+    default void grantReadTaskEvents(IGrantable grantee) {
+    }
+
     static CompactionStatusStoreStack from(Construct scope, InstanceProperties properties) {
         if (properties.getBoolean(COMPACTION_STATUS_STORE_ENABLED)) {
             return new DynamoDBCompactionStatusStoreStack(scope, properties);
@@ -87,4 +87,9 @@ public class DynamoDBCompactionStatusStoreStack implements CompactionStatusStore
     public void grantWriteTaskEvent(IGrantable grantee) {
         tasksTable.grantWriteData(grantee);
     }
+
+    @Override
+    public void grantReadTaskEvents(IGrantable grantee) {
+        tasksTable.grantReadData(grantee);
+    }
 }
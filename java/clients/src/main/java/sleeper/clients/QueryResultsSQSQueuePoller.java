@@ -29,7 +29,7 @@ import sleeper.clients.util.ClientUtils;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.core.record.Record;
 import sleeper.core.record.ResultsBatch;
-import sleeper.core.record.serialiser.JSONResultsBatchSerialiser;
+import sleeper.core.record.serialiser.ResultsBatchFormat;
 import sleeper.core.schema.Schema;
 
 import java.io.IOException;
@@ -68,8 +68,7 @@ public class QueryResultsSQSQueuePoller {
             for (Message message : receiveMessageResult.getMessages()) {
                 String messageHandle = message.getReceiptHandle();
                 String serialisedResults = message.getBody();
-                JSONResultsBatchSerialiser serialiser = new JSONResultsBatchSerialiser();
-                ResultsBatch resultsBatch = serialiser.deserialise(serialisedResults);
+                ResultsBatch resultsBatch = ResultsBatchFormat.serialiserFor(serialisedResults).deserialise(serialisedResults);
                 String queryId = resultsBatch.getQueryId();
                 Schema schema = resultsBatch.getSchema();
                 List<Record> records = resultsBatch.getRecords();
@@ -35,11 +35,14 @@ import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.instance.SystemDefinedInstanceProperty;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.table.TablePropertiesProvider;
+import sleeper.core.record.ResultsBatch;
+import sleeper.core.record.serialiser.ResultsBatchFormat;
 import sleeper.query.model.Query;
 import sleeper.query.model.QuerySerDe;
 import sleeper.statestore.StateStoreException;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.HashMap;
@@ -174,7 +177,7 @@ public class QueryWebSocketClient extends QueryCommandLineClient {
                 outstandingQueries.remove(queryId);
 
             } else if (messageType.equals("records")) {
-                JsonArray recordBatch = message.getAsJsonArray("records");
+                JsonArray recordBatch = readRecordBatch(message);
                 if (!records.containsKey(queryId)) {
                     records.put(queryId, recordBatch);
                 } else {
@@ -213,6 +216,21 @@ public class QueryWebSocketClient extends QueryCommandLineClient {
             }
         }
 
+        private JsonArray readRecordBatch(JsonObject message) {
+            if (!message.has("batch")) {
+                return message.getAsJsonArray("records");
+            }
+            String serialisedBatch = message.get("batch").getAsString();
+            try {
+                ResultsBatch batch = ResultsBatchFormat.serialiserFor(serialisedBatch).deserialise(serialisedBatch);
+                JsonArray recordBatch = new JsonArray();
+                batch.getRecords().forEach(record -> recordBatch.add(serde.toJsonTree(record)));
+                return recordBatch;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
         @Override
         public void onClose(int code, String reason, boolean remote) {
             queryComplete = true;
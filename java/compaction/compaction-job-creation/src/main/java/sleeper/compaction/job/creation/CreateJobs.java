@@ -27,6 +27,9 @@ import sleeper.configuration.jars.ObjectFactoryException;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.table.TablePropertiesProvider;
+import sleeper.core.iterator.PushdownFilter;
+import sleeper.core.iterator.SortedRecordIterator;
+import sleeper.core.iterator.SortedRecordIteratorChain;
 import sleeper.core.partition.Partition;
 import sleeper.statestore.FileInfo;
 import sleeper.statestore.StateStore;
@@ -36,20 +39,30 @@ import sleeper.table.job.TableLister;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static sleeper.configuration.properties.table.TableProperty.COMPACTION_STRATEGY_CLASS;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CLASS_NAME;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CONFIG;
 
 /**
  * Creates compaction job definitions and posts them to an SQS queue.
  * <p>
  * This is done as follows:
  * - Queries the {@link StateStore} for active files which do not have a job id.
+ * - If the table's iterators declare a filter, e.g. to age off records, checks the statistics of these files
+ * against the filter. Files where every record would be removed are marked as ready for garbage collection
+ * without a compaction.
  * - Groups these by partition.
  * - For each partition, uses the configurable {@link CompactionStrategy} to
  * decide what compaction jobs to create.
- * - These compaction jobs are then sent to SQS.
+ * - These compaction jobs are then sent to SQS. Jobs which include files where some records would be removed by
+ * the filter are sent first.
  */
 public class CreateJobs {
     private static final Logger LOGGER = LoggerFactory.getLogger(CreateJobs.class);
@@ -61,6 +74,7 @@ public class CreateJobs {
     private final StateStoreProvider stateStoreProvider;
     private final TableLister tableLister;
     private final CompactionJobStatusStore jobStatusStore;
+    private final IteratorFilterFileChecker fileChecker;
 
     public CreateJobs(ObjectFactory objectFactory,
                       InstanceProperties instanceProperties,
@@ -68,10 +82,11 @@ public class CreateJobs {
                       StateStoreProvider stateStoreProvider,
                       AmazonSQS sqsClient,
                       TableLister tableLister,
-                      CompactionJobStatusStore jobStatusStore) {
+                      CompactionJobStatusStore jobStatusStore,
+                      IteratorFilterFileChecker fileChecker) {
         this(objectFactory, instanceProperties, tablePropertiesProvider, stateStoreProvider,
                 new SendCompactionJobToSqs(instanceProperties, tablePropertiesProvider, sqsClient)::send,
-                tableLister, jobStatusStore);
+                tableLister, jobStatusStore, fileChecker);
     }
 
     public CreateJobs(ObjectFactory objectFactory,
@@ -80,7 +95,8 @@ public class CreateJobs {
                       StateStoreProvider stateStoreProvider,
                       JobSender jobSender,
                       TableLister tableLister,
-                      CompactionJobStatusStore jobStatusStore) {
+                      CompactionJobStatusStore jobStatusStore,
+                      IteratorFilterFileChecker fileChecker) {
         this.objectFactory = objectFactory;
         this.instanceProperties = instanceProperties;
         this.jobSender = jobSender;
@@ -88,6 +104,7 @@ public class CreateJobs {
         this.stateStoreProvider = stateStoreProvider;
         this.tableLister = tableLister;
         this.jobStatusStore = jobStatusStore;
+        this.fileChecker = fileChecker;
     }
 
     public void createJobs() throws StateStoreException, IOException, ClassNotFoundException, IllegalAccessException, InstantiationException, ObjectFactoryException {
@@ -114,6 +131,13 @@ public class CreateJobs {
         LOGGER.debug("Found {} active files with no job id", activeFileInfosWithNoJobId.size());
         LOGGER.debug("Found {} active files with a job id", activeFileInfosWithJobId.size());
 
+        Set<String> filesWithRecordsToRemove = new HashSet<>();
+        Optional<PushdownFilter> iteratorFilter = getIteratorFilter(tableProperties);
+        if (iteratorFilter.isPresent()) {
+            activeFileInfosWithNoJobId = removeFilesWithNoRecordsLeft(
+                    stateStore, activeFileInfosWithNoJobId, iteratorFilter.get(), filesWithRecordsToRemove);
+        }
+
         CompactionStrategy compactionStrategy = objectFactory
                 .getObject(tableProperties.get(COMPACTION_STRATEGY_CLASS), CompactionStrategy.class);
         LOGGER.debug("Created compaction strategy of class {}", tableProperties.get(COMPACTION_STRATEGY_CLASS));
@@ -121,6 +145,12 @@ public class CreateJobs {
 
         List<CompactionJob> compactionJobs = compactionStrategy.createCompactionJobs(activeFileInfosWithJobId, activeFileInfosWithNoJobId, allPartitions);
         LOGGER.info("Used {} to create {} compaction jobs", compactionStrategy.getClass().getSimpleName(), compactionJobs.size());
+        if (!filesWithRecordsToRemove.isEmpty()) {
+            // Send jobs that will remove records first, so that space is freed up sooner
+            compactionJobs = compactionJobs.stream()
+                    .sorted(Comparator.comparing(job -> job.getInputFiles().stream().noneMatch(filesWithRecordsToRemove::contains)))
+                    .collect(Collectors.toList());
+        }
 
         for (CompactionJob compactionJob : compactionJobs) {
             // Send compaction job to SQS (NB Send compaction job to SQS before updating the job field of the files in the
@@ -145,6 +175,52 @@ public class CreateJobs {
         }
     }
 
+    private Optional<PushdownFilter> getIteratorFilter(TableProperties tableProperties) throws ObjectFactoryException {
+        String iteratorClassName = tableProperties.get(ITERATOR_CLASS_NAME);
+        if (null == iteratorClassName) {
+            return Optional.empty();
+        }
+        SortedRecordIterator iterator = SortedRecordIteratorChain.create(iteratorClassName, tableProperties.get(ITERATOR_CONFIG),
+                tableProperties.getSchema(), className -> objectFactory.getObject(className, SortedRecordIterator.class));
+        return SortedRecordIteratorChain.getReadFilter(iterator);
+    }
+
+    private List<FileInfo> removeFilesWithNoRecordsLeft(
+            StateStore stateStore, List<FileInfo> files, PushdownFilter filter, Set<String> filesWithRecordsToRemove)
+            throws StateStoreException {
+        List<FileInfo> filesToKeep = new ArrayList<>();
+        List<FileInfo> filesToRemove = new ArrayList<>();
+        for (FileInfo file : files) {
+            IteratorFilterFileChecker.Result result = checkFile(file, filter);
+            if (result == IteratorFilterFileChecker.Result.ALL_RECORDS_REMOVED) {
+                filesToRemove.add(file);
+            } else {
+                if (result == IteratorFilterFileChecker.Result.SOME_RECORDS_REMOVED) {
+                    filesWithRecordsToRemove.add(file.getFilename());
+                }
+                filesToKeep.add(file);
+            }
+        }
+        if (!filesToRemove.isEmpty()) {
+            LOGGER.info("Marking {} files ready for garbage collection as all their records are removed by filter {}",
+                    filesToRemove.size(), filter);
+            stateStore.updateFilesToReadyForGC(filesToRemove);
+        }
+        LOGGER.debug("Found {} files where some records are removed by filter {}", filesWithRecordsToRemove.size(), filter);
+        return filesToKeep;
+    }
+
+    private IteratorFilterFileChecker.Result checkFile(FileInfo file, PushdownFilter filter) {
+        try {
+            return fileChecker.check(file, filter);
+        } catch (IOException e) {
+            // The file will still be compacted as normal, so this should not stop jobs being created
+            LOGGER.warn("Failed checking file {} against filter {}, assuming no records are removed",
+                    file.getFilename(), filter, e);
+            return IteratorFilterFileChecker.Result.NO_RECORDS_REMOVED;
+        }
+    }
+
     @FunctionalInterface
     public interface JobSender {
         void send(CompactionJob compactionJob) throws IOException;
@@ -60,6 +60,7 @@ public class CreateJobsLambda {
     private final StateStoreProvider stateStoreProvider;
     private final TableLister tableLister;
     private final CompactionJobStatusStore jobStatusStore;
+    private final IteratorFilterFileChecker fileChecker;
 
     private static final Logger LOGGER = LoggerFactory.getLogger(CreateJobsLambda.class);
 
@@ -84,6 +85,7 @@ public class CreateJobsLambda {
         this.propertiesReloader = PropertiesReloader.ifConfigured(s3Client, instanceProperties, tablePropertiesProvider);
         Configuration conf = HadoopConfigurationProvider.getConfigurationForLambdas(instanceProperties);
         this.stateStoreProvider = new StateStoreProvider(dynamoDBClient, instanceProperties, conf);
+        this.fileChecker = new ParquetStatisticsFileChecker(conf);
         this.tableLister = new TableLister(s3Client, instanceProperties);
         this.jobStatusStore = CompactionJobStatusStoreFactory.getStatusStore(dynamoDBClient, instanceProperties);
     }
@@ -108,6 +110,7 @@ public class CreateJobsLambda {
         this.tablePropertiesProvider = new TablePropertiesProvider(s3Client, instanceProperties);
         this.propertiesReloader = PropertiesReloader.ifConfigured(s3Client, instanceProperties, tablePropertiesProvider);
         this.stateStoreProvider = new StateStoreProvider(dynamoDBClient, instanceProperties);
+        this.fileChecker = new ParquetStatisticsFileChecker(HadoopConfigurationProvider.getConfigurationForLambdas(instanceProperties));
         this.tableLister = new TableLister(s3Client, instanceProperties);
         this.jobStatusStore = CompactionJobStatusStoreFactory.getStatusStore(dynamoDBClient, instanceProperties);
     }
@@ -117,7 +120,7 @@ public class CreateJobsLambda {
         LOGGER.info("CreateJobsLambda lambda triggered at {}", event.getTime());
         propertiesReloader.reloadIfNeeded();
 
-        CreateJobs createJobs = new CreateJobs(objectFactory, instanceProperties, tablePropertiesProvider, stateStoreProvider, sqsClient, tableLister, jobStatusStore);
+        CreateJobs createJobs = new CreateJobs(objectFactory, instanceProperties, tablePropertiesProvider, stateStoreProvider, sqsClient, tableLister, jobStatusStore, fileChecker);
         try {
             createJobs.createJobs();
         } catch (StateStoreException | IOException | ClassNotFoundException |
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.creation;
+
+import sleeper.core.iterator.PushdownFilter;
+import sleeper.statestore.FileInfo;
+
+import java.io.IOException;
+
+/**
+ * Checks whether the records in a file would be removed by the filter declared by a table's iterators. This is used
+ * to find files where every record has e.g. aged off, so they can be removed without a compaction.
+ */
+@FunctionalInterface
+public interface IteratorFilterFileChecker {
+
+    /**
+     * Checks which records in a file would be removed by a filter.
+     *
+     * @param  file        the file
+     * @param  filter      the filter of the table's iterators
+     * @return             whether all, some or none of the records would be removed
+     * @throws IOException if the file could not be read
+     */
+    Result check(FileInfo file, PushdownFilter filter) throws IOException;
+
+    /**
+     * Which records in a file would be removed by a filter.
+     */
+    enum Result {
+        ALL_RECORDS_REMOVED,
+        SOME_RECORDS_REMOVED,
+        /**
+         * No records would be removed, or this could not be determined.
+         */
+        NO_RECORDS_REMOVED
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.creation;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.LogicalInverseRewriter;
+import org.apache.parquet.filter2.statisticslevel.StatisticsFilter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.metadata.BlockMetaData;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+
+import sleeper.core.iterator.PushdownFilter;
+import sleeper.io.parquet.record.PushdownFilterConverter;
+import sleeper.statestore.FileInfo;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.parquet.filter2.predicate.FilterApi.not;
+
+/**
+ * Checks the records in a Parquet file against a filter using the statistics held in the file footer for each row
+ * group, without reading the data. A file where every row group can be skipped by the filter has no records that
+ * the filter accepts.
+ * <p>
+ * Data files are never modified, so the row group metadata is cached by filename and each footer is only read once.
+ * The filter is still applied on every check, as it may change over time, e.g. when records age off.
+ */
+public class ParquetStatisticsFileChecker implements IteratorFilterFileChecker {
+    private static final int DEFAULT_MAX_CACHED_FILES = 10000;
+
+    private final Configuration conf;
+    private final Map<String, List<BlockMetaData>> rowGroupsByFilename;
+
+    public ParquetStatisticsFileChecker(Configuration conf) {
+        this(conf, DEFAULT_MAX_CACHED_FILES);
+    }
+
+    public ParquetStatisticsFileChecker(Configuration conf, int maxCachedFiles) {
+        this.conf = conf;
+        this.rowGroupsByFilename = new LeastRecentlyUsedCache<>(maxCachedFiles);
+    }
+
+    @Override
+    public Result check(FileInfo file, PushdownFilter filter) throws IOException {
+        List<BlockMetaData> rowGroups = rowGroupsByFilename.get(file.getFilename());
+        if (null == rowGroups) {
+            rowGroups = readRowGroups(file.getFilename());
+            rowGroupsByFilename.put(file.getFilename(), rowGroups);
+        }
+        if (rowGroups.isEmpty()) {
+            return Result.NO_RECORDS_REMOVED;
+        }
+        FilterPredicate accepted = PushdownFilterConverter.toFilterPredicate(filter);
+        FilterPredicate rejected = LogicalInverseRewriter.rewrite(not(accepted));
+        boolean allRowGroupsRejected = true;
+        boolean anyRowGroupWithRejections = false;
+        for (BlockMetaData rowGroup : rowGroups) {
+            // The statistics filter only reports that a row group can be dropped if no record in it could match
+            if (!StatisticsFilter.canDrop(accepted, rowGroup.getColumns())) {
+                allRowGroupsRejected = false;
+            }
+            if (!StatisticsFilter.canDrop(rejected, rowGroup.getColumns())) {
+                anyRowGroupWithRejections = true;
+            }
+        }
+        if (allRowGroupsRejected) {
+            return Result.ALL_RECORDS_REMOVED;
+        } else if (anyRowGroupWithRejections) {
+            return Result.SOME_RECORDS_REMOVED;
+        } else {
+            return Result.NO_RECORDS_REMOVED;
+        }
+    }
+
+    private List<BlockMetaData> readRowGroups(String filename) throws IOException {
+        try (ParquetFileReader reader = ParquetFileReader.open(HadoopInputFile.fromPath(new Path(filename), conf))) {
+            return reader.getFooter().getBlocks();
+        }
+    }
+
+    /**
+     * A map which discards the least recently used entry when it grows over a maximum size.
+     *
+     * @param <K> the key type
+     * @param <V> the value type
+     */
+    private static class LeastRecentlyUsedCache<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+        private final int maxSize;
+
+        LeastRecentlyUsedCache(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > maxSize;
+        }
+    }
+}
@@ -29,9 +29,9 @@ import sleeper.statestore.FileInfo;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 import java.util.stream.Collectors;
 
 import static sleeper.compaction.strategy.impl.CompactionUtils.getFilesInAscendingOrder;
@@ -40,6 +40,8 @@ import static sleeper.configuration.properties.table.TableProperty.COMPACTION_FI
 /**
  * A {@link CompactionStrategy} that handles splitting compactions for non-leaf partitions,
  * and delegates to {@link LeafPartitionCompactionStrategy} and {@link ShouldCreateJobsStrategy}.
+ * The delegates are called once for each leaf partition with active files that have no job, and are only given
+ * the files in that partition.
  */
 public class DelegatingCompactionStrategy implements CompactionStrategy {
     private static final Logger LOGGER = LoggerFactory.getLogger(DelegatingCompactionStrategy.class);
@@ -72,10 +74,9 @@ public class DelegatingCompactionStrategy implements CompactionStrategy {
 
     @Override
     public List<CompactionJob> createCompactionJobs(List<FileInfo> activeFilesWithJobId, List<FileInfo> activeFilesWithNoJobId, List<Partition> allPartitions) {
-        // Get list of partition ids from the above files
-        Set<String> partitionIds = activeFilesWithNoJobId.stream()
-                .map(FileInfo::getPartitionId)
-                .collect(Collectors.toSet());
+        // Group the files by partition once, so that planning for each partition only looks at its own files
+        Map<String, List<FileInfo>> partitionIdToFilesWithNoJobId = groupByPartitionId(activeFilesWithNoJobId);
+        Map<String, List<FileInfo>> partitionIdToFilesWithJobId = groupByPartitionId(activeFilesWithJobId);
 
         // Get map from partition id to partition
         Map<String, Partition> partitionIdToPartition = new HashMap<>();
@@ -83,22 +84,29 @@ public class DelegatingCompactionStrategy implements CompactionStrategy {
             partitionIdToPartition.put(partition.getId(), partition);
         }
 
-        // Loop through partitions for the active files with no job id
-        List<CompactionJob> compactionJobs = new ArrayList<>();
-        for (String partitionId : partitionIds) {
-            Partition partition = partitionIdToPartition.get(partitionId);
-            if (null == partition) {
-                throw new RuntimeException("Cannot find partition for partition id " + partitionId);
-            }
-
-            if (partition.isLeafPartition()) {
-                compactionJobs.addAll(createJobsForLeafPartition(partition, activeFilesWithJobId, activeFilesWithNoJobId));
-            } else {
-                compactionJobs.addAll(createJobsForNonLeafPartition(partition, activeFilesWithNoJobId, partitionIdToPartition));
-            }
-        }
+        // Plan jobs for each partition of the active files with no job id. This is sequential, as the delegate
+        // strategies are not required to be thread safe.
+        return partitionIdToFilesWithNoJobId.entrySet().stream()
+                .map(entry -> {
+                    String partitionId = entry.getKey();
+                    Partition partition = partitionIdToPartition.get(partitionId);
+                    if (null == partition) {
+                        throw new RuntimeException("Cannot find partition for partition id " + partitionId);
+                    }
+                    if (partition.isLeafPartition()) {
+                        return createJobsForLeafPartition(partition,
+                                partitionIdToFilesWithJobId.getOrDefault(partitionId, Collections.emptyList()),
+                                entry.getValue());
+                    } else {
+                        return createJobsForNonLeafPartition(partition, entry.getValue(), partitionIdToPartition);
+                    }
+                })
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
 
-        return compactionJobs;
+    private static Map<String, List<FileInfo>> groupByPartitionId(List<FileInfo> files) {
+        return files.stream().collect(Collectors.groupingBy(FileInfo::getPartitionId, LinkedHashMap::new, Collectors.toList()));
     }
 
     private List<CompactionJob> createJobsForLeafPartition(
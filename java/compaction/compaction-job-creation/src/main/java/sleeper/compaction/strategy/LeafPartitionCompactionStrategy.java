@@ -24,9 +24,20 @@ import sleeper.statestore.FileInfo;
 
 import java.util.List;
 
+/**
+ * Creates compaction jobs for a single leaf partition. Used by {@link DelegatingCompactionStrategy}, which calls this
+ * for one partition at a time, so implementations do not need to be thread safe.
+ */
 public interface LeafPartitionCompactionStrategy {
 
     void init(InstanceProperties instanceProperties, TableProperties tableProperties, CompactionJobFactory factory);
 
+    /**
+     * Creates compaction jobs for a leaf partition.
+     *
+     * @param  partition              the leaf partition
+     * @param  activeFilesWithNoJobId active files with no job id in the partition
+     * @return                        the compaction jobs to create
+     */
     List<CompactionJob> createJobsForLeafPartition(Partition partition, List<FileInfo> activeFilesWithNoJobId);
 }
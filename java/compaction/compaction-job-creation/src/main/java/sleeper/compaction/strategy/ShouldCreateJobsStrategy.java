@@ -22,11 +22,24 @@ import sleeper.statestore.FileInfo;
 
 import java.util.List;
 
+/**
+ * Decides how many compaction jobs may be created for a single leaf partition. Used by
+ * {@link DelegatingCompactionStrategy}, which calls this for one partition at a time, so implementations do not need
+ * to be thread safe.
+ */
 public interface ShouldCreateJobsStrategy {
 
     default void init(InstanceProperties instanceProperties, TableProperties tableProperties) {
     }
 
+    /**
+     * Decides the maximum number of compaction jobs to create for a leaf partition.
+     *
+     * @param  partition              the leaf partition
+     * @param  activeFilesWithJobId   active files with a job id in the partition
+     * @param  activeFilesWithNoJobId active files with no job id in the partition
+     * @return                        the maximum number of jobs to create
+     */
     long maxCompactionJobsToCreate(Partition partition, List<FileInfo> activeFilesWithJobId, List<FileInfo> activeFilesWithNoJobId);
 
     static ShouldCreateJobsStrategy yes() {
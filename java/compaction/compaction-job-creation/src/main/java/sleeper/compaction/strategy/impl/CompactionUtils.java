@@ -22,10 +22,8 @@ import sleeper.core.partition.Partition;
 import sleeper.statestore.FileInfo;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
-import java.util.Map;
-import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 public class CompactionUtils {
@@ -39,25 +37,13 @@ public class CompactionUtils {
         List<FileInfo> files = fileInfos
                 .stream()
                 .filter(f -> f.getPartitionId().equals(partition.getId()))
-                .collect(Collectors.toList());
+                .collect(Collectors.toCollection(ArrayList::new));
         LOGGER.info("Creating jobs for leaf partition {}", partition);
         LOGGER.info("There are {} files for this partition", files.size());
 
-        // Create map of number of records in file to files, sorted by number of records in file
-        SortedMap<Long, List<FileInfo>> recordsToFiles = new TreeMap<>();
-        for (FileInfo fileInfo : files) {
-            if (!recordsToFiles.containsKey(fileInfo.getNumberOfRecords())) {
-                recordsToFiles.put(fileInfo.getNumberOfRecords(), new ArrayList<>());
-            }
-            recordsToFiles.get(fileInfo.getNumberOfRecords()).add(fileInfo);
-        }
-
-        // Convert to list of FileInfos in ascending order of number of records
-        List<FileInfo> fileInfosList = new ArrayList<>();
-        for (Map.Entry<Long, List<FileInfo>> entry : recordsToFiles.entrySet()) {
-            fileInfosList.addAll(entry.getValue());
-        }
-
-        return fileInfosList;
+        // Sort by number of records in file. The sort is stable, so files with the same number of records stay in
+        // the order they were given.
+        files.sort(Comparator.comparingLong(FileInfo::getNumberOfRecords));
+        return files;
     }
 }
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.strategy.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.compaction.job.CompactionJob;
+import sleeper.compaction.strategy.DelegatingCompactionStrategy;
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.partition.Partition;
+import sleeper.statestore.FileInfo;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static sleeper.configuration.properties.table.TableProperty.READ_AMPLIFICATION_COMPACTION_STRATEGY_MAX_RECORDS_PER_RUN;
+import static sleeper.configuration.properties.table.TableProperty.READ_AMPLIFICATION_COMPACTION_STRATEGY_RECENT_ACTIVITY_SECS;
+
+/**
+ * A {@link sleeper.compaction.strategy.CompactionStrategy} that weighs the benefit of a compaction to queries against
+ * the cost of rewriting the data.
+ * <p>
+ * Jobs are created for each leaf partition by {@link ReadAmplificationLeafStrategy}, to bring the number of files a
+ * query must read in the partition down to a target. Each job is then given a priority: the number of files it removes,
+ * multiplied by the number of files a query of the partition currently reads, divided by the number of records it
+ * rewrites. A query of a leaf partition reads the files in the partition and in all its ancestors, as files in
+ * ancestor partitions have not yet been split into the leaves. The priority is doubled for partitions which have had
+ * files added recently, as these are the partitions that ingest and compaction are actively changing.
+ * <p>
+ * Jobs are created in order of priority, until the total number of records they rewrite reaches the limit set in
+ * sleeper.table.compaction.strategy.readamplification.max.records.per.run. The first job is always created even if it
+ * is over the limit on its own, so that a partition with more records than the limit is still compacted. The number
+ * of records is used as the cost as the state store does not hold the size of each file in bytes. Splitting jobs are
+ * always created, and do not count towards the limit, as they are needed to move data into leaf partitions.
+ */
+public class ReadAmplificationCompactionStrategy extends DelegatingCompactionStrategy {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadAmplificationCompactionStrategy.class);
+    private static final double RECENT_ACTIVITY_WEIGHT = 2.0;
+
+    private final Supplier<Instant> timeSupplier;
+    private long maxRecordsPerRun;
+    private long recentActivitySeconds;
+
+    public ReadAmplificationCompactionStrategy() {
+        this(Instant::now);
+    }
+
+    ReadAmplificationCompactionStrategy(Supplier<Instant> timeSupplier) {
+        super(new ReadAmplificationLeafStrategy());
+        this.timeSupplier = timeSupplier;
+    }
+
+    @Override
+    public void init(InstanceProperties instanceProperties, TableProperties tableProperties) {
+        super.init(instanceProperties, tableProperties);
+        maxRecordsPerRun = tableProperties.getLong(READ_AMPLIFICATION_COMPACTION_STRATEGY_MAX_RECORDS_PER_RUN);
+        recentActivitySeconds = tableProperties.getLong(READ_AMPLIFICATION_COMPACTION_STRATEGY_RECENT_ACTIVITY_SECS);
+    }
+
+    @Override
+    public List<CompactionJob> createCompactionJobs(List<FileInfo> activeFilesWithJobId, List<FileInfo> activeFilesWithNoJobId, List<Partition> allPartitions) {
+        List<CompactionJob> jobs = super.createCompactionJobs(activeFilesWithJobId, activeFilesWithNoJobId, allPartitions);
+
+        Map<String, FileInfo> filenameToFile = new HashMap<>();
+        for (FileInfo file : activeFilesWithNoJobId) {
+            filenameToFile.put(file.getFilename(), file);
+        }
+        Map<String, Long> partitionIdToNumberOfFiles = Stream.concat(activeFilesWithJobId.stream(), activeFilesWithNoJobId.stream())
+                .collect(Collectors.groupingBy(FileInfo::getPartitionId, Collectors.counting()));
+        Map<String, Partition> partitionIdToPartition = new HashMap<>();
+        for (Partition partition : allPartitions) {
+            partitionIdToPartition.put(partition.getId(), partition);
+        }
+        Set<String> recentlyActivePartitionIds = getRecentlyActivePartitionIds(activeFilesWithJobId, activeFilesWithNoJobId);
+
+        List<CompactionJob> jobsToCreate = new ArrayList<>();
+        List<PrioritisedJob> leafJobs = new ArrayList<>();
+        for (CompactionJob job : jobs) {
+            if (job.isSplittingJob()) {
+                jobsToCreate.add(job);
+            } else {
+                long filesRead = getNumberOfFilesReadByQuery(job.getPartitionId(), partitionIdToPartition, partitionIdToNumberOfFiles);
+                leafJobs.add(prioritise(job, filenameToFile, filesRead, recentlyActivePartitionIds));
+            }
+        }
+        leafJobs.sort(Comparator.comparingDouble(PrioritisedJob::getPriority).reversed());
+
+        long recordsToRewrite = 0;
+        for (PrioritisedJob leafJob : leafJobs) {
+            if (recordsToRewrite > 0 && recordsToRewrite + leafJob.records > maxRecordsPerRun) {
+                LOGGER.info("Not creating job for partition {} with priority {} as it would rewrite {} records, " +
+                                "and {} records out of {} are already being rewritten in this run",
+                        leafJob.job.getPartitionId(), leafJob.priority, leafJob.records, recordsToRewrite, maxRecordsPerRun);
+                continue;
+            }
+            recordsToRewrite += leafJob.records;
+            jobsToCreate.add(leafJob.job);
+        }
+        LOGGER.info("Created {} jobs out of {} planned, to rewrite {} records in leaf partitions",
+                jobsToCreate.size(), jobs.size(), recordsToRewrite);
+        return jobsToCreate;
+    }
+
+    private Set<String> getRecentlyActivePartitionIds(List<FileInfo> activeFilesWithJobId, List<FileInfo> activeFilesWithNoJobId) {
+        long activeSinceTime = timeSupplier.get().minusSeconds(recentActivitySeconds).toEpochMilli();
+        Set<String> partitionIds = new HashSet<>();
+        Stream.concat(activeFilesWithJobId.stream(), activeFilesWithNoJobId.stream())
+                .filter(file -> file.getLastStateStoreUpdateTime() != null
+                        && file.getLastStateStoreUpdateTime() >= activeSinceTime)
+                .forEach(file -> partitionIds.add(file.getPartitionId()));
+        return partitionIds;
+    }
+
+    private static long getNumberOfFilesReadByQuery(
+            String leafPartitionId, Map<String, Partition> partitionIdToPartition, Map<String, Long> partitionIdToNumberOfFiles) {
+        long files = 0;
+        String partitionId = leafPartitionId;
+        while (null != partitionId) {
+            files += partitionIdToNumberOfFiles.getOrDefault(partitionId, 0L);
+            Partition partition = partitionIdToPartition.get(partitionId);
+            partitionId = null == partition ? null : partition.getParentPartitionId();
+        }
+        return files;
+    }
+
+    private static PrioritisedJob prioritise(
+            CompactionJob job, Map<String, FileInfo> filenameToFile,
+            long filesReadByQuery, Set<String> recentlyActivePartitionIds) {
+        long records = job.getInputFiles().stream()
+                .map(filenameToFile::get)
+                .mapToLong(FileInfo::getNumberOfRecords)
+                .sum();
+        long filesRemoved = job.getInputFiles().size() - 1L;
+        double priority = (double) (filesRemoved * filesReadByQuery) / Math.max(1L, records);
+        if (recentlyActivePartitionIds.contains(job.getPartitionId())) {
+            priority *= RECENT_ACTIVITY_WEIGHT;
+        }
+        return new PrioritisedJob(job, priority, records);
+    }
+
+    private static class PrioritisedJob {
+        private final CompactionJob job;
+        private final double priority;
+        private final long records;
+
+        PrioritisedJob(CompactionJob job, double priority, long records) {
+            this.job = job;
+            this.priority = priority;
+            this.records = records;
+        }
+
+        double getPriority() {
+            return priority;
+        }
+    }
+}
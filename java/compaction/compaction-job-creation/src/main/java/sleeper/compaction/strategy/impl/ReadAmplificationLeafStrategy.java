@@ -0,0 +1,78 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.strategy.impl;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.compaction.job.CompactionJob;
+import sleeper.compaction.job.CompactionJobFactory;
+import sleeper.compaction.strategy.LeafPartitionCompactionStrategy;
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.partition.Partition;
+import sleeper.statestore.FileInfo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static sleeper.compaction.strategy.impl.CompactionUtils.getFilesInAscendingOrder;
+import static sleeper.configuration.properties.table.TableProperty.COMPACTION_FILES_BATCH_SIZE;
+import static sleeper.configuration.properties.table.TableProperty.READ_AMPLIFICATION_COMPACTION_STRATEGY_TARGET_FILES;
+
+/**
+ * Creates jobs to bring the number of files in a leaf partition down to a target. Every file in a leaf partition
+ * overlaps the whole partition, so a query of the partition must read all of them. The smallest files are compacted
+ * first, as that removes files for the least rewriting.
+ */
+public class ReadAmplificationLeafStrategy implements LeafPartitionCompactionStrategy {
+    private static final Logger LOGGER = LoggerFactory.getLogger(ReadAmplificationLeafStrategy.class);
+
+    private int targetFiles;
+    private int compactionFilesBatchSize;
+    private CompactionJobFactory factory;
+
+    @Override
+    public void init(InstanceProperties instanceProperties, TableProperties tableProperties, CompactionJobFactory factory) {
+        targetFiles = tableProperties.getInt(READ_AMPLIFICATION_COMPACTION_STRATEGY_TARGET_FILES);
+        compactionFilesBatchSize = tableProperties.getInt(COMPACTION_FILES_BATCH_SIZE);
+        this.factory = factory;
+    }
+
+    @Override
+    public List<CompactionJob> createJobsForLeafPartition(Partition partition, List<FileInfo> fileInfos) {
+        List<FileInfo> filesInAscendingOrder = getFilesInAscendingOrder(partition, fileInfos);
+        List<CompactionJob> compactionJobs = new ArrayList<>();
+        int remainingFiles = filesInAscendingOrder.size();
+        int position = 0;
+        // Each job replaces its input files with one output file
+        while (remainingFiles > targetFiles) {
+            int filesForJob = Math.min(compactionFilesBatchSize,
+                    Math.min(remainingFiles - targetFiles + 1, filesInAscendingOrder.size() - position));
+            if (filesForJob < 2) {
+                break;
+            }
+            LOGGER.info("Creating a job to compact {} files in partition {}", filesForJob, partition.getId());
+            compactionJobs.add(factory.createCompactionJob(
+                    new ArrayList<>(filesInAscendingOrder.subList(position, position + filesForJob)), partition.getId()));
+            position += filesForJob;
+            remainingFiles -= filesForJob - 1;
+        }
+        LOGGER.info("For partition {} with {} files and target of {} files, created {} jobs",
+                partition.getId(), filesInAscendingOrder.size(), targetFiles, compactionJobs.size());
+        return compactionJobs;
+    }
+}
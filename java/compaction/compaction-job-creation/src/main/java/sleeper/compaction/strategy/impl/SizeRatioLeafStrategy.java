@@ -29,7 +29,6 @@ import sleeper.statestore.FileInfo;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static sleeper.compaction.strategy.impl.CompactionUtils.getFilesInAscendingOrder;
 import static sleeper.configuration.properties.table.TableProperty.COMPACTION_FILES_BATCH_SIZE;
@@ -51,37 +50,36 @@ public class SizeRatioLeafStrategy implements LeafPartitionCompactionStrategy {
 
     @Override
     public List<CompactionJob> createJobsForLeafPartition(Partition partition, List<FileInfo> fileInfos) {
+        List<FileInfo> filesInAscendingOrder = getFilesInAscendingOrder(partition, fileInfos);
+        // Prefix sums of the file sizes let us find the sum of the sizes of any run of files in constant time
+        long[] sizePrefixSums = getSizePrefixSums(filesInAscendingOrder);
+
         // Find files that meet criteria, i.e. sum of file sizes excluding largest
         // is >= ratio * largest file size.
-        List<FileInfo> filesThatMeetCriteria = getListOfFilesThatMeetsCriteria(partition, fileInfos);
-        if (null == filesThatMeetCriteria || filesThatMeetCriteria.isEmpty()) {
+        int numberOfFilesThatMeetCriteria = getNumberOfFilesThatMeetCriteria(filesInAscendingOrder, sizePrefixSums);
+        if (numberOfFilesThatMeetCriteria == 0) {
             LOGGER.info("For partition {} there is no list of files that meet the criteria", partition.getId());
-            return Collections.EMPTY_LIST;
+            return Collections.emptyList();
         }
-        LOGGER.info("For partition {} there is a list of {} files that meet the criteria", partition.getId(), filesThatMeetCriteria.size());
+        LOGGER.info("For partition {} there is a list of {} files that meet the criteria", partition.getId(), numberOfFilesThatMeetCriteria);
 
         // Iterate through these files, batching into groups of compactionFilesBatchSize
         // and creating a job for each group as long as it meets the criteria.
         List<CompactionJob> compactionJobs = new ArrayList<>();
-        if (filesThatMeetCriteria.size() <= compactionFilesBatchSize) {
-            compactionJobs.add(factory.createCompactionJob(filesThatMeetCriteria, partition.getId()));
+        if (numberOfFilesThatMeetCriteria <= compactionFilesBatchSize) {
+            compactionJobs.add(factory.createCompactionJob(
+                    new ArrayList<>(filesInAscendingOrder.subList(0, numberOfFilesThatMeetCriteria)), partition.getId()));
         } else {
             int position = 0;
-            List<FileInfo> files = new ArrayList<>(filesThatMeetCriteria);
-            while (position < files.size()) {
-                List<FileInfo> filesForJob = new ArrayList<>();
-                int j;
-                for (j = 0; j < compactionFilesBatchSize && position + j < files.size(); j++) {
-                    filesForJob.add(files.get(position + j));
-                }
+            while (position < numberOfFilesThatMeetCriteria) {
+                int end = Math.min(position + compactionFilesBatchSize, numberOfFilesThatMeetCriteria);
                 // Create job for these files if they meet criteria
-                List<Long> fileSizes = filesForJob.stream().map(FileInfo::getNumberOfRecords).collect(Collectors.toList());
-                if (meetsCriteria(fileSizes)) {
+                if (meetsCriteria(filesInAscendingOrder, sizePrefixSums, position, end)) {
                     LOGGER.info("Creating a job to compact {} files in partition {}",
-                            filesForJob.size(), partition.getId());
-                    compactionJobs.add(factory.createCompactionJob(filesForJob, partition.getId()));
-                    filesForJob.clear();
-                    position += j;
+                            end - position, partition.getId());
+                    compactionJobs.add(factory.createCompactionJob(
+                            new ArrayList<>(filesInAscendingOrder.subList(position, end)), partition.getId()));
+                    position = end;
                 } else {
                     position++;
                 }
@@ -91,32 +89,42 @@ public class SizeRatioLeafStrategy implements LeafPartitionCompactionStrategy {
         return compactionJobs;
     }
 
-    private List<FileInfo> getListOfFilesThatMeetsCriteria(Partition partition, List<FileInfo> fileInfos) {
-        List<FileInfo> filesInAscendingOrder = getFilesInAscendingOrder(partition, fileInfos);
-
-        while (filesInAscendingOrder.size() > 1) {
-            List<Long> fileSizes = filesInAscendingOrder.stream().map(FileInfo::getNumberOfRecords).collect(Collectors.toList());
-            if (meetsCriteria(fileSizes)) {
-                return filesInAscendingOrder;
-            } else {
-                filesInAscendingOrder.remove(filesInAscendingOrder.size() - 1);
+    private int getNumberOfFilesThatMeetCriteria(List<FileInfo> filesInAscendingOrder, long[] sizePrefixSums) {
+        for (int numberOfFiles = filesInAscendingOrder.size(); numberOfFiles > 1; numberOfFiles--) {
+            if (meetsCriteria(filesInAscendingOrder, sizePrefixSums, 0, numberOfFiles)) {
+                return numberOfFiles;
             }
         }
-        return null;
+        return 0;
     }
 
-    private boolean meetsCriteria(List<Long> fileSizesInAscendingOrder) {
-        if (fileSizesInAscendingOrder.isEmpty() || 1 == fileSizesInAscendingOrder.size()) {
+    /**
+     * Checks whether a run of files meets the criteria, i.e. the sum of the file sizes excluding the largest is
+     * >= ratio * the largest file size.
+     *
+     * @param  filesInAscendingOrder all files in the partition, in ascending order of size
+     * @param  sizePrefixSums        prefix sums of the file sizes, where element i is the sum of the first i sizes
+     * @param  start                 the index of the first file in the run (inclusive)
+     * @param  end                   the index of the last file in the run (exclusive)
+     * @return                       true if the files meet the criteria
+     */
+    private boolean meetsCriteria(List<FileInfo> filesInAscendingOrder, long[] sizePrefixSums, int start, int end) {
+        if (end - start < 2) {
             return false;
         }
-        long largestFileSize = fileSizesInAscendingOrder.get(fileSizesInAscendingOrder.size() - 1);
-        LOGGER.info("Largest file size is {}", largestFileSize);
-        long sumOfOtherFileSizes = 0L;
-        for (int i = 0; i < fileSizesInAscendingOrder.size() - 1; i++) {
-            sumOfOtherFileSizes += fileSizesInAscendingOrder.get(i);
+        long largestFileSize = filesInAscendingOrder.get(end - 1).getNumberOfRecords();
+        long sumOfOtherFileSizes = sizePrefixSums[end - 1] - sizePrefixSums[start];
+        boolean meetsCriteria = ratio * largestFileSize <= sumOfOtherFileSizes;
+        LOGGER.debug("Largest file size is {}, sum of other file sizes is {}, ratio * largestFileSize <= sumOfOtherFileSizes {}",
+                largestFileSize, sumOfOtherFileSizes, meetsCriteria);
+        return meetsCriteria;
+    }
+
+    private static long[] getSizePrefixSums(List<FileInfo> filesInAscendingOrder) {
+        long[] sizePrefixSums = new long[filesInAscendingOrder.size() + 1];
+        for (int i = 0; i < filesInAscendingOrder.size(); i++) {
+            sizePrefixSums[i + 1] = sizePrefixSums[i] + filesInAscendingOrder.get(i).getNumberOfRecords();
         }
-        LOGGER.info("Sum of other file sizes is {}", sumOfOtherFileSizes);
-        LOGGER.info("Ratio * largestFileSize <= sumOfOtherFileSizes {}", (ratio * largestFileSize <= sumOfOtherFileSizes));
-        return ratio * largestFileSize <= sumOfOtherFileSizes;
+        return sizePrefixSums;
     }
 }
@@ -24,6 +24,7 @@ import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
 import com.amazonaws.services.sqs.model.Message;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
+import org.apache.hadoop.conf.Configuration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.testcontainers.containers.localstack.LocalStackContainer;
@@ -94,7 +95,8 @@ public class CreateJobsIT {
         createJobs = new CreateJobs(new ObjectFactory(instanceProperties, s3, null),
                 instanceProperties, tablePropertiesProvider, stateStoreProvider, sqs,
                 new TableLister(s3, instanceProperties),
-                CompactionJobStatusStoreFactory.getStatusStore(dynamoDB, instanceProperties));
+                CompactionJobStatusStoreFactory.getStatusStore(dynamoDB, instanceProperties),
+                new ParquetStatisticsFileChecker(new Configuration()));
     }
 
     @Test
@@ -24,11 +24,14 @@ import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.FixedTablePropertiesProvider;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.table.TablePropertiesProvider;
+import sleeper.core.iterator.impl.AdditionIterator;
+import sleeper.core.iterator.impl.AgeOffIterator;
 import sleeper.core.partition.Partition;
 import sleeper.core.partition.PartitionsBuilder;
 import sleeper.core.partition.PartitionsFromSplitPoints;
 import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
 import sleeper.core.schema.type.StringType;
 import sleeper.statestore.FileInfo;
 import sleeper.statestore.FileInfoFactory;
@@ -37,28 +40,47 @@ import sleeper.statestore.StateStore;
 import sleeper.statestore.StateStoreProvider;
 import sleeper.table.job.TableLister;
 
+import java.io.IOException;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static sleeper.compaction.job.creation.CreateJobsTestUtils.createInstanceProperties;
 import static sleeper.compaction.job.creation.CreateJobsTestUtils.createTableProperties;
+import static sleeper.compaction.job.creation.IteratorFilterFileChecker.Result.ALL_RECORDS_REMOVED;
+import static sleeper.compaction.job.creation.IteratorFilterFileChecker.Result.NO_RECORDS_REMOVED;
+import static sleeper.compaction.job.creation.IteratorFilterFileChecker.Result.SOME_RECORDS_REMOVED;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CLASS_NAME;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CONFIG;
 import static sleeper.configuration.properties.table.TableProperty.TABLE_NAME;
 
 public class CreateJobsTest {
 
     private final StateStore stateStore = mock(StateStore.class);
     private final CompactionJobStatusStore jobStatusStore = mock(CompactionJobStatusStore.class);
-    private final Schema schema = Schema.builder().rowKeyFields(new Field("key", new StringType())).build();
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new StringType()))
+            .valueFields(new Field("timestamp", new LongType()))
+            .build();
+    private final Map<String, IteratorFilterFileChecker.Result> fileCheckResults = new HashMap<>();
+    private final Set<String> filesFailingCheck = new HashSet<>();
+    private String iteratorClassName;
+    private String iteratorConfig;
 
     @Test
     public void shouldCompactAllFilesInSinglePartition() throws Exception {
@@ -125,6 +147,105 @@ public class CreateJobsTest {
         verifyNoMoreJobCreationReports();
     }
 
+    @Test
+    public void shouldMarkFilesReadyForGCWhenAllRecordsAreRemovedByIterator() throws Exception {
+        // Given
+        setTableIterator(AgeOffIterator.class.getName(), "timestamp,1000");
+        Partition partition = setSinglePartition();
+        FileInfoFactory fileInfoFactory = new FileInfoFactory(schema, Collections.singletonList(partition), Instant.now());
+        FileInfo expiredFile = fileInfoFactory.leafFile("expired", 200L, "a", "b");
+        FileInfo fileInfo2 = fileInfoFactory.leafFile("file2", 200L, "c", "d");
+        FileInfo fileInfo3 = fileInfoFactory.leafFile("file3", 200L, "e", "f");
+        setActiveFiles(Arrays.asList(expiredFile, fileInfo2, fileInfo3));
+        fileCheckResults.put("expired", ALL_RECORDS_REMOVED);
+
+        // When
+        List<CompactionJob> jobs = createJobs();
+
+        // Then
+        verify(stateStore).updateFilesToReadyForGC(Collections.singletonList(expiredFile));
+        assertThat(jobs).singleElement().satisfies(job -> {
+            verifySetJobForFilesInStateStore(job.getId(), Arrays.asList(fileInfo2, fileInfo3));
+            assertThat(job.getInputFiles()).containsExactlyInAnyOrder("file2", "file3");
+            verifyJobCreationReported(job);
+        });
+        verifyOtherStateStoreCalls();
+        verifyNoMoreJobCreationReports();
+    }
+
+    @Test
+    public void shouldSendJobsWithRecordsRemovedByIteratorFirst() throws Exception {
+        // Given
+        setTableIterator(AgeOffIterator.class.getName(), "timestamp,1000");
+        List<Partition> partitions = new PartitionsBuilder(schema)
+                .leavesWithSplits(
+                        Arrays.asList("A", "B"),
+                        Collections.singletonList("ddd"))
+                .parentJoining("C", "A", "B")
+                .buildList();
+        setPartitions(partitions);
+        FileInfoFactory fileInfoFactory = new FileInfoFactory(schema, partitions, Instant.now());
+        FileInfo fileInfo1 = fileInfoFactory.leafFile("file1", 200L, "a", "b");
+        FileInfo fileInfo2 = fileInfoFactory.leafFile("file2", 200L, "c", "d");
+        FileInfo fileInfo3 = fileInfoFactory.leafFile("file3", 200L, "e", "f");
+        FileInfo fileInfo4 = fileInfoFactory.leafFile("file4", 200L, "g", "h");
+        setActiveFiles(Arrays.asList(fileInfo1, fileInfo2, fileInfo3, fileInfo4));
+        fileCheckResults.put("file4", SOME_RECORDS_REMOVED);
+
+        // When
+        List<CompactionJob> jobs = createJobs();
+
+        // Then
+        assertThat(jobs).extracting(CompactionJob::getPartitionId).containsExactly("B", "A");
+    }
+
+    @Test
+    public void shouldCreateJobsWhenFileCannotBeCheckedAgainstIteratorFilter() throws Exception {
+        // Given
+        setTableIterator(AgeOffIterator.class.getName(), "timestamp,1000");
+        Partition partition = setSinglePartition();
+        FileInfoFactory fileInfoFactory = new FileInfoFactory(schema, Collections.singletonList(partition), Instant.now());
+        FileInfo expiredFile = fileInfoFactory.leafFile("expired", 200L, "a", "b");
+        FileInfo unreadableFile = fileInfoFactory.leafFile("unreadable", 200L, "c", "d");
+        FileInfo fileInfo3 = fileInfoFactory.leafFile("file3", 200L, "e", "f");
+        setActiveFiles(Arrays.asList(expiredFile, unreadableFile, fileInfo3));
+        fileCheckResults.put("expired", ALL_RECORDS_REMOVED);
+        filesFailingCheck.add("unreadable");
+
+        // When
+        List<CompactionJob> jobs = createJobs();
+
+        // Then
+        verify(stateStore).updateFilesToReadyForGC(Collections.singletonList(expiredFile));
+        assertThat(jobs).singleElement().satisfies(job ->
+                assertThat(job.getInputFiles()).containsExactlyInAnyOrder("unreadable", "file3"));
+    }
+
+    @Test
+    public void shouldNotCheckFilesWhenIteratorDeclaresNoFilter() throws Exception {
+        // Given
+        setTableIterator(AdditionIterator.class.getName(), null);
+        Partition partition = setSinglePartition();
+        FileInfoFactory fileInfoFactory = new FileInfoFactory(schema, Collections.singletonList(partition), Instant.now());
+        FileInfo fileInfo1 = fileInfoFactory.leafFile("file1", 200L, "a", "b");
+        FileInfo fileInfo2 = fileInfoFactory.leafFile("file2", 200L, "c", "d");
+        setActiveFiles(Arrays.asList(fileInfo1, fileInfo2));
+        fileCheckResults.put("file1", ALL_RECORDS_REMOVED);
+
+        // When
+        List<CompactionJob> jobs = createJobs();
+
+        // Then
+        assertThat(jobs).singleElement().satisfies(job ->
+                assertThat(job.getInputFiles()).containsExactlyInAnyOrder("file1", "file2"));
+        verify(stateStore, never()).updateFilesToReadyForGC(any());
+    }
+
+    private void setTableIterator(String className, String config) {
+        iteratorClassName = className;
+        iteratorConfig = config;
+    }
+
     private Partition setSinglePartition() throws Exception {
         List<Partition> partitions = new PartitionsFromSplitPoints(schema, Collections.emptyList()).construct();
         setPartitions(partitions);
@@ -165,6 +286,8 @@ public class CreateJobsTest {
 
         InstanceProperties instanceProperties = createInstanceProperties();
         TableProperties tableProperties = createTableProperties(schema, instanceProperties);
+        tableProperties.set(ITERATOR_CLASS_NAME, iteratorClassName);
+        tableProperties.set(ITERATOR_CONFIG, iteratorConfig);
 
         TablePropertiesProvider tablePropertiesProvider = new FixedTablePropertiesProvider(tableProperties);
         StateStoreProvider stateStoreProvider = new FixedStateStoreProvider(tableProperties, stateStore);
@@ -175,7 +298,13 @@ public class CreateJobsTest {
         List<CompactionJob> compactionJobs = new ArrayList<>();
         CreateJobs createJobs = new CreateJobs(ObjectFactory.noUserJars(),
                 instanceProperties, tablePropertiesProvider, stateStoreProvider, compactionJobs::add,
-                tableLister, jobStatusStore);
+                tableLister, jobStatusStore,
+                (file, filter) -> {
+                    if (filesFailingCheck.contains(file.getFilename())) {
+                        throw new IOException("Failed reading " + file.getFilename());
+                    }
+                    return fileCheckResults.getOrDefault(file.getFilename(), NO_RECORDS_REMOVED);
+                });
         createJobs.createJobs();
         return compactionJobs;
     }
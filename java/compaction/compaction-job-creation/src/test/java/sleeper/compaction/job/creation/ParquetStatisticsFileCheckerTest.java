@@ -0,0 +1,137 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.job.creation;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.Path;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sleeper.core.iterator.PushdownFilter;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+import sleeper.io.parquet.record.ParquetRecordWriterFactory;
+import sleeper.statestore.FileInfo;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.compaction.job.creation.IteratorFilterFileChecker.Result.ALL_RECORDS_REMOVED;
+import static sleeper.compaction.job.creation.IteratorFilterFileChecker.Result.NO_RECORDS_REMOVED;
+import static sleeper.compaction.job.creation.IteratorFilterFileChecker.Result.SOME_RECORDS_REMOVED;
+
+public class ParquetStatisticsFileCheckerTest {
+    @TempDir
+    public java.nio.file.Path tempDir;
+
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new StringType()))
+            .valueFields(new Field("timestamp", new LongType()), new Field("visibility", new StringType()))
+            .build();
+    private final IteratorFilterFileChecker checker = new ParquetStatisticsFileChecker(new Configuration());
+
+    @Test
+    public void shouldFindAllRecordsRemovedWhenAllTimestampsHaveAgedOff() throws Exception {
+        // Given
+        FileInfo file = writeFile("file.parquet", record("a", 10L, ""), record("b", 20L, ""));
+
+        // When / Then
+        assertThat(checker.check(file, PushdownFilter.longGreaterThan("timestamp", 20L)))
+                .isEqualTo(ALL_RECORDS_REMOVED);
+    }
+
+    @Test
+    public void shouldFindSomeRecordsRemovedWhenSomeTimestampsHaveAgedOff() throws Exception {
+        // Given
+        FileInfo file = writeFile("file.parquet", record("a", 10L, ""), record("b", 30L, ""));
+
+        // When / Then
+        assertThat(checker.check(file, PushdownFilter.longGreaterThan("timestamp", 20L)))
+                .isEqualTo(SOME_RECORDS_REMOVED);
+    }
+
+    @Test
+    public void shouldFindNoRecordsRemovedWhenNoTimestampsHaveAgedOff() throws Exception {
+        // Given
+        FileInfo file = writeFile("file.parquet", record("a", 30L, ""), record("b", 40L, ""));
+
+        // When / Then
+        assertThat(checker.check(file, PushdownFilter.longGreaterThan("timestamp", 20L)))
+                .isEqualTo(NO_RECORDS_REMOVED);
+    }
+
+    @Test
+    public void shouldFindAllRecordsRemovedWhenNoVisibilityIsAllowed() throws Exception {
+        // Given
+        FileInfo file = writeFile("file.parquet", record("a", 10L, "secret"), record("b", 20L, "secret"));
+
+        // When / Then
+        assertThat(checker.check(file, PushdownFilter.stringInOrEmpty("visibility", Set.of("public"))))
+                .isEqualTo(ALL_RECORDS_REMOVED);
+    }
+
+    @Test
+    public void shouldNotRemoveRecordsWithEmptyVisibility() throws Exception {
+        // Given
+        FileInfo file = writeFile("file.parquet", record("a", 10L, ""), record("b", 20L, ""));
+
+        // When / Then
+        assertThat(checker.check(file, PushdownFilter.stringInOrEmpty("visibility", Set.of("public"))))
+                .isEqualTo(NO_RECORDS_REMOVED);
+    }
+
+    @Test
+    public void shouldReuseStatisticsWhenFileIsCheckedAgainWithNewFilter() throws Exception {
+        // Given
+        FileInfo file = writeFile("file.parquet", record("a", 10L, ""), record("b", 30L, ""));
+        checker.check(file, PushdownFilter.longGreaterThan("timestamp", 0L));
+        Files.delete(tempDir.resolve("file.parquet"));
+
+        // When / Then
+        assertThat(checker.check(file, PushdownFilter.longGreaterThan("timestamp", 30L)))
+                .isEqualTo(ALL_RECORDS_REMOVED);
+    }
+
+    private FileInfo writeFile(String filename, Record... records) throws IOException {
+        String path = tempDir.resolve(filename).toString();
+        try (ParquetWriter<Record> writer = ParquetRecordWriterFactory.createParquetRecordWriter(new Path(path), schema)) {
+            for (Record record : records) {
+                writer.write(record);
+            }
+        }
+        return FileInfo.builder()
+                .rowKeyTypes(new StringType())
+                .filename(path)
+                .partitionId("root")
+                .fileStatus(FileInfo.FileStatus.ACTIVE)
+                .numberOfRecords((long) records.length)
+                .build();
+    }
+
+    private static Record record(String key, long timestamp, String visibility) {
+        Record record = new Record();
+        record.put("key", key);
+        record.put("timestamp", timestamp);
+        record.put("visibility", visibility);
+        return record;
+    }
+}
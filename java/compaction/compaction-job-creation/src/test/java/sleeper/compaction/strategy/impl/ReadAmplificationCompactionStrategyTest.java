@@ -0,0 +1,198 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.strategy.impl;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.compaction.job.CompactionJob;
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.key.Key;
+import sleeper.core.partition.Partition;
+import sleeper.core.partition.PartitionsBuilder;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.IntType;
+import sleeper.statestore.FileInfo;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.CONFIG_BUCKET;
+import static sleeper.configuration.properties.table.TableProperty.COMPACTION_FILES_BATCH_SIZE;
+import static sleeper.configuration.properties.table.TableProperty.DATA_BUCKET;
+import static sleeper.configuration.properties.table.TableProperty.READ_AMPLIFICATION_COMPACTION_STRATEGY_MAX_RECORDS_PER_RUN;
+import static sleeper.configuration.properties.table.TableProperty.READ_AMPLIFICATION_COMPACTION_STRATEGY_RECENT_ACTIVITY_SECS;
+import static sleeper.configuration.properties.table.TableProperty.READ_AMPLIFICATION_COMPACTION_STRATEGY_TARGET_FILES;
+import static sleeper.configuration.properties.table.TableProperty.TABLE_NAME;
+import static sleeper.core.schema.SchemaTestHelper.schemaWithKey;
+
+public class ReadAmplificationCompactionStrategyTest {
+    private static final Instant NOW = Instant.parse("2023-08-01T12:00:00Z");
+
+    private final InstanceProperties instanceProperties = new InstanceProperties();
+    private final TableProperties tableProperties = new TableProperties(instanceProperties);
+
+    ReadAmplificationCompactionStrategyTest() {
+        instanceProperties.set(CONFIG_BUCKET, "config");
+        tableProperties.set(TABLE_NAME, "table");
+        tableProperties.set(DATA_BUCKET, "databucket");
+        tableProperties.set(COMPACTION_FILES_BATCH_SIZE, "11");
+        tableProperties.set(READ_AMPLIFICATION_COMPACTION_STRATEGY_TARGET_FILES, "2");
+        tableProperties.set(READ_AMPLIFICATION_COMPACTION_STRATEGY_RECENT_ACTIVITY_SECS, "60");
+    }
+
+    @Test
+    public void shouldCompactSmallestFilesToReachTargetNumberOfFiles() {
+        // Given
+        Partition partition = leafPartition("root");
+        List<FileInfo> files = List.of(
+                file("file-1", "root", 400L, NOW),
+                file("file-2", "root", 100L, NOW),
+                file("file-3", "root", 300L, NOW),
+                file("file-4", "root", 200L, NOW));
+
+        // When
+        List<CompactionJob> jobs = createJobs(Collections.emptyList(), files, List.of(partition));
+
+        // Then
+        assertThat(jobs).hasSize(1);
+        assertThat(jobs.get(0).getInputFiles()).containsExactly("file-2", "file-4", "file-3");
+    }
+
+    @Test
+    public void shouldNotCompactWhenPartitionIsAtTargetNumberOfFiles() {
+        // Given
+        Partition partition = leafPartition("root");
+        List<FileInfo> files = List.of(
+                file("file-1", "root", 100L, NOW),
+                file("file-2", "root", 100L, NOW));
+
+        // When
+        List<CompactionJob> jobs = createJobs(Collections.emptyList(), files, List.of(partition));
+
+        // Then
+        assertThat(jobs).isEmpty();
+    }
+
+    @Test
+    public void shouldCreateJobsInPriorityOrderWithinRecordsLimit() {
+        // Given
+        tableProperties.set(READ_AMPLIFICATION_COMPACTION_STRATEGY_MAX_RECORDS_PER_RUN, "400");
+        List<Partition> partitions = List.of(leafPartition("A"), leafPartition("B"), leafPartition("C"));
+        Instant longAgo = NOW.minusSeconds(3600);
+        List<FileInfo> files = new ArrayList<>();
+        // Partition A has cheap files which have not been touched recently
+        files.add(file("A-1", "A", 50L, longAgo));
+        files.add(file("A-2", "A", 50L, longAgo));
+        files.add(file("A-3", "A", 50L, longAgo));
+        // Partition B has the same files, but was recently written to
+        files.add(file("B-1", "B", 50L, longAgo));
+        files.add(file("B-2", "B", 50L, longAgo));
+        files.add(file("B-3", "B", 50L, NOW));
+        // Partition C has expensive files
+        files.add(file("C-1", "C", 500L, NOW));
+        files.add(file("C-2", "C", 500L, NOW));
+        files.add(file("C-3", "C", 500L, NOW));
+
+        // When
+        List<CompactionJob> jobs = createJobs(Collections.emptyList(), files, partitions);
+
+        // Then
+        assertThat(jobs).extracting(CompactionJob::getPartitionId)
+                .containsExactly("B", "A");
+    }
+
+    @Test
+    public void shouldCreateJobOverRecordsLimitWhenItIsTheFirstJob() {
+        // Given
+        tableProperties.set(READ_AMPLIFICATION_COMPACTION_STRATEGY_MAX_RECORDS_PER_RUN, "100");
+        Partition partition = leafPartition("root");
+        List<FileInfo> files = List.of(
+                file("file-1", "root", 500L, NOW),
+                file("file-2", "root", 500L, NOW),
+                file("file-3", "root", 500L, NOW));
+
+        // When
+        List<CompactionJob> jobs = createJobs(Collections.emptyList(), files, List.of(partition));
+
+        // Then
+        assertThat(jobs).hasSize(1);
+        assertThat(jobs.get(0).getInputFiles()).containsExactlyInAnyOrder("file-1", "file-2");
+    }
+
+    @Test
+    public void shouldPrioritiseLeafPartitionWithMoreFilesInAncestorPartitions() {
+        // Given
+        tableProperties.set(READ_AMPLIFICATION_COMPACTION_STRATEGY_MAX_RECORDS_PER_RUN, "100");
+        Schema schema = schemaWithKey("key", new IntType());
+        List<Partition> partitions = new PartitionsBuilder(schema)
+                .rootFirst("root")
+                .splitToNewChildren("root", "L", "R", 50)
+                .splitToNewChildren("R", "RL", "RR", 75)
+                .buildList();
+        Instant longAgo = NOW.minusSeconds(3600);
+        List<FileInfo> files = new ArrayList<>();
+        // Partitions L and RL have the same files, but a query of RL must also read the files in R
+        files.add(file("L-1", "L", 50L, longAgo));
+        files.add(file("L-2", "L", 50L, longAgo));
+        files.add(file("L-3", "L", 50L, longAgo));
+        files.add(file("RL-1", "RL", 50L, longAgo));
+        files.add(file("RL-2", "RL", 50L, longAgo));
+        files.add(file("RL-3", "RL", 50L, longAgo));
+        List<FileInfo> filesWithJobId = List.of(
+                file("R-1", "R", 50L, longAgo),
+                file("R-2", "R", 50L, longAgo));
+
+        // When
+        List<CompactionJob> jobs = createJobs(filesWithJobId, files, partitions);
+
+        // Then
+        assertThat(jobs).extracting(CompactionJob::getPartitionId)
+                .containsExactly("RL");
+    }
+
+    private List<CompactionJob> createJobs(List<FileInfo> filesWithJobId, List<FileInfo> filesWithNoJobId, List<Partition> partitions) {
+        ReadAmplificationCompactionStrategy strategy = new ReadAmplificationCompactionStrategy(() -> NOW);
+        strategy.init(instanceProperties, tableProperties);
+        return strategy.createCompactionJobs(filesWithJobId, filesWithNoJobId, partitions);
+    }
+
+    private static Partition leafPartition(String id) {
+        return Partition.builder()
+                .id(id)
+                .rowKeyTypes(new IntType())
+                .leafPartition(true)
+                .parentPartitionId(null)
+                .childPartitionIds(Collections.emptyList())
+                .build();
+    }
+
+    private static FileInfo file(String filename, String partitionId, long records, Instant updateTime) {
+        return FileInfo.builder()
+                .filename(filename)
+                .fileStatus(FileInfo.FileStatus.ACTIVE)
+                .partitionId(partitionId)
+                .numberOfRecords(records)
+                .rowKeyTypes(new IntType())
+                .minRowKey(Key.create(1))
+                .maxRowKey(Key.create(100))
+                .lastStateStoreUpdateTime(updateTime)
+                .build();
+    }
+}
@@ -253,6 +253,59 @@ public class SizeRatioCompactionStrategyTest {
         checkJob(compactionJobs.get(2), filesForJob3, partition.getId(), instanceProperties.get(FILE_SYSTEM), tableProperties.get(DATA_BUCKET));
     }
 
+    @Test
+    public void shouldCreateJobsForEachLeafPartitionWhenFilesAreInterleaved() {
+        // Given
+        InstanceProperties instanceProperties = new InstanceProperties();
+        instanceProperties.set(CONFIG_BUCKET, "config");
+        TableProperties tableProperties = new TableProperties(instanceProperties);
+        tableProperties.set(TABLE_NAME, "table");
+        tableProperties.set(DATA_BUCKET, "databucket");
+        tableProperties.set(COMPACTION_FILES_BATCH_SIZE, "11");
+        SizeRatioCompactionStrategy sizeRatioCompactionStrategy = new SizeRatioCompactionStrategy();
+        sizeRatioCompactionStrategy.init(instanceProperties, tableProperties);
+        List<Partition> partitions = new ArrayList<>();
+        for (int p = 0; p < 20; p++) {
+            partitions.add(Partition.builder()
+                    .id("partition-" + p)
+                    .rowKeyTypes(new IntType())
+                    .leafPartition(true)
+                    .parentPartitionId(null)
+                    .childPartitionIds(Collections.emptyList())
+                    .build());
+        }
+        List<FileInfo> fileInfos = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            for (Partition partition : partitions) {
+                fileInfos.add(FileInfo.builder()
+                        .filename(partition.getId() + "-file-" + i)
+                        .fileStatus(FileInfo.FileStatus.ACTIVE)
+                        .partitionId(partition.getId())
+                        .numberOfRecords(i == 7 ? 100L : 50L)
+                        .rowKeyTypes(new IntType())
+                        .minRowKey(Key.create(1))
+                        .maxRowKey(Key.create(100))
+                        .build());
+            }
+        }
+
+        // When
+        List<CompactionJob> compactionJobs = sizeRatioCompactionStrategy.createCompactionJobs(Collections.emptyList(), fileInfos, partitions);
+
+        // Then
+        assertThat(compactionJobs).hasSize(20);
+        for (CompactionJob job : compactionJobs) {
+            List<String> expectedFiles = fileInfos.stream()
+                    .filter(fileInfo -> fileInfo.getPartitionId().equals(job.getPartitionId()))
+                    .map(FileInfo::getFilename)
+                    .sorted()
+                    .collect(Collectors.toList());
+            checkJob(job, expectedFiles, job.getPartitionId(), instanceProperties.get(FILE_SYSTEM), tableProperties.get(DATA_BUCKET));
+        }
+        assertThat(compactionJobs).extracting(CompactionJob::getPartitionId)
+                .containsExactlyInAnyOrderElementsOf(partitions.stream().map(Partition::getId).collect(Collectors.toList()));
+    }
+
     private void checkJob(CompactionJob job, List<String> files, String partitionId, String fs, String bucket) {
         List<String> filesForJob = new ArrayList<>();
         for (String file : files) {
@@ -15,13 +15,12 @@
  */
 package sleeper.compaction.jobexecution;
 
-import com.facebook.collections.ByteArray;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
-import org.apache.datasketches.quantiles.ItemsSketch;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
+import org.apache.parquet.filter2.compat.FilterCompat;
 import org.apache.parquet.hadoop.ParquetReader;
 import org.apache.parquet.hadoop.ParquetWriter;
 import org.slf4j.Logger;
@@ -36,19 +35,20 @@ import sleeper.configuration.properties.table.TableProperties;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.iterator.IteratorException;
 import sleeper.core.iterator.MergingIterator;
+import sleeper.core.iterator.PushdownFilter;
 import sleeper.core.iterator.SortedRecordIterator;
+import sleeper.core.iterator.SortedRecordIteratorChain;
 import sleeper.core.key.Key;
 import sleeper.core.record.Record;
 import sleeper.core.record.SingleKeyComparator;
 import sleeper.core.record.process.RecordsProcessed;
 import sleeper.core.record.process.RecordsProcessedSummary;
-import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
-import sleeper.core.schema.type.ByteArrayType;
 import sleeper.core.schema.type.PrimitiveType;
 import sleeper.io.parquet.record.ParquetReaderIterator;
 import sleeper.io.parquet.record.ParquetRecordReader;
 import sleeper.io.parquet.record.ParquetRecordWriterFactory;
+import sleeper.io.parquet.record.PushdownFilterConverter;
 import sleeper.sketches.Sketches;
 import sleeper.sketches.s3.SketchesSerDeToS3;
 import sleeper.statestore.FileInfo;
@@ -60,10 +60,8 @@ import java.io.IOException;
 import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
 
 import static sleeper.core.metrics.MetricsLogger.METRICS_LOGGER;
 
@@ -132,11 +130,13 @@ public class CompactSortedFiles {
     private RecordsProcessed compactNoSplitting() throws IOException, IteratorException {
         Configuration conf = getConfiguration();
 
+        SortedRecordIterator sortedRecordIterator = createIterator();
+
         // Create a reader for each file
-        List<CloseableIterator<Record>> inputIterators = createInputIterators(conf);
+        List<CloseableIterator<Record>> inputIterators = createInputIterators(conf, sortedRecordIterator);
 
         // Merge these iterator into one sorted iterator
-        CloseableIterator<Record> mergingIterator = getMergingIterator(inputIterators);
+        CloseableIterator<Record> mergingIterator = getMergingIterator(inputIterators, sortedRecordIterator);
 
         // Create writer
         LOGGER.debug("Creating writer for file {}", compactionJob.getOutputFile());
@@ -144,7 +144,10 @@ public class CompactSortedFiles {
         ParquetWriter<Record> writer = ParquetRecordWriterFactory.createParquetRecordWriter(outputPath, tableProperties, conf);
 
         LOGGER.info("Compaction job {}: Created writer for file {}", compactionJob.getId(), compactionJob.getOutputFile());
-        Map<String, ItemsSketch> keyFieldToSketch = getSketches();
+        // Every input record is written to the output file unless an iterator is applied, so the sketches of the
+        // input files can be merged rather than updating the sketches with every record
+        Sketches mergedInputSketches = null == compactionJob.getIteratorClassName() ? loadAndMergeInputSketches(conf) : null;
+        Sketches sketches = null == mergedInputSketches ? Sketches.from(schema) : mergedInputSketches;
 
         long recordsWritten = 0L;
         // Record min and max of the first dimension of the row key (the min is from the first record, the max is from
@@ -158,7 +161,9 @@ public class CompactSortedFiles {
                 minKey = record.get(rowKeyName0);
             }
             maxKey = record.get(rowKeyName0);
-            updateQuantilesSketch(record, keyFieldToSketch);
+            if (null == mergedInputSketches) {
+                sketches.update(schema, record);
+            }
             // Write out
             writer.write(record);
             recordsWritten++;
@@ -169,12 +174,8 @@ public class CompactSortedFiles {
         writer.close();
         LOGGER.debug("Compaction job {}: Closed writer", compactionJob.getId());
 
-        // Remove the extension (if present), then add one
-        String sketchesFilename = compactionJob.getOutputFile();
-        sketchesFilename = FilenameUtils.removeExtension(sketchesFilename);
-        sketchesFilename = sketchesFilename + ".sketches";
-        Path sketchesPath = new Path(sketchesFilename);
-        new SketchesSerDeToS3(schema).saveToHadoopFS(sketchesPath, new Sketches(keyFieldToSketch), conf);
+        Path sketchesPath = sketchesPath(compactionJob.getOutputFile());
+        new SketchesSerDeToS3(schema).saveToHadoopFS(sketchesPath, sketches, conf);
         LOGGER.info("Compaction job {}: Wrote sketches file to {}", compactionJob.getId(), sketchesPath);
 
         for (CloseableIterator<Record> iterator : inputIterators) {
@@ -207,11 +208,13 @@ public class CompactSortedFiles {
     private RecordsProcessed compactSplitting() throws IOException, IteratorException {
         Configuration conf = getConfiguration();
 
+        SortedRecordIterator sortedRecordIterator = createIterator();
+
         // Create a reader for each file
-        List<CloseableIterator<Record>> inputIterators = createInputIterators(conf);
+        List<CloseableIterator<Record>> inputIterators = createInputIterators(conf, sortedRecordIterator);
 
         // Merge these iterator into one sorted iterator
-        CloseableIterator<Record> mergingIterator = getMergingIterator(inputIterators);
+        CloseableIterator<Record> mergingIterator = getMergingIterator(inputIterators, sortedRecordIterator);
 
         // Create writers
         Path leftPath = new Path(compactionJob.getOutputFiles().getLeft());
@@ -222,8 +225,8 @@ public class CompactSortedFiles {
         ParquetWriter<Record> rightWriter = ParquetRecordWriterFactory.createParquetRecordWriter(rightPath, tableProperties, conf);
         LOGGER.debug("Compaction job {}: Created writer for file {}", compactionJob.getId(), compactionJob.getOutputFiles().getRight());
 
-        Map<String, ItemsSketch> leftKeyFieldToSketch = getSketches();
-        Map<String, ItemsSketch> rightKeyFieldToSketch = getSketches();
+        Sketches leftSketches = Sketches.from(schema);
+        Sketches rightSketches = Sketches.from(schema);
 
         long recordsWrittenToLeftFile = 0L;
         long recordsWrittenToRightFile = 0L;
@@ -253,7 +256,7 @@ public class CompactSortedFiles {
                     minKeyLeftFile = record.get(rowKeyName0);
                 }
                 maxKeyLeftFile = record.get(rowKeyName0);
-                updateQuantilesSketch(record, leftKeyFieldToSketch);
+                leftSketches.update(schema, record);
             } else {
                 rightWriter.write(record);
                 recordsWrittenToRightFile++;
@@ -261,7 +264,7 @@ public class CompactSortedFiles {
                     minKeyRightFile = record.get(rowKeyName0);
                 }
                 maxKeyRightFile = record.get(rowKeyName0);
-                updateQuantilesSketch(record, rightKeyFieldToSketch);
+                rightSketches.update(schema, record);
             }
 
             if ((recordsWrittenToLeftFile > 0 && 0 == recordsWrittenToLeftFile % 1_000_000)
@@ -275,18 +278,11 @@ public class CompactSortedFiles {
         rightWriter.close();
         LOGGER.debug("Compaction job {}: Closed writers", compactionJob.getId());
 
-        // Remove the extension (if present), then add one
-        String leftSketchesFilename = compactionJob.getOutputFiles().getLeft();
-        leftSketchesFilename = FilenameUtils.removeExtension(leftSketchesFilename);
-        leftSketchesFilename = leftSketchesFilename + ".sketches";
-        Path leftSketchesPath = new Path(leftSketchesFilename);
-        new SketchesSerDeToS3(schema).saveToHadoopFS(leftSketchesPath, new Sketches(leftKeyFieldToSketch), conf);
-
-        String rightSketchesFilename = compactionJob.getOutputFiles().getRight();
-        rightSketchesFilename = FilenameUtils.removeExtension(rightSketchesFilename);
-        rightSketchesFilename = rightSketchesFilename + ".sketches";
-        Path rightSketchesPath = new Path(rightSketchesFilename);
-        new SketchesSerDeToS3(schema).saveToHadoopFS(rightSketchesPath, new Sketches(rightKeyFieldToSketch), conf);
+        Path leftSketchesPath = sketchesPath(compactionJob.getOutputFiles().getLeft());
+        new SketchesSerDeToS3(schema).saveToHadoopFS(leftSketchesPath, leftSketches, conf);
+
+        Path rightSketchesPath = sketchesPath(compactionJob.getOutputFiles().getRight());
+        new SketchesSerDeToS3(schema).saveToHadoopFS(rightSketchesPath, rightSketches, conf);
 
         LOGGER.info("Wrote sketches to {} and {}", leftSketchesPath, rightSketchesPath);
 
@@ -318,31 +314,43 @@ public class CompactSortedFiles {
         return new RecordsProcessed(totalNumberOfRecordsRead, recordsWrittenToLeftFile + recordsWrittenToRightFile);
     }
 
-    private List<CloseableIterator<Record>> createInputIterators(Configuration conf) throws IOException {
+    private List<CloseableIterator<Record>> createInputIterators(Configuration conf, SortedRecordIterator iterator) throws IOException {
+        // Skip data that the iterator would remove, if it declares a filter that can be applied when reading
+        Optional<PushdownFilter> readFilter = SortedRecordIteratorChain.getReadFilter(iterator);
+        readFilter.ifPresent(filter -> LOGGER.debug("Compaction job {}: Applying filter from iterator when reading data: {}", compactionJob.getId(), filter));
         List<CloseableIterator<Record>> inputIterators = new ArrayList<>();
         for (String file : compactionJob.getInputFiles()) {
-            ParquetReader<Record> reader = new ParquetRecordReader.Builder(new Path(file), schema).withConf(conf).build();
-            ParquetReaderIterator recordIterator = new ParquetReaderIterator(reader);
+            ParquetReader.Builder<Record> builder = new ParquetRecordReader.Builder(new Path(file), schema).withConf(conf);
+            if (readFilter.isPresent()) {
+                builder.withFilter(FilterCompat.get(PushdownFilterConverter.toFilterPredicate(readFilter.get())));
+            }
+            ParquetReaderIterator recordIterator = new ParquetReaderIterator(builder.build());
             inputIterators.add(recordIterator);
             LOGGER.debug("Compaction job {}: Created reader for file {}", compactionJob.getId(), file);
         }
         return inputIterators;
     }
 
-    private CloseableIterator<Record> getMergingIterator(List<CloseableIterator<Record>> inputIterators) throws IteratorException {
+    private SortedRecordIterator createIterator() throws IteratorException {
+        if (null == compactionJob.getIteratorClassName()) {
+            return null;
+        }
+        SortedRecordIterator iterator;
+        try {
+            iterator = SortedRecordIteratorChain.create(compactionJob.getIteratorClassName(), compactionJob.getIteratorConfig(), schema,
+                    className -> objectFactory.getObject(className, SortedRecordIterator.class));
+        } catch (ObjectFactoryException e) {
+            throw new IteratorException("ObjectFactoryException creating iterator of class " + compactionJob.getIteratorClassName(), e);
+        }
+        LOGGER.debug("Created iterator of class {} with config {}", compactionJob.getIteratorClassName(), compactionJob.getIteratorConfig());
+        return iterator;
+    }
+
+    private CloseableIterator<Record> getMergingIterator(List<CloseableIterator<Record>> inputIterators, SortedRecordIterator iterator) {
         CloseableIterator<Record> mergingIterator = new MergingIterator(schema, inputIterators);
 
         // Apply an iterator if one is provided
-        if (null != compactionJob.getIteratorClassName()) {
-            SortedRecordIterator iterator = null;
-            try {
-                iterator = objectFactory.getObject(compactionJob.getIteratorClassName(), SortedRecordIterator.class);
-            } catch (ObjectFactoryException e) {
-                throw new IteratorException("ObjectFactoryException creating iterator of class " + compactionJob.getIteratorClassName(), e);
-            }
-            LOGGER.debug("Created iterator of class {}", compactionJob.getIteratorClassName());
-            iterator.init(compactionJob.getIteratorConfig(), schema);
-            LOGGER.debug("Initialised iterator with config {}", compactionJob.getIteratorConfig());
+        if (null != iterator) {
             mergingIterator = iterator.apply(mergingIterator);
         }
         return mergingIterator;
@@ -443,25 +451,31 @@ public class CompactSortedFiles {
         }
     }
 
-    // TODO These methods are copies of the same ones in IngestRecordsFromIterator - move to sketches module
-    private Map<String, ItemsSketch> getSketches() {
-        Map<String, ItemsSketch> keyFieldToSketch = new HashMap<>();
-        for (Field rowKeyField : schema.getRowKeyFields()) {
-            ItemsSketch<?> sketch = ItemsSketch.getInstance(1024, Comparator.naturalOrder());
-            keyFieldToSketch.put(rowKeyField.getName(), sketch);
+    /**
+     * Loads the sketches of every input file and merges them. If the sketches of any input file cannot be read, the
+     * sketches will need to be computed from the records instead.
+     *
+     * @param conf the Hadoop configuration
+     * @return the merged sketches, or null if they could not be loaded
+     */
+    private Sketches loadAndMergeInputSketches(Configuration conf) {
+        List<Sketches> inputSketches = new ArrayList<>();
+        SketchesSerDeToS3 sketchesSerDe = new SketchesSerDeToS3(schema);
+        for (String file : compactionJob.getInputFiles()) {
+            try {
+                inputSketches.add(sketchesSerDe.loadFromHadoopFS(sketchesPath(file), conf));
+            } catch (IOException | RuntimeException e) {
+                LOGGER.warn("Compaction job {}: Could not load sketches for input file {}, will compute sketches from records",
+                        compactionJob.getId(), file, e);
+                return null;
+            }
         }
-        return keyFieldToSketch;
+        LOGGER.info("Compaction job {}: Merging sketches of {} input files", compactionJob.getId(), inputSketches.size());
+        return Sketches.merge(schema, inputSketches);
     }
 
-    private void updateQuantilesSketch(Record record, Map<String, ItemsSketch> keyFieldToSketch) {
-        for (Field rowKeyField : schema.getRowKeyFields()) {
-            if (rowKeyField.getType() instanceof ByteArrayType) {
-                byte[] value = (byte[]) record.get(rowKeyField.getName());
-                keyFieldToSketch.get(rowKeyField.getName()).update(ByteArray.wrap(value));
-            } else {
-                Object value = record.get(rowKeyField.getName());
-                keyFieldToSketch.get(rowKeyField.getName()).update(value);
-            }
-        }
+    private static Path sketchesPath(String file) {
+        // Remove the extension (if present), then add one
+        return new Path(FilenameUtils.removeExtension(file) + ".sketches");
     }
 }
@@ -59,10 +59,17 @@ import sleeper.utils.HadoopConfigurationProvider;
 import java.io.IOException;
 import java.time.Instant;
 import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_ECS_LAUNCHTYPE;
 import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_KEEP_ALIVE_PERIOD_IN_SECONDS;
 import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_QUEUE_VISIBILITY_TIMEOUT_IN_SECONDS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_CONCURRENT_JOBS_MAX_HEAP_PERCENTAGE;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_CONCURRENT_JOBS;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.COMPACTION_JOB_QUEUE_URL;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.SPLITTING_COMPACTION_JOB_QUEUE_URL;
 
@@ -73,6 +80,12 @@ import static sleeper.configuration.properties.instance.SystemDefinedInstancePro
  * {@link sleeper.job.common.action.ChangeMessageVisibilityTimeoutAction} to
  * that class so that the message on the SQS queue can be kept alive whilst the job
  * is executing. It also handles deletion of the message when the job is completed.
+ * <p>
+ * Several jobs may run at once, up to a configured maximum and within a limit on
+ * their estimated total memory use. A message is only received once there is room
+ * for another job to run, so that while this task is busy its messages are left on
+ * the queue for other tasks. When the task is stopped, no more jobs are started and
+ * running jobs are left to finish.
  */
 public class CompactSortedFilesRunner {
     private static final Logger LOGGER = LoggerFactory.getLogger(CompactSortedFilesRunner.class);
@@ -93,6 +106,12 @@ public class CompactSortedFilesRunner {
     private final int keepAliveFrequency;
     private final int maxMessageRetrieveAttempts;
     private final int waitTimeSeconds;
+    private final int maxConcurrentJobs;
+    private final Semaphore jobSlots;
+    private final CompactionJobMemoryLimiter memoryLimiter;
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile boolean stopRequested;
+    private volatile boolean jobFailed;
 
     @SuppressWarnings("checkstyle:parameternumber")
     public CompactSortedFilesRunner(
@@ -126,6 +145,10 @@ public class CompactSortedFilesRunner {
         this.type = type;
         this.maxMessageRetrieveAttempts = maxMessageRetrieveAttempts;
         this.waitTimeSeconds = waitTimeSeconds;
+        this.maxConcurrentJobs = instanceProperties.getInt(COMPACTION_TASK_MAX_CONCURRENT_JOBS);
+        this.jobSlots = new Semaphore(maxConcurrentJobs);
+        this.memoryLimiter = CompactionJobMemoryLimiter.percentageOfHeap(
+                instanceProperties.getInt(COMPACTION_TASK_CONCURRENT_JOBS_MAX_HEAP_PERCENTAGE));
     }
 
     public CompactSortedFilesRunner(
@@ -146,10 +169,19 @@ public class CompactSortedFilesRunner {
     }
 
     public void run() throws InterruptedException, IOException, ActionException {
+        try {
+            runTask();
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    private void runTask() throws InterruptedException, IOException, ActionException {
         Instant startTime = Instant.now();
         CompactionTaskStatus.Builder taskStatusBuilder = CompactionTaskStatus
                 .builder().taskId(taskId).type(type).startTime(startTime);
-        LOGGER.info("Starting task {}", taskId);
+        LOGGER.info("Starting task {}, running up to {} jobs at once with {} bytes of memory available for them",
+                taskId, maxConcurrentJobs, memoryLimiter.getAvailableBytes());
 
         // Log some basic data if running on EC2 inside ECS
         if (instanceProperties.get(COMPACTION_ECS_LAUNCHTYPE).equalsIgnoreCase("EC2")) {
@@ -168,35 +200,60 @@ public class CompactSortedFilesRunner {
 
         taskStatusStore.taskStarted(taskStatusBuilder.build());
         CompactionTaskFinishedStatus.Builder taskFinishedBuilder = CompactionTaskFinishedStatus.builder();
-        long totalNumberOfMessagesProcessed = 0L;
-        int numConsecutiveTimesNoMessages = 0;
-        while (numConsecutiveTimesNoMessages < maxMessageRetrieveAttempts) {
-            ReceiveMessageRequest receiveMessageRequest = new ReceiveMessageRequest(sqsJobQueueUrl)
-                    .withMaxNumberOfMessages(1)
-                    .withWaitTimeSeconds(waitTimeSeconds); // Must be >= 0 and <= 20
-            ReceiveMessageResult receiveMessageResult = sqsClient.receiveMessage(receiveMessageRequest);
-            if (receiveMessageResult.getMessages().isEmpty()) {
-                LOGGER.info("Received no messages in {} seconds", waitTimeSeconds);
-                numConsecutiveTimesNoMessages++;
-                Thread.sleep(10000L);
-            } else {
-                Message message = receiveMessageResult.getMessages().get(0);
-                LOGGER.info("Received message: {}", message);
-                CompactionJob compactionJob = compactionJobSerDe.deserialiseFromString(message.getBody());
-                LOGGER.info("CompactionJob is: {}", compactionJob);
+        ExecutorService executor = Executors.newFixedThreadPool(maxConcurrentJobs);
+        try {
+            long totalNumberOfMessagesProcessed = 0L;
+            int numConsecutiveTimesNoMessages = 0;
+            while (numConsecutiveTimesNoMessages < maxMessageRetrieveAttempts && !stopRequested && !jobFailed) {
+                // Wait for room to run a job before receiving a message, so the message is not held while other jobs run
+                jobSlots.acquire();
+                if (stopRequested || jobFailed) {
+                    jobSlots.release();
+                    break;
+                }
+                ReceiveMessageResult receiveMessageResult;
                 try {
-                    taskFinishedBuilder.addJobSummary(compact(compactionJob, message));
-                } catch (IOException | IteratorException e) {
-                    LOGGER.error("Exception running compactionJob", e);
-                    return;
+                    ReceiveMessageRequest receiveMessageRequest = new ReceiveMessageRequest(sqsJobQueueUrl)
+                            .withMaxNumberOfMessages(1)
+                            .withWaitTimeSeconds(waitTimeSeconds); // Must be >= 0 and <= 20
+                    receiveMessageResult = sqsClient.receiveMessage(receiveMessageRequest);
+                } catch (RuntimeException e) {
+                    jobSlots.release();
+                    throw e;
+                }
+                if (!receiveMessageResult.getMessages().isEmpty()) {
+                    Message message = receiveMessageResult.getMessages().get(0);
+                    LOGGER.info("Received message: {}", message);
+                    if (submit(message, executor, taskFinishedBuilder)) {
+                        totalNumberOfMessagesProcessed++;
+                    }
+                    numConsecutiveTimesNoMessages = 0;
+                    continue;
+                }
+                jobSlots.release();
+                if (getJobsInFlight() > 0) {
+                    LOGGER.info("Received no messages in {} seconds, {} jobs in flight", waitTimeSeconds, getJobsInFlight());
+                } else {
+                    LOGGER.info("Received no messages in {} seconds", waitTimeSeconds);
+                    numConsecutiveTimesNoMessages++;
+                    Thread.sleep(10000L);
                 }
-                totalNumberOfMessagesProcessed++;
-                numConsecutiveTimesNoMessages = 0;
             }
+            if (stopRequested) {
+                LOGGER.info("Stop requested, waiting for {} jobs in flight to finish", getJobsInFlight());
+            } else if (!jobFailed) {
+                LOGGER.info("Returning from run() method in CompactSortedFilesRunner as no messages received in {} seconds",
+                        (numConsecutiveTimesNoMessages * 30));
+            }
+            executor.shutdown();
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+            if (jobFailed) {
+                return;
+            }
+            LOGGER.info("Total number of messages processed = {}", totalNumberOfMessagesProcessed);
+        } finally {
+            executor.shutdownNow();
         }
-        LOGGER.info("Returning from run() method in CompactSortedFilesRunner as no messages received in {} seconds",
-                (numConsecutiveTimesNoMessages * 30));
-        LOGGER.info("Total number of messages processed = {}", totalNumberOfMessagesProcessed);
 
         Instant finishTime = Instant.now();
         double runTimeInSeconds = (finishTime.toEpochMilli() - startTime.toEpochMilli()) / 1000.0;
@@ -206,8 +263,49 @@ public class CompactSortedFilesRunner {
         taskStatusStore.taskFinished(taskFinished);
     }
 
-    private RecordsProcessedSummary compact(CompactionJob compactionJob, Message message)
-            throws IOException, IteratorException, ActionException {
+    /**
+     * Stops taking jobs from the queue. Jobs that have already started will run to completion, and {@link #run()} will
+     * return once they have finished. A job that was waiting for memory to start will be returned to the queue.
+     */
+    public void stop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Stops taking jobs from the queue and waits for running jobs to finish.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void stopAndWait() throws InterruptedException {
+        stop();
+        finished.await();
+    }
+
+    private int getJobsInFlight() {
+        return maxConcurrentJobs - jobSlots.availablePermits();
+    }
+
+    /**
+     * Starts a compaction job in the background. A job slot must already be held for the job, and is released when the
+     * job finishes or is not started. The message is kept alive from when it is received, in case the job must wait
+     * here for other jobs to free up memory.
+     *
+     * @param  message             the message for the job
+     * @param  executor            the executor to run the job on
+     * @param  taskFinishedBuilder the builder to record a summary of the job in
+     * @return                     true if the job was started, false if it was returned to the queue
+     */
+    private boolean submit(
+            Message message, ExecutorService executor, CompactionTaskFinishedStatus.Builder taskFinishedBuilder)
+            throws IOException, InterruptedException, ActionException {
+        CompactionJob compactionJob;
+        try {
+            compactionJob = compactionJobSerDe.deserialiseFromString(message.getBody());
+        } catch (IOException | RuntimeException e) {
+            jobSlots.release();
+            throw e;
+        }
+        LOGGER.info("CompactionJob is: {}", compactionJob);
         MessageReference messageReference = new MessageReference(sqsClient, sqsJobQueueUrl,
                 "Compaction job " + compactionJob.getId(), message.getReceiptHandle());
         // Create background thread to keep messages alive
@@ -219,21 +317,48 @@ public class CompactSortedFilesRunner {
         LOGGER.info("Compaction job {}: Created background thread to keep SQS messages alive (period is {} seconds)",
                 compactionJob.getId(), keepAliveFrequency);
 
-        propertiesReloader.reloadIfNeeded();
-        TableProperties tableProperties = tablePropertiesProvider.getTableProperties(compactionJob.getTableName());
-        StateStore stateStore = stateStoreProvider.getStateStore(tableProperties);
-        CompactSortedFiles compactSortedFiles = new CompactSortedFiles(instanceProperties, tableProperties, objectFactory,
-                compactionJob, stateStore, jobStatusStore, taskId);
-        RecordsProcessedSummary summary = compactSortedFiles.compact();
-
-        // Delete message from queue
-        DeleteMessageAction deleteAction = messageReference.deleteAction();
-        deleteAction.call();
-
-        LOGGER.info("Compaction job {}: Stopping background thread to keep SQS messages alive",
-                compactionJob.getId());
-        keepAliveRunnable.stop();
-        return summary;
+        CompactionJobMemoryLimiter.Reservation memory;
+        CompactSortedFiles compactSortedFiles;
+        try {
+            propertiesReloader.reloadIfNeeded();
+            TableProperties tableProperties = tablePropertiesProvider.getTableProperties(compactionJob.getTableName());
+            StateStore stateStore = stateStoreProvider.getStateStore(tableProperties);
+            compactSortedFiles = new CompactSortedFiles(instanceProperties, tableProperties, objectFactory,
+                    compactionJob, stateStore, jobStatusStore, taskId);
+            memory = memoryLimiter.reserve(CompactionJobMemoryLimiter.estimateBytes(compactionJob, tableProperties));
+        } catch (RuntimeException | InterruptedException e) {
+            keepAliveRunnable.stop();
+            jobSlots.release();
+            throw e;
+        }
+        if (stopRequested || jobFailed) {
+            LOGGER.info("Compaction job {}: Returning message to the queue as the task is stopping", compactionJob.getId());
+            keepAliveRunnable.stop();
+            memory.close();
+            jobSlots.release();
+            messageReference.changeVisibilityTimeoutAction(0).call();
+            return false;
+        }
+        executor.execute(() -> {
+            try (memory) {
+                RecordsProcessedSummary summary = compactSortedFiles.compact();
+                // Delete message from queue
+                DeleteMessageAction deleteAction = messageReference.deleteAction();
+                deleteAction.call();
+                synchronized (taskFinishedBuilder) {
+                    taskFinishedBuilder.addJobSummary(summary);
+                }
+            } catch (IOException | IteratorException | ActionException | RuntimeException e) {
+                LOGGER.error("Exception running compactionJob", e);
+                jobFailed = true;
+            } finally {
+                LOGGER.info("Compaction job {}: Stopping background thread to keep SQS messages alive",
+                        compactionJob.getId());
+                keepAliveRunnable.stop();
+                jobSlots.release();
+            }
+        });
+        return true;
     }
 
     public static void main(String[] args)
@@ -289,6 +414,13 @@ public class CompactSortedFilesRunner {
                 sqsClient,
                 ecsClient,
                 type);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                runner.stopAndWait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
         runner.run();
 
         sqsClient.shutdown();
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.jobexecution;
+
+import sleeper.compaction.job.CompactionJob;
+import sleeper.configuration.properties.table.TableProperties;
+
+import java.util.concurrent.Semaphore;
+
+import static sleeper.configuration.properties.table.TableProperty.ROW_GROUP_SIZE;
+
+/**
+ * Limits the total estimated memory used by compaction jobs running at the same time in one task. A job reserves its
+ * estimate before it starts, blocking until enough memory has been released by other jobs. An estimate larger than the
+ * whole limit is reduced to the limit, so that job runs on its own rather than never starting.
+ */
+public class CompactionJobMemoryLimiter {
+    private static final long BYTES_PER_PERMIT = 1024L * 1024L;
+
+    private final Semaphore permits;
+    private final int maxPermits;
+
+    public CompactionJobMemoryLimiter(long maxBytes) {
+        this.maxPermits = (int) Math.max(1, Math.min(Integer.MAX_VALUE, maxBytes / BYTES_PER_PERMIT));
+        this.permits = new Semaphore(maxPermits, true);
+    }
+
+    /**
+     * Creates a limiter for a percentage of the maximum size of the Java heap.
+     *
+     * @param  percentage the percentage of the heap that compaction jobs may use
+     * @return            the limiter
+     */
+    public static CompactionJobMemoryLimiter percentageOfHeap(int percentage) {
+        return new CompactionJobMemoryLimiter(Runtime.getRuntime().maxMemory() / 100 * percentage);
+    }
+
+    /**
+     * Estimates the memory a compaction job will use. Parquet holds a row group in memory for each file being read or
+     * written, so this is one row group for each input and output file.
+     *
+     * @param  job             the compaction job
+     * @param  tableProperties the properties of the table the job is for
+     * @return                 the estimated memory use in bytes
+     */
+    public static long estimateBytes(CompactionJob job, TableProperties tableProperties) {
+        int outputFiles = job.isSplittingJob() ? 2 : 1;
+        return (job.getInputFiles().size() + outputFiles) * tableProperties.getLong(ROW_GROUP_SIZE);
+    }
+
+    /**
+     * Reserves memory for a job, waiting until enough is available.
+     *
+     * @param  bytes                the estimated memory use of the job
+     * @return                      a reservation to release when the job finishes
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public Reservation reserve(long bytes) throws InterruptedException {
+        int required = permitsFor(bytes);
+        permits.acquire(required);
+        return new Reservation(required);
+    }
+
+    public long getAvailableBytes() {
+        return permits.availablePermits() * BYTES_PER_PERMIT;
+    }
+
+    private int permitsFor(long bytes) {
+        long required = (bytes + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT;
+        return (int) Math.max(1, Math.min(maxPermits, required));
+    }
+
+    /**
+     * Memory reserved for a running job.
+     */
+    public class Reservation implements AutoCloseable {
+        private final int reservedPermits;
+        private boolean released;
+
+        private Reservation(int reservedPermits) {
+            this.reservedPermits = reservedPermits;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!released) {
+                released = true;
+                permits.release(reservedPermits);
+            }
+        }
+    }
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.jobexecution;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.compaction.task.CompactionTaskFinishedStatus;
+import sleeper.compaction.task.CompactionTaskStatus;
+import sleeper.compaction.task.CompactionTaskStatusStore;
+import sleeper.compaction.task.CompactionTaskType;
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.job.common.QueueMessageCount;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.function.Supplier;
+
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_CONCURRENT_JOBS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_SCALING_HISTORY_SECS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_SCALING_SCALE_DOWN_DELAY_SECS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_SCALING_TARGET_DRAIN_SECS;
+import static sleeper.configuration.properties.instance.CompactionProperty.MAXIMUM_CONCURRENT_COMPACTION_TASKS;
+
+/**
+ * Decides how many compaction tasks should be running, by forecasting how long the compaction job queue will take to
+ * drain.
+ * <ul>
+ *     <li>The time each task takes to run a job is estimated from the compaction tasks which finished recently, as
+ *     recorded in the task status store. Each task runs up to a configured number of jobs at once, so the throughput of
+ *     a task is that number of jobs divided by the job duration.</li>
+ *     <li>The rate at which jobs arrive on the queue is estimated from the change in the number of messages on the queue
+ *     since the last decision, plus the jobs that the running tasks are expected to have finished in that time. This is
+ *     smoothed over successive decisions.</li>
+ *     <li>The target number of tasks is the number needed to process all the jobs on the queue, and those forecast to
+ *     arrive, within a target drain time.</li>
+ *     <li>New tasks are only started for the forecast. The target is increased straight away, but is only reduced
+ *     once the forecast has stayed below it for a delay. The target is used to keep enough EC2 capacity for that many
+ *     tasks, so that instances are not terminated and started again when jobs arrive in bursts.</li>
+ * </ul>
+ * State is held in memory between decisions, so the same instance should be used each time. This is not persisted, so
+ * when a new instance is created, e.g. when the Lambda that runs it has a cold start, the arrival rate is estimated
+ * from scratch and any scale down delay already started is lost. The target is then reduced as soon as the forecast
+ * falls below it. Until there is any history of job durations, enough tasks are forecast to run every message on the
+ * queue at once.
+ */
+public class CompactionTaskScalingController {
+    private static final Logger LOGGER = LoggerFactory.getLogger(CompactionTaskScalingController.class);
+    private static final double ARRIVAL_RATE_SMOOTHING = 0.5;
+
+    private final QueueMessageCount.Client queueClient;
+    private final String queueUrl;
+    private final CompactionTaskStatusStore taskStatusStore;
+    private final CompactionTaskType type;
+    private final Supplier<Instant> timeSupplier;
+    private final int maximumRunningTasks;
+    private final int maxConcurrentJobsPerTask;
+    private final Duration targetDrainTime;
+    private final Duration historyPeriod;
+    private final Duration scaleDownDelay;
+
+    private Instant lastDecisionTime;
+    private int lastQueueSize;
+    private double arrivalsPerSecond;
+    private int targetTasks;
+    private Instant forecastBelowTargetSince;
+
+    public CompactionTaskScalingController(
+            QueueMessageCount.Client queueClient, String queueUrl,
+            CompactionTaskStatusStore taskStatusStore, CompactionTaskType type,
+            InstanceProperties instanceProperties, Supplier<Instant> timeSupplier) {
+        this.queueClient = queueClient;
+        this.queueUrl = queueUrl;
+        this.taskStatusStore = taskStatusStore;
+        this.type = type;
+        this.timeSupplier = timeSupplier;
+        this.maximumRunningTasks = instanceProperties.getInt(MAXIMUM_CONCURRENT_COMPACTION_TASKS);
+        this.maxConcurrentJobsPerTask = Math.max(1, instanceProperties.getInt(COMPACTION_TASK_MAX_CONCURRENT_JOBS));
+        this.targetDrainTime = Duration.ofSeconds(instanceProperties.getLong(COMPACTION_TASK_SCALING_TARGET_DRAIN_SECS));
+        this.historyPeriod = Duration.ofSeconds(instanceProperties.getLong(COMPACTION_TASK_SCALING_HISTORY_SECS));
+        this.scaleDownDelay = Duration.ofSeconds(instanceProperties.getLong(COMPACTION_TASK_SCALING_SCALE_DOWN_DELAY_SECS));
+    }
+
+    /**
+     * Decides how many compaction tasks should be running.
+     *
+     * @param  runningAndPendingTasks the number of compaction tasks currently running or pending
+     * @return                        the decision
+     */
+    public Decision decide(int runningAndPendingTasks) {
+        Instant now = timeSupplier.get();
+        QueueMessageCount messageCount = queueClient.getQueueMessageCount(queueUrl);
+        int waitingJobs = messageCount.getApproximateNumberOfMessages();
+        int queueSize = waitingJobs + messageCount.getApproximateNumberOfMessagesNotVisible();
+        LOGGER.info("Queue message count is {}", messageCount);
+
+        Duration jobDuration = estimateJobDuration(now);
+        updateArrivalRate(now, queueSize, runningAndPendingTasks, jobDuration);
+        int forecastTasks;
+        if (jobDuration == null) {
+            LOGGER.info("No history of job durations, forecasting enough tasks to run every job at once");
+            forecastTasks = runningAndPendingTasks + tasksToRunJobsAtOnce(waitingJobs, maxConcurrentJobsPerTask);
+        } else {
+            forecastTasks = forecastTasks(queueSize, jobDuration);
+        }
+        forecastTasks = Math.min(forecastTasks, maximumRunningTasks);
+        applyHysteresis(now, forecastTasks);
+        LOGGER.info("Forecast {} tasks, target is {} tasks", forecastTasks, targetTasks);
+        return new Decision(messageCount, forecastTasks, targetTasks);
+    }
+
+    private Duration estimateJobDuration(Instant now) {
+        Duration timeSpentOnJobs = Duration.ZERO;
+        long jobRuns = 0;
+        for (CompactionTaskStatus task : taskStatusStore.getTasksInTimePeriod(now.minus(historyPeriod), now)) {
+            if (task.isFinished() && task.getType() == type) {
+                CompactionTaskFinishedStatus finishedStatus = task.getFinishedStatus();
+                timeSpentOnJobs = timeSpentOnJobs.plus(finishedStatus.getTimeSpentOnJobs());
+                jobRuns += finishedStatus.getTotalJobRuns();
+            }
+        }
+        if (jobRuns == 0) {
+            return null;
+        }
+        Duration jobDuration = timeSpentOnJobs.dividedBy(jobRuns);
+        LOGGER.info("Estimated job duration is {} from {} job runs", jobDuration, jobRuns);
+        return jobDuration;
+    }
+
+    private void updateArrivalRate(Instant now, int queueSize, int runningTasks, Duration jobDuration) {
+        if (lastDecisionTime != null && jobDuration != null && now.isAfter(lastDecisionTime)) {
+            double seconds = Duration.between(lastDecisionTime, now).toMillis() / 1000.0;
+            double jobsFinished = runningTasks * seconds * jobsPerSecondPerTask(jobDuration);
+            double arrived = Math.max(0, queueSize - lastQueueSize + jobsFinished);
+            arrivalsPerSecond = ARRIVAL_RATE_SMOOTHING * (arrived / seconds)
+                    + (1 - ARRIVAL_RATE_SMOOTHING) * arrivalsPerSecond;
+            LOGGER.info("Estimated {} jobs arrived in {} seconds, smoothed arrival rate is {} jobs per second",
+                    arrived, seconds, arrivalsPerSecond);
+        }
+        lastDecisionTime = now;
+        lastQueueSize = queueSize;
+    }
+
+    private int forecastTasks(int queueSize, Duration jobDuration) {
+        double drainSeconds = secondsOf(targetDrainTime);
+        double jobsToRun = queueSize + arrivalsPerSecond * drainSeconds;
+        double jobsPerTaskInDrainTime = drainSeconds * jobsPerSecondPerTask(jobDuration);
+        int tasks = (int) Math.ceil(jobsToRun / jobsPerTaskInDrainTime);
+        // A task can run a limited number of jobs at once, so more tasks than are needed to run every job would sit idle
+        return Math.min(tasks, (int) Math.ceil(jobsToRun / maxConcurrentJobsPerTask));
+    }
+
+    private double jobsPerSecondPerTask(Duration jobDuration) {
+        return maxConcurrentJobsPerTask / secondsOf(jobDuration);
+    }
+
+    /**
+     * Computes how many tasks are needed to run a number of jobs at once.
+     *
+     * @param  jobs                     the number of jobs
+     * @param  maxConcurrentJobsPerTask the number of jobs each task can run at once
+     * @return                          the number of tasks
+     */
+    public static int tasksToRunJobsAtOnce(int jobs, int maxConcurrentJobsPerTask) {
+        int jobsPerTask = Math.max(1, maxConcurrentJobsPerTask);
+        return (jobs + jobsPerTask - 1) / jobsPerTask;
+    }
+
+    private void applyHysteresis(Instant now, int forecastTasks) {
+        if (forecastTasks >= targetTasks) {
+            targetTasks = forecastTasks;
+            forecastBelowTargetSince = null;
+        } else if (forecastBelowTargetSince == null) {
+            forecastBelowTargetSince = now;
+        } else if (!now.isBefore(forecastBelowTargetSince.plus(scaleDownDelay))) {
+            LOGGER.info("Forecast has been below target since {}, reducing target", forecastBelowTargetSince);
+            targetTasks = forecastTasks;
+            forecastBelowTargetSince = null;
+        }
+    }
+
+    private static double secondsOf(Duration duration) {
+        return Math.max(duration.toMillis(), 1) / 1000.0;
+    }
+
+    /**
+     * The result of a scaling decision.
+     */
+    public static class Decision {
+        private final QueueMessageCount queueMessageCount;
+        private final int forecastTasks;
+        private final int targetTasks;
+
+        private Decision(QueueMessageCount queueMessageCount, int forecastTasks, int targetTasks) {
+            this.queueMessageCount = queueMessageCount;
+            this.forecastTasks = forecastTasks;
+            this.targetTasks = targetTasks;
+        }
+
+        public QueueMessageCount getQueueMessageCount() {
+            return queueMessageCount;
+        }
+
+        public int getForecastTasks() {
+            return forecastTasks;
+        }
+
+        /**
+         * The number of tasks to keep capacity for. This stays above the forecast during the scale down delay.
+         *
+         * @return the target number of tasks
+         */
+        public int getTargetTasks() {
+            return targetTasks;
+        }
+
+        /**
+         * Computes how many tasks to start, given how many are already running. Tasks are only started for the
+         * forecast, not for capacity held during the scale down delay.
+         *
+         * @param  runningAndPendingTasks the number of tasks currently running or pending
+         * @return                        the number of new tasks to start
+         */
+        public int getTasksToCreate(int runningAndPendingTasks) {
+            return Math.max(0, Math.min(forecastTasks, targetTasks) - runningAndPendingTasks);
+        }
+
+        /**
+         * Computes how many tasks to keep EC2 capacity for, given how many are already running.
+         *
+         * @param  runningAndPendingTasks the number of tasks currently running or pending
+         * @return                        the number of tasks to scale the EC2 cluster to
+         */
+        public int getTasksToKeepCapacityFor(int runningAndPendingTasks) {
+            return Math.max(targetTasks, runningAndPendingTasks + getTasksToCreate(runningAndPendingTasks));
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package sleeper.compaction.jobexecution;
 
 import com.amazonaws.services.autoscaling.AmazonAutoScaling;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.ecs.AmazonECS;
 import com.amazonaws.services.ecs.model.AwsVpcConfiguration;
 import com.amazonaws.services.ecs.model.ContainerOverride;
@@ -30,6 +31,8 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import sleeper.compaction.status.store.task.CompactionTaskStatusStoreFactory;
+import sleeper.compaction.task.CompactionTaskType;
 import sleeper.configuration.Requirements;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.job.common.CommonJobUtils;
@@ -37,6 +40,7 @@ import sleeper.job.common.QueueMessageCount;
 import sleeper.job.common.RunECSTasks;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
@@ -45,7 +49,10 @@ import java.util.Objects;
 import static sleeper.configuration.properties.instance.CommonProperty.FARGATE_VERSION;
 import static sleeper.configuration.properties.instance.CommonProperty.SUBNETS;
 import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_ECS_LAUNCHTYPE;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_STATUS_STORE_ENABLED;
 import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_CPU_ARCHITECTURE;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_CONCURRENT_JOBS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_SCALING_PREDICTIVE;
 import static sleeper.configuration.properties.instance.CompactionProperty.MAXIMUM_CONCURRENT_COMPACTION_TASKS;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.COMPACTION_AUTO_SCALING_GROUP;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.COMPACTION_CLUSTER;
@@ -62,7 +69,8 @@ import static sleeper.core.ContainerConstants.SPLITTING_COMPACTION_CONTAINER_NAM
 
 /**
  * Finds the number of messages on a queue, and starts up one EC2 or Fargate task for each, up to a
- * configurable maximum.
+ * configurable maximum. If predictive scaling is enabled, the number of tasks is instead decided by a
+ * {@link CompactionTaskScalingController}.
  */
 public class RunTasks {
     private static final Logger LOGGER = LoggerFactory.getLogger(RunTasks.class);
@@ -78,14 +86,17 @@ public class RunTasks {
     private final String ec2TaskDefinition;
     private final String launchType;
     private final int maximumRunningTasks;
+    private final int maxConcurrentJobsPerTask;
     private final List<String> subnets;
     private final String fargateVersion;
     private final Scaler scaler;
+    private final CompactionTaskScalingController scalingController;
 
     public RunTasks(AmazonSQS sqsClient,
                     AmazonECS ecsClient,
                     AmazonS3 s3Client,
                     AmazonAutoScaling asClient,
+                    AmazonDynamoDB dynamoDBClient,
                     String s3Bucket,
                     String type) throws IOException {
         this.sqsClient = sqsClient;
@@ -96,7 +107,9 @@ public class RunTasks {
         InstanceProperties instanceProperties = new InstanceProperties();
         instanceProperties.loadFromS3(s3Client, s3Bucket);
         String autoScalingGroupName;
+        CompactionTaskType taskType;
         if (type.equals("compaction")) {
+            taskType = CompactionTaskType.COMPACTION;
             this.sqsJobQueueUrl = instanceProperties.get(COMPACTION_JOB_QUEUE_URL);
             this.clusterName = instanceProperties.get(COMPACTION_CLUSTER);
             this.containerName = COMPACTION_CONTAINER_NAME;
@@ -104,6 +117,7 @@ public class RunTasks {
             this.ec2TaskDefinition = instanceProperties.get(COMPACTION_TASK_EC2_DEFINITION_FAMILY);
             autoScalingGroupName = instanceProperties.get(COMPACTION_AUTO_SCALING_GROUP);
         } else if (type.equals("splittingcompaction")) {
+            taskType = CompactionTaskType.SPLITTING;
             this.sqsJobQueueUrl = instanceProperties.get(SPLITTING_COMPACTION_JOB_QUEUE_URL);
             this.clusterName = instanceProperties.get(SPLITTING_COMPACTION_CLUSTER);
             this.containerName = SPLITTING_COMPACTION_CONTAINER_NAME;
@@ -114,6 +128,7 @@ public class RunTasks {
             throw new RuntimeException("type should be 'compaction' or 'splittingcompaction'");
         }
         this.maximumRunningTasks = instanceProperties.getInt(MAXIMUM_CONCURRENT_COMPACTION_TASKS);
+        this.maxConcurrentJobsPerTask = instanceProperties.getInt(COMPACTION_TASK_MAX_CONCURRENT_JOBS);
         this.subnets = instanceProperties.getList(SUBNETS);
         this.fargateVersion = instanceProperties.get(FARGATE_VERSION);
         this.launchType = instanceProperties.get(COMPACTION_ECS_LAUNCHTYPE);
@@ -133,16 +148,25 @@ public class RunTasks {
         this.scaler = new Scaler(asClient, ecsClient, autoScalingGroupName, this.clusterName,
                 requirements.getLeft(),
                 requirements.getRight());
+
+        if (instanceProperties.getBoolean(COMPACTION_TASK_SCALING_PREDICTIVE)
+                && !instanceProperties.getBoolean(COMPACTION_STATUS_STORE_ENABLED)) {
+            LOGGER.warn("Predictive scaling of compaction tasks needs the compaction status store, which is disabled. " +
+                    "Creating enough tasks to run every job on the queue at once.");
+            this.scalingController = null;
+        } else if (instanceProperties.getBoolean(COMPACTION_TASK_SCALING_PREDICTIVE)) {
+            this.scalingController = new CompactionTaskScalingController(
+                    QueueMessageCount.withSqsClient(sqsClient), sqsJobQueueUrl,
+                    CompactionTaskStatusStoreFactory.getStatusStore(dynamoDBClient, instanceProperties),
+                    taskType, instanceProperties, Instant::now);
+        } else {
+            this.scalingController = null;
+        }
     }
 
     public void run() {
         long startTime = System.currentTimeMillis();
         LOGGER.info("Queue URL is {}", sqsJobQueueUrl);
-        // Find out number of messages in queue that are not being processed
-        int queueSize = QueueMessageCount.withSqsClient(sqsClient).getQueueMessageCount(sqsJobQueueUrl)
-                .getApproximateNumberOfMessages();
-        LOGGER.info("Queue size is {}", queueSize);
-
         // Find out number of pending and running tasks
         int numRunningAndPendingTasks = CommonJobUtils.getNumPendingAndRunningTasks(clusterName, ecsClient);
         LOGGER.info("Number of running and pending tasks is {}", numRunningAndPendingTasks);
@@ -150,12 +174,31 @@ public class RunTasks {
         int maxNumTasksToCreate = maximumRunningTasks - numRunningAndPendingTasks;
         LOGGER.info("Maximum number of tasks to create is {}", maxNumTasksToCreate);
 
+        int queueSize;
+        int numberOfTasksToCreate;
+        int tasksToKeepCapacityFor;
+        if (scalingController != null) {
+            CompactionTaskScalingController.Decision decision = scalingController.decide(numRunningAndPendingTasks);
+            queueSize = decision.getQueueMessageCount().getApproximateNumberOfMessages();
+            numberOfTasksToCreate = Math.min(decision.getTasksToCreate(numRunningAndPendingTasks), maxNumTasksToCreate);
+            tasksToKeepCapacityFor = decision.getTasksToKeepCapacityFor(numRunningAndPendingTasks);
+        } else {
+            // Find out number of messages in queue that are not being processed
+            queueSize = QueueMessageCount.withSqsClient(sqsClient).getQueueMessageCount(sqsJobQueueUrl)
+                    .getApproximateNumberOfMessages();
+            // Create enough tasks to run every item on the queue at once
+            numberOfTasksToCreate = Math.min(
+                    CompactionTaskScalingController.tasksToRunJobsAtOnce(queueSize, maxConcurrentJobsPerTask),
+                    maxNumTasksToCreate);
+            tasksToKeepCapacityFor = numberOfTasksToCreate + numRunningAndPendingTasks;
+        }
+        LOGGER.info("Queue size is {}", queueSize);
+
         // Do we need to scale?
         if (launchType.equalsIgnoreCase("EC2")) {
-            int maxNumTasksThatWillBeCreated = Math.min(maxNumTasksToCreate, queueSize);
-            int totalTasks = maxNumTasksThatWillBeCreated + numRunningAndPendingTasks;
-            LOGGER.info("Total number of tasks if all launches succeed {}", totalTasks);
-            scaler.scaleTo(totalTasks);
+            LOGGER.info("Total number of tasks if all launches succeed {}, keeping capacity for {} tasks",
+                    numberOfTasksToCreate + numRunningAndPendingTasks, tasksToKeepCapacityFor);
+            scaler.scaleTo(tasksToKeepCapacityFor);
         }
 
         if (0 == queueSize) {
@@ -167,24 +210,21 @@ public class RunTasks {
             TaskOverride override = createOverride(args, containerName);
             NetworkConfiguration networkConfiguration = networkConfig(subnets);
 
-            // Create 1 task for each item on the queue
-            launchTasks(startTime, queueSize, maxNumTasksToCreate, override, networkConfiguration);
+            launchTasks(startTime, numberOfTasksToCreate, override, networkConfiguration);
         }
     }
 
     /**
      * Attempts to launch some tasks on ECS.
      *
-     * @param startTime            start time of Lambda
-     * @param queueSize            length of SQS queue
-     * @param maxNumTasksToCreate  number of tasks to attempt to launch
-     * @param override             other container overrides
-     * @param networkConfiguration container network configuration
+     * @param startTime             start time of Lambda
+     * @param numberOfTasksToCreate number of tasks to attempt to launch
+     * @param override              other container overrides
+     * @param networkConfiguration  container network configuration
      */
-    private void launchTasks(long startTime, int queueSize, int maxNumTasksToCreate,
+    private void launchTasks(long startTime, int numberOfTasksToCreate,
                              TaskOverride override, NetworkConfiguration networkConfiguration) {
 
-        int numberOfTasksToCreate = Math.min(queueSize, maxNumTasksToCreate);
         String defUsed = (launchType.equalsIgnoreCase("FARGATE")) ? fargateTaskDefinition : ec2TaskDefinition;
         RunTaskRequest runTaskRequest = createRunTaskRequest(
                 clusterName, launchType, fargateVersion,
@@ -17,6 +17,8 @@ package sleeper.compaction.jobexecution;
 
 import com.amazonaws.services.autoscaling.AmazonAutoScaling;
 import com.amazonaws.services.autoscaling.AmazonAutoScalingClientBuilder;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.ecs.AmazonECS;
 import com.amazonaws.services.ecs.AmazonECSClientBuilder;
 import com.amazonaws.services.lambda.runtime.Context;
@@ -39,6 +41,7 @@ public class RunTasksLambda {
     private final AmazonECS ecsClient;
     private final AmazonS3 s3Client;
     private final AmazonAutoScaling asClient;
+    private final AmazonDynamoDB dynamoDBClient;
     private final String s3Bucket;
     private final String type;
     private final RunTasks runTasks;
@@ -51,7 +54,8 @@ public class RunTasksLambda {
         this.ecsClient = AmazonECSClientBuilder.defaultClient();
         this.s3Client = AmazonS3ClientBuilder.defaultClient();
         this.asClient = AmazonAutoScalingClientBuilder.defaultClient();
-        this.runTasks = new RunTasks(sqsClient, ecsClient, s3Client, asClient, s3Bucket, type);
+        this.dynamoDBClient = AmazonDynamoDBClientBuilder.defaultClient();
+        this.runTasks = new RunTasks(sqsClient, ecsClient, s3Client, asClient, dynamoDBClient, s3Bucket, type);
     }
 
     public void eventHandler(ScheduledEvent event, Context context) throws InterruptedException {
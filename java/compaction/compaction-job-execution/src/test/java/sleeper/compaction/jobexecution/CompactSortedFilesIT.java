@@ -26,6 +26,7 @@ import sleeper.core.schema.Schema;
 import sleeper.core.schema.type.ByteArrayType;
 import sleeper.core.schema.type.LongType;
 import sleeper.core.schema.type.StringType;
+import sleeper.sketches.Sketches;
 import sleeper.statestore.StateStore;
 
 import java.util.List;
@@ -40,6 +41,7 @@ import static sleeper.compaction.jobexecution.testutils.CompactSortedFilesTestDa
 import static sleeper.compaction.jobexecution.testutils.CompactSortedFilesTestData.keyAndTwoValuesSortedOddLongs;
 import static sleeper.compaction.jobexecution.testutils.CompactSortedFilesTestData.keyAndTwoValuesSortedOddStrings;
 import static sleeper.compaction.jobexecution.testutils.CompactSortedFilesTestData.readDataFile;
+import static sleeper.compaction.jobexecution.testutils.CompactSortedFilesTestData.readSketches;
 import static sleeper.compaction.jobexecution.testutils.CompactSortedFilesTestUtils.assertReadyForGC;
 import static sleeper.compaction.jobexecution.testutils.CompactSortedFilesTestUtils.createCompactSortedFiles;
 import static sleeper.compaction.jobexecution.testutils.CompactSortedFilesTestUtils.createSchemaWithTypesForKeyAndTwoValues;
@@ -83,6 +85,64 @@ class CompactSortedFilesIT extends CompactSortedFilesTestBase {
                 .containsExactly(dataHelper.expectedLeafFile(compactionJob.getOutputFile(), 200L, 0L, 199L));
     }
 
+    @Test
+    void shouldMergeSketchesOfInputFilesWhenWritingOutputSketches() throws Exception {
+        // Given
+        Schema schema = createSchemaWithTypesForKeyAndTwoValues(new LongType(), new LongType(), new LongType());
+        StateStore stateStore = inMemoryStateStoreWithFixedSinglePartition(schema);
+        CompactSortedFilesTestDataHelper dataHelper = new CompactSortedFilesTestDataHelper(schema, stateStore);
+
+        List<Record> data1 = keyAndTwoValuesSortedEvenLongs();
+        List<Record> data2 = keyAndTwoValuesSortedOddLongs();
+        dataHelper.writeLeafFileWithSketches(folderName + "/file1.parquet", data1, 0L, 198L);
+        dataHelper.writeLeafFileWithSketches(folderName + "/file2.parquet", data2, 1L, 199L);
+
+        CompactionJob compactionJob = compactionFactory().createCompactionJob(
+                dataHelper.allFileInfos(), dataHelper.singlePartition().getId());
+        dataHelper.addFilesToStateStoreForJob(compactionJob);
+
+        // When
+        CompactSortedFiles compactSortedFiles = createCompactSortedFiles(schema, compactionJob, stateStore, DEFAULT_TASK_ID);
+        compactSortedFiles.compact();
+
+        // Then
+        Sketches outputSketches = readSketches(schema, compactionJob.getOutputFile());
+        assertThat(outputSketches.getQuantilesSketch("key").getN()).isEqualTo(200);
+        assertThat(outputSketches.getQuantilesSketch("key").getMinValue()).isEqualTo(0L);
+        assertThat(outputSketches.getQuantilesSketch("key").getMaxValue()).isEqualTo(199L);
+    }
+
+    @Test
+    void shouldComputeOutputSketchesFromRecordsWhenInputSketchesAreMissing() throws Exception {
+        // Given
+        Schema schema = createSchemaWithTypesForKeyAndTwoValues(new LongType(), new LongType(), new LongType());
+        StateStore stateStore = inMemoryStateStoreWithFixedSinglePartition(schema);
+        CompactSortedFilesTestDataHelper dataHelper = new CompactSortedFilesTestDataHelper(schema, stateStore);
+
+        List<Record> data1 = keyAndTwoValuesSortedEvenLongs();
+        List<Record> data2 = keyAndTwoValuesSortedOddLongs();
+        dataHelper.writeLeafFileWithSketches(folderName + "/file1.parquet", data1, 0L, 198L);
+        dataHelper.writeLeafFile(folderName + "/file2.parquet", data2, 1L, 199L);
+
+        CompactionJob compactionJob = compactionFactory().createCompactionJob(
+                dataHelper.allFileInfos(), dataHelper.singlePartition().getId());
+        dataHelper.addFilesToStateStoreForJob(compactionJob);
+
+        // When
+        CompactSortedFiles compactSortedFiles = createCompactSortedFiles(schema, compactionJob, stateStore, DEFAULT_TASK_ID);
+        compactSortedFiles.compact();
+
+        // Then
+        Sketches expectedSketches = Sketches.from(schema);
+        combineSortedBySingleKey(data1, data2).forEach(record -> expectedSketches.update(schema, record));
+        Sketches outputSketches = readSketches(schema, compactionJob.getOutputFile());
+        assertThat(outputSketches.getQuantilesSketch("key").getN()).isEqualTo(200);
+        for (double rank = 0.0; rank <= 1.0; rank += 0.1) {
+            assertThat(outputSketches.getQuantilesSketch("key").getQuantile(rank))
+                    .isEqualTo(expectedSketches.getQuantilesSketch("key").getQuantile(rank));
+        }
+    }
+
     @Test
     void shouldGenerateTestData200EvenAndOddStrings() {
         // When
@@ -75,7 +75,8 @@ class CompactSortedFilesIteratorIT extends CompactSortedFilesTestBase {
 
         // Then
         //  - Read output files and check that they contain the right results
-        assertThat(summary.getRecordsRead()).isEqualTo(200L);
+        //  - The aged off records are skipped by the Parquet reader, so they are not counted as read
+        assertThat(summary.getRecordsRead()).isEqualTo(100L);
         assertThat(summary.getRecordsWritten()).isEqualTo(100L);
         assertThat(readDataFile(schema, compactionJob.getOutputFile())).isEqualTo(data1);
 
@@ -123,7 +124,8 @@ class CompactSortedFilesIteratorIT extends CompactSortedFilesTestBase {
 
         // Then
         //  - Read output files and check that they contain the right results
-        assertThat(summary.getRecordsRead()).isEqualTo(200L);
+        //  - The aged off records are skipped by the Parquet reader, so they are not counted as read
+        assertThat(summary.getRecordsRead()).isEqualTo(100L);
         assertThat(summary.getRecordsWritten()).isEqualTo(100L);
         assertThat(readDataFile(schema, compactionJob.getOutputFiles().getLeft())).isEqualTo(data1.subList(0, 50));
         assertThat(readDataFile(schema, compactionJob.getOutputFiles().getRight())).isEqualTo(data1.subList(50, 100));
@@ -21,11 +21,15 @@ import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.sqs.AmazonSQS;
 import com.amazonaws.services.sqs.AmazonSQSClientBuilder;
+import com.amazonaws.services.sqs.model.GetQueueAttributesRequest;
+import com.amazonaws.services.sqs.model.QueueAttributeName;
 import com.amazonaws.services.sqs.model.ReceiveMessageRequest;
 import com.amazonaws.services.sqs.model.ReceiveMessageResult;
 import com.amazonaws.services.sqs.model.SendMessageRequest;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.hadoop.ParquetWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.testcontainers.containers.localstack.LocalStackContainer;
@@ -50,6 +54,7 @@ import sleeper.configuration.properties.table.TablePropertiesProvider;
 import sleeper.core.CommonTestConstants;
 import sleeper.core.key.Key;
 import sleeper.core.record.Record;
+import sleeper.core.record.process.RecordsProcessedSummary;
 import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
 import sleeper.core.schema.type.LongType;
@@ -59,14 +64,19 @@ import sleeper.statestore.StateStore;
 import sleeper.statestore.StateStoreProvider;
 import sleeper.table.job.TableCreator;
 
-import java.util.Arrays;
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import static java.nio.file.Files.createTempDirectory;
 import static org.assertj.core.api.Assertions.assertThat;
 import static sleeper.configuration.properties.instance.CommonProperty.FILE_SYSTEM;
 import static sleeper.configuration.properties.instance.CommonProperty.ID;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_CONCURRENT_JOBS;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.COMPACTION_JOB_QUEUE_URL;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.CONFIG_BUCKET;
 import static sleeper.configuration.properties.table.TableProperty.COMPACTION_FILES_BATCH_SIZE;
@@ -80,6 +90,21 @@ public class CompactSortedFilesRunnerLocalStackIT {
     public static LocalStackContainer localStackContainer = new LocalStackContainer(DockerImageName.parse(CommonTestConstants.LOCALSTACK_DOCKER_IMAGE)).withServices(
             LocalStackContainer.Service.S3, LocalStackContainer.Service.SQS, LocalStackContainer.Service.DYNAMODB);
 
+    @TempDir
+    public java.nio.file.Path folder;
+
+    private final AmazonS3 s3 = createS3Client();
+    private final AmazonDynamoDB dynamoDB = createDynamoClient();
+    private final AmazonSQS sqsClient = createSQSClient();
+    private final Schema schema = createSchema();
+    private final String tableName = UUID.randomUUID().toString();
+    private InstanceProperties instanceProperties;
+    private TableProperties tableProperties;
+    private StateStoreProvider stateStoreProvider;
+    private TablePropertiesProvider tablePropertiesProvider;
+    private StateStore stateStore;
+    private String folderName;
+
     private static AmazonS3 createS3Client() {
         return buildAwsV1Client(localStackContainer, LocalStackContainer.Service.S3, AmazonS3ClientBuilder.standard());
     }
@@ -99,187 +124,242 @@ public class CompactSortedFilesRunnerLocalStackIT {
                 .build();
     }
 
-    private InstanceProperties createProperties(AmazonS3 s3) {
-        AmazonSQS sqs = createSQSClient();
+    private InstanceProperties createProperties() {
         String queue = UUID.randomUUID().toString();
-        String queueUrl = sqs.createQueue(queue).getQueueUrl();
-        sqs.shutdown();
+        String queueUrl = sqsClient.createQueue(queue).getQueueUrl();
 
-        InstanceProperties instanceProperties = new InstanceProperties();
-        instanceProperties.set(ID, UUID.randomUUID().toString());
-        instanceProperties.set(CONFIG_BUCKET, UUID.randomUUID().toString());
-        instanceProperties.set(COMPACTION_JOB_QUEUE_URL, queueUrl);
-        instanceProperties.set(FILE_SYSTEM, "");
+        InstanceProperties properties = new InstanceProperties();
+        properties.set(ID, UUID.randomUUID().toString());
+        properties.set(CONFIG_BUCKET, UUID.randomUUID().toString());
+        properties.set(COMPACTION_JOB_QUEUE_URL, queueUrl);
+        properties.set(FILE_SYSTEM, "");
 
-        s3.createBucket(instanceProperties.get(CONFIG_BUCKET));
+        s3.createBucket(properties.get(CONFIG_BUCKET));
 
-        return instanceProperties;
+        return properties;
     }
 
-    private TableProperties createTable(AmazonS3 s3, AmazonDynamoDB dynamoDB, InstanceProperties instanceProperties, String tableName, Schema schema) throws Exception {
-        TableProperties tableProperties = new TableProperties(instanceProperties);
-        tableProperties.set(TABLE_NAME, tableName);
-        tableProperties.setSchema(schema);
-        tableProperties.set(COMPACTION_FILES_BATCH_SIZE, "5");
+    private TableProperties createTable() throws Exception {
+        TableProperties properties = new TableProperties(instanceProperties);
+        properties.set(TABLE_NAME, tableName);
+        properties.setSchema(schema);
+        properties.set(COMPACTION_FILES_BATCH_SIZE, "5");
         TableCreator tableCreator = new TableCreator(s3, dynamoDB, instanceProperties);
-        tableCreator.createTable(tableProperties);
+        tableCreator.createTable(properties);
 
-        tableProperties.loadFromS3(s3, tableName);
-        return tableProperties;
+        properties.loadFromS3(s3, tableName);
+        return properties;
     }
 
-    @TempDir
-    public java.nio.file.Path folder;
+    @BeforeEach
+    void setUp() throws Exception {
+        instanceProperties = createProperties();
+        tableProperties = createTable();
+        stateStoreProvider = new StateStoreProvider(dynamoDB, instanceProperties);
+        tablePropertiesProvider = new TablePropertiesProvider(s3, instanceProperties);
+        stateStore = stateStoreProvider.getStateStore(tableProperties);
+        stateStore.initialise();
+        DynamoDBCompactionJobStatusStoreCreator.create(instanceProperties, dynamoDB);
+        DynamoDBCompactionTaskStatusStoreCreator.create(instanceProperties, dynamoDB);
+        folderName = createTempDirectory(folder, null).toString();
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3.shutdown();
+        dynamoDB.shutdown();
+        sqsClient.shutdown();
+    }
 
     @Test
     void shouldDeleteMessages() throws Exception {
         // Given
-        // - Clients
-        AmazonS3 s3 = createS3Client();
-        AmazonDynamoDB dynamoDB = createDynamoClient();
-        AmazonSQS sqsClient = createSQSClient();
-        // - Schema
-        Schema schema = createSchema();
-        // - Create table and state store
-        String tableName = UUID.randomUUID().toString();
-        InstanceProperties instanceProperties = createProperties(s3);
-        TableProperties tableProperties = createTable(s3, dynamoDB, instanceProperties, tableName, schema);
-        StateStoreProvider stateStoreProvider = new StateStoreProvider(dynamoDB, instanceProperties);
-        TablePropertiesProvider tablePropertiesProvider = new TablePropertiesProvider(s3, instanceProperties);
-        StateStore stateStore = stateStoreProvider.getStateStore(tableProperties);
-        stateStore.initialise();
-        DynamoDBCompactionJobStatusStoreCreator.create(instanceProperties, dynamoDB);
-        CompactionJobStatusStore jobStatusStore = CompactionJobStatusStoreFactory.getStatusStore(dynamoDB, instanceProperties);
-        DynamoDBCompactionTaskStatusStoreCreator.create(instanceProperties, dynamoDB);
+        CompactionJob compactionJob1 = createJobWithTwoFiles("job1");
+        CompactionJob compactionJob2 = createJobWithTwoFiles("job2");
+        sendJob(compactionJob1);
+        sendJob(compactionJob2);
+
+        // When
+        createRunner(CompactionJobStatusStoreFactory.getStatusStore(dynamoDB, instanceProperties)).run();
+
+        // Then
+        // - There should be no messages left on the queue
+        assertThat(receiveMessages().getMessages()).isEmpty();
+        // - Check DynamoDBStateStore has correct active files
+        assertThat(getActiveFilenames())
+                .containsExactlyInAnyOrder(compactionJob1.getOutputFile(), compactionJob2.getOutputFile());
+    }
+
+    @Test
+    void shouldRunJobsConcurrentlyUpToTheLimit() throws Exception {
+        // Given
+        instanceProperties.set(COMPACTION_TASK_MAX_CONCURRENT_JOBS, "2");
+        List<String> outputFiles = new ArrayList<>();
+        for (int i = 1; i <= 4; i++) {
+            CompactionJob job = createJobWithTwoFiles("job" + i);
+            sendJob(job);
+            outputFiles.add(job.getOutputFile());
+        }
+        JobCallbacksStatusStore jobStatusStore = new JobCallbacksStatusStore();
+
+        // When
+        createRunner(jobStatusStore).run();
+
+        // Then
+        assertThat(receiveMessages().getMessages()).isEmpty();
+        assertThat(getActiveFilenames()).containsExactlyInAnyOrderElementsOf(outputFiles);
+        assertThat(jobStatusStore.getMaxJobsRunning()).isBetween(1, 2);
+        assertThat(jobStatusStore.getJobsFinished()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldNotReceiveMessageWhileNoJobSlotIsFreeAndLeaveItOnQueueWhenStopped() throws Exception {
+        // Given
+        instanceProperties.set(COMPACTION_TASK_MAX_CONCURRENT_JOBS, "1");
+        CompactionJob compactionJob1 = createJobWithTwoFiles("job1");
+        CompactionJob compactionJob2 = createJobWithTwoFiles("job2");
+        sendJob(compactionJob1);
+        sendJob(compactionJob2);
+        List<String> messagesNotVisibleWhileJobRunning = new ArrayList<>();
+        List<String> startedJobIds = new ArrayList<>();
+        JobCallbacksStatusStore jobStatusStore = new JobCallbacksStatusStore();
+        CompactSortedFilesRunner runner = createRunner(jobStatusStore);
+        jobStatusStore.onJobStarted(job -> {
+            startedJobIds.add(job.getId());
+            // Give the runner time to receive another message, if it would do so while the job is running
+            sleep(2000);
+            messagesNotVisibleWhileJobRunning.add(getMessagesNotVisible());
+            runner.stop();
+        });
+
+        // When
+        runner.run();
+
+        // Then
+        assertThat(startedJobIds).hasSize(1);
+        assertThat(messagesNotVisibleWhileJobRunning).containsExactly("1");
+        CompactionJob finishedJob = startedJobIds.get(0).equals("job1") ? compactionJob1 : compactionJob2;
+        CompactionJob leftJob = finishedJob == compactionJob1 ? compactionJob2 : compactionJob1;
+        assertThat(getActiveFilenames()).containsExactlyInAnyOrder(
+                finishedJob.getOutputFile(), leftJob.getInputFiles().get(0), leftJob.getInputFiles().get(1));
+        assertThat(receiveMessages().getMessages()).hasSize(1);
+    }
+
+    private CompactSortedFilesRunner createRunner(CompactionJobStatusStore jobStatusStore) {
         CompactionTaskStatusStore taskStatusStore = CompactionTaskStatusStoreFactory.getStatusStore(dynamoDB, instanceProperties);
-        // - Create four files of sorted data
-        String folderName = createTempDirectory(folder, null).toString();
-        String file1 = folderName + "/file1.parquet";
-        String file2 = folderName + "/file2.parquet";
-        String file3 = folderName + "/file3.parquet";
-        String file4 = folderName + "/file4.parquet";
-        FileInfo fileInfo1 = FileInfo.builder()
-                .rowKeyTypes(new LongType())
-                .filename(file1)
-                .fileStatus(FileInfo.FileStatus.ACTIVE)
-                .partitionId("1")
-                .numberOfRecords(100L)
-                .minRowKey(Key.create(0L))
-                .maxRowKey(Key.create(198L))
-                .build();
-        FileInfo fileInfo2 = FileInfo.builder()
-                .rowKeyTypes(new LongType())
-                .filename(file2)
-                .fileStatus(FileInfo.FileStatus.ACTIVE)
-                .partitionId("1")
-                .numberOfRecords(100L)
-                .minRowKey(Key.create(1L))
-                .maxRowKey(Key.create(199L))
-                .build();
-        FileInfo fileInfo3 = FileInfo.builder()
-                .rowKeyTypes(new LongType())
-                .filename(file3)
-                .fileStatus(FileInfo.FileStatus.ACTIVE)
-                .partitionId("1")
-                .numberOfRecords(100L)
-                .minRowKey(Key.create(0L))
-                .maxRowKey(Key.create(198L))
-                .build();
-        FileInfo fileInfo4 = FileInfo.builder()
+        return new CompactSortedFilesRunner(
+                instanceProperties, ObjectFactory.noUserJars(),
+                tablePropertiesProvider, PropertiesReloader.neverReload(), stateStoreProvider, jobStatusStore, taskStatusStore,
+                "task-id", instanceProperties.get(COMPACTION_JOB_QUEUE_URL), sqsClient, null, CompactionTaskType.COMPACTION,
+                1, 5);
+    }
+
+    private CompactionJob createJobWithTwoFiles(String jobId) throws Exception {
+        String file1 = folderName + "/" + jobId + "-file1.parquet";
+        String file2 = folderName + "/" + jobId + "-file2.parquet";
+        // The first file holds even keys and the second holds odd keys
+        stateStore.addFiles(List.of(writeFile(file1, 0L), writeFile(file2, 1L)));
+        return CompactionJob.builder()
+                .tableName(tableName)
+                .jobId(jobId)
+                .partitionId("root")
+                .dimension(0)
+                .inputFiles(List.of(file1, file2))
+                .isSplittingJob(false)
+                .outputFile(folderName + "/" + jobId + "-output.parquet").build();
+    }
+
+    private FileInfo writeFile(String filename, long firstKey) throws IOException {
+        try (ParquetWriter<Record> writer = ParquetRecordWriterFactory.createParquetRecordWriter(new Path(filename), schema)) {
+            for (int i = 0; i < 100; i++) {
+                Record record = new Record();
+                record.put("key", firstKey + 2L * i);
+                record.put("value1", firstKey + 2L * i);
+                record.put("value2", 987654321L);
+                writer.write(record);
+            }
+        }
+        return FileInfo.builder()
                 .rowKeyTypes(new LongType())
-                .filename(file4)
+                .filename(filename)
                 .fileStatus(FileInfo.FileStatus.ACTIVE)
                 .partitionId("1")
                 .numberOfRecords(100L)
-                .minRowKey(Key.create(1L))
-                .maxRowKey(Key.create(199L))
+                .minRowKey(Key.create(firstKey))
+                .maxRowKey(Key.create(firstKey + 198L))
                 .build();
-        ParquetWriter<Record> writer1 = ParquetRecordWriterFactory.createParquetRecordWriter(new Path(file1), schema);
-        for (int i = 0; i < 100; i++) {
-            Record record = new Record();
-            record.put("key", (long) 2 * i);
-            record.put("value1", (long) 2 * i);
-            record.put("value2", 987654321L);
-            writer1.write(record);
+    }
+
+    private void sendJob(CompactionJob job) throws IOException {
+        String json = new CompactionJobSerDe(tablePropertiesProvider).serialiseToString(job);
+        sqsClient.sendMessage(new SendMessageRequest()
+                .withQueueUrl(instanceProperties.get(COMPACTION_JOB_QUEUE_URL))
+                .withMessageBody(json));
+    }
+
+    private ReceiveMessageResult receiveMessages() {
+        return sqsClient.receiveMessage(new ReceiveMessageRequest()
+                .withQueueUrl(instanceProperties.get(COMPACTION_JOB_QUEUE_URL))
+                .withMaxNumberOfMessages(10)
+                .withWaitTimeSeconds(2));
+    }
+
+    private String getMessagesNotVisible() {
+        return sqsClient.getQueueAttributes(new GetQueueAttributesRequest()
+                        .withQueueUrl(instanceProperties.get(COMPACTION_JOB_QUEUE_URL))
+                        .withAttributeNames(QueueAttributeName.ApproximateNumberOfMessagesNotVisible))
+                .getAttributes().get(QueueAttributeName.ApproximateNumberOfMessagesNotVisible.toString());
+    }
+
+    private List<String> getActiveFilenames() throws Exception {
+        List<String> filenames = new ArrayList<>();
+        for (FileInfo file : stateStoreProvider.getStateStore(tableName, tablePropertiesProvider).getActiveFiles()) {
+            filenames.add(file.getFilename());
         }
-        writer1.close();
-        ParquetWriter<Record> writer2 = ParquetRecordWriterFactory.createParquetRecordWriter(new Path(file2), schema);
-        for (int i = 0; i < 100; i++) {
-            Record record = new Record();
-            record.put("key", (long) 2 * i + 1);
-            record.put("value1", 1001L);
-            record.put("value2", 123456789L);
-            writer2.write(record);
+        return filenames;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
         }
-        writer2.close();
-        ParquetWriter<Record> writer3 = ParquetRecordWriterFactory.createParquetRecordWriter(new Path(file3), schema);
-        for (int i = 0; i < 100; i++) {
-            Record record = new Record();
-            record.put("key", (long) 2 * i);
-            record.put("value1", (long) 2 * i);
-            record.put("value2", 987654321L);
-            writer3.write(record);
+    }
+
+    /**
+     * Tracks how many jobs run at once, and lets a test act when a job starts.
+     */
+    private static class JobCallbacksStatusStore implements CompactionJobStatusStore {
+        private final AtomicInteger jobsRunning = new AtomicInteger();
+        private final AtomicInteger maxJobsRunning = new AtomicInteger();
+        private final AtomicInteger jobsFinished = new AtomicInteger();
+        private Consumer<CompactionJob> onJobStarted = job -> {
+        };
+
+        void onJobStarted(Consumer<CompactionJob> onJobStarted) {
+            this.onJobStarted = onJobStarted;
         }
-        writer3.close();
-        ParquetWriter<Record> writer4 = ParquetRecordWriterFactory.createParquetRecordWriter(new Path(file4), schema);
-        for (int i = 0; i < 100; i++) {
-            Record record = new Record();
-            record.put("key", (long) 2 * i + 1);
-            record.put("value1", 1001L);
-            record.put("value2", 123456789L);
-            writer4.write(record);
+
+        @Override
+        public void jobStarted(CompactionJob job, Instant startTime, String taskId) {
+            maxJobsRunning.accumulateAndGet(jobsRunning.incrementAndGet(), Math::max);
+            onJobStarted.accept(job);
         }
-        writer4.close();
-        // - Update Dynamo state store with details of files
-        stateStore.addFiles(Arrays.asList(fileInfo1, fileInfo2, fileInfo3, fileInfo4));
-        // - Create two compaction jobs and put on queue
-        CompactionJob compactionJob1 = CompactionJob.builder()
-                .tableName(tableName)
-                .jobId("job1")
-                .partitionId("root")
-                .dimension(0)
-                .inputFiles(Arrays.asList(file1, file2))
-                .isSplittingJob(false)
-                .outputFile(folderName + "/output1.parquet").build();
-        CompactionJob compactionJob2 = CompactionJob.builder()
-                .tableName(tableName)
-                .jobId("job2")
-                .partitionId("root")
-                .dimension(0)
-                .inputFiles(Arrays.asList(file3, file4))
-                .isSplittingJob(false)
-                .outputFile(folderName + "/output2.parquet").build();
-        CompactionJobSerDe jobSerDe = new CompactionJobSerDe(tablePropertiesProvider);
-        String job1Json = jobSerDe.serialiseToString(compactionJob1);
-        String job2Json = jobSerDe.serialiseToString(compactionJob2);
-        SendMessageRequest sendMessageRequest = new SendMessageRequest()
-                .withQueueUrl(instanceProperties.get(COMPACTION_JOB_QUEUE_URL))
-                .withMessageBody(job1Json);
-        sqsClient.sendMessage(sendMessageRequest);
-        sendMessageRequest = new SendMessageRequest()
-                .withQueueUrl(instanceProperties.get(COMPACTION_JOB_QUEUE_URL))
-                .withMessageBody(job2Json);
-        sqsClient.sendMessage(sendMessageRequest);
 
-        // When
-        CompactSortedFilesRunner runner = new CompactSortedFilesRunner(
-                instanceProperties, ObjectFactory.noUserJars(),
-                tablePropertiesProvider, PropertiesReloader.neverReload(), stateStoreProvider, jobStatusStore, taskStatusStore,
-                "task-id", instanceProperties.get(COMPACTION_JOB_QUEUE_URL), sqsClient, null, CompactionTaskType.COMPACTION,
-                1, 5);
-        runner.run();
+        @Override
+        public void jobFinished(CompactionJob compactionJob, RecordsProcessedSummary summary, String taskId) {
+            jobsRunning.decrementAndGet();
+            jobsFinished.incrementAndGet();
+        }
 
-        // Then
-        // - There should be no messages left on the queue
-        ReceiveMessageRequest receiveMessageRequest = new ReceiveMessageRequest()
-                .withQueueUrl(instanceProperties.get(COMPACTION_JOB_QUEUE_URL))
-                .withWaitTimeSeconds(2);
-        ReceiveMessageResult result = sqsClient.receiveMessage(receiveMessageRequest);
-        assertThat(result.getMessages()).isEmpty();
-        // - Check DynamoDBStateStore has correct active files
-        List<FileInfo> activeFiles = stateStoreProvider.getStateStore(tableName, tablePropertiesProvider).getActiveFiles();
-        assertThat(activeFiles)
-                .extracting(FileInfo::getFilename)
-                .containsExactlyInAnyOrder(compactionJob1.getOutputFile(), compactionJob2.getOutputFile());
+        int getMaxJobsRunning() {
+            return maxJobsRunning.get();
+        }
+
+        int getJobsFinished() {
+            return jobsFinished.get();
+        }
     }
 }
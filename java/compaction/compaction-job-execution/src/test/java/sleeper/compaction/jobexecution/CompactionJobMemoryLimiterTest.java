@@ -0,0 +1,110 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.jobexecution;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.compaction.job.CompactionJob;
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.configuration.properties.InstancePropertiesTestHelper.createTestInstanceProperties;
+import static sleeper.configuration.properties.table.TablePropertiesTestHelper.createTestTableProperties;
+import static sleeper.configuration.properties.table.TableProperty.ROW_GROUP_SIZE;
+import static sleeper.core.schema.SchemaTestHelper.schemaWithKey;
+
+public class CompactionJobMemoryLimiterTest {
+    private static final long MB = 1024L * 1024L;
+
+    private final InstanceProperties instanceProperties = createTestInstanceProperties();
+    private final TableProperties tableProperties = createTestTableProperties(instanceProperties, schemaWithKey("key"));
+
+    @Test
+    void shouldEstimateOneRowGroupPerInputAndOutputFile() {
+        // Given
+        tableProperties.set(ROW_GROUP_SIZE, String.valueOf(8 * MB));
+        CompactionJob job = CompactionJob.builder()
+                .jobId("test-job")
+                .inputFiles(List.of("file1", "file2", "file3"))
+                .outputFile("output")
+                .isSplittingJob(false)
+                .build();
+
+        // When / Then
+        assertThat(CompactionJobMemoryLimiter.estimateBytes(job, tableProperties))
+                .isEqualTo(32 * MB);
+    }
+
+    @Test
+    void shouldEstimateTwoOutputFilesForSplittingJob() {
+        // Given
+        tableProperties.set(ROW_GROUP_SIZE, String.valueOf(8 * MB));
+        CompactionJob job = CompactionJob.builder()
+                .jobId("test-job")
+                .inputFiles(List.of("file1", "file2"))
+                .isSplittingJob(true)
+                .build();
+
+        // When / Then
+        assertThat(CompactionJobMemoryLimiter.estimateBytes(job, tableProperties))
+                .isEqualTo(32 * MB);
+    }
+
+    @Test
+    void shouldWaitForMemoryToBeReleased() throws Exception {
+        // Given
+        CompactionJobMemoryLimiter limiter = new CompactionJobMemoryLimiter(10 * MB);
+        CompactionJobMemoryLimiter.Reservation first = limiter.reserve(6 * MB);
+
+        // When
+        CompletableFuture<CompactionJobMemoryLimiter.Reservation> second = CompletableFuture.supplyAsync(() -> reserve(limiter, 6 * MB));
+
+        // Then
+        assertThat(second).isNotCompleted();
+        assertThat(limiter.getAvailableBytes()).isEqualTo(4 * MB);
+        first.close();
+        second.get(10, TimeUnit.SECONDS).close();
+        assertThat(limiter.getAvailableBytes()).isEqualTo(10 * MB);
+    }
+
+    @Test
+    void shouldReserveWholeLimitForJobLargerThanLimit() throws Exception {
+        // Given
+        CompactionJobMemoryLimiter limiter = new CompactionJobMemoryLimiter(10 * MB);
+
+        // When
+        CompactionJobMemoryLimiter.Reservation reservation = limiter.reserve(100 * MB);
+
+        // Then
+        assertThat(limiter.getAvailableBytes()).isZero();
+        reservation.close();
+        assertThat(limiter.getAvailableBytes()).isEqualTo(10 * MB);
+    }
+
+    private static CompactionJobMemoryLimiter.Reservation reserve(CompactionJobMemoryLimiter limiter, long bytes) {
+        try {
+            return limiter.reserve(bytes);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.compaction.jobexecution;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.compaction.task.CompactionTaskFinishedStatus;
+import sleeper.compaction.task.CompactionTaskStatus;
+import sleeper.compaction.task.CompactionTaskType;
+import sleeper.compaction.testutils.CompactionTaskStatusStoreInMemory;
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.core.record.process.RecordsProcessed;
+import sleeper.core.record.process.RecordsProcessedSummary;
+import sleeper.job.common.QueueMessageCount;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.configuration.properties.InstancePropertiesTestHelper.createTestInstanceProperties;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_MAX_CONCURRENT_JOBS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_SCALING_HISTORY_SECS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_SCALING_SCALE_DOWN_DELAY_SECS;
+import static sleeper.configuration.properties.instance.CompactionProperty.COMPACTION_TASK_SCALING_TARGET_DRAIN_SECS;
+import static sleeper.configuration.properties.instance.CompactionProperty.MAXIMUM_CONCURRENT_COMPACTION_TASKS;
+import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.COMPACTION_JOB_QUEUE_URL;
+import static sleeper.job.common.QueueMessageCount.approximateNumberVisibleAndNotVisible;
+
+public class CompactionTaskScalingControllerTest {
+    private static final Instant START_TIME = Instant.parse("2023-08-01T12:00:00Z");
+
+    private final InstanceProperties instanceProperties = createTestInstanceProperties();
+    private final CompactionTaskStatusStoreInMemory taskStatusStore = new CompactionTaskStatusStoreInMemory();
+
+    CompactionTaskScalingControllerTest() {
+        instanceProperties.set(MAXIMUM_CONCURRENT_COMPACTION_TASKS, "100");
+        instanceProperties.set(COMPACTION_TASK_SCALING_TARGET_DRAIN_SECS, "600");
+        instanceProperties.set(COMPACTION_TASK_SCALING_HISTORY_SECS, "3600");
+        instanceProperties.set(COMPACTION_TASK_SCALING_SCALE_DOWN_DELAY_SECS, "300");
+    }
+
+    @Test
+    void shouldTargetOneTaskPerJobWhenNoHistory() {
+        // Given
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(10, 0)),
+                List.of(START_TIME));
+
+        // When
+        CompactionTaskScalingController.Decision decision = controller.decide(2);
+
+        // Then
+        assertThat(decision.getTargetTasks()).isEqualTo(12);
+        assertThat(decision.getTasksToCreate(2)).isEqualTo(10);
+    }
+
+    @Test
+    void shouldTargetEnoughTasksToRunEveryJobAtOnceWhenNoHistoryAndTasksRunMultipleJobs() {
+        // Given
+        instanceProperties.set(COMPACTION_TASK_MAX_CONCURRENT_JOBS, "3");
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(10, 0)),
+                List.of(START_TIME));
+
+        // When
+        CompactionTaskScalingController.Decision decision = controller.decide(2);
+
+        // Then
+        assertThat(decision.getTargetTasks()).isEqualTo(6);
+        assertThat(decision.getTasksToCreate(2)).isEqualTo(4);
+    }
+
+    @Test
+    void shouldComputeTasksToRunJobsAtOnce() {
+        assertThat(List.of(
+                CompactionTaskScalingController.tasksToRunJobsAtOnce(0, 3),
+                CompactionTaskScalingController.tasksToRunJobsAtOnce(9, 3),
+                CompactionTaskScalingController.tasksToRunJobsAtOnce(10, 3),
+                CompactionTaskScalingController.tasksToRunJobsAtOnce(10, 1)))
+                .containsExactly(0, 3, 4, 10);
+    }
+
+    @Test
+    void shouldTargetEnoughTasksToDrainQueueInTargetTime() {
+        // Given jobs take 1 minute each, so each task can run 10 jobs in the target drain time
+        finishedTask(Duration.ofMinutes(10), 10);
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(95, 0)),
+                List.of(START_TIME));
+
+        // When
+        CompactionTaskScalingController.Decision decision = controller.decide(0);
+
+        // Then
+        assertThat(decision.getTargetTasks()).isEqualTo(10);
+    }
+
+    @Test
+    void shouldIncludeForecastArrivalsInTarget() {
+        // Given jobs take 1 minute each, and 60 jobs arrive in the minute between decisions
+        finishedTask(Duration.ofMinutes(10), 10);
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(0, 0),
+                        approximateNumberVisibleAndNotVisible(60, 0)),
+                List.of(START_TIME, START_TIME.plus(Duration.ofMinutes(1))));
+
+        // When
+        controller.decide(0);
+        CompactionTaskScalingController.Decision decision = controller.decide(0);
+
+        // Then the smoothed arrival rate is 0.5 jobs per second, so 300 more jobs are expected in the drain time
+        assertThat(decision.getTargetTasks()).isEqualTo(36);
+    }
+
+    @Test
+    void shouldTargetFewerTasksWhenEachTaskRunsMultipleJobsAtOnce() {
+        // Given jobs take 1 minute each, and each task runs 2 at once, so it can run 20 jobs in the target drain time
+        instanceProperties.set(COMPACTION_TASK_MAX_CONCURRENT_JOBS, "2");
+        finishedTask(Duration.ofMinutes(10), 10);
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(95, 0)),
+                List.of(START_TIME));
+
+        // When
+        CompactionTaskScalingController.Decision decision = controller.decide(0);
+
+        // Then
+        assertThat(decision.getTargetTasks()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldIncludeJobsFinishedByRunningTasksRunningMultipleJobsInArrivalRate() {
+        // Given jobs take 1 minute each, and 5 tasks each running 2 jobs at once finish 10 jobs between decisions
+        instanceProperties.set(COMPACTION_TASK_MAX_CONCURRENT_JOBS, "2");
+        finishedTask(Duration.ofMinutes(10), 10);
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(90, 10),
+                        approximateNumberVisibleAndNotVisible(90, 10)),
+                List.of(START_TIME, START_TIME.plus(Duration.ofMinutes(1))));
+
+        // When
+        controller.decide(5);
+        CompactionTaskScalingController.Decision decision = controller.decide(5);
+
+        // Then 10 jobs arrived in the minute, so the smoothed arrival rate is 1/12 jobs per second, and 50 more jobs
+        // are expected in the drain time
+        assertThat(decision.getTargetTasks()).isEqualTo(8);
+    }
+
+    @Test
+    void shouldNotTargetMoreTasksThanNeededToRunEveryJobAtOnce() {
+        // Given jobs take 20 minutes each, so each task running 2 jobs at once can run 1 job in the target drain time
+        instanceProperties.set(COMPACTION_TASK_MAX_CONCURRENT_JOBS, "2");
+        finishedTask(Duration.ofMinutes(20), 1);
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(3, 0)),
+                List.of(START_TIME));
+
+        // When
+        CompactionTaskScalingController.Decision decision = controller.decide(0);
+
+        // Then
+        assertThat(decision.getTargetTasks()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldOnlyScaleDownAfterDelay() {
+        // Given jobs take 1 minute each, and no more jobs arrive once the queue has gone down
+        finishedTask(Duration.ofMinutes(10), 10);
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(100, 0),
+                        approximateNumberVisibleAndNotVisible(10, 0),
+                        approximateNumberVisibleAndNotVisible(10, 0),
+                        approximateNumberVisibleAndNotVisible(10, 0)),
+                List.of(START_TIME,
+                        START_TIME.plus(Duration.ofMinutes(10)),
+                        START_TIME.plus(Duration.ofMinutes(14)),
+                        START_TIME.plus(Duration.ofMinutes(15))));
+
+        // When
+        int scaledUp = controller.decide(0).getTargetTasks();
+        int firstBelow = controller.decide(0).getTargetTasks();
+        int stillBelowBeforeDelay = controller.decide(0).getTargetTasks();
+        int belowAfterDelay = controller.decide(0).getTargetTasks();
+
+        // Then
+        assertThat(List.of(scaledUp, firstBelow, stillBelowBeforeDelay, belowAfterDelay))
+                .containsExactly(10, 10, 10, 1);
+    }
+
+    @Test
+    void shouldNotStartTasksForTargetHeldWhenQueueEmptiesDuringScaleDownDelay() {
+        // Given jobs take 1 minute each, and the queue empties after the tasks were started
+        finishedTask(Duration.ofMinutes(10), 10);
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(100, 0),
+                        approximateNumberVisibleAndNotVisible(0, 0),
+                        approximateNumberVisibleAndNotVisible(0, 0)),
+                List.of(START_TIME,
+                        START_TIME.plus(Duration.ofMinutes(2)),
+                        START_TIME.plus(Duration.ofMinutes(8))));
+
+        // When
+        CompactionTaskScalingController.Decision scaledUp = controller.decide(0);
+        CompactionTaskScalingController.Decision emptyDuringDelay = controller.decide(0);
+        CompactionTaskScalingController.Decision emptyAfterDelay = controller.decide(0);
+
+        // Then no tasks are started while the delay holds the target, but the EC2 capacity is kept for it
+        assertThat(scaledUp.getTasksToCreate(0)).isEqualTo(10);
+        assertThat(emptyDuringDelay.getForecastTasks()).isZero();
+        assertThat(emptyDuringDelay.getTargetTasks()).isEqualTo(10);
+        assertThat(emptyDuringDelay.getTasksToCreate(0)).isZero();
+        assertThat(emptyDuringDelay.getTasksToKeepCapacityFor(0)).isEqualTo(10);
+        assertThat(emptyAfterDelay.getTargetTasks()).isZero();
+        assertThat(emptyAfterDelay.getTasksToKeepCapacityFor(0)).isZero();
+    }
+
+    @Test
+    void shouldOnlyStartTasksForForecastDuringScaleDownDelay() {
+        // Given jobs take 1 minute each, and the queue has gone down
+        finishedTask(Duration.ofMinutes(10), 10);
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(100, 0),
+                        approximateNumberVisibleAndNotVisible(10, 0)),
+                List.of(START_TIME,
+                        START_TIME.plus(Duration.ofMinutes(10))));
+
+        // When
+        controller.decide(0);
+        CompactionTaskScalingController.Decision decision = controller.decide(0);
+
+        // Then
+        assertThat(decision.getForecastTasks()).isEqualTo(1);
+        assertThat(decision.getTargetTasks()).isEqualTo(10);
+        assertThat(decision.getTasksToCreate(0)).isEqualTo(1);
+        assertThat(decision.getTasksToKeepCapacityFor(0)).isEqualTo(10);
+    }
+
+    @Test
+    void shouldNotTargetMoreThanMaximumTasks() {
+        // Given
+        instanceProperties.set(MAXIMUM_CONCURRENT_COMPACTION_TASKS, "5");
+        CompactionTaskScalingController controller = controller(
+                List.of(approximateNumberVisibleAndNotVisible(10, 0)),
+                List.of(START_TIME));
+
+        // When
+        CompactionTaskScalingController.Decision decision = controller.decide(0);
+
+        // Then
+        assertThat(decision.getTargetTasks()).isEqualTo(5);
+    }
+
+    private CompactionTaskScalingController controller(List<QueueMessageCount> messageCounts, List<Instant> times) {
+        Iterator<QueueMessageCount> messageCountIterator = messageCounts.iterator();
+        Iterator<Instant> timeIterator = times.iterator();
+        return new CompactionTaskScalingController(
+                queueUrl -> messageCountIterator.next(), instanceProperties.get(COMPACTION_JOB_QUEUE_URL),
+                taskStatusStore, CompactionTaskType.COMPACTION, instanceProperties, timeIterator::next);
+    }
+
+    private void finishedTask(Duration timeSpentOnJobs, int jobs) {
+        Instant taskStartTime = START_TIME.minus(Duration.ofMinutes(30));
+        CompactionTaskFinishedStatus.Builder finishedStatus = CompactionTaskFinishedStatus.builder();
+        Duration jobDuration = timeSpentOnJobs.dividedBy(jobs);
+        for (int i = 0; i < jobs; i++) {
+            Instant jobStartTime = taskStartTime.plus(jobDuration.multipliedBy(i));
+            finishedStatus.addJobSummary(new RecordsProcessedSummary(
+                    new RecordsProcessed(100, 100), jobStartTime, jobStartTime.plus(jobDuration)));
+        }
+        taskStatusStore.taskStartedAndFinished(CompactionTaskStatus.builder()
+                .taskId(UUID.randomUUID().toString())
+                .startTime(taskStartTime)
+                .finished(taskStartTime.plus(timeSpentOnJobs), finishedStatus)
+                .build());
+    }
+}
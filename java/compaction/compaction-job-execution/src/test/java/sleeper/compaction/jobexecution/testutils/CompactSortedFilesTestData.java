@@ -16,6 +16,8 @@
 package sleeper.compaction.jobexecution.testutils;
 
 import com.facebook.collections.ByteArray;
+import org.apache.commons.io.FilenameUtils;
+import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.hadoop.ParquetWriter;
 
@@ -24,6 +26,8 @@ import sleeper.core.schema.Schema;
 import sleeper.io.parquet.record.ParquetReaderIterator;
 import sleeper.io.parquet.record.ParquetRecordReader;
 import sleeper.io.parquet.record.ParquetRecordWriterFactory;
+import sleeper.sketches.Sketches;
+import sleeper.sketches.s3.SketchesSerDeToS3;
 
 import java.io.IOException;
 import java.util.ArrayList;
@@ -169,6 +173,23 @@ public class CompactSortedFilesTestData {
         }
     }
 
+    public static void writeDataFileWithSketches(Schema schema, String filename, List<Record> records) throws IOException {
+        writeDataFile(schema, filename, records);
+        Sketches sketches = Sketches.from(schema);
+        for (Record record : records) {
+            sketches.update(schema, record);
+        }
+        new SketchesSerDeToS3(schema).saveToHadoopFS(sketchesPath(filename), sketches, new Configuration());
+    }
+
+    public static Sketches readSketches(Schema schema, String filename) throws IOException {
+        return new SketchesSerDeToS3(schema).loadFromHadoopFS(sketchesPath(filename), new Configuration());
+    }
+
+    private static Path sketchesPath(String filename) {
+        return new Path(FilenameUtils.removeExtension(filename) + ".sketches");
+    }
+
     public static List<Record> readDataFile(Schema schema, String filename) throws IOException {
         List<Record> results = new ArrayList<>();
         try (ParquetReaderIterator reader = new ParquetReaderIterator(new ParquetRecordReader(new Path(filename), schema))) {
@@ -30,6 +30,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import static sleeper.compaction.jobexecution.testutils.CompactSortedFilesTestData.writeDataFile;
+import static sleeper.compaction.jobexecution.testutils.CompactSortedFilesTestData.writeDataFileWithSketches;
 
 public class CompactSortedFilesTestDataHelper {
     private final Schema schema;
@@ -52,6 +53,13 @@ public class CompactSortedFilesTestDataHelper {
         return fileInfo;
     }
 
+    public FileInfo writeLeafFileWithSketches(String filename, List<Record> records, Object min, Object max) throws IOException {
+        FileInfo fileInfo = fileInfoFactory.leafFile(filename, records.size(), min, max);
+        writeDataFileWithSketches(schema, filename, records);
+        fileInfos.add(fileInfo);
+        return fileInfo;
+    }
+
     public FileInfo writeRootFile(String filename, List<Record> records, Object min, Object max) throws IOException {
         FileInfo fileInfo = fileInfoFactory.rootFile(filename, records.size(), min, max);
         writeDataFile(schema, filename, records);
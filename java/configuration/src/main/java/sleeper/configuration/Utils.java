@@ -150,6 +150,20 @@ public class Utils {
         return parseAndCheckInteger(string, num -> num >= 1 && num <= maxValue);
     }
 
+    public static boolean isIntGtEqValue(String string, int minValue) {
+        if (!isNonNullNonEmptyString(string)) {
+            return false;
+        }
+        return parseAndCheckInteger(string, num -> num >= minValue);
+    }
+
+    public static boolean isPositiveDoubleLtEqValue(String string, double maxValue) {
+        if (!isNonNullNonEmptyString(string)) {
+            return false;
+        }
+        return parseAndCheckDouble(string, num -> num > 0 && num <= maxValue);
+    }
+
     public static boolean isValidArchitecture(String input) {
         if (input == null) {
             return false;
@@ -23,6 +23,11 @@ import sleeper.configuration.properties.SleeperPropertyIndex;
 import java.util.List;
 
 public interface AsyncIngestPartitionFileWriterProperty {
+    /**
+     * S3 requires every part of a multipart upload but the last to be at least this size.
+     */
+    int MIN_STREAMING_INGEST_PART_SIZE_BYTES = 5 * 1024 * 1024;
+
     UserDefinedInstanceProperty ASYNC_INGEST_CLIENT_TYPE = Index.propertyBuilder("sleeper.ingest.async.client.type")
             .description("The implementation of the async S3 client to use for upload during ingest.\n" +
                     "Valid values are 'java' or 'crt'. This determines the implementation of S3AsyncClient that gets used.\n" +
@@ -48,6 +53,23 @@ public interface AsyncIngestPartitionFileWriterProperty {
             .defaultValue("10")
             .validationPredicate(Utils::isPositiveDouble)
             .propertyGroup(InstancePropertyGroup.INGEST).build();
+    UserDefinedInstanceProperty STREAMING_INGEST_PART_SIZE_BYTES = Index.propertyBuilder("sleeper.ingest.streaming.part.size.bytes")
+            .description("The part size in bytes to use for multipart uploads when streaming partition files to S3. S3 requires " +
+                    "every part but the last to be at least 5MB.\n" +
+                    "(streaming partition file writer only) [16MB]")
+            .defaultValue("16777216") // 16M
+            .validationPredicate(value -> Utils.isIntGtEqValue(value, MIN_STREAMING_INGEST_PART_SIZE_BYTES))
+            .propertyGroup(InstancePropertyGroup.INGEST).build();
+    UserDefinedInstanceProperty STREAMING_INGEST_MAX_PARTS_IN_FLIGHT = Index.propertyBuilder("sleeper.ingest.streaming.max.parts.in.flight")
+            .description("The maximum number of parts that may be held in memory waiting to be uploaded when streaming partition " +
+                    "files to S3. Once this is reached, writing a partition file waits for an upload to finish. The buffers of " +
+                    "uploaded parts are reused. Each partition file being written also holds one part that it is " +
+                    "filling, so the memory used for uploads is bounded by the part size multiplied by this number plus " +
+                    "the number of partition files open at once.\n" +
+                    "(streaming partition file writer only)")
+            .defaultValue("8")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.INGEST).build();
 
     static List<UserDefinedInstanceProperty> getAll() {
         return Index.INSTANCE.getAll();
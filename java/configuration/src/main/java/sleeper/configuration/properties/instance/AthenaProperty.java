@@ -45,6 +45,13 @@ public interface AthenaProperty {
             .validationPredicate(Utils::isValidLambdaTimeout)
             .propertyGroup(InstancePropertyGroup.ATHENA)
             .runCDKDeployWhenChanged(true).build();
+    UserDefinedInstanceProperty ATHENA_RECORDS_PER_SPLIT = Index.propertyBuilder("sleeper.athena.records.per.split")
+            .description("The number of records in a file above which the simple handler splits reading that file " +
+                    "between several record handler invocations. Each split reads a range of row groups in the file, " +
+                    "with roughly this many records in it.")
+            .defaultValue("10000000")
+            .validationPredicate(Utils::isPositiveLong)
+            .propertyGroup(InstancePropertyGroup.ATHENA).build();
 
     static List<UserDefinedInstanceProperty> getAll() {
         return Index.INSTANCE.getAll();
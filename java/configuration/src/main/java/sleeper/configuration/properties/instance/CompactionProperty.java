@@ -67,6 +67,52 @@ public interface CompactionProperty {
             .validationPredicate(Utils::isPositiveInteger)
             .propertyGroup(InstancePropertyGroup.COMPACTION)
             .runCDKDeployWhenChanged(true).build();
+    UserDefinedInstanceProperty COMPACTION_TASK_SCALING_PREDICTIVE = Index.propertyBuilder("sleeper.compaction.task.scaling.predictive")
+            .description("Whether to decide how many compaction tasks to run by forecasting how long the queue of " +
+                    "compaction jobs will take to drain. This uses the rate at which jobs arrive on the queue, and how " +
+                    "long recent tasks took to run each job. If false, one task is created for each job on the queue.")
+            .defaultValue("false")
+            .validationPredicate(Utils::isTrueOrFalse)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty COMPACTION_TASK_SCALING_TARGET_DRAIN_SECS = Index.propertyBuilder("sleeper.compaction.task.scaling.target.drain.secs")
+            .description("Used with predictive scaling of compaction tasks. Enough tasks will be run to drain the " +
+                    "compaction job queue within this many seconds, including jobs forecast to arrive in that time.")
+            .defaultValue("600")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty COMPACTION_TASK_SCALING_HISTORY_SECS = Index.propertyBuilder("sleeper.compaction.task.scaling.history.secs")
+            .description("Used with predictive scaling of compaction tasks. Compaction tasks that finished within this " +
+                    "many seconds are used to estimate how long each job takes.")
+            .defaultValue("3600")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty COMPACTION_TASK_SCALING_SCALE_DOWN_DELAY_SECS = Index.propertyBuilder("sleeper.compaction.task.scaling.scale.down.delay.secs")
+            .description("Used with predictive scaling of compaction tasks. The forecast number of tasks must stay " +
+                    "below the current target for this many seconds before the target is reduced. New tasks are " +
+                    "only started for the forecast, but EC2 capacity is kept for the target. This avoids " +
+                    "repeatedly scaling the EC2 cluster up and down when jobs arrive in bursts. This delay is held " +
+                    "in memory in the Lambda that starts tasks, and is lost when a new instance of the Lambda is " +
+                    "started.")
+            .defaultValue("300")
+            .validationPredicate(Utils::isNonNegativeInteger)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty COMPACTION_TASK_MAX_CONCURRENT_JOBS = Index.propertyBuilder("sleeper.compaction.task.max.concurrent.jobs")
+            .description("The maximum number of compaction jobs that each compaction task will run at the same time. " +
+                    "While this many jobs are running, the task will not take any more jobs from the queue, so they are " +
+                    "left for other tasks. Compaction tasks are created to run this many jobs each, so fewer tasks are " +
+                    "started for the same number of jobs. If this is more than 1, the memory and CPU of the task " +
+                    "should be increased to match.")
+            .defaultValue("1")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty COMPACTION_TASK_CONCURRENT_JOBS_MAX_HEAP_PERCENTAGE = Index.propertyBuilder("sleeper.compaction.task.concurrent.jobs.max.heap.percentage")
+            .description("Used when a compaction task runs more than one job at a time. Jobs will only be started " +
+                    "while their estimated memory use, in total, is within this percentage of the Java heap. The " +
+                    "memory for a job is estimated as one Parquet row group for each input and output file. A job " +
+                    "whose estimate is over this limit will run on its own.")
+            .defaultValue("70")
+            .validationPredicate(value -> Utils.isPositiveIntLtEqValue(value, 100))
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
     UserDefinedInstanceProperty COMPACTION_TASK_CPU_ARCHITECTURE = Index.propertyBuilder("sleeper.compaction.task.cpu.architecture")
             .description("The CPU architecture to run compaction tasks on.\n" +
                     "See Task CPU architecture at https://docs.aws.amazon.com/AmazonECS/latest/developerguide/AWS_Fargate.html")
@@ -176,6 +222,26 @@ public interface CompactionProperty {
                     "concurrently per partition. It can be overridden on a per-table basis.")
             .defaultValue("" + Integer.MAX_VALUE)
             .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty DEFAULT_READ_AMPLIFICATION_COMPACTION_STRATEGY_TARGET_FILES = Index.propertyBuilder("sleeper.default.table.compaction.strategy.readamplification.target.files")
+            .description("Used by the ReadAmplificationCompactionStrategy as the number of files a query should need to read " +
+                    "in a leaf partition. Jobs are created to bring the number of files in each leaf partition down to this. " +
+                    "It can be overridden on a per-table basis.")
+            .defaultValue("4")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty DEFAULT_READ_AMPLIFICATION_COMPACTION_STRATEGY_MAX_RECORDS_PER_RUN = Index.propertyBuilder("sleeper.default.table.compaction.strategy.readamplification.max.records.per.run")
+            .description("Used by the ReadAmplificationCompactionStrategy to limit the total number of records that the " +
+                    "jobs created for a table in one run may rewrite. Jobs with the most benefit for the least rewriting " +
+                    "are created first. It can be overridden on a per-table basis.")
+            .defaultValue("10000000000")
+            .validationPredicate(Utils::isPositiveLong)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
+    UserDefinedInstanceProperty DEFAULT_READ_AMPLIFICATION_COMPACTION_STRATEGY_RECENT_ACTIVITY_SECS = Index.propertyBuilder("sleeper.default.table.compaction.strategy.readamplification.recent.activity.secs")
+            .description("Used by the ReadAmplificationCompactionStrategy to prioritise partitions which have had files " +
+                    "added within this many seconds. It can be overridden on a per-table basis.")
+            .defaultValue("3600")
+            .validationPredicate(Utils::isNonNegativeInteger)
+            .propertyGroup(InstancePropertyGroup.COMPACTION).build();
 
     static List<UserDefinedInstanceProperty> getAll() {
         return Index.INSTANCE.getAll();
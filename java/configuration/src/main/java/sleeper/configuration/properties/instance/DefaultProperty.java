@@ -96,6 +96,34 @@ public interface DefaultProperty {
             .defaultValue("64")
             .validationPredicate(Utils::isPositiveInteger)
             .propertyGroup(InstancePropertyGroup.DEFAULT).build();
+    UserDefinedInstanceProperty DEFAULT_BULK_IMPORT_SKEW_HANDLING_ENABLED = Index.propertyBuilder("sleeper.default.bulk.import.skew.handling.enabled")
+            .description("Whether bulk import jobs run with the dataframe local sort driver sample their input to find " +
+                    "leaf partitions that receive much more data than others, and spread those over several Spark tasks. " +
+                    "Leaf partitions that receive little data are then combined into fewer tasks. This default can be " +
+                    "overridden by a table property.")
+            .defaultValue("false")
+            .validationPredicate(Utils::isTrueOrFalse)
+            .propertyGroup(InstancePropertyGroup.DEFAULT).build();
+    UserDefinedInstanceProperty DEFAULT_BULK_IMPORT_SKEW_SAMPLE_FRACTION = Index.propertyBuilder("sleeper.default.bulk.import.skew.sample.fraction")
+            .description("The fraction of input rows sampled to estimate how much data each leaf partition will " +
+                    "receive, when skew handling is enabled for bulk import. This default can be overridden by a table " +
+                    "property.")
+            .defaultValue("0.01")
+            .validationPredicate(value -> Utils.isPositiveDoubleLtEqValue(value, 1))
+            .propertyGroup(InstancePropertyGroup.DEFAULT).build();
+    UserDefinedInstanceProperty DEFAULT_BULK_IMPORT_PRE_SPLIT_ENABLED = Index.propertyBuilder("sleeper.default.bulk.import.pre.split.enabled")
+            .description("Whether bulk import jobs sample their input to find leaf partitions that will receive more " +
+                    "records than the partition splitting threshold, and split those partitions before writing any " +
+                    "data. This default can be overridden by a table property.")
+            .defaultValue("false")
+            .validationPredicate(Utils::isTrueOrFalse)
+            .propertyGroup(InstancePropertyGroup.DEFAULT).build();
+    UserDefinedInstanceProperty DEFAULT_BULK_IMPORT_PRE_SPLIT_SAMPLE_FRACTION = Index.propertyBuilder("sleeper.default.bulk.import.pre.split.sample.fraction")
+            .description("The fraction of input rows sampled to find split points for leaf partitions, when " +
+                    "pre-splitting is enabled for bulk import. This default can be overridden by a table property.")
+            .defaultValue("0.01")
+            .validationPredicate(value -> Utils.isPositiveDoubleLtEqValue(value, 1))
+            .propertyGroup(InstancePropertyGroup.DEFAULT).build();
 
     UserDefinedInstanceProperty DEFAULT_INGEST_BATCHER_MIN_JOB_SIZE = Index.propertyBuilder("sleeper.default.ingest.batcher.job.min.size")
             .description("Specifies the minimum total file size required for an ingest job to be batched and sent. " +
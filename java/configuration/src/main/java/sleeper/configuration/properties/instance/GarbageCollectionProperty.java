@@ -16,6 +16,7 @@
 
 package sleeper.configuration.properties.instance;
 
+import sleeper.configuration.Utils;
 import sleeper.configuration.properties.SleeperPropertyIndex;
 
 import java.util.List;
@@ -32,9 +33,21 @@ public interface GarbageCollectionProperty {
             .propertyGroup(InstancePropertyGroup.GARBAGE_COLLECTOR)
             .runCDKDeployWhenChanged(true).build();
     UserDefinedInstanceProperty GARBAGE_COLLECTOR_BATCH_SIZE = Index.propertyBuilder("sleeper.gc.batch.size")
-            .description("The size of the batch of files ready for garbage collection requested from the State Store.")
+            .description("The size of the batch of files ready for garbage collection requested from the State Store. " +
+                    "This is the most files that will be deleted from each table in one run of the garbage collector. " +
+                    "The files in a batch are removed from the State Store in one update.")
             .defaultValue("2000")
             .propertyGroup(InstancePropertyGroup.GARBAGE_COLLECTOR).build();
+    UserDefinedInstanceProperty GARBAGE_COLLECTOR_MAX_CONCURRENT_TABLES = Index.propertyBuilder("sleeper.gc.max.concurrent.tables")
+            .description("The maximum number of tables the garbage collector will collect files from at the same time.")
+            .defaultValue("4")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.GARBAGE_COLLECTOR).build();
+    UserDefinedInstanceProperty GARBAGE_COLLECTOR_MAX_CONCURRENT_DELETES = Index.propertyBuilder("sleeper.gc.max.concurrent.deletes")
+            .description("The maximum number of files the garbage collector will delete at the same time, across all tables.")
+            .defaultValue("32")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.GARBAGE_COLLECTOR).build();
     UserDefinedInstanceProperty DEFAULT_GARBAGE_COLLECTOR_DELAY_BEFORE_DELETION = Index.propertyBuilder("sleeper.default.gc.delay.minutes")
             .description("A file will not be deleted until this number of minutes have passed after it has been marked as ready for " +
                     "garbage collection. The reason for not deleting files immediately after they have been marked as ready for " +
@@ -87,12 +87,21 @@ public interface IngestProperty {
             .propertyGroup(InstancePropertyGroup.INGEST).build();
     UserDefinedInstanceProperty INGEST_PARTITION_FILE_WRITER_TYPE = Index.propertyBuilder("sleeper.ingest.partition.file.writer.type")
             .description("The way in which partition files are written to the main Sleeper store.\n" +
-                    "Valid values are 'direct' (which writes using the s3a Hadoop file system) and 'async' (which writes locally and then " +
-                    "copies the completed Parquet file asynchronously into S3).\n" +
+                    "Valid values are 'direct' (which writes using the s3a Hadoop file system), 'async' (which writes locally and then " +
+                    "copies the completed Parquet file asynchronously into S3) and 'streaming' (which uploads the Parquet file " +
+                    "directly into an S3 multipart upload as it is written, without staging it on local disk).\n" +
                     "The direct method is simpler but the async method should provide better performance when the number of partitions " +
-                    "is large.")
+                    "is large. The streaming method avoids the need for local disk space for the partition files.")
             .defaultValue("async")
             .propertyGroup(InstancePropertyGroup.INGEST).build();
+    UserDefinedInstanceProperty INGEST_PARTITION_WRITER_THREADS = Index.propertyBuilder("sleeper.ingest.partition.writer.threads")
+            .description("The number of threads used to write partition files during an ingest. The sorted records are cut " +
+                    "into segments for each partition, and the segments for different partitions are encoded and written " +
+                    "in parallel. A value of 1 writes all partition files on the thread that reads the sorted records.\n" +
+                    "This is most useful when the table has many leaf partitions, or the data has many row key fields.")
+            .defaultValue("1")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.INGEST).build();
 
     UserDefinedInstanceProperty INGEST_STATUS_STORE_ENABLED = IngestProperty.Index.propertyBuilder("sleeper.ingest.status.store.enabled")
             .description("Flag to enable/disable storage of tracking information for ingest jobs and tasks.")
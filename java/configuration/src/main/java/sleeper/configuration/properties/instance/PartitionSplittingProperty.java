@@ -17,6 +17,7 @@
 package sleeper.configuration.properties.instance;
 
 
+import sleeper.configuration.Utils;
 import sleeper.configuration.properties.SleeperPropertyIndex;
 
 import java.util.List;
@@ -58,6 +59,15 @@ public interface PartitionSplittingProperty {
                     "number of records in will be split. This value can be overridden on a per-table basis.")
             .defaultValue("1000000000")
             .propertyGroup(InstancePropertyGroup.PARTITION_SPLITTING).build();
+    UserDefinedInstanceProperty DEFAULT_PARTITION_SPLIT_MAX_DEPTH = Index.propertyBuilder("sleeper.default.partition.splitting.max.depth")
+            .description("This is the default value of the maximum depth of the tree of new partitions that can be created " +
+                    "when a partition is split. A partition holding many times the split threshold is split into enough " +
+                    "partitions to bring each one under the threshold, up to 2 to the power of this depth, in one " +
+                    "update to the state store. A value of 1 always splits a partition in two. This must be between " +
+                    "1 and 5. This value can be overridden on a per-table basis.")
+            .defaultValue("3")
+            .validationPredicate(value -> Utils.isPositiveIntLtEqValue(value, 5))
+            .propertyGroup(InstancePropertyGroup.PARTITION_SPLITTING).build();
 
     static List<UserDefinedInstanceProperty> getAll() {
         return Index.INSTANCE.getAll();
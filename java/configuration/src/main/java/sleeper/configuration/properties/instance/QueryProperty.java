@@ -19,6 +19,7 @@ package sleeper.configuration.properties.instance;
 
 import sleeper.configuration.Utils;
 import sleeper.configuration.properties.SleeperPropertyIndex;
+import sleeper.core.record.serialiser.ResultsBatchFormat;
 
 import java.util.List;
 
@@ -49,11 +50,46 @@ public interface QueryProperty {
                     "the results queue from the query processing lambda.")
             .defaultValue("2000")
             .propertyGroup(InstancePropertyGroup.QUERY).build();
+    UserDefinedInstanceProperty QUERY_PROCESSING_LAMBDA_RESULTS_FORMAT = Index.propertyBuilder("sleeper.query.processor.results.format")
+            .description("The format of batches of query results sent to an SQS queue or a WebSocket from the query " +
+                    "processing lambda, unless set in the results publisher config of a query. Valid values are " +
+                    "'json' and 'compact'. The compact format is a binary encoding, compressed and encoded as Base64, " +
+                    "which fits many more records in each message. Batches are filled up to the maximum message size " +
+                    "of the destination, as well as being limited by the batch size.")
+            .defaultValue("json")
+            .validationPredicate(ResultsBatchFormat::isValid)
+            .propertyGroup(InstancePropertyGroup.QUERY).build();
     UserDefinedInstanceProperty QUERY_PROCESSOR_LAMBDA_RECORD_RETRIEVAL_THREADS = Index.propertyBuilder("sleeper.query.processor.record.retrieval.threads")
             .description("The size of the thread pool for retrieving records in a query processing lambda.")
             .defaultValue("10")
             .validationPredicate(Utils::isPositiveInteger)
             .propertyGroup(InstancePropertyGroup.QUERY).build();
+    UserDefinedInstanceProperty QUERY_PROCESSOR_CACHE_MAX_RECORDS = Index.propertyBuilder("sleeper.query.processor.cache.max.records")
+            .description("The maximum number of records from query results to cache in memory in a query processing " +
+                    "lambda. Results are cached for each leaf partition, and are used again for queries on the same " +
+                    "table with the same regions, requested fields and iterators, as long as the files in the " +
+                    "partition have not changed. The least recently used results are evicted first. Set to 0 to " +
+                    "disable the cache.")
+            .defaultValue("0")
+            .validationPredicate(Utils::isNonNegativeInteger)
+            .propertyGroup(InstancePropertyGroup.QUERY).build();
+    UserDefinedInstanceProperty QUERY_PROCESSOR_CACHE_ENTRY_MAX_RECORDS = Index.propertyBuilder("sleeper.query.processor.cache.entry.max.records")
+            .description("The maximum number of records in the results for one leaf partition that will be cached in " +
+                    "a query processing lambda. Larger results will not be cached.")
+            .defaultValue("100000")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.QUERY).build();
+    UserDefinedInstanceProperty QUERY_PROCESSOR_CACHE_SPILL_DIRECTORY = Index.propertyBuilder("sleeper.query.processor.cache.spill.directory")
+            .description("A local directory to write query results to when they are evicted from the in-memory cache " +
+                    "in a query processing lambda, e.g. /tmp/query-cache. If this is not set, evicted results are " +
+                    "discarded.")
+            .propertyGroup(InstancePropertyGroup.QUERY).build();
+    UserDefinedInstanceProperty QUERY_PROCESSOR_CACHE_SPILL_MAX_RECORDS = Index.propertyBuilder("sleeper.query.processor.cache.spill.max.records")
+            .description("The maximum number of records from query results to hold in the spill directory of the " +
+                    "query results cache.")
+            .defaultValue("1000000")
+            .validationPredicate(Utils::isNonNegativeInteger)
+            .propertyGroup(InstancePropertyGroup.QUERY).build();
     UserDefinedInstanceProperty QUERY_TRACKER_ITEM_TTL_IN_DAYS = Index.propertyBuilder("sleeper.query.tracker.ttl.days")
             .description("This value is used to set the time-to-live on the tracking of the queries in the DynamoDB-based query tracker.")
             .defaultValue("1")
@@ -75,6 +111,27 @@ public interface QueryProperty {
                     "value given below is 128KiB. This value can be overridden using the query config.")
             .defaultValue("" + (128 * 1024)) // 128 KiB
             .propertyGroup(InstancePropertyGroup.QUERY).build();
+    UserDefinedInstanceProperty DEFAULT_RESULTS_FILE_SIZE = Index.propertyBuilder("sleeper.default.query.results.file.size")
+            .description("The default target size in bytes of Parquet files that the results of queries are written to. " +
+                    "Once a results file reaches this size it is closed and the following results are written to a " +
+                    "new file. A manifest listing all the files and the number of records in each is written alongside " +
+                    "them. The value given below is 256MiB. This value can be overridden using the query config.")
+            .defaultValue("" + (256 * 1024 * 1024)) // 256 MiB
+            .validationPredicate(Utils::isPositiveLong)
+            .propertyGroup(InstancePropertyGroup.QUERY).build();
+    UserDefinedInstanceProperty QUERY_RESULTS_UPLOAD_PART_SIZE = Index.propertyBuilder("sleeper.query.results.upload.part.size")
+            .description("The size in bytes of the parts of a multipart upload used when writing query results to S3. " +
+                    "This sets the value of fs.s3a.multipart.size on the Hadoop configuration used to write results.")
+            .defaultValue("" + (32 * 1024 * 1024)) // 32 MiB
+            .validationPredicate(Utils::isPositiveLong)
+            .propertyGroup(InstancePropertyGroup.QUERY).build();
+    UserDefinedInstanceProperty QUERY_RESULTS_UPLOAD_PARALLEL_PARTS = Index.propertyBuilder("sleeper.query.results.upload.parallel.parts")
+            .description("The maximum number of parts of a results file that may be uploaded to S3 in parallel while " +
+                    "the query results are still being written. This sets the value of " +
+                    "fs.s3a.fast.upload.active.blocks on the Hadoop configuration used to write results.")
+            .defaultValue("4")
+            .validationPredicate(Utils::isPositiveInteger)
+            .propertyGroup(InstancePropertyGroup.QUERY).build();
 
     static List<UserDefinedInstanceProperty> getAll() {
         return Index.INSTANCE.getAll();
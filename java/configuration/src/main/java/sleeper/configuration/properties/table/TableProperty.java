@@ -29,9 +29,16 @@ import java.util.Objects;
 import static sleeper.configuration.Utils.describeEnumValuesInLowerCase;
 import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_COMPACTION_FILES_BATCH_SIZE;
 import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_COMPACTION_STRATEGY_CLASS;
+import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_READ_AMPLIFICATION_COMPACTION_STRATEGY_MAX_RECORDS_PER_RUN;
+import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_READ_AMPLIFICATION_COMPACTION_STRATEGY_RECENT_ACTIVITY_SECS;
+import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_READ_AMPLIFICATION_COMPACTION_STRATEGY_TARGET_FILES;
 import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_SIZERATIO_COMPACTION_STRATEGY_MAX_CONCURRENT_JOBS_PER_PARTITION;
 import static sleeper.configuration.properties.instance.CompactionProperty.DEFAULT_SIZERATIO_COMPACTION_STRATEGY_RATIO;
 import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_BULK_IMPORT_MIN_LEAF_PARTITION_COUNT;
+import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_BULK_IMPORT_PRE_SPLIT_ENABLED;
+import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_BULK_IMPORT_PRE_SPLIT_SAMPLE_FRACTION;
+import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_BULK_IMPORT_SKEW_HANDLING_ENABLED;
+import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_BULK_IMPORT_SKEW_SAMPLE_FRACTION;
 import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_COLUMN_INDEX_TRUNCATE_LENGTH;
 import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_COMPRESSION_CODEC;
 import static sleeper.configuration.properties.instance.DefaultProperty.DEFAULT_DICTIONARY_ENCODING_FOR_ROW_KEY_FIELDS;
@@ -60,6 +67,7 @@ import static sleeper.configuration.properties.instance.NonPersistentEMRProperty
 import static sleeper.configuration.properties.instance.NonPersistentEMRProperty.DEFAULT_BULK_IMPORT_EMR_MASTER_X86_INSTANCE_TYPES;
 import static sleeper.configuration.properties.instance.NonPersistentEMRProperty.DEFAULT_BULK_IMPORT_EMR_MAX_EXECUTOR_CAPACITY;
 import static sleeper.configuration.properties.instance.NonPersistentEMRProperty.DEFAULT_BULK_IMPORT_EMR_RELEASE_LABEL;
+import static sleeper.configuration.properties.instance.PartitionSplittingProperty.DEFAULT_PARTITION_SPLIT_MAX_DEPTH;
 import static sleeper.configuration.properties.instance.PartitionSplittingProperty.DEFAULT_PARTITION_SPLIT_THRESHOLD;
 
 /**
@@ -82,11 +90,14 @@ public interface TableProperty extends SleeperProperty {
             .includedInTemplate(false).build();
     TableProperty ITERATOR_CLASS_NAME = Index.propertyBuilder("sleeper.table.iterator.class.name")
             .description("Fully qualified class of a custom iterator to use when iterating over the values in this table. " +
+                    "Several iterators can be applied in order by separating their class names with a semi-colon. " +
                     "Defaults to nothing.")
             .propertyGroup(TablePropertyGroup.DATA_DEFINITION)
             .build();
     TableProperty ITERATOR_CONFIG = Index.propertyBuilder("sleeper.table.iterator.config")
-            .description("Iterator configuration. An iterator will be initialised with the following configuration.")
+            .description("Iterator configuration. An iterator will be initialised with the following configuration. " +
+                    "If several iterators are set, the configuration for each one should be separated with a semi-colon, " +
+                    "in the same order as the class names.")
             .propertyGroup(TablePropertyGroup.DATA_DEFINITION)
             .build();
     TableProperty SPLIT_POINTS_FILE = Index.propertyBuilder("sleeper.table.splits.file")
@@ -106,6 +117,13 @@ public interface TableProperty extends SleeperProperty {
             .description("Partitions in this table with more than the following number of records in will be split.")
             .propertyGroup(TablePropertyGroup.PARTITION_SPLITTING)
             .build();
+    TableProperty PARTITION_SPLIT_MAX_DEPTH = Index.propertyBuilder("sleeper.table.partition.splitting.max.depth")
+            .defaultProperty(DEFAULT_PARTITION_SPLIT_MAX_DEPTH)
+            .description("The maximum depth of the tree of new partitions that can be created when a partition in this " +
+                    "table is split. A partition is split into enough partitions to bring each one under the split " +
+                    "threshold, up to 2 to the power of this depth, in one update to the state store.")
+            .propertyGroup(TablePropertyGroup.PARTITION_SPLITTING)
+            .build();
     TableProperty ENCRYPTED = Index.propertyBuilder("sleeper.table.encrypted")
             .defaultValue("true")
             .validationPredicate(s -> s.equals("true") || s.equals("false"))
@@ -202,6 +220,25 @@ public interface TableProperty extends SleeperProperty {
                     "concurrently per partition.")
             .propertyGroup(TablePropertyGroup.COMPACTION)
             .build();
+    TableProperty READ_AMPLIFICATION_COMPACTION_STRATEGY_TARGET_FILES = Index.propertyBuilder("sleeper.table.compaction.strategy.readamplification.target.files")
+            .defaultProperty(DEFAULT_READ_AMPLIFICATION_COMPACTION_STRATEGY_TARGET_FILES)
+            .description("Used by the ReadAmplificationCompactionStrategy as the number of files a query should need to read " +
+                    "in a leaf partition. Jobs are created to bring the number of files in each leaf partition down to this.")
+            .propertyGroup(TablePropertyGroup.COMPACTION)
+            .build();
+    TableProperty READ_AMPLIFICATION_COMPACTION_STRATEGY_MAX_RECORDS_PER_RUN = Index.propertyBuilder("sleeper.table.compaction.strategy.readamplification.max.records.per.run")
+            .defaultProperty(DEFAULT_READ_AMPLIFICATION_COMPACTION_STRATEGY_MAX_RECORDS_PER_RUN)
+            .description("Used by the ReadAmplificationCompactionStrategy to limit the total number of records that the " +
+                    "jobs created for this table in one run may rewrite. Jobs with the most benefit for the least rewriting " +
+                    "are created first. The first job is always created, even if it is over the limit on its own.")
+            .propertyGroup(TablePropertyGroup.COMPACTION)
+            .build();
+    TableProperty READ_AMPLIFICATION_COMPACTION_STRATEGY_RECENT_ACTIVITY_SECS = Index.propertyBuilder("sleeper.table.compaction.strategy.readamplification.recent.activity.secs")
+            .defaultProperty(DEFAULT_READ_AMPLIFICATION_COMPACTION_STRATEGY_RECENT_ACTIVITY_SECS)
+            .description("Used by the ReadAmplificationCompactionStrategy to prioritise partitions which have had files " +
+                    "added within this many seconds.")
+            .propertyGroup(TablePropertyGroup.COMPACTION)
+            .build();
     TableProperty STATESTORE_CLASSNAME = Index.propertyBuilder("sleeper.table.statestore.classname")
             .defaultValue("sleeper.statestore.dynamodb.DynamoDBStateStore")
             .description("The name of the class used for the metadata store. The default is DynamoDBStateStore. " +
@@ -303,6 +340,31 @@ public interface TableProperty extends SleeperProperty {
                     "If this minimum has not been reached, bulk import jobs will refuse to start")
             .defaultProperty(DEFAULT_BULK_IMPORT_MIN_LEAF_PARTITION_COUNT)
             .propertyGroup(TablePropertyGroup.BULK_IMPORT).build();
+    TableProperty BULK_IMPORT_SKEW_HANDLING_ENABLED = Index.propertyBuilder("sleeper.table.bulk.import.skew.handling.enabled")
+            .description("Whether bulk import jobs run with the dataframe local sort driver sample their input to find " +
+                    "leaf partitions that receive much more data than others, and spread those over several Spark tasks. " +
+                    "Each of those tasks writes its own file for the partition. Leaf partitions that receive little data " +
+                    "are combined into fewer tasks.")
+            .defaultProperty(DEFAULT_BULK_IMPORT_SKEW_HANDLING_ENABLED)
+            .propertyGroup(TablePropertyGroup.BULK_IMPORT).build();
+    TableProperty BULK_IMPORT_SKEW_SAMPLE_FRACTION = Index.propertyBuilder("sleeper.table.bulk.import.skew.sample.fraction")
+            .description("The fraction of input rows sampled to estimate how much data each leaf partition will " +
+                    "receive, when skew handling is enabled for bulk import.")
+            .defaultProperty(DEFAULT_BULK_IMPORT_SKEW_SAMPLE_FRACTION)
+            .propertyGroup(TablePropertyGroup.BULK_IMPORT).build();
+    TableProperty BULK_IMPORT_PRE_SPLIT_ENABLED = Index.propertyBuilder("sleeper.table.bulk.import.pre.split.enabled")
+            .description("Whether bulk import jobs sample their input to find leaf partitions that will receive more " +
+                    "records than the partition splitting threshold, and split those partitions before writing any " +
+                    "data. The data is then written directly into the new leaf partitions, rather than being split " +
+                    "and compacted after the import. If this is enabled, jobs are not refused when the table has " +
+                    "fewer than the minimum number of leaf partitions.")
+            .defaultProperty(DEFAULT_BULK_IMPORT_PRE_SPLIT_ENABLED)
+            .propertyGroup(TablePropertyGroup.BULK_IMPORT).build();
+    TableProperty BULK_IMPORT_PRE_SPLIT_SAMPLE_FRACTION = Index.propertyBuilder("sleeper.table.bulk.import.pre.split.sample.fraction")
+            .description("The fraction of input rows sampled to find split points for leaf partitions, when " +
+                    "pre-splitting is enabled for bulk import.")
+            .defaultProperty(DEFAULT_BULK_IMPORT_PRE_SPLIT_SAMPLE_FRACTION)
+            .propertyGroup(TablePropertyGroup.BULK_IMPORT).build();
 
     // Ingest batcher
     TableProperty INGEST_BATCHER_MIN_JOB_SIZE = Index.propertyBuilder("sleeper.table.ingest.batcher.job.min.size")
@@ -69,6 +69,17 @@ class UtilsTest {
             assertThat(Utils.isPositiveDouble("ABC"))
                     .isFalse();
         }
+
+        @Test
+        void shouldCheckIntegerIsAtLeastMinimum() {
+            // When/Then
+            assertThat(Utils.isIntGtEqValue("5", 5))
+                    .isTrue();
+            assertThat(Utils.isIntGtEqValue("4", 5))
+                    .isFalse();
+            assertThat(Utils.isIntGtEqValue("ABC", 5))
+                    .isFalse();
+        }
     }
 
     @Nested
@@ -86,10 +86,13 @@ class SleeperPropertiesPrettyPrinterTest {
             // When / Then
             assertThat(printInstanceProperties("sleeper.ingest.partition.file.writer.type=direct"))
                     .contains("# The way in which partition files are written to the main Sleeper store.\n" +
-                            "# Valid values are 'direct' (which writes using the s3a Hadoop file system) and 'async' (which writes\n" +
-                            "# locally and then copies the completed Parquet file asynchronously into S3).\n" +
+                            "# Valid values are 'direct' (which writes using the s3a Hadoop file system), 'async' (which writes\n" +
+                            "# locally and then copies the completed Parquet file asynchronously into S3) and 'streaming' (which\n" +
+                            "# uploads the Parquet file directly into an S3 multipart upload as it is written, without staging it\n" +
+                            "# on local disk).\n" +
                             "# The direct method is simpler but the async method should provide better performance when the number\n" +
-                            "# of partitions is large.\n" +
+                            "# of partitions is large. The streaming method avoids the need for local disk space for the partition\n" +
+                            "# files.\n" +
                             "sleeper.ingest.partition.file.writer.type");
         }
 
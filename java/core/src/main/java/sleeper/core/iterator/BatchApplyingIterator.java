@@ -0,0 +1,74 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import sleeper.core.record.Record;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Reads records from a sorted iterator in batches, applies a number of {@link SortedRecordBatchIterator}s to each
+ * batch in turn, and outputs the records that remain selected.
+ */
+public class BatchApplyingIterator implements CloseableIterator<Record> {
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+
+    private final CloseableIterator<Record> input;
+    private final SortedRecordBatchIterator[] iterators;
+    private final SortedRecordBatch batch;
+    private int nextIndex;
+
+    public BatchApplyingIterator(CloseableIterator<Record> input, List<? extends SortedRecordBatchIterator> iterators) {
+        this(input, iterators, DEFAULT_BATCH_SIZE);
+    }
+
+    public BatchApplyingIterator(CloseableIterator<Record> input, List<? extends SortedRecordBatchIterator> iterators, int batchSize) {
+        this.input = input;
+        this.iterators = iterators.toArray(new SortedRecordBatchIterator[0]);
+        this.batch = new SortedRecordBatch(batchSize);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (nextIndex >= batch.getSelectedCount()) {
+            if (0 == batch.fill(input)) {
+                return false;
+            }
+            for (SortedRecordBatchIterator iterator : iterators) {
+                iterator.applyToBatch(batch);
+            }
+            nextIndex = 0;
+        }
+        return true;
+    }
+
+    @Override
+    public Record next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        Record record = batch.getRecord(batch.getSelectedRow(nextIndex));
+        nextIndex++;
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
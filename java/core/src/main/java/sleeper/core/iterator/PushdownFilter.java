@@ -0,0 +1,190 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * A condition on the values of a single record, which a {@link SortedRecordIterator} may declare so that records it
+ * would remove can be skipped when data files are read. This is independent of the file format, and is converted into
+ * the filter used by the reader, e.g. so that Parquet statistics can be used to skip row groups and pages.
+ * <p>
+ * Readers may apply this on a best effort basis, so the iterator must still remove the records itself.
+ */
+public interface PushdownFilter {
+
+    /**
+     * Creates a filter accepting records where a long field is not null and is greater than a value.
+     *
+     * @param  fieldName the field name
+     * @param  value     the value the field must be greater than
+     * @return           the filter
+     */
+    static PushdownFilter longGreaterThan(String fieldName, long value) {
+        return new LongGreaterThan(fieldName, value);
+    }
+
+    /**
+     * Creates a filter accepting records where a string field is null, is empty, or is one of a set of values.
+     *
+     * @param  fieldName the field name
+     * @param  values    the values to accept
+     * @return           the filter
+     */
+    static PushdownFilter stringInOrEmpty(String fieldName, Set<String> values) {
+        return new StringInOrEmpty(fieldName, values);
+    }
+
+    /**
+     * Creates a filter accepting records which are accepted by all of a list of filters.
+     *
+     * @param  filters the filters
+     * @return         the filter, or the only filter if there is just one
+     */
+    static PushdownFilter and(List<PushdownFilter> filters) {
+        if (filters.size() == 1) {
+            return filters.get(0);
+        }
+        return new And(filters);
+    }
+
+    /**
+     * Accepts records where a long field is not null and is greater than a value.
+     */
+    final class LongGreaterThan implements PushdownFilter {
+        private final String fieldName;
+        private final long value;
+
+        private LongGreaterThan(String fieldName, long value) {
+            this.fieldName = Objects.requireNonNull(fieldName, "fieldName must not be null");
+            this.value = value;
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public long getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof LongGreaterThan)) {
+                return false;
+            }
+            LongGreaterThan that = (LongGreaterThan) o;
+            return value == that.value && fieldName.equals(that.fieldName);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fieldName, value);
+        }
+
+        @Override
+        public String toString() {
+            return "LongGreaterThan{fieldName='" + fieldName + "', value=" + value + "}";
+        }
+    }
+
+    /**
+     * Accepts records where a string field is null, is empty, or is one of a set of values.
+     */
+    final class StringInOrEmpty implements PushdownFilter {
+        private final String fieldName;
+        private final Set<String> values;
+
+        private StringInOrEmpty(String fieldName, Set<String> values) {
+            this.fieldName = Objects.requireNonNull(fieldName, "fieldName must not be null");
+            this.values = Set.copyOf(values);
+        }
+
+        public String getFieldName() {
+            return fieldName;
+        }
+
+        public Set<String> getValues() {
+            return values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof StringInOrEmpty)) {
+                return false;
+            }
+            StringInOrEmpty that = (StringInOrEmpty) o;
+            return fieldName.equals(that.fieldName) && values.equals(that.values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fieldName, values);
+        }
+
+        @Override
+        public String toString() {
+            return "StringInOrEmpty{fieldName='" + fieldName + "', values=" + values + "}";
+        }
+    }
+
+    /**
+     * Accepts records which are accepted by all of a list of filters.
+     */
+    final class And implements PushdownFilter {
+        private final List<PushdownFilter> filters;
+
+        private And(List<PushdownFilter> filters) {
+            if (filters.isEmpty()) {
+                throw new IllegalArgumentException("At least one filter is required");
+            }
+            this.filters = List.copyOf(filters);
+        }
+
+        public List<PushdownFilter> getFilters() {
+            return filters;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof And)) {
+                return false;
+            }
+            return filters.equals(((And) o).filters);
+        }
+
+        @Override
+        public int hashCode() {
+            return filters.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return "And{filters=" + filters + "}";
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import sleeper.core.record.Record;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+/**
+ * A batch of records read from a sorted iterator, with a selection vector tracking which of them are still included
+ * after filtering. Each field's values can be read as a column, which is extracted from the records once per batch
+ * and shared between every {@link SortedRecordBatchIterator} applied to the batch. The batch is reused for each
+ * group of records read from the input, so it should not be held on to after processing.
+ */
+public class SortedRecordBatch {
+    private final Record[] records;
+    private final int[] selection;
+    private final Map<String, Object[]> columns = new HashMap<>();
+    private int size;
+    private int selectedCount;
+
+    public SortedRecordBatch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Batch capacity must be at least 1, found " + capacity);
+        }
+        records = new Record[capacity];
+        selection = new int[capacity];
+    }
+
+    /**
+     * Reads up to the capacity of this batch from the input, replacing the previous contents. All records read are
+     * initially selected.
+     *
+     * @param input the sorted records to read from
+     * @return the number of records read
+     */
+    public int fill(CloseableIterator<Record> input) {
+        columns.clear();
+        size = 0;
+        while (size < records.length && input.hasNext()) {
+            records[size] = input.next();
+            selection[size] = size;
+            size++;
+        }
+        for (int row = size; row < records.length && null != records[row]; row++) {
+            records[row] = null;
+        }
+        selectedCount = size;
+        return size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getSelectedCount() {
+        return selectedCount;
+    }
+
+    /**
+     * Finds the position in the batch of a selected record.
+     *
+     * @param index the index in the selection, from 0 to the selected count
+     * @return the row number of the record in the batch
+     */
+    public int getSelectedRow(int index) {
+        return selection[index];
+    }
+
+    public Record getRecord(int row) {
+        return records[row];
+    }
+
+    /**
+     * Reads the values of a field for every record in the batch, indexed by row number. The column is extracted the
+     * first time it is requested for this batch.
+     *
+     * @param fieldName the field name
+     * @return the values of the field, including those in records that are not selected
+     */
+    public Object[] getColumn(String fieldName) {
+        Object[] column = columns.get(fieldName);
+        if (null == column) {
+            column = new Object[size];
+            for (int row = 0; row < size; row++) {
+                column[row] = records[row].get(fieldName);
+            }
+            columns.put(fieldName, column);
+        }
+        return column;
+    }
+
+    /**
+     * Removes records from the selection that do not meet a condition. Records which are already deselected are not
+     * tested. The order of the selected records is preserved.
+     *
+     * @param rowCondition tests the row number of a record in the batch
+     */
+    public void retainRows(IntPredicate rowCondition) {
+        int retained = 0;
+        for (int i = 0; i < selectedCount; i++) {
+            int row = selection[i];
+            if (rowCondition.test(row)) {
+                selection[retained] = row;
+                retained++;
+            }
+        }
+        selectedCount = retained;
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import sleeper.core.record.Record;
+
+import java.util.List;
+
+/**
+ * A {@link SortedRecordIterator} that processes records a batch at a time rather than one at a time. An
+ * implementation filters a {@link SortedRecordBatch} by removing records from its selection, and can read the values
+ * of a field as a column shared with any other batch iterators in the same chain. Consecutive batch iterators in a
+ * {@link SortedRecordIteratorChain} are applied to the same batch, without wrapping the input iterator once per
+ * iterator.
+ */
+public interface SortedRecordBatchIterator extends SortedRecordIterator {
+
+    /**
+     * Removes any records from the batch selection that should not be output.
+     *
+     * @param batch the batch of records
+     */
+    void applyToBatch(SortedRecordBatch batch);
+
+    @Override
+    default CloseableIterator<Record> apply(CloseableIterator<Record> input) {
+        return new BatchApplyingIterator(input, List.of(this));
+    }
+}
@@ -19,6 +19,7 @@ import sleeper.core.record.Record;
 import sleeper.core.schema.Schema;
 
 import java.util.List;
+import java.util.Optional;
 import java.util.function.Function;
 
 /**
@@ -31,4 +32,27 @@ public interface SortedRecordIterator extends Function<CloseableIterator<Record>
     void init(String configString, Schema schema);
 
     List<String> getRequiredValueFields();
+
+    /**
+     * Declares a condition that can be applied when the data is read, in place of this iterator's own filtering. This
+     * should only be set if the iterator does nothing but remove records that fail the condition, looking at each
+     * record on its own. Records it removes for other reasons, e.g. as time passes, may still be read.
+     *
+     * @return the condition that every record output by this iterator meets, if the iterator only filters records
+     */
+    default Optional<PushdownFilter> getPushdownFilter() {
+        return Optional.empty();
+    }
+
+    /**
+     * Declares whether the results of a query that applies this iterator may be cached. This should only be true if
+     * the output of the iterator depends on nothing but its input, its configuration and the schema. It should be
+     * false if the output may be different when the query is run again, e.g. if the iterator removes records older
+     * than a certain age, or reads any external data. Results are not cached unless the iterator declares this.
+     *
+     * @return true if the output of this iterator is always the same for the same input and configuration
+     */
+    default boolean isCacheable() {
+        return false;
+    }
 }
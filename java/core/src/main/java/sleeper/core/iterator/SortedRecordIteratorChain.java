@@ -0,0 +1,188 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import sleeper.core.record.Record;
+import sleeper.core.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Applies a number of {@link SortedRecordIterator}s in order. Runs of consecutive
+ * {@link SortedRecordBatchIterator}s are applied together to each batch of records.
+ * <p>
+ * A chain is configured by separating the class names of the iterators with {@link #SEPARATOR}, and separating the
+ * config string for each iterator in the same way, e.g. a class name of
+ * "sleeper.core.iterator.impl.AgeOffIterator;sleeper.core.iterator.impl.SecurityFilteringIterator" and a config of
+ * "timestamp,1000000;visibility,public". A single class name with no separator is configured as before.
+ */
+public class SortedRecordIteratorChain implements SortedRecordIterator {
+    public static final String SEPARATOR = ";";
+
+    private final List<SortedRecordIterator> iterators;
+
+    public SortedRecordIteratorChain(List<SortedRecordIterator> iterators) {
+        this.iterators = List.copyOf(iterators);
+    }
+
+    /**
+     * Creates and initialises the iterators configured by a class name and config string, which may each list
+     * several iterators separated by {@link #SEPARATOR}.
+     *
+     * @param  <E>        the exception thrown when an iterator cannot be created
+     * @param  classNames the iterator class name, or class names separated by {@link #SEPARATOR}
+     * @param  configs    the config string, or the config strings for each iterator separated by {@link #SEPARATOR}
+     * @param  schema     the schema of the records
+     * @param  loader     creates an iterator from a class name
+     * @return            the iterator, or a chain of the iterators if more than one is configured
+     * @throws E          if an iterator cannot be created
+     */
+    public static <E extends Exception> SortedRecordIterator create(
+            String classNames, String configs, Schema schema, IteratorLoader<E> loader) throws E {
+        String[] classNameArray = classNames.split(SEPARATOR, -1);
+        if (classNameArray.length == 1) {
+            SortedRecordIterator iterator = loader.load(classNames.trim());
+            iterator.init(configs, schema);
+            return iterator;
+        }
+        String[] configArray = null == configs ? new String[0] : configs.split(SEPARATOR, -1);
+        if (configArray.length > classNameArray.length) {
+            throw new IllegalArgumentException("Found " + configArray.length + " iterator configs for " +
+                    classNameArray.length + " iterator classes: " + classNames);
+        }
+        List<SortedRecordIterator> iterators = new ArrayList<>(classNameArray.length);
+        for (int i = 0; i < classNameArray.length; i++) {
+            SortedRecordIterator iterator = loader.load(classNameArray[i].trim());
+            iterator.init(i < configArray.length ? configArray[i] : null, schema);
+            iterators.add(iterator);
+        }
+        return new SortedRecordIteratorChain(iterators);
+    }
+
+    /**
+     * The iterators are initialised when the chain is created, so this does nothing.
+     */
+    @Override
+    public void init(String configString, Schema schema) {
+    }
+
+    @Override
+    public List<String> getRequiredValueFields() {
+        Set<String> fields = new LinkedHashSet<>();
+        for (SortedRecordIterator iterator : iterators) {
+            fields.addAll(iterator.getRequiredValueFields());
+        }
+        return new ArrayList<>(fields);
+    }
+
+    /**
+     * Combines the filters of the iterators in the chain, if every iterator in the chain only filters records.
+     *
+     * @return the combined filter of all the iterators, if they all declare one
+     */
+    @Override
+    public Optional<PushdownFilter> getPushdownFilter() {
+        List<PushdownFilter> filters = new ArrayList<>();
+        for (SortedRecordIterator iterator : iterators) {
+            Optional<PushdownFilter> filter = iterator.getPushdownFilter();
+            if (filter.isEmpty()) {
+                return Optional.empty();
+            }
+            filters.add(filter.get());
+        }
+        return filters.isEmpty() ? Optional.empty() : Optional.of(PushdownFilter.and(filters));
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return iterators.stream().allMatch(SortedRecordIterator::isCacheable);
+    }
+
+    /**
+     * Finds a filter that can be applied when data is read, before some iterators are applied to it in order. This
+     * combines the filters of the iterators up to the first one that does not only filter records. Filters declared
+     * after that iterator cannot be applied to its input, e.g. an age off applied after aggregation would remove
+     * records that contribute to an aggregated record.
+     *
+     * @param  iterators the iterators in the order they are applied, any of which may be null if not configured
+     * @return           the filter to apply when reading data, if any
+     */
+    public static Optional<PushdownFilter> getReadFilter(SortedRecordIterator... iterators) {
+        List<PushdownFilter> filters = new ArrayList<>();
+        for (SortedRecordIterator iterator : iterators) {
+            if (null != iterator && !addLeadingFilters(iterator, filters)) {
+                break;
+            }
+        }
+        return filters.isEmpty() ? Optional.empty() : Optional.of(PushdownFilter.and(filters));
+    }
+
+    @Override
+    public CloseableIterator<Record> apply(CloseableIterator<Record> input) {
+        CloseableIterator<Record> output = input;
+        List<SortedRecordBatchIterator> batchIterators = new ArrayList<>();
+        for (SortedRecordIterator iterator : iterators) {
+            if (iterator instanceof SortedRecordBatchIterator) {
+                batchIterators.add((SortedRecordBatchIterator) iterator);
+            } else {
+                output = applyBatchIterators(output, batchIterators);
+                batchIterators.clear();
+                output = iterator.apply(output);
+            }
+        }
+        return applyBatchIterators(output, batchIterators);
+    }
+
+    public List<SortedRecordIterator> getIterators() {
+        return iterators;
+    }
+
+    private static boolean addLeadingFilters(SortedRecordIterator iterator, List<PushdownFilter> filters) {
+        if (iterator instanceof SortedRecordIteratorChain) {
+            for (SortedRecordIterator chained : ((SortedRecordIteratorChain) iterator).iterators) {
+                if (!addLeadingFilters(chained, filters)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        Optional<PushdownFilter> filter = iterator.getPushdownFilter();
+        filter.ifPresent(filters::add);
+        return filter.isPresent();
+    }
+
+    private static CloseableIterator<Record> applyBatchIterators(
+            CloseableIterator<Record> input, List<SortedRecordBatchIterator> batchIterators) {
+        if (batchIterators.isEmpty()) {
+            return input;
+        }
+        return new BatchApplyingIterator(input, List.copyOf(batchIterators));
+    }
+
+    /**
+     * Creates an iterator from its class name.
+     *
+     * @param <E> the exception thrown when the iterator cannot be created
+     */
+    @FunctionalInterface
+    public interface IteratorLoader<E extends Exception> {
+        SortedRecordIterator load(String className) throws E;
+    }
+}
@@ -50,6 +50,11 @@ public class AdditionIterator implements SortedRecordIterator {
         return valueFieldNames;
     }
 
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
     @Override
     public CloseableIterator<Record> apply(CloseableIterator<Record> input) {
         return new AdditionIteratorInternal(input, rowKeyFieldNames, sortKeyFieldNames, valueFieldNames);
@@ -15,21 +15,20 @@
  */
 package sleeper.core.iterator.impl;
 
-import sleeper.core.iterator.CloseableIterator;
-import sleeper.core.iterator.SortedRecordIterator;
-import sleeper.core.record.Record;
+import sleeper.core.iterator.PushdownFilter;
+import sleeper.core.iterator.SortedRecordBatch;
+import sleeper.core.iterator.SortedRecordBatchIterator;
 import sleeper.core.schema.Schema;
 
-import java.io.IOException;
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 
 /**
- * This is an example implementation of a {@link SortedRecordIterator}. It
- * filters out {@link Record}s based on a timestamp. If the timestamp is more
- * than a certain length of time ago then the record is removed.
+ * Removes records where a timestamp field is older than a configured age. The age is checked against the current time
+ * once per batch of records.
  */
-public class AgeOffIterator implements SortedRecordIterator {
+public class AgeOffIterator implements SortedRecordBatchIterator {
     private String fieldName;
     private long ageOff;
 
@@ -52,57 +51,17 @@ public class AgeOffIterator implements SortedRecordIterator {
     }
 
     @Override
-    public CloseableIterator<Record> apply(CloseableIterator<Record> input) {
-        return new AgeOffIteratorInternal(input, fieldName, ageOff);
+    public Optional<PushdownFilter> getPushdownFilter() {
+        return Optional.of(PushdownFilter.longGreaterThan(fieldName, System.currentTimeMillis() - ageOff));
     }
 
-    public static class AgeOffIteratorInternal implements CloseableIterator<Record> {
-        private final CloseableIterator<Record> input;
-        private final String fieldName;
-        private final long age;
-        private Record next;
-
-        public AgeOffIteratorInternal(
-                CloseableIterator<Record> input,
-                String fieldName,
-                long age) {
-            this.input = input;
-            this.fieldName = fieldName;
-            this.age = age;
-            this.next = null;
-            advance();
-        }
-
-        @Override
-        public boolean hasNext() {
-            return null != next;
-        }
-
-        @Override
-        public Record next() {
-            Record record = new Record(next);
-            if (!input.hasNext()) {
-                next = null;
-            }
-            advance();
-            return record;
-        }
-
-        @Override
-        public void close() throws IOException {
-            input.close();
-        }
-
-        private void advance() {
-            while (input.hasNext()) {
-                next = input.next();
-                Long value = (Long) next.get(fieldName);
-                if (null != value && System.currentTimeMillis() - value < age) {
-                    break;
-                } else {
-                    next = null;
-                }
-            }
-        }
+    @Override
+    public void applyToBatch(SortedRecordBatch batch) {
+        Object[] timestamps = batch.getColumn(fieldName);
+        long minTimestampExclusive = System.currentTimeMillis() - ageOff;
+        batch.retainRows(row -> {
+            Long value = (Long) timestamps[row];
+            return null != value && value > minTimestampExclusive;
+        });
     }
 }
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator.impl;
+
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.iterator.SortedRecordIterator;
+import sleeper.core.iterator.SortedRecordIteratorChain;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Schema;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+
+/**
+ * Combines records with the same row and sort keys, using an {@link AggregationOperation} configured for each value
+ * field. The configuration string lists each value field with its operation, e.g.
+ * "count=count,total=sum,lowest=min,updated=max,latest=last:updated,users=sketch_union". Every value field must be
+ * configured. The last operation takes the field to order records by after a colon, as records with the same key may
+ * be read from different files in any order.
+ * <p>
+ * When this is the first iterator configured for a table, it is also applied to sorted data before it is written
+ * during ingest and bulk import. This reduces the number of records written. It is safe because none of the operations
+ * depend on the order records are read in, and an aggregated record stands for the records it was made from, e.g. its
+ * count is the number of records and its order field is the greatest order of those records. Aggregating some records
+ * early and the rest later therefore gives the same result as aggregating all of them at once.
+ */
+public class AggregatingIterator implements SortedRecordIterator {
+    private Schema schema;
+    private Map<String, FieldAggregation> operations;
+
+    public AggregatingIterator() {
+    }
+
+    /**
+     * Creates the aggregating iterator for a table if it is the first iterator configured. This means it can be
+     * applied to data before any of the table's other iterators.
+     *
+     * @param  classNames the configured iterator class names, separated by {@link SortedRecordIteratorChain#SEPARATOR}
+     * @param  configs    the configured iterator configs, separated by {@link SortedRecordIteratorChain#SEPARATOR}
+     * @param  schema     the schema of the table
+     * @return            the initialised aggregating iterator, if it is first in the chain
+     */
+    public static Optional<AggregatingIterator> createIfFirstInChain(String classNames, String configs, Schema schema) {
+        if (null == classNames) {
+            return Optional.empty();
+        }
+        String firstClassName = classNames.split(SortedRecordIteratorChain.SEPARATOR, -1)[0].trim();
+        if (!AggregatingIterator.class.getName().equals(firstClassName)) {
+            return Optional.empty();
+        }
+        String firstConfig = null == configs ? null : configs.split(SortedRecordIteratorChain.SEPARATOR, -1)[0];
+        AggregatingIterator iterator = new AggregatingIterator();
+        iterator.init(firstConfig, schema);
+        return Optional.of(iterator);
+    }
+
+    @Override
+    public void init(String configString, Schema schema) {
+        this.schema = schema;
+        this.operations = readOperations(configString);
+        // Validate the configuration against the schema
+        createAggregator();
+    }
+
+    @Override
+    public List<String> getRequiredValueFields() {
+        return schema.getValueFieldNames();
+    }
+
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
+
+    @Override
+    public CloseableIterator<Record> apply(CloseableIterator<Record> input) {
+        return new AggregatedRecords(input, createAggregator());
+    }
+
+    /**
+     * Creates an aggregator to combine records pushed to it in sort order, rather than read from an iterator.
+     *
+     * @return the aggregator
+     */
+    public RecordAggregator createAggregator() {
+        return new RecordAggregator(schema, operations);
+    }
+
+    private static Map<String, FieldAggregation> readOperations(String configString) {
+        if (null == configString || configString.isBlank()) {
+            return Collections.emptyMap();
+        }
+        Map<String, FieldAggregation> operations = new LinkedHashMap<>();
+        for (String fieldConfig : configString.split(",")) {
+            String[] parts = fieldConfig.split("=");
+            if (2 != parts.length) {
+                throw new IllegalArgumentException("Aggregation should be configured as field=operation, found: " + fieldConfig);
+            }
+            operations.put(parts[0].trim(), FieldAggregation.fromConfig(parts[1]));
+        }
+        return operations;
+    }
+
+    private static class AggregatedRecords implements CloseableIterator<Record> {
+        private final CloseableIterator<Record> input;
+        private final RecordAggregator aggregator;
+        private Record nextGroupStart;
+
+        AggregatedRecords(CloseableIterator<Record> input, RecordAggregator aggregator) {
+            this.input = input;
+            this.aggregator = aggregator;
+            if (input.hasNext()) {
+                nextGroupStart = input.next();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return null != nextGroupStart;
+        }
+
+        @Override
+        public Record next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            aggregator.start(nextGroupStart);
+            nextGroupStart = null;
+            while (input.hasNext()) {
+                Record record = input.next();
+                if (!aggregator.add(record)) {
+                    nextGroupStart = record;
+                    break;
+                }
+            }
+            return aggregator.finish();
+        }
+
+        @Override
+        public void close() throws IOException {
+            input.close();
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator.impl;
+
+import org.apache.datasketches.hll.HllSketch;
+import org.apache.datasketches.hll.TgtHllType;
+import org.apache.datasketches.hll.Union;
+
+import sleeper.core.record.Record;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.schema.type.Type;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * An operation to combine the values of a field in records with the same row and sort keys. Each operation creates a
+ * {@link ValueAggregator} which accumulates the values for one group of records.
+ */
+public enum AggregationOperation {
+    /**
+     * Adds the values of an int or long field. Null values are ignored.
+     */
+    SUM {
+        @Override
+        ValueAggregator createAggregator(Type type, String orderFieldName) {
+            if (type instanceof IntType) {
+                return new IntSum();
+            }
+            return new LongSum();
+        }
+
+        @Override
+        boolean supports(Type type) {
+            return type instanceof IntType || type instanceof LongType;
+        }
+    },
+    /**
+     * Takes the smallest value of an int, long or string field. Null values are ignored.
+     */
+    MIN {
+        @Override
+        ValueAggregator createAggregator(Type type, String orderFieldName) {
+            return new Extreme(-1);
+        }
+
+        @Override
+        boolean supports(Type type) {
+            return isComparable(type);
+        }
+    },
+    /**
+     * Takes the largest value of an int, long or string field. Null values are ignored.
+     */
+    MAX {
+        @Override
+        ValueAggregator createAggregator(Type type, String orderFieldName) {
+            return new Extreme(1);
+        }
+
+        @Override
+        boolean supports(Type type) {
+            return isComparable(type);
+        }
+    },
+    /**
+     * Counts records in a long field. Each value is the number of records it stands for, and a null value stands for
+     * one record. This means raw records can leave the field unset, and records which have already been aggregated
+     * can be aggregated again.
+     */
+    COUNT {
+        @Override
+        ValueAggregator createAggregator(Type type, String orderFieldName) {
+            return new Count();
+        }
+
+        @Override
+        boolean supports(Type type) {
+            return type instanceof LongType;
+        }
+    },
+    /**
+     * Takes the value from the latest record in the group of an int, long, string or byte array field. This is
+     * configured with a long field to order by, e.g. "latest=last:updated", and takes the value from the record with
+     * the greatest value of that field. The order field must itself be aggregated with {@link #MAX}, so that records
+     * which have already been aggregated keep the order of the latest value they hold. If more than one record has the
+     * greatest order value, the greatest of their values is taken. This means the result does not depend on the order
+     * records are read from different files, which is not defined for records with the same key.
+     */
+    LAST {
+        @Override
+        ValueAggregator createAggregator(Type type, String orderFieldName) {
+            return new Latest(orderFieldName);
+        }
+
+        @Override
+        boolean supports(Type type) {
+            return isComparable(type) || type instanceof ByteArrayType;
+        }
+    },
+    /**
+     * Unions serialised DataSketches HyperLogLog sketches held in a byte array field. Null values are ignored. The
+     * result has the precision of the first sketch in the group.
+     */
+    SKETCH_UNION {
+        @Override
+        ValueAggregator createAggregator(Type type, String orderFieldName) {
+            return new SketchUnion();
+        }
+
+        @Override
+        boolean supports(Type type) {
+            return type instanceof ByteArrayType;
+        }
+    };
+
+    /**
+     * Creates an aggregator to combine the values of a field.
+     *
+     * @param  type           the type of the field
+     * @param  orderFieldName the field to order records by, only used by {@link #LAST}
+     * @return                the aggregator
+     */
+    abstract ValueAggregator createAggregator(Type type, String orderFieldName);
+
+    abstract boolean supports(Type type);
+
+    /**
+     * Reads an operation from its name in an iterator configuration, ignoring case.
+     *
+     * @param  name the name of the operation, e.g. "sum" or "sketch_union"
+     * @return      the operation
+     */
+    public static AggregationOperation fromName(String name) {
+        try {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unrecognised aggregation operation: " + name, e);
+        }
+    }
+
+    private static boolean isComparable(Type type) {
+        return type instanceof IntType || type instanceof LongType || type instanceof StringType;
+    }
+
+    /**
+     * Accumulates the values of one field for a group of records with the same key.
+     */
+    interface ValueAggregator {
+        void reset(Object value, Record record);
+
+        void add(Object value, Record record);
+
+        Object getResult();
+    }
+
+    private static class IntSum implements ValueAggregator {
+        private Integer sum;
+
+        @Override
+        public void reset(Object value, Record record) {
+            sum = (Integer) value;
+        }
+
+        @Override
+        public void add(Object value, Record record) {
+            if (null == sum) {
+                sum = (Integer) value;
+            } else if (null != value) {
+                sum = sum + (Integer) value;
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return sum;
+        }
+    }
+
+    private static class LongSum implements ValueAggregator {
+        private Long sum;
+
+        @Override
+        public void reset(Object value, Record record) {
+            sum = (Long) value;
+        }
+
+        @Override
+        public void add(Object value, Record record) {
+            if (null == sum) {
+                sum = (Long) value;
+            } else if (null != value) {
+                sum = sum + (Long) value;
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return sum;
+        }
+    }
+
+    private static class Extreme implements ValueAggregator {
+        private final int direction;
+        private Comparable<Object> extreme;
+
+        Extreme(int direction) {
+            this.direction = direction;
+        }
+
+        @Override
+        public void reset(Object value, Record record) {
+            extreme = comparable(value);
+        }
+
+        @Override
+        public void add(Object value, Record record) {
+            Comparable<Object> comparable = comparable(value);
+            if (null == extreme) {
+                extreme = comparable;
+            } else if (null != comparable && Integer.signum(comparable.compareTo(extreme)) == direction) {
+                extreme = comparable;
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return extreme;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Comparable<Object> comparable(Object value) {
+            return (Comparable<Object>) value;
+        }
+    }
+
+    private static class Count implements ValueAggregator {
+        private long count;
+
+        @Override
+        public void reset(Object value, Record record) {
+            count = countOf(value);
+        }
+
+        @Override
+        public void add(Object value, Record record) {
+            count += countOf(value);
+        }
+
+        @Override
+        public Object getResult() {
+            return count;
+        }
+
+        private static long countOf(Object value) {
+            return null == value ? 1L : (Long) value;
+        }
+    }
+
+    private static class Latest implements ValueAggregator {
+        private final String orderFieldName;
+        private Object latest;
+        private long latestOrder;
+
+        Latest(String orderFieldName) {
+            this.orderFieldName = orderFieldName;
+        }
+
+        @Override
+        public void reset(Object value, Record record) {
+            latest = value;
+            latestOrder = orderOf(record);
+        }
+
+        @Override
+        public void add(Object value, Record record) {
+            long order = orderOf(record);
+            if (order > latestOrder || (order == latestOrder && compareValues(value, latest) > 0)) {
+                latest = value;
+                latestOrder = order;
+            }
+        }
+
+        @Override
+        public Object getResult() {
+            return latest;
+        }
+
+        private long orderOf(Record record) {
+            Long order = (Long) record.get(orderFieldName);
+            return null == order ? Long.MIN_VALUE : order;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static int compareValues(Object value1, Object value2) {
+            if (null == value1) {
+                return null == value2 ? 0 : -1;
+            } else if (null == value2) {
+                return 1;
+            }
+            if (value1 instanceof byte[]) {
+                return Arrays.compareUnsigned((byte[]) value1, (byte[]) value2);
+            }
+            return ((Comparable<Object>) value1).compareTo(value2);
+        }
+    }
+
+    /**
+     * Holds the serialised form of the first sketch until a second one is added, so that a group of one record does
+     * not need to deserialise its sketch.
+     */
+    private static class SketchUnion implements ValueAggregator {
+        private byte[] first;
+        private Union union;
+        private TgtHllType type;
+
+        @Override
+        public void reset(Object value, Record record) {
+            first = (byte[]) value;
+            union = null;
+        }
+
+        @Override
+        public void add(Object value, Record record) {
+            if (null == value) {
+                return;
+            }
+            if (null == union) {
+                if (null == first) {
+                    first = (byte[]) value;
+                    return;
+                }
+                HllSketch firstSketch = HllSketch.heapify(first);
+                union = new Union(firstSketch.getLgConfigK());
+                union.update(firstSketch);
+                type = firstSketch.getTgtHllType();
+            }
+            union.update(HllSketch.heapify((byte[]) value));
+        }
+
+        @Override
+        public Object getResult() {
+            if (null == union) {
+                return first;
+            }
+            return union.getResult(type).toCompactByteArray();
+        }
+    }
+}
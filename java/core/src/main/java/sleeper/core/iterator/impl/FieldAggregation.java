@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator.impl;
+
+import java.util.Objects;
+
+/**
+ * The aggregation configured for a value field. This is an {@link AggregationOperation}, and for
+ * {@link AggregationOperation#LAST} the field to order records by. In an iterator configuration this is written as the
+ * name of the operation, followed by the order field after a colon, e.g. "sum" or "last:updated".
+ */
+public class FieldAggregation {
+    private final AggregationOperation operation;
+    private final String orderFieldName;
+
+    public FieldAggregation(AggregationOperation operation, String orderFieldName) {
+        this.operation = Objects.requireNonNull(operation, "operation must not be null");
+        this.orderFieldName = orderFieldName;
+    }
+
+    /**
+     * Reads the aggregation for a field from an iterator configuration.
+     *
+     * @param  config the configuration, e.g. "sum" or "last:updated"
+     * @return        the aggregation
+     */
+    public static FieldAggregation fromConfig(String config) {
+        String[] parts = config.split(":", -1);
+        if (parts.length > 2) {
+            throw new IllegalArgumentException("Aggregation should be configured as operation or operation:field, found: " + config);
+        }
+        AggregationOperation operation = AggregationOperation.fromName(parts[0]);
+        String orderFieldName = parts.length == 2 ? parts[1].trim() : null;
+        if (AggregationOperation.LAST == operation && (null == orderFieldName || orderFieldName.isEmpty())) {
+            throw new IllegalArgumentException("Aggregation last needs a field to order by, e.g. last:updated, found: " + config);
+        }
+        if (AggregationOperation.LAST != operation && null != orderFieldName) {
+            throw new IllegalArgumentException("Only aggregation last takes a field to order by, found: " + config);
+        }
+        return new FieldAggregation(operation, orderFieldName);
+    }
+
+    public AggregationOperation getOperation() {
+        return operation;
+    }
+
+    public String getOrderFieldName() {
+        return orderFieldName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FieldAggregation that = (FieldAggregation) o;
+        return operation == that.operation && Objects.equals(orderFieldName, that.orderFieldName);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(operation, orderFieldName);
+    }
+
+    @Override
+    public String toString() {
+        return null == orderFieldName ? operation.toString() : operation + ":" + orderFieldName;
+    }
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator.impl;
+
+import sleeper.core.iterator.impl.AggregationOperation.ValueAggregator;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Combines sorted records with the same row and sort keys, one group at a time. Each value field is combined with the
+ * {@link AggregationOperation} configured for it. Records are passed in one at a time, so this can be used when
+ * records are pushed to a writer with {@link #push}, as well as from an {@link AggregatingIterator}.
+ */
+public class RecordAggregator {
+    private final String[] keyFieldNames;
+    private final String[] valueFieldNames;
+    private final ValueAggregator[] aggregators;
+    private Record groupFirstRecord;
+
+    public RecordAggregator(Schema schema, Map<String, FieldAggregation> operations) {
+        keyFieldNames = Stream.concat(schema.getRowKeyFieldNames().stream(), schema.getSortKeyFieldNames().stream())
+                .toArray(String[]::new);
+        List<Field> valueFields = schema.getValueFields();
+        Set<String> unknownFields = new HashSet<>(operations.keySet());
+        valueFields.forEach(field -> unknownFields.remove(field.getName()));
+        if (!unknownFields.isEmpty()) {
+            throw new IllegalArgumentException("Aggregation configured for fields which are not value fields: " + unknownFields);
+        }
+        List<String> unconfiguredFields = valueFields.stream()
+                .map(Field::getName)
+                .filter(name -> !operations.containsKey(name))
+                .collect(Collectors.toList());
+        if (!unconfiguredFields.isEmpty()) {
+            throw new IllegalArgumentException("No aggregation configured for value fields: " + unconfiguredFields);
+        }
+        valueFieldNames = new String[valueFields.size()];
+        aggregators = new ValueAggregator[valueFields.size()];
+        for (int i = 0; i < valueFields.size(); i++) {
+            Field field = valueFields.get(i);
+            FieldAggregation aggregation = operations.get(field.getName());
+            AggregationOperation operation = aggregation.getOperation();
+            if (!operation.supports(field.getType())) {
+                throw new IllegalArgumentException("Aggregation " + operation + " is not supported for field " +
+                        field.getName() + " of type " + field.getType());
+            }
+            if (null != aggregation.getOrderFieldName()) {
+                validateOrderField(field, aggregation.getOrderFieldName(), valueFields, operations);
+            }
+            valueFieldNames[i] = field.getName();
+            aggregators[i] = operation.createAggregator(field.getType(), aggregation.getOrderFieldName());
+        }
+    }
+
+    private static void validateOrderField(
+            Field field, String orderFieldName, List<Field> valueFields, Map<String, FieldAggregation> operations) {
+        Field orderField = valueFields.stream()
+                .filter(valueField -> valueField.getName().equals(orderFieldName))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Field " + field.getName() +
+                        " is ordered by " + orderFieldName + ", which is not a value field"));
+        if (!(orderField.getType() instanceof LongType)
+                || operations.get(orderFieldName).getOperation() != AggregationOperation.MAX) {
+            throw new IllegalArgumentException("Field " + field.getName() + " is ordered by " + orderFieldName +
+                    ", which must be a long field aggregated with max");
+        }
+    }
+
+    /**
+     * Checks whether a group has been started and not yet finished.
+     *
+     * @return true if there is a group in progress
+     */
+    public boolean hasGroup() {
+        return null != groupFirstRecord;
+    }
+
+    /**
+     * Starts a new group of records. Any group in progress is discarded, so should be finished first.
+     *
+     * @param record the first record in the group
+     */
+    public void start(Record record) {
+        groupFirstRecord = record;
+        for (int i = 0; i < aggregators.length; i++) {
+            aggregators[i].reset(record.get(valueFieldNames[i]), record);
+        }
+    }
+
+    /**
+     * Adds a record to the current group if it has the same row and sort keys.
+     *
+     * @param  record the next record in sort order
+     * @return        true if the record was added, false if it has different keys and so belongs in a new group
+     */
+    public boolean add(Record record) {
+        if (!hasSameKeys(groupFirstRecord, record)) {
+            return false;
+        }
+        for (int i = 0; i < aggregators.length; i++) {
+            aggregators[i].add(record.get(valueFieldNames[i]), record);
+        }
+        return true;
+    }
+
+    /**
+     * Adds a record pushed in sort order, starting a new group if it has different keys to the current group. The
+     * group in progress must be finished with {@link #finish} once the last record has been pushed.
+     *
+     * @param  record the next record in sort order
+     * @return        the aggregated record for the previous group if the record started a new group, otherwise null
+     */
+    public Record push(Record record) {
+        if (!hasGroup()) {
+            start(record);
+            return null;
+        } else if (add(record)) {
+            return null;
+        }
+        Record finished = finish();
+        start(record);
+        return finished;
+    }
+
+    /**
+     * Builds the aggregated record for the current group, and ends the group.
+     *
+     * @return the aggregated record
+     */
+    public Record finish() {
+        Record result = new Record(groupFirstRecord);
+        for (int i = 0; i < aggregators.length; i++) {
+            result.put(valueFieldNames[i], aggregators[i].getResult());
+        }
+        groupFirstRecord = null;
+        return result;
+    }
+
+    private boolean hasSameKeys(Record record1, Record record2) {
+        for (String keyFieldName : keyFieldNames) {
+            if (!Objects.deepEquals(record1.get(keyFieldName), record2.get(keyFieldName))) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
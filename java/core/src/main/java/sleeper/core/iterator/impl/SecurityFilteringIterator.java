@@ -15,27 +15,23 @@
  */
 package sleeper.core.iterator.impl;
 
-import sleeper.core.iterator.CloseableIterator;
-import sleeper.core.iterator.SortedRecordIterator;
-import sleeper.core.record.Record;
+import sleeper.core.iterator.PushdownFilter;
+import sleeper.core.iterator.SortedRecordBatch;
+import sleeper.core.iterator.SortedRecordBatchIterator;
 import sleeper.core.schema.Schema;
 
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 
 /**
- * This is an example implementation of a {@link SortedRecordIterator}. It is
- * intended to run at query time to filter out records that a user is not
- * allowed to see. A list of authorisations is provided. If the visibility field
- * equals one of these authorisations then the user is allowed to see the record.
- * If the visibility field is the empty or null string then the user is also
- * allowed to see the record.
+ * Removes records whose security label is not in a configured set of authorisations. Records with no security label
+ * are always output.
  */
-public class SecurityFilteringIterator implements SortedRecordIterator {
+public class SecurityFilteringIterator implements SortedRecordBatchIterator {
     private String fieldName;
     private Set<String> auths;
 
@@ -59,55 +55,22 @@ public class SecurityFilteringIterator implements SortedRecordIterator {
     }
 
     @Override
-    public CloseableIterator<Record> apply(CloseableIterator<Record> input) {
-        return new SecurityFilteringIteratorInternal(input, fieldName, auths);
+    public boolean isCacheable() {
+        return true;
     }
 
-    public static class SecurityFilteringIteratorInternal implements CloseableIterator<Record> {
-        private final CloseableIterator<Record> iterator;
-        private final String fieldName;
-        private final Set<String> auths;
-        private Record next;
-
-        public SecurityFilteringIteratorInternal(CloseableIterator<Record> iterator,
-                                                 String fieldName,
-                                                 Set<String> auths) {
-            this.iterator = iterator;
-            this.fieldName = fieldName;
-            this.auths = auths;
-            updateNextToAllowedValue();
-        }
-
-        private void updateNextToAllowedValue() {
-            while (iterator.hasNext()) {
-                next = iterator.next();
-                if (allowed(next, fieldName, auths)) {
-                    return;
-                }
-            }
-            next = null;
-        }
-
-        @Override
-        public boolean hasNext() {
-            return null != next;
-        }
-
-        @Override
-        public Record next() {
-            Record toReturn = next;
-            updateNextToAllowedValue();
-            return toReturn;
-        }
+    @Override
+    public Optional<PushdownFilter> getPushdownFilter() {
+        return Optional.of(PushdownFilter.stringInOrEmpty(fieldName, auths));
+    }
 
-        @Override
-        public void close() throws IOException {
-            iterator.close();
-        }
+    @Override
+    public void applyToBatch(SortedRecordBatch batch) {
+        Object[] securityLabels = batch.getColumn(fieldName);
+        batch.retainRows(row -> allowed((String) securityLabels[row], auths));
     }
 
-    private static boolean allowed(Record record, String securityFieldname, Set<String> auths) {
-        String securityLabel = (String) record.get(securityFieldname);
+    private static boolean allowed(String securityLabel, Set<String> auths) {
         if (null == securityLabel || 0 == securityLabel.length()) {
             return true;
         }
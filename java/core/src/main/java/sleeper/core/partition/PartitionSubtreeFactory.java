@@ -0,0 +1,184 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.partition;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.core.range.Range;
+import sleeper.core.range.Range.RangeFactory;
+import sleeper.core.range.Region;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Splits a leaf partition into a balanced tree of new partitions in one dimension, so that the split can be applied
+ * to the state store in one update. The partition is split at the median of a distribution of values, then each new
+ * partition is split again at the median of its part of the distribution, and so on down to a given depth. A new
+ * partition is left as a leaf if the next split point would not be strictly inside its range.
+ */
+public class PartitionSubtreeFactory {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionSubtreeFactory.class);
+
+    private final Schema schema;
+    private final RangeFactory rangeFactory;
+    private final Supplier<String> idSupplier;
+
+    public PartitionSubtreeFactory(Schema schema, Supplier<String> idSupplier) {
+        this.schema = schema;
+        this.rangeFactory = new RangeFactory(schema);
+        this.idSupplier = idSupplier;
+    }
+
+    /**
+     * Chooses the depth of the tree of new partitions, so that each leaf would be under the split threshold if the
+     * data were evenly divided between them.
+     *
+     * @param  numberOfRecords the number of records in the partition
+     * @param  splitThreshold  the partition split threshold
+     * @param  maxDepth        the maximum depth of the tree
+     * @return                 the depth, between 0 and the maximum depth, where 0 means the partition is under the
+     *                         split threshold
+     */
+    public static int chooseDepth(long numberOfRecords, long splitThreshold, int maxDepth) {
+        long leavesNeeded = numberOfRecords / splitThreshold + (numberOfRecords % splitThreshold == 0 ? 0 : 1);
+        int depth = 0;
+        while (depth < maxDepth && (1L << depth) < leavesNeeded) {
+            depth++;
+        }
+        return depth;
+    }
+
+    /**
+     * Splits a partition to the given depth.
+     *
+     * @param  <T>           the type of the values in the distribution
+     * @param  partition     the partition to split
+     * @param  dimension     the dimension to split on
+     * @param  depth         the number of levels of new partitions to create below the partition
+     * @param  distribution  the distribution of the values in the dimension
+     * @param  min           the minimum value covered by the partition in the distribution
+     * @param  max           the maximum value covered by the partition in the distribution, or null if unbounded
+     * @param  newPartitions the list to add new partitions to
+     * @return               the partition, updated with its new children if it was split
+     */
+    public <T> Partition splitToDepth(Partition partition, int dimension, int depth,
+                                      Distribution<T> distribution, T min, T max,
+                                      List<Partition> newPartitions) {
+        return splitToDepth(partition, dimension, depth, distribution,
+                new SplitRange<>(0.0D, 1.0D, min, max), newPartitions);
+    }
+
+    private <T> Partition splitToDepth(Partition partition, int dimension, int depth,
+                                       Distribution<T> distribution, SplitRange<T> range,
+                                       List<Partition> newPartitions) {
+        if (depth < 1) {
+            return partition;
+        }
+        double medianRank = (range.minRank + range.maxRank) / 2;
+        T splitPoint = distribution.getValueAtRank(medianRank);
+        if (distribution.compare(range.min, splitPoint) >= 0
+                || (null != range.max && distribution.compare(splitPoint, range.max) >= 0)) {
+            LOGGER.info("Not splitting partition {} further as split point {} is not between {} and {}",
+                    partition.getId(), splitPoint, range.min, range.max);
+            return partition;
+        }
+        Field fieldToSplitOn = schema.getRowKeyFields().get(dimension);
+        LOGGER.info("Splitting partition {} on split point {} in dimension {}", partition.getId(), splitPoint, dimension);
+        Range splitRange = partition.getRegion().getRange(fieldToSplitOn.getName());
+        Object rangeSplitPoint = distribution.toRangeValue(splitPoint);
+        Partition leftChild = createChild(partition, rangeFactory.createRange(fieldToSplitOn, splitRange.getMin(), rangeSplitPoint));
+        Partition rightChild = createChild(partition, rangeFactory.createRange(fieldToSplitOn, rangeSplitPoint, splitRange.getMax()));
+
+        leftChild = splitToDepth(leftChild, dimension, depth - 1, distribution,
+                new SplitRange<>(range.minRank, medianRank, range.min, splitPoint), newPartitions);
+        rightChild = splitToDepth(rightChild, dimension, depth - 1, distribution,
+                new SplitRange<>(medianRank, range.maxRank, splitPoint, range.max), newPartitions);
+        newPartitions.add(leftChild);
+        newPartitions.add(rightChild);
+
+        // Updated split partition
+        return partition.toBuilder()
+                .leafPartition(false)
+                .childPartitionIds(List.of(leftChild.getId(), rightChild.getId()))
+                .dimension(dimension).build();
+    }
+
+    private Partition createChild(Partition parent, Range rangeForSplitDimension) {
+        List<Range> childRanges = parent.getRegion().getRanges().stream()
+                .filter(range -> !range.getFieldName().equals(rangeForSplitDimension.getFieldName()))
+                .collect(Collectors.toList());
+        childRanges.add(rangeForSplitDimension);
+        return Partition.builder()
+                .rowKeyTypes(schema.getRowKeyTypes())
+                .region(new Region(childRanges))
+                .id(idSupplier.get())
+                .leafPartition(true)
+                .parentPartitionId(parent.getId())
+                .childPartitionIds(new ArrayList<>())
+                .dimension(-1)
+                .build();
+    }
+
+    /**
+     * A distribution of values in the dimension being split, used to choose split points.
+     *
+     * @param <T> the type of the values
+     */
+    public interface Distribution<T> {
+
+        /**
+         * Finds the value at a normalised rank in the distribution.
+         *
+         * @param  rank the rank, between 0 and 1
+         * @return      the value
+         */
+        T getValueAtRank(double rank);
+
+        int compare(T value1, T value2);
+
+        /**
+         * Converts a value in the distribution to a value for a range in a partition.
+         *
+         * @param  value the value
+         * @return       the value for a range
+         */
+        Object toRangeValue(T value);
+    }
+
+    /**
+     * The part of a distribution covered by a partition that is being split, as a range of ranks and the values at
+     * either end.
+     */
+    private static class SplitRange<T> {
+        private final double minRank;
+        private final double maxRank;
+        private final T min;
+        private final T max;
+
+        SplitRange(double minRank, double maxRank, T min, T max) {
+            this.minRank = minRank;
+            this.maxRank = maxRank;
+            this.min = min;
+            this.max = max;
+        }
+    }
+}
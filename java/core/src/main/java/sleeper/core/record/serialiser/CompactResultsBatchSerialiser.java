@@ -0,0 +1,418 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.record.serialiser;
+
+import org.apache.commons.codec.binary.Base64;
+
+import sleeper.core.record.Record;
+import sleeper.core.record.ResultsBatch;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.SchemaSerDe;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.PrimitiveType;
+import sleeper.core.schema.type.StringType;
+import sleeper.core.schema.type.Type;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Serialises batches of query results in a compact binary format, encoded as Base64 so that it can be sent as a text
+ * message. Ints and longs are written as zig-zag encoded variable length values, and strings and byte arrays are
+ * written as their raw bytes with a length prefix. Null values are recorded in a bitmap at the start of each record.
+ * The batch is compressed with deflate when that makes it smaller.
+ * <p>
+ * Serialised batches start with a prefix which is not valid JSON or Base64, so that they can be told apart from
+ * batches written by {@link JSONResultsBatchSerialiser}.
+ */
+public class CompactResultsBatchSerialiser implements ResultsBatchSerialiser {
+    public static final String PREFIX = "C1:";
+    private static final int COMPRESSED = 1;
+
+    private final boolean compress;
+    private final SchemaSerDe schemaSerDe = new SchemaSerDe();
+
+    public CompactResultsBatchSerialiser() {
+        this(true);
+    }
+
+    public CompactResultsBatchSerialiser(boolean compress) {
+        this.compress = compress;
+    }
+
+    /**
+     * Checks whether a serialised batch was written by this serialiser.
+     *
+     * @param  serialisedResultsBatch the serialised batch
+     * @return                        true if the batch is in the compact format
+     */
+    public static boolean isCompact(String serialisedResultsBatch) {
+        return serialisedResultsBatch.startsWith(PREFIX);
+    }
+
+    @Override
+    public String serialise(ResultsBatch resultsBatch) throws IOException {
+        byte[] payload = writePayload(resultsBatch);
+        byte flags = 0;
+        if (compress) {
+            byte[] compressed = deflate(payload);
+            if (compressed.length < payload.length) {
+                payload = compressed;
+                flags = COMPRESSED;
+            }
+        }
+        byte[] bytes = new byte[payload.length + 1];
+        bytes[0] = flags;
+        System.arraycopy(payload, 0, bytes, 1, payload.length);
+        return PREFIX + Base64.encodeBase64String(bytes);
+    }
+
+    @Override
+    public ResultsBatch deserialise(String serialisedResultsBatch) throws IOException {
+        if (!isCompact(serialisedResultsBatch)) {
+            throw new IOException("Results batch is not in the compact format");
+        }
+        byte[] bytes = Base64.decodeBase64(serialisedResultsBatch.substring(PREFIX.length()));
+        if (bytes.length == 0) {
+            throw new IOException("Results batch is empty");
+        }
+        InputStream input = new ByteArrayInputStream(bytes, 1, bytes.length - 1);
+        if ((bytes[0] & COMPRESSED) != 0) {
+            input = new InflaterInputStream(input);
+        }
+        try (DataInputStream in = new DataInputStream(input)) {
+            String queryId = readString(in);
+            Schema schema = schemaSerDe.fromJson(readString(in));
+            int numRecords = readVarInt(in);
+            List<Field> fields = schema.getAllFields();
+            List<Record> records = new ArrayList<>(numRecords);
+            for (int i = 0; i < numRecords; i++) {
+                records.add(readRecord(in, fields));
+            }
+            return new ResultsBatch(queryId, schema, records);
+        }
+    }
+
+    /**
+     * Creates an estimator for the length of a serialised batch of results for a query. The estimate is an upper bound
+     * on the length of the serialised batch, assuming it is not compressed.
+     *
+     * @param  queryId the query ID
+     * @param  schema  the schema of the records
+     * @return         the estimator
+     */
+    public ResultsBatchLengthEstimator lengthEstimator(String queryId, Schema schema) {
+        int headerLength = 1 + stringLength(queryId) + stringLength(schemaSerDe.toJson(schema));
+        return new LengthEstimator(headerLength, schema.getAllFields());
+    }
+
+    private byte[] writePayload(ResultsBatch resultsBatch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeString(out, resultsBatch.getQueryId());
+            writeString(out, schemaSerDe.toJson(resultsBatch.getSchema()));
+            writeVarInt(out, resultsBatch.getRecords().size());
+            List<Field> fields = resultsBatch.getSchema().getAllFields();
+            for (Record record : resultsBatch.getRecords()) {
+                writeRecord(out, record, fields);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] deflate(byte[] bytes) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (OutputStream out = new DeflaterOutputStream(compressed, deflater)) {
+            out.write(bytes);
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+
+    private static void writeRecord(DataOutput out, Record record, List<Field> fields) throws IOException {
+        byte[] nulls = new byte[(fields.size() + 7) / 8];
+        for (int i = 0; i < fields.size(); i++) {
+            if (null == record.get(fields.get(i).getName())) {
+                nulls[i / 8] |= 1 << (i % 8);
+            }
+        }
+        out.write(nulls);
+        for (Field field : fields) {
+            Object value = record.get(field.getName());
+            if (null != value) {
+                writeValue(out, value, field.getType());
+            }
+        }
+    }
+
+    private static Record readRecord(DataInput in, List<Field> fields) throws IOException {
+        byte[] nulls = new byte[(fields.size() + 7) / 8];
+        in.readFully(nulls);
+        Record record = new Record();
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            if ((nulls[i / 8] & (1 << (i % 8))) == 0) {
+                record.put(field.getName(), readValue(in, field.getType()));
+            } else {
+                record.put(field.getName(), null);
+            }
+        }
+        return record;
+    }
+
+    private static void writeValue(DataOutput out, Object value, Type type) throws IOException {
+        if (type instanceof PrimitiveType) {
+            writePrimitive(out, value, (PrimitiveType) type);
+        } else if (type instanceof MapType) {
+            MapType mapType = (MapType) type;
+            Map<?, ?> map = (Map<?, ?>) value;
+            writeVarInt(out, map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writePrimitive(out, entry.getKey(), mapType.getKeyType());
+                writePrimitive(out, entry.getValue(), mapType.getValueType());
+            }
+        } else if (type instanceof ListType) {
+            PrimitiveType elementType = ((ListType) type).getElementType();
+            List<?> list = (List<?>) value;
+            writeVarInt(out, list.size());
+            for (Object element : list) {
+                writePrimitive(out, element, elementType);
+            }
+        } else {
+            throw new IOException("Unknown type " + type);
+        }
+    }
+
+    private static Object readValue(DataInput in, Type type) throws IOException {
+        if (type instanceof PrimitiveType) {
+            return readPrimitive(in, (PrimitiveType) type);
+        } else if (type instanceof MapType) {
+            MapType mapType = (MapType) type;
+            int size = readVarInt(in);
+            Map<Object, Object> map = new HashMap<>(size);
+            for (int i = 0; i < size; i++) {
+                Object key = readPrimitive(in, mapType.getKeyType());
+                map.put(key, readPrimitive(in, mapType.getValueType()));
+            }
+            return map;
+        } else if (type instanceof ListType) {
+            PrimitiveType elementType = ((ListType) type).getElementType();
+            int size = readVarInt(in);
+            List<Object> list = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                list.add(readPrimitive(in, elementType));
+            }
+            return list;
+        } else {
+            throw new IOException("Unknown type " + type);
+        }
+    }
+
+    private static void writePrimitive(DataOutput out, Object value, PrimitiveType type) throws IOException {
+        if (type instanceof IntType) {
+            writeVarLong(out, zigZag((int) value));
+        } else if (type instanceof LongType) {
+            writeVarLong(out, zigZag((long) value));
+        } else if (type instanceof StringType) {
+            writeString(out, (String) value);
+        } else if (type instanceof ByteArrayType) {
+            byte[] bytes = (byte[]) value;
+            writeVarInt(out, bytes.length);
+            out.write(bytes);
+        } else {
+            throw new IOException("Unknown type " + type);
+        }
+    }
+
+    private static Object readPrimitive(DataInput in, PrimitiveType type) throws IOException {
+        if (type instanceof IntType) {
+            return (int) unZigZag(readVarLong(in));
+        } else if (type instanceof LongType) {
+            return unZigZag(readVarLong(in));
+        } else if (type instanceof StringType) {
+            return readString(in);
+        } else if (type instanceof ByteArrayType) {
+            byte[] bytes = new byte[readVarInt(in)];
+            in.readFully(bytes);
+            return bytes;
+        } else {
+            throw new IOException("Unknown type " + type);
+        }
+    }
+
+    private static int recordLength(Record record, List<Field> fields) {
+        int length = (fields.size() + 7) / 8;
+        for (Field field : fields) {
+            Object value = record.get(field.getName());
+            if (null != value) {
+                length += valueLength(value, field.getType());
+            }
+        }
+        return length;
+    }
+
+    private static int valueLength(Object value, Type type) {
+        if (type instanceof MapType) {
+            MapType mapType = (MapType) type;
+            Map<?, ?> map = (Map<?, ?>) value;
+            int length = varIntLength(map.size());
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                length += primitiveLength(entry.getKey(), mapType.getKeyType());
+                length += primitiveLength(entry.getValue(), mapType.getValueType());
+            }
+            return length;
+        } else if (type instanceof ListType) {
+            PrimitiveType elementType = ((ListType) type).getElementType();
+            List<?> list = (List<?>) value;
+            int length = varIntLength(list.size());
+            for (Object element : list) {
+                length += primitiveLength(element, elementType);
+            }
+            return length;
+        } else {
+            return primitiveLength(value, (PrimitiveType) type);
+        }
+    }
+
+    private static int primitiveLength(Object value, PrimitiveType type) {
+        if (type instanceof IntType) {
+            return varLongLength(zigZag((int) value));
+        } else if (type instanceof LongType) {
+            return varLongLength(zigZag((long) value));
+        } else if (type instanceof StringType) {
+            return stringLength((String) value);
+        } else {
+            int length = ((byte[]) value).length;
+            return varIntLength(length) + length;
+        }
+    }
+
+    private static int stringLength(String value) {
+        int length = value.getBytes(StandardCharsets.UTF_8).length;
+        return varIntLength(length) + length;
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        byte[] bytes = new byte[readVarInt(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarInt(DataOutput out, int value) throws IOException {
+        writeVarLong(out, value & 0xFFFFFFFFL);
+    }
+
+    private static int readVarInt(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Length " + value + " is too large");
+        }
+        return (int) value;
+    }
+
+    private static void writeVarLong(DataOutput out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    private static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Variable length value is too long");
+    }
+
+    private static int varIntLength(int value) {
+        return varLongLength(value & 0xFFFFFFFFL);
+    }
+
+    private static int varLongLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Estimates the length of a batch from the exact length of each record before compression.
+     */
+    private static class LengthEstimator implements ResultsBatchLengthEstimator {
+        private final int headerLength;
+        private final List<Field> fields;
+
+        LengthEstimator(int headerLength, List<Field> fields) {
+            this.headerLength = headerLength;
+            this.fields = fields;
+        }
+
+        @Override
+        public int recordLength(Record record) {
+            return CompactResultsBatchSerialiser.recordLength(record, fields);
+        }
+
+        @Override
+        public long serialisedLength(long totalRecordsLength, int numRecords) {
+            long binaryLength = headerLength + varIntLength(numRecords) + totalRecordsLength;
+            return PREFIX.length() + 4 * ((binaryLength + 2) / 3);
+        }
+    }
+}
@@ -28,12 +28,22 @@ import com.google.gson.JsonSerializer;
 
 import sleeper.core.record.Record;
 import sleeper.core.record.ResultsBatch;
+import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
 import sleeper.core.schema.SchemaSerDe;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.PrimitiveType;
+import sleeper.core.schema.type.StringType;
 import sleeper.core.schema.type.Type;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Serialises and deserialises a {@link ResultsBatch} of {@link Record}s to and from a JSON {@link String}.
@@ -76,6 +86,139 @@ public class JSONResultsBatchSerialiser implements ResultsBatchSerialiser {
         return serialise(resultsBatch);
     }
 
+    /**
+     * Creates an estimator for the length of a serialised batch of results for a query. The length of each record is
+     * computed from its field values without serialising it.
+     *
+     * @param  queryId the query ID
+     * @param  schema  the schema of the records
+     * @return         the estimator
+     */
+    public ResultsBatchLengthEstimator lengthEstimator(String queryId, Schema schema) {
+        int emptyBatchLength = serialise(new ResultsBatch(queryId, schema, List.of()))
+                .getBytes(StandardCharsets.UTF_8).length;
+        return new LengthEstimator(emptyBatchLength, schema.getAllFields());
+    }
+
+    private static int recordLength(Record record, List<Field> fields) {
+        int length = 2 + Math.max(0, fields.size() - 1);
+        for (Field field : fields) {
+            length += stringLength(field.getName()) + 1;
+            length += valueLength(record.get(field.getName()), field.getType());
+        }
+        return length;
+    }
+
+    private static int valueLength(Object value, Type type) {
+        if (null == value) {
+            return 4;
+        } else if (type instanceof MapType) {
+            MapType mapType = (MapType) type;
+            Map<?, ?> map = (Map<?, ?>) value;
+            int length = 2 + Math.max(0, map.size() - 1);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                length += keyLength(entry.getKey(), mapType.getKeyType()) + 1;
+                length += valueLength(entry.getValue(), mapType.getValueType());
+            }
+            return length;
+        } else if (type instanceof ListType) {
+            PrimitiveType elementType = ((ListType) type).getElementType();
+            List<?> list = (List<?>) value;
+            int length = 2 + Math.max(0, list.size() - 1);
+            for (Object element : list) {
+                length += valueLength(element, elementType);
+            }
+            return length;
+        } else if (type instanceof IntType || type instanceof LongType) {
+            return value.toString().length();
+        } else if (type instanceof StringType) {
+            return stringLength((String) value);
+        } else if (type instanceof ByteArrayType) {
+            return base64Length((byte[]) value);
+        } else {
+            throw new IllegalArgumentException("Unknown type " + type);
+        }
+    }
+
+    private static int keyLength(Object key, PrimitiveType type) {
+        if (type instanceof ByteArrayType) {
+            return base64Length((byte[]) key);
+        } else {
+            return stringLength(key.toString());
+        }
+    }
+
+    private static int base64Length(byte[] bytes) {
+        return 2 + 4 * ((bytes.length + 2) / 3);
+    }
+
+    /**
+     * Computes the length of a string as written by Gson, including quotes and escape sequences. Gson escapes HTML
+     * characters by default.
+     *
+     * @param  value the string
+     * @return       the length in UTF-8 bytes
+     */
+    private static int stringLength(String value) {
+        int length = 2;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                length += 2;
+            } else if (c < 0x20 || c == '<' || c == '>' || c == '&' || c == '=' || c == '\''
+                    || c == 0x2028 || c == 0x2029) {
+                length += escapeLength(c);
+            } else if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isSurrogate(c)) {
+                // A surrogate pair is 4 bytes in UTF-8
+                length += 2;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static int escapeLength(char c) {
+        switch (c) {
+            case '\t':
+            case '\b':
+            case '\n':
+            case '\r':
+            case '\f':
+                return 2;
+            default:
+                return 6;
+        }
+    }
+
+    /**
+     * Estimates the length of a batch from the length of each record as written by Gson.
+     */
+    private static class LengthEstimator implements ResultsBatchLengthEstimator {
+        private final int emptyBatchLength;
+        private final List<Field> fields;
+
+        LengthEstimator(int emptyBatchLength, List<Field> fields) {
+            this.emptyBatchLength = emptyBatchLength;
+            this.fields = fields;
+        }
+
+        @Override
+        public int recordLength(Record record) {
+            return JSONResultsBatchSerialiser.recordLength(record, fields);
+        }
+
+        @Override
+        public long serialisedLength(long totalRecordsLength, int numRecords) {
+            // Allow for the commas between records
+            return emptyBatchLength + totalRecordsLength + Math.max(0, numRecords - 1);
+        }
+    }
+
     private static class ResultsBatchSerDe implements JsonSerializer<ResultsBatch>, JsonDeserializer<ResultsBatch> {
         @Override
         public ResultsBatch deserialize(JsonElement json, java.lang.reflect.Type typeOfT, JsonDeserializationContext context) throws JsonParseException {
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.record.serialiser;
+
+import org.apache.commons.lang3.EnumUtils;
+
+import sleeper.core.schema.Schema;
+
+import java.util.Locale;
+
+/**
+ * The formats that batches of query results can be sent in.
+ */
+public enum ResultsBatchFormat {
+    JSON {
+        @Override
+        public ResultsBatchSerialiser serialiser() {
+            return new JSONResultsBatchSerialiser();
+        }
+
+        @Override
+        public ResultsBatchLengthEstimator lengthEstimator(String queryId, Schema schema) {
+            return new JSONResultsBatchSerialiser().lengthEstimator(queryId, schema);
+        }
+    },
+    COMPACT {
+        @Override
+        public ResultsBatchSerialiser serialiser() {
+            return new CompactResultsBatchSerialiser();
+        }
+
+        @Override
+        public ResultsBatchLengthEstimator lengthEstimator(String queryId, Schema schema) {
+            return new CompactResultsBatchSerialiser().lengthEstimator(queryId, schema);
+        }
+    };
+
+    /**
+     * Creates a serialiser for batches in this format.
+     *
+     * @return the serialiser
+     */
+    public abstract ResultsBatchSerialiser serialiser();
+
+    /**
+     * Creates an estimator for the length of a batch of results for a query in this format.
+     *
+     * @param  queryId the query ID
+     * @param  schema  the schema of the records
+     * @return         the estimator
+     */
+    public abstract ResultsBatchLengthEstimator lengthEstimator(String queryId, Schema schema);
+
+    /**
+     * Creates a serialiser which can read a serialised batch, by detecting which format it was written in.
+     *
+     * @param  serialisedResultsBatch the serialised batch
+     * @return                        the serialiser
+     */
+    public static ResultsBatchSerialiser serialiserFor(String serialisedResultsBatch) {
+        if (CompactResultsBatchSerialiser.isCompact(serialisedResultsBatch)) {
+            return COMPACT.serialiser();
+        }
+        return JSON.serialiser();
+    }
+
+    public static ResultsBatchFormat fromString(String format) {
+        return valueOf(format.toUpperCase(Locale.ROOT));
+    }
+
+    public static boolean isValid(String format) {
+        return EnumUtils.isValidEnumIgnoreCase(ResultsBatchFormat.class, format);
+    }
+}
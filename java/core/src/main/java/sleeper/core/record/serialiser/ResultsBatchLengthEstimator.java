@@ -0,0 +1,42 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.record.serialiser;
+
+import sleeper.core.record.Record;
+
+/**
+ * Estimates the length of a serialised batch of query results, so that batches can be filled up to a size limit
+ * without serialising them repeatedly.
+ */
+public interface ResultsBatchLengthEstimator {
+
+    /**
+     * Estimates how much a record contributes to the length of a serialised batch.
+     *
+     * @param  record the record
+     * @return        the length of the record
+     */
+    int recordLength(Record record);
+
+    /**
+     * Estimates the length of a serialised batch.
+     *
+     * @param  totalRecordsLength the sum of the lengths of the records in the batch
+     * @param  numRecords         the number of records in the batch
+     * @return                    the length of the serialised batch
+     */
+    long serialisedLength(long totalRecordsLength, int numRecords);
+}
@@ -0,0 +1,301 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator;
+
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.iterator.impl.AdditionIterator;
+import sleeper.core.iterator.impl.AgeOffIterator;
+import sleeper.core.iterator.impl.SecurityFilteringIterator;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class SortedRecordIteratorChainTest {
+
+    private static final long NOW = System.currentTimeMillis();
+    private static final long OLD = NOW - 1_000_000_000L;
+
+    @Nested
+    class CreateFromConfig {
+        private final Schema schema = Schema.builder()
+                .rowKeyFields(new Field("id", new StringType()))
+                .valueFields(new Field("timestamp", new LongType()), new Field("visibility", new StringType()))
+                .build();
+
+        @Test
+        void shouldCreateSingleIteratorWithoutChain() throws Exception {
+            // When
+            SortedRecordIterator iterator = SortedRecordIteratorChain.create(
+                    AgeOffIterator.class.getName(), "timestamp,1000000", schema, SortedRecordIteratorChainTest::load);
+
+            // Then
+            assertThat(iterator).isInstanceOf(AgeOffIterator.class);
+            assertThat(iterator.getRequiredValueFields()).containsExactly("timestamp");
+        }
+
+        @Test
+        void shouldApplyChainOfIteratorsInOrder() throws Exception {
+            // Given
+            SortedRecordIterator iterator = SortedRecordIteratorChain.create(
+                    AgeOffIterator.class.getName() + ";" + SecurityFilteringIterator.class.getName(),
+                    "timestamp,1000000;visibility,public", schema, SortedRecordIteratorChainTest::load);
+            Record record1 = record("1", NOW, "public");
+            Record record2 = record("2", OLD, "public");
+            Record record3 = record("3", NOW, "private");
+            Record record4 = record("4", NOW, "");
+
+            // When / Then
+            assertThat(iterator.apply(iterate(record1, record2, record3, record4)))
+                    .toIterable().containsExactly(record1, record4);
+            assertThat(iterator.getRequiredValueFields()).containsExactly("timestamp", "visibility");
+        }
+
+        @Test
+        void shouldOnlyBeCacheableWhenEveryIteratorInChainIs() throws Exception {
+            // Given
+            SortedRecordIterator withAgeOff = SortedRecordIteratorChain.create(
+                    SecurityFilteringIterator.class.getName() + ";" + AgeOffIterator.class.getName(),
+                    "visibility,public;timestamp,1000000", schema, SortedRecordIteratorChainTest::load);
+            SortedRecordIterator withoutAgeOff = SortedRecordIteratorChain.create(
+                    SecurityFilteringIterator.class.getName() + ";" + SecurityFilteringIterator.class.getName(),
+                    "visibility,public;visibility,private", schema, SortedRecordIteratorChainTest::load);
+
+            // When / Then
+            assertThat(withAgeOff.isCacheable()).isFalse();
+            assertThat(withoutAgeOff.isCacheable()).isTrue();
+        }
+
+        @Test
+        void shouldFailWhenMoreConfigsThanIterators() {
+            assertThatThrownBy(() -> SortedRecordIteratorChain.create(
+                    AgeOffIterator.class.getName() + ";" + SecurityFilteringIterator.class.getName(),
+                    "timestamp,1000000;visibility;other", schema, SortedRecordIteratorChainTest::load))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Nested
+    class MixBatchAndRecordIterators {
+        private final Schema schema = Schema.builder()
+                .rowKeyFields(new Field("id", new StringType()))
+                .valueFields(new Field("timestamp", new LongType()), new Field("count", new LongType()))
+                .build();
+
+        @Test
+        void shouldApplyBatchIteratorBeforeRecordIterator() throws Exception {
+            // Given
+            SortedRecordIterator iterator = SortedRecordIteratorChain.create(
+                    AgeOffIterator.class.getName() + ";" + AdditionIterator.class.getName(),
+                    "timestamp,1000000;", schema, SortedRecordIteratorChainTest::load);
+
+            // When
+            List<Record> output = toList(iterator.apply(iterate(
+                    countRecord("1", NOW, 1L),
+                    countRecord("1", OLD, 10L),
+                    countRecord("1", NOW, 100L),
+                    countRecord("2", OLD, 1000L))));
+
+            // Then
+            assertThat(output).extracting(record -> record.get("id"), record -> record.get("count"))
+                    .containsExactly(tuple("1", 101L));
+        }
+    }
+
+    @Nested
+    class FindFilterToApplyWhenReading {
+        private final Schema schema = Schema.builder()
+                .rowKeyFields(new Field("id", new StringType()))
+                .valueFields(new Field("timestamp", new LongType()), new Field("visibility", new StringType()),
+                        new Field("count", new LongType()))
+                .build();
+
+        @Test
+        void shouldCombineFiltersOfAllIteratorsInChain() throws Exception {
+            // Given
+            SortedRecordIterator iterator = SortedRecordIteratorChain.create(
+                    AgeOffIterator.class.getName() + ";" + SecurityFilteringIterator.class.getName(),
+                    "timestamp,1000;visibility,public", schema, SortedRecordIteratorChainTest::load);
+
+            // When
+            Optional<PushdownFilter> filter = SortedRecordIteratorChain.getReadFilter(iterator);
+
+            // Then
+            assertThat(filter).get().isInstanceOf(PushdownFilter.And.class);
+            List<PushdownFilter> filters = ((PushdownFilter.And) filter.get()).getFilters();
+            assertThat(filters).hasSize(2);
+            assertThat(filters.get(0)).isInstanceOfSatisfying(PushdownFilter.LongGreaterThan.class, ageOff -> {
+                assertThat(ageOff.getFieldName()).isEqualTo("timestamp");
+                assertThat(ageOff.getValue()).isBetween(NOW - 1000L, System.currentTimeMillis() - 1000L);
+            });
+            assertThat(filters.get(1)).isEqualTo(PushdownFilter.stringInOrEmpty("visibility", Set.of("public")));
+            assertThat(iterator.getPushdownFilter()).isPresent();
+        }
+
+        @Test
+        void shouldCombineFiltersOfIteratorsAppliedOneAfterAnother() throws Exception {
+            // Given
+            SortedRecordIterator compactionIterator = SortedRecordIteratorChain.create(
+                    SecurityFilteringIterator.class.getName(), "visibility,public", schema, SortedRecordIteratorChainTest::load);
+            SortedRecordIterator queryIterator = SortedRecordIteratorChain.create(
+                    SecurityFilteringIterator.class.getName(), "visibility,public,private", schema, SortedRecordIteratorChainTest::load);
+
+            // When / Then
+            assertThat(SortedRecordIteratorChain.getReadFilter(compactionIterator, queryIterator))
+                    .contains(PushdownFilter.and(List.of(
+                            PushdownFilter.stringInOrEmpty("visibility", Set.of("public")),
+                            PushdownFilter.stringInOrEmpty("visibility", Set.of("public", "private")))));
+        }
+
+        @Test
+        void shouldNotApplyFiltersAfterIteratorWhichDoesNotOnlyFilter() throws Exception {
+            // Given
+            SortedRecordIterator compactionIterator = SortedRecordIteratorChain.create(
+                    SecurityFilteringIterator.class.getName() + ";" + AdditionIterator.class.getName(),
+                    "visibility,public;", schema, SortedRecordIteratorChainTest::load);
+            SortedRecordIterator queryIterator = SortedRecordIteratorChain.create(
+                    AgeOffIterator.class.getName(), "timestamp,1000", schema, SortedRecordIteratorChainTest::load);
+
+            // When / Then
+            assertThat(SortedRecordIteratorChain.getReadFilter(compactionIterator, queryIterator))
+                    .contains(PushdownFilter.stringInOrEmpty("visibility", Set.of("public")));
+            assertThat(compactionIterator.getPushdownFilter()).isEmpty();
+        }
+
+        @Test
+        void shouldFindNoFilterWhenFirstIteratorDoesNotOnlyFilter() throws Exception {
+            // Given
+            SortedRecordIterator compactionIterator = SortedRecordIteratorChain.create(
+                    AdditionIterator.class.getName(), null, schema, SortedRecordIteratorChainTest::load);
+            SortedRecordIterator queryIterator = SortedRecordIteratorChain.create(
+                    SecurityFilteringIterator.class.getName(), "visibility,public", schema, SortedRecordIteratorChainTest::load);
+
+            // When / Then
+            assertThat(SortedRecordIteratorChain.getReadFilter(compactionIterator, queryIterator)).isEmpty();
+        }
+
+        @Test
+        void shouldIgnoreIteratorsWhichAreNotConfigured() throws Exception {
+            // Given
+            SortedRecordIterator queryIterator = SortedRecordIteratorChain.create(
+                    SecurityFilteringIterator.class.getName(), "visibility", schema, SortedRecordIteratorChainTest::load);
+
+            // When / Then
+            assertThat(SortedRecordIteratorChain.getReadFilter(null, queryIterator))
+                    .contains(PushdownFilter.stringInOrEmpty("visibility", Set.of()));
+            assertThat(SortedRecordIteratorChain.getReadFilter(null, null)).isEmpty();
+        }
+    }
+
+    @Nested
+    class ApplyInBatches {
+
+        @Test
+        void shouldFilterAcrossSeveralBatches() {
+            // Given
+            SortedRecordBatchIterator keepEvenIds = new KeepEvenIds();
+            Record record1 = new Record(Map.of("id", 1L));
+            Record record2 = new Record(Map.of("id", 2L));
+            Record record3 = new Record(Map.of("id", 3L));
+            Record record4 = new Record(Map.of("id", 4L));
+            Record record5 = new Record(Map.of("id", 5L));
+            Record record6 = new Record(Map.of("id", 6L));
+
+            // When
+            CloseableIterator<Record> output = new BatchApplyingIterator(
+                    iterate(record1, record2, record3, record4, record5, record6), List.of(keepEvenIds), 2);
+
+            // Then
+            assertThat(output).toIterable().containsExactly(record2, record4, record6);
+        }
+
+        @Test
+        void shouldSkipBatchesWithNoSelectedRecords() {
+            // Given
+            SortedRecordBatchIterator keepEvenIds = new KeepEvenIds();
+            Record record1 = new Record(Map.of("id", 1L));
+            Record record3 = new Record(Map.of("id", 3L));
+            Record record4 = new Record(Map.of("id", 4L));
+
+            // When
+            CloseableIterator<Record> output = new BatchApplyingIterator(
+                    iterate(record1, record3, record4), List.of(keepEvenIds), 2);
+
+            // Then
+            assertThat(output).toIterable().containsExactly(record4);
+        }
+    }
+
+    private static SortedRecordIterator load(String className) throws ReflectiveOperationException {
+        return Class.forName(className).asSubclass(SortedRecordIterator.class).getDeclaredConstructor().newInstance();
+    }
+
+    private static Record record(String id, long timestamp, String visibility) {
+        Record record = new Record();
+        record.put("id", id);
+        record.put("timestamp", timestamp);
+        record.put("visibility", visibility);
+        return record;
+    }
+
+    private static Record countRecord(String id, long timestamp, long count) {
+        Record record = new Record();
+        record.put("id", id);
+        record.put("timestamp", timestamp);
+        record.put("count", count);
+        return record;
+    }
+
+    private static CloseableIterator<Record> iterate(Record... records) {
+        return new WrappedIterator<>(List.of(records).iterator());
+    }
+
+    private static List<Record> toList(CloseableIterator<Record> iterator) {
+        List<Record> list = new ArrayList<>();
+        iterator.forEachRemaining(list::add);
+        return list;
+    }
+
+    private static class KeepEvenIds implements SortedRecordBatchIterator {
+        @Override
+        public void init(String configString, Schema schema) {
+        }
+
+        @Override
+        public List<String> getRequiredValueFields() {
+            return List.of();
+        }
+
+        @Override
+        public void applyToBatch(SortedRecordBatch batch) {
+            Object[] ids = batch.getColumn("id");
+            batch.retainRows(row -> (Long) ids[row] % 2 == 0);
+        }
+    }
+}
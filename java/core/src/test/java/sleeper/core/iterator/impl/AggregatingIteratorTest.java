@@ -0,0 +1,308 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.iterator.impl;
+
+import org.apache.datasketches.hll.HllSketch;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.iterator.SortedRecordIteratorChain;
+import sleeper.core.iterator.WrappedIterator;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class AggregatingIteratorTest {
+
+    @Nested
+    class CombineValues {
+        private final Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new StringType()))
+                .sortKeyFields(new Field("sort", new IntType()))
+                .valueFields(
+                        new Field("total", new LongType()),
+                        new Field("lowest", new StringType()),
+                        new Field("highest", new IntType()),
+                        new Field("count", new LongType()),
+                        new Field("updated", new LongType()),
+                        new Field("latest", new StringType()))
+                .build();
+        private final String config = "total=sum,lowest=min,highest=max,count=count,updated=max,latest=last:updated";
+
+        @Test
+        void shouldCombineRecordsWithSameRowAndSortKeys() {
+            // Given
+            AggregatingIterator iterator = new AggregatingIterator();
+            iterator.init(config, schema);
+
+            // When
+            List<Record> output = aggregate(iterator,
+                    record("a", 1, 10L, "b", 3, null, 1L, "first"),
+                    record("a", 1, 20L, "a", 7, 5L, 2L, "second"),
+                    record("a", 1, 30L, "c", 5, null, 3L, "third"),
+                    record("a", 2, 1L, "x", 1, null, 1L, "other"));
+
+            // Then
+            assertThat(output).containsExactly(
+                    record("a", 1, 60L, "a", 7, 7L, 3L, "third"),
+                    record("a", 2, 1L, "x", 1, 1L, 1L, "other"));
+        }
+
+        @Test
+        void shouldTakeLatestValueByOrderFieldRegardlessOfReadOrder() {
+            // Given
+            AggregatingIterator iterator = new AggregatingIterator();
+            iterator.init(config, schema);
+
+            // When
+            List<Record> output = aggregate(iterator,
+                    record("a", 1, 10L, "b", 3, null, 3L, "newest"),
+                    record("a", 1, 20L, "a", 7, null, 1L, "oldest"),
+                    record("a", 1, 30L, "c", 5, null, 2L, "middle"));
+
+            // Then
+            assertThat(output).containsExactly(
+                    record("a", 1, 60L, "a", 7, 3L, 3L, "newest"));
+        }
+
+        @Test
+        void shouldTakeGreatestValueWhenOrderFieldIsTied() {
+            // Given
+            AggregatingIterator iterator = new AggregatingIterator();
+            iterator.init(config, schema);
+
+            // When
+            List<Record> output1 = aggregate(iterator,
+                    record("a", 1, 10L, "b", 3, null, 2L, "x"),
+                    record("a", 1, 20L, "a", 7, null, 2L, "y"));
+            List<Record> output2 = aggregate(iterator,
+                    record("a", 1, 20L, "a", 7, null, 2L, "y"),
+                    record("a", 1, 10L, "b", 3, null, 2L, "x"));
+
+            // Then
+            assertThat(output1).containsExactly(
+                    record("a", 1, 30L, "a", 7, 2L, 2L, "y"));
+            assertThat(output2).isEqualTo(output1);
+        }
+
+        @Test
+        void shouldGiveSameResultWhenAggregatingAgain() {
+            // Given
+            AggregatingIterator iterator = new AggregatingIterator();
+            iterator.init(config, schema);
+            List<Record> firstPass = aggregate(iterator,
+                    record("a", 1, 10L, "b", 3, null, 1L, "first"),
+                    record("a", 1, 20L, "a", 7, null, 3L, "third"));
+            List<Record> secondPass = aggregate(iterator,
+                    record("a", 1, 30L, "c", 5, null, 2L, "second"));
+
+            // When
+            List<Record> input = new ArrayList<>(secondPass);
+            input.addAll(firstPass);
+            List<Record> output = aggregate(iterator, input.toArray(new Record[0]));
+
+            // Then
+            assertThat(output).containsExactly(
+                    record("a", 1, 60L, "a", 7, 3L, 3L, "third"));
+        }
+
+        @Test
+        void shouldIgnoreNullValuesForSumMinAndMax() {
+            // Given
+            AggregatingIterator iterator = new AggregatingIterator();
+            iterator.init(config, schema);
+
+            // When
+            List<Record> output = aggregate(iterator,
+                    record("a", 1, null, null, null, null, 1L, "first"),
+                    record("a", 1, 20L, "a", 7, null, 2L, "second"),
+                    record("a", 1, null, null, null, null, 3L, "third"));
+
+            // Then
+            assertThat(output).containsExactly(
+                    record("a", 1, 20L, "a", 7, 3L, 3L, "third"));
+        }
+
+        @Test
+        void shouldCombineRecordsPushedToAggregator() {
+            // Given
+            AggregatingIterator iterator = new AggregatingIterator();
+            iterator.init(config, schema);
+            RecordAggregator aggregator = iterator.createAggregator();
+
+            // When
+            Record output1 = aggregator.push(record("a", 1, 10L, "b", 3, null, 1L, "first"));
+            Record output2 = aggregator.push(record("a", 1, 20L, "a", 7, null, 2L, "second"));
+            Record output3 = aggregator.push(record("a", 2, 1L, "x", 1, null, 1L, "other"));
+            Record output4 = aggregator.finish();
+
+            // Then
+            assertThat(output1).isNull();
+            assertThat(output2).isNull();
+            assertThat(output3).isEqualTo(record("a", 1, 30L, "a", 7, 2L, 2L, "second"));
+            assertThat(output4).isEqualTo(record("a", 2, 1L, "x", 1, 1L, 1L, "other"));
+            assertThat(aggregator.hasGroup()).isFalse();
+        }
+
+        private Record record(String key, int sort, Long total, String lowest, Integer highest, Long count, Long updated, String latest) {
+            Record record = new Record();
+            record.put("key", key);
+            record.put("sort", sort);
+            record.put("total", total);
+            record.put("lowest", lowest);
+            record.put("highest", highest);
+            record.put("count", count);
+            record.put("updated", updated);
+            record.put("latest", latest);
+            return record;
+        }
+    }
+
+    @Nested
+    class UnionSketches {
+        private final Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new ByteArrayType()))
+                .valueFields(new Field("users", new ByteArrayType()))
+                .build();
+
+        @Test
+        void shouldUnionSketchesForSameByteArrayKey() {
+            // Given
+            AggregatingIterator iterator = new AggregatingIterator();
+            iterator.init("users=sketch_union", schema);
+            Record record1 = new Record(Map.of("key", new byte[]{1}, "users", sketchOf("u1", "u2")));
+            Record record2 = new Record(Map.of("key", new byte[]{1}, "users", sketchOf("u2", "u3")));
+            Record record3 = new Record(Map.of("key", new byte[]{2}, "users", sketchOf("u4")));
+
+            // When
+            List<Record> output = aggregate(iterator, record1, record2, record3);
+
+            // Then
+            assertThat(output).hasSize(2);
+            assertThat((byte[]) output.get(0).get("key")).containsExactly(1);
+            assertThat(estimate(output.get(0))).isEqualTo(3.0, within(0.01));
+            assertThat((byte[]) output.get(1).get("key")).containsExactly(2);
+            assertThat(estimate(output.get(1))).isEqualTo(1.0, within(0.01));
+        }
+
+        private byte[] sketchOf(String... values) {
+            HllSketch sketch = new HllSketch(12);
+            for (String value : values) {
+                sketch.update(value);
+            }
+            return sketch.toCompactByteArray();
+        }
+
+        private double estimate(Record record) {
+            return HllSketch.heapify((byte[]) record.get("users")).getEstimate();
+        }
+    }
+
+    @Nested
+    class ValidateConfig {
+        private final Schema schema = Schema.builder()
+                .rowKeyFields(new Field("key", new StringType()))
+                .valueFields(
+                        new Field("count", new LongType()),
+                        new Field("updated", new LongType()),
+                        new Field("name", new StringType()))
+                .build();
+
+        @Test
+        void shouldFailWhenValueFieldHasNoAggregation() {
+            AggregatingIterator iterator = new AggregatingIterator();
+            assertThatThrownBy(() -> iterator.init("count=sum,updated=max", schema))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("name");
+        }
+
+        @Test
+        void shouldFailWhenAggregationIsNotSupportedForFieldType() {
+            AggregatingIterator iterator = new AggregatingIterator();
+            assertThatThrownBy(() -> iterator.init("count=sum,updated=max,name=sum", schema))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("name");
+        }
+
+        @Test
+        void shouldFailWhenOperationIsNotRecognised() {
+            AggregatingIterator iterator = new AggregatingIterator();
+            assertThatThrownBy(() -> iterator.init("count=average,updated=max,name=last:updated", schema))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("average");
+        }
+
+        @Test
+        void shouldFailWhenLastHasNoOrderField() {
+            AggregatingIterator iterator = new AggregatingIterator();
+            assertThatThrownBy(() -> iterator.init("count=sum,updated=max,name=last", schema))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("order");
+        }
+
+        @Test
+        void shouldFailWhenOrderFieldIsNotAggregatedWithMax() {
+            AggregatingIterator iterator = new AggregatingIterator();
+            assertThatThrownBy(() -> iterator.init("count=sum,updated=sum,name=last:updated", schema))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("updated");
+        }
+
+        @Test
+        void shouldFailWhenOrderFieldIsNotAValueField() {
+            AggregatingIterator iterator = new AggregatingIterator();
+            assertThatThrownBy(() -> iterator.init("count=sum,updated=max,name=last:key", schema))
+                    .isInstanceOf(IllegalArgumentException.class)
+                    .hasMessageContaining("key");
+        }
+
+        @Test
+        void shouldCreateForPreAggregationWhenFirstInChain() {
+            assertThat(AggregatingIterator.createIfFirstInChain(
+                    AggregatingIterator.class.getName() + SortedRecordIteratorChain.SEPARATOR + AgeOffIterator.class.getName(),
+                    "count=sum,updated=max,name=last:updated;count,1000", schema))
+                    .isPresent();
+        }
+
+        @Test
+        void shouldNotCreateForPreAggregationWhenAnotherIteratorIsFirst() {
+            assertThat(AggregatingIterator.createIfFirstInChain(
+                    AgeOffIterator.class.getName() + SortedRecordIteratorChain.SEPARATOR + AggregatingIterator.class.getName(),
+                    "count,1000;count=sum,updated=max,name=last:updated", schema))
+                    .isEmpty();
+            assertThat(AggregatingIterator.createIfFirstInChain(null, null, schema))
+                    .isEmpty();
+        }
+    }
+
+    private static List<Record> aggregate(AggregatingIterator iterator, Record... records) {
+        List<Record> output = new ArrayList<>();
+        iterator.apply(new WrappedIterator<>(List.of(records).iterator())).forEachRemaining(output::add);
+        return output;
+    }
+}
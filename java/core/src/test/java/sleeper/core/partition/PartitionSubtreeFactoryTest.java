@@ -0,0 +1,111 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.partition;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.core.schema.SchemaTestHelper.schemaWithKey;
+
+public class PartitionSubtreeFactoryTest {
+
+    private final Schema schema = schemaWithKey("key", new LongType());
+
+    @Test
+    public void shouldChooseDepthFromSplitThreshold() {
+        assertThat(PartitionSubtreeFactory.chooseDepth(100, 100, 3)).isZero();
+        assertThat(PartitionSubtreeFactory.chooseDepth(101, 100, 3)).isEqualTo(1);
+        assertThat(PartitionSubtreeFactory.chooseDepth(400, 100, 3)).isEqualTo(2);
+        assertThat(PartitionSubtreeFactory.chooseDepth(401, 100, 3)).isEqualTo(3);
+        assertThat(PartitionSubtreeFactory.chooseDepth(10000, 100, 3)).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldSplitToDepthAtMediansOfDistribution() {
+        // Given
+        PartitionTree tree = new PartitionsBuilder(schema).rootFirst("root").buildTree();
+        PartitionSubtreeFactory factory = new PartitionSubtreeFactory(schema,
+                List.of("A", "B", "C", "D", "E", "F").iterator()::next);
+        List<Partition> newPartitions = new ArrayList<>();
+
+        // When
+        Partition splitPartition = factory.splitToDepth(tree.getRootPartition(), 0, 2,
+                new UniformDistribution(0, 100), 0L, 100L, newPartitions);
+
+        // Then
+        PartitionTree expected = new PartitionsBuilder(schema).rootFirst("root")
+                .splitToNewChildren("root", "A", "B", 50L)
+                .splitToNewChildren("A", "C", "D", 25L)
+                .splitToNewChildren("B", "E", "F", 75L)
+                .buildTree();
+        assertThat(splitPartition).isEqualTo(expected.getRootPartition());
+        assertThat(newPartitions).containsExactlyInAnyOrder(
+                expected.getPartition("A"), expected.getPartition("B"), expected.getPartition("C"),
+                expected.getPartition("D"), expected.getPartition("E"), expected.getPartition("F"));
+    }
+
+    @Test
+    public void shouldLeavePartitionAsLeafWhenSplitPointIsNotInsideItsRange() {
+        // Given
+        PartitionTree tree = new PartitionsBuilder(schema).rootFirst("root").buildTree();
+        PartitionSubtreeFactory factory = new PartitionSubtreeFactory(schema,
+                List.of("A", "B", "C", "D").iterator()::next);
+        List<Partition> newPartitions = new ArrayList<>();
+
+        // When
+        Partition splitPartition = factory.splitToDepth(tree.getRootPartition(), 0, 2,
+                new UniformDistribution(0, 2), 0L, 2L, newPartitions);
+
+        // Then
+        PartitionTree expected = new PartitionsBuilder(schema).rootFirst("root")
+                .splitToNewChildren("root", "A", "B", 1L)
+                .buildTree();
+        assertThat(splitPartition).isEqualTo(expected.getRootPartition());
+        assertThat(newPartitions).containsExactlyInAnyOrder(
+                expected.getPartition("A"), expected.getPartition("B"));
+    }
+
+    private static class UniformDistribution implements PartitionSubtreeFactory.Distribution<Long> {
+        private final long min;
+        private final long max;
+
+        UniformDistribution(long min, long max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public Long getValueAtRank(double rank) {
+            return min + (long) (rank * (max - min));
+        }
+
+        @Override
+        public int compare(Long value1, Long value2) {
+            return Long.compare(value1, value2);
+        }
+
+        @Override
+        public Object toRangeValue(Long value) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.core.record.serialiser;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.record.Record;
+import sleeper.core.record.ResultsBatch;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.IntType;
+import sleeper.core.schema.type.ListType;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.MapType;
+import sleeper.core.schema.type.StringType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CompactResultsBatchSerialiserTest {
+
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("column1", new IntType()), new Field("column2", new LongType()))
+            .sortKeyFields(new Field("column3", new StringType()), new Field("column4", new ByteArrayType()))
+            .valueFields(new Field("column5", new ListType(new LongType())),
+                    new Field("column6", new MapType(new StringType(), new IntType())),
+                    new Field("column7", new StringType()))
+            .build();
+
+    @Test
+    public void shouldWriteAndReadBatch() throws Exception {
+        // Given
+        ResultsBatch resultsBatch = new ResultsBatch("query1", schema, records(10));
+        CompactResultsBatchSerialiser serialiser = new CompactResultsBatchSerialiser();
+
+        // When
+        String serialised = serialiser.serialise(resultsBatch);
+
+        // Then
+        assertThat(serialiser.deserialise(serialised)).isEqualTo(resultsBatch);
+    }
+
+    @Test
+    public void shouldWriteAndReadBatchWithoutCompression() throws Exception {
+        // Given
+        ResultsBatch resultsBatch = new ResultsBatch("query1", schema, records(10));
+        CompactResultsBatchSerialiser serialiser = new CompactResultsBatchSerialiser(false);
+
+        // When
+        String serialised = serialiser.serialise(resultsBatch);
+
+        // Then
+        assertThat(new CompactResultsBatchSerialiser().deserialise(serialised)).isEqualTo(resultsBatch);
+    }
+
+    @Test
+    public void shouldWriteAndReadNullValuesAndExtremeNumbers() throws Exception {
+        // Given
+        Record record = new Record();
+        record.put("column1", Integer.MIN_VALUE);
+        record.put("column2", Long.MAX_VALUE);
+        record.put("column3", "");
+        record.put("column4", new byte[0]);
+        record.put("column5", List.of(Long.MIN_VALUE, -1L, 0L));
+        record.put("column6", Map.of());
+        record.put("column7", null);
+        ResultsBatch resultsBatch = new ResultsBatch("query1", schema, List.of(record));
+        CompactResultsBatchSerialiser serialiser = new CompactResultsBatchSerialiser();
+
+        // When
+        String serialised = serialiser.serialise(resultsBatch);
+
+        // Then
+        assertThat(serialiser.deserialise(serialised)).isEqualTo(resultsBatch);
+    }
+
+    @Test
+    public void shouldBeSmallerThanJson() throws Exception {
+        // Given
+        ResultsBatch resultsBatch = new ResultsBatch("query1", schema, records(1000));
+
+        // When
+        String compact = new CompactResultsBatchSerialiser().serialise(resultsBatch);
+        String json = new JSONResultsBatchSerialiser().serialise(resultsBatch);
+
+        // Then
+        assertThat(compact.length()).isLessThan(json.length() / 4);
+    }
+
+    @Test
+    public void shouldDetectFormatOfSerialisedBatch() throws Exception {
+        // Given
+        ResultsBatch resultsBatch = new ResultsBatch("query1", schema, records(2));
+        String compact = new CompactResultsBatchSerialiser().serialise(resultsBatch);
+        String json = new JSONResultsBatchSerialiser().serialise(resultsBatch);
+
+        // When / Then
+        assertThat(ResultsBatchFormat.serialiserFor(compact)).isInstanceOf(CompactResultsBatchSerialiser.class);
+        assertThat(ResultsBatchFormat.serialiserFor(json)).isInstanceOf(JSONResultsBatchSerialiser.class);
+        assertThat(ResultsBatchFormat.serialiserFor(compact).deserialise(compact)).isEqualTo(resultsBatch);
+        assertThat(ResultsBatchFormat.serialiserFor(json).deserialise(json)).isEqualTo(resultsBatch);
+    }
+
+    @Test
+    public void shouldEstimateUncompressedLengthExactly() throws Exception {
+        // Given
+        List<Record> records = records(100);
+        ResultsBatchLengthEstimator estimator = new CompactResultsBatchSerialiser().lengthEstimator("query1", schema);
+
+        // When
+        long recordsLength = records.stream().mapToLong(estimator::recordLength).sum();
+
+        // Then
+        String serialised = new CompactResultsBatchSerialiser(false).serialise(new ResultsBatch("query1", schema, records));
+        assertThat(estimator.serialisedLength(recordsLength, records.size())).isEqualTo(serialised.length());
+    }
+
+    @Test
+    public void shouldEstimateJsonLengthExactly() throws Exception {
+        // Given
+        List<Record> records = records(100);
+        ResultsBatchLengthEstimator estimator = ResultsBatchFormat.JSON.lengthEstimator("query1", schema);
+
+        // When
+        long recordsLength = records.stream().mapToLong(estimator::recordLength).sum();
+
+        // Then
+        String serialised = new JSONResultsBatchSerialiser().serialise(new ResultsBatch("query1", schema, records));
+        assertThat(estimator.serialisedLength(recordsLength, records.size())).isEqualTo(serialised.length());
+    }
+
+    @Test
+    public void shouldEstimateJsonLengthExactlyWithEscapedCharactersAndNulls() throws Exception {
+        // Given
+        Record record1 = records(1).get(0);
+        record1.put("column3", "quote\" slash\\ tab\t html<>&=' bell\u0007");
+        record1.put("column7", "caf\u00e9 \u20ac \ud83d\ude00 \u2028");
+        Record record2 = records(1).get(0);
+        record2.put("column3", null);
+        record2.put("column4", null);
+        Map<String, Integer> map = new HashMap<>();
+        map.put("key\"1", null);
+        record2.put("column6", map);
+        List<Record> records = List.of(record1, record2);
+        ResultsBatchLengthEstimator estimator = ResultsBatchFormat.JSON.lengthEstimator("query1", schema);
+
+        // When
+        long recordsLength = records.stream().mapToLong(estimator::recordLength).sum();
+
+        // Then
+        String serialised = new JSONResultsBatchSerialiser().serialise(new ResultsBatch("query1", schema, records));
+        assertThat(estimator.serialisedLength(recordsLength, records.size()))
+                .isEqualTo(serialised.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    private static List<Record> records(int numRecords) {
+        List<Record> records = new ArrayList<>();
+        for (int i = 0; i < numRecords; i++) {
+            Record record = new Record();
+            record.put("column1", i - 50);
+            record.put("column2", i * 100000L);
+            record.put("column3", "abc" + i);
+            record.put("column4", new byte[]{(byte) i, (byte) (i + 1), (byte) (i + 2)});
+            record.put("column5", List.of((long) i, i * 2L));
+            Map<String, Integer> map = new HashMap<>();
+            map.put("key" + i, i);
+            record.put("column6", map);
+            record.put("column7", "value" + (i % 5));
+            records.add(record);
+        }
+        return records;
+    }
+}
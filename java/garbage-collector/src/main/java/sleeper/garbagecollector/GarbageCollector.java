@@ -30,12 +30,19 @@ import sleeper.table.job.TableLister;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /**
  * Queries the {@link StateStore} for files that are marked as being ready for
- * garbage collection, and deletes them.
+ * garbage collection, and deletes them. Tables are collected concurrently. For
+ * each table, a batch of files is deleted in parallel, then the files that were
+ * deleted are removed from the state store in one update.
  */
 public class GarbageCollector {
     private static final Logger LOGGER = LoggerFactory.getLogger(GarbageCollector.class);
@@ -45,40 +52,64 @@ public class GarbageCollector {
     private final TablePropertiesProvider tablePropertiesProvider;
     private final StateStoreProvider stateStoreProvider;
     private final int garbageCollectorBatchSize;
+    private final int maxConcurrentTables;
+    private final int maxConcurrentDeletes;
 
     public GarbageCollector(Configuration conf,
                             TableLister tableLister,
                             TablePropertiesProvider tablePropertiesProvider,
                             StateStoreProvider stateStoreProvider,
-                            int garbageCollectorBatchSize) {
+                            int garbageCollectorBatchSize,
+                            int maxConcurrentTables,
+                            int maxConcurrentDeletes) {
         this.conf = conf;
         this.tableLister = tableLister;
         this.tablePropertiesProvider = tablePropertiesProvider;
         this.stateStoreProvider = stateStoreProvider;
         this.garbageCollectorBatchSize = garbageCollectorBatchSize;
+        this.maxConcurrentTables = maxConcurrentTables;
+        this.maxConcurrentDeletes = maxConcurrentDeletes;
     }
 
     public void run() throws StateStoreException, IOException {
         long startTimeEpochSecs = LocalDateTime.now().atZone(ZoneId.systemDefault()).toEpochSecond();
-        int totalDeleted = 0;
         List<String> tables = tableLister.listTables();
         LOGGER.info("Obtained list of {} tables", tables.size());
 
-        for (String tableName : tables) {
-            LOGGER.info("Obtaining StateStore for table {}", tableName);
-            StateStore stateStore = stateStoreProvider.getStateStore(tableName, tablePropertiesProvider);
-
-            LOGGER.debug("Requesting iterator of files ready for garbage collection from state store");
-            Iterator<FileInfo> readyForGC = stateStore.getReadyForGCFiles();
-
-            int numberDeleted = 0;
-            while (readyForGC.hasNext() && numberDeleted < garbageCollectorBatchSize) {
-                FileInfo fileInfo = readyForGC.next();
-                deleteFileAndUpdateStateStore(fileInfo, stateStore, conf);
-                numberDeleted++;
+        ExecutorService tableExecutor = Executors.newFixedThreadPool(Math.max(1, Math.min(maxConcurrentTables, tables.size())));
+        ExecutorService deleteExecutor = Executors.newFixedThreadPool(maxConcurrentDeletes);
+        int totalDeleted = 0;
+        try {
+            List<Future<Integer>> tableResults = new ArrayList<>();
+            for (String tableName : tables) {
+                // The state store provider caches state stores and is not thread safe, so it is used from this thread
+                LOGGER.info("Obtaining StateStore for table {}", tableName);
+                StateStore stateStore = stateStoreProvider.getStateStore(tableName, tablePropertiesProvider);
+                tableResults.add(tableExecutor.submit(() -> collectFromTable(tableName, stateStore, deleteExecutor)));
             }
-            LOGGER.info("{} files deleted for table {}", numberDeleted, tableName);
-            totalDeleted += numberDeleted;
+            // Wait for every table before reporting a failure, so one table does not stop collection from the others
+            Exception failure = null;
+            for (Future<Integer> result : tableResults) {
+                try {
+                    totalDeleted += getResult(result);
+                } catch (IOException | StateStoreException | RuntimeException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            } else if (failure instanceof StateStoreException) {
+                throw (StateStoreException) failure;
+            } else if (failure != null) {
+                throw (RuntimeException) failure;
+            }
+        } finally {
+            tableExecutor.shutdownNow();
+            deleteExecutor.shutdownNow();
         }
         long endTimeEpochSecs = LocalDateTime.now()
                 .atZone(ZoneId.systemDefault())
@@ -87,13 +118,43 @@ public class GarbageCollector {
         LOGGER.info("{} files deleted in {} seconds", totalDeleted, runTime);
     }
 
-    private void deleteFileAndUpdateStateStore(FileInfo fileInfo, StateStore stateStore, Configuration conf) throws IOException {
-        deleteFiles(fileInfo.getFilename(), conf);
+    private int collectFromTable(String tableName, StateStore stateStore, ExecutorService deleteExecutor)
+            throws StateStoreException, IOException {
+        LOGGER.debug("Requesting iterator of files ready for garbage collection from state store");
+        Iterator<FileInfo> readyForGC = stateStore.getReadyForGCFiles();
+
+        List<FileInfo> batch = new ArrayList<>();
+        while (readyForGC.hasNext() && batch.size() < garbageCollectorBatchSize) {
+            batch.add(readyForGC.next());
+        }
+        List<Future<FileInfo>> deletions = new ArrayList<>(batch.size());
+        for (FileInfo fileInfo : batch) {
+            deletions.add(deleteExecutor.submit(() -> {
+                deleteFiles(fileInfo.getFilename(), conf);
+                return fileInfo;
+            }));
+        }
+        List<FileInfo> deleted = new ArrayList<>(batch.size());
+        IOException failure = null;
+        for (Future<FileInfo> deletion : deletions) {
+            try {
+                deleted.add(getResult(deletion));
+            } catch (IOException e) {
+                LOGGER.error("Failed deleting file for table " + tableName, e);
+                failure = e;
+            }
+        }
+        // Files that were deleted are removed from the state store even if others failed, so they are not retried
         try {
-            stateStore.deleteReadyForGCFile(fileInfo);
+            stateStore.deleteReadyForGCFiles(deleted);
         } catch (StateStoreException e) {
-            LOGGER.error("Exception updating status of " + fileInfo.getFilename() + " to garbage collected", e);
+            LOGGER.error("Exception updating status of " + deleted.size() + " files to garbage collected", e);
         }
+        LOGGER.info("{} files deleted for table {}", deleted.size(), tableName);
+        if (failure != null) {
+            throw failure;
+        }
+        return deleted.size();
     }
 
     private void deleteFiles(String filename, Configuration conf) throws IOException {
@@ -107,4 +168,24 @@ public class GarbageCollector {
         path.getFileSystem(conf).delete(path, false);
         LOGGER.info("Deleted file {}", filename);
     }
+
+    private static <T> T getResult(Future<T> future) throws StateStoreException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for garbage collection", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof StateStoreException) {
+                throw (StateStoreException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else {
+                throw new IllegalStateException(cause);
+            }
+        }
+    }
 }
@@ -36,6 +36,8 @@ import java.io.IOException;
 import java.time.LocalDateTime;
 
 import static sleeper.configuration.properties.instance.GarbageCollectionProperty.GARBAGE_COLLECTOR_BATCH_SIZE;
+import static sleeper.configuration.properties.instance.GarbageCollectionProperty.GARBAGE_COLLECTOR_MAX_CONCURRENT_DELETES;
+import static sleeper.configuration.properties.instance.GarbageCollectionProperty.GARBAGE_COLLECTOR_MAX_CONCURRENT_TABLES;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.CONFIG_BUCKET;
 
 /**
@@ -69,7 +71,9 @@ public class GarbageCollectorLambda {
                 tableLister,
                 tablePropertiesProvider,
                 stateStoreProvider,
-                instanceProperties.getInt(GARBAGE_COLLECTOR_BATCH_SIZE));
+                instanceProperties.getInt(GARBAGE_COLLECTOR_BATCH_SIZE),
+                instanceProperties.getInt(GARBAGE_COLLECTOR_MAX_CONCURRENT_TABLES),
+                instanceProperties.getInt(GARBAGE_COLLECTOR_MAX_CONCURRENT_DELETES));
     }
 
     public void eventHandler(ScheduledEvent event, Context context) {
@@ -17,8 +17,10 @@ package sleeper.garbagecollector;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanRequest;
 import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import org.apache.hadoop.conf.Configuration;
@@ -57,15 +59,25 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
 import static sleeper.configuration.properties.instance.CommonProperty.FILE_SYSTEM;
 import static sleeper.configuration.properties.instance.CommonProperty.ID;
 import static sleeper.configuration.properties.instance.GarbageCollectionProperty.GARBAGE_COLLECTOR_BATCH_SIZE;
+import static sleeper.configuration.properties.instance.GarbageCollectionProperty.GARBAGE_COLLECTOR_MAX_CONCURRENT_DELETES;
+import static sleeper.configuration.properties.instance.GarbageCollectionProperty.GARBAGE_COLLECTOR_MAX_CONCURRENT_TABLES;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.CONFIG_BUCKET;
 import static sleeper.configuration.properties.table.TableProperty.ACTIVE_FILEINFO_TABLENAME;
 import static sleeper.configuration.properties.table.TableProperty.DATA_BUCKET;
@@ -81,6 +93,7 @@ public class GarbageCollectorIT {
     private static final String TEST_TABLE_NAME = "test-table";
     private static final String TEST_TABLE_NAME_1 = "test-table-1";
     private static final String TEST_TABLE_NAME_2 = "test-table-2";
+    private static final String TEST_TABLE_NAME_3 = "test-table-3";
     @Container
     public static LocalStackContainer localStackContainer = new LocalStackContainer(DockerImageName.parse(CommonTestConstants.LOCALSTACK_DOCKER_IMAGE)).withServices(
             LocalStackContainer.Service.DYNAMODB, LocalStackContainer.Service.S3);
@@ -229,14 +242,16 @@ public class GarbageCollectorIT {
     @Nested
     @DisplayName("Collecting from multiple tables")
     class MultipleTables {
+        private final List<String> createdTableNames = new ArrayList<>();
         private InstanceProperties instanceProperties;
         private TableProperties tableProperties1;
         private TableProperties tableProperties2;
+        private TableProperties tableProperties3;
         private StateStoreProvider stateStoreProvider;
 
         @AfterEach
         void tearDown() {
-            List.of(TEST_TABLE_NAME_1, TEST_TABLE_NAME_2).forEach(table -> {
+            createdTableNames.forEach(table -> {
                 dynamoDBClient.deleteTable(table + "-af");
                 dynamoDBClient.deleteTable(table + "-rfgcf");
                 dynamoDBClient.deleteTable(table + "-p");
@@ -245,16 +260,15 @@ public class GarbageCollectorIT {
             dynamoDBClient.shutdown();
         }
 
-        void setupStateStoreWithFixedTime(Instant fixedTime) throws Exception {
-            createDynamoDBStateStore(instanceProperties, tableProperties1);
-            createDynamoDBStateStore(instanceProperties, tableProperties2);
+        void setupStateStoresWithFixedTime(Instant fixedTime, TableProperties... tables) throws Exception {
             stateStoreProvider = new StateStoreProvider(dynamoDBClient, instanceProperties);
-            DynamoDBStateStore stateStore1 = (DynamoDBStateStore) stateStoreProvider.getStateStore(tableProperties1);
-            stateStore1.initialise();
-            stateStore1.fixTime(fixedTime);
-            DynamoDBStateStore stateStore2 = (DynamoDBStateStore) stateStoreProvider.getStateStore(tableProperties2);
-            stateStore2.initialise();
-            stateStore2.fixTime(fixedTime);
+            for (TableProperties tableProperties : tables) {
+                createDynamoDBStateStore(instanceProperties, tableProperties);
+                createdTableNames.add(tableProperties.get(TABLE_NAME));
+                DynamoDBStateStore stateStore = (DynamoDBStateStore) stateStoreProvider.getStateStore(tableProperties);
+                stateStore.initialise();
+                stateStore.fixTime(fixedTime);
+            }
         }
 
         @Test
@@ -265,7 +279,7 @@ public class GarbageCollectorIT {
             tableProperties2 = createTableWithGCDelay(TEST_TABLE_NAME_2, instanceProperties, 10);
             Instant currentTime = Instant.parse("2023-06-28T13:46:00Z");
             Instant timeAfterDelay = currentTime.minus(Duration.ofMinutes(11));
-            setupStateStoreWithFixedTime(currentTime);
+            setupStateStoresWithFixedTime(currentTime, tableProperties1, tableProperties2);
             java.nio.file.Path filePath1 = tempDir.resolve("test-file-1.parquet");
             java.nio.file.Path filePath2 = tempDir.resolve("test-file-2.parquet");
             createReadyForGCFile(filePath1.toString(), stateStoreProvider.getStateStore(tableProperties1), timeAfterDelay);
@@ -280,6 +294,59 @@ public class GarbageCollectorIT {
             assertThat(getFilesInReadyForGCTable(tableProperties1)).isEmpty();
             assertThat(getFilesInReadyForGCTable(tableProperties2)).isEmpty();
         }
+
+        @Test
+        void shouldCollectFilesFromEachTableWhenSomeDeletesFromStateStoreAreUnprocessed() throws Exception {
+            // Given
+            instanceProperties = createInstancePropertiesWithGCBatchSize(3);
+            tableProperties1 = createTableWithGCDelay(TEST_TABLE_NAME_1, instanceProperties, 10);
+            tableProperties2 = createTableWithGCDelay(TEST_TABLE_NAME_2, instanceProperties, 10);
+            tableProperties3 = createTableWithGCDelay(TEST_TABLE_NAME_3, instanceProperties, 10);
+            Instant currentTime = Instant.parse("2023-06-28T13:46:00Z");
+            Instant timeAfterDelay = currentTime.minus(Duration.ofMinutes(11));
+            setupStateStoresWithFixedTime(currentTime, tableProperties1, tableProperties2, tableProperties3);
+            List<java.nio.file.Path> filePaths = new ArrayList<>();
+            for (TableProperties tableProperties : List.of(tableProperties1, tableProperties2, tableProperties3)) {
+                StateStore stateStore = stateStoreProvider.getStateStore(tableProperties);
+                for (int i = 1; i <= 3; i++) {
+                    java.nio.file.Path filePath = tempDir.resolve(tableProperties.get(TABLE_NAME) + "-file-" + i + ".parquet");
+                    createReadyForGCFile(filePath.toString(), stateStore, timeAfterDelay);
+                    filePaths.add(filePath);
+                }
+            }
+            AtomicInteger batchWrites = new AtomicInteger();
+            AmazonDynamoDB dynamoDBWithUnprocessedItems = processingOneWritePerBatch(batchWrites);
+
+            // When
+            createGarbageCollector(s3Client, instanceProperties,
+                    new StateStoreProvider(dynamoDBWithUnprocessedItems, instanceProperties)).run();
+
+            // Then
+            assertThat(filePaths).noneMatch(Files::exists);
+            assertThat(getFilesInReadyForGCTable(tableProperties1)).isEmpty();
+            assertThat(getFilesInReadyForGCTable(tableProperties2)).isEmpty();
+            assertThat(getFilesInReadyForGCTable(tableProperties3)).isEmpty();
+            assertThat(batchWrites).hasValue(9);
+        }
+    }
+
+    private AmazonDynamoDB processingOneWritePerBatch(AtomicInteger batchWrites) {
+        AmazonDynamoDB dynamoDB = mock(AmazonDynamoDB.class, delegatesTo(dynamoDBClient));
+        doAnswer(invocation -> {
+            batchWrites.incrementAndGet();
+            BatchWriteItemRequest request = invocation.getArgument(0);
+            Map<String, List<WriteRequest>> processed = new HashMap<>();
+            Map<String, List<WriteRequest>> unprocessed = new HashMap<>();
+            request.getRequestItems().forEach((table, writes) -> {
+                processed.put(table, writes.subList(0, 1));
+                if (writes.size() > 1) {
+                    unprocessed.put(table, writes.subList(1, writes.size()));
+                }
+            });
+            return dynamoDBClient.batchWriteItem(request.clone().withRequestItems(processed))
+                    .withUnprocessedItems(unprocessed);
+        }).when(dynamoDB).batchWriteItem(any(BatchWriteItemRequest.class));
+        return dynamoDB;
     }
 
     private Stream<String> getFilesInReadyForGCTable(TableProperties tableProperties) {
@@ -378,7 +445,9 @@ public class GarbageCollectorIT {
             AmazonS3 s3Client, InstanceProperties instanceProperties, StateStoreProvider stateStoreProvider) {
         return new GarbageCollector(new Configuration(), new TableLister(s3Client, instanceProperties),
                 new TablePropertiesProvider(s3Client, instanceProperties), stateStoreProvider,
-                instanceProperties.getInt(GARBAGE_COLLECTOR_BATCH_SIZE));
+                instanceProperties.getInt(GARBAGE_COLLECTOR_BATCH_SIZE),
+                instanceProperties.getInt(GARBAGE_COLLECTOR_MAX_CONCURRENT_TABLES),
+                instanceProperties.getInt(GARBAGE_COLLECTOR_MAX_CONCURRENT_DELETES));
     }
 
     private static Schema getSchema() {
@@ -23,12 +23,14 @@ import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.iterator.IteratorException;
+import sleeper.core.iterator.impl.AggregatingIterator;
 import sleeper.core.record.Record;
 import sleeper.ingest.impl.IngestCoordinator;
 import sleeper.ingest.impl.ParquetConfiguration;
 import sleeper.ingest.impl.partitionfilewriter.AsyncS3PartitionFileWriterFactory;
 import sleeper.ingest.impl.partitionfilewriter.DirectPartitionFileWriterFactory;
 import sleeper.ingest.impl.partitionfilewriter.PartitionFileWriterFactory;
+import sleeper.ingest.impl.partitionfilewriter.StreamingS3PartitionFileWriterFactory;
 import sleeper.ingest.impl.recordbatch.RecordBatchFactory;
 import sleeper.ingest.impl.recordbatch.arraylist.ArrayListRecordBatchFactory;
 import sleeper.ingest.impl.recordbatch.arrow.ArrowRecordBatchFactory;
@@ -43,6 +45,8 @@ import java.util.Objects;
 import static sleeper.configuration.properties.instance.CommonProperty.FILE_SYSTEM;
 import static sleeper.configuration.properties.instance.IngestProperty.INGEST_PARTITION_FILE_WRITER_TYPE;
 import static sleeper.configuration.properties.instance.IngestProperty.INGEST_RECORD_BATCH_TYPE;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CLASS_NAME;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CONFIG;
 
 public class IngestFactory {
 
@@ -100,15 +104,21 @@ public class IngestFactory {
 
     private RecordBatchFactory<Record> standardRecordBatchFactory(ParquetConfiguration parquetConfiguration) {
         String recordBatchType = instanceProperties.get(INGEST_RECORD_BATCH_TYPE).toLowerCase(Locale.ROOT);
+        TableProperties tableProperties = parquetConfiguration.getTableProperties();
+        AggregatingIterator preAggregationIterator = AggregatingIterator.createIfFirstInChain(
+                tableProperties.get(ITERATOR_CLASS_NAME), tableProperties.get(ITERATOR_CONFIG), tableProperties.getSchema())
+                .orElse(null);
         if (recordBatchType.equals("arraylist")) {
             return ArrayListRecordBatchFactory.builderWith(instanceProperties)
                     .parquetConfiguration(parquetConfiguration)
                     .localWorkingDirectory(localDir)
+                    .preAggregationIterator(preAggregationIterator)
                     .buildAcceptingRecords();
         } else if (recordBatchType.equals("arrow")) {
             return ArrowRecordBatchFactory.builderWith(instanceProperties)
-                    .schema(parquetConfiguration.getTableProperties().getSchema())
+                    .schema(tableProperties.getSchema())
                     .localWorkingDirectory(localDir)
+                    .preAggregationIterator(preAggregationIterator)
                     .buildAcceptingRecords();
         } else {
             throw new UnsupportedOperationException(String.format("Record batch type %s not supported", recordBatchType));
@@ -129,6 +139,14 @@ public class IngestFactory {
                     .localWorkingDirectory(localDir)
                     .s3AsyncClientOrDefaultFromProperties(s3AsyncClient, instanceProperties)
                     .build();
+        } else if (fileWriterType.equals("streaming")) {
+            if (!instanceProperties.get(FILE_SYSTEM).toLowerCase(Locale.ROOT).equals("s3a://")) {
+                throw new UnsupportedOperationException("Attempting a streaming write to a file system that is not s3a://");
+            }
+            return StreamingS3PartitionFileWriterFactory.builderWith(instanceProperties, tableProperties)
+                    .parquetConfiguration(parquetConfiguration)
+                    .s3AsyncClientOrDefaultFromProperties(s3AsyncClient, instanceProperties)
+                    .build();
         } else {
             throw new UnsupportedOperationException(String.format("File writer type %s not supported", fileWriterType));
         }
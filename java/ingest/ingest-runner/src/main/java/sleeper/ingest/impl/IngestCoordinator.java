@@ -43,6 +43,7 @@ import java.util.stream.Collectors;
 
 import static java.util.Objects.requireNonNull;
 import static sleeper.configuration.properties.instance.IngestProperty.INGEST_PARTITION_REFRESH_PERIOD_IN_SECONDS;
+import static sleeper.configuration.properties.instance.IngestProperty.INGEST_PARTITION_WRITER_THREADS;
 import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CLASS_NAME;
 import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CONFIG;
 import static sleeper.core.metrics.MetricsLogger.METRICS_LOGGER;
@@ -105,7 +106,8 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
         this.lastPartitionsUpdateTime = PARTITIONS_NEVER_UPDATED_TIME;
         this.ingestFutures = new ArrayList<>();
         this.partitionFileWriterFactory = requireNonNull(builder.partitionFileWriterFactory);
-        this.ingesterIntoPartitions = new IngesterIntoPartitions(sleeperSchema, partitionFileWriterFactory::createPartitionFileWriter);
+        this.ingesterIntoPartitions = new IngesterIntoPartitions(sleeperSchema,
+                partitionFileWriterFactory::createPartitionFileWriter, builder.partitionWriterThreads);
         this.currentRecordBatch = this.recordBatchFactory.createRecordBatch();
         this.isClosed = false;
     }
@@ -316,6 +318,7 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
             }
         }
         currentRecordBatch = null;
+        ingesterIntoPartitions.close();
         try {
             partitionFileWriterFactory.close();
         } catch (Exception e) {
@@ -360,6 +363,7 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
         private int ingestPartitionRefreshFrequencyInSeconds;
         private RecordBatchFactory<T> recordBatchFactory;
         private PartitionFileWriterFactory partitionFileWriterFactory;
+        private int partitionWriterThreads = 1;
 
         Builder() {
         }
@@ -452,9 +456,22 @@ public class IngestCoordinator<INCOMINGDATATYPE> implements AutoCloseable {
             return this;
         }
 
+        /**
+         * The number of threads to use to write partition files. If this is 1, all partition files are written on the
+         * thread that reads the sorted records.
+         *
+         * @param partitionWriterThreads the number of threads
+         * @return the builder for call chaining
+         */
+        public Builder<T> partitionWriterThreads(int partitionWriterThreads) {
+            this.partitionWriterThreads = partitionWriterThreads;
+            return this;
+        }
+
         public Builder<T> instanceProperties(InstanceProperties instanceProperties) {
             return ingestPartitionRefreshFrequencyInSeconds(
-                    instanceProperties.getInt(INGEST_PARTITION_REFRESH_PERIOD_IN_SECONDS));
+                    instanceProperties.getInt(INGEST_PARTITION_REFRESH_PERIOD_IN_SECONDS))
+                    .partitionWriterThreads(instanceProperties.getInt(INGEST_PARTITION_WRITER_THREADS));
         }
 
         public Builder<T> tableProperties(TableProperties tableProperties) {
@@ -29,6 +29,8 @@ import sleeper.ingest.impl.partitionfilewriter.PartitionFileWriter;
 import sleeper.statestore.FileInfo;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -36,6 +38,11 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -45,15 +52,26 @@ import static java.util.Objects.requireNonNull;
  * This class writes {@link Record} objects, which must have been sorted before they are passed to this class, into
  * Sleeper partition files. The actual write is performed by {@link PartitionFileWriter} classes and a factory function
  * to generate these is provided when this class is constructed.
+ * <p>
+ * The sorted records are cut into segments, where each segment holds consecutive records for a single partition. The
+ * segments are passed to an {@link Executor} to be written, and the segments for any one partition are always written
+ * in order. When more than one thread is used, the Parquet encoding and sketch updates for different partitions run
+ * in parallel. The number of segments waiting to be written is bounded, so that the thread reading the sorted records
+ * waits for the writers to catch up rather than holding the whole batch in memory.
  */
-class IngesterIntoPartitions {
+class IngesterIntoPartitions implements AutoCloseable {
     private static final Logger LOGGER = LoggerFactory.getLogger(IngesterIntoPartitions.class);
+    private static final int RECORDS_PER_SEGMENT = 1000;
+    private static final int MAX_SEGMENTS_IN_FLIGHT_PER_THREAD = 4;
 
     private final Function<Partition, PartitionFileWriter> partitionFileWriterFactoryFn;
     private final Schema sleeperSchema;
+    private final ExecutorService executorService;
+    private final Executor writeExecutor;
+    private final Semaphore segmentsInFlight;
 
     /**
-     * Construct this {@link IngesterIntoPartitions} class.
+     * Construct this {@link IngesterIntoPartitions} class, which writes all partition files on the calling thread.
      *
      * @param sleeperSchema                The Sleeper schema
      * @param partitionFileWriterFactoryFn A function which takes a {@link Partition} and returns the {@link
@@ -63,64 +81,64 @@ class IngesterIntoPartitions {
     IngesterIntoPartitions(
             Schema sleeperSchema,
             Function<Partition, PartitionFileWriter> partitionFileWriterFactoryFn) {
-        this.partitionFileWriterFactoryFn = requireNonNull(partitionFileWriterFactoryFn);
-        this.sleeperSchema = requireNonNull(sleeperSchema);
+        this(sleeperSchema, partitionFileWriterFactoryFn, 1);
     }
 
     /**
-     * Close several {@link PartitionFileWriter} objects at once, rethrowing any errors as unchecked exceptions.
+     * Construct this {@link IngesterIntoPartitions} class.
      *
-     * @param partitionFileWriters The {@link PartitionFileWriter} objects to close
-     * @return The {@link CompletableFuture} objects corresponding to the closed {@link PartitionFileWriter} objects, in
-     * the same order
-     * @throws IOException Thrown when an IO error has occurred. May contain multiple suppressed exceptions, one for
-     *                     each {@link PartitionFileWriter} that fails as it is closed.
+     * @param sleeperSchema                The Sleeper schema
+     * @param partitionFileWriterFactoryFn A function which takes a {@link Partition} and returns the {@link
+     *                                     PartitionFileWriter} which will write {@link Record} objects to that
+     *                                     partition.
+     * @param partitionWriterThreads       The number of threads to use to write partition files. If this is 1, all
+     *                                     files are written on the thread which calls {@link #initiateIngest}.
      */
-    private static List<CompletableFuture<FileInfo>> closeMultiplePartitionFileWriters(
-            Collection<PartitionFileWriter> partitionFileWriters) throws IOException {
-        List<Exception> exceptionList = new ArrayList<>();
-        List<CompletableFuture<FileInfo>> futures = partitionFileWriters.stream()
-                .map(partitionFileWriter -> {
-                    try {
-                        return partitionFileWriter.close();
-                    } catch (Exception e) {
-                        exceptionList.add(e);
-                        return CompletableFuture.<FileInfo>completedFuture(null);
-                    }
-                }).collect(Collectors.toList());
-        if (exceptionList.isEmpty()) {
-            return futures;
+    IngesterIntoPartitions(
+            Schema sleeperSchema,
+            Function<Partition, PartitionFileWriter> partitionFileWriterFactoryFn,
+            int partitionWriterThreads) {
+        if (partitionWriterThreads < 1) {
+            throw new IllegalArgumentException("partitionWriterThreads must be positive");
+        }
+        this.partitionFileWriterFactoryFn = requireNonNull(partitionFileWriterFactoryFn);
+        this.sleeperSchema = requireNonNull(sleeperSchema);
+        if (partitionWriterThreads == 1) {
+            this.executorService = null;
+            this.writeExecutor = Runnable::run;
         } else {
-            IOException aggregateIOException = new IOException();
-            exceptionList.forEach(aggregateIOException::addSuppressed);
-            throw aggregateIOException;
+            this.executorService = Executors.newFixedThreadPool(partitionWriterThreads);
+            this.writeExecutor = executorService;
         }
+        this.segmentsInFlight = new Semaphore(partitionWriterThreads * MAX_SEGMENTS_IN_FLIGHT_PER_THREAD);
     }
 
     /**
      * Initiate the ingest of the {@link Record} objects passed as a {@link CloseableIterator}. The records must be
      * supplied in sort-order. When this method returns, all of the records will have been read from the iterator and
-     * the iterator may be discarded by the caller.
+     * written to their partition files, and the iterator may be discarded by the caller. The partition files may still
+     * be uploading to their final storage.
      *
      * @param orderedRecordIterator The {@link Record} objects to write, passed in sort order
      * @param partitionTree         The {@link PartitionTree} to used to determine which partition to place each record
      *                              in
      * @return A {@link CompletableFuture} which completes to return a list of {@link FileInfo} objects, one for each
      * partition file that has been created
-     * @throws IOException -
+     * @throws IOException Thrown when an IO error has occurred. May contain multiple suppressed exceptions, one for
+     *                     each {@link PartitionFileWriter} that fails.
      */
     public CompletableFuture<List<FileInfo>> initiateIngest(
             CloseableIterator<Record> orderedRecordIterator, PartitionTree partitionTree) throws IOException {
 
         List<String> rowKeyNames = sleeperSchema.getRowKeyFieldNames();
         String firstDimensionRowKey = rowKeyNames.get(0);
-        Map<String, PartitionFileWriter> partitionIdToFileWriterMap = new HashMap<>();
+        Map<String, PartitionWrite> partitionIdToWriteMap = new HashMap<>();
         Range currentFirstDimensionRange = null;
         // Set up various flags, counters and the like which will be updated as the write progresses
         Partition currentPartition = null;
-        PartitionFileWriter currentPartitionFileWriter = null;
+        PartitionWrite currentPartitionWrite = null;
         // Prepare arrays to hold the results
-        List<CompletableFuture<FileInfo>> completableFutures = new ArrayList<>();
+        List<PartitionWrite> allPartitionWrites = new ArrayList<>();
 
         // Log and return if the iterator is empty
         if (!orderedRecordIterator.hasNext()) {
@@ -138,28 +156,36 @@ class IngesterIntoPartitions {
                 Key key = Key.create(record.getValues(rowKeyNames));
                 // Ensure that the current partition is the correct one for the new record
                 if (currentPartition == null || !currentPartition.isRowKeyInPartition(sleeperSchema, key)) {
+                    if (currentPartitionWrite != null) {
+                        currentPartitionWrite.submitSegment();
+                    }
                     // Close all of the current partition file writers if the first dimension has changed.
                     if (currentFirstDimensionRange != null &&
                             !currentFirstDimensionRange.doesRangeContainObject(record.get(firstDimensionRowKey))) {
-                        completableFutures.addAll(closeMultiplePartitionFileWriters(partitionIdToFileWriterMap.values()));
-                        partitionIdToFileWriterMap.clear();
+                        closeMultiplePartitionWrites(partitionIdToWriteMap.values());
+                        partitionIdToWriteMap.clear();
                     }
                     currentPartition = partitionTree.getLeafPartition(key);
                     currentFirstDimensionRange = currentPartition.getRegion().getRange(firstDimensionRowKey);
                     // Create a new partition file writer if required
-                    if (!partitionIdToFileWriterMap.containsKey(currentPartition.getId())) {
-                        partitionIdToFileWriterMap.put(currentPartition.getId(), partitionFileWriterFactoryFn.apply(currentPartition));
+                    if (!partitionIdToWriteMap.containsKey(currentPartition.getId())) {
+                        PartitionWrite partitionWrite = new PartitionWrite(partitionFileWriterFactoryFn.apply(currentPartition));
+                        partitionIdToWriteMap.put(currentPartition.getId(), partitionWrite);
+                        allPartitionWrites.add(partitionWrite);
                     }
-                    currentPartitionFileWriter = partitionIdToFileWriterMap.get(currentPartition.getId());
+                    currentPartitionWrite = partitionIdToWriteMap.get(currentPartition.getId());
                 }
-                // Write records to the current partition file writer
-                currentPartitionFileWriter.append(record);
+                // Add records to the segment for the current partition, and pass it to a writer when it is full
+                currentPartitionWrite.add(record);
             }
-            completableFutures.addAll(closeMultiplePartitionFileWriters(partitionIdToFileWriterMap.values()));
+            closeMultiplePartitionWrites(partitionIdToWriteMap.values());
         } catch (Exception e) {
-            partitionIdToFileWriterMap.values().forEach(PartitionFileWriter::abort);
+            // Make sure no writer is still in use before aborting them
+            awaitAllWrites(allPartitionWrites);
+            allPartitionWrites.forEach(PartitionWrite::abortIfNotClosed);
             throw e;
         }
+        List<CompletableFuture<FileInfo>> completableFutures = awaitAllWritesThenGetUploads(allPartitionWrites);
 
         // Create a future where all of the partitions have finished uploading and then return the FileInfo
         // objects as a list
@@ -168,4 +194,157 @@ class IngesterIntoPartitions {
                         .map(CompletableFuture::join)
                         .collect(Collectors.toList()));
     }
+
+    /**
+     * Shut down the threads used to write partition files. Any uploads which are still in progress are unaffected.
+     */
+    @Override
+    public void close() {
+        if (executorService != null) {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Submit the remaining records for several partitions and then close their {@link PartitionFileWriter} objects
+     * once all of their records have been written.
+     *
+     * @param partitionWrites The partitions to close
+     * @throws IOException Thrown when the wait for space to submit the last segment is interrupted
+     */
+    private static void closeMultiplePartitionWrites(Collection<PartitionWrite> partitionWrites) throws IOException {
+        for (PartitionWrite partitionWrite : partitionWrites) {
+            partitionWrite.submitSegmentThenClose();
+        }
+    }
+
+    /**
+     * Wait for every partition file to be written and closed, and then return the futures for the uploads of those
+     * files. If any partition failed, every partition file that has not been closed is aborted.
+     *
+     * @param partitionWrites The partitions that were written
+     * @return The {@link CompletableFuture} objects returned when each {@link PartitionFileWriter} was closed, in the
+     * same order
+     * @throws IOException Thrown when an IO error has occurred. Contains a suppressed exception for each {@link
+     *                     PartitionFileWriter} that failed.
+     */
+    private static List<CompletableFuture<FileInfo>> awaitAllWritesThenGetUploads(
+            List<PartitionWrite> partitionWrites) throws IOException {
+        awaitAllWrites(partitionWrites);
+        List<Throwable> exceptionList = partitionWrites.stream()
+                .map(PartitionWrite::getFailure)
+                .filter(failure -> failure != null)
+                .collect(Collectors.toList());
+        if (exceptionList.isEmpty()) {
+            return partitionWrites.stream()
+                    .map(partitionWrite -> partitionWrite.closeFuture.join())
+                    .collect(Collectors.toList());
+        } else {
+            partitionWrites.forEach(PartitionWrite::abortIfNotClosed);
+            IOException aggregateIOException = new IOException();
+            exceptionList.forEach(aggregateIOException::addSuppressed);
+            throw aggregateIOException;
+        }
+    }
+
+    private static void awaitAllWrites(List<PartitionWrite> partitionWrites) {
+        partitionWrites.forEach(PartitionWrite::awaitWithoutFailing);
+    }
+
+    /**
+     * The writes for a single partition file. Records are gathered into a segment on the thread which reads the sorted
+     * records. Each full segment is chained onto the previous one, so that the {@link PartitionFileWriter} only sees
+     * one segment at a time and receives the records in order.
+     */
+    private class PartitionWrite {
+        private final PartitionFileWriter partitionFileWriter;
+        private List<Record> segment = new ArrayList<>(RECORDS_PER_SEGMENT);
+        private CompletableFuture<Void> lastWrite = CompletableFuture.completedFuture(null);
+        private CompletableFuture<CompletableFuture<FileInfo>> closeFuture;
+
+        PartitionWrite(PartitionFileWriter partitionFileWriter) {
+            this.partitionFileWriter = partitionFileWriter;
+        }
+
+        void add(Record record) throws IOException {
+            segment.add(record);
+            if (segment.size() >= RECORDS_PER_SEGMENT) {
+                submitSegment();
+            }
+        }
+
+        void submitSegment() throws IOException {
+            if (segment.isEmpty()) {
+                return;
+            }
+            // Stop reading records early if an earlier segment for this partition has already failed
+            Throwable failure = getFailure();
+            if (failure != null) {
+                throw new IOException("Failed writing partition file", failure);
+            }
+            List<Record> records = segment;
+            segment = new ArrayList<>(RECORDS_PER_SEGMENT);
+            try {
+                segmentsInFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                InterruptedIOException interruptedIOException = new InterruptedIOException("Interrupted waiting to write a segment");
+                interruptedIOException.initCause(e);
+                throw interruptedIOException;
+            }
+            lastWrite = lastWrite
+                    .thenRunAsync(() -> appendAll(records), writeExecutor)
+                    .whenComplete((result, exception) -> segmentsInFlight.release());
+        }
+
+        void submitSegmentThenClose() throws IOException {
+            submitSegment();
+            closeFuture = lastWrite.thenApplyAsync(dummy -> {
+                try {
+                    return partitionFileWriter.close();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, writeExecutor);
+        }
+
+        private void appendAll(List<Record> records) {
+            try {
+                for (Record record : records) {
+                    partitionFileWriter.append(record);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void awaitWithoutFailing() {
+            CompletableFuture<?> future = closeFuture != null ? closeFuture : lastWrite;
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                LOGGER.debug("Failed writing partition file", e);
+            }
+        }
+
+        Throwable getFailure() {
+            CompletableFuture<?> future = closeFuture != null ? closeFuture : lastWrite;
+            if (!future.isCompletedExceptionally()) {
+                return null;
+            }
+            try {
+                future.join();
+                return null;
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                return cause instanceof UncheckedIOException ? cause.getCause() : cause;
+            }
+        }
+
+        void abortIfNotClosed() {
+            if (closeFuture == null || closeFuture.isCompletedExceptionally()) {
+                partitionFileWriter.abort();
+            }
+        }
+    }
 }
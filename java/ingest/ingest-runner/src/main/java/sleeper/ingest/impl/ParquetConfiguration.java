@@ -18,6 +18,7 @@ package sleeper.ingest.impl;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.io.OutputFile;
 
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.core.record.Record;
@@ -67,6 +68,19 @@ public class ParquetConfiguration {
         return ParquetRecordWriterFactory.createParquetRecordWriter(new Path(outputFile), tableProperties, hadoopConfiguration);
     }
 
+    /**
+     * Create a {@link ParquetWriter} to write {@link Record} objects to the given {@link OutputFile}, using the
+     * parameter values supplied during construction. It is the responsibility of the caller to close the writer after
+     * use.
+     *
+     * @param outputFile The Parquet output file to write to
+     * @return The {@link ParquetWriter} object
+     * @throws IOException Thrown when the writer cannot be created
+     */
+    public ParquetWriter<Record> createParquetWriter(OutputFile outputFile) throws IOException {
+        return ParquetRecordWriterFactory.createParquetRecordWriter(outputFile, tableProperties, hadoopConfiguration);
+    }
+
     public static final class Builder {
         private Configuration hadoopConfiguration;
         private TableProperties tableProperties;
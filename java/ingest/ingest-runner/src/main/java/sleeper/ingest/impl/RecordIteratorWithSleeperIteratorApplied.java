@@ -23,6 +23,7 @@ import sleeper.configuration.jars.ObjectFactoryException;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.iterator.IteratorException;
 import sleeper.core.iterator.SortedRecordIterator;
+import sleeper.core.iterator.SortedRecordIteratorChain;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Schema;
 
@@ -88,13 +89,12 @@ class RecordIteratorWithSleeperIteratorApplied implements CloseableIterator<Reco
         if (null != sleeperIteratorClassName) {
             SortedRecordIterator iterator;
             try {
-                iterator = objectFactory.getObject(sleeperIteratorClassName, SortedRecordIterator.class);
+                iterator = SortedRecordIteratorChain.create(sleeperIteratorClassName, sleeperIteratorConfig, sleeperSchema,
+                        className -> objectFactory.getObject(className, SortedRecordIterator.class));
             } catch (ObjectFactoryException e) {
                 throw new IteratorException("ObjectFactoryException creating iterator of class " + sleeperIteratorClassName, e);
             }
-            LOGGER.debug("Created iterator of class {}", sleeperIteratorClassName);
-            iterator.init(sleeperIteratorConfig, sleeperSchema);
-            LOGGER.debug("Initialised iterator with config {}", sleeperIteratorConfig);
+            LOGGER.debug("Created iterator of class {} with config {}", sleeperIteratorClassName, sleeperIteratorConfig);
             return iterator.apply(sourceIterator);
         }
         return sourceIterator;
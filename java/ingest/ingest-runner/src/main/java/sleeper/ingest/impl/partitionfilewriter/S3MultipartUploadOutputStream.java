@@ -0,0 +1,276 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.partitionfilewriter;
+
+import org.apache.parquet.io.PositionOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * An output stream which uploads the data written to it into an S3 object, without staging it anywhere else.
+ * <ul>
+ *     <li>Data is held in memory until a full part has been written, at which point an asynchronous upload of that part
+ *     is started as part of an S3 multipart upload. The multipart upload is created when the first part is full.</li>
+ *     <li>The number of parts held in memory waiting to be uploaded is limited by {@link UploadPartBuffers}, which may
+ *     be shared between many streams. When the limit is reached, writing to the stream blocks until an upload has
+ *     finished. The buffer of each uploaded part is reused for a later part.</li>
+ *     <li>When the stream is closed, the final part is uploaded and the multipart upload is completed asynchronously.
+ *     If no part was full by then, the data is uploaded in a single put request instead. The {@link #completion()}
+ *     future completes once the object exists in S3.</li>
+ * </ul>
+ */
+public class S3MultipartUploadOutputStream extends PositionOutputStream {
+    private static final Logger LOGGER = LoggerFactory.getLogger(S3MultipartUploadOutputStream.class);
+    private static final int INITIAL_BUFFER_SIZE = 64 * 1024;
+
+    private final S3AsyncClient s3AsyncClient;
+    private final String s3BucketName;
+    private final String s3Key;
+    private final int partSizeBytes;
+    private final UploadPartBuffers partBuffers;
+    private final List<CompletableFuture<CompletedPart>> partUploads = new ArrayList<>();
+    private final CompletableFuture<Void> completion = new CompletableFuture<>();
+    private byte[] buffer;
+    private int bufferedBytes;
+    private long position;
+    private String uploadId;
+    private boolean closed;
+
+    /**
+     * Create a stream which uploads to the given S3 object.
+     *
+     * @param s3AsyncClient  The client to perform the uploads
+     * @param s3BucketName   The S3 bucket to write to
+     * @param s3Key          The S3 key of the object to write
+     * @param partBuffers    Sets the part size, and limits the number of parts held in memory waiting to be uploaded
+     */
+    public S3MultipartUploadOutputStream(
+            S3AsyncClient s3AsyncClient, String s3BucketName, String s3Key, UploadPartBuffers partBuffers) {
+        this.s3AsyncClient = requireNonNull(s3AsyncClient);
+        this.s3BucketName = requireNonNull(s3BucketName);
+        this.s3Key = requireNonNull(s3Key);
+        this.partBuffers = requireNonNull(partBuffers);
+        this.partSizeBytes = partBuffers.getPartSizeBytes();
+        this.buffer = new byte[Math.min(INITIAL_BUFFER_SIZE, partSizeBytes)];
+    }
+
+    @Override
+    public long getPos() {
+        return position;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkNotClosed();
+        if (bufferedBytes == buffer.length) {
+            makeRoomInBuffer();
+        }
+        buffer[bufferedBytes++] = (byte) b;
+        position++;
+    }
+
+    @Override
+    public void write(byte[] bytes, int offset, int length) throws IOException {
+        checkNotClosed();
+        int written = 0;
+        while (written < length) {
+            if (bufferedBytes == buffer.length) {
+                makeRoomInBuffer();
+            }
+            int toCopy = Math.min(length - written, buffer.length - bufferedBytes);
+            System.arraycopy(bytes, offset + written, buffer, bufferedBytes, toCopy);
+            bufferedBytes += toCopy;
+            written += toCopy;
+        }
+        position += length;
+    }
+
+    /**
+     * Finish the object. This uploads any remaining data and starts completing the upload, but does not wait for it.
+     * Use {@link #completion()} to wait for the object to be fully written to S3.
+     *
+     * @throws IOException if an upload of a previous part has already failed
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (uploadId == null) {
+            putWholeObject();
+        } else {
+            if (bufferedBytes > 0) {
+                uploadBufferAsPart();
+            }
+            completeMultipartUpload();
+        }
+    }
+
+    /**
+     * Retrieves a future which completes once the object has been fully written to S3. This will only complete after
+     * the stream has been closed.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> completion() {
+        return completion;
+    }
+
+    /**
+     * Make a best-effort attempt to abandon the upload. Any parts which have already been uploaded are discarded.
+     */
+    public void abort() {
+        closed = true;
+        buffer = null;
+        abortMultipartUpload();
+        completion.completeExceptionally(new IOException("Upload aborted to s3://" + s3BucketName + "/" + s3Key));
+    }
+
+    private void makeRoomInBuffer() throws IOException {
+        if (buffer.length < partSizeBytes) {
+            byte[] biggerBuffer = new byte[(int) Math.min((long) buffer.length * 2, partSizeBytes)];
+            System.arraycopy(buffer, 0, biggerBuffer, 0, bufferedBytes);
+            buffer = biggerBuffer;
+        } else {
+            uploadBufferAsPart();
+            buffer = partBuffers.takeBuffer();
+        }
+    }
+
+    private void uploadBufferAsPart() throws IOException {
+        checkNoFailedParts();
+        if (uploadId == null) {
+            uploadId = join(s3AsyncClient.createMultipartUpload(request -> request
+                    .bucket(s3BucketName).key(s3Key))).uploadId();
+            LOGGER.debug("Created multipart upload to s3://{}/{}", s3BucketName, s3Key);
+        }
+        try {
+            partBuffers.acquirePartInFlight();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting to upload part to s3://" + s3BucketName + "/" + s3Key);
+        }
+        int partNumber = partUploads.size() + 1;
+        byte[] partBuffer = buffer;
+        ByteBuffer partData = ByteBuffer.wrap(partBuffer, 0, bufferedBytes);
+        CompletableFuture<CompletedPart> partUpload;
+        try {
+            partUpload = s3AsyncClient.uploadPart(request -> request
+                            .bucket(s3BucketName).key(s3Key).uploadId(uploadId)
+                            .partNumber(partNumber).contentLength((long) bufferedBytes),
+                    AsyncRequestBody.fromRemainingByteBufferUnsafe(partData))
+                    .thenApply(response -> CompletedPart.builder()
+                            .partNumber(partNumber).eTag(response.eTag()).build())
+                    .whenComplete((part, e) -> partBuffers.releasePartInFlight(partBuffer));
+        } catch (RuntimeException e) {
+            partBuffers.releasePartInFlight(partBuffer);
+            throw e;
+        }
+        partUploads.add(partUpload);
+        // The buffer is now owned by the upload until it finishes, so the next part needs another one
+        buffer = null;
+        bufferedBytes = 0;
+    }
+
+    private void completeMultipartUpload() {
+        CompletableFuture.allOf(partUploads.toArray(new CompletableFuture[0]))
+                .thenCompose(dummy -> {
+                    List<CompletedPart> parts = partUploads.stream()
+                            .map(CompletableFuture::join)
+                            .collect(Collectors.toList());
+                    return s3AsyncClient.completeMultipartUpload(request -> request
+                            .bucket(s3BucketName).key(s3Key).uploadId(uploadId)
+                            .multipartUpload(upload -> upload.parts(parts)));
+                })
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        abortMultipartUpload();
+                        completion.completeExceptionally(e);
+                    } else {
+                        LOGGER.debug("Completed multipart upload of {} parts to s3://{}/{}", partUploads.size(), s3BucketName, s3Key);
+                        completion.complete(null);
+                    }
+                });
+    }
+
+    private void abortMultipartUpload() {
+        if (uploadId == null) {
+            return;
+        }
+        CompletableFuture.allOf(partUploads.toArray(new CompletableFuture[0]))
+                .handle((result, e) -> s3AsyncClient.abortMultipartUpload(request -> request
+                        .bucket(s3BucketName).key(s3Key).uploadId(uploadId)))
+                .thenCompose(abortFuture -> abortFuture)
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        LOGGER.error("Failed to abort multipart upload to s3://{}/{}", s3BucketName, s3Key, e);
+                    }
+                });
+    }
+
+    private void putWholeObject() {
+        ByteBuffer data = ByteBuffer.wrap(buffer, 0, bufferedBytes);
+        s3AsyncClient.putObject(request -> request
+                                .bucket(s3BucketName).key(s3Key).contentLength((long) bufferedBytes),
+                        AsyncRequestBody.fromRemainingByteBufferUnsafe(data))
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        completion.completeExceptionally(e);
+                    } else {
+                        LOGGER.debug("Uploaded {} bytes to s3://{}/{}", data.limit(), s3BucketName, s3Key);
+                        completion.complete(null);
+                    }
+                });
+        buffer = null;
+    }
+
+    private void checkNotClosed() throws IOException {
+        if (closed) {
+            throw new IOException("Stream is closed for s3://" + s3BucketName + "/" + s3Key);
+        }
+    }
+
+    private void checkNoFailedParts() throws IOException {
+        for (CompletableFuture<CompletedPart> partUpload : partUploads) {
+            if (partUpload.isCompletedExceptionally()) {
+                join(partUpload);
+            }
+        }
+    }
+
+    private static <T> T join(CompletableFuture<T> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.partitionfilewriter;
+
+import org.apache.datasketches.quantiles.ItemsSketch;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.io.OutputFile;
+import org.apache.parquet.io.PositionOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+import sleeper.core.partition.Partition;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Schema;
+import sleeper.ingest.impl.ParquetConfiguration;
+import sleeper.sketches.SketchSerialiser;
+import sleeper.sketches.Sketches;
+import sleeper.statestore.FileInfo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * This class writes partition files to S3 by streaming them into a multipart upload as they are written.
+ * <ul>
+ *     <li>Data is provided to this class, in sort order, through the {@link #append} method.</li>
+ *     <li>The records are encoded as Parquet straight into an {@link S3MultipartUploadOutputStream}, which uploads
+ *     each part asynchronously as soon as it is full. No local copy of the partition file is made.</li>
+ *     <li>The {@link #close()} method uploads the last part and the quantiles sketches, and returns a future which
+ *     will complete once both objects exist in S3.</li>
+ * </ul>
+ * <p>
+ * This overlaps the encoding of the Parquet file with its upload, and avoids the need for local disk space to hold
+ * partition files. Memory use is bounded by the part size multiplied by the number of parts allowed in flight.
+ */
+public class StreamingS3PartitionFileWriter implements PartitionFileWriter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StreamingS3PartitionFileWriter.class);
+
+    private final S3AsyncClient s3AsyncClient;
+    private final Schema sleeperSchema;
+    private final Partition partition;
+    private final String s3BucketName;
+    private final String partitionParquetS3Key;
+    private final String quantileSketchesS3Key;
+    private final S3MultipartUploadOutputStream partitionParquetStream;
+    private final ParquetWriter<Record> parquetWriter;
+    private final Map<String, ItemsSketch> keyFieldToSketchMap;
+    private final String rowKeyName;
+    private long recordsWrittenToCurrentPartition;
+    private Object currentPartitionMinKey;
+    private Object currentPartitionMaxKey;
+
+    /**
+     * Create a writer for a single partition file.
+     *
+     * @param partition            The partition to write to
+     * @param parquetConfiguration Schema and Parquet configuration for writing the Parquet partition file
+     * @param s3BucketName         The S3 bucket to write to
+     * @param s3AsyncClient        The client to use to perform the uploads
+     * @param partBuffers          Sets the part size, and limits the number of parts held in memory waiting to be
+     *                             uploaded, across all writers
+     * @throws IOException -
+     */
+    public StreamingS3PartitionFileWriter(
+            Partition partition,
+            ParquetConfiguration parquetConfiguration,
+            String s3BucketName,
+            S3AsyncClient s3AsyncClient,
+            UploadPartBuffers partBuffers) throws IOException {
+        this.s3AsyncClient = requireNonNull(s3AsyncClient);
+        this.sleeperSchema = parquetConfiguration.getTableProperties().getSchema();
+        this.partition = requireNonNull(partition);
+        this.s3BucketName = requireNonNull(s3BucketName);
+        UUID uuid = UUID.randomUUID();
+        this.partitionParquetS3Key = String.format("partition_%s/%s.parquet", partition.getId(), uuid);
+        this.quantileSketchesS3Key = String.format("partition_%s/%s.sketches", partition.getId(), uuid);
+        this.partitionParquetStream = new S3MultipartUploadOutputStream(
+                s3AsyncClient, s3BucketName, partitionParquetS3Key, partBuffers);
+        this.parquetWriter = parquetConfiguration.createParquetWriter(new StreamOutputFile(partitionParquetStream));
+        LOGGER.info("Created Parquet writer for partition {}", partition.getId());
+        this.keyFieldToSketchMap = PartitionFileWriterUtils.createQuantileSketchMap(sleeperSchema);
+        this.rowKeyName = this.sleeperSchema.getRowKeyFields().get(0).getName();
+        this.recordsWrittenToCurrentPartition = 0L;
+        this.currentPartitionMinKey = null;
+        this.currentPartitionMaxKey = null;
+    }
+
+    /**
+     * Append a record to the partition. Once enough data has been encoded to fill a part, it is uploaded to S3 in the
+     * background.
+     *
+     * @param record The record to append
+     * @throws IOException -
+     */
+    @Override
+    public void append(Record record) throws IOException {
+        parquetWriter.write(record);
+        PartitionFileWriterUtils.updateQuantileSketchMap(sleeperSchema, keyFieldToSketchMap, record);
+        if (currentPartitionMinKey == null) {
+            currentPartitionMinKey = record.get(rowKeyName);
+        }
+        currentPartitionMaxKey = record.get(rowKeyName);
+        recordsWrittenToCurrentPartition++;
+        if (recordsWrittenToCurrentPartition % 1000000 == 0) {
+            LOGGER.info("Written {} rows to partition {}", recordsWrittenToCurrentPartition, partition.getId());
+        }
+    }
+
+    /**
+     * Close this partition writer. The Parquet footer is written and the final part is uploaded, then the quantiles
+     * sketches are uploaded. The details of new partition file are returned in the future, which completes once both
+     * uploads have finished.
+     *
+     * @return Details about the new partition file
+     * @throws IOException -
+     */
+    @Override
+    public CompletableFuture<FileInfo> close() throws IOException {
+        parquetWriter.close();
+        LOGGER.debug("Closed writer for partition {} after writing {} rows: file s3://{}/{}",
+                partition.getId(),
+                recordsWrittenToCurrentPartition,
+                s3BucketName,
+                partitionParquetS3Key);
+        byte[] sketchesBytes = serialiseSketches();
+        CompletableFuture<?> quantileFileUploadFuture = s3AsyncClient.putObject(request -> request
+                        .bucket(s3BucketName).key(quantileSketchesS3Key),
+                AsyncRequestBody.fromBytesUnsafe(sketchesBytes));
+        FileInfo fileInfo = PartitionFileWriterUtils.createFileInfo(
+                sleeperSchema,
+                String.format("s3a://%s/%s", s3BucketName, partitionParquetS3Key),
+                partition.getId(),
+                recordsWrittenToCurrentPartition,
+                currentPartitionMinKey,
+                currentPartitionMaxKey,
+                System.currentTimeMillis());
+        return CompletableFuture.allOf(partitionParquetStream.completion(), quantileFileUploadFuture)
+                .thenApply(dummy -> fileInfo);
+    }
+
+    /**
+     * Make a best-effort attempt to abandon the multipart upload and free up resources.
+     */
+    @Override
+    public void abort() {
+        // Abort the upload first, so that closing the Parquet writer does not upload anything
+        partitionParquetStream.abort();
+        try {
+            parquetWriter.close();
+        } catch (Exception e) {
+            LOGGER.debug("Error closing ParquetWriter after aborting upload", e);
+        }
+    }
+
+    private byte[] serialiseSketches() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream dataOutputStream = new DataOutputStream(bytes)) {
+            new SketchSerialiser(sleeperSchema).serialise(new Sketches(keyFieldToSketchMap), dataOutputStream);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Presents a stream which is already open as a Parquet {@link OutputFile}, so that the Parquet writer can write
+     * into it.
+     */
+    private static class StreamOutputFile implements OutputFile {
+        private final PositionOutputStream stream;
+
+        StreamOutputFile(PositionOutputStream stream) {
+            this.stream = stream;
+        }
+
+        @Override
+        public PositionOutputStream create(long blockSizeHint) {
+            return stream;
+        }
+
+        @Override
+        public PositionOutputStream createOrOverwrite(long blockSizeHint) {
+            return stream;
+        }
+
+        @Override
+        public boolean supportsBlockSize() {
+            return false;
+        }
+
+        @Override
+        public long defaultBlockSize() {
+            return 0;
+        }
+    }
+}
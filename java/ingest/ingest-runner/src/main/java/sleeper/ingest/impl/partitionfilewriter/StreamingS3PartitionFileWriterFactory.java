@@ -0,0 +1,155 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.partitionfilewriter;
+
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.partition.Partition;
+import sleeper.ingest.impl.ParquetConfiguration;
+
+import java.io.IOException;
+import java.util.Objects;
+
+import static sleeper.configuration.properties.instance.AsyncIngestPartitionFileWriterProperty.MIN_STREAMING_INGEST_PART_SIZE_BYTES;
+import static sleeper.configuration.properties.instance.AsyncIngestPartitionFileWriterProperty.STREAMING_INGEST_MAX_PARTS_IN_FLIGHT;
+import static sleeper.configuration.properties.instance.AsyncIngestPartitionFileWriterProperty.STREAMING_INGEST_PART_SIZE_BYTES;
+import static sleeper.configuration.properties.table.TableProperty.DATA_BUCKET;
+
+public class StreamingS3PartitionFileWriterFactory implements PartitionFileWriterFactory {
+    public static final int MIN_PART_SIZE_BYTES = MIN_STREAMING_INGEST_PART_SIZE_BYTES;
+
+    private final ParquetConfiguration parquetConfiguration;
+    private final String s3BucketName;
+    private final S3AsyncClient s3AsyncClient;
+    private final boolean closeS3AsyncClient;
+    private final UploadPartBuffers partBuffers;
+
+    private StreamingS3PartitionFileWriterFactory(Builder builder) {
+        parquetConfiguration = Objects.requireNonNull(builder.parquetConfiguration, "parquetWriterConfiguration must not be null");
+        s3BucketName = Objects.requireNonNull(builder.s3BucketName, "s3BucketName must not be null");
+        s3AsyncClient = Objects.requireNonNull(builder.s3AsyncClient, "s3AsyncClient must not be null");
+        closeS3AsyncClient = builder.closeS3AsyncClient;
+        if (builder.partSizeBytes < MIN_PART_SIZE_BYTES) {
+            throw new IllegalArgumentException("Part size must be at least " + MIN_PART_SIZE_BYTES + " bytes, found " + builder.partSizeBytes);
+        }
+        partBuffers = new UploadPartBuffers(builder.partSizeBytes, builder.maxPartsInFlight);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static Builder builderWith(InstanceProperties instanceProperties, TableProperties tableProperties) {
+        return builder().instanceProperties(instanceProperties).tableProperties(tableProperties);
+    }
+
+    @Override
+    public PartitionFileWriter createPartitionFileWriter(Partition partition) {
+        try {
+            return new StreamingS3PartitionFileWriter(
+                    partition,
+                    parquetConfiguration,
+                    s3BucketName,
+                    s3AsyncClient,
+                    partBuffers);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (closeS3AsyncClient) {
+            s3AsyncClient.close();
+        }
+    }
+
+    public static final class Builder {
+        private ParquetConfiguration parquetConfiguration;
+        private S3AsyncClient s3AsyncClient;
+        private String s3BucketName;
+        private boolean closeS3AsyncClient;
+        private int partSizeBytes = 16 * 1024 * 1024;
+        private int maxPartsInFlight = 8;
+
+        private Builder() {
+        }
+
+        public Builder parquetConfiguration(ParquetConfiguration parquetConfiguration) {
+            this.parquetConfiguration = parquetConfiguration;
+            return this;
+        }
+
+        public Builder s3AsyncClient(S3AsyncClient s3AsyncClient) {
+            this.s3AsyncClient = s3AsyncClient;
+            return this;
+        }
+
+        public Builder s3AsyncClientOrDefaultFromProperties(
+                S3AsyncClient s3AsyncClient, InstanceProperties properties) {
+            if (s3AsyncClient == null) {
+                this.s3AsyncClient = AsyncS3PartitionFileWriterFactory.s3AsyncClientFromProperties(properties);
+                closeS3AsyncClient = true;
+            } else {
+                this.s3AsyncClient = s3AsyncClient;
+            }
+            return this;
+        }
+
+        public Builder s3BucketName(String s3BucketName) {
+            this.s3BucketName = s3BucketName;
+            return this;
+        }
+
+        /**
+         * The size of each part of the multipart upload of a partition file. S3 requires this to be at least 5MB.
+         *
+         * @param partSizeBytes The part size in bytes
+         * @return The builder for chaining calls
+         */
+        public Builder partSizeBytes(int partSizeBytes) {
+            this.partSizeBytes = partSizeBytes;
+            return this;
+        }
+
+        /**
+         * The maximum number of full parts which may wait to be uploaded at once, across all partition files being
+         * written. Writing blocks once this is reached.
+         *
+         * @param maxPartsInFlight The maximum number of parts in flight
+         * @return The builder for chaining calls
+         */
+        public Builder maxPartsInFlight(int maxPartsInFlight) {
+            this.maxPartsInFlight = maxPartsInFlight;
+            return this;
+        }
+
+        public Builder instanceProperties(InstanceProperties instanceProperties) {
+            return partSizeBytes(instanceProperties.getInt(STREAMING_INGEST_PART_SIZE_BYTES))
+                    .maxPartsInFlight(instanceProperties.getInt(STREAMING_INGEST_MAX_PARTS_IN_FLIGHT));
+        }
+
+        public Builder tableProperties(TableProperties tableProperties) {
+            return s3BucketName(tableProperties.get(DATA_BUCKET));
+        }
+
+        public StreamingS3PartitionFileWriterFactory build() {
+            return new StreamingS3PartitionFileWriterFactory(this);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.partitionfilewriter;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Holds the buffers for parts of multipart uploads made by {@link S3MultipartUploadOutputStream}s, which may be
+ * shared between many streams. This limits the number of full parts held in memory waiting to be uploaded, and reuses
+ * the buffer of each part once it has been uploaded.
+ * <p>
+ * Each open stream also holds one buffer that it is filling, so the memory used for parts is at most the part size
+ * multiplied by the maximum number of parts in flight plus the number of open streams.
+ */
+public class UploadPartBuffers {
+    private final int partSizeBytes;
+    private final Semaphore partsInFlight;
+    private final Queue<byte[]> freeBuffers = new ConcurrentLinkedQueue<>();
+
+    public UploadPartBuffers(int partSizeBytes, int maxPartsInFlight) {
+        this.partSizeBytes = partSizeBytes;
+        this.partsInFlight = new Semaphore(maxPartsInFlight);
+    }
+
+    public int getPartSizeBytes() {
+        return partSizeBytes;
+    }
+
+    /**
+     * Retrieves an empty buffer for a part, reusing the buffer of an uploaded part if one is available.
+     *
+     * @return a buffer of the part size
+     */
+    byte[] takeBuffer() {
+        byte[] buffer = freeBuffers.poll();
+        if (buffer == null) {
+            return new byte[partSizeBytes];
+        }
+        return buffer;
+    }
+
+    /**
+     * Waits until another part may be held in memory for upload.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    void acquirePartInFlight() throws InterruptedException {
+        partsInFlight.acquire();
+    }
+
+    /**
+     * Records that a part has finished uploading, successfully or not. The buffer is then free to be reused.
+     *
+     * @param buffer the buffer the part was held in
+     */
+    void releasePartInFlight(byte[] buffer) {
+        if (buffer.length == partSizeBytes) {
+            freeBuffers.add(buffer);
+        }
+        partsInFlight.release();
+    }
+
+    int availablePartsInFlight() {
+        return partsInFlight.availablePermits();
+    }
+
+    int freeBufferCount() {
+        return freeBuffers.size();
+    }
+}
@@ -25,6 +25,8 @@ import org.slf4j.LoggerFactory;
 
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.iterator.MergingIterator;
+import sleeper.core.iterator.WrappedIterator;
+import sleeper.core.iterator.impl.AggregatingIterator;
 import sleeper.core.record.Record;
 import sleeper.core.record.RecordComparator;
 import sleeper.core.schema.Schema;
@@ -64,6 +66,7 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
     private final int maxNoOfRecordsInMemory;
     private final long maxNoOfRecordsInLocalStore;
     private final Configuration hadoopConfiguration;
+    private final AggregatingIterator preAggregationIterator;
     private final UUID uniqueIdentifier;
     private final List<Record> inMemoryBatch;
     private final List<String> localFileNames;
@@ -82,12 +85,16 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
      * @param localWorkingDirectory      A local directory to use to store temporary files
      * @param maxNoOfRecordsInMemory     The maximum number of records to store in the internal ArrayList
      * @param maxNoOfRecordsInLocalStore The maximum number of records to store on the local disk
+     * @param preAggregationIterator     An iterator to combine records with the same key each time the in-memory
+     *                                   batch is sorted, before it is written to local disk, or null to write every
+     *                                   record
      */
     public ArrayListRecordBatch(ParquetConfiguration parquetConfiguration,
                                 ArrayListRecordMapper<INCOMINGDATATYPE> recordMapper,
                                 String localWorkingDirectory,
                                 int maxNoOfRecordsInMemory,
-                                long maxNoOfRecordsInLocalStore) {
+                                long maxNoOfRecordsInLocalStore,
+                                AggregatingIterator preAggregationIterator) {
         this.parquetConfiguration = requireNonNull(parquetConfiguration);
         this.sleeperSchema = parquetConfiguration.getTableProperties().getSchema();
         this.recordMapper = recordMapper;
@@ -95,6 +102,7 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
         this.maxNoOfRecordsInMemory = maxNoOfRecordsInMemory;
         this.maxNoOfRecordsInLocalStore = maxNoOfRecordsInLocalStore;
         this.hadoopConfiguration = parquetConfiguration.getHadoopConfiguration();
+        this.preAggregationIterator = preAggregationIterator;
         this.uniqueIdentifier = UUID.randomUUID();
         this.internalOrderedRecordIterator = null;
         this.isWriteable = true;
@@ -136,15 +144,19 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
                     batchNo);
             inMemoryBatch.sort(new RecordComparator(sleeperSchema));
             long time2 = System.currentTimeMillis();
-            // Write the records to a local Parquet file. The try-with-resources block ensures that the writer
-            // is closed in both success and failure.
-            try (ParquetWriter<Record> parquetWriter = parquetConfiguration.createParquetWriter(outputFileName)) {
-                for (Record record : inMemoryBatch) {
-                    parquetWriter.write(record);
+            // Write the records to a local Parquet file, combining any with the same key if pre-aggregation is
+            // configured. The try-with-resources block ensures that the writer is closed in both success and failure.
+            long recordsWritten = 0;
+            try (ParquetWriter<Record> parquetWriter = parquetConfiguration.createParquetWriter(outputFileName);
+                 CloseableIterator<Record> recordsToWrite = sortedRecordsToWrite()) {
+                while (recordsToWrite.hasNext()) {
+                    parquetWriter.write(recordsToWrite.next());
+                    recordsWritten++;
                 }
             }
             long time3 = System.currentTimeMillis();
-            LOGGER.info(String.format("Wrote %d records to local file in %.1fs (%.1f/s) [sorting %.1fs (%.1f/s), writing %.1fs (%.1f/s)] - filename: %s",
+            LOGGER.info(String.format("Wrote %d records from %d to local file in %.1fs (%.1f/s) [sorting %.1fs (%.1f/s), writing %.1fs (%.1f/s)] - filename: %s",
+                    recordsWritten,
                     inMemoryBatch.size(),
                     (time3 - time1) / 1000.0,
                     inMemoryBatch.size() / ((time3 - time1) / 1000.0),
@@ -154,12 +166,21 @@ public class ArrayListRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOM
                     inMemoryBatch.size() / ((time3 - time2) / 1000.0),
                     outputFileName));
             localFileNames.add(outputFileName);
-            noOfRecordsInLocalStore += inMemoryBatch.size();
+            noOfRecordsInLocalStore += recordsWritten;
         }
         batchNo++;
         inMemoryBatch.clear();
     }
 
+    private CloseableIterator<Record> sortedRecordsToWrite() {
+        CloseableIterator<Record> sortedRecords = new WrappedIterator<>(inMemoryBatch.iterator());
+        if (null == preAggregationIterator) {
+            return sortedRecords;
+        } else {
+            return preAggregationIterator.apply(sortedRecords);
+        }
+    }
+
     @Override
     public void append(INCOMINGDATATYPE data) throws IOException {
         addRecordToBatch(recordMapper.map(data));
@@ -20,6 +20,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.core.iterator.impl.AggregatingIterator;
 import sleeper.core.record.Record;
 import sleeper.ingest.impl.ParquetConfiguration;
 import sleeper.ingest.impl.recordbatch.RecordBatch;
@@ -38,6 +39,7 @@ public class ArrayListRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatc
     private final int maxNoOfRecordsInMemory;
     private final long maxNoOfRecordsInLocalStore;
     private final ArrayListRecordMapper<INCOMINGDATATYPE> recordMapper;
+    private final AggregatingIterator preAggregationIterator;
 
     private ArrayListRecordBatchFactory(Builder<INCOMINGDATATYPE> builder) {
         parquetConfiguration = Objects.requireNonNull(builder.parquetConfiguration, "parquetConfiguration must not be null");
@@ -51,6 +53,7 @@ public class ArrayListRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatc
             throw new IllegalArgumentException("maxNoOfRecordsInLocalStore must be positive");
         }
         this.recordMapper = Objects.requireNonNull(builder.recordMapper, "recordMapper must not be null");
+        this.preAggregationIterator = builder.preAggregationIterator;
 
         LOGGER.info("Max number of records to read into memory is {}", maxNoOfRecordsInMemory);
         LOGGER.info("Max number of records to write to local disk is {}", maxNoOfRecordsInLocalStore);
@@ -68,7 +71,7 @@ public class ArrayListRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatc
     public RecordBatch<INCOMINGDATATYPE> createRecordBatch() {
         return new ArrayListRecordBatch<>(
                 parquetConfiguration, recordMapper, localWorkingDirectory,
-                maxNoOfRecordsInMemory, maxNoOfRecordsInLocalStore);
+                maxNoOfRecordsInMemory, maxNoOfRecordsInLocalStore, preAggregationIterator);
     }
 
     public static final class Builder<T> {
@@ -77,6 +80,7 @@ public class ArrayListRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatc
         private int maxNoOfRecordsInMemory;
         private long maxNoOfRecordsInLocalStore;
         private ArrayListRecordMapper<T> recordMapper;
+        private AggregatingIterator preAggregationIterator;
 
         private Builder() {
         }
@@ -101,6 +105,17 @@ public class ArrayListRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatc
             return this;
         }
 
+        /**
+         * Sets an iterator to combine records with the same key before they are written to local disk.
+         *
+         * @param  preAggregationIterator the iterator, or null to write every record
+         * @return                        the builder
+         */
+        public Builder<T> preAggregationIterator(AggregatingIterator preAggregationIterator) {
+            this.preAggregationIterator = preAggregationIterator;
+            return this;
+        }
+
         public Builder<T> instanceProperties(InstanceProperties instanceProperties) {
             return maxNoOfRecordsInMemory(instanceProperties.getInt(MAX_IN_MEMORY_BATCH_SIZE))
                     .maxNoOfRecordsInLocalStore(instanceProperties.getLong(MAX_RECORDS_TO_WRITE_LOCALLY));
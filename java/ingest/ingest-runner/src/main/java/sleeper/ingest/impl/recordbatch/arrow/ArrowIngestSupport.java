@@ -20,12 +20,8 @@ import org.apache.arrow.algorithm.sort.DefaultVectorComparators;
 import org.apache.arrow.algorithm.sort.IndexSorter;
 import org.apache.arrow.algorithm.sort.VectorValueComparator;
 import org.apache.arrow.memory.BufferAllocator;
-import org.apache.arrow.vector.BaseVariableWidthVector;
-import org.apache.arrow.vector.BigIntVector;
 import org.apache.arrow.vector.IntVector;
 import org.apache.arrow.vector.ValueVector;
-import org.apache.arrow.vector.VarBinaryVector;
-import org.apache.arrow.vector.VarCharVector;
 import org.apache.arrow.vector.VectorSchemaRoot;
 
 import sleeper.core.schema.type.ByteArrayType;
@@ -69,29 +65,10 @@ class ArrowIngestSupport {
                 Stream.of(sleeperSchema.getRowKeyFields(), sleeperSchema.getSortKeyFields())
                         .flatMap(List::stream)
                         .collect(Collectors.toList());
-        List<VectorValueComparator<?>> vectorValueComparatorsInOrder = sleeperSortOrderFieldsInOrder.stream()
+        List<VectorValueComparator<ValueVector>> vectorValueComparatorsInOrder = sleeperSortOrderFieldsInOrder.stream()
                 .map(field -> {
-                    Type fieldType = field.getType();
                     int indexOfField = allSleeperFields.indexOf(field);
-                    if (fieldType instanceof IntType) {
-                        VectorValueComparator<IntVector> vectorValueComparator = new DefaultVectorComparators.IntComparator();
-                        vectorValueComparator.attachVector((IntVector) vectorSchemaRoot.getVector(indexOfField));
-                        return vectorValueComparator;
-                    } else if (fieldType instanceof LongType) {
-                        VectorValueComparator<BigIntVector> vectorValueComparator = new DefaultVectorComparators.LongComparator();
-                        vectorValueComparator.attachVector((BigIntVector) vectorSchemaRoot.getVector(indexOfField));
-                        return vectorValueComparator;
-                    } else if (fieldType instanceof StringType) {
-                        VectorValueComparator<BaseVariableWidthVector> vectorValueComparator = new DefaultVectorComparators.VariableWidthComparator();
-                        vectorValueComparator.attachVector((VarCharVector) vectorSchemaRoot.getVector(indexOfField));
-                        return vectorValueComparator;
-                    } else if (fieldType instanceof ByteArrayType) {
-                        VectorValueComparator<BaseVariableWidthVector> vectorValueComparator = new DefaultVectorComparators.VariableWidthComparator();
-                        vectorValueComparator.attachVector((VarBinaryVector) vectorSchemaRoot.getVector(indexOfField));
-                        return vectorValueComparator;
-                    } else {
-                        throw new UnsupportedOperationException("Sleeper column type " + fieldType.toString() + " is not handled");
-                    }
+                    return createVectorValueComparator(field.getType(), vectorSchemaRoot.getVector(indexOfField));
                 }).collect(Collectors.toList());
         CompositeVectorComparator compositeVectorComparator = new CompositeVectorComparator(vectorValueComparatorsInOrder.toArray(new VectorValueComparator[0]));
         // Create a vector to hold the row indices of the data before it has been sorted and populate it with the
@@ -109,4 +86,29 @@ class ArrowIngestSupport {
             throw e;
         }
     }
+
+    /**
+     * Create a comparator for values in Arrow vectors holding the given Sleeper type. The comparator is attached to
+     * the supplied vector, but may be reattached to compare values held in two different vectors of the same type.
+     *
+     * @param fieldType the Sleeper type of the values to compare
+     * @param vector    the vector to attach the comparator to
+     * @return the comparator
+     */
+    @SuppressWarnings("unchecked")
+    public static VectorValueComparator<ValueVector> createVectorValueComparator(Type fieldType, ValueVector vector) {
+        VectorValueComparator<? extends ValueVector> vectorValueComparator;
+        if (fieldType instanceof IntType) {
+            vectorValueComparator = new DefaultVectorComparators.IntComparator();
+        } else if (fieldType instanceof LongType) {
+            vectorValueComparator = new DefaultVectorComparators.LongComparator();
+        } else if (fieldType instanceof StringType || fieldType instanceof ByteArrayType) {
+            vectorValueComparator = new DefaultVectorComparators.VariableWidthComparator();
+        } else {
+            throw new UnsupportedOperationException("Sleeper column type " + fieldType.toString() + " is not handled");
+        }
+        VectorValueComparator<ValueVector> comparator = (VectorValueComparator<ValueVector>) vectorValueComparator;
+        comparator.attachVector(vector);
+        return comparator;
+    }
 }
@@ -21,14 +21,13 @@ import org.apache.arrow.memory.OutOfMemoryException;
 import org.apache.arrow.vector.IntVector;
 import org.apache.arrow.vector.ValueVector;
 import org.apache.arrow.vector.VectorSchemaRoot;
-import org.apache.arrow.vector.ipc.ArrowStreamReader;
-import org.apache.arrow.vector.ipc.ArrowStreamWriter;
+import org.apache.arrow.vector.ipc.ArrowFileWriter;
 import org.apache.arrow.vector.types.pojo.ArrowType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sleeper.core.iterator.CloseableIterator;
-import sleeper.core.iterator.MergingIterator;
+import sleeper.core.iterator.impl.AggregatingIterator;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
@@ -66,7 +65,7 @@ import static java.util.Objects.requireNonNull;
  *     <li>Data is provided to this class through the {@link #append} methods. These are stored in a {@link VectorSchemaRoot}</li>
  *     <li>When an {@link org.apache.arrow.memory.OutOfMemoryException} occurs, the Arrow data is sorted and written to a local file in Arrow format, and the {@link VectorSchemaRoot} is cleared to receive new data</li>
  *     <li>The batch is deemed to be full when the total amount of data on the local disk exceeds a threshold</li>
- *     <li>To retrieve the data, a {@link MergingIterator} is used to create one iterator of records from those local Arrow files. No more data may be appended at this stage</li>
+ *     <li>To retrieve the data, the local Arrow files are read back through buffered file channels and merged into one iterator of records, comparing the keys directly in the Arrow vectors. No more data may be appended at this stage</li>
  *     <li>The record batch cannot be reused and {@link #close} will delete all of the local files and free the memory</li>
  * </ul>
  * <p>
@@ -99,6 +98,7 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
     protected final List<String> localArrowFileNames;
     protected final String uniqueIdentifier;
     protected final long maxNoOfBytesToWriteLocally;
+    protected final AggregatingIterator preAggregationIterator;
     protected int currentInsertIndex;
     protected long noOfBytesInLocalFiles;
     protected int currentBatchNo;
@@ -125,6 +125,9 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
      * @param maxNoOfRecordsToWriteToArrowFileAtOnce The Arrow file writing process writes multiple small batches of
      *                                               data of this size into a single file, to reduced the memory
      *                                               footprint
+     * @param preAggregationIterator                 An iterator to combine records with the same key each time the
+     *                                               in-memory batch is sorted, before it is written to a local file,
+     *                                               or null to write every record
      */
     @SuppressFBWarnings("MC_OVERRIDABLE_METHOD_CALL_IN_CONSTRUCTOR")
     public ArrowRecordBatch(BufferAllocator arrowBufferAllocator,
@@ -135,7 +138,8 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
                             long minBatchArrowBufferAllocatorBytes,
                             long maxBatchArrowBufferAllocatorBytes,
                             long maxNoOfBytesToWriteLocally,
-                            int maxNoOfRecordsToWriteToArrowFileAtOnce) {
+                            int maxNoOfRecordsToWriteToArrowFileAtOnce,
+                            AggregatingIterator preAggregationIterator) {
         requireNonNull(arrowBufferAllocator);
         this.sleeperSchema = requireNonNull(sleeperSchema);
         this.recordMapper = requireNonNull(recordMapper);
@@ -143,6 +147,7 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
         this.localWorkingDirectory = requireNonNull(localWorkingDirectory);
         this.maxNoOfBytesToWriteLocally = maxNoOfBytesToWriteLocally;
         this.maxNoOfRecordsToWriteToArrowFileAtOnce = maxNoOfRecordsToWriteToArrowFileAtOnce;
+        this.preAggregationIterator = preAggregationIterator;
         this.currentBatchNo = 0;
         this.currentInsertIndex = 0;
         this.noOfBytesInLocalFiles = 0L;
@@ -195,8 +200,9 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
 
     /**
      * Sort a {@link VectorSchemaRoot} according to the single row key specified in the {@link Schema} and then write
-     * the sorted rows out to an Arrow file. The rows are written out in small batches to minimise the amount of
-     * additional memory that is required.
+     * the sorted rows out to an Arrow file. The file is written in the Arrow IPC file format, so that its batches can be
+     * read back one at a time. The rows are written out in small batches to minimise the amount of additional memory
+     * that is required.
      *
      * @param temporaryBufferAllocator               The buffer allocator to use for working memory
      * @param sleeperSchema                          The Sleeper {@link Schema} of the rows to be sorted
@@ -228,11 +234,11 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
         try (IntVector wholeFileSortOrderVector = ArrowIngestSupport.createSortOrderVector(temporaryBufferAllocator, sleeperSchema, sourceVectorSchemaRoot);
              VectorSchemaRoot smallBatchVectorSchemaRoot = VectorSchemaRoot.create(sourceVectorSchemaRoot.getSchema(), temporaryBufferAllocator);
              FileChannel outputFileChannel = FileChannel.open(arrowFilePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
-             ArrowStreamWriter arrowStreamWriter = new ArrowStreamWriter(smallBatchVectorSchemaRoot, null, outputFileChannel)) {
+             ArrowFileWriter arrowFileWriter = new ArrowFileWriter(smallBatchVectorSchemaRoot, null, outputFileChannel)) {
             // Allocate memory in the vectors underlying the VectorSchemaRoot and start the writer
             smallBatchVectorSchemaRoot.getFieldVectors().forEach(fieldVector -> fieldVector.setInitialCapacity(maxNoOfRecordsToWriteToArrowFileAtOnce));
             smallBatchVectorSchemaRoot.allocateNew();
-            arrowStreamWriter.start();
+            arrowFileWriter.start();
             // Write a slice of maxNoOfRecordsToWriteToArrowFileAtOnce rows at a time
             int sliceStart = 0;
             int sliceNo = 0;
@@ -258,13 +264,13 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
                     smallBatchVectorSchemaRoot.setRowCount(sliceIndex + 1);
                 }
                 // Write the batch
-                arrowStreamWriter.writeBatch();
+                arrowFileWriter.writeBatch();
                 // Prepare for the next batch
                 sliceStart = sliceEnd;
                 sliceNo++;
             }
-            arrowStreamWriter.end();
-            bytesWritten = arrowStreamWriter.bytesWritten();
+            arrowFileWriter.end();
+            bytesWritten = arrowFileWriter.bytesWritten();
             // The sort vector, smallBatchVectorSchemaRoot, channel and writer are auto-closed at the end of the try block
         }
         LOGGER.debug(String.format("Written %09d bytes", bytesWritten));
@@ -272,21 +278,55 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
     }
 
     /**
-     * Create a {@link CloseableIterator} of {@link Record} objects which reads the rows from the named Arrow file.
-     * <p>
-     * The {@link CloseableIterator} should be closed by the caller when it is no longer needed.
+     * Sort a {@link VectorSchemaRoot}, combine rows with the same key using an {@link AggregatingIterator}, and then
+     * write the combined rows out to an Arrow file. The rows are converted to records to be combined, and written back
+     * in small batches as in {@link #sortArrowAndWriteToLocalFile}.
      *
-     * @param bufferAllocator    The Arrow {@link BufferAllocator} to use as a working buffer during file-reading
-     * @param localArrowFileName The Arrow file to read
-     * @return An iterator of records read from the Arrow file
+     * @param temporaryBufferAllocator               The buffer allocator to use for working memory
+     * @param sleeperSchema                          The Sleeper {@link Schema} of the rows to be sorted
+     * @param sourceVectorSchemaRoot                 The {@link VectorSchemaRoot} containing the rows to be written
+     * @param localArrowFileName                     The name of the file to write the Arrow data to
+     * @param maxNoOfRecordsToWriteToArrowFileAtOnce The number of rows to write to the Arrow file in each small batch
+     * @param aggregatingIterator                    The iterator to combine rows with the same key
+     * @return Number of bytes written
      * @throws IOException -
      */
-    private static CloseableIterator<Record> createCloseableRecordIteratorForArrowFile(BufferAllocator bufferAllocator,
-                                                                                       String localArrowFileName)
-            throws IOException {
-        FileChannel inputFileChannel = FileChannel.open(Paths.get(localArrowFileName), StandardOpenOption.READ);
-        ArrowStreamReader arrowStreamReader = new ArrowStreamReader(inputFileChannel, bufferAllocator);
-        return new RecordIteratorFromArrowStreamReader(arrowStreamReader);
+    @SuppressFBWarnings("NP_NULL_ON_SOME_PATH_FROM_RETURN_VALUE")
+    private static long sortAggregateAndWriteToLocalFile(BufferAllocator temporaryBufferAllocator,
+                                                         Schema sleeperSchema,
+                                                         VectorSchemaRoot sourceVectorSchemaRoot,
+                                                         String localArrowFileName,
+                                                         int maxNoOfRecordsToWriteToArrowFileAtOnce,
+                                                         AggregatingIterator aggregatingIterator) throws IOException {
+        List<Field> allSleeperFields = sleeperSchema.getAllFields();
+        long bytesWritten;
+        Path arrowFilePath = Paths.get(localArrowFileName);
+        Path arrowFileParent = Objects.requireNonNull(arrowFilePath.getParent());
+        Files.createDirectories(arrowFileParent);
+        try (CloseableIterator<Record> aggregatedRecords = aggregatingIterator.apply(
+                new RecordIteratorOrderedFromVectorSchemaRoot(temporaryBufferAllocator, sourceVectorSchemaRoot, sleeperSchema));
+             VectorSchemaRoot smallBatchVectorSchemaRoot = VectorSchemaRoot.create(sourceVectorSchemaRoot.getSchema(), temporaryBufferAllocator);
+             FileChannel outputFileChannel = FileChannel.open(arrowFilePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+             ArrowFileWriter arrowFileWriter = new ArrowFileWriter(smallBatchVectorSchemaRoot, null, outputFileChannel)) {
+            smallBatchVectorSchemaRoot.getFieldVectors().forEach(fieldVector -> fieldVector.setInitialCapacity(maxNoOfRecordsToWriteToArrowFileAtOnce));
+            smallBatchVectorSchemaRoot.allocateNew();
+            arrowFileWriter.start();
+            while (aggregatedRecords.hasNext()) {
+                smallBatchVectorSchemaRoot.getFieldVectors().forEach(ValueVector::reset);
+                int sliceLength = 0;
+                while (sliceLength < maxNoOfRecordsToWriteToArrowFileAtOnce && aggregatedRecords.hasNext()) {
+                    ArrowRecordWriterAcceptingRecords.writeRecord(
+                            allSleeperFields, smallBatchVectorSchemaRoot, aggregatedRecords.next(), sliceLength);
+                    sliceLength++;
+                }
+                smallBatchVectorSchemaRoot.setRowCount(sliceLength);
+                arrowFileWriter.writeBatch();
+            }
+            arrowFileWriter.end();
+            bytesWritten = arrowFileWriter.bytesWritten();
+        }
+        LOGGER.debug(String.format("Written %09d bytes", bytesWritten));
+        return bytesWritten;
     }
 
     /**
@@ -431,12 +471,22 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
         LOGGER.debug("Writing {} records to local Arrow file {}", currentInsertIndex, localFileName);
         long bytesWrittenToLocalFile;
         try {
-            bytesWrittenToLocalFile = sortArrowAndWriteToLocalFile(
-                    workingBufferAllocator,
-                    sleeperSchema,
-                    vectorSchemaRoot,
-                    localFileName,
-                    maxNoOfRecordsToWriteToArrowFileAtOnce);
+            if (null == preAggregationIterator) {
+                bytesWrittenToLocalFile = sortArrowAndWriteToLocalFile(
+                        workingBufferAllocator,
+                        sleeperSchema,
+                        vectorSchemaRoot,
+                        localFileName,
+                        maxNoOfRecordsToWriteToArrowFileAtOnce);
+            } else {
+                bytesWrittenToLocalFile = sortAggregateAndWriteToLocalFile(
+                        workingBufferAllocator,
+                        sleeperSchema,
+                        vectorSchemaRoot,
+                        localFileName,
+                        maxNoOfRecordsToWriteToArrowFileAtOnce,
+                        preAggregationIterator);
+            }
         } catch (Exception e) {
             LOGGER.warn("An exception occurred during sortArrowAndWriteToLocalFile", e);
             throw e;
@@ -492,7 +542,8 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
     /**
      * Create an iterator to iterate through all of the records in this batch, in sort order. It flushes the current
      * in-memory batch to disk and clears the memory, then performs a merge-sort of every local Arrow file (each of
-     * which were sorted as it was written).
+     * which were sorted as it was written). The merge compares keys within the Arrow vectors read from each file, and
+     * only converts a row into a {@link Record} when it is returned from the iterator.
      *
      * @return An iterator to iterate through all of the records in sorted order.
      * @throws IOException -
@@ -509,30 +560,9 @@ public class ArrowRecordBatch<INCOMINGDATATYPE> implements RecordBatch<INCOMINGD
                     localArrowFileNames.get(0),
                     localArrowFileNames.get(localArrowFileNames.size() - 1));
         }
-        // Create the variables for the iterators here so that they can be closed if an error occurs
-        List<CloseableIterator<Record>> sortedRecordIteratorsToMerge = new ArrayList<>(localArrowFileNames.size());
-        try {
-            // Create an iterator from each local file
-            localArrowFileNames.forEach(localFileName -> {
-                try {
-                    sortedRecordIteratorsToMerge.add(createCloseableRecordIteratorForArrowFile(workingBufferAllocator, localFileName));
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-            });
-            // Merge the local file iterators into one sorted iterator
-            return new MergingIterator(sleeperSchema, sortedRecordIteratorsToMerge);
-        } catch (Exception e1) {
-            // Clean up carefully if something went wrong during the creation of this iterator
-            sortedRecordIteratorsToMerge.forEach(iterator -> {
-                try {
-                    iterator.close();
-                } catch (Exception e2) {
-                    e1.addSuppressed(e2);
-                }
-            });
-            throw e1;
-        }
+        // Merge the local files into one sorted iterator. If this fails, the files are closed before the exception
+        // is thrown.
+        return new RecordIteratorMergedFromArrowFiles(workingBufferAllocator, sleeperSchema, localArrowFileNames);
     }
 
     @Override
@@ -22,6 +22,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.core.iterator.impl.AggregatingIterator;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Schema;
 import sleeper.ingest.impl.recordbatch.RecordBatch;
@@ -47,6 +48,7 @@ public class ArrowRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatchFac
     private final ArrowRecordWriter<INCOMINGDATATYPE> recordWriter;
     private final BufferAllocator bufferAllocator;
     private final boolean closeBufferAllocator;
+    private final AggregatingIterator preAggregationIterator;
 
     private ArrowRecordBatchFactory(
             Builder<INCOMINGDATATYPE> builder) {
@@ -70,6 +72,7 @@ public class ArrowRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatchFac
         this.maxNoOfBytesToWriteLocally = builder.maxNoOfBytesToWriteLocally;
         this.maxNoOfRecordsToWriteToArrowFileAtOnce = builder.maxNoOfRecordsToWriteToArrowFileAtOnce;
         this.recordWriter = Objects.requireNonNull(builder.recordWriter, "recordWriter must not be null");
+        this.preAggregationIterator = builder.preAggregationIterator;
         if (builder.bufferAllocator == null) {
             this.closeBufferAllocator = true;
             this.bufferAllocator = new RootAllocator(workingBufferAllocatorBytes + maxBatchBufferAllocatorBytes);
@@ -109,7 +112,8 @@ public class ArrowRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatchFac
                 minBatchBufferAllocatorBytes,
                 maxBatchBufferAllocatorBytes,
                 maxNoOfBytesToWriteLocally,
-                maxNoOfRecordsToWriteToArrowFileAtOnce);
+                maxNoOfRecordsToWriteToArrowFileAtOnce,
+                preAggregationIterator);
     }
 
     @Override
@@ -129,6 +133,7 @@ public class ArrowRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatchFac
         private int maxNoOfRecordsToWriteToArrowFileAtOnce;
         private BufferAllocator bufferAllocator;
         private ArrowRecordWriter<T> recordWriter;
+        private AggregatingIterator preAggregationIterator;
 
         private Builder() {
         }
@@ -178,6 +183,17 @@ public class ArrowRecordBatchFactory<INCOMINGDATATYPE> implements RecordBatchFac
             return this;
         }
 
+        /**
+         * Sets an iterator to combine records with the same key before they are written to a local file.
+         *
+         * @param  preAggregationIterator the iterator, or null to write every record
+         * @return                        the builder
+         */
+        public Builder<T> preAggregationIterator(AggregatingIterator preAggregationIterator) {
+            this.preAggregationIterator = preAggregationIterator;
+            return this;
+        }
+
         public Builder<T> instanceProperties(InstanceProperties instanceProperties) {
             return maxNoOfRecordsToWriteToArrowFileAtOnce(instanceProperties.getInt(ARROW_INGEST_MAX_SINGLE_WRITE_TO_FILE_RECORDS))
                     .workingBufferAllocatorBytes(instanceProperties.getLong(ARROW_INGEST_WORKING_BUFFER_BYTES))
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch.arrow;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.NonWritableChannelException;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A read-only {@link SeekableByteChannel} over a local file, which reads ahead into a direct buffer. Small reads are
+ * served from the buffer, which avoids a system call for every read when the Arrow file reader loads each small batch
+ * of a local spill file. Reads at least as large as the buffer go straight to the file.
+ * <p>
+ * The file is held open by a {@link FileChannel}, which is closed when this channel is closed. Nothing is left
+ * referring to the file after that, so its disk space is freed as soon as it is deleted.
+ */
+class BufferedFileReadChannel implements SeekableByteChannel {
+    static final int DEFAULT_BUFFER_SIZE = 1024 * 1024;
+
+    private final FileChannel fileChannel;
+    private final ByteBuffer buffer;
+    private long bufferStart;
+
+    BufferedFileReadChannel(FileChannel fileChannel, int bufferSize) {
+        this.fileChannel = fileChannel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.buffer.limit(0);
+        this.bufferStart = 0;
+    }
+
+    /**
+     * Open a channel to read the given local file.
+     *
+     * @param  path        the file to read
+     * @return             a channel to read the file
+     * @throws IOException if the file could not be opened
+     */
+    static BufferedFileReadChannel open(Path path) throws IOException {
+        return new BufferedFileReadChannel(FileChannel.open(path, StandardOpenOption.READ), DEFAULT_BUFFER_SIZE);
+    }
+
+    @Override
+    public int read(ByteBuffer dst) throws IOException {
+        ensureOpen();
+        if (!dst.hasRemaining()) {
+            return 0;
+        }
+        int bytesRead = copyFromBuffer(dst);
+        if (!dst.hasRemaining()) {
+            return bytesRead;
+        }
+        long filePosition = position();
+        if (dst.remaining() >= buffer.capacity()) {
+            int directRead = fileChannel.read(dst, filePosition);
+            if (directRead > 0) {
+                bytesRead += directRead;
+                discardBufferAt(filePosition + directRead);
+            }
+            return bytesRead == 0 && directRead < 0 ? -1 : bytesRead;
+        }
+        buffer.clear();
+        int bufferedRead = fileChannel.read(buffer, filePosition);
+        buffer.flip();
+        bufferStart = filePosition;
+        if (bufferedRead <= 0) {
+            return bytesRead == 0 ? -1 : bytesRead;
+        }
+        return bytesRead + copyFromBuffer(dst);
+    }
+
+    @Override
+    public int write(ByteBuffer src) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public long position() throws IOException {
+        ensureOpen();
+        return bufferStart + buffer.position();
+    }
+
+    @Override
+    public SeekableByteChannel position(long newPosition) throws IOException {
+        ensureOpen();
+        if (newPosition >= bufferStart && newPosition <= bufferStart + buffer.limit()) {
+            buffer.position((int) (newPosition - bufferStart));
+        } else {
+            discardBufferAt(newPosition);
+        }
+        return this;
+    }
+
+    @Override
+    public long size() throws IOException {
+        ensureOpen();
+        return fileChannel.size();
+    }
+
+    @Override
+    public SeekableByteChannel truncate(long size) {
+        throw new NonWritableChannelException();
+    }
+
+    @Override
+    public boolean isOpen() {
+        return fileChannel.isOpen();
+    }
+
+    @Override
+    public void close() throws IOException {
+        fileChannel.close();
+    }
+
+    private int copyFromBuffer(ByteBuffer dst) {
+        int length = Math.min(dst.remaining(), buffer.remaining());
+        if (length > 0) {
+            ByteBuffer slice = buffer.duplicate();
+            slice.limit(buffer.position() + length);
+            dst.put(slice);
+            buffer.position(buffer.position() + length);
+        }
+        return length;
+    }
+
+    private void discardBufferAt(long filePosition) {
+        buffer.clear();
+        buffer.limit(0);
+        bufferStart = filePosition;
+    }
+
+    private void ensureOpen() throws ClosedChannelException {
+        if (!isOpen()) {
+            throw new ClosedChannelException();
+        }
+    }
+}
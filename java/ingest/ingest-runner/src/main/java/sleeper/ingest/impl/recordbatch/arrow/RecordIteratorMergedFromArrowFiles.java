@@ -0,0 +1,212 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch.arrow;
+
+import org.apache.arrow.algorithm.sort.VectorValueComparator;
+import org.apache.arrow.memory.BufferAllocator;
+import org.apache.arrow.vector.ValueVector;
+import org.apache.arrow.vector.VectorSchemaRoot;
+import org.apache.arrow.vector.ipc.ArrowFileReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Merges a number of sorted local Arrow files into one sorted {@link CloseableIterator} of {@link Record}s.
+ * <p>
+ * Each file is read in small batches through an {@link ArrowFileReader} over a {@link BufferedFileReadChannel}. The
+ * merge compares the row keys and sort keys directly in the Arrow vectors of each batch, and a {@link Record} is only
+ * created for the row that is returned next. This avoids converting every row of every file into a {@link Record}
+ * before it can be compared.
+ */
+class RecordIteratorMergedFromArrowFiles implements CloseableIterator<Record> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(RecordIteratorMergedFromArrowFiles.class);
+
+    private final List<ArrowFileCursor> cursors;
+    private final PriorityQueue<ArrowFileCursor> queue;
+    private long recordsRead;
+
+    /**
+     * Open all of the local Arrow files and prepare to merge them.
+     *
+     * @param bufferAllocator     the Arrow {@link BufferAllocator} to use as a working buffer during file-reading
+     * @param sleeperSchema       the Sleeper {@link Schema} of the records in the files
+     * @param localArrowFileNames the Arrow files to read, each of which must be sorted
+     * @throws IOException if any of the files could not be opened
+     */
+    RecordIteratorMergedFromArrowFiles(BufferAllocator bufferAllocator,
+                                       Schema sleeperSchema,
+                                       List<String> localArrowFileNames) throws IOException {
+        List<Field> sortOrderFields = Stream.of(sleeperSchema.getRowKeyFields(), sleeperSchema.getSortKeyFields())
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+        this.cursors = new ArrayList<>(localArrowFileNames.size());
+        this.queue = new PriorityQueue<>(Math.max(1, localArrowFileNames.size()), new ArrowFileCursorComparator(sortOrderFields.size()));
+        this.recordsRead = 0L;
+        try {
+            for (String localArrowFileName : localArrowFileNames) {
+                ArrowFileCursor cursor = new ArrowFileCursor(new ArrowFileReader(
+                        BufferedFileReadChannel.open(Paths.get(localArrowFileName)), bufferAllocator), sortOrderFields);
+                cursors.add(cursor);
+                if (cursor.loadNextNonEmptyBatch()) {
+                    queue.add(cursor);
+                }
+            }
+        } catch (IOException | RuntimeException e1) {
+            try {
+                closeCursors();
+            } catch (Exception e2) {
+                e1.addSuppressed(e2);
+            }
+            throw e1;
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !queue.isEmpty();
+    }
+
+    @Override
+    public Record next() throws NoSuchElementException {
+        ArrowFileCursor cursor = queue.poll();
+        if (cursor == null) {
+            throw new NoSuchElementException();
+        }
+        // The record must be created before the cursor moves on, as that may load a new batch into its vectors
+        Record record = ArrowToRecordConversionUtils.convertVectorSchemaRootToRecord(cursor.vectorSchemaRoot, cursor.rowNo);
+        try {
+            if (cursor.advance()) {
+                queue.add(cursor);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        recordsRead++;
+        if (0 == recordsRead % 1_000_000) {
+            LOGGER.info("Read {} records", recordsRead);
+        }
+        return record;
+    }
+
+    @Override
+    public void close() throws IOException {
+        queue.clear();
+        closeCursors();
+    }
+
+    public long getNumberOfRecordsRead() {
+        return recordsRead;
+    }
+
+    private void closeCursors() throws IOException {
+        IOException exception = null;
+        for (ArrowFileCursor cursor : cursors) {
+            try {
+                cursor.reader.close();
+            } catch (IOException e) {
+                if (exception == null) {
+                    exception = e;
+                } else {
+                    exception.addSuppressed(e);
+                }
+            }
+        }
+        cursors.clear();
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+    /**
+     * Tracks the current row in the current batch of one Arrow file. The reader loads each new batch into the same
+     * {@link VectorSchemaRoot}, so the vectors for the sort fields only need to be looked up once.
+     */
+    private static class ArrowFileCursor {
+        private final ArrowFileReader reader;
+        private final VectorSchemaRoot vectorSchemaRoot;
+        private final ValueVector[] sortOrderVectors;
+        private final List<VectorValueComparator<ValueVector>> comparators;
+        private int rowNo;
+
+        ArrowFileCursor(ArrowFileReader reader, List<Field> sortOrderFields) throws IOException {
+            this.reader = reader;
+            this.vectorSchemaRoot = reader.getVectorSchemaRoot();
+            this.sortOrderVectors = new ValueVector[sortOrderFields.size()];
+            this.comparators = new ArrayList<>(sortOrderFields.size());
+            for (int i = 0; i < sortOrderFields.size(); i++) {
+                Field field = sortOrderFields.get(i);
+                sortOrderVectors[i] = vectorSchemaRoot.getVector(field.getName());
+                comparators.add(ArrowIngestSupport.createVectorValueComparator(field.getType(), sortOrderVectors[i]));
+            }
+            this.rowNo = 0;
+        }
+
+        boolean loadNextNonEmptyBatch() throws IOException {
+            while (reader.loadNextBatch()) {
+                if (vectorSchemaRoot.getRowCount() > 0) {
+                    rowNo = 0;
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        boolean advance() throws IOException {
+            rowNo++;
+            return rowNo < vectorSchemaRoot.getRowCount() || loadNextNonEmptyBatch();
+        }
+
+        int compareTo(ArrowFileCursor other, int fieldNo) {
+            VectorValueComparator<ValueVector> comparator = comparators.get(fieldNo);
+            comparator.attachVectors(sortOrderVectors[fieldNo], other.sortOrderVectors[fieldNo]);
+            return comparator.compare(rowNo, other.rowNo);
+        }
+    }
+
+    private static class ArrowFileCursorComparator implements Comparator<ArrowFileCursor> {
+        private final int noOfSortOrderFields;
+
+        ArrowFileCursorComparator(int noOfSortOrderFields) {
+            this.noOfSortOrderFields = noOfSortOrderFields;
+        }
+
+        @Override
+        public int compare(ArrowFileCursor cursor1, ArrowFileCursor cursor2) {
+            for (int fieldNo = 0; fieldNo < noOfSortOrderFields; fieldNo++) {
+                int result = cursor1.compareTo(cursor2, fieldNo);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        }
+    }
+}
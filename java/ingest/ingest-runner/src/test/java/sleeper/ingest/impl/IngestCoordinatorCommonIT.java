@@ -40,6 +40,7 @@ import sleeper.core.schema.type.LongType;
 import sleeper.core.schema.type.StringType;
 import sleeper.ingest.impl.partitionfilewriter.AsyncS3PartitionFileWriterFactory;
 import sleeper.ingest.impl.partitionfilewriter.DirectPartitionFileWriterFactory;
+import sleeper.ingest.impl.partitionfilewriter.StreamingS3PartitionFileWriterFactory;
 import sleeper.ingest.impl.recordbatch.arraylist.ArrayListRecordBatchFactory;
 import sleeper.ingest.impl.recordbatch.arrow.ArrowRecordBatchFactory;
 import sleeper.ingest.testutils.AwsExternalResource;
@@ -119,6 +120,16 @@ public class IngestCoordinatorCommonIT {
                                                 sleeperIteratorClassName,
                                                 workingDir
                                         ))),
+                Arguments.of(Named.of("Streaming write, backed by Arrow",
+                        (QuinFunction<StateStore, Schema, String, String, Path, IngestCoordinator<Record>>)
+                                (stateStore, sleeperSchema, sleeperIteratorClassName, workingDir, temporaryFolder) ->
+                                        (IngestCoordinator<Record>) createIngestCoordinatorStreamingWriteBackedByArrow(
+                                                stateStore,
+                                                sleeperSchema,
+                                                DATA_BUCKET_NAME,
+                                                sleeperIteratorClassName,
+                                                workingDir
+                                        ))),
                 Arguments.of(Named.of("Direct write, backed by ArrayList, no S3",
                         (QuinFunction<StateStore, Schema, String, String, Path, IngestCoordinator<Record>>)
                                 (stateStore, sleeperSchema, sleeperIteratorClassName, workingDir, temporaryFolder) ->
@@ -205,6 +216,39 @@ public class IngestCoordinatorCommonIT {
         }
     }
 
+    private static IngestCoordinator<Record> createIngestCoordinatorStreamingWriteBackedByArrow(
+            StateStore stateStore,
+            Schema sleeperSchema,
+            String s3BucketName,
+            String sleeperIteratorClassName,
+            String ingestLocalWorkingDirectory) {
+        try {
+            ParquetConfiguration parquetConfiguration = parquetConfiguration(
+                    sleeperSchema, AWS_EXTERNAL_RESOURCE.getHadoopConfiguration());
+            return standardIngestCoordinatorBuilder(
+                    stateStore, sleeperSchema,
+                    ArrowRecordBatchFactory.builder()
+                            .schema(sleeperSchema)
+                            .maxNoOfRecordsToWriteToArrowFileAtOnce(128)
+                            .workingBufferAllocatorBytes(16 * 1024 * 1024L)
+                            .minBatchBufferAllocatorBytes(16 * 1024 * 1024L)
+                            .maxBatchBufferAllocatorBytes(16 * 1024 * 1024L)
+                            .maxNoOfBytesToWriteLocally(16 * 1024 * 1024L)
+                            .localWorkingDirectory(ingestLocalWorkingDirectory)
+                            .buildAcceptingRecords(),
+                    StreamingS3PartitionFileWriterFactory.builder()
+                            .parquetConfiguration(parquetConfiguration)
+                            .s3AsyncClient(AWS_EXTERNAL_RESOURCE.getS3AsyncClient())
+                            .partSizeBytes(StreamingS3PartitionFileWriterFactory.MIN_PART_SIZE_BYTES)
+                            .s3BucketName(s3BucketName)
+                            .build())
+                    .iteratorClassName(sleeperIteratorClassName)
+                    .build();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     private static IngestCoordinator<Record> createIngestCoordinatorDirectWriteBackedByArrayList(
             StateStore stateStore,
             Schema sleeperSchema,
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import sleeper.core.iterator.WrappedIterator;
+import sleeper.core.key.Key;
+import sleeper.core.partition.Partition;
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.partition.PartitionsBuilder;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+import sleeper.ingest.impl.partitionfilewriter.PartitionFileWriter;
+import sleeper.statestore.FileInfo;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class IngesterIntoPartitionsTest {
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new LongType()))
+            .build();
+    private final PartitionTree tree = new PartitionsBuilder(schema)
+            .leavesWithSplits(List.of("A", "B", "C", "D"), List.of(2500L, 5000L, 7500L))
+            .anyTreeJoiningAllLeaves()
+            .buildTree();
+    private final Map<String, FakePartitionFileWriter> writersByPartitionId = new ConcurrentHashMap<>();
+    private Long failOnKey;
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void shouldWriteRecordsToEachPartitionInOrder(int threads) throws Exception {
+        // Given
+        List<Record> records = recordsWithKeys(LongStream.range(0, 10000));
+
+        // When
+        List<FileInfo> fileInfos;
+        try (IngesterIntoPartitions ingester = new IngesterIntoPartitions(schema, this::createWriter, threads)) {
+            fileInfos = ingester.initiateIngest(new WrappedIterator<>(records.iterator()), tree).join();
+        }
+
+        // Then
+        assertThat(fileInfos)
+                .extracting(FileInfo::getPartitionId, FileInfo::getNumberOfRecords)
+                .containsExactlyInAnyOrder(
+                        tuple("A", 2500L),
+                        tuple("B", 2500L),
+                        tuple("C", 2500L),
+                        tuple("D", 2500L));
+        assertThat(writersByPartitionId.get("C").records)
+                .isEqualTo(recordsWithKeys(LongStream.range(5000, 7500)));
+        assertThat(writersByPartitionId.values()).allMatch(writer -> writer.closed && !writer.aborted);
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    void shouldAbortAllWritersWhenOneFails(int threads) {
+        // Given
+        List<Record> records = recordsWithKeys(LongStream.range(0, 10000));
+        failOnKey = 6000L;
+
+        // When / Then
+        try (IngesterIntoPartitions ingester = new IngesterIntoPartitions(schema, this::createWriter, threads)) {
+            assertThatThrownBy(() -> ingester.initiateIngest(new WrappedIterator<>(records.iterator()), tree))
+                    .isInstanceOf(IOException.class);
+        }
+        assertThat(writersByPartitionId.get("C").aborted).isTrue();
+        assertThat(writersByPartitionId.get("A").aborted).isFalse();
+    }
+
+    private PartitionFileWriter createWriter(Partition partition) {
+        FakePartitionFileWriter writer = new FakePartitionFileWriter(partition);
+        writersByPartitionId.put(partition.getId(), writer);
+        return writer;
+    }
+
+    private static List<Record> recordsWithKeys(LongStream keys) {
+        return keys.mapToObj(key -> new Record(Map.<String, Object>of("key", key)))
+                .collect(Collectors.toList());
+    }
+
+    private class FakePartitionFileWriter implements PartitionFileWriter {
+        private final Partition partition;
+        private final List<Record> records = new ArrayList<>();
+        private boolean closed;
+        private boolean aborted;
+
+        FakePartitionFileWriter(Partition partition) {
+            this.partition = partition;
+        }
+
+        @Override
+        public void append(Record record) throws IOException {
+            if (record.get("key").equals(failOnKey)) {
+                throw new IOException("Failed on key " + failOnKey);
+            }
+            records.add(record);
+        }
+
+        @Override
+        public CompletableFuture<FileInfo> close() {
+            closed = true;
+            return CompletableFuture.completedFuture(FileInfo.builder()
+                    .rowKeyTypes(schema.getRowKeyTypes())
+                    .filename(partition.getId() + ".parquet")
+                    .partitionId(partition.getId())
+                    .fileStatus(FileInfo.FileStatus.ACTIVE)
+                    .numberOfRecords((long) records.size())
+                    .minRowKey(Key.create(records.get(0).get("key")))
+                    .maxRowKey(Key.create(records.get(records.size() - 1).get("key")))
+                    .build());
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+        }
+    }
+}
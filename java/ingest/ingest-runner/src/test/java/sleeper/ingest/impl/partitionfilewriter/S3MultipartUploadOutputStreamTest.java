@@ -0,0 +1,225 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.partitionfilewriter;
+
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscriber;
+import org.reactivestreams.Subscription;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.AbortMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CompleteMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.CompletedPart;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadRequest;
+import software.amazon.awssdk.services.s3.model.CreateMultipartUploadResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+import software.amazon.awssdk.services.s3.model.UploadPartRequest;
+import software.amazon.awssdk.services.s3.model.UploadPartResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class S3MultipartUploadOutputStreamTest {
+    private static final String BUCKET = "test-bucket";
+    private static final String KEY = "test-key";
+
+    private final InMemoryS3AsyncClient s3 = new InMemoryS3AsyncClient();
+
+    @Test
+    void shouldPutSmallObjectInOneRequest() throws Exception {
+        // Given
+        S3MultipartUploadOutputStream stream = new S3MultipartUploadOutputStream(s3, BUCKET, KEY, new UploadPartBuffers(100, 2));
+
+        // When
+        stream.write(bytes("some data"));
+        stream.close();
+        stream.completion().join();
+
+        // Then
+        assertThat(stream.getPos()).isEqualTo(9);
+        assertThat(s3.objectAsString(KEY)).isEqualTo("some data");
+        assertThat(s3.partsUploaded).isZero();
+    }
+
+    @Test
+    void shouldUploadLargeObjectInParts() throws Exception {
+        // Given
+        UploadPartBuffers partBuffers = new UploadPartBuffers(4, 2);
+        S3MultipartUploadOutputStream stream = new S3MultipartUploadOutputStream(s3, BUCKET, KEY, partBuffers);
+
+        // When
+        stream.write(bytes("abcdefghij"));
+        stream.write('k');
+        stream.close();
+        stream.completion().join();
+
+        // Then
+        assertThat(stream.getPos()).isEqualTo(11);
+        assertThat(s3.objectAsString(KEY)).isEqualTo("abcdefghijk");
+        assertThat(s3.partsUploaded).isEqualTo(3);
+        assertThat(partBuffers.availablePartsInFlight()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldReuseBuffersOfUploadedParts() throws Exception {
+        // Given
+        UploadPartBuffers partBuffers = new UploadPartBuffers(4, 2);
+        S3MultipartUploadOutputStream stream1 = new S3MultipartUploadOutputStream(s3, BUCKET, "key-1", partBuffers);
+        S3MultipartUploadOutputStream stream2 = new S3MultipartUploadOutputStream(s3, BUCKET, "key-2", partBuffers);
+
+        // When
+        stream1.write(bytes("abcdefghijkl"));
+        stream1.close();
+        stream1.completion().join();
+        int freeBuffersAfterFirstUpload = partBuffers.freeBufferCount();
+        stream2.write(bytes("mnopqrstuvwx"));
+        stream2.close();
+        stream2.completion().join();
+
+        // Then
+        assertThat(s3.objectAsString("key-1")).isEqualTo("abcdefghijkl");
+        assertThat(s3.objectAsString("key-2")).isEqualTo("mnopqrstuvwx");
+        assertThat(s3.partsUploaded).isEqualTo(6);
+        assertThat(freeBuffersAfterFirstUpload).isEqualTo(1);
+        assertThat(partBuffers.freeBufferCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldAbortMultipartUpload() throws Exception {
+        // Given
+        S3MultipartUploadOutputStream stream = new S3MultipartUploadOutputStream(s3, BUCKET, KEY, new UploadPartBuffers(4, 2));
+        stream.write(bytes("abcdefghij"));
+
+        // When
+        stream.abort();
+
+        // Then
+        assertThat(s3.abortedUploads).hasSize(1);
+        assertThat(s3.objects).isEmpty();
+        assertThat(stream.completion()).isCompletedExceptionally();
+        assertThatThrownBy(() -> stream.write('k'))
+                .isInstanceOf(IOException.class);
+    }
+
+    private static byte[] bytes(String string) {
+        return string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static class InMemoryS3AsyncClient implements S3AsyncClient {
+        private final Map<String, byte[]> objects = new ConcurrentHashMap<>();
+        private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+        private final List<String> abortedUploads = new ArrayList<>();
+        private int partsUploaded;
+
+        String objectAsString(String key) {
+            return new String(objects.get(key), StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public CompletableFuture<PutObjectResponse> putObject(PutObjectRequest request, AsyncRequestBody body) {
+            return readBody(body).thenApply(bytes -> {
+                objects.put(request.key(), bytes);
+                return PutObjectResponse.builder().build();
+            });
+        }
+
+        @Override
+        public CompletableFuture<CreateMultipartUploadResponse> createMultipartUpload(CreateMultipartUploadRequest request) {
+            String uploadId = "upload-" + uploads.size();
+            uploads.put(uploadId, new TreeMap<>());
+            return CompletableFuture.completedFuture(CreateMultipartUploadResponse.builder().uploadId(uploadId).build());
+        }
+
+        @Override
+        public CompletableFuture<UploadPartResponse> uploadPart(UploadPartRequest request, AsyncRequestBody body) {
+            return readBody(body).thenApply(bytes -> {
+                uploads.get(request.uploadId()).put(request.partNumber(), bytes);
+                partsUploaded++;
+                return UploadPartResponse.builder().eTag("etag-" + request.partNumber()).build();
+            });
+        }
+
+        @Override
+        public CompletableFuture<CompleteMultipartUploadResponse> completeMultipartUpload(CompleteMultipartUploadRequest request) {
+            Map<Integer, byte[]> parts = uploads.remove(request.uploadId());
+            ByteArrayOutputStream object = new ByteArrayOutputStream();
+            for (CompletedPart part : request.multipartUpload().parts()) {
+                object.writeBytes(parts.get(part.partNumber()));
+            }
+            objects.put(request.key(), object.toByteArray());
+            return CompletableFuture.completedFuture(CompleteMultipartUploadResponse.builder().build());
+        }
+
+        @Override
+        public CompletableFuture<AbortMultipartUploadResponse> abortMultipartUpload(AbortMultipartUploadRequest request) {
+            uploads.remove(request.uploadId());
+            abortedUploads.add(request.uploadId());
+            return CompletableFuture.completedFuture(AbortMultipartUploadResponse.builder().build());
+        }
+
+        @Override
+        public String serviceName() {
+            return "s3";
+        }
+
+        @Override
+        public void close() {
+        }
+
+        private static CompletableFuture<byte[]> readBody(AsyncRequestBody body) {
+            CompletableFuture<byte[]> future = new CompletableFuture<>();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            body.subscribe(new Subscriber<>() {
+                @Override
+                public void onSubscribe(Subscription subscription) {
+                    subscription.request(Long.MAX_VALUE);
+                }
+
+                @Override
+                public void onNext(ByteBuffer buffer) {
+                    byte[] bytes = new byte[buffer.remaining()];
+                    buffer.get(bytes);
+                    output.writeBytes(bytes);
+                }
+
+                @Override
+                public void onError(Throwable throwable) {
+                    future.completeExceptionally(throwable);
+                }
+
+                @Override
+                public void onComplete() {
+                    future.complete(output.toByteArray());
+                }
+            });
+            return future;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch.arraylist;
+
+import org.apache.hadoop.conf.Configuration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.iterator.impl.AggregatingIterator;
+import sleeper.core.record.Record;
+import sleeper.core.record.RecordComparator;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+import sleeper.ingest.impl.ParquetConfiguration;
+import sleeper.ingest.impl.recordbatch.RecordBatch;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.configuration.properties.InstancePropertiesTestHelper.createTestInstanceProperties;
+import static sleeper.configuration.properties.table.TablePropertiesTestHelper.createTestTableProperties;
+
+class ArrayListRecordBatchTest {
+    @TempDir
+    public Path localDir;
+
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new LongType()))
+            .sortKeyFields(new Field("sort", new StringType()))
+            .valueFields(new Field("value", new LongType()))
+            .build();
+    private final InstanceProperties instanceProperties = createTestInstanceProperties();
+    private final TableProperties tableProperties = createTestTableProperties(instanceProperties, schema);
+
+    @Test
+    void shouldCombineRecordsWithSameKeyBeforeWritingLocalFile() throws Exception {
+        // Given
+        List<Record> records = generateRecords(100);
+        AggregatingIterator aggregatingIterator = new AggregatingIterator();
+        aggregatingIterator.init("value=sum", schema);
+
+        // When
+        List<Record> found = appendAndRead(batchFactoryBuilder()
+                .maxNoOfRecordsInMemory(300)
+                .preAggregationIterator(aggregatingIterator), records, 3);
+
+        // Then
+        List<Record> expected = records.stream()
+                .map(record -> {
+                    Record aggregated = new Record(record);
+                    aggregated.put("value", 3 * (long) record.get("value"));
+                    return aggregated;
+                })
+                .sorted(new RecordComparator(schema))
+                .collect(Collectors.toList());
+        assertThat(found).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void shouldOnlyCombineRecordsWithinEachLocalFile() throws Exception {
+        // Given
+        List<Record> records = generateRecords(100);
+        AggregatingIterator aggregatingIterator = new AggregatingIterator();
+        aggregatingIterator.init("value=sum", schema);
+
+        // When
+        List<Record> found = appendAndRead(batchFactoryBuilder()
+                .maxNoOfRecordsInMemory(200)
+                .preAggregationIterator(aggregatingIterator), records, 4);
+
+        // Then
+        assertThat(found).hasSize(200)
+                .isSortedAccordingTo(new RecordComparator(schema));
+    }
+
+    @Test
+    void shouldWriteEveryRecordWithoutPreAggregation() throws Exception {
+        // Given
+        List<Record> records = generateRecords(100);
+
+        // When
+        List<Record> found = appendAndRead(batchFactoryBuilder()
+                .maxNoOfRecordsInMemory(300), records, 3);
+
+        // Then
+        assertThat(found).hasSize(300)
+                .isSortedAccordingTo(new RecordComparator(schema));
+    }
+
+    private List<Record> appendAndRead(
+            ArrayListRecordBatchFactory.Builder<?> factoryBuilder, List<Record> records, int timesToAppend) throws Exception {
+        List<Record> found = new ArrayList<>();
+        try (RecordBatch<Record> batch = factoryBuilder.buildAcceptingRecords().createRecordBatch()) {
+            for (int i = 0; i < timesToAppend; i++) {
+                for (Record record : records) {
+                    batch.append(record);
+                }
+            }
+            try (CloseableIterator<Record> iterator = batch.createOrderedRecordIterator()) {
+                iterator.forEachRemaining(found::add);
+            }
+        }
+        return found;
+    }
+
+    private ArrayListRecordBatchFactory.Builder<?> batchFactoryBuilder() {
+        return ArrayListRecordBatchFactory.builder()
+                .parquetConfiguration(ParquetConfiguration.from(tableProperties, new Configuration()))
+                .localWorkingDirectory(localDir.toString())
+                .maxNoOfRecordsInLocalStore(1000);
+    }
+
+    private static List<Record> generateRecords(int numRecords) {
+        return Stream.iterate(0, i -> i + 1).limit(numRecords)
+                .map(i -> {
+                    Record record = new Record();
+                    record.put("key", (long) (i % 10));
+                    record.put("sort", "sort-" + (i / 10));
+                    record.put("value", (long) i);
+                    return record;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch.arrow;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.iterator.impl.AggregatingIterator;
+import sleeper.core.record.Record;
+import sleeper.core.record.RecordComparator;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+import sleeper.core.schema.type.StringType;
+import sleeper.ingest.impl.recordbatch.RecordBatch;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ArrowRecordBatchTest {
+    @TempDir
+    public Path localDir;
+
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new LongType()))
+            .sortKeyFields(new Field("sort", new StringType()))
+            .valueFields(new Field("value", new LongType()))
+            .build();
+
+    @Test
+    void shouldMergeRecordsSpilledToSeveralLocalFilesInSortOrder() throws Exception {
+        // Given
+        List<Record> records = generateRecords(10000);
+        List<Record> shuffled = new ArrayList<>(records);
+        Collections.shuffle(shuffled, new Random(0));
+        List<Record> expected = new ArrayList<>(records);
+        expected.sort(new RecordComparator(schema));
+
+        // When
+        List<Record> found = new ArrayList<>();
+        try (ArrowRecordBatchFactory<Record> factory = smallBatchFactory();
+             RecordBatch<Record> batch = factory.createRecordBatch()) {
+            for (Record record : shuffled) {
+                batch.append(record);
+            }
+            try (CloseableIterator<Record> iterator = batch.createOrderedRecordIterator()) {
+                iterator.forEachRemaining(found::add);
+            }
+
+            // Then
+            try (Stream<Path> files = Files.list(localDir)) {
+                assertThat(files.count()).isGreaterThan(1);
+            }
+        }
+        assertThat(found).containsExactlyElementsOf(expected);
+    }
+
+    @Test
+    void shouldReturnNoRecordsWhenNothingWasAppended() throws Exception {
+        // When
+        try (ArrowRecordBatchFactory<Record> factory = smallBatchFactory();
+             RecordBatch<Record> batch = factory.createRecordBatch();
+             CloseableIterator<Record> iterator = batch.createOrderedRecordIterator()) {
+
+            // Then
+            assertThat(iterator.hasNext()).isFalse();
+        }
+    }
+
+    @Test
+    void shouldCombineRecordsWithSameKeyBeforeWritingLocalFile() throws Exception {
+        // Given
+        List<Record> records = generateRecords(100);
+        AggregatingIterator aggregatingIterator = new AggregatingIterator();
+        aggregatingIterator.init("value=sum", schema);
+
+        // When
+        List<Record> found = new ArrayList<>();
+        try (ArrowRecordBatchFactory<Record> factory = smallBatchFactoryBuilder()
+                .preAggregationIterator(aggregatingIterator)
+                .buildAcceptingRecords();
+             RecordBatch<Record> batch = factory.createRecordBatch()) {
+            for (int i = 0; i < 3; i++) {
+                for (Record record : records) {
+                    batch.append(record);
+                }
+            }
+            try (CloseableIterator<Record> iterator = batch.createOrderedRecordIterator()) {
+                iterator.forEachRemaining(found::add);
+            }
+        }
+
+        // Then
+        List<Record> expected = records.stream()
+                .map(record -> {
+                    Record aggregated = new Record(record);
+                    aggregated.put("value", 3 * (long) record.get("value"));
+                    return aggregated;
+                })
+                .sorted(new RecordComparator(schema))
+                .collect(Collectors.toList());
+        assertThat(found).containsExactlyElementsOf(expected);
+    }
+
+    private ArrowRecordBatchFactory<Record> smallBatchFactory() {
+        return smallBatchFactoryBuilder().buildAcceptingRecords();
+    }
+
+    private ArrowRecordBatchFactory.Builder<?> smallBatchFactoryBuilder() {
+        return ArrowRecordBatchFactory.builder()
+                .schema(schema)
+                .localWorkingDirectory(localDir.toString())
+                .workingBufferAllocatorBytes(16 * 1024 * 1024L)
+                .batchBufferAllocatorBytes(64 * 1024L)
+                .maxNoOfBytesToWriteLocally(512 * 1024 * 1024L)
+                .maxNoOfRecordsToWriteToArrowFileAtOnce(128);
+    }
+
+    private static List<Record> generateRecords(int numRecords) {
+        return Stream.iterate(0, i -> i + 1).limit(numRecords)
+                .map(i -> {
+                    Record record = new Record();
+                    record.put("key", (long) (i % 1000));
+                    record.put("sort", "sort-" + (i / 1000));
+                    record.put("value", (long) i);
+                    return record;
+                })
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.ingest.impl.recordbatch.arrow;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BufferedFileReadChannelTest {
+    @TempDir
+    public Path localDir;
+
+    private final byte[] contents = {0, 1, 2, 3, 4, 5, 6, 7, 8, 9};
+
+    @Test
+    void shouldReadWholeFileThroughSmallerBuffer() throws Exception {
+        try (BufferedFileReadChannel channel = openWithBufferSize(4)) {
+            // When
+            ByteBuffer first = read(channel, 3);
+            ByteBuffer second = read(channel, 3);
+            ByteBuffer third = read(channel, 3);
+            ByteBuffer fourth = read(channel, 3);
+
+            // Then
+            assertThat(bytes(first)).containsExactly(0, 1, 2);
+            assertThat(bytes(second)).containsExactly(3, 4, 5);
+            assertThat(bytes(third)).containsExactly(6, 7, 8);
+            assertThat(bytes(fourth)).containsExactly(9);
+            assertThat(channel.position()).isEqualTo(10);
+            assertThat(channel.read(ByteBuffer.allocate(1))).isEqualTo(-1);
+        }
+    }
+
+    @Test
+    void shouldReadDirectlyWhenReadIsLargerThanBuffer() throws Exception {
+        try (BufferedFileReadChannel channel = openWithBufferSize(4)) {
+            // When
+            ByteBuffer first = read(channel, 1);
+            ByteBuffer rest = read(channel, 8);
+
+            // Then
+            assertThat(bytes(first)).containsExactly(0);
+            assertThat(bytes(rest)).containsExactly(1, 2, 3, 4, 5, 6, 7, 8);
+            assertThat(channel.position()).isEqualTo(9);
+            assertThat(bytes(read(channel, 2))).containsExactly(9);
+        }
+    }
+
+    @Test
+    void shouldSeekWithinAndOutsideBuffer() throws Exception {
+        try (BufferedFileReadChannel channel = openWithBufferSize(4)) {
+            // When
+            read(channel, 1);
+            channel.position(2);
+            ByteBuffer withinBuffer = read(channel, 2);
+            channel.position(8);
+            ByteBuffer afterBuffer = read(channel, 2);
+            channel.position(0);
+            ByteBuffer beforeBuffer = read(channel, 2);
+
+            // Then
+            assertThat(bytes(withinBuffer)).containsExactly(2, 3);
+            assertThat(bytes(afterBuffer)).containsExactly(8, 9);
+            assertThat(bytes(beforeBuffer)).containsExactly(0, 1);
+            assertThat(channel.size()).isEqualTo(10);
+        }
+    }
+
+    @Test
+    void shouldCloseUnderlyingFile() throws Exception {
+        // Given
+        FileChannel fileChannel = FileChannel.open(writeFile(), StandardOpenOption.READ);
+        BufferedFileReadChannel channel = new BufferedFileReadChannel(fileChannel, 4);
+
+        // When
+        channel.close();
+
+        // Then
+        assertThat(fileChannel.isOpen()).isFalse();
+        assertThat(channel.isOpen()).isFalse();
+        assertThatThrownBy(() -> channel.read(ByteBuffer.allocate(1)))
+                .isInstanceOf(ClosedChannelException.class);
+    }
+
+    private BufferedFileReadChannel openWithBufferSize(int bufferSize) throws IOException {
+        return new BufferedFileReadChannel(FileChannel.open(writeFile(), StandardOpenOption.READ), bufferSize);
+    }
+
+    private Path writeFile() throws IOException {
+        return Files.write(localDir.resolve("file.arrow"), contents);
+    }
+
+    private static ByteBuffer read(BufferedFileReadChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        channel.read(buffer);
+        buffer.flip();
+        return buffer;
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+    }
+}
@@ -33,15 +33,13 @@ import software.amazon.lambda.powertools.metrics.MetricsUtils;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TablePropertiesProvider;
 import sleeper.core.partition.Partition;
-import sleeper.statestore.FileInfo;
+import sleeper.statestore.FileStatistics;
 import sleeper.statestore.StateStore;
 import sleeper.statestore.StateStoreException;
 import sleeper.statestore.StateStoreProvider;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.LongSummaryStatistics;
-import java.util.stream.Collectors;
 
 import static sleeper.configuration.properties.instance.CommonProperty.ID;
 import static sleeper.configuration.properties.instance.CommonProperty.METRICS_NAMESPACE;
@@ -92,20 +90,9 @@ public class TableMetricsLambda implements RequestHandler<String, Void> {
         StateStoreProvider stateStoreProvider = new StateStoreProvider(dynamoClient, instanceProperties, new Configuration());
         StateStore stateStore = stateStoreProvider.getStateStore(tableName, tablePropertiesProvider);
 
-        LOGGER.info("Querying state store for table {} for active files", tableName);
-        List<FileInfo> activeFiles = stateStore.getActiveFiles();
-        LOGGER.info("Found {} active files for table {}", activeFiles.size(), tableName);
-        int fileCount = activeFiles.size();
-        long recordCount = activeFiles.stream().mapToLong(activeFile -> activeFile.getNumberOfRecords()).sum();
-        LOGGER.info("Total number of records in table {} is {}", tableName, recordCount);
-
-        LongSummaryStatistics filesPerPartitionStats = activeFiles.stream().collect(
-                Collectors.groupingBy(
-                        activeFile -> activeFile.getPartitionId(),
-                        Collectors.counting()
-                )
-        ).values().stream().mapToLong(value -> value).summaryStatistics();
-        LOGGER.info("{}", filesPerPartitionStats);
+        LOGGER.info("Querying state store for table {} for active file statistics", tableName);
+        FileStatistics fileStatistics = stateStore.getActiveFileStatistics();
+        LOGGER.info("Found active file statistics for table {}: {}", tableName, fileStatistics);
 
         LOGGER.info("Querying state store for table {} for partitions", tableName);
         List<Partition> partitions = stateStore.getAllPartitions();
@@ -122,14 +109,14 @@ public class TableMetricsLambda implements RequestHandler<String, Void> {
                 "tableName", tableName
         ));
 
-        metricsLogger.putMetric("ActiveFileCount", fileCount, Unit.COUNT);
-        metricsLogger.putMetric("RecordCount", recordCount, Unit.COUNT);
+        metricsLogger.putMetric("ActiveFileCount", fileStatistics.getFileCount(), Unit.COUNT);
+        metricsLogger.putMetric("RecordCount", fileStatistics.getRecordCount(), Unit.COUNT);
         metricsLogger.putMetric("PartitionCount", partitionCount, Unit.COUNT);
         metricsLogger.putMetric("LeafPartitionCount", leafPartitionCount, Unit.COUNT);
-        // TODO: Work out how to publish min and max active files per partition too
-        // This is possible via the CloudMetrics API by publishing a statistic set (https://docs.aws.amazon.com/AmazonCloudWatch/latest/monitoring/publishingMetrics.html#publishingDataPoints1)
-        // Is it possible when publishing via the embedded metric format though?
-        metricsLogger.putMetric("AverageActiveFilesPerPartition", filesPerPartitionStats.getAverage(), Unit.COUNT);
+        metricsLogger.putMetric("AverageActiveFilesPerPartition", fileStatistics.getAverageFilesPerPartition(), Unit.COUNT);
+        metricsLogger.putMetric("MinActiveFilesPerPartition", fileStatistics.getMinFilesInPartition(), Unit.COUNT);
+        metricsLogger.putMetric("MaxActiveFilesPerPartition", fileStatistics.getMaxFilesInPartition(), Unit.COUNT);
+        metricsLogger.putMetric("PartitionRecordSkew", fileStatistics.getPartitionRecordSkew(), Unit.NONE);
         metricsLogger.flush();
     }
 
@@ -20,6 +20,7 @@ import org.apache.hadoop.fs.Path;
 import org.apache.parquet.hadoop.ParquetWriter;
 import org.apache.parquet.hadoop.api.WriteSupport;
 import org.apache.parquet.hadoop.metadata.CompressionCodecName;
+import org.apache.parquet.io.OutputFile;
 import org.apache.parquet.schema.MessageType;
 
 import sleeper.configuration.properties.instance.InstanceProperties;
@@ -60,16 +61,41 @@ public class ParquetRecordWriterFactory {
                 .withConf(conf).build();
     }
 
+    public static ParquetWriter<Record> createParquetRecordWriter(OutputFile outputFile, TableProperties tableProperties, Configuration conf) throws IOException {
+        return parquetRecordWriterBuilder(outputFile, tableProperties)
+                .withConf(conf).build();
+    }
+
     public static Builder parquetRecordWriterBuilder(Path path, TableProperties tableProperties) {
-        return new Builder(path, tableProperties.getSchema())
-                .withCompressionCodec(tableProperties.get(COMPRESSION_CODEC))
+        return withTableProperties(new Builder(path, tableProperties.getSchema()), tableProperties);
+    }
+
+    public static Builder parquetRecordWriterBuilder(OutputFile outputFile, TableProperties tableProperties) {
+        return withTableProperties(new Builder(outputFile, tableProperties.getSchema()), tableProperties);
+    }
+
+    /**
+     * Applies the Parquet settings from a Sleeper table to a Parquet writer builder. This is public so that writers of
+     * other objects than {@link Record}s can write files in the same format.
+     *
+     * @param  <T>             the type of object the writer writes
+     * @param  <B>             the type of the builder
+     * @param  builder         the builder
+     * @param  tableProperties the table properties
+     * @return                 the builder
+     */
+    public static <T, B extends ParquetWriter.Builder<T, B>> B withTableProperties(B builder, TableProperties tableProperties) {
+        Schema schema = tableProperties.getSchema();
+        builder = builder
+                .withCompressionCodec(CompressionCodecName.fromConf(tableProperties.get(COMPRESSION_CODEC).toUpperCase(Locale.ROOT)))
                 .withRowGroupSize(tableProperties.getLong(ROW_GROUP_SIZE))
                 .withPageSize(tableProperties.getInt(PAGE_SIZE))
-                .withDictionaryEncodingForRowKeyFields(tableProperties.getBoolean(DICTIONARY_ENCODING_FOR_ROW_KEY_FIELDS))
-                .withDictionaryEncodingForSortKeyFields(tableProperties.getBoolean(DICTIONARY_ENCODING_FOR_SORT_KEY_FIELDS))
-                .withDictionaryEncodingForValueFields(tableProperties.getBoolean(DICTIONARY_ENCODING_FOR_VALUE_FIELDS))
                 .withColumnIndexTruncateLength(tableProperties.getInt(COLUMN_INDEX_TRUNCATE_LENGTH))
                 .withStatisticsTruncateLength(tableProperties.getInt(STATISTICS_TRUNCATE_LENGTH));
+        setDictionaryEncoding(builder, schema.getRowKeyFieldNames(), tableProperties.getBoolean(DICTIONARY_ENCODING_FOR_ROW_KEY_FIELDS));
+        setDictionaryEncoding(builder, schema.getSortKeyFieldNames(), tableProperties.getBoolean(DICTIONARY_ENCODING_FOR_SORT_KEY_FIELDS));
+        setDictionaryEncoding(builder, schema.getValueFieldNames(), tableProperties.getBoolean(DICTIONARY_ENCODING_FOR_VALUE_FIELDS));
+        return builder;
     }
 
     public static class Builder extends ParquetWriter.Builder<Record, Builder> {
@@ -82,6 +108,12 @@ public class ParquetRecordWriterFactory {
             this.schema = schema;
         }
 
+        private Builder(OutputFile outputFile, Schema schema) {
+            super(outputFile);
+            this.messageType = SchemaConverter.getSchema(schema);
+            this.schema = schema;
+        }
+
         @Override
         protected WriteSupport<Record> getWriteSupport(Configuration conf) {
             return new RecordWriteSupport(messageType, schema);
@@ -112,9 +144,10 @@ public class ParquetRecordWriterFactory {
         }
     }
 
-    private static void setDictionaryEncoding(Builder builder, List<String> fieldNames, boolean dictionaryEncodingEnabled) {
+    private static <T, B extends ParquetWriter.Builder<T, B>> void setDictionaryEncoding(
+            B builder, List<String> fieldNames, boolean dictionaryEncodingEnabled) {
         for (String fieldName : fieldNames) {
-            builder = builder.withDictionaryEncoding(fieldName, dictionaryEncodingEnabled);
+            builder.withDictionaryEncoding(fieldName, dictionaryEncodingEnabled);
         }
     }
 }
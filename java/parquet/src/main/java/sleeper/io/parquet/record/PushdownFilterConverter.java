@@ -0,0 +1,94 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.parquet.record;
+
+import org.apache.parquet.filter2.predicate.FilterApi;
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.filter2.predicate.Operators.BinaryColumn;
+import org.apache.parquet.io.api.Binary;
+
+import sleeper.core.iterator.PushdownFilter;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.apache.parquet.filter2.predicate.FilterApi.binaryColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.eq;
+import static org.apache.parquet.filter2.predicate.FilterApi.gt;
+import static org.apache.parquet.filter2.predicate.FilterApi.in;
+import static org.apache.parquet.filter2.predicate.FilterApi.longColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.or;
+
+/**
+ * Converts a {@link PushdownFilter} declared by an iterator into a Parquet {@link FilterPredicate}, so that row groups
+ * and pages can be skipped using the statistics in the file.
+ */
+public class PushdownFilterConverter {
+
+    private PushdownFilterConverter() {
+    }
+
+    public static FilterPredicate toFilterPredicate(PushdownFilter filter) {
+        if (filter instanceof PushdownFilter.LongGreaterThan) {
+            PushdownFilter.LongGreaterThan greaterThan = (PushdownFilter.LongGreaterThan) filter;
+            return gt(longColumn(greaterThan.getFieldName()), greaterThan.getValue());
+        }
+        if (filter instanceof PushdownFilter.StringInOrEmpty) {
+            return toFilterPredicate((PushdownFilter.StringInOrEmpty) filter);
+        }
+        if (filter instanceof PushdownFilter.And) {
+            FilterPredicate predicate = null;
+            for (PushdownFilter child : ((PushdownFilter.And) filter).getFilters()) {
+                predicate = bothOf(predicate, toFilterPredicate(child));
+            }
+            return predicate;
+        }
+        throw new IllegalArgumentException("Unknown filter " + filter);
+    }
+
+    /**
+     * Combines a predicate with a filter declared by an iterator, where either may be absent.
+     *
+     * @param  predicate the predicate, or null if there is none
+     * @param  filter    the filter, or null if there is none
+     * @return           a predicate requiring both, or null if neither is set
+     */
+    public static FilterPredicate and(FilterPredicate predicate, PushdownFilter filter) {
+        if (null == filter) {
+            return predicate;
+        }
+        return bothOf(predicate, toFilterPredicate(filter));
+    }
+
+    private static FilterPredicate bothOf(FilterPredicate lhs, FilterPredicate rhs) {
+        if (null == lhs) {
+            return rhs;
+        }
+        return FilterApi.and(lhs, rhs);
+    }
+
+    private static FilterPredicate toFilterPredicate(PushdownFilter.StringInOrEmpty filter) {
+        BinaryColumn column = binaryColumn(filter.getFieldName());
+        FilterPredicate predicate = or(eq(column, null), eq(column, Binary.fromString("")));
+        if (filter.getValues().isEmpty()) {
+            return predicate;
+        }
+        Set<Binary> values = filter.getValues().stream()
+                .map(Binary::fromString)
+                .collect(Collectors.toSet());
+        return or(predicate, in(column, values));
+    }
+}
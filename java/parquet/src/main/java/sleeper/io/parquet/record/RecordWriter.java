@@ -50,30 +50,41 @@ public class RecordWriter {
         int count = 0;
         for (Field entry : schema.getAllFields()) {
             String name = entry.getName();
-            Type type = entry.getType();
             recordConsumer.startField(name, count);
-            if (type instanceof IntType) {
-                recordConsumer.addInteger((int) record.get(name));
-            } else if (type instanceof LongType) {
-                recordConsumer.addLong((long) record.get(name));
-            } else if (type instanceof StringType) {
-                recordConsumer.addBinary(Binary.fromString((String) record.get(name)));
-            } else if (type instanceof ByteArrayType) {
-                recordConsumer.addBinary(Binary.fromConstantByteArray((byte[]) record.get(name)));
-            } else if (type instanceof MapType) {
-                addMap(recordConsumer, (MapType) type, (Map<?, ?>) record.get(name));
-            } else if (type instanceof ListType) {
-                addList(recordConsumer, (ListType) type, (List<?>) record.get(name));
-            } else {
-                throw new RuntimeException("Unknown type " + type);
-            }
+            writeValue(recordConsumer, entry.getType(), record.get(name));
             recordConsumer.endField(name, count);
             count++;
         }
         recordConsumer.endMessage();
     }
 
-    private void addList(RecordConsumer recordConsumer, ListType listType, List<?> list) {
+    /**
+     * Writes the value of a field to a {@link RecordConsumer}. This must be called between starting and ending the
+     * field.
+     *
+     * @param recordConsumer the consumer to write to
+     * @param type           the type of the field
+     * @param value          the value of the field
+     */
+    public static void writeValue(RecordConsumer recordConsumer, Type type, Object value) {
+        if (type instanceof IntType) {
+            recordConsumer.addInteger((int) value);
+        } else if (type instanceof LongType) {
+            recordConsumer.addLong((long) value);
+        } else if (type instanceof StringType) {
+            recordConsumer.addBinary(Binary.fromString((String) value));
+        } else if (type instanceof ByteArrayType) {
+            recordConsumer.addBinary(Binary.fromConstantByteArray((byte[]) value));
+        } else if (type instanceof MapType) {
+            addMap(recordConsumer, (MapType) type, (Map<?, ?>) value);
+        } else if (type instanceof ListType) {
+            addList(recordConsumer, (ListType) type, (List<?>) value);
+        } else {
+            throw new RuntimeException("Unknown type " + type);
+        }
+    }
+
+    private static void addList(RecordConsumer recordConsumer, ListType listType, List<?> list) {
         PrimitiveType elementType = listType.getElementType();
         recordConsumer.startGroup();
         if (!list.isEmpty()) {
@@ -106,7 +117,7 @@ public class RecordWriter {
         recordConsumer.endGroup();
     }
 
-    private void addMap(RecordConsumer recordConsumer, MapType mapType, Map<?, ?> map) {
+    private static void addMap(RecordConsumer recordConsumer, MapType mapType, Map<?, ?> map) {
         PrimitiveType keyType = mapType.getKeyType();
         PrimitiveType valueType = mapType.getValueType();
         recordConsumer.startGroup();
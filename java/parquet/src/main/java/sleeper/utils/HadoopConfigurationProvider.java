@@ -22,6 +22,8 @@ import sleeper.configuration.properties.table.TableProperties;
 
 import static sleeper.configuration.properties.instance.CommonProperty.MAXIMUM_CONNECTIONS_TO_S3;
 import static sleeper.configuration.properties.instance.QueryProperty.MAXIMUM_CONNECTIONS_TO_S3_FOR_QUERIES;
+import static sleeper.configuration.properties.instance.QueryProperty.QUERY_RESULTS_UPLOAD_PARALLEL_PARTS;
+import static sleeper.configuration.properties.instance.QueryProperty.QUERY_RESULTS_UPLOAD_PART_SIZE;
 import static sleeper.configuration.properties.table.TableProperty.S3A_READAHEAD_RANGE;
 
 public class HadoopConfigurationProvider {
@@ -39,6 +41,8 @@ public class HadoopConfigurationProvider {
         Configuration conf = new Configuration();
         conf.set("fs.s3a.connection.maximum", instanceProperties.get(MAXIMUM_CONNECTIONS_TO_S3_FOR_QUERIES));
         conf.set("fs.s3a.readahead.range", tableProperties.get(S3A_READAHEAD_RANGE));
+        conf.set("fs.s3a.multipart.size", instanceProperties.get(QUERY_RESULTS_UPLOAD_PART_SIZE));
+        conf.set("fs.s3a.fast.upload.active.blocks", instanceProperties.get(QUERY_RESULTS_UPLOAD_PARALLEL_PARTS));
         return conf;
     }
 
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.io.record;
+
+import org.apache.parquet.filter2.predicate.FilterPredicate;
+import org.apache.parquet.io.api.Binary;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.iterator.PushdownFilter;
+import sleeper.io.parquet.record.PushdownFilterConverter;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.parquet.filter2.predicate.FilterApi.and;
+import static org.apache.parquet.filter2.predicate.FilterApi.binaryColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.eq;
+import static org.apache.parquet.filter2.predicate.FilterApi.gt;
+import static org.apache.parquet.filter2.predicate.FilterApi.gtEq;
+import static org.apache.parquet.filter2.predicate.FilterApi.in;
+import static org.apache.parquet.filter2.predicate.FilterApi.longColumn;
+import static org.apache.parquet.filter2.predicate.FilterApi.or;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PushdownFilterConverterTest {
+
+    @Test
+    public void shouldConvertLongGreaterThan() {
+        assertThat(PushdownFilterConverter.toFilterPredicate(PushdownFilter.longGreaterThan("timestamp", 123L)))
+                .isEqualTo(gt(longColumn("timestamp"), 123L));
+    }
+
+    @Test
+    public void shouldConvertStringInOrEmpty() {
+        assertThat(PushdownFilterConverter.toFilterPredicate(PushdownFilter.stringInOrEmpty("visibility", Set.of("public"))))
+                .isEqualTo(or(
+                        or(eq(binaryColumn("visibility"), null), eq(binaryColumn("visibility"), Binary.fromString(""))),
+                        in(binaryColumn("visibility"), Set.of(Binary.fromString("public")))));
+    }
+
+    @Test
+    public void shouldConvertStringInOrEmptyWithNoValues() {
+        assertThat(PushdownFilterConverter.toFilterPredicate(PushdownFilter.stringInOrEmpty("visibility", Set.of())))
+                .isEqualTo(or(eq(binaryColumn("visibility"), null), eq(binaryColumn("visibility"), Binary.fromString(""))));
+    }
+
+    @Test
+    public void shouldConvertAnd() {
+        PushdownFilter filter = PushdownFilter.and(List.of(
+                PushdownFilter.longGreaterThan("timestamp", 123L),
+                PushdownFilter.longGreaterThan("other", 456L)));
+
+        assertThat(PushdownFilterConverter.toFilterPredicate(filter))
+                .isEqualTo(and(gt(longColumn("timestamp"), 123L), gt(longColumn("other"), 456L)));
+    }
+
+    @Test
+    public void shouldCombineWithExistingPredicate() {
+        // Given
+        FilterPredicate rowKeyPredicate = gtEq(longColumn("key"), 10L);
+
+        // When
+        FilterPredicate predicate = PushdownFilterConverter.and(rowKeyPredicate, PushdownFilter.longGreaterThan("timestamp", 123L));
+
+        // Then
+        assertThat(predicate).isEqualTo(and(rowKeyPredicate, gt(longColumn("timestamp"), 123L)));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.query.cache;
+
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.range.Region;
+import sleeper.query.model.LeafPartitionQuery;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CLASS_NAME;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CONFIG;
+
+/**
+ * Identifies the results of a {@link LeafPartitionQuery}. Two queries with equal keys will return the same records.
+ * The files the query reads are part of the key, so once those files are compacted or new data is ingested into the
+ * partition, the key changes and any cached results are no longer used. The time is not part of the key, so queries
+ * applying an iterator whose output depends on the time, e.g. an age off, are not cached at all.
+ */
+public class LeafPartitionQueryCacheKey {
+    private final String tableName;
+    private final Set<Region> regions;
+    private final Region partitionRegion;
+    private final List<String> files;
+    private final List<String> requestedValueFields;
+    private final String queryTimeIteratorClassName;
+    private final String queryTimeIteratorConfig;
+    private final String compactionIteratorClassName;
+    private final String compactionIteratorConfig;
+
+    private LeafPartitionQueryCacheKey(LeafPartitionQuery query, TableProperties tableProperties) {
+        // The order of the regions and files does not affect the results
+        tableName = query.getTableName();
+        regions = Collections.unmodifiableSet(new HashSet<>(query.getRegions()));
+        partitionRegion = query.getPartitionRegion();
+        List<String> sortedFiles = new ArrayList<>(query.getFiles());
+        Collections.sort(sortedFiles);
+        files = Collections.unmodifiableList(sortedFiles);
+        requestedValueFields = query.getRequestedValueFields();
+        queryTimeIteratorClassName = query.getQueryTimeIteratorClassName();
+        queryTimeIteratorConfig = query.getQueryTimeIteratorConfig();
+        compactionIteratorClassName = tableProperties.get(ITERATOR_CLASS_NAME);
+        compactionIteratorConfig = tableProperties.get(ITERATOR_CONFIG);
+    }
+
+    public static LeafPartitionQueryCacheKey from(LeafPartitionQuery query, TableProperties tableProperties) {
+        return new LeafPartitionQueryCacheKey(query, tableProperties);
+    }
+
+    public String getTableName() {
+        return tableName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        LeafPartitionQueryCacheKey that = (LeafPartitionQueryCacheKey) o;
+        return tableName.equals(that.tableName)
+                && regions.equals(that.regions)
+                && Objects.equals(partitionRegion, that.partitionRegion)
+                && files.equals(that.files)
+                && Objects.equals(requestedValueFields, that.requestedValueFields)
+                && Objects.equals(queryTimeIteratorClassName, that.queryTimeIteratorClassName)
+                && Objects.equals(queryTimeIteratorConfig, that.queryTimeIteratorConfig)
+                && Objects.equals(compactionIteratorClassName, that.compactionIteratorClassName)
+                && Objects.equals(compactionIteratorConfig, that.compactionIteratorConfig);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(tableName, regions, partitionRegion, files, requestedValueFields,
+                queryTimeIteratorClassName, queryTimeIteratorConfig,
+                compactionIteratorClassName, compactionIteratorConfig);
+    }
+
+    @Override
+    public String toString() {
+        return "LeafPartitionQueryCacheKey{" +
+                "tableName='" + tableName + '\'' +
+                ", regions=" + regions +
+                ", partitionRegion=" + partitionRegion +
+                ", files=" + files +
+                ", requestedValueFields=" + requestedValueFields +
+                ", queryTimeIteratorClassName='" + queryTimeIteratorClassName + '\'' +
+                ", queryTimeIteratorConfig='" + queryTimeIteratorConfig + '\'' +
+                ", compactionIteratorClassName='" + compactionIteratorClassName + '\'' +
+                ", compactionIteratorConfig='" + compactionIteratorConfig + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.query.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.iterator.WrappedIterator;
+import sleeper.core.record.Record;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static sleeper.configuration.properties.instance.QueryProperty.QUERY_PROCESSOR_CACHE_ENTRY_MAX_RECORDS;
+import static sleeper.configuration.properties.instance.QueryProperty.QUERY_PROCESSOR_CACHE_MAX_RECORDS;
+import static sleeper.configuration.properties.instance.QueryProperty.QUERY_PROCESSOR_CACHE_SPILL_DIRECTORY;
+import static sleeper.configuration.properties.instance.QueryProperty.QUERY_PROCESSOR_CACHE_SPILL_MAX_RECORDS;
+
+/**
+ * Caches the results of leaf partition queries. Results are held in memory up to a maximum number of records, and
+ * the least recently used results are evicted first. Evicted results may be spilled to a local directory, which is
+ * also limited to a maximum number of records. Results are found again by a {@link LeafPartitionQueryCacheKey}, which
+ * includes the files the query read, so results are not used once the data in the partition has changed.
+ */
+public class QueryResultCache {
+    private static final Logger LOGGER = LoggerFactory.getLogger(QueryResultCache.class);
+
+    private final long maxRecordsInMemory;
+    private final long maxRecordsPerEntry;
+    private final Path spillDirectory;
+    private final long maxRecordsSpilled;
+    private final LinkedHashMap<LeafPartitionQueryCacheKey, List<Record>> inMemory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<LeafPartitionQueryCacheKey, SpilledEntry> spilled = new LinkedHashMap<>(16, 0.75f, true);
+    private long recordsInMemory;
+    private long recordsSpilled;
+    private long hits;
+    private long misses;
+
+    private QueryResultCache(Builder builder) {
+        maxRecordsInMemory = builder.maxRecordsInMemory;
+        maxRecordsPerEntry = Math.min(builder.maxRecordsPerEntry, builder.maxRecordsInMemory);
+        spillDirectory = builder.spillDirectory;
+        maxRecordsSpilled = builder.maxRecordsSpilled;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Creates a cache configured from the instance properties, if the cache is enabled.
+     *
+     * @param  instanceProperties the instance properties
+     * @return                    the cache, or an empty optional if the cache is disabled
+     */
+    public static Optional<QueryResultCache> fromProperties(InstanceProperties instanceProperties) {
+        long maxRecords = instanceProperties.getLong(QUERY_PROCESSOR_CACHE_MAX_RECORDS);
+        if (maxRecords <= 0) {
+            return Optional.empty();
+        }
+        String spillDirectory = instanceProperties.get(QUERY_PROCESSOR_CACHE_SPILL_DIRECTORY);
+        return Optional.of(builder()
+                .maxRecordsInMemory(maxRecords)
+                .maxRecordsPerEntry(instanceProperties.getLong(QUERY_PROCESSOR_CACHE_ENTRY_MAX_RECORDS))
+                .spillDirectory(null == spillDirectory || spillDirectory.isEmpty() ? null : Paths.get(spillDirectory))
+                .maxRecordsSpilled(instanceProperties.getLong(QUERY_PROCESSOR_CACHE_SPILL_MAX_RECORDS))
+                .build());
+    }
+
+    /**
+     * Retrieves cached results.
+     *
+     * @param  key the key of the query
+     * @return     an iterator over the results, or an empty optional if they are not cached
+     */
+    public synchronized Optional<CloseableIterator<Record>> get(LeafPartitionQueryCacheKey key) {
+        List<Record> records = inMemory.get(key);
+        if (null == records) {
+            records = readSpilled(key);
+        }
+        if (null == records) {
+            misses++;
+            LOGGER.debug("Cache miss for {} (hits = {}, misses = {})", key, hits, misses);
+            return Optional.empty();
+        }
+        hits++;
+        LOGGER.info("Returning {} cached records for table {} (hits = {}, misses = {})",
+                records.size(), key.getTableName(), hits, misses);
+        // Copy the records, as results publishers may modify them
+        List<Record> copies = records.stream().map(Record::new).collect(Collectors.toList());
+        return Optional.of(new WrappedIterator<>(copies.iterator()));
+    }
+
+    /**
+     * Wraps the results of a query so that they are cached once they have all been read. If there are more results
+     * than may be cached for one query, they are not cached.
+     *
+     * @param  key     the key of the query
+     * @param  results the results of the query
+     * @return         an iterator over the same results
+     */
+    public CloseableIterator<Record> cacheResults(LeafPartitionQueryCacheKey key, CloseableIterator<Record> results) {
+        return new CachingIterator(key, results);
+    }
+
+    synchronized void put(LeafPartitionQueryCacheKey key, List<Record> records) {
+        if (records.size() > maxRecordsPerEntry) {
+            return;
+        }
+        removeSpilled(key);
+        List<Record> previous = inMemory.put(key, records);
+        if (null != previous) {
+            recordsInMemory -= previous.size();
+        }
+        recordsInMemory += records.size();
+        Iterator<Map.Entry<LeafPartitionQueryCacheKey, List<Record>>> eldest = inMemory.entrySet().iterator();
+        while (recordsInMemory > maxRecordsInMemory && eldest.hasNext()) {
+            Map.Entry<LeafPartitionQueryCacheKey, List<Record>> entry = eldest.next();
+            eldest.remove();
+            recordsInMemory -= entry.getValue().size();
+            spill(entry.getKey(), entry.getValue());
+        }
+    }
+
+    synchronized long getRecordsInMemory() {
+        return recordsInMemory;
+    }
+
+    synchronized long getRecordsSpilled() {
+        return recordsSpilled;
+    }
+
+    private void spill(LeafPartitionQueryCacheKey key, List<Record> records) {
+        if (null == spillDirectory || records.size() > maxRecordsSpilled) {
+            return;
+        }
+        Path path = spillDirectory.resolve(UUID.randomUUID() + ".records");
+        try {
+            Files.createDirectories(spillDirectory);
+            SpilledRecords.write(path, records);
+        } catch (IOException e) {
+            LOGGER.warn("Failed spilling cached query results to {}", path, e);
+            deleteQuietly(path);
+            return;
+        }
+        spilled.put(key, new SpilledEntry(path, records.size()));
+        recordsSpilled += records.size();
+        Iterator<Map.Entry<LeafPartitionQueryCacheKey, SpilledEntry>> eldest = spilled.entrySet().iterator();
+        while (recordsSpilled > maxRecordsSpilled && eldest.hasNext()) {
+            SpilledEntry entry = eldest.next().getValue();
+            eldest.remove();
+            recordsSpilled -= entry.numRecords;
+            deleteQuietly(entry.path);
+        }
+    }
+
+    private List<Record> readSpilled(LeafPartitionQueryCacheKey key) {
+        SpilledEntry entry = removeSpilled(key);
+        if (null == entry) {
+            return null;
+        }
+        List<Record> records;
+        try {
+            records = SpilledRecords.read(entry.path);
+        } catch (IOException e) {
+            LOGGER.warn("Failed reading spilled query results from {}", entry.path, e);
+            return null;
+        } finally {
+            deleteQuietly(entry.path);
+        }
+        // Bring the results back into memory, as they are now the most recently used
+        put(key, records);
+        return records;
+    }
+
+    private SpilledEntry removeSpilled(LeafPartitionQueryCacheKey key) {
+        SpilledEntry entry = spilled.remove(key);
+        if (null != entry) {
+            recordsSpilled -= entry.numRecords;
+        }
+        return entry;
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            LOGGER.warn("Failed deleting spilled query results at {}", path, e);
+        }
+    }
+
+    /**
+     * Results spilled to a local file.
+     */
+    private static class SpilledEntry {
+        private final Path path;
+        private final int numRecords;
+
+        SpilledEntry(Path path, int numRecords) {
+            this.path = path;
+            this.numRecords = numRecords;
+        }
+    }
+
+    /**
+     * Passes through the results of a query, and caches them once they have all been read.
+     */
+    private class CachingIterator implements CloseableIterator<Record> {
+        private final LeafPartitionQueryCacheKey key;
+        private final CloseableIterator<Record> results;
+        private List<Record> records = new ArrayList<>();
+
+        CachingIterator(LeafPartitionQueryCacheKey key, CloseableIterator<Record> results) {
+            this.key = key;
+            this.results = results;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = results.hasNext();
+            if (!hasNext && null != records) {
+                put(key, records);
+                records = null;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Record next() {
+            Record record = results.next();
+            if (null != records) {
+                if (records.size() < maxRecordsPerEntry) {
+                    records.add(new Record(record));
+                } else {
+                    records = null;
+                }
+            }
+            return record;
+        }
+
+        @Override
+        public void close() throws IOException {
+            results.close();
+        }
+    }
+
+    /**
+     * Builds a cache.
+     */
+    public static final class Builder {
+        private long maxRecordsInMemory;
+        private long maxRecordsPerEntry = Long.MAX_VALUE;
+        private Path spillDirectory;
+        private long maxRecordsSpilled;
+
+        private Builder() {
+        }
+
+        public Builder maxRecordsInMemory(long maxRecordsInMemory) {
+            this.maxRecordsInMemory = maxRecordsInMemory;
+            return this;
+        }
+
+        public Builder maxRecordsPerEntry(long maxRecordsPerEntry) {
+            this.maxRecordsPerEntry = maxRecordsPerEntry;
+            return this;
+        }
+
+        public Builder spillDirectory(Path spillDirectory) {
+            this.spillDirectory = spillDirectory;
+            return this;
+        }
+
+        public Builder maxRecordsSpilled(long maxRecordsSpilled) {
+            this.maxRecordsSpilled = maxRecordsSpilled;
+            return this;
+        }
+
+        public QueryResultCache build() {
+            return new QueryResultCache(this);
+        }
+    }
+}
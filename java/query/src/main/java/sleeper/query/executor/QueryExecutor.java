@@ -35,6 +35,7 @@ import sleeper.core.range.Region;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Schema;
 import sleeper.query.QueryException;
+import sleeper.query.cache.QueryResultCache;
 import sleeper.query.model.LeafPartitionQuery;
 import sleeper.query.model.Query;
 import sleeper.query.recordretrieval.LeafPartitionQueryExecutor;
@@ -69,6 +70,7 @@ public class QueryExecutor {
     private List<Partition> leafPartitions;
     private PartitionTree partitionTree;
     private Map<String, List<String>> partitionToFiles;
+    private QueryResultCache resultCache;
 
     public QueryExecutor(ObjectFactory objectFactory,
                          StateStore stateStore,
@@ -108,6 +110,15 @@ public class QueryExecutor {
                 executorService);
     }
 
+    /**
+     * Sets a cache for the results of the leaf partition queries this executor runs.
+     *
+     * @param resultCache the cache
+     */
+    public void setResultCache(QueryResultCache resultCache) {
+        this.resultCache = resultCache;
+    }
+
     /**
      * Initialises the partitions and the mapping from partitions to active files.
      * This method should be called periodically so that this class is aware of
@@ -214,7 +225,7 @@ public class QueryExecutor {
         for (LeafPartitionQuery leafPartitionQuery : leafPartitionQueries) {
             iterators.add((Supplier<CloseableIterator<Record>>) () -> {
                 try {
-                    LeafPartitionQueryExecutor leafPartitionQueryExecutor = new LeafPartitionQueryExecutor(executorService, objectFactory, configuration, tableProperties);
+                    LeafPartitionQueryExecutor leafPartitionQueryExecutor = new LeafPartitionQueryExecutor(executorService, objectFactory, configuration, tableProperties, resultCache);
                     CloseableIterator<Record> it = leafPartitionQueryExecutor.getRecords(leafPartitionQuery);
                     return it;
                 } catch (QueryException e) {
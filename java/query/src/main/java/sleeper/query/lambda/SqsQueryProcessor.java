@@ -32,6 +32,7 @@ import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Schema;
 import sleeper.query.QueryException;
+import sleeper.query.cache.QueryResultCache;
 import sleeper.query.executor.QueryExecutor;
 import sleeper.query.model.LeafPartitionQuery;
 import sleeper.query.model.Query;
@@ -71,6 +72,7 @@ public class SqsQueryProcessor {
     private final StateStoreProvider stateStoreProvider;
     private final ObjectFactory objectFactory;
     private final DynamoDBQueryTracker queryTracker;
+    private final QueryResultCache resultCache;
     private final Map<String, QueryExecutor> queryExecutorCache = new HashMap<>();
     private final Map<String, Configuration> configurationCache = new HashMap<>();
 
@@ -81,6 +83,7 @@ public class SqsQueryProcessor {
         executorService = Executors.newFixedThreadPool(instanceProperties.getInt(EXECUTOR_POOL_THREADS));
         objectFactory = new ObjectFactory(instanceProperties, builder.s3Client, "/tmp");
         queryTracker = new DynamoDBQueryTracker(instanceProperties, builder.dynamoClient);
+        resultCache = QueryResultCache.fromProperties(instanceProperties).orElse(null);
         // The following Configuration is only used in StateStoreProvider for reading from S3 if the S3StateStore is used,
         // so use the standard Configuration rather than the one for query lambdas which is specific to the table.
         Configuration confForStateStore = HadoopConfigurationProvider.getConfigurationForLambdas(instanceProperties);
@@ -120,6 +123,7 @@ public class SqsQueryProcessor {
             StateStore stateStore = stateStoreProvider.getStateStore(tableProperties);
             Configuration conf = getConfiguration(query.getTableName(), tableProperties);
             QueryExecutor queryExecutor = new QueryExecutor(objectFactory, tableProperties, stateStore, conf, executorService);
+            queryExecutor.setResultCache(resultCache);
             queryExecutor.init();
             queryExecutorCache.put(query.getTableName(), queryExecutor);
         }
@@ -127,6 +131,15 @@ public class SqsQueryProcessor {
         List<LeafPartitionQuery> subQueries = queryExecutor.splitIntoLeafPartitionQueries(query);
 
         if (subQueries.size() > 1) {
+            // Record the subqueries so that their results files can be listed in one manifest for the query
+            if (isS3ResultsOutput(query)) {
+                TableProperties tableProperties = tablePropertiesProvider.getTableProperties(query.getTableName());
+                try {
+                    createS3ResultsOutput(query, tableProperties).subQueriesCreated(query, subQueries);
+                } catch (IOException e) {
+                    throw new QueryException("Failed to record subqueries for results manifest", e);
+                }
+            }
             // Put these subqueries back onto the queue so that they
             // can be processed independently
             String sqsQueryQueueURL = instanceProperties.get(QUERY_QUEUE_URL);
@@ -153,7 +166,7 @@ public class SqsQueryProcessor {
     private CloseableIterator<Record> processLeafPartitionQuery(LeafPartitionQuery leafPartitionQuery) throws QueryException {
         TableProperties tableProperties = tablePropertiesProvider.getTableProperties(leafPartitionQuery.getTableName());
         Configuration conf = getConfiguration(leafPartitionQuery.getTableName(), tableProperties);
-        LeafPartitionQueryExecutor leafPartitionQueryExecutor = new LeafPartitionQueryExecutor(executorService, objectFactory, conf, tableProperties);
+        LeafPartitionQueryExecutor leafPartitionQueryExecutor = new LeafPartitionQueryExecutor(executorService, objectFactory, conf, tableProperties, resultCache);
         return leafPartitionQueryExecutor.getRecords(leafPartitionQuery);
     }
 
@@ -170,14 +183,12 @@ public class SqsQueryProcessor {
 
         try {
             ResultsOutputInfo outputInfo;
-            if (null == query.getResultsPublisherConfig() || query.getResultsPublisherConfig().isEmpty()) {
-                outputInfo = new S3ResultsOutput(instanceProperties, tableProperties, new HashMap<>()).publish(query, results);
+            if (isS3ResultsOutput(query)) {
+                outputInfo = createS3ResultsOutput(query, tableProperties).publish(query, results);
             } else if (SQSResultsOutput.SQS.equals(query.getResultsPublisherConfig().get(ResultsOutputConstants.DESTINATION))) {
                 outputInfo = new SQSResultsOutput(instanceProperties, sqsClient, schema, query.getResultsPublisherConfig()).publish(query, results);
-            } else if (S3ResultsOutput.S3.equals(query.getResultsPublisherConfig().get(ResultsOutputConstants.DESTINATION))) {
-                outputInfo = new S3ResultsOutput(instanceProperties, tableProperties, query.getResultsPublisherConfig()).publish(query, results);
             } else if (WebSocketResultsOutput.DESTINATION_NAME.equals(query.getResultsPublisherConfig().get(ResultsOutputConstants.DESTINATION))) {
-                outputInfo = new WebSocketResultsOutput(query.getResultsPublisherConfig()).publish(query, results);
+                outputInfo = new WebSocketResultsOutput(instanceProperties, schema, query.getResultsPublisherConfig()).publish(query, results);
             } else {
                 LOGGER.info("Unknown results publisher from config " + query.getResultsPublisherConfig());
                 outputInfo = new ResultsOutputInfo(0, Collections.emptyList(), new IOException("Unknown results publisher from config " + query.getResultsPublisherConfig()));
@@ -190,6 +201,16 @@ public class SqsQueryProcessor {
         }
     }
 
+    private static boolean isS3ResultsOutput(Query query) {
+        return null == query.getResultsPublisherConfig() || query.getResultsPublisherConfig().isEmpty()
+                || S3ResultsOutput.S3.equals(query.getResultsPublisherConfig().get(ResultsOutputConstants.DESTINATION));
+    }
+
+    private S3ResultsOutput createS3ResultsOutput(Query query, TableProperties tableProperties) {
+        Map<String, String> config = null == query.getResultsPublisherConfig() ? new HashMap<>() : query.getResultsPublisherConfig();
+        return new S3ResultsOutput(instanceProperties, tableProperties, config, getConfiguration(query.getTableName(), tableProperties));
+    }
+
     public static final class Builder {
         private AmazonSQS sqsClient;
         private AmazonS3 s3Client;
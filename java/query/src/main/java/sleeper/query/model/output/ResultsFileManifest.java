@@ -0,0 +1,157 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.query.model.output;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Lists the files that the results of a query were written to, and the number of records in each file. Clients can
+ * use this to fetch the files in parallel. When a query is split into subqueries, each subquery writes a manifest of
+ * its own files, and these are combined into one manifest for the query.
+ */
+public class ResultsFileManifest {
+    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
+
+    private final String queryId;
+    private final String subQueryId;
+    private final long recordCount;
+    private final List<File> files;
+
+    public ResultsFileManifest(String queryId, String subQueryId, List<File> files) {
+        this.queryId = queryId;
+        this.subQueryId = subQueryId;
+        this.recordCount = files.stream().mapToLong(File::getRecordCount).sum();
+        this.files = Collections.unmodifiableList(new ArrayList<>(files));
+    }
+
+    public static ResultsFileManifest fromJson(String json) {
+        ResultsFileManifest manifest = GSON.fromJson(json, ResultsFileManifest.class);
+        return new ResultsFileManifest(manifest.queryId, manifest.subQueryId, manifest.files);
+    }
+
+    /**
+     * Combines the manifests of the subqueries of a query into one manifest for the query.
+     *
+     * @param  queryId           the query ID
+     * @param  subQueryManifests the manifests of the subqueries
+     * @return                   the manifest listing the files of all the subqueries
+     */
+    public static ResultsFileManifest combine(String queryId, List<ResultsFileManifest> subQueryManifests) {
+        List<File> files = new ArrayList<>();
+        subQueryManifests.forEach(manifest -> files.addAll(manifest.getFiles()));
+        return new ResultsFileManifest(queryId, null, files);
+    }
+
+    public String toJson() {
+        return GSON.toJson(this);
+    }
+
+    public String getQueryId() {
+        return queryId;
+    }
+
+    public String getSubQueryId() {
+        return subQueryId;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public List<File> getFiles() {
+        return files;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        ResultsFileManifest that = (ResultsFileManifest) o;
+        return recordCount == that.recordCount && Objects.equals(queryId, that.queryId)
+                && Objects.equals(subQueryId, that.subQueryId) && Objects.equals(files, that.files);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(queryId, subQueryId, recordCount, files);
+    }
+
+    @Override
+    public String toString() {
+        return "ResultsFileManifest{" +
+                "queryId='" + queryId + '\'' +
+                ", subQueryId='" + subQueryId + '\'' +
+                ", recordCount=" + recordCount +
+                ", files=" + files +
+                '}';
+    }
+
+    /**
+     * A results file listed in the manifest.
+     */
+    public static class File {
+        private final String path;
+        private final long recordCount;
+
+        public File(String path, long recordCount) {
+            this.path = path;
+            this.recordCount = recordCount;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public long getRecordCount() {
+            return recordCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            File file = (File) o;
+            return recordCount == file.recordCount && Objects.equals(path, file.path);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(path, recordCount);
+        }
+
+        @Override
+        public String toString() {
+            return "File{" +
+                    "path='" + path + '\'' +
+                    ", recordCount=" + recordCount +
+                    '}';
+        }
+    }
+}
@@ -15,6 +15,11 @@
  */
 package sleeper.query.model.output;
 
+import com.google.gson.Gson;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FSDataInputStream;
+import org.apache.hadoop.fs.FSDataOutputStream;
+import org.apache.hadoop.fs.FileSystem;
 import org.apache.hadoop.fs.Path;
 import org.apache.parquet.hadoop.ParquetWriter;
 import org.slf4j.Logger;
@@ -25,38 +30,56 @@ import sleeper.configuration.properties.table.TableProperties;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.record.Record;
 import sleeper.io.parquet.record.ParquetRecordWriterFactory;
+import sleeper.query.model.LeafPartitionQuery;
 import sleeper.query.model.Query;
+import sleeper.utils.HadoopConfigurationProvider;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static sleeper.configuration.properties.instance.CommonProperty.FILE_SYSTEM;
+import static sleeper.configuration.properties.instance.QueryProperty.DEFAULT_RESULTS_FILE_SIZE;
 import static sleeper.configuration.properties.instance.QueryProperty.DEFAULT_RESULTS_PAGE_SIZE;
 import static sleeper.configuration.properties.instance.QueryProperty.DEFAULT_RESULTS_ROW_GROUP_SIZE;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.QUERY_RESULTS_BUCKET;
 import static sleeper.io.parquet.record.ParquetRecordWriterFactory.parquetRecordWriterBuilder;
 
 /**
- * An implementation of {@link ResultsOutput} that writes results to Parquet files in an S3 bucket.
+ * An implementation of {@link ResultsOutput} that writes results to Parquet files in an S3 bucket. One manifest is
+ * written for each query, listing all of its results files. When a query is split into subqueries, the subqueries are
+ * recorded with {@link #subQueriesCreated} before they run. Each subquery then writes a manifest of its own files, and
+ * whichever finishes last combines them into the manifest for the query.
  */
 public class S3ResultsOutput implements ResultsOutput {
     private static final Logger LOGGER = LoggerFactory.getLogger(S3ResultsOutput.class);
+    private static final Gson GSON = new Gson();
 
     public static final String S3 = "S3";
     public static final String S3_BUCKET = "bucket";
     public static final String COMPRESSION_CODEC = "compressionCodec";
     public static final String ROW_GROUP_SIZE = "rowGroupSize";
     public static final String PAGE_SIZE = "pageSize";
+    public static final String FILE_SIZE = "fileSize";
     private final InstanceProperties instanceProperties;
     private final TableProperties tableProperties;
     private final Map<String, String> config;
     private String s3Bucket;
     private final String fileSystem;
+    private final Configuration conf;
 
     public S3ResultsOutput(InstanceProperties instanceProperties, TableProperties tableProperties, Map<String, String> config) {
+        this(instanceProperties, tableProperties, config,
+                HadoopConfigurationProvider.getConfigurationForQueryLambdas(instanceProperties, tableProperties));
+    }
+
+    public S3ResultsOutput(InstanceProperties instanceProperties, TableProperties tableProperties, Map<String, String> config, Configuration conf) {
+        this.conf = conf;
         this.instanceProperties = instanceProperties;
         this.tableProperties = tableProperties;
         this.config = config;
@@ -72,30 +95,58 @@ public class S3ResultsOutput implements ResultsOutput {
 
     @Override
     public ResultsOutputInfo publish(Query query, CloseableIterator<Record> results) {
-        String outputFile = fileSystem + s3Bucket + "/query-" + query.getQueryId() + "/" + UUID.randomUUID() + ".parquet";
-        ResultsOutputLocation outputLocation = new ResultsOutputLocation("s3", outputFile);
-
-        LOGGER.info("Opening writer for results of query {} to {}", query.getQueryId(), outputFile);
+        String queryId = query.getQueryId();
+        String filePrefix = getQueryDirectory(queryId) + "/" + UUID.randomUUID();
+        long targetFileSize = Long.parseLong(config.getOrDefault(FILE_SIZE, instanceProperties.get(DEFAULT_RESULTS_FILE_SIZE)));
+        List<ResultsFileManifest.File> files = new ArrayList<>();
+        List<ResultsOutputLocation> outputLocations = new ArrayList<>();
         long count = 0L;
-        try (ParquetWriter<Record> writer = buildParquetWriter(new Path(outputFile))) {
+        ParquetWriter<Record> writer = null;
+        try {
             long startTime = System.currentTimeMillis();
+            String outputFile = filePrefix + "-0.parquet";
+            LOGGER.info("Opening writer for results of query {} to {}", queryId, outputFile);
+            writer = buildParquetWriter(new Path(outputFile));
+            long fileCount = 0L;
             while (results.hasNext()) {
+                if (fileCount > 0 && writer.getDataSize() >= targetFileSize) {
+                    writer.close();
+                    writer = null;
+                    addFile(outputFile, fileCount, files, outputLocations);
+                    outputFile = filePrefix + "-" + files.size() + ".parquet";
+                    LOGGER.info("Rolling results of query {} to {}", queryId, outputFile);
+                    writer = buildParquetWriter(new Path(outputFile));
+                    fileCount = 0L;
+                }
                 writer.write(results.next());
+                fileCount++;
                 count++;
                 if (0 == count % 1_000_000) {
                     LOGGER.info("Wrote {} results", count);
                 }
             }
+            writer.close();
+            writer = null;
+            addFile(outputFile, fileCount, files, outputLocations);
+            writeManifest(query, files);
+            outputLocations.add(new ResultsOutputLocation("s3-manifest", getManifestPath(queryId).toString()));
             long finishTime = System.currentTimeMillis();
             double durationInSeconds = (finishTime - startTime) / 1000.0;
             double rate = count / durationInSeconds;
-            LOGGER.info("Wrote {} records to {} in {} seconds (rate of {})",
-                    count, outputFile, durationInSeconds, rate);
-            return new ResultsOutputInfo(count, Collections.singletonList(outputLocation));
+            LOGGER.info("Wrote {} records to {} files with prefix {} in {} seconds (rate of {})",
+                    count, files.size(), filePrefix, durationInSeconds, rate);
+            return new ResultsOutputInfo(count, outputLocations);
         } catch (RuntimeException | IOException e) {
             LOGGER.error("Exception writing results to S3", e);
-            return new ResultsOutputInfo(count, Collections.singletonList(outputLocation), e);
+            return new ResultsOutputInfo(count, outputLocations, e);
         } finally {
+            try {
+                if (null != writer) {
+                    writer.close();
+                }
+            } catch (IOException e) {
+                LOGGER.error("IOException closing results writer", e);
+            }
             try {
                 results.close();
             } catch (IOException e) {
@@ -104,10 +155,90 @@ public class S3ResultsOutput implements ResultsOutput {
         }
     }
 
+    private static void addFile(String outputFile, long recordCount, List<ResultsFileManifest.File> files, List<ResultsOutputLocation> outputLocations) {
+        files.add(new ResultsFileManifest.File(outputFile, recordCount));
+        outputLocations.add(new ResultsOutputLocation("s3", outputFile));
+    }
+
+    /**
+     * Records the subqueries a query has been split into, so that the manifests they write can be combined once they
+     * have all finished.
+     *
+     * @param  query       the query
+     * @param  subQueries  the subqueries
+     * @throws IOException if the subqueries could not be recorded
+     */
+    public void subQueriesCreated(Query query, List<LeafPartitionQuery> subQueries) throws IOException {
+        List<String> subQueryIds = subQueries.stream()
+                .map(LeafPartitionQuery::getSubQueryId)
+                .collect(Collectors.toList());
+        writeFile(getSubQueriesPath(query.getQueryId()), GSON.toJson(subQueryIds));
+    }
+
+    private void writeManifest(Query query, List<ResultsFileManifest.File> files) throws IOException {
+        String queryId = query.getQueryId();
+        if (!(query instanceof LeafPartitionQuery)) {
+            writeFile(getManifestPath(queryId), new ResultsFileManifest(queryId, null, files).toJson());
+            return;
+        }
+        String subQueryId = ((LeafPartitionQuery) query).getSubQueryId();
+        writeFile(getSubQueryManifestPath(queryId, subQueryId), new ResultsFileManifest(queryId, subQueryId, files).toJson());
+        Path subQueriesPath = getSubQueriesPath(queryId);
+        FileSystem fs = subQueriesPath.getFileSystem(conf);
+        if (!fs.exists(subQueriesPath)) {
+            LOGGER.warn("No subqueries recorded for query {}, not writing manifest for query", queryId);
+            return;
+        }
+        // Each subquery writes its own manifest before checking for the others, so at least the last to finish will
+        // find them all. If several find them all, they write the same manifest.
+        List<ResultsFileManifest> subQueryManifests = new ArrayList<>();
+        for (String id : GSON.fromJson(readFile(subQueriesPath), String[].class)) {
+            Path path = getSubQueryManifestPath(queryId, id);
+            if (!fs.exists(path)) {
+                LOGGER.info("Subquery {} of query {} has not finished yet, not writing manifest for query", id, queryId);
+                return;
+            }
+            subQueryManifests.add(ResultsFileManifest.fromJson(readFile(path)));
+        }
+        LOGGER.info("All {} subqueries of query {} have finished, writing manifest for query", subQueryManifests.size(), queryId);
+        writeFile(getManifestPath(queryId), ResultsFileManifest.combine(queryId, subQueryManifests).toJson());
+    }
+
+    private String getQueryDirectory(String queryId) {
+        return fileSystem + s3Bucket + "/query-" + queryId;
+    }
+
+    private Path getManifestPath(String queryId) {
+        return new Path(getQueryDirectory(queryId) + "/manifest.json");
+    }
+
+    private Path getSubQueriesPath(String queryId) {
+        return new Path(getQueryDirectory(queryId) + "/subqueries.json");
+    }
+
+    private Path getSubQueryManifestPath(String queryId, String subQueryId) {
+        return new Path(getQueryDirectory(queryId) + "/subqueries/" + subQueryId + ".json");
+    }
+
+    private void writeFile(Path path, String contents) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        try (FSDataOutputStream stream = fs.create(path)) {
+            stream.write(contents.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private String readFile(Path path) throws IOException {
+        FileSystem fs = path.getFileSystem(conf);
+        try (FSDataInputStream stream = fs.open(path)) {
+            return new String(stream.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
     private ParquetWriter<Record> buildParquetWriter(Path path) throws IOException {
         String defaultRowGroupSize = instanceProperties.get(DEFAULT_RESULTS_ROW_GROUP_SIZE);
         String defaultPageSize = instanceProperties.get(DEFAULT_RESULTS_PAGE_SIZE);
         ParquetRecordWriterFactory.Builder builder = parquetRecordWriterBuilder(path, tableProperties)
+                .withConf(conf)
                 .withRowGroupSize(Long.parseLong(config.getOrDefault(ROW_GROUP_SIZE, defaultRowGroupSize)))
                 .withPageSize(Integer.parseInt(config.getOrDefault(PAGE_SIZE, defaultPageSize)));
         Optional.ofNullable(config.get(COMPRESSION_CODEC)).ifPresent(builder::withCompressionCodec);
@@ -24,17 +24,18 @@ import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.record.Record;
 import sleeper.core.record.ResultsBatch;
-import sleeper.core.record.serialiser.JSONResultsBatchSerialiser;
+import sleeper.core.record.serialiser.ResultsBatchFormat;
+import sleeper.core.record.serialiser.ResultsBatchSerialiser;
 import sleeper.core.schema.Schema;
 import sleeper.query.model.Query;
 
 import java.io.IOException;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
 import static sleeper.configuration.properties.instance.QueryProperty.QUERY_PROCESSING_LAMBDA_RESULTS_BATCH_SIZE;
+import static sleeper.configuration.properties.instance.QueryProperty.QUERY_PROCESSING_LAMBDA_RESULTS_FORMAT;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.QUERY_RESULTS_QUEUE_URL;
 
 /**
@@ -46,10 +47,13 @@ public class SQSResultsOutput implements ResultsOutput {
     public static final String SQS = "SQS";
     public static final String SQS_RESULTS_URL = "sqsResultsUrl";
     public static final String BATCH_SIZE = "batchSize";
+    public static final String RESULTS_FORMAT = "resultsFormat";
+    public static final long MAX_MESSAGE_LENGTH = 256 * 1024;
     private final AmazonSQS amazonSQS;
     private final Schema schema;
     private String sqsUrl;
     private final int batchSize;
+    private final ResultsBatchFormat format;
     private final ResultsOutputLocation outputLocation;
 
     public SQSResultsOutput(InstanceProperties instanceProperties, AmazonSQS amazonSQS, Schema schema, Map<String, String> config) {
@@ -64,38 +68,42 @@ public class SQSResultsOutput implements ResultsOutput {
         }
         this.outputLocation = new ResultsOutputLocation("sqs", this.sqsUrl);
         this.batchSize = null != config.get(BATCH_SIZE) ? Integer.parseInt(config.get(BATCH_SIZE)) : instanceProperties.getInt(QUERY_PROCESSING_LAMBDA_RESULTS_BATCH_SIZE);
+        this.format = ResultsBatchFormat.fromString(null != config.get(RESULTS_FORMAT) ? config.get(RESULTS_FORMAT) : instanceProperties.get(QUERY_PROCESSING_LAMBDA_RESULTS_FORMAT));
     }
 
     @Override
     public ResultsOutputInfo publish(Query query, CloseableIterator<Record> results) {
         String queryId = query.getQueryId();
-        long count = 0;
-        try {
-            if (!results.hasNext()) {
-                sendBatchToSQS(new ResultsBatch(queryId, schema, Collections.EMPTY_LIST), 0, sqsUrl);
-            } else {
-                List<Record> batch = new ArrayList<>();
-                int size = 0;
-                int batchNumber = 1;
-                while (results.hasNext()) {
-                    batch.add(results.next());
-                    size++;
-                    if (size >= batchSize) {
-                        sendBatchToSQS(new ResultsBatch(queryId, schema, batch), batchNumber, sqsUrl);
-                        batch.clear();
-                        count += size;
-                        size = 0;
+        ResultsBatchSerialiser serialiser = format.serialiser();
+        SizeLimitedResultsBatcher batcher = new SizeLimitedResultsBatcher(
+                format.lengthEstimator(queryId, schema), MAX_MESSAGE_LENGTH, batchSize,
+                new SizeLimitedResultsBatcher.BatchPublisher() {
+                    private int batchNumber = 1;
+
+                    @Override
+                    public String serialise(List<Record> records) throws IOException {
+                        return serialiser.serialise(new ResultsBatch(queryId, schema, records));
+                    }
+
+                    @Override
+                    public void publish(String message, int numRecords) {
+                        sendResultsToSQS(message);
+                        LOGGER.info("Sent " + numRecords + " records to SQS (batch number " + batchNumber + ")");
                         batchNumber++;
                     }
-                }
-                if (!batch.isEmpty()) {
-                    sendBatchToSQS(new ResultsBatch(queryId, schema, batch), batchNumber, sqsUrl);
-                    count += batch.size();
-                }
+                });
+        try {
+            if (!results.hasNext()) {
+                sendResultsToSQS(serialiser.serialise(new ResultsBatch(queryId, schema, Collections.emptyList())));
+                LOGGER.info("Sent 0 records to SQS");
+            }
+            while (results.hasNext()) {
+                batcher.add(results.next());
             }
+            batcher.flush();
         } catch (Exception e) {
             LOGGER.error("Exception sending results to SQS", e);
-            return new ResultsOutputInfo(count, Collections.singletonList(this.outputLocation), e);
+            return new ResultsOutputInfo(batcher.getRecordsPublished(), Collections.singletonList(this.outputLocation), e);
         } finally {
             try {
                 results.close();
@@ -104,16 +112,10 @@ public class SQSResultsOutput implements ResultsOutput {
             }
         }
 
-        return new ResultsOutputInfo(count, Collections.singletonList(this.outputLocation));
-    }
-
-    private void sendBatchToSQS(ResultsBatch resultsBatch, int batchNumber, String sqsUrl) throws IOException {
-        sendResultsToSQS(resultsBatch, sqsUrl);
-        LOGGER.info("Sent " + resultsBatch.getRecords().size() + " records to SQS (batch number " + batchNumber + ")");
+        return new ResultsOutputInfo(batcher.getRecordsPublished(), Collections.singletonList(this.outputLocation));
     }
 
-    private void sendResultsToSQS(ResultsBatch resultsBatch, String sqsUrl) throws IOException {
-        String serialisedResults = new JSONResultsBatchSerialiser().serialise(resultsBatch);
+    private void sendResultsToSQS(String serialisedResults) {
         SendMessageRequest sendMessageRequest = new SendMessageRequest()
                 .withQueueUrl(sqsUrl)
                 .withMessageBody(serialisedResults);
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.query.model.output;
+
+import sleeper.core.record.Record;
+import sleeper.core.record.serialiser.ResultsBatchLengthEstimator;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Groups query results into batches which fit in a message of a maximum length. Batches are filled until the estimated
+ * length of the message would exceed the limit, or until they reach a maximum number of records. If a serialised batch
+ * still turns out to be too long it is split in half until it fits.
+ * <p>
+ * The estimate is corrected by the ratio of the actual length to the estimated length of the last batch. This lets
+ * batches fill up to the limit when the estimate is too high, e.g. because the batch is compressed, and avoids
+ * splitting every batch when the estimate is too low.
+ */
+class SizeLimitedResultsBatcher {
+    private static final double HEADROOM_WHEN_SHORTER = 1.1;
+
+    private final ResultsBatchLengthEstimator estimator;
+    private final long maxMessageLength;
+    private final long maxRecordsPerBatch;
+    private final BatchPublisher publisher;
+    private final List<Record> batch = new ArrayList<>();
+    private long batchRecordsLength = 0;
+    private long recordsPublished = 0;
+    private double lengthRatio = 1.0;
+
+    SizeLimitedResultsBatcher(ResultsBatchLengthEstimator estimator, long maxMessageLength, long maxRecordsPerBatch, BatchPublisher publisher) {
+        this.estimator = estimator;
+        this.maxMessageLength = maxMessageLength;
+        this.maxRecordsPerBatch = maxRecordsPerBatch;
+        this.publisher = publisher;
+    }
+
+    void add(Record record) throws IOException {
+        int recordLength = estimator.recordLength(record);
+        if (!batch.isEmpty() && (batch.size() >= maxRecordsPerBatch
+                || estimator.serialisedLength(batchRecordsLength + recordLength, batch.size() + 1) * lengthRatio > maxMessageLength)) {
+            flush();
+        }
+        batch.add(record);
+        batchRecordsLength += recordLength;
+    }
+
+    void flush() throws IOException {
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<Record> records = new ArrayList<>(batch);
+        long estimatedLength = estimator.serialisedLength(batchRecordsLength, records.size());
+        batch.clear();
+        batchRecordsLength = 0;
+        String message = publisher.serialise(records);
+        long length = utf8Length(message);
+        updateLengthRatio(estimatedLength, length);
+        publish(records, message, length);
+    }
+
+    long getRecordsPublished() {
+        return recordsPublished;
+    }
+
+    private void publish(List<Record> records) throws IOException {
+        String message = publisher.serialise(records);
+        publish(records, message, utf8Length(message));
+    }
+
+    private void publish(List<Record> records, String message, long length) throws IOException {
+        if (records.size() > 1 && length > maxMessageLength) {
+            int half = records.size() / 2;
+            publish(records.subList(0, half));
+            publish(records.subList(half, records.size()));
+            return;
+        }
+        publisher.publish(message, records.size());
+        recordsPublished += records.size();
+    }
+
+    private void updateLengthRatio(long estimatedLength, long length) {
+        if (estimatedLength <= 0) {
+            return;
+        }
+        double ratio = (double) length / estimatedLength;
+        // Compression varies between batches, so leave some room when the estimate was too high
+        lengthRatio = ratio < 1.0 ? Math.min(1.0, ratio * HEADROOM_WHEN_SHORTER) : ratio;
+    }
+
+    private static long utf8Length(String message) {
+        return message.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Serialises and sends batches of records.
+     */
+    interface BatchPublisher {
+        String serialise(List<Record> records) throws IOException;
+
+        void publish(String message, int numRecords) throws IOException;
+    }
+}
@@ -18,8 +18,14 @@ package sleeper.query.model.output;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.record.Record;
+import sleeper.core.record.ResultsBatch;
+import sleeper.core.record.serialiser.ResultsBatchFormat;
+import sleeper.core.record.serialiser.ResultsBatchLengthEstimator;
+import sleeper.core.record.serialiser.ResultsBatchSerialiser;
+import sleeper.core.schema.Schema;
 import sleeper.query.model.Query;
 
 import java.io.IOException;
@@ -27,8 +33,11 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
+import static sleeper.configuration.properties.instance.QueryProperty.QUERY_PROCESSING_LAMBDA_RESULTS_FORMAT;
+
 /**
  * An implementation of {@link ResultsOutput} that writes results to a client
  * connected via a WebSocket API Gateway.
@@ -36,12 +45,26 @@ import java.util.Map;
 public class WebSocketResultsOutput extends WebSocketOutput implements ResultsOutput {
     private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketResultsOutput.class);
     public static final String MAX_BATCH_SIZE = "maxBatchSize";
+    public static final String RESULTS_FORMAT = "resultsFormat";
 
     private final List<ResultsOutputLocation> outputLocations = new ArrayList<>();
     private final Long maxBatchSize;
+    private final Schema schema;
+    private final ResultsBatchFormat format;
 
     public WebSocketResultsOutput(Map<String, String> config) {
+        this(config, null, ResultsBatchFormat.JSON);
+    }
+
+    public WebSocketResultsOutput(InstanceProperties instanceProperties, Schema schema, Map<String, String> config) {
+        this(config, schema, ResultsBatchFormat.fromString(null != config.get(RESULTS_FORMAT)
+                ? config.get(RESULTS_FORMAT) : instanceProperties.get(QUERY_PROCESSING_LAMBDA_RESULTS_FORMAT)));
+    }
+
+    private WebSocketResultsOutput(Map<String, String> config, Schema schema, ResultsBatchFormat format) {
         super(config);
+        this.schema = schema;
+        this.format = format;
 
         String maxBatchSize = config.get(MAX_BATCH_SIZE);
         this.maxBatchSize = maxBatchSize != null && !maxBatchSize.isEmpty() ? Long.parseLong(maxBatchSize) : null;
@@ -51,6 +74,9 @@ public class WebSocketResultsOutput extends WebSocketOutput implements ResultsOu
 
     @Override
     public ResultsOutputInfo publish(Query query, CloseableIterator<Record> results) {
+        if (format == ResultsBatchFormat.COMPACT) {
+            return publishSerialisedBatches(query, results);
+        }
         String queryId = getQueryId(query);
 
         Map<String, Object> message = new HashMap<>();
@@ -109,9 +135,76 @@ public class WebSocketResultsOutput extends WebSocketOutput implements ResultsOu
         return new ResultsOutputInfo(count, outputLocations);
     }
 
+    private ResultsOutputInfo publishSerialisedBatches(Query query, CloseableIterator<Record> results) {
+        String queryId = getQueryId(query);
+        ResultsBatchSerialiser serialiser = format.serialiser();
+        Map<String, Object> message = new HashMap<>();
+        message.put("message", "records");
+        message.put("queryId", queryId);
+        message.put("format", format.name().toLowerCase(Locale.ROOT));
+        message.put("batch", "");
+        int baseMessageLength = serde.toJson(message).length();
+        SizeLimitedResultsBatcher batcher = new SizeLimitedResultsBatcher(
+                new MessageLengthEstimator(format.lengthEstimator(queryId, schema), baseMessageLength),
+                WebSocketOutput.MAX_PAYLOAD_SIZE, maxBatchSize != null && maxBatchSize > 0 ? maxBatchSize : Long.MAX_VALUE,
+                new SizeLimitedResultsBatcher.BatchPublisher() {
+                    @Override
+                    public String serialise(List<Record> records) throws IOException {
+                        message.put("batch", serialiser.serialise(new ResultsBatch(queryId, schema, records)));
+                        return serde.toJson(message);
+                    }
+
+                    @Override
+                    public void publish(String json, int numRecords) throws IOException {
+                        LOGGER.info("Publishing batch of {} records to WebSocket connection", numRecords);
+                        sendString(json);
+                    }
+                });
+        try {
+            while (results.hasNext()) {
+                batcher.add(results.next());
+            }
+            batcher.flush();
+        } catch (Exception e) {
+            LOGGER.error("Error publishing results to WebSocket", e);
+            return new ResultsOutputInfo(batcher.getRecordsPublished(), outputLocations, e);
+        } finally {
+            try {
+                results.close();
+            } catch (Exception e) {
+                LOGGER.error("Exception closing results of query", e);
+            }
+        }
+        return new ResultsOutputInfo(batcher.getRecordsPublished(), outputLocations);
+    }
+
     private void publishBatch(Map<String, Object> message, List<Record> records) throws IOException {
         LOGGER.info("Publishing batch of {} records to WebSocket connection", records.size());
         message.put("records", records);
         this.sendJson(message);
     }
+
+    /**
+     * Estimates the length of a WebSocket message holding a serialised batch of results.
+     */
+    private static class MessageLengthEstimator implements ResultsBatchLengthEstimator {
+        private final ResultsBatchLengthEstimator batchEstimator;
+        private final int baseMessageLength;
+
+        MessageLengthEstimator(ResultsBatchLengthEstimator batchEstimator, int baseMessageLength) {
+            this.batchEstimator = batchEstimator;
+            this.baseMessageLength = baseMessageLength;
+        }
+
+        @Override
+        public int recordLength(Record record) {
+            return batchEstimator.recordLength(record);
+        }
+
+        @Override
+        public long serialisedLength(long totalRecordsLength, int numRecords) {
+            // Allow for escaping of Base64 padding characters in the JSON message
+            return baseMessageLength + batchEstimator.serialisedLength(totalRecordsLength, numRecords) + 10;
+        }
+    }
 }
@@ -26,11 +26,16 @@ import sleeper.configuration.properties.table.TableProperties;
 import sleeper.configuration.properties.table.TableProperty;
 import sleeper.core.iterator.CloseableIterator;
 import sleeper.core.iterator.IteratorException;
+import sleeper.core.iterator.PushdownFilter;
 import sleeper.core.iterator.SortedRecordIterator;
+import sleeper.core.iterator.SortedRecordIteratorChain;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
+import sleeper.io.parquet.record.PushdownFilterConverter;
 import sleeper.query.QueryException;
+import sleeper.query.cache.LeafPartitionQueryCacheKey;
+import sleeper.query.cache.QueryResultCache;
 import sleeper.query.model.LeafPartitionQuery;
 import sleeper.query.model.Query;
 import sleeper.query.utils.RangeQueryUtils;
@@ -40,6 +45,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.stream.Collectors;
@@ -54,21 +60,30 @@ public class LeafPartitionQueryExecutor {
     private final ObjectFactory objectFactory;
     private final Configuration conf;
     private final TableProperties tableProperties;
+    private final QueryResultCache resultCache;
 
     public LeafPartitionQueryExecutor(
             ExecutorService executorService,
             ObjectFactory objectFactory,
             Configuration conf,
             TableProperties tableProperties) {
+        this(executorService, objectFactory, conf, tableProperties, null);
+    }
+
+    public LeafPartitionQueryExecutor(
+            ExecutorService executorService,
+            ObjectFactory objectFactory,
+            Configuration conf,
+            TableProperties tableProperties,
+            QueryResultCache resultCache) {
         this.executorService = executorService;
         this.objectFactory = objectFactory;
         this.conf = conf;
         this.tableProperties = tableProperties;
+        this.resultCache = resultCache;
     }
 
     public CloseableIterator<Record> getRecords(LeafPartitionQuery leafPartitionQuery) throws QueryException {
-        LOGGER.info("Retrieving records for LeafPartitionQuery {}", leafPartitionQuery);
-        List<String> files = leafPartitionQuery.getFiles();
         Schema tableSchema = tableProperties.getSchema();
         String compactionIteratorClassName = tableProperties.get(TableProperty.ITERATOR_CLASS_NAME);
         String compactionIteratorConfig = tableProperties.get(TableProperty.ITERATOR_CONFIG);
@@ -82,10 +97,39 @@ public class LeafPartitionQueryExecutor {
             throw new QueryException("Failed to initialise iterators", e);
         }
 
+        if (null == resultCache) {
+            return retrieveRecords(leafPartitionQuery, compactionIterator, queryIterator);
+        }
+        if (!isCacheable(compactionIterator) || !isCacheable(queryIterator)) {
+            LOGGER.info("Not caching records for LeafPartitionQuery {} as an iterator is not cacheable", leafPartitionQuery);
+            return retrieveRecords(leafPartitionQuery, compactionIterator, queryIterator);
+        }
+        LeafPartitionQueryCacheKey cacheKey = LeafPartitionQueryCacheKey.from(leafPartitionQuery, tableProperties);
+        Optional<CloseableIterator<Record>> cached = resultCache.get(cacheKey);
+        if (cached.isPresent()) {
+            LOGGER.info("Found cached records for LeafPartitionQuery {}", leafPartitionQuery);
+            return cached.get();
+        }
+        return resultCache.cacheResults(cacheKey, retrieveRecords(leafPartitionQuery, compactionIterator, queryIterator));
+    }
+
+    private CloseableIterator<Record> retrieveRecords(
+            LeafPartitionQuery leafPartitionQuery, SortedRecordIterator compactionIterator,
+            SortedRecordIterator queryIterator) throws QueryException {
+        LOGGER.info("Retrieving records for LeafPartitionQuery {}", leafPartitionQuery);
+        List<String> files = leafPartitionQuery.getFiles();
+        Schema tableSchema = tableProperties.getSchema();
+
         Schema dataReadSchema = createSchemaForDataRead(leafPartitionQuery, tableSchema, compactionIterator, queryIterator);
 
         FilterPredicate filterPredicate = RangeQueryUtils.getFilterPredicateMultidimensionalKey(
                 tableSchema.getRowKeyFields(), leafPartitionQuery.getRegions(), leafPartitionQuery.getPartitionRegion());
+        // Skip data that the iterators would remove, where they declare a filter that can be applied when reading
+        Optional<PushdownFilter> readFilter = SortedRecordIteratorChain.getReadFilter(compactionIterator, queryIterator);
+        if (readFilter.isPresent()) {
+            LOGGER.debug("Applying filter from iterators when reading data: {}", readFilter.get());
+            filterPredicate = PushdownFilterConverter.and(filterPredicate, readFilter.get());
+        }
 
         LeafPartitionRecordRetriever retriever = new LeafPartitionRecordRetriever(executorService, conf);
 
@@ -106,6 +150,10 @@ public class LeafPartitionQueryExecutor {
         }
     }
 
+    private static boolean isCacheable(SortedRecordIterator iterator) {
+        return null == iterator || iterator.isCacheable();
+    }
+
     private Schema createSchemaForDataRead(Query query, Schema schema, SortedRecordIterator compactionIterator, SortedRecordIterator queryIterator) {
         List<String> requestedValueFields = query.getRequestedValueFields();
         if (requestedValueFields == null) {
@@ -144,13 +192,12 @@ public class LeafPartitionQueryExecutor {
         }
         SortedRecordIterator sortedRecordIterator;
         try {
-            sortedRecordIterator = objectFactory.getObject(iteratorClassName, SortedRecordIterator.class);
+            sortedRecordIterator = SortedRecordIteratorChain.create(iteratorClassName, iteratorConfig, schema,
+                    className -> objectFactory.getObject(className, SortedRecordIterator.class));
         } catch (ObjectFactoryException e) {
             throw new IteratorException("ObjectFactoryException creating iterator of class " + iteratorClassName, e);
         }
-        LOGGER.debug("Created iterator of class {}", iteratorClassName);
-        sortedRecordIterator.init(iteratorConfig, schema);
-        LOGGER.debug("Initialised iterator with config " + iteratorConfig);
+        LOGGER.debug("Created iterator of class {} with config {}", iteratorClassName, iteratorConfig);
 
         return sortedRecordIterator;
     }
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.query.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.iterator.WrappedIterator;
+import sleeper.core.range.Range.RangeFactory;
+import sleeper.core.range.Region;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Schema;
+import sleeper.query.model.LeafPartitionQuery;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.configuration.properties.InstancePropertiesTestHelper.createTestInstanceProperties;
+import static sleeper.configuration.properties.table.TablePropertiesTestHelper.createTestTableProperties;
+import static sleeper.configuration.properties.table.TableProperty.TABLE_NAME;
+import static sleeper.core.schema.SchemaTestHelper.schemaWithKey;
+
+public class QueryResultCacheTest {
+    private final Schema schema = schemaWithKey("key");
+    private final TableProperties tableProperties = createTestTableProperties(createTestInstanceProperties(), schema);
+    private final RangeFactory rangeFactory = new RangeFactory(schema);
+    private final Region partitionRegion = new Region(rangeFactory.createRange("key", Long.MIN_VALUE, null));
+
+    @TempDir
+    private Path tempDir;
+
+    @Test
+    void shouldReturnCachedResultsOnceQueryHasBeenReadFully() throws Exception {
+        // Given
+        QueryResultCache cache = QueryResultCache.builder().maxRecordsInMemory(10).maxRecordsPerEntry(10).build();
+        LeafPartitionQueryCacheKey key = key(List.of(region(1L, 10L)), List.of("file1.parquet"));
+
+        // When
+        readAll(cache.cacheResults(key, iterator(records(1L, 2L))));
+
+        // Then
+        assertThat(cache.get(key)).get().satisfies(results ->
+                assertThat(readAll(results)).containsExactlyElementsOf(records(1L, 2L)));
+        assertThat(cache.getRecordsInMemory()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotCacheResultsWhichWereNotReadFully() throws Exception {
+        // Given
+        QueryResultCache cache = QueryResultCache.builder().maxRecordsInMemory(10).maxRecordsPerEntry(10).build();
+        LeafPartitionQueryCacheKey key = key(List.of(region(1L, 10L)), List.of("file1.parquet"));
+
+        // When
+        CloseableIterator<Record> results = cache.cacheResults(key, iterator(records(1L, 2L)));
+        results.next();
+        results.close();
+
+        // Then
+        assertThat(cache.get(key)).isEmpty();
+    }
+
+    @Test
+    void shouldMissWhenFilesHaveChanged() throws Exception {
+        // Given
+        QueryResultCache cache = QueryResultCache.builder().maxRecordsInMemory(10).maxRecordsPerEntry(10).build();
+        readAll(cache.cacheResults(key(List.of(region(1L, 10L)), List.of("file1.parquet")), iterator(records(1L))));
+
+        // When / Then
+        assertThat(cache.get(key(List.of(region(1L, 10L)), List.of("file1.parquet", "file2.parquet")))).isEmpty();
+    }
+
+    @Test
+    void shouldHitWhenRegionsAreInDifferentOrder() throws Exception {
+        // Given
+        QueryResultCache cache = QueryResultCache.builder().maxRecordsInMemory(10).maxRecordsPerEntry(10).build();
+        readAll(cache.cacheResults(key(List.of(region(1L, 5L), region(7L, 9L)), List.of("file1.parquet")),
+                iterator(records(1L))));
+
+        // When / Then
+        assertThat(cache.get(key(List.of(region(7L, 9L), region(1L, 5L)), List.of("file1.parquet")))).isPresent();
+    }
+
+    @Test
+    void shouldNotCacheResultsLargerThanEntryLimit() throws Exception {
+        // Given
+        QueryResultCache cache = QueryResultCache.builder().maxRecordsInMemory(10).maxRecordsPerEntry(2).build();
+        LeafPartitionQueryCacheKey key = key(List.of(region(1L, 10L)), List.of("file1.parquet"));
+
+        // When
+        List<Record> results = readAll(cache.cacheResults(key, iterator(records(1L, 2L, 3L))));
+
+        // Then
+        assertThat(results).containsExactlyElementsOf(records(1L, 2L, 3L));
+        assertThat(cache.get(key)).isEmpty();
+        assertThat(cache.getRecordsInMemory()).isZero();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedResults() throws Exception {
+        // Given
+        QueryResultCache cache = QueryResultCache.builder().maxRecordsInMemory(4).maxRecordsPerEntry(4).build();
+        LeafPartitionQueryCacheKey key1 = key(List.of(region(1L, 10L)), List.of("file1.parquet"));
+        LeafPartitionQueryCacheKey key2 = key(List.of(region(1L, 10L)), List.of("file2.parquet"));
+        LeafPartitionQueryCacheKey key3 = key(List.of(region(1L, 10L)), List.of("file3.parquet"));
+        readAll(cache.cacheResults(key1, iterator(records(1L, 2L))));
+        readAll(cache.cacheResults(key2, iterator(records(3L, 4L))));
+
+        // When
+        cache.get(key1);
+        readAll(cache.cacheResults(key3, iterator(records(5L, 6L))));
+
+        // Then
+        assertThat(cache.get(key1)).isPresent();
+        assertThat(cache.get(key2)).isEmpty();
+        assertThat(cache.get(key3)).isPresent();
+        assertThat(cache.getRecordsInMemory()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldSpillEvictedResultsToDisk() throws Exception {
+        // Given
+        QueryResultCache cache = QueryResultCache.builder()
+                .maxRecordsInMemory(2).maxRecordsPerEntry(2)
+                .spillDirectory(tempDir).maxRecordsSpilled(10)
+                .build();
+        LeafPartitionQueryCacheKey key1 = key(List.of(region(1L, 10L)), List.of("file1.parquet"));
+        LeafPartitionQueryCacheKey key2 = key(List.of(region(1L, 10L)), List.of("file2.parquet"));
+        Record record = new Record(Map.of("key", 1L, "string", "a", "bytes", new byte[]{1, 2},
+                "list", List.of(1, 2), "map", Map.of("a", 1L)));
+        readAll(cache.cacheResults(key1, iterator(List.of(record, new Record(Map.of("key", 2L))))));
+
+        // When
+        readAll(cache.cacheResults(key2, iterator(records(3L))));
+
+        // Then
+        assertThat(cache.getRecordsSpilled()).isEqualTo(2);
+        assertThat(cache.get(key1)).get().satisfies(results ->
+                assertThat(readAll(results)).usingRecursiveFieldByFieldElementComparator()
+                        .containsExactly(record, new Record(Map.of("key", 2L))));
+        assertThat(cache.getRecordsSpilled()).isEqualTo(1);
+    }
+
+    private LeafPartitionQueryCacheKey key(List<Region> regions, List<String> files) {
+        LeafPartitionQuery query = new LeafPartitionQuery.Builder(
+                tableProperties.get(TABLE_NAME),
+                "query", "sub-query", regions, "leaf", partitionRegion, files).build();
+        return LeafPartitionQueryCacheKey.from(query, tableProperties);
+    }
+
+    private Region region(long min, long max) {
+        return new Region(rangeFactory.createRange("key", min, max));
+    }
+
+    private static List<Record> records(Long... keys) {
+        List<Record> records = new ArrayList<>();
+        for (Long key : keys) {
+            records.add(new Record(Map.of("key", key)));
+        }
+        return records;
+    }
+
+    private static CloseableIterator<Record> iterator(List<Record> records) {
+        return new WrappedIterator<>(records.iterator());
+    }
+
+    private static List<Record> readAll(CloseableIterator<Record> iterator) throws IOException {
+        List<Record> records = new ArrayList<>();
+        while (iterator.hasNext()) {
+            records.add(iterator.next());
+        }
+        iterator.close();
+        return records;
+    }
+}
@@ -27,6 +27,8 @@ import org.junit.jupiter.api.io.TempDir;
 import sleeper.configuration.properties.instance.InstanceProperties;
 import sleeper.configuration.properties.table.TableProperties;
 import sleeper.core.iterator.WrappedIterator;
+import sleeper.core.range.Range;
+import sleeper.core.range.Region;
 import sleeper.core.record.Record;
 import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
@@ -36,6 +38,7 @@ import sleeper.core.schema.type.LongType;
 import sleeper.core.schema.type.MapType;
 import sleeper.core.schema.type.StringType;
 import sleeper.io.parquet.record.ParquetRecordReader;
+import sleeper.query.model.LeafPartitionQuery;
 import sleeper.query.model.Query;
 
 import java.io.IOException;
@@ -60,6 +63,7 @@ import static sleeper.configuration.properties.instance.CommonProperty.FILE_SYST
 import static sleeper.configuration.properties.instance.QueryProperty.DEFAULT_RESULTS_PAGE_SIZE;
 import static sleeper.configuration.properties.instance.QueryProperty.DEFAULT_RESULTS_ROW_GROUP_SIZE;
 import static sleeper.configuration.properties.instance.SystemDefinedInstanceProperty.QUERY_RESULTS_BUCKET;
+import static sleeper.query.model.output.S3ResultsOutput.FILE_SIZE;
 import static sleeper.query.model.output.S3ResultsOutput.PAGE_SIZE;
 import static sleeper.query.model.output.S3ResultsOutput.ROW_GROUP_SIZE;
 
@@ -136,6 +140,113 @@ class S3ResultsOutputIT {
         assertThat(numberOfBlocks).as("There are several blocks as rowGroup size is small").isGreaterThan(10);
     }
 
+    @Test
+    void shouldRollFilesAtTargetSizeAndWriteManifest() throws Exception {
+        // Given
+        Map<String, String> config = new HashMap<>();
+        config.put(ROW_GROUP_SIZE, "1024");
+        config.put(PAGE_SIZE, "1024");
+        config.put(FILE_SIZE, "20000");
+        ResultsOutput resultsOutput = new S3ResultsOutput(instanceProperties, tableProperties, config);
+        Query query = new Query("table", "query-id", Collections.emptyList());
+
+        // When
+        ResultsOutputInfo outputInfo = resultsOutput.publish(query, new WrappedIterator<>(recordList.iterator()));
+
+        // Then
+        ResultsFileManifest manifest = readManifest(outputInfo);
+        assertThat(manifest.getQueryId()).isEqualTo("query-id");
+        assertThat(manifest.getRecordCount()).isEqualTo(recordList.size());
+        assertThat(manifest.getFiles()).hasSizeGreaterThan(1);
+        List<Record> records = new ArrayList<>();
+        for (ResultsFileManifest.File file : manifest.getFiles()) {
+            List<Record> fileRecords = getRecordsFromOutput(file.getPath());
+            assertThat(fileRecords).hasSize((int) file.getRecordCount());
+            records.addAll(fileRecords);
+        }
+        assertThat(records).as("Results list matches records").isEqualTo(recordList);
+        assertThat(outputInfo.getLocations())
+                .filteredOn(location -> location.getType().equals("s3"))
+                .extracting(ResultsOutputLocation::getLocation)
+                .containsExactlyElementsOf(manifest.getFiles().stream()
+                        .map(ResultsFileManifest.File::getPath)
+                        .collect(Collectors.toList()));
+    }
+
+    @Test
+    void shouldWriteManifestForEmptyResults() throws Exception {
+        // Given
+        ResultsOutput resultsOutput = new S3ResultsOutput(instanceProperties, tableProperties, new HashMap<>());
+        Query query = new Query("table", "query-id", Collections.emptyList());
+
+        // When
+        ResultsOutputInfo outputInfo = resultsOutput.publish(query, new WrappedIterator<>(Collections.emptyIterator()));
+
+        // Then
+        ResultsFileManifest manifest = readManifest(outputInfo);
+        assertThat(manifest.getRecordCount()).isZero();
+        assertThat(manifest.getFiles()).hasSize(1);
+        assertThat(getRecordsFromOutput(manifest.getFiles().get(0).getPath())).isEmpty();
+    }
+
+    @Test
+    void shouldWriteOneManifestForQueryWithSubQueries() throws Exception {
+        // Given
+        S3ResultsOutput resultsOutput = new S3ResultsOutput(instanceProperties, tableProperties, new HashMap<>());
+        Query query = new Query("table", "query-id", Collections.emptyList());
+        LeafPartitionQuery subQuery1 = subQuery("sub-query-1");
+        LeafPartitionQuery subQuery2 = subQuery("sub-query-2");
+        resultsOutput.subQueriesCreated(query, List.of(subQuery1, subQuery2));
+        List<Record> records1 = recordList.subList(0, 100);
+        List<Record> records2 = recordList.subList(100, recordList.size());
+
+        // When
+        ResultsOutputInfo outputInfo1 = resultsOutput.publish(subQuery2, new WrappedIterator<>(records2.iterator()));
+        boolean manifestWrittenBeforeLastSubQuery = Files.exists(Paths.get(getManifestPath(outputInfo1)));
+        ResultsOutputInfo outputInfo2 = resultsOutput.publish(subQuery1, new WrappedIterator<>(records1.iterator()));
+
+        // Then
+        assertThat(manifestWrittenBeforeLastSubQuery).isFalse();
+        assertThat(getManifestPath(outputInfo1)).isEqualTo(getManifestPath(outputInfo2));
+        assertThat(getFilesWithinDir(outputDir, "manifest.json")).hasSize(1);
+        ResultsFileManifest manifest = readManifest(outputInfo2);
+        assertThat(manifest.getQueryId()).isEqualTo("query-id");
+        assertThat(manifest.getSubQueryId()).isNull();
+        assertThat(manifest.getRecordCount()).isEqualTo(recordList.size());
+        List<Record> records = new ArrayList<>();
+        for (ResultsFileManifest.File file : manifest.getFiles()) {
+            records.addAll(getRecordsFromOutput(file.getPath()));
+        }
+        assertThat(records).as("Results list matches records").isEqualTo(recordList);
+    }
+
+    private LeafPartitionQuery subQuery(String subQueryId) {
+        Region region = new Region(new Range.RangeFactory(schema).createRange("year", Integer.MIN_VALUE, null));
+        return new LeafPartitionQuery.Builder("table", "query-id", subQueryId, region, "partition", region, List.of())
+                .build();
+    }
+
+    private ResultsFileManifest readManifest(ResultsOutputInfo outputInfo) throws IOException {
+        return ResultsFileManifest.fromJson(Files.readString(Paths.get(getManifestPath(outputInfo))));
+    }
+
+    private String getManifestPath(ResultsOutputInfo outputInfo) {
+        return outputInfo.getLocations().stream()
+                .filter(location -> location.getType().equals("s3-manifest"))
+                .map(ResultsOutputLocation::getLocation)
+                .findFirst().orElseThrow();
+    }
+
+    private List<String> getFilesWithinDir(String dir, String suffix) throws IOException {
+        try (Stream<Path> stream = Files.walk(Paths.get(dir))) {
+            return stream
+                    .filter(file -> !Files.isDirectory(file))
+                    .map(Path::toString)
+                    .filter(s -> s.endsWith(suffix))
+                    .collect(Collectors.toList());
+        }
+    }
+
     private String getParquetFilesWithinDirPath(String dir) throws IOException {
         int levelsDeep = 5; // the results are a few levels deep
         try (Stream<Path> stream = Files.walk(Paths.get(dir), levelsDeep)) {
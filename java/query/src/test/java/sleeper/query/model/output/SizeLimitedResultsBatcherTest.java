@@ -0,0 +1,141 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.query.model.output;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.record.Record;
+import sleeper.core.record.serialiser.ResultsBatchLengthEstimator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SizeLimitedResultsBatcherTest {
+
+    private final List<List<String>> published = new ArrayList<>();
+
+    @Test
+    void shouldLimitBatchesByNumberOfRecords() throws Exception {
+        // Given
+        SizeLimitedResultsBatcher batcher = batcher(exactEstimator(), 1000, 2);
+
+        // When
+        addRecords(batcher, "a", "b", "c", "d", "e");
+
+        // Then
+        assertThat(published).containsExactly(List.of("a", "b"), List.of("c", "d"), List.of("e"));
+        assertThat(batcher.getRecordsPublished()).isEqualTo(5);
+    }
+
+    @Test
+    void shouldFillBatchesUpToMaximumLength() throws Exception {
+        // Given
+        SizeLimitedResultsBatcher batcher = batcher(exactEstimator(), 7, 100);
+
+        // When
+        addRecords(batcher, "aa", "bb", "cc", "dd", "eeeee");
+
+        // Then
+        assertThat(published).containsExactly(List.of("aa", "bb"), List.of("cc", "dd"), List.of("eeeee"));
+    }
+
+    @Test
+    void shouldSplitBatchWhenEstimateIsTooLow() throws Exception {
+        // Given
+        ResultsBatchLengthEstimator underestimate = new ResultsBatchLengthEstimator() {
+            @Override
+            public int recordLength(Record record) {
+                return 0;
+            }
+
+            @Override
+            public long serialisedLength(long totalRecordsLength, int numRecords) {
+                return 0;
+            }
+        };
+        SizeLimitedResultsBatcher batcher = batcher(underestimate, 5, 100);
+
+        // When
+        addRecords(batcher, "aa", "bb", "cc", "dd");
+
+        // Then
+        assertThat(published).containsExactly(List.of("aa", "bb"), List.of("cc", "dd"));
+        assertThat(batcher.getRecordsPublished()).isEqualTo(4);
+    }
+
+    @Test
+    void shouldFillBatchesFurtherWhenEstimateIsTooHigh() throws Exception {
+        // Given
+        ResultsBatchLengthEstimator overestimate = new ResultsBatchLengthEstimator() {
+            @Override
+            public int recordLength(Record record) {
+                return ((String) record.get("key")).length();
+            }
+
+            @Override
+            public long serialisedLength(long totalRecordsLength, int numRecords) {
+                return 2 * (totalRecordsLength + numRecords - 1);
+            }
+        };
+        SizeLimitedResultsBatcher batcher = batcher(overestimate, 7, 100);
+
+        // When
+        addRecords(batcher, "a", "b", "c", "d", "e", "f", "g", "h", "i", "j");
+
+        // Then
+        assertThat(published).containsExactly(
+                List.of("a", "b"), List.of("c", "d", "e"), List.of("f", "g", "h"), List.of("i", "j"));
+    }
+
+    private SizeLimitedResultsBatcher batcher(ResultsBatchLengthEstimator estimator, long maxLength, long maxRecords) {
+        return new SizeLimitedResultsBatcher(estimator, maxLength, maxRecords, new SizeLimitedResultsBatcher.BatchPublisher() {
+            @Override
+            public String serialise(List<Record> records) {
+                return records.stream().map(record -> (String) record.get("key")).collect(Collectors.joining(","));
+            }
+
+            @Override
+            public void publish(String message, int numRecords) {
+                published.add(List.of(message.split(",")));
+            }
+        });
+    }
+
+    private static ResultsBatchLengthEstimator exactEstimator() {
+        return new ResultsBatchLengthEstimator() {
+            @Override
+            public int recordLength(Record record) {
+                return ((String) record.get("key")).length();
+            }
+
+            @Override
+            public long serialisedLength(long totalRecordsLength, int numRecords) {
+                return totalRecordsLength + numRecords - 1;
+            }
+        };
+    }
+
+    private static void addRecords(SizeLimitedResultsBatcher batcher, String... keys) throws Exception {
+        for (String key : keys) {
+            batcher.add(new Record(Map.of("key", key)));
+        }
+        batcher.flush();
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.query.recordretrieval;
+
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import sleeper.configuration.jars.ObjectFactory;
+import sleeper.configuration.properties.table.TableProperties;
+import sleeper.core.iterator.CloseableIterator;
+import sleeper.core.iterator.SortedRecordIterator;
+import sleeper.core.iterator.impl.AgeOffIterator;
+import sleeper.core.iterator.impl.AggregatingIterator;
+import sleeper.core.range.Range.RangeFactory;
+import sleeper.core.range.Region;
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.LongType;
+import sleeper.io.parquet.record.ParquetRecordWriterFactory;
+import sleeper.query.cache.LeafPartitionQueryCacheKey;
+import sleeper.query.cache.QueryResultCache;
+import sleeper.query.model.LeafPartitionQuery;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.configuration.properties.InstancePropertiesTestHelper.createTestInstanceProperties;
+import static sleeper.configuration.properties.table.TablePropertiesTestHelper.createTestTableProperties;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CLASS_NAME;
+import static sleeper.configuration.properties.table.TableProperty.ITERATOR_CONFIG;
+import static sleeper.configuration.properties.table.TableProperty.TABLE_NAME;
+
+public class LeafPartitionQueryExecutorTest {
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key", new LongType()))
+            .valueFields(new Field("timestamp", new LongType()))
+            .build();
+    private final TableProperties tableProperties = createTestTableProperties(createTestInstanceProperties(), schema);
+    private final RangeFactory rangeFactory = new RangeFactory(schema);
+    private final QueryResultCache cache = QueryResultCache.builder().maxRecordsInMemory(10).build();
+    private final ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private final Record record = new Record(Map.of("key", 1L, "timestamp", System.currentTimeMillis()));
+
+    @TempDir
+    private Path tempDir;
+
+    @AfterEach
+    void tearDown() {
+        executorService.shutdown();
+    }
+
+    @Test
+    void shouldCacheResultsOfQuery() throws Exception {
+        // Given
+        LeafPartitionQuery query = queryForFile(writeFile(record));
+
+        // When
+        List<Record> results = readAll(executor().getRecords(query));
+
+        // Then
+        assertThat(results).containsExactly(record);
+        assertThat(cache.get(LeafPartitionQueryCacheKey.from(query, tableProperties))).isPresent();
+    }
+
+    @Test
+    void shouldNotCacheResultsOfQueryWithTimeDependentIterator() throws Exception {
+        // Given
+        tableProperties.set(ITERATOR_CLASS_NAME, AgeOffIterator.class.getName());
+        tableProperties.set(ITERATOR_CONFIG, "timestamp,1000000");
+        LeafPartitionQuery query = queryForFile(writeFile(record));
+
+        // When
+        List<Record> results = readAll(executor().getRecords(query));
+
+        // Then
+        assertThat(results).containsExactly(record);
+        assertThat(cache.get(LeafPartitionQueryCacheKey.from(query, tableProperties))).isEmpty();
+    }
+
+    @Test
+    void shouldNotCacheResultsOfQueryWithCustomIterator() throws Exception {
+        // Given
+        tableProperties.set(ITERATOR_CLASS_NAME, PassThroughIterator.class.getName());
+        LeafPartitionQuery query = queryForFile(writeFile(record));
+
+        // When
+        List<Record> results = readAll(executor().getRecords(query));
+
+        // Then
+        assertThat(results).containsExactly(record);
+        assertThat(cache.get(LeafPartitionQueryCacheKey.from(query, tableProperties))).isEmpty();
+    }
+
+    @Test
+    void shouldCacheResultsOfQueryWithBuiltInIteratorThatOnlyDependsOnItsInput() throws Exception {
+        // Given
+        tableProperties.set(ITERATOR_CLASS_NAME, AggregatingIterator.class.getName());
+        tableProperties.set(ITERATOR_CONFIG, "timestamp=max");
+        LeafPartitionQuery query = queryForFile(writeFile(record));
+
+        // When
+        List<Record> results = readAll(executor().getRecords(query));
+
+        // Then
+        assertThat(results).containsExactly(record);
+        assertThat(cache.get(LeafPartitionQueryCacheKey.from(query, tableProperties))).isPresent();
+    }
+
+    private LeafPartitionQueryExecutor executor() {
+        return new LeafPartitionQueryExecutor(executorService, ObjectFactory.noUserJars(),
+                new Configuration(), tableProperties, cache);
+    }
+
+    private LeafPartitionQuery queryForFile(String file) {
+        Region region = new Region(rangeFactory.createRange("key", Long.MIN_VALUE, null));
+        return new LeafPartitionQuery.Builder(tableProperties.get(TABLE_NAME), "query", "sub-query",
+                region, "root", region, List.of(file)).build();
+    }
+
+    private String writeFile(Record... records) throws IOException {
+        String file = tempDir.resolve("file.parquet").toString();
+        try (ParquetWriter<Record> writer = ParquetRecordWriterFactory.createParquetRecordWriter(
+                new org.apache.hadoop.fs.Path(file), schema)) {
+            for (Record recordToWrite : records) {
+                writer.write(recordToWrite);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * An iterator which does not declare that it is cacheable.
+     */
+    public static class PassThroughIterator implements SortedRecordIterator {
+        @Override
+        public void init(String configString, Schema schema) {
+        }
+
+        @Override
+        public List<String> getRequiredValueFields() {
+            return List.of();
+        }
+
+        @Override
+        public CloseableIterator<Record> apply(CloseableIterator<Record> input) {
+            return input;
+        }
+    }
+
+    private static List<Record> readAll(CloseableIterator<Record> iterator) throws IOException {
+        List<Record> records = new ArrayList<>();
+        try (iterator) {
+            iterator.forEachRemaining(records::add);
+        }
+        return records;
+    }
+}
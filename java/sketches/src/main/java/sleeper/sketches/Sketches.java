@@ -15,17 +15,65 @@
  */
 package sleeper.sketches;
 
+import com.facebook.collections.ByteArray;
 import org.apache.datasketches.quantiles.ItemsSketch;
+import org.apache.datasketches.quantiles.ItemsUnion;
 
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class Sketches {
+    private static final int K = 1024;
+
     private final Map<String, ItemsSketch> keyFieldToQuantilesSketch;
 
     public Sketches(Map<String, ItemsSketch> keyFieldToQuantilesSketch) {
         this.keyFieldToQuantilesSketch = keyFieldToQuantilesSketch;
     }
 
+    /**
+     * Creates an empty quantiles sketch for each row key field in the schema.
+     *
+     * @param schema the schema
+     * @return the sketches
+     */
+    public static Sketches from(Schema schema) {
+        Map<String, ItemsSketch> keyFieldToSketch = new HashMap<>();
+        for (Field rowKeyField : schema.getRowKeyFields()) {
+            keyFieldToSketch.put(rowKeyField.getName(), ItemsSketch.getInstance(K, Comparator.naturalOrder()));
+        }
+        return new Sketches(keyFieldToSketch);
+    }
+
+    /**
+     * Merges sketches of separate sets of records, to produce sketches of all of the records together. The merged
+     * sketches have the same accuracy guarantees as if they had been built by updating them with every record, so
+     * this can be used to avoid updating sketches record by record when the records are already covered by existing
+     * sketches.
+     *
+     * @param schema   the schema
+     * @param sketches the sketches to merge
+     * @return the merged sketches
+     */
+    public static Sketches merge(Schema schema, List<Sketches> sketches) {
+        Map<String, ItemsSketch> keyFieldToSketch = new HashMap<>();
+        for (String fieldName : schema.getRowKeyFieldNames()) {
+            ItemsUnion union = ItemsUnion.getInstance(K, Comparator.naturalOrder());
+            for (Sketches sketch : sketches) {
+                union.update(sketch.getQuantilesSketch(fieldName));
+            }
+            keyFieldToSketch.put(fieldName, union.getResult());
+        }
+        return new Sketches(keyFieldToSketch);
+    }
+
     public Map<String, ItemsSketch> getQuantilesSketches() {
         return keyFieldToQuantilesSketch;
     }
@@ -33,4 +81,20 @@ public class Sketches {
     public ItemsSketch getQuantilesSketch(String keyFieldName) {
         return keyFieldToQuantilesSketch.get(keyFieldName);
     }
+
+    /**
+     * Updates the sketch for each row key field with the value of that field in the given record.
+     *
+     * @param schema the schema of the record
+     * @param record the record
+     */
+    public void update(Schema schema, Record record) {
+        for (Field rowKeyField : schema.getRowKeyFields()) {
+            Object value = record.get(rowKeyField.getName());
+            if (rowKeyField.getType() instanceof ByteArrayType) {
+                value = ByteArray.wrap((byte[]) value);
+            }
+            keyFieldToQuantilesSketch.get(rowKeyField.getName()).update(value);
+        }
+    }
 }
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.sketches;
+
+import com.facebook.collections.ByteArray;
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.record.Record;
+import sleeper.core.schema.Field;
+import sleeper.core.schema.Schema;
+import sleeper.core.schema.type.ByteArrayType;
+import sleeper.core.schema.type.LongType;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SketchesTest {
+    private final Schema schema = Schema.builder()
+            .rowKeyFields(new Field("key1", new LongType()), new Field("key2", new ByteArrayType()))
+            .build();
+
+    @Test
+    public void shouldUpdateSketchForEachRowKeyField() {
+        // Given
+        Sketches sketches = Sketches.from(schema);
+
+        // When
+        for (long i = 0; i < 100; i++) {
+            sketches.update(schema, record(i));
+        }
+
+        // Then
+        assertThat(sketches.getQuantilesSketch("key1").getN()).isEqualTo(100);
+        assertThat(sketches.getQuantilesSketch("key1").getMinValue()).isEqualTo(0L);
+        assertThat(sketches.getQuantilesSketch("key1").getMaxValue()).isEqualTo(99L);
+        assertThat(sketches.getQuantilesSketch("key2").getMinValue()).isEqualTo(ByteArray.wrap(new byte[]{0}));
+        assertThat(sketches.getQuantilesSketch("key2").getMaxValue()).isEqualTo(ByteArray.wrap(new byte[]{99}));
+    }
+
+    @Test
+    public void shouldMergeSketchesToMatchSketchOfAllRecords() {
+        // Given
+        Sketches evens = Sketches.from(schema);
+        Sketches odds = Sketches.from(schema);
+        Sketches all = Sketches.from(schema);
+        for (long i = 0; i < 100; i++) {
+            (i % 2 == 0 ? evens : odds).update(schema, record(i));
+            all.update(schema, record(i));
+        }
+
+        // When
+        Sketches merged = Sketches.merge(schema, List.of(evens, odds));
+
+        // Then
+        for (String field : schema.getRowKeyFieldNames()) {
+            assertThat(merged.getQuantilesSketch(field).getN()).isEqualTo(100);
+            for (double rank = 0.0; rank <= 1.0; rank += 0.1) {
+                assertThat(merged.getQuantilesSketch(field).getQuantile(rank))
+                        .isEqualTo(all.getQuantilesSketch(field).getQuantile(rank));
+            }
+        }
+    }
+
+    private static Record record(long key) {
+        return new Record(Map.of("key1", key, "key2", new byte[]{(byte) key}));
+    }
+}
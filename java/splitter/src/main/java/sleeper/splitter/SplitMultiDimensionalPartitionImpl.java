@@ -16,8 +16,6 @@
 package sleeper.splitter;
 
 import com.facebook.collections.ByteArray;
-import org.apache.commons.lang3.tuple.ImmutableTriple;
-import org.apache.commons.lang3.tuple.Triple;
 import org.apache.datasketches.quantiles.ItemsSketch;
 import org.apache.datasketches.quantiles.ItemsUnion;
 import org.apache.hadoop.conf.Configuration;
@@ -26,16 +24,9 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sleeper.core.partition.Partition;
-import sleeper.core.range.Range;
-import sleeper.core.range.Range.RangeFactory;
-import sleeper.core.range.Region;
-import sleeper.core.schema.Field;
+import sleeper.core.partition.PartitionSubtreeFactory;
 import sleeper.core.schema.Schema;
-import sleeper.core.schema.type.ByteArrayType;
-import sleeper.core.schema.type.IntType;
-import sleeper.core.schema.type.LongType;
 import sleeper.core.schema.type.PrimitiveType;
-import sleeper.core.schema.type.StringType;
 import sleeper.sketches.Sketches;
 import sleeper.sketches.s3.SketchesSerDeToS3;
 import sleeper.statestore.StateStore;
@@ -43,11 +34,9 @@ import sleeper.statestore.StateStoreException;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 
 /**
  * Identifies the median value of the first dimension. If that leads to a valid
@@ -65,6 +54,12 @@ import java.util.stream.Collectors;
  * as a key x in it would have to have min <= x < median = min which is a
  * contradiction.
  * <p>
+ * If the partition holds many times the split threshold, the new partitions
+ * are split again in the same dimension, at the quartiles, octiles and so on
+ * of the same sketch, up to a maximum depth. This creates a balanced tree of
+ * new partitions in one update to the state store, rather than waiting for
+ * each new partition to be split in turn. A new partition is left as a leaf
+ * if the next split point would not be valid for it.
  */
 public class SplitMultiDimensionalPartitionImpl {
     private static final Logger LOGGER = LoggerFactory.getLogger(SplitMultiDimensionalPartitionImpl.class);
@@ -75,8 +70,9 @@ public class SplitMultiDimensionalPartitionImpl {
     private final Partition partition;
     private final List<String> fileNames; // These should be active files for the partition
     private final Configuration conf;
-    private final RangeFactory rangeFactory;
     private final Supplier<String> idSupplier;
+    private final long splitThreshold;
+    private final int maxDepth;
 
     public SplitMultiDimensionalPartitionImpl(StateStore stateStore,
                                               Schema schema,
@@ -84,243 +80,138 @@ public class SplitMultiDimensionalPartitionImpl {
                                               List<String> fileNames,
                                               Configuration conf,
                                               Supplier<String> idSupplier) {
+        this(stateStore, schema, partition, fileNames, conf, idSupplier, Long.MAX_VALUE, 1);
+    }
+
+    public SplitMultiDimensionalPartitionImpl(StateStore stateStore,
+                                              Schema schema,
+                                              Partition partition,
+                                              List<String> fileNames,
+                                              Configuration conf,
+                                              Supplier<String> idSupplier,
+                                              long splitThreshold,
+                                              int maxDepth) {
         this.stateStore = stateStore;
         this.schema = schema;
         this.rowKeyTypes = schema.getRowKeyTypes();
         this.partition = partition;
         this.fileNames = fileNames;
         this.conf = conf;
-        this.rangeFactory = new RangeFactory(schema);
         this.idSupplier = idSupplier;
+        this.splitThreshold = splitThreshold;
+        this.maxDepth = maxDepth;
     }
 
     void splitPartition() throws StateStoreException, IOException {
+        List<Sketches> sketchesList = loadSketches();
         for (int dimension = 0; dimension < rowKeyTypes.size(); dimension++) {
             PrimitiveType rowKeyType = rowKeyTypes.get(dimension);
             LOGGER.info("Testing field {} of type {} (dimension {}) to see if it can be split",
                     schema.getRowKeyFieldNames().get(dimension), rowKeyType, dimension);
-            if (rowKeyType instanceof IntType) {
-                Triple<Integer, Integer, Integer> minMedianMax = getMinMedianMaxIntKey(dimension);
-                int min = minMedianMax.getLeft();
-                int median = minMedianMax.getMiddle();
-                int max = minMedianMax.getRight();
-                LOGGER.debug("Min = {}, median = {}, max = {}", min, median, max);
-                if (min > max) {
-                    throw new RuntimeException("Min > max");
-                }
-                if (min < median && median < max) {
-                    LOGGER.info("For dimension {} min < median && median < max, so splitting", dimension);
-                    splitPartition(partition, median, dimension);
-                    return;
-                } else {
-                    LOGGER.info("For dimension {} it is not true that min < median && median < max, so NOT splitting", dimension);
-                }
-            } else if (rowKeyType instanceof LongType) {
-                Triple<Long, Long, Long> minMedianMax = getMinMedianMaxLongKey(dimension);
-                long min = minMedianMax.getLeft();
-                long median = minMedianMax.getMiddle();
-                long max = minMedianMax.getRight();
-                LOGGER.debug("Min = {}, median = {}, max = {}", min, median, max);
-                if (min > max) {
-                    throw new RuntimeException("Min > max");
-                }
-                if (min < median && median < max) {
-                    LOGGER.debug("For dimension {} min < median && median < max", dimension);
-                    splitPartition(partition, median, dimension);
-                    return;
-                } else {
-                    LOGGER.info("For dimension {} it is not true that min < median && median < max, so NOT splitting", dimension);
-                }
-            } else if (rowKeyType instanceof StringType) {
-                Triple<String, String, String> minMedianMax = getMinMedianMaxStringKey(dimension);
-                String min = minMedianMax.getLeft();
-                String median = minMedianMax.getMiddle();
-                String max = minMedianMax.getRight();
-                LOGGER.debug("Min = {}, median = {}, max = {}", min, median, max);
-                if (min.compareTo(max) > 0) {
-                    throw new RuntimeException("Min > max");
-                }
-                if (min.compareTo(median) < 0 && median.compareTo(max) < 0) {
-                    LOGGER.debug("For dimension {} min < median && median < max", dimension);
-                    splitPartition(partition, median, dimension);
-                    return;
-                } else {
-                    LOGGER.info("For dimension {} it is not true that min < median && median < max, so NOT splitting", dimension);
-                }
-            } else if (rowKeyType instanceof ByteArrayType) {
-                Triple<ByteArray, ByteArray, ByteArray> minMedianMax = getMinMedianMaxByteArrayKey(dimension);
-                ByteArray min = minMedianMax.getLeft();
-                ByteArray median = minMedianMax.getMiddle();
-                ByteArray max = minMedianMax.getRight();
-                LOGGER.debug("Min = {}, median = {}, max = {}", min, median, max);
-                if (min.compareTo(max) > 0) {
-                    throw new RuntimeException("Min > max");
-                }
-                if (min.compareTo(median) < 0 && median.compareTo(max) < 0) {
-                    LOGGER.debug("For dimension {} min < median && median < max", dimension);
-                    splitPartition(partition, median.getArray(), dimension);
-                    return;
-                } else {
-                    LOGGER.info("For dimension {} it is not true that min < median && median < max, so NOT splitting", dimension);
-                }
+            ItemsSketch<Comparable<Object>> sketch = unionSketches(sketchesList, dimension);
+            if (sketch.isEmpty()) {
+                LOGGER.info("For dimension {} there is no data, so NOT splitting", dimension);
+                continue;
+            }
+            Comparable<Object> min = sketch.getMinValue();
+            Comparable<Object> median = sketch.getQuantile(0.5D);
+            Comparable<Object> max = sketch.getMaxValue();
+            LOGGER.debug("Min = {}, median = {}, max = {}", min, median, max);
+            if (min.compareTo(max) > 0) {
+                throw new RuntimeException("Min > max");
+            }
+            if (min.compareTo(median) < 0 && median.compareTo(max) < 0) {
+                LOGGER.info("For dimension {} min < median && median < max, so splitting", dimension);
+                splitPartition(sketch, dimension, chooseDepth(sketch.getN()));
+                return;
             } else {
-                throw new RuntimeException("Unknown type " + rowKeyType);
+                LOGGER.info("For dimension {} it is not true that min < median && median < max, so NOT splitting", dimension);
             }
         }
     }
 
-    private Triple<Integer, Integer, Integer> getMinMedianMaxIntKey(int dimension) throws IOException {
-        String keyField = schema.getRowKeyFields().get(dimension).getName();
-
-        // Read all sketches
-        List<ItemsSketch<Integer>> sketchList = new ArrayList<>();
+    private List<Sketches> loadSketches() throws IOException {
+        List<Sketches> sketchesList = new ArrayList<>();
         for (String fileName : fileNames) {
             String sketchesFile = fileName.replace(".parquet", ".sketches");
             LOGGER.info("Loading Sketches from {}", sketchesFile);
-            Sketches sketches = new SketchesSerDeToS3(schema).loadFromHadoopFS(new Path(sketchesFile), conf);
-            sketchList.add((ItemsSketch<Integer>) sketches.getQuantilesSketch(keyField));
-        }
-
-        // Union all the sketches
-        ItemsUnion<Integer> union = ItemsUnion.getInstance(16384, Comparator.naturalOrder());
-        for (ItemsSketch<Integer> s : sketchList) {
-            union.update(s);
+            sketchesList.add(new SketchesSerDeToS3(schema).loadFromHadoopFS(new Path(sketchesFile), conf));
         }
-        ItemsSketch<Integer> sketch = union.getResult();
-
-        Integer min = sketch.getMinValue();
-        Integer median = sketch.getQuantile(0.5D);
-        Integer max = sketch.getMaxValue();
-        return new ImmutableTriple<>(min, median, max);
+        return sketchesList;
     }
 
-    private Triple<Long, Long, Long> getMinMedianMaxLongKey(int dimension) throws IOException {
+    @SuppressWarnings("unchecked")
+    private ItemsSketch<Comparable<Object>> unionSketches(List<Sketches> sketchesList, int dimension) {
         String keyField = schema.getRowKeyFields().get(dimension).getName();
-
-        // Read all sketches
-        List<ItemsSketch<Long>> sketchList = new ArrayList<>();
-        for (String fileName : fileNames) {
-            String sketchesFile = fileName.replace(".parquet", ".sketches");
-            LOGGER.info("Loading Sketches from {}", sketchesFile);
-            Sketches sketches = new SketchesSerDeToS3(schema).loadFromHadoopFS(new Path(sketchesFile), conf);
-            sketchList.add((ItemsSketch<Long>) sketches.getQuantilesSketch(keyField));
+        ItemsUnion<Comparable<Object>> union = ItemsUnion.getInstance(16384, Comparator.naturalOrder());
+        for (Sketches sketches : sketchesList) {
+            union.update((ItemsSketch<Comparable<Object>>) sketches.getQuantilesSketch(keyField));
         }
+        return union.getResult();
+    }
 
-        // Union all the sketches
-        ItemsUnion<Long> union = ItemsUnion.getInstance(16384, Comparator.naturalOrder());
-        for (ItemsSketch<Long> s : sketchList) {
-            union.update(s);
-        }
-        ItemsSketch<Long> sketch = union.getResult();
-
-        Long min = sketch.getMinValue();
-        Long median = sketch.getQuantile(0.5D);
-        Long max = sketch.getMaxValue();
-        return new ImmutableTriple<>(min, median, max);
+    /**
+     * Chooses the depth of the tree of new partitions, so that each leaf would be under the split threshold if the
+     * data were evenly divided between them.
+     *
+     * @param numberOfRecords the number of records in the partition
+     * @return the depth, between 1 and the maximum depth
+     */
+    private int chooseDepth(long numberOfRecords) {
+        int depth = Math.max(1, PartitionSubtreeFactory.chooseDepth(numberOfRecords, splitThreshold, maxDepth));
+        LOGGER.info("Partition {} has {} records, split threshold is {}, so splitting to depth {}",
+                partition.getId(), numberOfRecords, splitThreshold, depth);
+        return depth;
     }
 
-    private Triple<String, String, String> getMinMedianMaxStringKey(int dimension) throws IOException {
-        String keyField = schema.getRowKeyFields().get(dimension).getName();
+    private void splitPartition(ItemsSketch<Comparable<Object>> sketch, int dimension, int depth)
+            throws StateStoreException {
+        List<Partition> newPartitions = new ArrayList<>();
+        Partition splitPartition = new PartitionSubtreeFactory(schema, idSupplier).splitToDepth(
+                partition, dimension, depth, new SketchDistribution(sketch),
+                sketch.getMinValue(), sketch.getMaxValue(), newPartitions);
 
-        // Read all sketches
-        List<ItemsSketch<String>> sketchList = new ArrayList<>();
-        for (String fileName : fileNames) {
-            String sketchesFile = fileName.replace(".parquet", ".sketches");
-            LOGGER.info("Loading Sketches from {}", sketchesFile);
-            Sketches sketches = new SketchesSerDeToS3(schema).loadFromHadoopFS(new Path(sketchesFile), conf);
-            sketchList.add((ItemsSketch<String>) sketches.getQuantilesSketch(keyField));
+        LOGGER.info("Updating StateStore:");
+        LOGGER.info("Split partition ({}) is marked as not a leaf partition, split on field {}",
+                splitPartition.getId(), schema.getRowKeyFields().get(dimension).getName());
+        for (Partition newPartition : newPartitions) {
+            LOGGER.info("New partition: {}", newPartition);
         }
 
-        // Union all the sketches
-        ItemsUnion<String> union = ItemsUnion.getInstance(16384, Comparator.naturalOrder());
-        for (ItemsSketch<String> s : sketchList) {
-            union.update(s);
+        if (newPartitions.size() == 2) {
+            stateStore.atomicallyUpdatePartitionAndCreateNewOnes(splitPartition, newPartitions.get(0), newPartitions.get(1));
+        } else {
+            stateStore.atomicallyUpdatePartitionAndCreateNewOnes(splitPartition, newPartitions);
         }
-        ItemsSketch<String> sketch = union.getResult();
-
-        String min = sketch.getMinValue();
-        String median = sketch.getQuantile(0.5D);
-        String max = sketch.getMaxValue();
-        return new ImmutableTriple<>(min, median, max);
     }
 
-    private Triple<ByteArray, ByteArray, ByteArray> getMinMedianMaxByteArrayKey(int dimension) throws IOException {
-        String keyField = schema.getRowKeyFields().get(dimension).getName();
+    /**
+     * The distribution of values in a sketch of one dimension of the row keys.
+     */
+    private static class SketchDistribution implements PartitionSubtreeFactory.Distribution<Comparable<Object>> {
+        private final ItemsSketch<Comparable<Object>> sketch;
 
-        // Read all sketches
-        List<ItemsSketch<ByteArray>> sketchList = new ArrayList<>();
-        for (String fileName : fileNames) {
-            String sketchesFile = fileName.replace(".parquet", ".sketches");
-            LOGGER.info("Loading Sketches from {}", sketchesFile);
-            Sketches sketches = new SketchesSerDeToS3(schema).loadFromHadoopFS(new Path(sketchesFile), conf);
-            sketchList.add((ItemsSketch<ByteArray>) sketches.getQuantilesSketch(keyField));
+        SketchDistribution(ItemsSketch<Comparable<Object>> sketch) {
+            this.sketch = sketch;
         }
 
-        // Union all the sketches
-        ItemsUnion<ByteArray> union = ItemsUnion.getInstance(16384, Comparator.naturalOrder());
-        for (ItemsSketch<ByteArray> s : sketchList) {
-            union.update(s);
+        @Override
+        public Comparable<Object> getValueAtRank(double rank) {
+            return sketch.getQuantile(rank);
         }
-        ItemsSketch<ByteArray> sketch = union.getResult();
 
-        ByteArray min = sketch.getMinValue();
-        ByteArray median = sketch.getQuantile(0.5D);
-        ByteArray max = sketch.getMaxValue();
-        return new ImmutableTriple<>(min, median, max);
-    }
-
-    private List<Range> removeRange(List<Range> inputRanges, String rangeToRemove) {
-        return inputRanges.stream()
-                .filter(r -> !r.getFieldName().equals(rangeToRemove))
-                .collect(Collectors.toList());
-    }
-
-    private void splitPartition(Partition partition, Object splitPoint, int dimension)
-            throws StateStoreException {
-        Field fieldToSplitOn = schema.getRowKeyFields().get(dimension);
-        LOGGER.info("Splitting partition {} on split point {} in dimension {}", partition.getId(), splitPoint, dimension);
-
-        // New partitions
-        List<Range> leftChildRanges = removeRange(partition.getRegion().getRanges(), fieldToSplitOn.getName());
-        Range rangeForSplitDimensionLeftChild = rangeFactory.createRange(fieldToSplitOn, partition.getRegion().getRange(fieldToSplitOn.getName()).getMin(), splitPoint);
-        leftChildRanges.add(rangeForSplitDimensionLeftChild);
-        Region leftChildRegion = new Region(leftChildRanges);
-        Partition leftChild = Partition.builder()
-                .rowKeyTypes(schema.getRowKeyTypes())
-                .region(leftChildRegion)
-                .id(idSupplier.get())
-                .leafPartition(true)
-                .parentPartitionId(partition.getId())
-                .childPartitionIds(new ArrayList<>())
-                .dimension(-1)
-                .build();
-
-        List<Range> rightChildRanges = removeRange(partition.getRegion().getRanges(), fieldToSplitOn.getName());
-        Range rangeForSplitDimensionRightChild = rangeFactory.createRange(fieldToSplitOn, splitPoint, partition.getRegion().getRange(fieldToSplitOn.getName()).getMax());
-        rightChildRanges.add(rangeForSplitDimensionRightChild);
-        Region rightChildRegion = new Region(rightChildRanges);
-        Partition rightChild = Partition.builder()
-                .rowKeyTypes(schema.getRowKeyTypes())
-                .region(rightChildRegion)
-                .id(idSupplier.get())
-                .leafPartition(true)
-                .parentPartitionId(partition.getId())
-                .childPartitionIds(new ArrayList<>())
-                .dimension(-1)
-                .build();
-
-        // Updated split partition
-        partition = partition.toBuilder()
-                .leafPartition(false)
-                .childPartitionIds(Arrays.asList(leftChild.getId(), rightChild.getId()))
-                .dimension(dimension).build();
-
-        LOGGER.info("Updating StateStore:");
-        LOGGER.info("Split partition ({}) is marked as not a leaf partition, split on field {}",
-                partition.getId(), fieldToSplitOn.getName());
-        LOGGER.info("New partition: {}", leftChild);
-        LOGGER.info("New partition: {}", rightChild);
+        @Override
+        public int compare(Comparable<Object> value1, Comparable<Object> value2) {
+            return value1.compareTo(value2);
+        }
 
-        stateStore.atomicallyUpdatePartitionAndCreateNewOnes(partition, leftChild, rightChild);
+        @Override
+        public Object toRangeValue(Comparable<Object> value) {
+            Object rangeValue = value;
+            if (rangeValue instanceof ByteArray) {
+                return ((ByteArray) rangeValue).getArray();
+            }
+            return rangeValue;
+        }
     }
 }
@@ -17,6 +17,7 @@ package sleeper.splitter;
 
 import org.apache.hadoop.conf.Configuration;
 
+import sleeper.configuration.properties.table.TableProperties;
 import sleeper.core.partition.Partition;
 import sleeper.core.schema.Schema;
 import sleeper.statestore.StateStore;
@@ -27,6 +28,9 @@ import java.util.List;
 import java.util.UUID;
 import java.util.function.Supplier;
 
+import static sleeper.configuration.properties.table.TableProperty.PARTITION_SPLIT_MAX_DEPTH;
+import static sleeper.configuration.properties.table.TableProperty.PARTITION_SPLIT_THRESHOLD;
+
 /**
  * Splits a partition by calling {@link SplitMultiDimensionalPartitionImpl}.
  */
@@ -35,6 +39,8 @@ public class SplitPartition {
     private final Schema schema;
     private final Configuration conf;
     private final Supplier<String> idSupplier;
+    private final long splitThreshold;
+    private final int maxDepth;
 
     public SplitPartition(StateStore stateStore,
                           Schema schema,
@@ -42,19 +48,46 @@ public class SplitPartition {
         this(stateStore, schema, conf, () -> UUID.randomUUID().toString());
     }
 
+    public SplitPartition(StateStore stateStore,
+                          TableProperties tableProperties,
+                          Configuration conf) {
+        this(stateStore, tableProperties, conf, () -> UUID.randomUUID().toString());
+    }
+
+    public SplitPartition(StateStore stateStore,
+                          TableProperties tableProperties,
+                          Configuration conf,
+                          Supplier<String> idSupplier) {
+        this(stateStore, tableProperties.getSchema(), conf, idSupplier,
+                tableProperties.getLong(PARTITION_SPLIT_THRESHOLD),
+                tableProperties.getInt(PARTITION_SPLIT_MAX_DEPTH));
+    }
+
     public SplitPartition(StateStore stateStore,
                           Schema schema,
                           Configuration conf,
                           Supplier<String> idSupplier) {
+        this(stateStore, schema, conf, idSupplier, Long.MAX_VALUE, 1);
+    }
+
+    private SplitPartition(StateStore stateStore,
+                           Schema schema,
+                           Configuration conf,
+                           Supplier<String> idSupplier,
+                           long splitThreshold,
+                           int maxDepth) {
         this.stateStore = stateStore;
         this.schema = schema;
         this.conf = conf;
         this.idSupplier = idSupplier;
+        this.splitThreshold = splitThreshold;
+        this.maxDepth = maxDepth;
     }
 
     public void splitPartition(Partition partition, List<String> fileNames)
             throws StateStoreException, IOException {
-        new SplitMultiDimensionalPartitionImpl(stateStore, schema, partition, fileNames, conf, idSupplier)
+        new SplitMultiDimensionalPartitionImpl(stateStore, schema, partition, fileNames, conf, idSupplier,
+                splitThreshold, maxDepth)
                 .splitPartition();
     }
 }
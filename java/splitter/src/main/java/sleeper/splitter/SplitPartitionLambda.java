@@ -77,7 +77,7 @@ public class SplitPartitionLambda implements RequestHandler<SQSEvent, Void> {
                 LOGGER.info("Received partition splitting job {}", job);
                 TableProperties tableProperties = tablePropertiesProvider.getTableProperties(job.getTableName());
                 StateStore stateStore = stateStoreProvider.getStateStore(tableProperties);
-                SplitPartition splitPartition = new SplitPartition(stateStore, tableProperties.getSchema(), conf);
+                SplitPartition splitPartition = new SplitPartition(stateStore, tableProperties, conf);
                 splitPartition.splitPartition(job.getPartition(), job.getFileNames());
             }
         } catch (IOException | StateStoreException ex) {
@@ -22,6 +22,8 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
+import sleeper.configuration.properties.instance.InstanceProperties;
+import sleeper.configuration.properties.table.TableProperties;
 import sleeper.core.partition.Partition;
 import sleeper.core.partition.PartitionTree;
 import sleeper.core.partition.PartitionsBuilder;
@@ -56,6 +58,9 @@ import java.util.stream.Stream;
 
 import static java.nio.file.Files.createTempDirectory;
 import static org.assertj.core.api.Assertions.assertThat;
+import static sleeper.configuration.properties.table.TablePropertiesTestHelper.createTestTableProperties;
+import static sleeper.configuration.properties.table.TableProperty.PARTITION_SPLIT_MAX_DEPTH;
+import static sleeper.configuration.properties.table.TableProperty.PARTITION_SPLIT_THRESHOLD;
 import static sleeper.statestore.inmemory.StateStoreTestHelper.inMemoryStateStoreWithPartitions;
 
 public class SplitPartitionIT {
@@ -500,6 +505,90 @@ public class SplitPartitionIT {
         }
     }
 
+    @Nested
+    @DisplayName("Split into subtree")
+    class SplitIntoSubtree {
+        @Test
+        void shouldSplitPartitionToDepthNeededToMeetThreshold() throws Exception {
+            // Given
+            StateStore stateStore = inMemoryStateStoreWithPartitions(new PartitionsBuilder(schema)
+                    .singlePartition("A")
+                    .buildList());
+            IntStream.range(0, 10).forEach(i ->
+                    ingestFileFromRecords(schema, stateStore,
+                            IntStream.range(100 * i, 100 * (i + 1)).mapToObj(r ->
+                                    new Record(Map.of("key", r))))
+            );
+            TableProperties tableProperties = createTestTableProperties(new InstanceProperties(), schema);
+            tableProperties.set(PARTITION_SPLIT_THRESHOLD, "250");
+            tableProperties.set(PARTITION_SPLIT_MAX_DEPTH, "3");
+
+            // When
+            splitSinglePartition(tableProperties, stateStore, generateIds("B", "C", "D", "E", "F", "G"));
+
+            // Then
+            assertThat(stateStore.getAllPartitions())
+                    .containsExactlyInAnyOrderElementsOf(new PartitionsBuilder(schema)
+                            .rootFirst("A")
+                            .splitToNewChildren("A", "B", "C", 500)
+                            .splitToNewChildren("B", "D", "E", 250)
+                            .splitToNewChildren("C", "F", "G", 750)
+                            .buildList());
+        }
+
+        @Test
+        void shouldLimitDepthOfSplit() throws Exception {
+            // Given
+            StateStore stateStore = inMemoryStateStoreWithPartitions(new PartitionsBuilder(schema)
+                    .singlePartition("A")
+                    .buildList());
+            IntStream.range(0, 10).forEach(i ->
+                    ingestFileFromRecords(schema, stateStore,
+                            IntStream.range(100 * i, 100 * (i + 1)).mapToObj(r ->
+                                    new Record(Map.of("key", r))))
+            );
+            TableProperties tableProperties = createTestTableProperties(new InstanceProperties(), schema);
+            tableProperties.set(PARTITION_SPLIT_THRESHOLD, "10");
+            tableProperties.set(PARTITION_SPLIT_MAX_DEPTH, "1");
+
+            // When
+            splitSinglePartition(tableProperties, stateStore, generateIds("B", "C"));
+
+            // Then
+            assertThat(stateStore.getAllPartitions())
+                    .containsExactlyInAnyOrderElementsOf(new PartitionsBuilder(schema)
+                            .rootFirst("A")
+                            .splitToNewChildren("A", "B", "C", 500)
+                            .buildList());
+        }
+
+        @Test
+        void shouldLeaveNewPartitionAsLeafWhenItCannotBeSplitFurther() throws Exception {
+            // Given
+            StateStore stateStore = inMemoryStateStoreWithPartitions(new PartitionsBuilder(schema)
+                    .singlePartition("A")
+                    .buildList());
+            IntStream.range(0, 10).forEach(i ->
+                    ingestFileFromRecords(schema, stateStore,
+                            IntStream.range(0, 100).mapToObj(r ->
+                                    new Record(Map.of("key", r < 50 ? 1 : 100 * i + r))))
+            );
+            TableProperties tableProperties = createTestTableProperties(new InstanceProperties(), schema);
+            tableProperties.set(PARTITION_SPLIT_THRESHOLD, "250");
+            tableProperties.set(PARTITION_SPLIT_MAX_DEPTH, "2");
+
+            // When
+            splitSinglePartition(tableProperties, stateStore, generateIds("B", "C", "D", "E"));
+
+            // Then
+            List<Partition> partitions = stateStore.getAllPartitions();
+            PartitionTree tree = new PartitionTree(schema, partitions);
+            assertThat(partitions).hasSize(5);
+            assertThat(tree.getPartition("B").isLeafPartition()).isTrue();
+            assertThat(tree.getPartition("C").getChildPartitionIds()).containsExactly("D", "E");
+        }
+    }
+
     private static void ingestRecordsFromIterator(Schema schema, StateStore stateStore, String localDir,
                                                   String filePathPrefix, Iterator<Record> recordIterator) throws Exception {
         ParquetConfiguration parquetConfiguration = IngestCoordinatorTestHelper.parquetConfiguration(schema, new Configuration());
@@ -532,6 +621,15 @@ public class SplitPartitionIT {
         partitionSplitter.splitPartition(partition, fileNames);
     }
 
+    private static void splitSinglePartition(TableProperties tableProperties, StateStore stateStore, Supplier<String> generateIds) throws Exception {
+        Partition partition = stateStore.getAllPartitions().get(0);
+        List<String> fileNames = stateStore.getActiveFiles().stream()
+                .map(FileInfo::getFilename)
+                .collect(Collectors.toList());
+        SplitPartition partitionSplitter = new SplitPartition(stateStore, tableProperties, new Configuration(), generateIds);
+        partitionSplitter.splitPartition(partition, fileNames);
+    }
+
     private static void splitPartition(Schema schema, StateStore stateStore, String partitionId, Supplier<String> generateIds) throws Exception {
         PartitionTree tree = new PartitionTree(schema, stateStore.getAllPartitions());
         Partition partition = tree.getPartition(partitionId);
@@ -50,6 +50,11 @@ public class DelegatingStateStore implements StateStore {
         fileInfoStore.atomicallyUpdateFilesToReadyForGCAndCreateNewActiveFiles(filesToBeMarkedReadyForGC, leftFileInfo, rightFileInfo);
     }
 
+    @Override
+    public void updateFilesToReadyForGC(List<FileInfo> filesToBeMarkedReadyForGC) throws StateStoreException {
+        fileInfoStore.updateFilesToReadyForGC(filesToBeMarkedReadyForGC);
+    }
+
     @Override
     public void atomicallyUpdateJobStatusOfFiles(String jobId, List<FileInfo> fileInfos) throws StateStoreException {
         fileInfoStore.atomicallyUpdateJobStatusOfFiles(jobId, fileInfos);
@@ -60,6 +65,16 @@ public class DelegatingStateStore implements StateStore {
         fileInfoStore.deleteReadyForGCFile(fileInfo);
     }
 
+    @Override
+    public FileStatistics getActiveFileStatistics() throws StateStoreException {
+        return fileInfoStore.getActiveFileStatistics();
+    }
+
+    @Override
+    public void deleteReadyForGCFiles(List<FileInfo> fileInfos) throws StateStoreException {
+        fileInfoStore.deleteReadyForGCFiles(fileInfos);
+    }
+
     @Override
     public List<FileInfo> getActiveFiles() throws StateStoreException {
         return fileInfoStore.getActiveFiles();
@@ -97,6 +112,11 @@ public class DelegatingStateStore implements StateStore {
         partitionStore.atomicallyUpdatePartitionAndCreateNewOnes(splitPartition, newPartition1, newPartition2);
     }
 
+    @Override
+    public void atomicallyUpdatePartitionAndCreateNewOnes(Partition splitPartition, List<Partition> newPartitions) throws StateStoreException {
+        partitionStore.atomicallyUpdatePartitionAndCreateNewOnes(splitPartition, newPartitions);
+    }
+
     @Override
     public List<Partition> getAllPartitions() throws StateStoreException {
         return partitionStore.getAllPartitions();
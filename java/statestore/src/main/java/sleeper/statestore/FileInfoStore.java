@@ -67,6 +67,17 @@ public interface FileInfoStore {
                                                                   FileInfo leftFileInfo,
                                                                   FileInfo rightFileInfo) throws StateStoreException;
 
+    /**
+     * Changes the status of some files from {@link FileInfo.FileStatus.ACTIVE} to
+     * {@link FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION} without replacing them. This is used when every record
+     * in the files would be removed by a compaction, e.g. because they have all aged off. The update fails if any of
+     * the files is not active or has a job id. Large numbers of files may be updated in several atomic batches.
+     *
+     * @param filesToBeMarkedReadyForGC The files to be marked as {@link FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION}
+     * @throws StateStoreException if update fails
+     */
+    void updateFilesToReadyForGC(List<FileInfo> filesToBeMarkedReadyForGC) throws StateStoreException;
+
     /**
      * Atomically updates the job field of the input files of the compactionJob to the job
      * id, as long as the job field is currently null.
@@ -86,6 +97,16 @@ public interface FileInfoStore {
      */
     void deleteReadyForGCFile(FileInfo fileInfo) throws StateStoreException;
 
+    /**
+     * Deletes these files with the status of {@link FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION}. This should
+     * be used to delete many files at once, as it will make fewer updates to the store than deleting each file
+     * separately.
+     *
+     * @param fileInfos The FileInfos to be deleted.
+     * @throws StateStoreException if update fails
+     */
+    void deleteReadyForGCFiles(List<FileInfo> fileInfos) throws StateStoreException;
+
     /**
      * Returns all {@link FileInfo}s with a status of status.
      *
@@ -94,6 +115,15 @@ public interface FileInfoStore {
      */
     List<FileInfo> getActiveFiles() throws StateStoreException;
 
+    /**
+     * Returns aggregate statistics about the active files. Where the store maintains these as files are updated,
+     * this avoids loading every file.
+     *
+     * @return the statistics of the active files
+     * @throws StateStoreException if query fails
+     */
+    FileStatistics getActiveFileStatistics() throws StateStoreException;
+
     /**
      * Returns an {@link Iterator} of files that are ready for garbage collection, i.e. their status is
      * {@link FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION} and the last update time is more than
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Aggregate statistics about the active files in a table. These are used to report metrics about a table without
+ * needing to load every file.
+ */
+public class FileStatistics {
+    private final long fileCount;
+    private final long recordCount;
+    private final long maxRecordsInPartition;
+    private final SortedMap<Integer, Long> partitionsByFileCount;
+
+    public FileStatistics(long fileCount, long recordCount, long maxRecordsInPartition,
+                          Map<Integer, Long> partitionsByFileCount) {
+        this.fileCount = fileCount;
+        this.recordCount = recordCount;
+        this.maxRecordsInPartition = maxRecordsInPartition;
+        this.partitionsByFileCount = Collections.unmodifiableSortedMap(new TreeMap<>(partitionsByFileCount));
+    }
+
+    /**
+     * Computes statistics for the active files in a list. Any files which are not active are ignored.
+     *
+     * @param  files the files
+     * @return       the statistics of the active files
+     */
+    public static FileStatistics from(Collection<FileInfo> files) {
+        long fileCount = 0;
+        long recordCount = 0;
+        Map<String, Integer> filesByPartition = new HashMap<>();
+        Map<String, Long> recordsByPartition = new HashMap<>();
+        for (FileInfo file : files) {
+            if (file.getFileStatus() != FileInfo.FileStatus.ACTIVE) {
+                continue;
+            }
+            long records = file.getNumberOfRecords() == null ? 0 : file.getNumberOfRecords();
+            fileCount++;
+            recordCount += records;
+            filesByPartition.merge(file.getPartitionId(), 1, Integer::sum);
+            recordsByPartition.merge(file.getPartitionId(), records, Long::sum);
+        }
+        Map<Integer, Long> partitionsByFileCount = new HashMap<>();
+        filesByPartition.values().forEach(count -> partitionsByFileCount.merge(count, 1L, Long::sum));
+        long maxRecordsInPartition = recordsByPartition.values().stream().mapToLong(r -> r).max().orElse(0);
+        return new FileStatistics(fileCount, recordCount, maxRecordsInPartition, partitionsByFileCount);
+    }
+
+    public static FileStatistics empty() {
+        return new FileStatistics(0, 0, 0, Map.of());
+    }
+
+    public long getFileCount() {
+        return fileCount;
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    public long getMaxRecordsInPartition() {
+        return maxRecordsInPartition;
+    }
+
+    /**
+     * A histogram of the number of files in each partition. This maps from a number of files to the number of
+     * partitions which have that many files. Partitions with no files are not included.
+     *
+     * @return the histogram, ordered by number of files
+     */
+    public SortedMap<Integer, Long> getPartitionsByFileCount() {
+        return partitionsByFileCount;
+    }
+
+    public long getPartitionsWithFiles() {
+        return partitionsByFileCount.values().stream().mapToLong(count -> count).sum();
+    }
+
+    public int getMinFilesInPartition() {
+        return partitionsByFileCount.isEmpty() ? 0 : partitionsByFileCount.firstKey();
+    }
+
+    /**
+     * The largest number of files in any partition. A query that covers that partition will need to read this many
+     * files, so this is the worst case read amplification for the table.
+     *
+     * @return the largest number of files in one partition
+     */
+    public int getMaxFilesInPartition() {
+        return partitionsByFileCount.isEmpty() ? 0 : partitionsByFileCount.lastKey();
+    }
+
+    public double getAverageFilesPerPartition() {
+        long partitions = getPartitionsWithFiles();
+        return partitions == 0 ? 0 : (double) fileCount / partitions;
+    }
+
+    /**
+     * The ratio of the records in the largest partition to the average records in a partition, out of partitions
+     * with files. This is 1 when records are spread evenly.
+     *
+     * @return the skew of records across partitions
+     */
+    public double getPartitionRecordSkew() {
+        long partitions = getPartitionsWithFiles();
+        if (partitions == 0 || recordCount == 0) {
+            return 0;
+        }
+        return maxRecordsInPartition / ((double) recordCount / partitions);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FileStatistics that = (FileStatistics) o;
+        return fileCount == that.fileCount && recordCount == that.recordCount
+                && maxRecordsInPartition == that.maxRecordsInPartition
+                && partitionsByFileCount.equals(that.partitionsByFileCount);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileCount, recordCount, maxRecordsInPartition, partitionsByFileCount);
+    }
+
+    @Override
+    public String toString() {
+        return "FileStatistics{" +
+                "fileCount=" + fileCount +
+                ", recordCount=" + recordCount +
+                ", maxRecordsInPartition=" + maxRecordsInPartition +
+                ", partitionsByFileCount=" + partitionsByFileCount +
+                '}';
+    }
+}
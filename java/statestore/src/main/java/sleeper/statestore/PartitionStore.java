@@ -37,6 +37,18 @@ public interface PartitionStore {
                                                    Partition newPartition1,
                                                    Partition newPartition2) throws StateStoreException;
 
+    /**
+     * Atomically updates a {@link Partition} and adds a tree of new partitions below it, conditional on the
+     * splitPartition being marked as a leaf partition. This allows a partition to be split into more than two leaf
+     * partitions in one update.
+     *
+     * @param splitPartition The {@link Partition} to be updated
+     * @param newPartitions  The new {@link Partition}s, which must form a tree with splitPartition at its root
+     * @throws StateStoreException if split is not valid or update fails
+     */
+    void atomicallyUpdatePartitionAndCreateNewOnes(Partition splitPartition,
+                                                   List<Partition> newPartitions) throws StateStoreException;
+
     /**
      * Returns all the {@link Partition}s.
      *
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore;
+
+import sleeper.core.partition.Partition;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+
+/**
+ * Validates a request to split a partition into a subtree of new partitions, independently of how the partitions are
+ * stored.
+ */
+public class PartitionSubtreeValidation {
+
+    private PartitionSubtreeValidation() {
+    }
+
+    /**
+     * Checks that the new partitions form a tree below the split partition. Every new partition must be reachable from
+     * the split partition, and the child partition IDs of each non-leaf partition must match the parent partition IDs
+     * of the new partitions.
+     *
+     * @param splitPartition the updated partition which is being split
+     * @param newPartitions  the partitions to be created below the split partition
+     * @throws StateStoreException if the new partitions do not form a valid tree below the split partition
+     */
+    public static void validate(Partition splitPartition, List<Partition> newPartitions) throws StateStoreException {
+        if (splitPartition.isLeafPartition()) {
+            throw new StateStoreException("Split partition is a leaf partition (splitPartition = " + splitPartition + ")");
+        }
+        Map<String, Partition> idToNewPartition = new HashMap<>();
+        Map<String, Set<String>> parentIdToChildIds = new HashMap<>();
+        for (Partition partition : newPartitions) {
+            if (partition.getId().equals(splitPartition.getId())
+                    || null != idToNewPartition.put(partition.getId(), partition)) {
+                throw new StateStoreException("Partition ID " + partition.getId() + " appears more than once in the split");
+            }
+            parentIdToChildIds.computeIfAbsent(partition.getParentPartitionId(), id -> new HashSet<>())
+                    .add(partition.getId());
+        }
+        // Walk the tree from the split partition, checking each partition's children agree with their parent
+        Set<String> reached = new HashSet<>();
+        Queue<Partition> toCheck = new ArrayDeque<>();
+        toCheck.add(splitPartition);
+        while (!toCheck.isEmpty()) {
+            Partition partition = toCheck.remove();
+            Set<String> childIds = parentIdToChildIds.getOrDefault(partition.getId(), Set.of());
+            if (partition.isLeafPartition()) {
+                if (!childIds.isEmpty()) {
+                    throw new StateStoreException("Leaf partition " + partition.getId() + " is the parent of new partitions " + childIds);
+                }
+                continue;
+            }
+            if (!childIds.equals(new HashSet<>(partition.getChildPartitionIds()))) {
+                throw new StateStoreException("Children of partition " + partition.getId() + " do not equal the new partitions with it as their parent");
+            }
+            for (String childId : childIds) {
+                reached.add(childId);
+                toCheck.add(idToNewPartition.get(childId));
+            }
+        }
+        if (reached.size() != newPartitions.size()) {
+            throw new StateStoreException("Not all new partitions are below the split partition");
+        }
+    }
+}
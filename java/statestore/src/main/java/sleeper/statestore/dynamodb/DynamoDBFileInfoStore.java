@@ -17,11 +17,14 @@ package sleeper.statestore.dynamodb;
 
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
 import com.amazonaws.services.dynamodbv2.model.ConditionalCheckFailedException;
 import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
 import com.amazonaws.services.dynamodbv2.model.Delete;
 import com.amazonaws.services.dynamodbv2.model.DeleteItemRequest;
 import com.amazonaws.services.dynamodbv2.model.DeleteItemResult;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
 import com.amazonaws.services.dynamodbv2.model.IdempotentParameterMismatchException;
 import com.amazonaws.services.dynamodbv2.model.InternalServerErrorException;
 import com.amazonaws.services.dynamodbv2.model.ItemCollectionSizeLimitExceededException;
@@ -39,12 +42,14 @@ import com.amazonaws.services.dynamodbv2.model.TransactWriteItemsResult;
 import com.amazonaws.services.dynamodbv2.model.TransactionCanceledException;
 import com.amazonaws.services.dynamodbv2.model.TransactionConflictException;
 import com.amazonaws.services.dynamodbv2.model.TransactionInProgressException;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import sleeper.core.schema.Schema;
 import sleeper.statestore.FileInfo;
 import sleeper.statestore.FileInfoStore;
+import sleeper.statestore.FileStatistics;
 import sleeper.statestore.StateStoreException;
 
 import java.io.IOException;
@@ -73,6 +78,9 @@ import static sleeper.statestore.dynamodb.DynamoDBStateStore.FILE_NAME;
 public class DynamoDBFileInfoStore implements FileInfoStore {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBFileInfoStore.class);
+    private static final long UNPROCESSED_RETRY_BASE_MILLIS = 50L;
+    private static final long UNPROCESSED_RETRY_MAX_MILLIS = 5000L;
+    private static final int UNPROCESSED_MAX_RETRIES_WITHOUT_PROGRESS = 10;
 
     private final AmazonDynamoDB dynamoDB;
     private final Schema schema;
@@ -230,6 +238,47 @@ public class DynamoDBFileInfoStore implements FileInfoStore {
         }
     }
 
+    @Override
+    public void updateFilesToReadyForGC(List<FileInfo> filesToBeMarkedReadyForGC) throws StateStoreException {
+        // A transaction may contain at most 100 writes, and each file needs a delete and a put
+        for (int start = 0; start < filesToBeMarkedReadyForGC.size(); start += 50) {
+            List<FileInfo> batch = filesToBeMarkedReadyForGC.subList(start, Math.min(start + 50, filesToBeMarkedReadyForGC.size()));
+            List<TransactWriteItem> writes = new ArrayList<>();
+            for (FileInfo fileInfo : batch) {
+                Map<String, AttributeValue> key = new HashMap<>();
+                key.put(FILE_NAME, createStringAttribute(fileInfo.getFilename()));
+                Map<String, String> expressionAttributeNames = new HashMap<>();
+                expressionAttributeNames.put("#status", STATUS);
+                expressionAttributeNames.put("#jobid", JOB_ID);
+                Delete delete = new Delete()
+                        .withTableName(activeTablename)
+                        .withKey(key)
+                        .withExpressionAttributeNames(expressionAttributeNames)
+                        .withConditionExpression("attribute_exists(#status) and attribute_not_exists(#jobid)");
+                writes.add(new TransactWriteItem().withDelete(delete));
+                Map<String, AttributeValue> newItem = fileInfoFormat.createRecordWithStatus(fileInfo, READY_FOR_GARBAGE_COLLECTION);
+                Put put = new Put()
+                        .withTableName(readyForGCTablename)
+                        .withItem(newItem);
+                writes.add(new TransactWriteItem().withPut(put));
+            }
+            TransactWriteItemsRequest transactWriteItemsRequest = new TransactWriteItemsRequest()
+                    .withTransactItems(writes)
+                    .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            try {
+                TransactWriteItemsResult transactWriteItemsResult = dynamoDB.transactWriteItems(transactWriteItemsRequest);
+                List<ConsumedCapacity> consumedCapacity = transactWriteItemsResult.getConsumedCapacity();
+                double totalConsumed = consumedCapacity.stream().mapToDouble(ConsumedCapacity::getCapacityUnits).sum();
+                LOGGER.debug("Updated status of {} files to ready for GC, capacity consumed = {}",
+                        batch.size(), totalConsumed);
+            } catch (TransactionCanceledException | ResourceNotFoundException
+                     | TransactionInProgressException | IdempotentParameterMismatchException
+                     | ProvisionedThroughputExceededException | InternalServerErrorException e) {
+                throw new StateStoreException(e);
+            }
+        }
+    }
+
     /**
      * Atomically updates the job field of the given files to the given id, as long as
      * the compactionJob field is currently null.
@@ -288,6 +337,76 @@ public class DynamoDBFileInfoStore implements FileInfoStore {
                 fileInfo.getFilename(), consumedCapacity.getCapacityUnits());
     }
 
+    @Override
+    public void deleteReadyForGCFiles(List<FileInfo> fileInfos) throws StateStoreException {
+        // A batch write may contain at most 25 requests
+        for (int start = 0; start < fileInfos.size(); start += 25) {
+            List<WriteRequest> deletes = fileInfos.subList(start, Math.min(start + 25, fileInfos.size())).stream()
+                    .map(fileInfo -> new WriteRequest().withDeleteRequest(new DeleteRequest()
+                            .withKey(Map.of(FILE_NAME, new AttributeValue(fileInfo.getFilename())))))
+                    .collect(Collectors.toList());
+            Map<String, List<WriteRequest>> requestItems = Map.of(readyForGCTablename, deletes);
+            double totalConsumed = 0;
+            int retries = 0;
+            int retriesWithoutProgress = 0;
+            try {
+                while (true) {
+                    int numRequested = numberOfRequests(requestItems);
+                    BatchWriteItemResult result = dynamoDB.batchWriteItem(new BatchWriteItemRequest()
+                            .withRequestItems(requestItems)
+                            .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL));
+                    totalConsumed += result.getConsumedCapacity().stream()
+                            .mapToDouble(ConsumedCapacity::getCapacityUnits).sum();
+                    requestItems = result.getUnprocessedItems();
+                    int numUnprocessed = numberOfRequests(requestItems);
+                    if (numUnprocessed == 0) {
+                        break;
+                    }
+                    retriesWithoutProgress = numUnprocessed < numRequested ? 0 : retriesWithoutProgress + 1;
+                    if (retriesWithoutProgress > UNPROCESSED_MAX_RETRIES_WITHOUT_PROGRESS) {
+                        throw new StateStoreException("Failed deleting " + numUnprocessed + " files ready for GC, "
+                                + "no progress after " + UNPROCESSED_MAX_RETRIES_WITHOUT_PROGRESS + " retries");
+                    }
+                    retries++;
+                    LOGGER.debug("{} deletes were unprocessed, retry {}", numUnprocessed, retries);
+                    sleepBeforeRetryingUnprocessed(retries);
+                }
+            } catch (ResourceNotFoundException | ProvisionedThroughputExceededException
+                     | RequestLimitExceededException | InternalServerErrorException e) {
+                throw new StateStoreException(e);
+            }
+            LOGGER.debug("Deleted {} files, capacity consumed = {}", deletes.size(), totalConsumed);
+        }
+    }
+
+    private static int numberOfRequests(Map<String, List<WriteRequest>> requestItems) {
+        if (null == requestItems) {
+            return 0;
+        }
+        return requestItems.values().stream().mapToInt(List::size).sum();
+    }
+
+    private static void sleepBeforeRetryingUnprocessed(int retries) throws StateStoreException {
+        // Implements exponential back-off with jitter, as recommended for unprocessed items, see
+        // https://aws.amazon.com/blogs/architecture/exponential-backoff-and-jitter/
+        long maxSleepMillis = Math.min(UNPROCESSED_RETRY_MAX_MILLIS,
+                UNPROCESSED_RETRY_BASE_MILLIS << Math.min(retries - 1, 16));
+        long sleepMillis = (long) (Math.random() * maxSleepMillis);
+        try {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StateStoreException("Interrupted retrying unprocessed deletes", e);
+        }
+    }
+
+    @Override
+    public FileStatistics getActiveFileStatistics() throws StateStoreException {
+        // Active files are held as separate items, so there is no single item to hold statistics that every update
+        // could maintain without contention
+        return FileStatistics.from(getActiveFiles());
+    }
+
     @Override
     public List<FileInfo> getActiveFiles() throws StateStoreException {
         try {
@@ -43,6 +43,7 @@ import sleeper.core.partition.Partition;
 import sleeper.core.partition.PartitionsFromSplitPoints;
 import sleeper.core.schema.Schema;
 import sleeper.statestore.PartitionStore;
+import sleeper.statestore.PartitionSubtreeValidation;
 import sleeper.statestore.StateStoreException;
 
 import java.io.IOException;
@@ -64,6 +65,7 @@ import static sleeper.statestore.dynamodb.DynamoDBPartitionFormat.IS_LEAF;
 public class DynamoDBPartitionStore implements PartitionStore {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(DynamoDBPartitionStore.class);
+    private static final int MAX_ITEMS_IN_TRANSACTION = 100;
 
     private final AmazonDynamoDB dynamoDB;
     private final String tableName;
@@ -107,6 +109,21 @@ public class DynamoDBPartitionStore implements PartitionStore {
         if (!newPartition1.isLeafPartition() || !newPartition2.isLeafPartition()) {
             throw new StateStoreException("newPartition1 and newPartition2 should be leaf partitions");
         }
+        writeSplitPartition(splitPartition, Arrays.asList(newPartition1, newPartition2));
+    }
+
+    @Override
+    public void atomicallyUpdatePartitionAndCreateNewOnes(
+            Partition splitPartition, List<Partition> newPartitions) throws StateStoreException {
+        PartitionSubtreeValidation.validate(splitPartition, newPartitions);
+        if (newPartitions.size() + 1 > MAX_ITEMS_IN_TRANSACTION) {
+            throw new StateStoreException("Cannot create more than " + (MAX_ITEMS_IN_TRANSACTION - 1)
+                    + " new partitions in one split, found " + newPartitions.size());
+        }
+        writeSplitPartition(splitPartition, newPartitions);
+    }
+
+    private void writeSplitPartition(Partition splitPartition, List<Partition> newPartitions) throws StateStoreException {
         List<TransactWriteItem> writes = new ArrayList<>();
         Map<String, AttributeValue> item;
         try {
@@ -122,7 +139,7 @@ public class DynamoDBPartitionStore implements PartitionStore {
                 .withExpressionAttributeValues(expressionAttributeValues)
                 .withConditionExpression(IS_LEAF + " = :true");
         writes.add(new TransactWriteItem().withPut(put));
-        for (Partition partition : Arrays.asList(newPartition1, newPartition2)) {
+        for (Partition partition : newPartitions) {
             Map<String, AttributeValue> item2;
             try {
                 item2 = partitionFormat.getItemFromPartition(partition);
@@ -39,6 +39,7 @@ import sleeper.io.parquet.record.ParquetRecordReader;
 import sleeper.io.parquet.record.ParquetRecordWriterFactory;
 import sleeper.statestore.FileInfo;
 import sleeper.statestore.FileInfoStore;
+import sleeper.statestore.FileStatistics;
 import sleeper.statestore.StateStoreException;
 
 import java.io.IOException;
@@ -203,6 +204,45 @@ public class S3FileInfoStore implements FileInfoStore {
         }
     }
 
+    @Override
+    public void updateFilesToReadyForGC(List<FileInfo> filesToBeMarkedReadyForGC) throws StateStoreException {
+        Set<String> namesOfFilesToBeMarkedReadyForGC = filesToBeMarkedReadyForGC.stream()
+                .map(FileInfo::getFilename)
+                .collect(Collectors.toSet());
+
+        Function<List<FileInfo>, String> condition = list -> {
+            Map<String, FileInfo> fileNameToFileInfo = new HashMap<>();
+            list.forEach(f -> fileNameToFileInfo.put(f.getFilename(), f));
+            for (FileInfo fileInfo : filesToBeMarkedReadyForGC) {
+                FileInfo current = fileNameToFileInfo.get(fileInfo.getFilename());
+                if (null == current || !current.getFileStatus().equals(FileInfo.FileStatus.ACTIVE) || null != current.getJobId()) {
+                    return "Files in filesToBeMarkedReadyForGC should be active with no job id: file " + fileInfo.getFilename() + " is not";
+                }
+            }
+            return "";
+        };
+
+        Function<List<FileInfo>, List<FileInfo>> update = list -> {
+            List<FileInfo> filteredFiles = new ArrayList<>();
+            for (FileInfo fileInfo : list) {
+                if (namesOfFilesToBeMarkedReadyForGC.contains(fileInfo.getFilename())) {
+                    fileInfo = fileInfo.toBuilder()
+                            .fileStatus(FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION)
+                            .lastStateStoreUpdateTime(System.currentTimeMillis())
+                            .build();
+                }
+                filteredFiles.add(fileInfo);
+            }
+            return filteredFiles;
+        };
+
+        try {
+            updateFiles(update, condition);
+        } catch (IOException e) {
+            throw new StateStoreException("IOException updating file infos", e);
+        }
+    }
+
     @Override
     public void atomicallyUpdateJobStatusOfFiles(String jobId, List<FileInfo> fileInfos) throws StateStoreException {
         Set<String> namesOfFiles = new HashSet<>();
@@ -270,6 +310,53 @@ public class S3FileInfoStore implements FileInfoStore {
         }
     }
 
+    @Override
+    public void deleteReadyForGCFiles(List<FileInfo> readyForGCFileInfos) throws StateStoreException {
+        if (readyForGCFileInfos.isEmpty()) {
+            return;
+        }
+        Set<String> namesOfFiles = readyForGCFileInfos.stream()
+                .map(FileInfo::getFilename)
+                .collect(Collectors.toSet());
+        Function<List<FileInfo>, String> condition = list -> {
+            Set<String> namesNotReadyForGC = new HashSet<>(namesOfFiles);
+            for (FileInfo fileInfo : list) {
+                if (namesOfFiles.contains(fileInfo.getFilename())) {
+                    if (!fileInfo.getFileStatus().equals(FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION)) {
+                        return "File to be deleted should be marked as ready for GC, got " + fileInfo.getFileStatus()
+                                + " for file " + fileInfo.getFilename();
+                    }
+                    namesNotReadyForGC.remove(fileInfo.getFilename());
+                }
+            }
+            if (!namesNotReadyForGC.isEmpty()) {
+                return "Files to be deleted were not found: " + namesNotReadyForGC;
+            }
+            return "";
+        };
+
+        Function<List<FileInfo>, List<FileInfo>> update = list -> list.stream()
+                .filter(fileInfo -> !namesOfFiles.contains(fileInfo.getFilename()))
+                .collect(Collectors.toList());
+
+        try {
+            updateFiles(update, condition);
+        } catch (IOException e) {
+            throw new StateStoreException("IOException updating file infos", e);
+        }
+    }
+
+    @Override
+    public FileStatistics getActiveFileStatistics() throws StateStoreException {
+        // Statistics are held with the revision as each update is written, so only need computing for revisions
+        // written before they were held
+        FileStatistics statistics = s3RevisionUtils.getCurrentFileStatistics();
+        if (null == statistics) {
+            return FileStatistics.from(getActiveFiles());
+        }
+        return statistics;
+    }
+
     @Override
     public List<FileInfo> getActiveFiles() throws StateStoreException {
         // TODO Optimise the following by pushing the predicate down to the Parquet reader
@@ -380,7 +467,7 @@ public class S3FileInfoStore implements FileInfoStore {
                 continue;
             }
             try {
-                conditionalUpdateOfFileInfoRevisionId(revisionId, nextRevisionId);
+                conditionalUpdateOfFileInfoRevisionId(revisionId, nextRevisionId, FileStatistics.from(updatedFiles));
                 LOGGER.debug("Updated file information to revision {}", nextRevisionId);
                 break;
             } catch (ConditionalCheckFailedException e) {
@@ -412,8 +499,9 @@ public class S3FileInfoStore implements FileInfoStore {
         return s3RevisionUtils.getCurrentFilesRevisionId();
     }
 
-    private void conditionalUpdateOfFileInfoRevisionId(RevisionId currentRevisionId, RevisionId newRevisionId) {
-        s3RevisionUtils.conditionalUpdateOfFileInfoRevisionId(currentRevisionId, newRevisionId);
+    private void conditionalUpdateOfFileInfoRevisionId(
+            RevisionId currentRevisionId, RevisionId newRevisionId, FileStatistics statistics) {
+        s3RevisionUtils.conditionalUpdateOfFileInfoRevisionId(currentRevisionId, newRevisionId, statistics);
     }
 
     private Schema initialiseFileInfoSchema() {
@@ -439,7 +527,7 @@ public class S3FileInfoStore implements FileInfoStore {
         } catch (IOException e) {
             throw new StateStoreException("IOException writing files to file " + path, e);
         }
-        Map<String, AttributeValue> item = new HashMap<>();
+        Map<String, AttributeValue> item = new HashMap<>(S3RevisionUtils.getStatisticsAttributes(FileStatistics.empty()));
         item.put(REVISION_ID_KEY, new AttributeValue().withS(CURRENT_FILES_REVISION_ID_KEY));
         item.put(CURRENT_REVISION, new AttributeValue().withS(firstRevisionId.getRevision()));
         item.put(CURRENT_UUID, new AttributeValue().withS(firstRevisionId.getUuid()));
@@ -42,6 +42,7 @@ import sleeper.io.parquet.record.ParquetReaderIterator;
 import sleeper.io.parquet.record.ParquetRecordReader;
 import sleeper.io.parquet.record.ParquetRecordWriterFactory;
 import sleeper.statestore.PartitionStore;
+import sleeper.statestore.PartitionSubtreeValidation;
 import sleeper.statestore.StateStoreException;
 
 import java.io.IOException;
@@ -96,6 +97,19 @@ public class S3PartitionStore implements PartitionStore {
 
     @Override
     public void atomicallyUpdatePartitionAndCreateNewOnes(Partition splitPartition, Partition newPartition1, Partition newPartition2) throws StateStoreException {
+        updatePartitionsForSplit(splitPartition, List.of(newPartition1, newPartition2), partitionIdToPartition ->
+                validateSplitPartitionRequest(partitionIdToPartition, splitPartition, newPartition1, newPartition2));
+    }
+
+    @Override
+    public void atomicallyUpdatePartitionAndCreateNewOnes(Partition splitPartition, List<Partition> newPartitions) throws StateStoreException {
+        PartitionSubtreeValidation.validate(splitPartition, newPartitions);
+        updatePartitionsForSplit(splitPartition, newPartitions, partitionIdToPartition ->
+                validateSplitPartitionIntoSubtreeRequest(partitionIdToPartition, splitPartition, newPartitions));
+    }
+
+    private void updatePartitionsForSplit(Partition splitPartition, List<Partition> newPartitions,
+                                          SplitValidation validation) throws StateStoreException {
         int numberAttempts = 0;
         while (numberAttempts < 5) {
             RevisionId revisionId = s3RevisionUtils.getCurrentPartitionsRevisionId();
@@ -113,12 +127,13 @@ public class S3PartitionStore implements PartitionStore {
             }
 
             // Validate request
-            validateSplitPartitionRequest(partitionIdToPartition, splitPartition, newPartition1, newPartition2);
+            validation.validate(partitionIdToPartition);
 
             // Update map from partition id to partitions
             partitionIdToPartition.put(splitPartition.getId(), splitPartition);
-            partitionIdToPartition.put(newPartition1.getId(), newPartition1);
-            partitionIdToPartition.put(newPartition2.getId(), newPartition2);
+            for (Partition newPartition : newPartitions) {
+                partitionIdToPartition.put(newPartition.getId(), newPartition);
+            }
 
             // Convert to list of partitions
             List<Partition> updatedPartitions = new ArrayList<>();
@@ -223,6 +238,34 @@ public class S3PartitionStore implements PartitionStore {
         }
     }
 
+    private void validateSplitPartitionIntoSubtreeRequest(Map<String, Partition> partitionIdToPartition,
+                                                          Partition splitPartition,
+                                                          List<Partition> newPartitions)
+            throws StateStoreException {
+        // Validate that splitPartition is there and is a leaf partition
+        if (!partitionIdToPartition.containsKey(splitPartition.getId())) {
+            throw new StateStoreException("splitPartition should be present");
+        }
+        if (!partitionIdToPartition.get(splitPartition.getId()).isLeafPartition()) {
+            throw new StateStoreException("splitPartition should be a leaf partition");
+        }
+
+        // Validate that the new partitions are not already there
+        for (Partition newPartition : newPartitions) {
+            if (partitionIdToPartition.containsKey(newPartition.getId())) {
+                throw new StateStoreException("New partition " + newPartition.getId() + " should not be present");
+            }
+        }
+    }
+
+    /**
+     * Checks whether a split is valid against the partitions currently in the store.
+     */
+    @FunctionalInterface
+    private interface SplitValidation {
+        void validate(Map<String, Partition> partitionIdToPartition) throws StateStoreException;
+    }
+
     private Schema initialisePartitionSchema() {
         return Schema.builder()
                 .rowKeyFields(new Field("partitionId", new StringType()))
@@ -23,6 +23,8 @@ import com.amazonaws.services.dynamodbv2.model.PutItemRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import sleeper.statestore.FileStatistics;
+
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
@@ -36,6 +38,10 @@ import static sleeper.statestore.s3.S3StateStore.REVISION_ID_KEY;
 
 public class S3RevisionUtils {
     private static final Logger LOGGER = LoggerFactory.getLogger(S3RevisionUtils.class);
+    private static final String FILE_COUNT = "FILE_COUNT";
+    private static final String RECORD_COUNT = "RECORD_COUNT";
+    private static final String MAX_PARTITION_RECORD_COUNT = "MAX_PARTITION_RECORD_COUNT";
+    private static final String PARTITIONS_BY_FILE_COUNT = "PARTITIONS_BY_FILE_COUNT";
 
     private final String dynamoRevisionIdTable;
     private final AmazonDynamoDB dynamoDB;
@@ -79,16 +85,67 @@ public class S3RevisionUtils {
 
     public void conditionalUpdateOfPartitionRevisionId(RevisionId currentRevisionId, RevisionId newRevisionId) {
         LOGGER.debug("Attempting conditional update of partition information from revision id {} to {}", currentRevisionId, newRevisionId);
-        conditionalUpdateOfRevisionId(CURRENT_PARTITIONS_REVISION_ID_KEY, currentRevisionId, newRevisionId);
+        conditionalUpdateOfRevisionId(CURRENT_PARTITIONS_REVISION_ID_KEY, currentRevisionId, newRevisionId, Map.of());
     }
 
-    public void conditionalUpdateOfFileInfoRevisionId(RevisionId currentRevisionId, RevisionId newRevisionId) {
+    /**
+     * Updates the current revision of the file information, and stores statistics about the active files in that
+     * revision alongside it. The statistics can then be read without reading the file information.
+     *
+     * @param currentRevisionId the revision that is expected to be current
+     * @param newRevisionId     the new revision
+     * @param statistics        statistics about the active files in the new revision
+     */
+    public void conditionalUpdateOfFileInfoRevisionId(
+            RevisionId currentRevisionId, RevisionId newRevisionId, FileStatistics statistics) {
         LOGGER.debug("Attempting conditional update of file information from revision id {} to {}", currentRevisionId, newRevisionId);
-        conditionalUpdateOfRevisionId(CURRENT_FILES_REVISION_ID_KEY, currentRevisionId, newRevisionId);
+        conditionalUpdateOfRevisionId(CURRENT_FILES_REVISION_ID_KEY, currentRevisionId, newRevisionId,
+                getStatisticsAttributes(statistics));
+    }
+
+    /**
+     * Reads the statistics held for the current revision of the file information.
+     *
+     * @return the statistics, or null if none are held for the current revision
+     */
+    public FileStatistics getCurrentFileStatistics() {
+        Map<String, AttributeValue> key = new HashMap<>();
+        key.put(REVISION_ID_KEY, new AttributeValue().withS(CURRENT_FILES_REVISION_ID_KEY));
+        GetItemRequest getItemRequest = new GetItemRequest()
+                .withTableName(dynamoRevisionIdTable)
+                .withKey(key)
+                .withConsistentRead(true);
+        GetItemResult result = dynamoDB.getItem(getItemRequest);
+        if (null == result || null == result.getItem() || !result.getItem().containsKey(FILE_COUNT)) {
+            return null;
+        }
+        Map<String, AttributeValue> item = result.getItem();
+        Map<Integer, Long> partitionsByFileCount = new HashMap<>();
+        item.get(PARTITIONS_BY_FILE_COUNT).getM().forEach((files, partitions) ->
+                partitionsByFileCount.put(Integer.parseInt(files), Long.parseLong(partitions.getN())));
+        return new FileStatistics(
+                Long.parseLong(item.get(FILE_COUNT).getN()),
+                Long.parseLong(item.get(RECORD_COUNT).getN()),
+                Long.parseLong(item.get(MAX_PARTITION_RECORD_COUNT).getN()),
+                partitionsByFileCount);
+    }
+
+    static Map<String, AttributeValue> getStatisticsAttributes(FileStatistics statistics) {
+        Map<String, AttributeValue> partitionsByFileCount = new HashMap<>();
+        statistics.getPartitionsByFileCount().forEach((files, partitions) ->
+                partitionsByFileCount.put(String.valueOf(files), new AttributeValue().withN(String.valueOf(partitions))));
+        Map<String, AttributeValue> attributes = new HashMap<>();
+        attributes.put(FILE_COUNT, new AttributeValue().withN(String.valueOf(statistics.getFileCount())));
+        attributes.put(RECORD_COUNT, new AttributeValue().withN(String.valueOf(statistics.getRecordCount())));
+        attributes.put(MAX_PARTITION_RECORD_COUNT, new AttributeValue().withN(String.valueOf(statistics.getMaxRecordsInPartition())));
+        attributes.put(PARTITIONS_BY_FILE_COUNT, new AttributeValue().withM(partitionsByFileCount));
+        return attributes;
     }
 
-    private void conditionalUpdateOfRevisionId(String revisionIdValue, RevisionId currentRevisionId, RevisionId newRevisionId) {
-        Map<String, AttributeValue> item = new HashMap<>();
+    private void conditionalUpdateOfRevisionId(
+            String revisionIdValue, RevisionId currentRevisionId, RevisionId newRevisionId,
+            Map<String, AttributeValue> extraAttributes) {
+        Map<String, AttributeValue> item = new HashMap<>(extraAttributes);
         item.put(REVISION_ID_KEY, new AttributeValue().withS(revisionIdValue));
         item.put(CURRENT_REVISION, new AttributeValue().withS(newRevisionId.getRevision()));
         item.put(CURRENT_UUID, new AttributeValue().withS(newRevisionId.getUuid()));
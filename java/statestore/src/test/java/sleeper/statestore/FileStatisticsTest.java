@@ -0,0 +1,92 @@
+/*
+ * Copyright 2022-2023 Crown Copyright
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package sleeper.statestore;
+
+import org.junit.jupiter.api.Test;
+
+import sleeper.core.key.Key;
+import sleeper.core.schema.type.LongType;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class FileStatisticsTest {
+
+    @Test
+    void shouldComputeStatisticsOfActiveFiles() {
+        // Given
+        List<FileInfo> files = List.of(
+                activeFile("file1", "A", 100),
+                activeFile("file2", "A", 200),
+                activeFile("file3", "A", 300),
+                activeFile("file4", "B", 100),
+                activeFile("file5", "C", 50),
+                activeFile("file6", "C", 50));
+
+        // When
+        FileStatistics statistics = FileStatistics.from(files);
+
+        // Then
+        assertThat(statistics).isEqualTo(new FileStatistics(6, 800, 600, Map.of(1, 1L, 2, 1L, 3, 1L)));
+        assertThat(statistics.getPartitionsWithFiles()).isEqualTo(3);
+        assertThat(statistics.getMinFilesInPartition()).isEqualTo(1);
+        assertThat(statistics.getMaxFilesInPartition()).isEqualTo(3);
+        assertThat(statistics.getAverageFilesPerPartition()).isEqualTo(2.0);
+        assertThat(statistics.getPartitionRecordSkew()).isEqualTo(600 / (800 / 3.0));
+    }
+
+    @Test
+    void shouldIgnoreFilesReadyForGarbageCollection() {
+        // Given
+        List<FileInfo> files = List.of(
+                activeFile("file1", "A", 100),
+                activeFile("file2", "A", 200).toBuilder()
+                        .fileStatus(FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION)
+                        .build());
+
+        // When
+        FileStatistics statistics = FileStatistics.from(files);
+
+        // Then
+        assertThat(statistics).isEqualTo(new FileStatistics(1, 100, 100, Map.of(1, 1L)));
+    }
+
+    @Test
+    void shouldComputeStatisticsWithNoFiles() {
+        // When
+        FileStatistics statistics = FileStatistics.from(List.of());
+
+        // Then
+        assertThat(statistics).isEqualTo(FileStatistics.empty());
+        assertThat(statistics.getMaxFilesInPartition()).isZero();
+        assertThat(statistics.getAverageFilesPerPartition()).isZero();
+        assertThat(statistics.getPartitionRecordSkew()).isZero();
+    }
+
+    private static FileInfo activeFile(String filename, String partitionId, long records) {
+        return FileInfo.builder()
+                .rowKeyTypes(new LongType())
+                .filename(filename)
+                .fileStatus(FileInfo.FileStatus.ACTIVE)
+                .partitionId(partitionId)
+                .minRowKey(Key.create(1L))
+                .maxRowKey(Key.create(10L))
+                .numberOfRecords(records)
+                .build();
+    }
+}
@@ -27,6 +27,8 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import sleeper.core.CommonTestConstants;
 import sleeper.core.key.Key;
 import sleeper.core.partition.Partition;
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.partition.PartitionsBuilder;
 import sleeper.core.partition.PartitionsFromSplitPoints;
 import sleeper.core.range.Range;
 import sleeper.core.range.Range.RangeFactory;
@@ -52,6 +54,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -491,6 +494,33 @@ public class DynamoDBStateStoreIT {
         assertThat(dynamoDBStateStore.getReadyForGCFiles()).isExhausted();
     }
 
+    @Test
+    public void shouldDeleteMoreReadyForGCFilesThanFitInOneBatchWrite() throws StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore dynamoDBStateStore = getStateStore(schema);
+        List<FileInfo> readyForGCFiles = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            FileInfo fileInfo = FileInfo.builder()
+                    .rowKeyTypes(new LongType())
+                    .filename("file" + i)
+                    .fileStatus(FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION)
+                    .partitionId("5")
+                    .minRowKey(Key.create(1L))
+                    .maxRowKey(Key.create(10L))
+                    .lastStateStoreUpdateTime(2_000_000L)
+                    .build();
+            readyForGCFiles.add(fileInfo);
+        }
+        dynamoDBStateStore.addFiles(readyForGCFiles);
+
+        // When
+        dynamoDBStateStore.deleteReadyForGCFiles(readyForGCFiles);
+
+        // Then
+        assertThat(dynamoDBStateStore.getReadyForGCFiles()).isExhausted();
+    }
+
     @Test
     public void shouldAtomicallyUpdateStatusToReadyForGCAndCreateNewActiveFile() throws StateStoreException {
         // Given
@@ -526,6 +556,57 @@ public class DynamoDBStateStoreIT {
         assertThat(dynamoDBStateStore.getReadyForGCFiles()).toIterable().hasSize(4);
     }
 
+    @Test
+    public void shouldUpdateStatusToReadyForGCWithoutNewActiveFile() throws StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore dynamoDBStateStore = getStateStore(schema);
+        List<FileInfo> files = new ArrayList<>();
+        for (int i = 1; i < 4; i++) {
+            FileInfo fileInfo = FileInfo.builder()
+                    .rowKeyTypes(new LongType())
+                    .filename("file" + i)
+                    .fileStatus(FileInfo.FileStatus.ACTIVE)
+                    .partitionId("7")
+                    .minRowKey(Key.create(1L))
+                    .maxRowKey(Key.create(10L))
+                    .lastStateStoreUpdateTime(i * 1_000_000L)
+                    .build();
+            files.add(fileInfo);
+            dynamoDBStateStore.addFile(fileInfo);
+        }
+
+        // When
+        dynamoDBStateStore.updateFilesToReadyForGC(files.subList(0, 2));
+
+        // Then
+        assertThat(dynamoDBStateStore.getActiveFiles()).containsExactly(files.get(2));
+        assertThat(dynamoDBStateStore.getReadyForGCFiles()).toIterable().hasSize(2);
+    }
+
+    @Test
+    public void shouldNotUpdateStatusToReadyForGCWhenFileHasJobId() throws StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore dynamoDBStateStore = getStateStore(schema);
+        FileInfo fileInfo = FileInfo.builder()
+                .rowKeyTypes(new LongType())
+                .filename("file1")
+                .fileStatus(FileInfo.FileStatus.ACTIVE)
+                .partitionId("7")
+                .minRowKey(Key.create(1L))
+                .maxRowKey(Key.create(10L))
+                .lastStateStoreUpdateTime(1_000_000L)
+                .build();
+        dynamoDBStateStore.addFile(fileInfo);
+        dynamoDBStateStore.atomicallyUpdateJobStatusOfFiles("job1", List.of(fileInfo));
+
+        // When / Then
+        assertThatThrownBy(() -> dynamoDBStateStore.updateFilesToReadyForGC(List.of(fileInfo)))
+                .isInstanceOf(StateStoreException.class);
+        assertThat(dynamoDBStateStore.getActiveFiles()).extracting(FileInfo::getFilename).containsExactly("file1");
+    }
+
     @Test
     public void shouldAtomicallyUpdateStatusToReadyForGCAndCreateNewActiveFilesForSplittingJob() throws StateStoreException {
         // Given
@@ -990,6 +1071,58 @@ public class DynamoDBStateStoreIT {
                 .containsExactlyInAnyOrder(parentPartition, childPartition1, childPartition2);
     }
 
+    @Test
+    public void shouldSplitPartitionIntoMultiLevelSubtree() throws StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore stateStore = getStateStore(schema, List.of(rootOnly(schema)));
+        PartitionTree treeAfter = treeSplitBelowRootToDepth(schema, 2);
+
+        // When
+        stateStore.atomicallyUpdatePartitionAndCreateNewOnes(
+                treeAfter.getRootPartition(), partitionsBelowRoot(treeAfter));
+
+        // Then
+        assertThat(stateStore.getAllPartitions())
+                .containsExactlyInAnyOrderElementsOf(treeAfter.getAllPartitions());
+        assertThat(stateStore.getLeafPartitions()).containsExactlyInAnyOrder(
+                treeAfter.getPartition("rootLL"), treeAfter.getPartition("rootLR"),
+                treeAfter.getPartition("rootRL"), treeAfter.getPartition("rootRR"));
+    }
+
+    @Test
+    public void shouldRefuseSplitIntoSubtreeExceedingTransactionLimit() throws StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        Partition root = rootOnly(schema);
+        StateStore stateStore = getStateStore(schema, List.of(root));
+        PartitionTree treeAfter = treeSplitBelowRootToDepth(schema, 6);
+
+        // When / Then
+        assertThatThrownBy(() -> stateStore.atomicallyUpdatePartitionAndCreateNewOnes(
+                treeAfter.getRootPartition(), partitionsBelowRoot(treeAfter)))
+                .isInstanceOf(StateStoreException.class);
+        assertThat(stateStore.getAllPartitions()).containsExactly(root);
+    }
+
+    @Test
+    public void shouldRefuseSplitIntoSubtreeWhenParentIsNoLongerALeaf() throws StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore stateStore = getStateStore(schema, List.of(rootOnly(schema)));
+        PartitionTree treeAfterFirstSplit = treeSplitBelowRootToDepth(schema, 1);
+        stateStore.atomicallyUpdatePartitionAndCreateNewOnes(
+                treeAfterFirstSplit.getRootPartition(), partitionsBelowRoot(treeAfterFirstSplit));
+        PartitionTree treeAfterSecondSplit = treeSplitBelowRootToDepth(schema, 2);
+
+        // When / Then
+        assertThatThrownBy(() -> stateStore.atomicallyUpdatePartitionAndCreateNewOnes(
+                treeAfterSecondSplit.getRootPartition(), partitionsBelowRoot(treeAfterSecondSplit)))
+                .isInstanceOf(StateStoreException.class);
+        assertThat(stateStore.getAllPartitions())
+                .containsExactlyInAnyOrderElementsOf(treeAfterFirstSplit.getAllPartitions());
+    }
+
     @Test
     public void shouldNotUpdatePartitionsIfLeafStatusChanges() throws StateStoreException {
         // Given
@@ -1282,4 +1415,30 @@ public class DynamoDBStateStoreIT {
                 .build();
         assertThat(partitions).containsExactly(expectedPartition);
     }
+
+    private static Partition rootOnly(Schema schema) {
+        return new PartitionsBuilder(schema).rootFirst("root").buildTree().getRootPartition();
+    }
+
+    private static PartitionTree treeSplitBelowRootToDepth(Schema schema, int depth) {
+        PartitionsBuilder builder = new PartitionsBuilder(schema).rootFirst("root");
+        splitToDepth(builder, "root", 0L, 1L << depth, depth);
+        return builder.buildTree();
+    }
+
+    private static void splitToDepth(PartitionsBuilder builder, String partitionId, long min, long max, int depth) {
+        if (depth < 1) {
+            return;
+        }
+        long splitPoint = (min + max) / 2;
+        builder.splitToNewChildren(partitionId, partitionId + "L", partitionId + "R", splitPoint);
+        splitToDepth(builder, partitionId + "L", min, splitPoint, depth - 1);
+        splitToDepth(builder, partitionId + "R", splitPoint, max, depth - 1);
+    }
+
+    private static List<Partition> partitionsBelowRoot(PartitionTree tree) {
+        return tree.getAllPartitions().stream()
+                .filter(partition -> !partition.getId().equals("root"))
+                .collect(Collectors.toList());
+    }
 }
@@ -68,4 +68,9 @@ public class FixedPartitionStore implements PartitionStore {
     public void atomicallyUpdatePartitionAndCreateNewOnes(Partition splitPartition, Partition newPartition1, Partition newPartition2) {
         throw new UnsupportedOperationException("Cannot split partitions with FixedPartitionStore");
     }
+
+    @Override
+    public void atomicallyUpdatePartitionAndCreateNewOnes(Partition splitPartition, List<Partition> newPartitions) {
+        throw new UnsupportedOperationException("Cannot split partitions with FixedPartitionStore");
+    }
 }
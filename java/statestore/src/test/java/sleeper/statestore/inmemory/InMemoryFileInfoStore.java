@@ -17,6 +17,7 @@ package sleeper.statestore.inmemory;
 
 import sleeper.statestore.FileInfo;
 import sleeper.statestore.FileInfoStore;
+import sleeper.statestore.FileStatistics;
 import sleeper.statestore.StateStoreException;
 
 import java.util.ArrayList;
@@ -85,6 +86,17 @@ public class InMemoryFileInfoStore implements FileInfoStore {
         addFile(rightFileInfo);
     }
 
+    @Override
+    public void updateFilesToReadyForGC(List<FileInfo> filesToBeMarkedReadyForGC) throws StateStoreException {
+        for (FileInfo file : filesToBeMarkedReadyForGC) {
+            FileInfo activeFile = activeFiles.get(file.getFilename());
+            if (null == activeFile || null != activeFile.getJobId()) {
+                throw new StateStoreException("File should be active with no job id: " + file.getFilename());
+            }
+        }
+        filesToBeMarkedReadyForGC.forEach(this::moveToGC);
+    }
+
     private void moveToGC(FileInfo file) {
         activeFiles.remove(file.getFilename());
         readyForGCFiles.put(file.getFilename(),
@@ -114,6 +126,16 @@ public class InMemoryFileInfoStore implements FileInfoStore {
         readyForGCFiles.remove(fileInfo.getFilename());
     }
 
+    @Override
+    public FileStatistics getActiveFileStatistics() {
+        return FileStatistics.from(activeFiles.values());
+    }
+
+    @Override
+    public void deleteReadyForGCFiles(List<FileInfo> fileInfos) {
+        fileInfos.forEach(this::deleteReadyForGCFile);
+    }
+
     @Override
     public void initialise() throws StateStoreException {
 
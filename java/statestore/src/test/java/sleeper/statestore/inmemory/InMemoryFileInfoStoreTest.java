@@ -118,6 +118,48 @@ public class InMemoryFileInfoStoreTest {
                         assertThat(files).containsExactlyInAnyOrder("newLeftFile", "newRightFile"));
     }
 
+    @Test
+    public void shouldSetFileReadyForGCWithoutNewActiveFile() throws Exception {
+        // Given
+        Schema schema = Schema.builder().rowKeyFields(new Field("key", new StringType())).build();
+        PartitionTree tree = new PartitionsBuilder(schema)
+                .leavesWithSplits(Collections.singletonList("root"), Collections.emptyList())
+                .buildTree();
+        FileInfoFactory factory = FileInfoFactory.builder().schema(schema).partitionTree(tree).build();
+        FileInfo expiredFile = factory.rootFile("expiredFile", 100L, "a", "b");
+        FileInfo otherFile = factory.rootFile("otherFile", 100L, "c", "d");
+        FileInfoStore store = new InMemoryFileInfoStore();
+        store.addFiles(Arrays.asList(expiredFile, otherFile));
+
+        // When
+        store.updateFilesToReadyForGC(Collections.singletonList(expiredFile));
+
+        // Then
+        assertThat(store.getActiveFiles()).containsExactly(otherFile);
+        assertThat(store.getReadyForGCFiles()).toIterable().containsExactly(
+                expiredFile.toBuilder().fileStatus(READY_FOR_GARBAGE_COLLECTION).build());
+    }
+
+    @Test
+    public void shouldNotSetFileReadyForGCWithoutNewActiveFileWhenFileHasJobId() throws Exception {
+        // Given
+        Schema schema = Schema.builder().rowKeyFields(new Field("key", new StringType())).build();
+        PartitionTree tree = new PartitionsBuilder(schema)
+                .leavesWithSplits(Collections.singletonList("root"), Collections.emptyList())
+                .buildTree();
+        FileInfoFactory factory = FileInfoFactory.builder().schema(schema).partitionTree(tree).build();
+        FileInfo file = factory.rootFile("file", 100L, "a", "b");
+        FileInfoStore store = new InMemoryFileInfoStore();
+        store.addFile(file);
+        store.atomicallyUpdateJobStatusOfFiles("job", Collections.singletonList(file));
+
+        // When / Then
+        assertThatThrownBy(() -> store.updateFilesToReadyForGC(Collections.singletonList(file)))
+                .isInstanceOf(StateStoreException.class);
+        assertThat(store.getActiveFiles()).containsExactly(file.toBuilder().jobId("job").build());
+        assertThat(store.getReadyForGCFiles()).isExhausted();
+    }
+
     @Test
     public void shouldDeleteGarbageCollectedFile() throws Exception {
         // Given
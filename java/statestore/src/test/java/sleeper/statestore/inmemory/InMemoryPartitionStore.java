@@ -19,6 +19,7 @@ import sleeper.core.partition.Partition;
 import sleeper.core.partition.PartitionsFromSplitPoints;
 import sleeper.core.schema.Schema;
 import sleeper.statestore.PartitionStore;
+import sleeper.statestore.PartitionSubtreeValidation;
 import sleeper.statestore.StateStoreException;
 
 import java.util.Collections;
@@ -70,4 +71,22 @@ public class InMemoryPartitionStore implements PartitionStore {
                         Stream.of(splitPartition, newPartition1, newPartition2))
                 .collect(Collectors.toUnmodifiableList());
     }
+
+    @Override
+    public void atomicallyUpdatePartitionAndCreateNewOnes(
+            Partition splitPartition, List<Partition> newPartitions) throws StateStoreException {
+        PartitionSubtreeValidation.validate(splitPartition, newPartitions);
+        boolean splitPartitionIsLeaf = partitions.stream()
+                .anyMatch(partition -> partition.getId().equals(splitPartition.getId()) && partition.isLeafPartition());
+        if (!splitPartitionIsLeaf) {
+            throw new StateStoreException("Split partition is not a leaf partition in the store: " + splitPartition.getId());
+        }
+        partitions = Stream.of(
+                        partitions.stream().filter(partition ->
+                                !Objects.equals(partition.getId(), splitPartition.getId())),
+                        Stream.of(splitPartition),
+                        newPartitions.stream())
+                .flatMap(stream -> stream)
+                .collect(Collectors.toUnmodifiableList());
+    }
 }
@@ -27,6 +27,7 @@ import sleeper.core.schema.Field;
 import sleeper.core.schema.Schema;
 import sleeper.core.schema.type.StringType;
 import sleeper.statestore.PartitionStore;
+import sleeper.statestore.StateStoreException;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -167,5 +168,52 @@ public class InMemoryPartitionStoreTest {
                     treeAfter.getPartition("D"),
                     treeAfter.getPartition("E"));
         }
+
+        @Test
+        void shouldSplitLeafIntoSubtree() throws Exception {
+            // Given
+            Schema schema = Schema.builder().rowKeyFields(new Field("key", new StringType())).build();
+            PartitionTree treeBefore = new PartitionsBuilder(schema).singlePartition("A").buildTree();
+            PartitionTree treeAfter = new PartitionsBuilder(schema)
+                    .rootFirst("A")
+                    .splitToNewChildren("A", "B", "C", "bbb")
+                    .splitToNewChildren("B", "D", "E", "aaa")
+                    .splitToNewChildren("C", "F", "G", "ccc")
+                    .buildTree();
+            PartitionStore store = new InMemoryPartitionStore(treeBefore.getAllPartitions());
+
+            // When
+            store.atomicallyUpdatePartitionAndCreateNewOnes(treeAfter.getPartition("A"), List.of(
+                    treeAfter.getPartition("B"), treeAfter.getPartition("C"),
+                    treeAfter.getPartition("D"), treeAfter.getPartition("E"),
+                    treeAfter.getPartition("F"), treeAfter.getPartition("G")));
+
+            // Then
+            assertThat(store.getAllPartitions()).containsExactlyInAnyOrderElementsOf(treeAfter.getAllPartitions());
+            assertThat(store.getLeafPartitions()).containsExactlyInAnyOrder(
+                    treeAfter.getPartition("D"), treeAfter.getPartition("E"),
+                    treeAfter.getPartition("F"), treeAfter.getPartition("G"));
+        }
+
+        @Test
+        void shouldRefuseSplitIntoSubtreeWhenPartitionIsNoLongerALeaf() throws Exception {
+            // Given
+            Schema schema = Schema.builder().rowKeyFields(new Field("key", new StringType())).build();
+            PartitionTree treeBefore = new PartitionsBuilder(schema)
+                    .rootFirst("A")
+                    .splitToNewChildren("A", "B", "C", "aaa")
+                    .buildTree();
+            PartitionTree treeAfter = new PartitionsBuilder(schema)
+                    .rootFirst("A")
+                    .splitToNewChildren("A", "D", "E", "bbb")
+                    .buildTree();
+            PartitionStore store = new InMemoryPartitionStore(treeBefore.getAllPartitions());
+
+            // When / Then
+            assertThatThrownBy(() -> store.atomicallyUpdatePartitionAndCreateNewOnes(treeAfter.getPartition("A"),
+                    List.of(treeAfter.getPartition("D"), treeAfter.getPartition("E"))))
+                    .isInstanceOf(StateStoreException.class);
+            assertThat(store.getAllPartitions()).containsExactlyInAnyOrderElementsOf(treeBefore.getAllPartitions());
+        }
     }
 }
@@ -35,6 +35,8 @@ import org.testcontainers.junit.jupiter.Testcontainers;
 import sleeper.core.CommonTestConstants;
 import sleeper.core.key.Key;
 import sleeper.core.partition.Partition;
+import sleeper.core.partition.PartitionTree;
+import sleeper.core.partition.PartitionsBuilder;
 import sleeper.core.partition.PartitionsFromSplitPoints;
 import sleeper.core.range.Range;
 import sleeper.core.range.Range.RangeFactory;
@@ -48,6 +50,7 @@ import sleeper.core.schema.type.PrimitiveType;
 import sleeper.core.schema.type.StringType;
 import sleeper.core.schema.type.Type;
 import sleeper.statestore.FileInfo;
+import sleeper.statestore.FileStatistics;
 import sleeper.statestore.StateStore;
 import sleeper.statestore.StateStoreException;
 
@@ -66,6 +69,7 @@ import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
 
 import static java.nio.file.Files.createTempDirectory;
 import static org.assertj.core.api.Assertions.assertThat;
@@ -556,6 +560,100 @@ public class S3StateStoreIT {
         assertThat(stateStore.getReadyForGCFiles()).isExhausted();
     }
 
+    @Test
+    public void shouldDeleteReadyForGCFilesInOneUpdate() throws IOException, StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore stateStore = getStateStore(schema);
+        FileInfo fileInfo1 = FileInfo.builder()
+                .rowKeyTypes(new LongType())
+                .filename("file1")
+                .fileStatus(FileInfo.FileStatus.ACTIVE)
+                .partitionId("4")
+                .minRowKey(Key.create(1L))
+                .maxRowKey(Key.create(10L))
+                .lastStateStoreUpdateTime(1_000_000L)
+                .numberOfRecords(1L)
+                .build();
+        FileInfo fileInfo2 = fileInfo1.toBuilder()
+                .filename("file2")
+                .fileStatus(FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION)
+                .build();
+        FileInfo fileInfo3 = fileInfo1.toBuilder()
+                .filename("file3")
+                .fileStatus(FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION)
+                .build();
+        stateStore.addFiles(Arrays.asList(fileInfo1, fileInfo2, fileInfo3));
+
+        // When
+        stateStore.deleteReadyForGCFiles(Arrays.asList(fileInfo2, fileInfo3));
+
+        // Then
+        assertThat(stateStore.getActiveFiles()).containsExactly(fileInfo1);
+        assertThat(stateStore.getReadyForGCFiles()).isExhausted();
+    }
+
+    @Test
+    public void shouldMaintainActiveFileStatisticsAsFilesAreUpdated() throws IOException, StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore stateStore = getStateStore(schema);
+        FileInfo fileInfo1 = FileInfo.builder()
+                .rowKeyTypes(new LongType())
+                .filename("file1")
+                .fileStatus(FileInfo.FileStatus.ACTIVE)
+                .partitionId("4")
+                .minRowKey(Key.create(1L))
+                .maxRowKey(Key.create(10L))
+                .lastStateStoreUpdateTime(1_000_000L)
+                .numberOfRecords(1L)
+                .build();
+        FileInfo fileInfo2 = fileInfo1.toBuilder().filename("file2").numberOfRecords(2L).build();
+        FileInfo fileInfo3 = fileInfo1.toBuilder().filename("file3").partitionId("5").numberOfRecords(3L).build();
+        FileStatistics statisticsBefore = stateStore.getActiveFileStatistics();
+
+        // When
+        stateStore.addFiles(Arrays.asList(fileInfo1, fileInfo2, fileInfo3));
+        FileStatistics statisticsAfterAdd = stateStore.getActiveFileStatistics();
+        stateStore.atomicallyUpdateFilesToReadyForGCAndCreateNewActiveFile(
+                Arrays.asList(fileInfo1, fileInfo2),
+                fileInfo1.toBuilder().filename("file4").numberOfRecords(3L).build());
+
+        // Then
+        assertThat(statisticsBefore).isEqualTo(FileStatistics.empty());
+        assertThat(statisticsAfterAdd).isEqualTo(new FileStatistics(3, 6, 3, Map.of(1, 1L, 2, 1L)));
+        assertThat(stateStore.getActiveFileStatistics()).isEqualTo(new FileStatistics(2, 6, 3, Map.of(1, 2L)))
+                .isEqualTo(FileStatistics.from(stateStore.getActiveFiles()));
+    }
+
+    @Test
+    public void shouldNotDeleteReadyForGCFilesIfAnyIsNotMarkedAsReadyForGC() throws IOException, StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore stateStore = getStateStore(schema);
+        FileInfo fileInfo1 = FileInfo.builder()
+                .rowKeyTypes(new LongType())
+                .filename("file1")
+                .fileStatus(FileInfo.FileStatus.ACTIVE)
+                .partitionId("4")
+                .minRowKey(Key.create(1L))
+                .maxRowKey(Key.create(10L))
+                .lastStateStoreUpdateTime(1_000_000L)
+                .numberOfRecords(1L)
+                .build();
+        FileInfo fileInfo2 = fileInfo1.toBuilder()
+                .filename("file2")
+                .fileStatus(FileInfo.FileStatus.READY_FOR_GARBAGE_COLLECTION)
+                .build();
+        stateStore.addFiles(Arrays.asList(fileInfo1, fileInfo2));
+
+        // When / Then
+        assertThatThrownBy(() -> stateStore.deleteReadyForGCFiles(Arrays.asList(fileInfo1, fileInfo2)))
+                .isInstanceOf(StateStoreException.class);
+        assertThat(stateStore.getActiveFiles()).containsExactly(fileInfo1);
+        assertThat(stateStore.getReadyForGCFiles()).toIterable().containsExactly(fileInfo2);
+    }
+
     @Test
     public void shouldNotDeleteReadyForGCFileIfNotMarkedAsReadyForGC() throws IOException, StateStoreException {
         // Given
@@ -627,6 +725,59 @@ public class S3StateStoreIT {
         assertThat(stateStore.getReadyForGCFiles()).toIterable().hasSize(4);
     }
 
+    @Test
+    public void shouldUpdateStatusToReadyForGCWithoutNewActiveFile() throws IOException, StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore stateStore = getStateStore(schema);
+        List<FileInfo> files = new ArrayList<>();
+        for (int i = 1; i < 4; i++) {
+            FileInfo fileInfo = FileInfo.builder()
+                    .rowKeyTypes(new LongType())
+                    .filename("file" + i)
+                    .fileStatus(FileInfo.FileStatus.ACTIVE)
+                    .partitionId("7")
+                    .minRowKey(Key.create(1L))
+                    .maxRowKey(Key.create(10L))
+                    .lastStateStoreUpdateTime(i * 1_000_000L)
+                    .numberOfRecords(1L)
+                    .build();
+            files.add(fileInfo);
+            stateStore.addFile(fileInfo);
+        }
+
+        // When
+        stateStore.updateFilesToReadyForGC(files.subList(0, 2));
+
+        // Then
+        assertThat(stateStore.getActiveFiles()).containsExactly(files.get(2));
+        assertThat(stateStore.getReadyForGCFiles()).toIterable().hasSize(2);
+    }
+
+    @Test
+    public void shouldNotUpdateStatusToReadyForGCWhenFileHasJobId() throws IOException, StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore stateStore = getStateStore(schema);
+        FileInfo fileInfo = FileInfo.builder()
+                .rowKeyTypes(new LongType())
+                .filename("file1")
+                .fileStatus(FileInfo.FileStatus.ACTIVE)
+                .partitionId("7")
+                .minRowKey(Key.create(1L))
+                .maxRowKey(Key.create(10L))
+                .lastStateStoreUpdateTime(1_000_000L)
+                .numberOfRecords(1L)
+                .build();
+        stateStore.addFile(fileInfo);
+        stateStore.atomicallyUpdateJobStatusOfFiles("job1", List.of(fileInfo));
+
+        // When / Then
+        assertThatThrownBy(() -> stateStore.updateFilesToReadyForGC(List.of(fileInfo)))
+                .isInstanceOf(StateStoreException.class);
+        assertThat(stateStore.getActiveFiles()).extracting(FileInfo::getFilename).containsExactly("file1");
+    }
+
     @Test
     public void shouldAtomicallyUpdateStatusToReadyForGCAndCreateNewActiveFilesForSplittingJob() throws IOException, StateStoreException {
         // Given
@@ -1156,6 +1307,59 @@ public class S3StateStoreIT {
                 .containsExactlyInAnyOrder(parentPartition, childPartition1, childPartition2);
     }
 
+    @Test
+    public void shouldSplitPartitionIntoMultiLevelSubtree() throws IOException, StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore stateStore = getStateStore(schema, List.of(rootOnly(schema)));
+        PartitionTree treeAfter = treeSplitBelowRootToDepth(schema, 2);
+
+        // When
+        stateStore.atomicallyUpdatePartitionAndCreateNewOnes(
+                treeAfter.getRootPartition(), partitionsBelowRoot(treeAfter));
+
+        // Then
+        assertThat(stateStore.getAllPartitions())
+                .containsExactlyInAnyOrderElementsOf(treeAfter.getAllPartitions());
+        assertThat(stateStore.getLeafPartitions()).containsExactlyInAnyOrder(
+                treeAfter.getPartition("rootLL"), treeAfter.getPartition("rootLR"),
+                treeAfter.getPartition("rootRL"), treeAfter.getPartition("rootRR"));
+    }
+
+    @Test
+    public void shouldSplitPartitionIntoSubtreeLargerThanDynamoDBTransactionLimit() throws IOException, StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore stateStore = getStateStore(schema, List.of(rootOnly(schema)));
+        PartitionTree treeAfter = treeSplitBelowRootToDepth(schema, 6);
+
+        // When
+        stateStore.atomicallyUpdatePartitionAndCreateNewOnes(
+                treeAfter.getRootPartition(), partitionsBelowRoot(treeAfter));
+
+        // Then
+        assertThat(stateStore.getAllPartitions())
+                .containsExactlyInAnyOrderElementsOf(treeAfter.getAllPartitions());
+    }
+
+    @Test
+    public void shouldRefuseSplitIntoSubtreeWhenParentIsNoLongerALeaf() throws IOException, StateStoreException {
+        // Given
+        Schema schema = schemaWithSingleRowKeyType(new LongType());
+        StateStore stateStore = getStateStore(schema, List.of(rootOnly(schema)));
+        PartitionTree treeAfterFirstSplit = treeSplitBelowRootToDepth(schema, 1);
+        stateStore.atomicallyUpdatePartitionAndCreateNewOnes(
+                treeAfterFirstSplit.getRootPartition(), partitionsBelowRoot(treeAfterFirstSplit));
+        PartitionTree treeAfterSecondSplit = treeSplitBelowRootToDepth(schema, 2);
+
+        // When / Then
+        assertThatThrownBy(() -> stateStore.atomicallyUpdatePartitionAndCreateNewOnes(
+                treeAfterSecondSplit.getRootPartition(), partitionsBelowRoot(treeAfterSecondSplit)))
+                .isInstanceOf(StateStoreException.class);
+        assertThat(stateStore.getAllPartitions())
+                .containsExactlyInAnyOrderElementsOf(treeAfterFirstSplit.getAllPartitions());
+    }
+
     @Test
     public void shouldNotUpdatePartitionsIfLeafStatusChanges() throws IOException, StateStoreException {
         // Given
@@ -1446,4 +1650,30 @@ public class S3StateStoreIT {
                 .build();
         assertThat(partitions).containsExactly(expectedPartition);
     }
+
+    private static Partition rootOnly(Schema schema) {
+        return new PartitionsBuilder(schema).rootFirst("root").buildTree().getRootPartition();
+    }
+
+    private static PartitionTree treeSplitBelowRootToDepth(Schema schema, int depth) {
+        PartitionsBuilder builder = new PartitionsBuilder(schema).rootFirst("root");
+        splitToDepth(builder, "root", 0L, 1L << depth, depth);
+        return builder.buildTree();
+    }
+
+    private static void splitToDepth(PartitionsBuilder builder, String partitionId, long min, long max, int depth) {
+        if (depth < 1) {
+            return;
+        }
+        long splitPoint = (min + max) / 2;
+        builder.splitToNewChildren(partitionId, partitionId + "L", partitionId + "R", splitPoint);
+        splitToDepth(builder, partitionId + "L", min, splitPoint, depth - 1);
+        splitToDepth(builder, partitionId + "R", splitPoint, max, depth - 1);
+    }
+
+    private static List<Partition> partitionsBelowRoot(PartitionTree tree) {
+        return tree.getAllPartitions().stream()
+                .filter(partition -> !partition.getId().equals("root"))
+                .collect(Collectors.toList());
+    }
 }
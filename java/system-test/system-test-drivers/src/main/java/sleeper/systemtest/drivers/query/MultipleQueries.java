@@ -35,7 +35,7 @@ import sleeper.core.range.Range.RangeFactory;
 import sleeper.core.range.Region;
 import sleeper.core.record.Record;
 import sleeper.core.record.ResultsBatch;
-import sleeper.core.record.serialiser.JSONResultsBatchSerialiser;
+import sleeper.core.record.serialiser.ResultsBatchFormat;
 import sleeper.core.schema.Schema;
 import sleeper.query.model.Query;
 import sleeper.systemtest.configuration.SystemTestProperties;
@@ -121,8 +121,7 @@ public class MultipleQueries {
                 numQueryResultsReceived++; // TODO Need to count distinct query ids
                 String messageHandle = message.getReceiptHandle();
                 String serialisedResults = message.getBody();
-                JSONResultsBatchSerialiser serialiser = new JSONResultsBatchSerialiser();
-                ResultsBatch resultsBatch = serialiser.deserialise(serialisedResults);
+                ResultsBatch resultsBatch = ResultsBatchFormat.serialiserFor(serialisedResults).deserialise(serialisedResults);
                 String queryId = resultsBatch.getQueryId();
                 List<Record> records = resultsBatch.getRecords();
                 System.out.println(records.size() + " results for query " + queryId);